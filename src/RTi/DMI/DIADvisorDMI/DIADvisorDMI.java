@@ -430,7 +430,7 @@ throws Exception
 	// Also add wheres for the start and end dates if they are specified...
 	ResultSet rs = dmiSelect(q);
 	List<DIADvisor_DataChron> v = toDataChronList (rs);
-	rs.close();
+	closeResultSet(rs);
 	return v;
 }
 
@@ -455,7 +455,7 @@ throws Exception
 	buildSQL ( q, _S_GROUPDEF );
 	ResultSet rs = dmiSelect(q);
 	List<DIADvisor_GroupDef> v = toGroupDefList (rs);
-	rs.close();
+	closeResultSet(rs);
 	return v;
 }
 
@@ -499,7 +499,7 @@ throws Exception
 	// Also add wheres for the start and end dates if they are specified...
 	ResultSet rs = dmiSelect(q);
 	List<DIADvisor_RegularTSRecord> v = toRegularTSRecordList (rs);
-	rs.close();
+	closeResultSet(rs);
 	return v;
 }
 
@@ -529,7 +529,7 @@ throws Exception
 		}
 		v.add ( data );
 	}
-	rs.close();
+	closeResultSet(rs);
 	return v;
 }
 
@@ -545,7 +545,7 @@ throws Exception
 	q.addWhereClause ( "SensorDef." + getFieldLeftEscape() + "Sensor ID" + getFieldRightEscape() + "=" + SensorId ); 
 	ResultSet rs = dmiSelect(q);
 	List<DIADvisor_SensorDef> v = toSensorDefList (rs);
-	rs.close();
+	closeResultSet(rs);
 	if ( (v == null) || (v.size() < 1) ) {
 		return null;
 	}
@@ -564,7 +564,7 @@ throws Exception
 	buildSQL ( q, _S_SENSOR_DEF );
 	ResultSet rs = dmiSelect(q);
 	List<DIADvisor_SensorDef> v = toSensorDefList (rs);
-	rs.close();
+	closeResultSet(rs);
 	return v;
 }
 
@@ -579,7 +579,7 @@ throws Exception
 	//q.addWhereClause ( "Area.MeasLoc_num=" + MeasLoc_num ); 
 	ResultSet rs = dmiSelect(q);
 	List<DIADvisor_SiteDef> v = toSiteDefList (rs);
-	rs.close();
+	closeResultSet(rs);
 	return v;
 }
 
@@ -594,7 +594,7 @@ throws Exception
 	buildSQL ( q, _S_SYS_CONFIG );
 	ResultSet rs = dmiSelect(q);
 	List<DIADvisor_SysConfig> v = toSysConfigList (rs);
-	rs.close();
+	closeResultSet(rs);
 	if ( (v == null) || (v.size() == 0) ) {
 		return null;
 	}
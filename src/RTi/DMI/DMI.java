@@ -305,13 +305,21 @@ import RTi.Util.String.StringUtil;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.DriverManager;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
 import java.sql.SQLException;
+import java.sql.Types;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 
 /**
@@ -563,6 +571,60 @@ Connection that is used for the database interaction
 */
 private Connection __connection;
 
+/**
+Maximum number of PreparedStatement kept open in the cache for the connection (see getPreparedStatement()).
+*/
+private int __preparedStatementCacheSize = 100;
+
+/**
+Cache of PreparedStatement for the connection, keyed by SQL with ? placeholders for parameters.
+The map is in access order so that the least recently used statement is closed when the cache is full.
+Synchronize on the cache when using a cached statement, so that a statement is used by one thread at a time.
+*/
+private final Map<String,PreparedStatement> __preparedStatementCache = createPreparedStatementCache();
+
+/**
+PreparedStatement caches for the connections in the connection pool, similar to __preparedStatementCache.
+*/
+private final Map<Connection,Map<String,PreparedStatement>> __pooledPreparedStatementCacheMap =
+	new IdentityHashMap<Connection,Map<String,PreparedStatement>>();
+
+/**
+Maximum number of connections in the connection pool (see setConnectionPoolSize()).
+If 1, the connection pool is not used and all SQL is executed with the single connection.
+*/
+private int __connectionPoolSize = 1;
+
+/**
+Pool of connections used to execute SQL when the connection pool size is greater than 1, or null if not used.
+*/
+private DMIConnectionPool __connectionPool = null;
+
+/**
+Connection URL from open(), used to create connections for the connection pool.
+*/
+private String __connectionUrl = null;
+
+/**
+Login and password from open(), used to create connections for the connection pool.
+*/
+private String __connectionLogin = null;
+private String __connectionPassword = null;
+
+/**
+Statements for open result sets that were executed with a connection from a connection pool, and the pool to
+which the connection is returned when the result set is closed with closeResultSet().
+*/
+private static final Map<Statement,DMIConnectionPool> __pooledStatementMap =
+	Collections.synchronizedMap(new IdentityHashMap<Statement,DMIConnectionPool>());
+
+/**
+Statements that are in a PreparedStatement cache for any DMI instance.  These statements are not closed
+by closeResultSet() so that they can be reused.
+*/
+private static final Set<Statement> __cachedStatementSet =
+	Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<Statement,Boolean>()));
+
 /**
 Name of the database in the server if __jdbc_odbc is true.
 */
@@ -940,6 +1002,8 @@ Close the database connection.  If the database is not connected yet, don't do a
 any problems doing a Connection.close()
 */
 public void close() throws SQLException {
+	closeConnectionPool();
+	clearPreparedStatementCache();
 	// let the JDBC handle the close
 	if (__connected) {
 		__connection.close();
@@ -947,16 +1011,155 @@ public void close() throws SQLException {
 	}
 }
 
+/**
+Clear the PreparedStatement cache for the connection and the connections in the connection pool,
+closing the statements.  This is called when the connection is closed or changed.
+*/
+public void clearPreparedStatementCache() {
+	clearPreparedStatementCache(__preparedStatementCache);
+	List<Map<String,PreparedStatement>> pooledCaches;
+	synchronized (__pooledPreparedStatementCacheMap) {
+		pooledCaches = new ArrayList<>(__pooledPreparedStatementCacheMap.values());
+		__pooledPreparedStatementCacheMap.clear();
+	}
+	for (Map<String,PreparedStatement> cache : pooledCaches) {
+		clearPreparedStatementCache(cache);
+	}
+}
+
+/**
+Clear the PreparedStatement cache for a connection from the connection pool, closing the statements.
+This is called by DMIConnectionPool when the connection is closed.
+@param connection connection from the connection pool.
+*/
+void clearPreparedStatementCache(Connection connection) {
+	Map<String,PreparedStatement> cache;
+	synchronized (__pooledPreparedStatementCacheMap) {
+		cache = __pooledPreparedStatementCacheMap.remove(connection);
+	}
+	if (cache != null) {
+		clearPreparedStatementCache(cache);
+	}
+}
+
+/**
+Clear a PreparedStatement cache, closing the statements.
+@param cache the cache to clear.
+*/
+private static void clearPreparedStatementCache(Map<String,PreparedStatement> cache) {
+	synchronized (cache) {
+		for (PreparedStatement ps : cache.values()) {
+			closeCachedStatement(ps);
+		}
+		cache.clear();
+	}
+}
+
+/**
+Close a statement that is being removed from the PreparedStatement cache.
+If a result set from the statement is still open, the statement is closed by closeResultSet() instead.
+@param ps statement to close.
+*/
+private static void closeCachedStatement(PreparedStatement ps) {
+	__cachedStatementSet.remove(ps);
+	try {
+		if (!isStatementInUse(ps)) {
+			ps.close();
+		}
+	}
+	catch (SQLException e) {
+		// Swallow the exception since this is clean-up.
+	}
+}
+
+/**
+Return a connection that was checked out with checkOutConnection().
+If the connection is from the connection pool, it is returned to the pool.
+@param connection connection from checkOutConnection().
+*/
+private void checkInConnection(Connection connection) {
+	if ((connection == null) || (connection == __connection)) {
+		return;
+	}
+	DMIConnectionPool pool = __connectionPool;
+	if (pool != null) {
+		pool.checkIn(connection);
+	}
+	else {
+		// The pool was closed while the connection was checked out
+		clearPreparedStatementCache(connection);
+		try {
+			connection.close();
+		}
+		catch (SQLException e) {
+			// Swallow the exception since this is clean-up.
+		}
+	}
+}
+
+/**
+Return a connection that was checked out with checkOutConnection() when a result set from the statement
+is closed with closeResultSet(), rather than immediately.  This is used by the dmiSelect() methods.
+@param s statement that was executed.
+@param connection connection from checkOutConnection().
+*/
+private void checkInConnectionOnClose(Statement s, Connection connection) {
+	if (connection == __connection) {
+		return;
+	}
+	DMIConnectionPool pool = __connectionPool;
+	if (pool != null) {
+		__pooledStatementMap.put(s, pool);
+	}
+}
+
+/**
+Check out a connection to execute SQL, which must be returned with checkInConnection().
+If the connection pool is used (see setConnectionPoolSize()), a connection is checked out from the pool,
+waiting if necessary for a connection to be returned by another thread.
+Otherwise, or if a transaction is in progress or auto-commit is off, the DMI connection is returned
+so that all SQL for the transaction is executed with the same connection.
+@return connection to execute SQL.
+@throws SQLException if a connection cannot be checked out from the pool.
+*/
+private Connection checkOutConnection() throws SQLException {
+	DMIConnectionPool pool = __connectionPool;
+	if ((pool == null) || __inTransaction || !__autoCommit) {
+		return __connection;
+	}
+	return pool.checkOut();
+}
+
+/**
+Close the connection pool, if used.  Connections that are checked out are closed when returned.
+*/
+private void closeConnectionPool() {
+	if (__connectionPool != null) {
+		__connectionPool.close();
+		__connectionPool = null;
+	}
+}
+
 /**
 Closes a result set and frees the resources associated with it.
+If the query used a connection from a connection pool, the connection is returned to the pool.
 @param rs the ResultSet to close.
 */
 public static void closeResultSet(ResultSet rs) 
-{   try {
+{   DMIConnectionPool pool = null;
+    Connection connection = null;
+    try {
         if (rs != null) {
     		Statement s = rs.getStatement();
-    		rs.close();
     		if (s != null) {
+    			pool = __pooledStatementMap.remove(s);
+    			if (pool != null) {
+    				connection = s.getConnection();
+    			}
+    		}
+    		rs.close();
+    		if ((s != null) && !__cachedStatementSet.contains(s)) {
+    			// Cached PreparedStatement are closed when removed from the cache
     			s.close();
     			s = null;
     		}
@@ -966,6 +1169,11 @@ public static void closeResultSet(ResultSet rs)
     catch ( SQLException e ) {
         // Swallow the exception since this is a utility method that is called to clean-up.
     }
+    finally {
+        if (pool != null) {
+            pool.checkIn(connection);
+        }
+    }
 }
 
 
@@ -1047,6 +1255,55 @@ public boolean connected() {
 	return __connected;
 }
 
+/**
+Create a new connection to the database using the connection URL, login, and password from open(),
+with auto-commit set to the DMI setting.  This is called by open() and by DMIConnectionPool to create
+connections for the connection pool.
+@return a new connection to the database.
+@throws SQLException if the connection cannot be created, or open() has not been called to determine the
+connection URL.
+*/
+Connection createConnection() throws SQLException {
+	if (__connectionUrl == null) {
+		throw new SQLException ("Database connection URL is not known.  Cannot make call to DMI.createConnection()");
+	}
+    // Get the login timeout and reset to requested if specified
+    int loginTimeout = DriverManager.getLoginTimeout();
+    if ( __loginTimeout >= 0 ) {
+        DriverManager.setLoginTimeout(__loginTimeout);
+    }
+    Connection connection;
+    try {
+    	connection = DriverManager.getConnection(__connectionUrl, __connectionLogin, __connectionPassword );
+    }
+    finally {
+    	if ( __loginTimeout >= 0 ) {
+    		// Now set back to the original timeout
+    		DriverManager.setLoginTimeout(loginTimeout);
+    	}
+    }
+	connection.setAutoCommit(__autoCommit);
+	return connection;
+}
+
+/**
+Create a PreparedStatement cache for a connection.
+The map is in access order so that the least recently used statement is closed when the cache is full.
+@return a new PreparedStatement cache.
+*/
+private Map<String,PreparedStatement> createPreparedStatementCache() {
+	return new LinkedHashMap<String,PreparedStatement>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		protected boolean removeEldestEntry(Map.Entry<String,PreparedStatement> eldest) {
+			if (size() > __preparedStatementCacheSize) {
+				closeCachedStatement(eldest.getValue());
+				return true;
+			}
+			return false;
+		}
+	};
+}
+
 /**
 Determine the version of the database.  This method should be defined in a
 derived class and be called when a database connection is made (e.g., in the
@@ -1095,7 +1352,7 @@ public int dmiCount(String sql) throws SQLException{
 	
 	String routine = "DMI.dmiCount";
 	int dl = 25;
-	if (Message.isDebugOn) {
+	if (Message.isDebugOn && Message.isDebugLevelEnabled(dl)) {
 		Message.printDebug(dl, routine, "SQL to count (pre): '" + sql + "'");
 	}
 	
@@ -1118,24 +1375,30 @@ public int dmiCount(String sql) throws SQLException{
 		sql = "SELECT COUNT(*) " + sql;
 	}
 	
-	if (Message.isDebugOn) {
+	if (Message.isDebugOn && Message.isDebugLevelEnabled(dl)) {
 		Message.printDebug(dl, routine, "SQL to count (post): '" + sql + "'");
 	}	
 	
-	Statement s = __connection.createStatement();
-	ResultSet rs = s.executeQuery(sql);
-	rs.next();
-	int count = rs.getInt(1);
+	Connection connection = checkOutConnection();
+	try {
+		Statement s = connection.createStatement();
+		ResultSet rs = s.executeQuery(sql);
+		rs.next();
+		int count = rs.getInt(1);
 
-	closeResultSet(rs);
-	if (__inTransaction) {
-		__statementsVector.add(s);
+		closeResultSet(rs);
+		if (__inTransaction) {
+			__statementsVector.add(s);
+		}
+		else {
+			s.close();
+		}
+		
+		return count;
 	}
-	else {
-		s.close();
+	finally {
+		checkInConnection(connection);
 	}
-		
-	return count;
 }
 
 /**
@@ -1196,6 +1459,18 @@ public int dmiDelete(DMIDeleteStatement s) throws SQLException {
 	else {	
 		// Save the DMIDeleteStatement as the last statement executed
 		setLastStatement(s);
+		if (s.isParameterized()) {
+			Connection connection = checkOutConnection();
+			try {
+				int result = executePreparedUpdate("DMI.dmiDelete", connection, s.toString(), s.getWhereParameters());
+				// A delete statement causes a database change so set the __dirty flag (see dmiDelete(String))
+				testAndSetDirty();
+				return result;
+			}
+			finally {
+				checkInConnection(connection);
+			}
+		}
 		return dmiDelete(s.toString());
 	}
 }
@@ -1222,7 +1497,7 @@ public int dmiDelete(String sql) throws SQLException {
 	
 	String routine = "DMI.dmiDelete";
 	int dl = 25;
-	if (Message.isDebugOn) {
+	if (Message.isDebugOn && Message.isDebugLevelEnabled(dl)) {
 		Message.printDebug(dl, routine, "SQL: '" + sql + "'");
 	}
 	
@@ -1230,35 +1505,41 @@ public int dmiDelete(String sql) throws SQLException {
 		throw new SQLException("Database in read-only mode, cannot execute a dmiDelete.");
 	}
 
-	Statement s = __connection.createStatement();
-	if (__capitalize) {
-		sql = sql.toUpperCase();
-	}
+	Connection connection = checkOutConnection();
+	try {
+		Statement s = connection.createStatement();
+		if (__capitalize) {
+			sql = sql.toUpperCase();
+		}
 	
-	int result = 0;
-	try {	
-		result = s.executeUpdate(sql);
-	}
-	catch (SQLException ex) {
-		if (__dumpSQLOnError) {
-			Message.printStatus(2, "DMI.dmiDelete", sql);
+		int result = 0;
+		try {	
+			result = s.executeUpdate(sql);
+		}
+		catch (SQLException ex) {
+			if (__dumpSQLOnError) {
+				Message.printStatus(2, "DMI.dmiDelete", sql);
+			}
+			throw ex;
 		}
-		throw ex;
-	}
 	
-	if (__inTransaction) {
-		__statementsVector.add(s);
-	}
-	else {
-		s.close();
-	}	
+		if (__inTransaction) {
+			__statementsVector.add(s);
+		}
+		else {
+			s.close();
+		}	
 
-	// Used for knowing when to do a startTransaction(ROLLBACK) versus a startTransaction(COMMIT).
-	// Since a delete statement causes a database change (and if the code has 
-	// gotten this far the delete was successful and didn't throw an exception), the database can 
-	// now be considered changed and the __dirty flag should be set
-	testAndSetDirty();
-	return result;
+		// Used for knowing when to do a startTransaction(ROLLBACK) versus a startTransaction(COMMIT).
+		// Since a delete statement causes a database change (and if the code has 
+		// gotten this far the delete was successful and didn't throw an exception), the database can 
+		// now be considered changed and the __dirty flag should be set
+		testAndSetDirty();
+		return result;
+	}
+	finally {
+		checkInConnection(connection);
+	}
 }
 
 /**
@@ -1279,25 +1560,31 @@ public int dmiExecute(String sql) throws SQLException {
 	String routine = "DMI.dmiExecute";
 	int dl = 25;
 	
-	if (Message.isDebugOn) {
+	if (Message.isDebugOn && Message.isDebugLevelEnabled(dl)) {
 		Message.printDebug(dl, routine, "SQL: '" + sql + "'");
 	}
 
-	Statement s = __connection.createStatement();
-	if (__capitalize) {
-		sql = sql.toUpperCase();
-	}	
+	Connection connection = checkOutConnection();
+	try {
+		Statement s = connection.createStatement();
+		if (__capitalize) {
+			sql = sql.toUpperCase();
+		}	
 
-	int result = s.executeUpdate(sql);
+		int result = s.executeUpdate(sql);
 
-	if (__inTransaction) {
-		__statementsVector.add(s);
-	}
-	else {
-		s.close();
-	}	
+		if (__inTransaction) {
+			__statementsVector.add(s);
+		}
+		else {
+			s.close();
+		}	
 
-	return result;
+		return result;
+	}
+	finally {
+		checkInConnection(connection);
+	}
 }
 
 /**
@@ -1376,6 +1663,20 @@ and returns a resultSet of the records returned.
 Connection.createStatement or Statement.executeQuery(), or if the database is not connected.
 */
 public ResultSet dmiSelect(String sql) throws SQLException {
+	return dmiSelect(sql, 0);
+}
+
+/**
+Runs an SQL string that contains a <b><code>SELECT</b></code> statement 
+and returns a resultSet of the records returned.
+@param sql an SQL statement that contains the <b><code>SELECT</b></code> statement to be executed
+@param fetchSize number of rows to fetch from the database at a time (see Statement.setFetchSize()),
+or 0 to use the driver default
+@return the resultset pulled back from the operation
+@throws SQLException thrown if there are problems with a 
+Connection.createStatement or Statement.executeQuery(), or if the database is not connected.
+*/
+public ResultSet dmiSelect(String sql, int fetchSize) throws SQLException {
 	String routine = "DMI.dmiSelect";
 	if (!__connected) {
 		throw new SQLException ("Database not connected.  Cannot make call to DMI.dmiSelect()");
@@ -1386,11 +1687,27 @@ public ResultSet dmiSelect(String sql) throws SQLException {
 	}
 	
 	int dl = 25;
-	if (Message.isDebugOn) {
+	if (Message.isDebugOn && Message.isDebugLevelEnabled(dl)) {
 		Message.printDebug(dl, routine, "SQL: '" + sql + "'");
 	}
 
-	Statement s = __connection.createStatement();
+	Connection connection = checkOutConnection();
+	Statement s;
+	try {
+		s = connection.createStatement();
+	}
+	catch (SQLException ex) {
+		checkInConnection(connection);
+		throw ex;
+	}
+	if (fetchSize > 0) {
+		try {
+			s.setFetchSize(fetchSize);
+		}
+		catch (SQLException e) {
+			// The fetch size is only a hint so ignore if not supported by the driver
+		}
+	}
 	ResultSet rs = null;
 	if (__capitalize) {
 		sql = sql.toUpperCase();
@@ -1406,13 +1723,72 @@ public ResultSet dmiSelect(String sql) throws SQLException {
 		if (__dumpSQLOnError) {
 			Message.printStatus(2, routine, sql);
 		}
+		checkInConnection(connection);
 		throw ex;
 	}
-	// The statement will automatically be closed so don't do here
+	// The statement will automatically be closed so don't do here, and a pooled connection
+	// is returned to the pool when the result set is closed with closeResultSet()
+	checkInConnectionOnClose(s, connection);
 		
 	return rs;
 }
 
+/**
+Runs an SQL string that contains a <b><code>SELECT</b></code> statement with ? placeholders for parameters
+and returns a resultSet of the records returned.
+The statement is executed with a PreparedStatement from the cache for the connection (see getPreparedStatement()),
+so that the database does not need to parse the SQL each time the same query is run with different parameters.
+Close the result set with closeResultSet(), which does not close the cached statement.
+@param sql an SQL statement that contains the <b><code>SELECT</b></code> statement to be executed
+@param parameters values to bind to the ? placeholders, in order (null values are bound as NULL)
+@param fetchSize number of rows to fetch from the database at a time (see Statement.setFetchSize()),
+or 0 to use the driver default
+@return the resultset pulled back from the operation
+@throws SQLException thrown if there are problems preparing or executing the statement, or if the database is not connected.
+*/
+public ResultSet dmiSelect(String sql, List<Object> parameters, int fetchSize) throws SQLException {
+	String routine = "DMI.dmiSelect";
+	if (!__connected) {
+		throw new SQLException ("Database not connected.  Cannot make call to DMI.dmiSelect()");
+	}
+	if (__capitalize) {
+		sql = sql.toUpperCase();
+	}
+	if (__dumpSQLOnExecution) {
+		Message.printStatus(2, routine, sql + " " + parameters);
+	}
+	if (Message.isDebugOn && Message.isDebugLevelEnabled(25)) {
+		Message.printDebug(25, routine, "SQL: '" + sql + "' parameters: " + parameters);
+	}
+	Connection connection = checkOutConnection();
+	Map<String,PreparedStatement> cache = getPreparedStatementCache(connection);
+	synchronized (cache) {
+		try {
+			PreparedStatement ps = getPreparedStatement(connection, cache, sql);
+			setStatementParameters(ps, parameters);
+			if (fetchSize > 0) {
+				try {
+					ps.setFetchSize(fetchSize);
+				}
+				catch (SQLException e) {
+					// The fetch size is only a hint so ignore if not supported by the driver
+				}
+			}
+			ResultSet rs = ps.executeQuery();
+			// A pooled connection is returned to the pool when the result set is closed with closeResultSet()
+			checkInConnectionOnClose(ps, connection);
+			return rs;
+		}
+		catch (SQLException ex) {
+			if (__dumpSQLOnError) {
+				Message.printStatus(2, routine, sql + " " + parameters);
+			}
+			checkInConnection(connection);
+			throw ex;
+		}
+	}
+}
+
 /**
 Execute an SQL select statement from a DMISelectStatement object.  The SQL
 statement is built from the DMISelectStatement object and the resulting 
@@ -1434,7 +1810,10 @@ throws SQLException {
 	else {	
 		// sets the DMISelectStatement as the last statement executed
 		setLastStatement(select);
-		return dmiSelect(select.toString());
+		if (select.isParameterized()) {
+			return dmiSelect(select.toString(), select.getWhereParameters(), select.getFetchSize());
+		}
+		return dmiSelect(select.toString(), select.getFetchSize());
 	}
 }
 
@@ -1465,34 +1844,40 @@ public int dmiWrite(String sql) throws SQLException {
 	String routine = "DMI.dmiWrite";
 	int dl = 25;
 	
-	if (Message.isDebugOn) {
+	if (Message.isDebugOn && Message.isDebugLevelEnabled(dl)) {
 		Message.printDebug(dl, routine, "SQL: '" + sql + "'");
 	}
 
-	Statement s = __connection.createStatement();
-	if (__capitalize) {
-		sql = sql.toUpperCase();
-	}	
-	
-	int result = 0;
+	Connection connection = checkOutConnection();
 	try {
-		result = s.executeUpdate(sql);
-	}
-	catch (SQLException ex) {
-		if (__dumpSQLOnError) {
-			Message.printStatus(2, "DMI.dmiWrite", sql);
+		Statement s = connection.createStatement();
+		if (__capitalize) {
+			sql = sql.toUpperCase();
+		}	
+	
+		int result = 0;
+		try {
+			result = s.executeUpdate(sql);
+		}
+		catch (SQLException ex) {
+			if (__dumpSQLOnError) {
+				Message.printStatus(2, "DMI.dmiWrite", sql);
+			}
+			throw ex;
 		}
-		throw ex;
-	}
 	
-	if (__inTransaction) {
-		__statementsVector.add(s);
-	}
-	else {
-		s.close();
-	}	
+		if (__inTransaction) {
+			__statementsVector.add(s);
+		}
+		else {
+			s.close();
+		}	
 
-	return result;
+		return result;
+	}
+	finally {
+		checkInConnection(connection);
+	}
 }
 
 /**
@@ -1527,8 +1912,31 @@ throws SQLException, Exception {
 
 	// Set the DMIWriteStatement as the last statement executed
 	setLastStatement(s);
-	
-	Statement stmt = __connection.createStatement();
+
+	Connection connection = checkOutConnection();
+	try {
+		return dmiWrite(connection, s, writeFlag);
+	}
+	finally {
+		checkInConnection(connection);
+	}
+}
+
+/**
+Executes an insert or update statement from a DMIWriteStatement object using a connection,
+for dmiWrite(DMIWriteStatement,int) and DMIBatchWriter, which writes on the connection used for its batches.
+@param connection connection from checkOutConnection(), or the DMI connection.
+@param s a DMIWriteStatement object to be executed
+@param writeFlag INSERT_UPDATE, UPDATE_INSERT, UPDATE, INSERT, DELETE_INSERT to indicate order of operations.
+@return an integer of the rowcount from the insert or update
+*/
+int dmiWrite(Connection connection, DMIWriteStatement s, int writeFlag) 
+throws SQLException, Exception {
+	// Parameterized statements are executed with a cached PreparedStatement (see executeWriteStatement())
+	Statement stmt = null;
+	if (!s.isParameterized()) {
+		stmt = connection.createStatement();
+	}
 
 	switch (writeFlag) {
 		case INSERT_UPDATE:
@@ -1552,7 +1960,7 @@ throws SQLException, Exception {
 			if (__dumpSQLOnExecution) {
 				Message.printStatus(2, "DMI.dmiWrite", "Trying to execute INSERT: " + s.toInsertString());
 			}
-			stmt.executeUpdate(s.toInsertString());
+			executeWriteStatement(connection, stmt, s, s.toInsertString(), s.getInsertParameters());
 			// Used for knowing when to do a startTransaction(ROLLBACK) versus a startTransaction(COMMIT).
 			// Since a delete statement causes a database change (and if the code has gotten this far
 			// the delete was successful and didn't throw an exception), the database can now be
@@ -1568,7 +1976,7 @@ throws SQLException, Exception {
 						if (__dumpSQLOnExecution) {
 							Message.printStatus(2, "DMI.dmiWrite", s.toUpdateString());
 						}
-						stmt.executeUpdate(s.toUpdateString());
+						executeWriteStatement(connection, stmt, s, s.toUpdateString(), s.getUpdateParameters(false));
 					}
 					catch (Exception ex) {
 						if (__dumpSQLOnError) {
@@ -1584,7 +1992,9 @@ throws SQLException, Exception {
 					testAndSetDirty();
 				} 
 				else {
-					stmt.close();
+					if (stmt != null) {
+						stmt.close();
+					}
 					throw e;
 				}
 			}
@@ -1597,7 +2007,7 @@ throws SQLException, Exception {
 						if (__dumpSQLOnExecution) {
 							Message.printStatus(2, "DMI.dmiWrite", s.toUpdateString());
 						}
-						stmt.executeUpdate(s.toUpdateString());
+						executeWriteStatement(connection, stmt, s, s.toUpdateString(), s.getUpdateParameters(false));
 					}
 					catch (Exception ex) {
 						if (__dumpSQLOnError) {
@@ -1613,7 +2023,9 @@ throws SQLException, Exception {
 					testAndSetDirty();
 				} 
 				else {
-					stmt.close();
+					if (stmt != null) {
+						stmt.close();
+					}
 					throw(e);
 				}
 			}
@@ -1632,7 +2044,7 @@ throws SQLException, Exception {
 				if (__dumpSQLOnExecution) {
 					Message.printStatus(2, "DMI.dmiWrite", s.toUpdateString(true));
 				}
-				result = stmt.executeUpdate(s.toUpdateString(true));
+				result = executeWriteStatement(connection, stmt, s, s.toUpdateString(true), s.getUpdateParameters(true));
 			}
 			catch (Exception e) {
 				if (__dumpSQLOnError) {
@@ -1647,7 +2059,7 @@ throws SQLException, Exception {
 					Message.printStatus(2, "DMI.dmiWrite", s.toInsertString());
 				}
 				try {
-					result = stmt.executeUpdate(s.toInsertString());
+					result = executeWriteStatement(connection, stmt, s, s.toInsertString(), s.getInsertParameters());
 				}
 				catch (Exception e) {
 					if (__dumpSQLOnError) {
@@ -1667,7 +2079,7 @@ throws SQLException, Exception {
 				if (__dumpSQLOnExecution) {
 					Message.printStatus(2, "DMI.dmiWrite", s.toUpdateString());
 				}
-				stmt.executeUpdate(s.toUpdateString());	
+				executeWriteStatement(connection, stmt, s, s.toUpdateString(), s.getUpdateParameters(false));	
 			}
 			catch (Exception e) {
 				if (__dumpSQLOnError) {
@@ -1687,7 +2099,7 @@ throws SQLException, Exception {
 				if (__dumpSQLOnExecution) {
 					Message.printStatus(2, "DMI.dmiWrite", s.toInsertString());
 				}
-				stmt.executeUpdate(s.toInsertString());	
+				executeWriteStatement(connection, stmt, s, s.toInsertString(), s.getInsertParameters());	
 			}
 			catch (Exception e) {
 				if (__dumpSQLOnError) {
@@ -1708,7 +2120,10 @@ throws SQLException, Exception {
 			throw new Exception ("Unspecified WRITE type in DMI.dmiWrite:" + writeFlag);
 	}
 
-	if (__inTransaction) {
+	if (stmt == null) {
+		// Cached PreparedStatement is closed when removed from the cache
+	}
+	else if (__inTransaction) {
 		__statementsVector.add(stmt);
 	}
 	else {
@@ -1730,6 +2145,68 @@ throws SQLException, Exception {
 	return 0;
 }
 
+/**
+Execute an UPDATE, INSERT or DELETE statement with ? placeholders for parameters, using a PreparedStatement
+from the cache for the connection (see getPreparedStatement()).
+@param routine routine name for messages.
+@param connection connection from checkOutConnection().
+@param sql the SQL statement to execute.
+@param parameters values to bind to the ? placeholders, in order (null values are bound as NULL).
+@return the number of rows affected.
+@throws SQLException if there is an error preparing or executing the statement.
+*/
+private int executePreparedUpdate(String routine, Connection connection, String sql, List<Object> parameters)
+throws SQLException {
+	if (__capitalize) {
+		sql = sql.toUpperCase();
+	}
+	if (__dumpSQLOnExecution) {
+		Message.printStatus(2, routine, sql + " " + parameters);
+	}
+	if (Message.isDebugOn && Message.isDebugLevelEnabled(25)) {
+		Message.printDebug(25, routine, "SQL: '" + sql + "' parameters: " + parameters);
+	}
+	Map<String,PreparedStatement> cache = getPreparedStatementCache(connection);
+	synchronized (cache) {
+		PreparedStatement ps = getPreparedStatement(connection, cache, sql);
+		try {
+			setStatementParameters(ps, parameters);
+			return ps.executeUpdate();
+		}
+		catch (SQLException ex) {
+			if (__dumpSQLOnError) {
+				Message.printStatus(2, routine, sql + " " + parameters);
+			}
+			throw ex;
+		}
+		finally {
+			if (!__cachedStatementSet.contains(ps)) {
+				// Statement was not cached so close here
+				ps.close();
+			}
+		}
+	}
+}
+
+/**
+Execute an INSERT or UPDATE SQL string for dmiWrite(DMIWriteStatement,int).  If the write statement has
+parameters, a cached PreparedStatement is used, otherwise the SQL is executed with the plain statement.
+@param connection connection from checkOutConnection().
+@param stmt statement to execute SQL without parameters.
+@param s the write statement.
+@param sql SQL string formatted from the write statement.
+@param parameters parameters to bind for the SQL string.
+@return the number of rows affected.
+*/
+private int executeWriteStatement(Connection connection, Statement stmt, DMIWriteStatement s, String sql,
+	List<Object> parameters)
+throws SQLException {
+	if (s.isParameterized()) {
+		return executePreparedUpdate("DMI.dmiWrite", connection, sql, parameters);
+	}
+	return stmt.executeUpdate(sql);
+}
+
 /**
 Applies escape sequences to a string based on the kind of database being used, as follows:
 <li>
@@ -1818,13 +2295,31 @@ public boolean getCapitalize() {
 }
 
 /**
-Returns the connection being used to interact with the database
+Returns the connection being used to interact with the database.
+If the connection pool is used, this is the connection used for transactions and stored procedures,
+and SQL executed with the dmiSelect(), dmiWrite() and other methods may use connections from the pool.
 @return the connection being used to interact with the database
 */
 public Connection getConnection() {
 	return __connection;
 }
 
+/**
+Return the connection pool, for example to change the validation interval, or null if the pool is not used.
+@return the connection pool, or null if not used.
+*/
+public DMIConnectionPool getConnectionPool() {
+	return __connectionPool;
+}
+
+/**
+Return the maximum number of connections in the connection pool (see setConnectionPoolSize()).
+@return the maximum number of connections in the connection pool.
+*/
+public int getConnectionPoolSize() {
+	return __connectionPoolSize;
+}
+
 /**
 Returns the meta data associated with the currently-opened connection, or null
 if there is no open connection.
@@ -2034,6 +2529,81 @@ public String getFieldRightEscape() {
     return __fieldRightEscape;
 }
 
+/**
+Return a PreparedStatement for an SQL string with ? placeholders for parameters.
+The statement is taken from the cache for the connection if previously prepared, so that the database does
+not need to parse the same SQL again.  Otherwise, the statement is prepared and added to the cache, closing the
+least recently used statement if the cache is full.  Callers should synchronize on the cache while setting
+parameters and executing the statement, as is done in dmiSelect(String,List,int) and the dmiWrite() and
+dmiDelete() methods for parameterized statements.
+A cached statement that still has an open result set is not reused, and a new statement that is not cached is
+returned instead, which will be closed by closeResultSet().
+A statement that is not cached is also returned if the cache size is 0.
+@param sql SQL string with ? placeholders for parameters.
+@return a PreparedStatement for the SQL.
+@throws SQLException if the statement cannot be prepared.
+*/
+public PreparedStatement getPreparedStatement(String sql)
+throws SQLException {
+	return getPreparedStatement(__connection, __preparedStatementCache, sql);
+}
+
+/**
+Return a PreparedStatement for an SQL string with ? placeholders for parameters, from the cache for a connection.
+See getPreparedStatement(String).
+@param connection the connection for the statement.
+@param cache the PreparedStatement cache for the connection (see getPreparedStatementCache()).
+@param sql SQL string with ? placeholders for parameters.
+@return a PreparedStatement for the SQL.
+@throws SQLException if the statement cannot be prepared.
+*/
+private PreparedStatement getPreparedStatement(Connection connection, Map<String,PreparedStatement> cache, String sql)
+throws SQLException {
+	synchronized (cache) {
+		PreparedStatement ps = cache.get(sql);
+		if ((ps != null) && isStatementInUse(ps)) {
+			// Cannot reuse without closing the open result set so prepare a statement that is not cached
+			return connection.prepareStatement(sql);
+		}
+		if (ps == null) {
+			ps = connection.prepareStatement(sql);
+			if (__preparedStatementCacheSize > 0) {
+				__cachedStatementSet.add(ps);
+				cache.put(sql, ps);
+			}
+		}
+		return ps;
+	}
+}
+
+/**
+Return the PreparedStatement cache for a connection, either the DMI connection or a connection from the
+connection pool, creating the cache if necessary.
+@param connection the connection.
+@return the PreparedStatement cache for the connection.
+*/
+private Map<String,PreparedStatement> getPreparedStatementCache(Connection connection) {
+	if (connection == __connection) {
+		return __preparedStatementCache;
+	}
+	synchronized (__pooledPreparedStatementCacheMap) {
+		Map<String,PreparedStatement> cache = __pooledPreparedStatementCacheMap.get(connection);
+		if (cache == null) {
+			cache = createPreparedStatementCache();
+			__pooledPreparedStatementCacheMap.put(connection, cache);
+		}
+		return cache;
+	}
+}
+
+/**
+Return the maximum number of PreparedStatement kept open in the cache for the connection.
+@return the maximum number of cached statements.
+*/
+public int getPreparedStatementCacheSize() {
+	return __preparedStatementCacheSize;
+}
+
 /**
 TODO SAM 2009-05-20 Maybe name should be allowed as the longer display name, as opposed to the shorter ID.
 Returns the name of the connection.
@@ -2126,6 +2696,23 @@ public String getUserPassword() {
 	return __user_password;
 }
 
+/**
+Indicate whether a statement has an open result set, in which case executing the statement again
+would close the result set.
+@param s statement to check.
+@return true if the statement has an open result set.
+*/
+private static boolean isStatementInUse(Statement s) {
+	try {
+		ResultSet rs = s.getResultSet();
+		return (rs != null) && !rs.isClosed();
+	}
+	catch (SQLException e) {
+		// Statement is closed or driver does not support the check
+		return false;
+	}
+}
+
 /**
 Indicate whether the database version is at least the indicated version.
 @return true if the database version is at least that indicated.
@@ -2452,27 +3039,24 @@ throws SQLException, Exception {
 	    printStatusOrDebug(dl, routine, "Calling getConnection(" 
 		+ connUrl + ", " + system_login + ", " + "password-not-shown) via the Java DriverManager.");
 	}
-    // Get the login timeout and reset to requested if specified
-    int loginTimeout = DriverManager.getLoginTimeout();
-    if ( __loginTimeout >= 0 ) {
-        DriverManager.setLoginTimeout(__loginTimeout);
-    }
-	__connection = DriverManager.getConnection(connUrl, system_login, system_password );
-    if ( __loginTimeout >= 0 ) {
-        // Now set back to the original timeout
-        DriverManager.setLoginTimeout(loginTimeout);
-    }
+    // Save the connection information so that connections can be created for the connection pool
+    __connectionUrl = connUrl;
+    __connectionLogin = system_login;
+    __connectionPassword = system_password;
+    printStatusOrDebug(dl, routine, "Setting autoCommit to: " + __autoCommit);
+	__connection = createConnection();
     
 	/* TODO SAM 2013-10-07 This seems to be old so commenting out
     if (_database_engine == DBENGINE_ORACLE && __database_name != null ) {
         __connection.createStatement().execute("alter session set current_schema = " + __database_name );
     }
     */
-    printStatusOrDebug(dl, routine, "Setting autoCommit to: " + __autoCommit);
-	__connection.setAutoCommit(__autoCommit);
-	
 	printStatusOrDebug(dl, routine, "Connected!");
 	__connected = true;
+	if (__connectionPoolSize > 1) {
+		printStatusOrDebug(dl, routine, "Using connection pool with up to " + __connectionPoolSize + " connections.");
+		__connectionPool = new DMIConnectionPool(this, __connectionPoolSize);
+	}
 }
 
 /**
@@ -2584,12 +3168,34 @@ that the second doesn't have to go through the connection process again.
 @param c the connection to use for communicating with the database
 */
 public void setConnection(Connection c) {
+	closeConnectionPool();
+	clearPreparedStatementCache();
 	__connection = c;
 	if (c != null) {
 		__connected = true;
 	}
 }
 
+/**
+Set the maximum number of connections in the connection pool, which allows multiple threads to use the DMI
+at the same time.  If greater than 1, SQL executed with dmiSelect(), dmiWrite(), dmiDelete(), dmiCount(),
+and dmiExecute() uses a connection checked out from the pool (see DMIConnectionPool) and the connection
+is returned to the pool when done, or for dmiSelect(), when the result set is closed with closeResultSet().
+The DMI connection from getConnection() is still used for stored procedures and metadata,
+and for all SQL when a transaction is in progress or auto-commit is off.
+If 1 (the default), all SQL is executed with the DMI connection.
+The pool is created when open() is called, or if the DMI is already open, the previous pool is closed
+and a new pool is created.
+@param connectionPoolSize maximum number of connections in the connection pool.
+*/
+public void setConnectionPoolSize(int connectionPoolSize) {
+	__connectionPoolSize = connectionPoolSize;
+	closeConnectionPool();
+	if (__connected && (__connectionUrl != null) && (__connectionPoolSize > 1)) {
+		__connectionPool = new DMIConnectionPool(this, __connectionPoolSize);
+	}
+}
+
 /**
 Set the database connection login timeout, which should be set prior to calling open().
 A call to DriverManager.setLoginTimeout() will occur prior to getting the connection and then the timeout will be set back to
@@ -2827,6 +3433,58 @@ public void setPort(int port) {
 	__port = port;
 }
 
+/**
+Set the maximum number of PreparedStatement kept open in the cache for the connection
+(see getPreparedStatement()).  If the size is reduced, the cache is cleared.
+@param preparedStatementCacheSize maximum number of cached statements, or 0 to not cache statements.
+*/
+public void setPreparedStatementCacheSize(int preparedStatementCacheSize) {
+	if (preparedStatementCacheSize < __preparedStatementCacheSize) {
+		clearPreparedStatementCache();
+	}
+	__preparedStatementCacheSize = preparedStatementCacheSize;
+}
+
+/**
+Set the parameters for a PreparedStatement.
+Null values are bound as NULL using the parameter type from the statement's parameter metadata, because
+some drivers (e.g., Oracle, SQL Server) do not accept Types.NULL.  If the driver does not provide the
+parameter type, Types.VARCHAR is used.
+@param ps statement to set parameters for.
+@param parameters values to bind to the ? placeholders, in order (null values are bound as NULL,
+DateTime and java.util.Date values are bound as Timestamp).
+*/
+static void setStatementParameters(PreparedStatement ps, List<Object> parameters)
+throws SQLException {
+	ParameterMetaData metadata = null;
+	boolean metadataSupported = true;
+	int i = 1;
+	for (Object parameter : parameters) {
+		if (parameter == null) {
+			int type = Types.VARCHAR;
+			if (metadataSupported) {
+				try {
+					if (metadata == null) {
+						metadata = ps.getParameterMetaData();
+					}
+					int parameterType = metadata.getParameterType(i);
+					if (parameterType != Types.NULL) {
+						type = parameterType;
+					}
+				}
+				catch (SQLException e) {
+					// Driver does not support parameter metadata so use the default type for all null values
+					metadataSupported = false;
+				}
+			}
+			ps.setNull(i++, type);
+		}
+		else {
+			ps.setObject(i++, DMIStatement.toParameter(parameter));
+		}
+	}
+}
+
 /**
 Sets the secure flag
 @param secure the value to set the secure flag to
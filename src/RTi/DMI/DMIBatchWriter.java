@@ -0,0 +1,491 @@
+// DMIBatchWriter - write statements to a database in JDBC batches
+
+/* NoticeStart
+
+CDSS Common Java Library
+CDSS Common Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Common Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Common Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Common Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package RTi.DMI;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import RTi.Util.Message.Message;
+import RTi.Util.Time.StopWatch;
+
+/**
+The DMIBatchWriter class writes many DMIWriteStatement to a database using JDBC batches
+(Statement.addBatch() and executeBatch()), which avoids a database round trip for each statement.
+This is much faster than calling DMI.dmiWrite() for each statement, for example when writing a long time series.
+Statements are added with add() and are executed when the batch size is reached, when flush() is called,
+and when close() is called, which must be called when done.
+<p>
+Statements should be created with setBindValues(true) so that each statement is formatted as the same
+SQL with ? placeholders and the values are added to a single PreparedStatement batch.
+Statements with values formatted into the SQL are added to a Statement batch as SQL strings.
+<p>
+The write mode is handled as follows:
+<ul>
+<li> INSERT - INSERT statements are batched.</li>
+<li> UPDATE - UPDATE statements are batched.</li>
+<li> INSERT_UPDATE and UPDATE_INSERT - the native upsert statement for the database engine is batched
+(see DMIWriteStatement.toUpsertString()), which requires that the key fields are set with setKeyFields()
+(except for MySQL).  If the database engine does not support an upsert statement, each statement is written
+by itself on the DMI connection, trying one statement and then the other as for DMI.dmiWrite().</li>
+<li> DELETE_INSERT - not supported.</li>
+</ul>
+If a commit interval is set, auto-commit is turned off for the connection while writing and the changes
+are committed each time at least the commit interval number of statements have been written, and when
+close() is called.  The auto-commit setting is then restored.
+If an error occurs writing, the writer cannot be used for more statements and close() rolls back the changes
+since the last commit (if a commit interval is used), discards statements that have not been executed,
+and restores the auto-commit setting.
+All statements are written on the DMI connection (DMI.getConnection()), not connections from the DMI connection
+pool, so that they are in the same transaction.
+The time to execute each batch is logged and is available from getBatchMilliseconds().
+*/
+public class DMIBatchWriter
+{
+
+/**
+DMI used to write.
+*/
+private DMI __dmi;
+
+/**
+Write mode.
+*/
+private DMIWriteModeType __writeMode;
+
+/**
+Fields that uniquely identify a record, used for upsert statements.
+*/
+private List<String> __keyFields = new ArrayList<String>();
+
+/**
+Maximum number of statements in a batch.
+*/
+private int __batchSize = 1000;
+
+/**
+Number of statements to write between commits, or 0 to not commit.
+*/
+private int __commitInterval = 0;
+
+/**
+Statement for the current batch, a PreparedStatement if the statements have parameters.
+*/
+private Statement __batchStatement = null;
+
+/**
+SQL for the PreparedStatement of the current batch, or null if the batch uses SQL strings.
+*/
+private String __batchSql = null;
+
+/**
+Number of statements in the current batch.
+*/
+private int __batchCount = 0;
+
+/**
+Number of statements written since the last commit.
+*/
+private int __uncommittedCount = 0;
+
+/**
+Number of statements written.
+*/
+private int __writeCount = 0;
+
+/**
+Whether auto-commit was turned off for the connection to commit at the commit interval.
+*/
+private boolean __autoCommitChanged = false;
+
+/**
+Whether an error occurred writing, in which case close() rolls back rather than writing and committing.
+*/
+private boolean __failed = false;
+
+/**
+Whether the upsert warning has been printed, to avoid a warning for every statement.
+*/
+private boolean __upsertWarningPrinted = false;
+
+/**
+Time in milliseconds to execute each batch.
+*/
+private List<Long> __batchMilliseconds = new ArrayList<Long>();
+
+/**
+Construct a batch writer.
+@param dmi DMI used to write, which must be connected and editable.
+@param writeMode write mode, which indicates the type of statement that is executed.
+*/
+public DMIBatchWriter ( DMI dmi, DMIWriteModeType writeMode )
+{	__dmi = dmi;
+	__writeMode = writeMode;
+}
+
+/**
+Add a statement to be written.  The current batch is executed if the batch size is reached.
+@param s write statement to add.
+@exception SQLException if the statement cannot be formatted or an error occurs executing the batch.
+@exception Exception if the write mode is not supported or an error occurs writing a statement by itself.
+*/
+public void add ( DMIWriteStatement s )
+throws SQLException, Exception
+{	if ( !__dmi.isEditable() ) {
+		throw new SQLException ( "Database is in read-only mode, cannot write in batch." );
+	}
+	if ( __failed ) {
+		throw new SQLException ( "An error occurred writing a previous batch, cannot add statements." );
+	}
+	startCommitInterval();
+	String sql = null;
+	List<Object> parameters = null;
+	if ( !s.isStoredProcedure() ) {
+		if ( __writeMode == DMIWriteModeType.INSERT ) {
+			sql = s.toInsertString();
+			parameters = s.getInsertParameters();
+		}
+		else if ( __writeMode == DMIWriteModeType.UPDATE ) {
+			sql = s.toUpdateString();
+			parameters = s.getUpdateParameters(false);
+		}
+		else if ( (__writeMode == DMIWriteModeType.INSERT_UPDATE) || (__writeMode == DMIWriteModeType.UPDATE_INSERT) ) {
+			sql = s.toUpsertString(__keyFields);
+			parameters = s.getInsertParameters();
+			if ( (sql == null) && !__upsertWarningPrinted ) {
+				Message.printWarning ( 3, "DMIBatchWriter.add", "Database engine " + __dmi.getDatabaseEngine() +
+					" does not support upsert statements or key fields were not specified - writing statements one at a time." );
+				__upsertWarningPrinted = true;
+			}
+		}
+		else {
+			throw new Exception ( "Write mode " + __writeMode + " is not supported for batch writes." );
+		}
+	}
+	if ( sql == null ) {
+		// Stored procedure or no upsert statement so write the statement by itself, after previous statements
+		flush();
+		try {
+			if ( s.isStoredProcedure() ) {
+				// The stored procedure statement is prepared on the DMI connection
+				__dmi.dmiWrite ( s, __writeMode.getCode() );
+			}
+			else {
+				// Use the DMI connection rather than a pooled connection so the write is in the same transaction
+				__dmi.dmiWrite ( __dmi.getConnection(), s, __writeMode.getCode() );
+			}
+		}
+		catch ( Exception e ) {
+			__failed = true;
+			throw e;
+		}
+		addWriteCount ( 1 );
+		return;
+	}
+	if ( sql.equals("") ) {
+		throw new SQLException ( "Unable to format SQL for the write statement (see log file)." );
+	}
+	if ( s.isParameterized() ) {
+		if ( (__batchStatement != null) && !sql.equals(__batchSql) ) {
+			// Different SQL (or the batch uses SQL strings) so start a new batch
+			closeBatchStatement();
+		}
+		if ( __batchStatement == null ) {
+			__batchStatement = __dmi.getConnection().prepareStatement(sql);
+			__batchSql = sql;
+		}
+		PreparedStatement ps = (PreparedStatement)__batchStatement;
+		DMI.setStatementParameters ( ps, parameters );
+		ps.addBatch();
+	}
+	else {
+		if ( (__batchStatement != null) && (__batchSql != null) ) {
+			// Current batch uses a PreparedStatement so start a new batch
+			closeBatchStatement();
+		}
+		if ( __batchStatement == null ) {
+			__batchStatement = __dmi.getConnection().createStatement();
+		}
+		__batchStatement.addBatch(sql);
+	}
+	++__batchCount;
+	if ( __batchCount >= __batchSize ) {
+		executeBatch();
+	}
+}
+
+/**
+Add a key field, used for upsert statements.
+@param keyField field that, with other key fields, uniquely identifies a record.
+*/
+public void addKeyField ( String keyField )
+{	__keyFields.add ( keyField );
+}
+
+/**
+Increment the count of statements written and commit if the commit interval is reached.
+@param count number of statements that were written.
+*/
+private void addWriteCount ( int count )
+throws SQLException
+{	__writeCount += count;
+	__uncommittedCount += count;
+	if ( (__commitInterval > 0) && (__uncommittedCount >= __commitInterval) ) {
+		commit();
+	}
+}
+
+/**
+Write the remaining statements, commit if a commit interval is used, restore the auto-commit setting,
+and close the statements.  This must be called when done adding statements.
+If an error occurred writing (or occurs writing the last batch), the changes since the last commit are rolled
+back if a commit interval is used, statements that have not been executed are discarded,
+and the auto-commit setting is restored.
+@exception SQLException if an error occurs executing the last batch, committing, or rolling back.
+*/
+public void close ()
+throws SQLException
+{	SQLException error = null;
+	if ( !__failed ) {
+		try {
+			flush();
+			if ( (__commitInterval > 0) && (__uncommittedCount > 0) ) {
+				commit();
+			}
+		}
+		catch ( SQLException e ) {
+			__failed = true;
+			error = e;
+		}
+	}
+	if ( __failed ) {
+		try {
+			rollback();
+		}
+		catch ( SQLException e ) {
+			if ( error == null ) {
+				error = e;
+			}
+		}
+	}
+	// Close the statement without executing, since the batch is empty on success and is discarded on error
+	if ( __batchStatement != null ) {
+		try {
+			__batchCount = 0;
+			__batchStatement.close();
+		}
+		catch ( SQLException e ) {
+			if ( error == null ) {
+				error = e;
+			}
+		}
+		finally {
+			__batchStatement = null;
+			__batchSql = null;
+		}
+	}
+	if ( __autoCommitChanged ) {
+		try {
+			__dmi.getConnection().setAutoCommit(true);
+		}
+		catch ( SQLException e ) {
+			if ( error == null ) {
+				error = e;
+			}
+		}
+		finally {
+			__autoCommitChanged = false;
+		}
+	}
+	if ( error != null ) {
+		throw error;
+	}
+}
+
+/**
+Execute the current batch if it contains statements and close the batch statement.
+*/
+private void closeBatchStatement ()
+throws SQLException
+{	if ( __batchStatement != null ) {
+		try {
+			executeBatch();
+		}
+		finally {
+			__batchStatement.close();
+			__batchStatement = null;
+			__batchSql = null;
+		}
+	}
+}
+
+/**
+Commit the changes written since the last commit.
+*/
+private void commit ()
+throws SQLException
+{	Connection connection = __dmi.getConnection();
+	if ( !connection.getAutoCommit() ) {
+		try {
+			connection.commit();
+		}
+		catch ( SQLException e ) {
+			__failed = true;
+			throw e;
+		}
+	}
+	__uncommittedCount = 0;
+}
+
+/**
+Execute the current batch, if it contains statements.
+*/
+private void executeBatch ()
+throws SQLException
+{	if ( (__batchStatement == null) || (__batchCount == 0) ) {
+		return;
+	}
+	int count = __batchCount;
+	__batchCount = 0;
+	StopWatch sw = new StopWatch();
+	sw.start();
+	try {
+		__batchStatement.executeBatch();
+	}
+	catch ( SQLException e ) {
+		// The batch is not cleared because the statement is closed without executing it again, and clearing
+		// a batch on a broken connection could throw an exception that would hide this one
+		__failed = true;
+		throw e;
+	}
+	__batchStatement.clearBatch();
+	sw.stop();
+	__batchMilliseconds.add(sw.getMilliseconds());
+	Message.printStatus ( 2, "DMIBatchWriter.executeBatch", "Wrote batch " + __batchMilliseconds.size() +
+		" with " + count + " statements in " + sw.getMilliseconds() + " ms." );
+	addWriteCount ( count );
+}
+
+/**
+Execute the current batch, if it contains statements.  The batch statement is kept open for more statements.
+@exception SQLException if an error occurs executing the batch.
+*/
+public void flush ()
+throws SQLException
+{	executeBatch();
+}
+
+/**
+Return the time in milliseconds to execute each batch, in the order that the batches were executed.
+@return the list of batch execution times.
+*/
+public List<Long> getBatchMilliseconds ()
+{	return __batchMilliseconds;
+}
+
+/**
+Return the maximum number of statements in a batch.
+@return the batch size.
+*/
+public int getBatchSize ()
+{	return __batchSize;
+}
+
+/**
+Return the number of statements to write between commits.
+@return the commit interval, or 0 if the writer does not commit.
+*/
+public int getCommitInterval ()
+{	return __commitInterval;
+}
+
+/**
+Return the number of statements that have been written, not including statements in the current batch.
+@return the number of statements written.
+*/
+public int getWriteCount ()
+{	return __writeCount;
+}
+
+/**
+Roll back the changes written since the last commit, if a commit interval is used.
+Otherwise the connection's auto-commit setting and transactions control the changes.
+*/
+private void rollback ()
+throws SQLException
+{	if ( __commitInterval > 0 ) {
+		Connection connection = __dmi.getConnection();
+		if ( !connection.getAutoCommit() ) {
+			connection.rollback();
+		}
+		__uncommittedCount = 0;
+	}
+}
+
+/**
+Set the maximum number of statements in a batch.
+@param batchSize maximum number of statements in a batch (1+).
+*/
+public void setBatchSize ( int batchSize )
+{	if ( batchSize < 1 ) {
+		throw new IllegalArgumentException ( "Batch size (" + batchSize + ") must be >= 1." );
+	}
+	__batchSize = batchSize;
+}
+
+/**
+Set the number of statements to write between commits.  This should be called before adding statements.
+@param commitInterval number of statements between commits, or 0 to not commit (the default),
+in which case the connection's auto-commit setting and transactions control commits.
+*/
+public void setCommitInterval ( int commitInterval )
+{	__commitInterval = commitInterval;
+}
+
+/**
+Set the key fields, used for upsert statements.
+@param keyFields fields that uniquely identify a record (e.g., the primary key).
+*/
+public void setKeyFields ( List<String> keyFields )
+{	__keyFields = new ArrayList<String>(keyFields);
+}
+
+/**
+Turn off auto-commit for the connection if a commit interval is used.
+*/
+private void startCommitInterval ()
+throws SQLException
+{	if ( (__commitInterval > 0) && !__autoCommitChanged ) {
+		Connection connection = __dmi.getConnection();
+		if ( connection.getAutoCommit() ) {
+			connection.setAutoCommit(false);
+			__autoCommitChanged = true;
+		}
+	}
+}
+
+}
@@ -0,0 +1,347 @@
+// DMIConnectionPool - bounded pool of database connections for a DMI
+
+/* NoticeStart
+
+CDSS Common Java Library
+CDSS Common Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Common Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Common Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Common Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package RTi.DMI;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import RTi.Util.Message.Message;
+
+/**
+The DMIConnectionPool class maintains a bounded pool of database connections for a DMI, so that
+multiple threads can query the database at the same time rather than sharing the single DMI connection.
+Connections are created as needed with DMI.createConnection(), up to the maximum pool size.
+A connection is checked out with checkOut() and must be returned with checkIn() when done.
+If all connections are checked out, checkOut() waits for a connection to be returned.
+<p>
+Idle connections are validated with Connection.isValid() before being reused if they have been idle longer
+than the validation interval, so that connections that were closed by the database server
+(for example due to a timeout) are discarded and replaced.
+<p>
+The pool is normally used internally by DMI (see DMI.setConnectionPoolSize()) and is not used directly.
+*/
+public class DMIConnectionPool
+{
+
+/**
+DMI that creates the connections.
+*/
+private DMI __dmi;
+
+/**
+Maximum number of connections in the pool, including checked out connections.
+*/
+private int __maxSize;
+
+/**
+Idle connections, with the most recently returned connection first.
+*/
+private LinkedList<Connection> __idleList = new LinkedList<Connection>();
+
+/**
+Time (milliseconds) when each idle connection was returned, in the same order as __idleList.
+*/
+private LinkedList<Long> __idleTimeList = new LinkedList<Long>();
+
+/**
+Connections that are checked out.
+*/
+private Set<Connection> __checkedOutSet = Collections.newSetFromMap(new IdentityHashMap<Connection,Boolean>());
+
+/**
+Number of connections being created, which are counted in the pool size.
+*/
+private int __createCount = 0;
+
+/**
+Idle time (milliseconds) after which a connection is validated before being reused.
+*/
+private long __validationInterval = 30000;
+
+/**
+Timeout (seconds) for Connection.isValid() when validating a connection.
+*/
+private int __validationTimeout = 5;
+
+/**
+Maximum time (milliseconds) to wait in checkOut() for a connection to be returned.
+*/
+private long __checkOutTimeout = 60000;
+
+/**
+Whether the pool has been closed.
+*/
+private boolean __closed = false;
+
+/**
+Construct a connection pool.
+@param dmi DMI that creates the connections, which must have been opened so that
+DMI.createConnection() can connect to the database.
+@param maxSize maximum number of connections in the pool (1+).
+*/
+public DMIConnectionPool ( DMI dmi, int maxSize )
+{	if ( maxSize < 1 ) {
+		throw new IllegalArgumentException ( "Connection pool size (" + maxSize + ") must be 1+." );
+	}
+	__dmi = dmi;
+	__maxSize = maxSize;
+}
+
+/**
+Return a connection to the pool.  If the connection was closed or the pool has been closed,
+the connection is closed and discarded.
+@param connection connection that was checked out with checkOut().
+*/
+public void checkIn ( Connection connection )
+{	if ( connection == null ) {
+		return;
+	}
+	boolean discard = false;
+	synchronized ( this ) {
+		if ( !__checkedOutSet.remove(connection) ) {
+			// Not from this pool, for example the pool was closed and reopened
+			discard = true;
+		}
+		else if ( __closed || isClosed(connection) ) {
+			discard = true;
+		}
+		else {
+			__idleList.addFirst ( connection );
+			__idleTimeList.addFirst ( System.currentTimeMillis() );
+		}
+		notifyAll();
+	}
+	if ( discard ) {
+		closeConnection ( connection );
+	}
+}
+
+/**
+Check out a connection from the pool.  An idle connection is reused if available, validating it if it has been
+idle longer than the validation interval.  Otherwise a new connection is created if the pool is not full,
+or the call waits for a connection to be returned.
+@return a connection, which must be returned with checkIn().
+@exception SQLException if a connection cannot be created, the pool is closed, or a connection is not
+returned within the check out timeout (for example because result sets were not closed with DMI.closeResultSet()).
+*/
+public Connection checkOut ()
+throws SQLException
+{	long waitEnd = System.currentTimeMillis() + __checkOutTimeout;
+	while ( true ) {
+		Connection connection = null;
+		long idleTime = 0;
+		synchronized ( this ) {
+			while ( true ) {
+				if ( __closed ) {
+					throw new SQLException ( "Connection pool is closed." );
+				}
+				if ( !__idleList.isEmpty() ) {
+					connection = __idleList.removeFirst();
+					idleTime = System.currentTimeMillis() - __idleTimeList.removeFirst();
+					__checkedOutSet.add ( connection );
+					break;
+				}
+				if ( (__checkedOutSet.size() + __createCount) < __maxSize ) {
+					++__createCount;
+					break;
+				}
+				long wait = waitEnd - System.currentTimeMillis();
+				if ( wait <= 0 ) {
+					throw new SQLException ( "Timeout waiting for a database connection (" + __maxSize +
+						" connections are in use).  Check that result sets are closed with DMI.closeResultSet()." );
+				}
+				try {
+					wait ( wait );
+				}
+				catch ( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+					throw new SQLException ( "Interrupted waiting for a database connection." );
+				}
+			}
+		}
+		if ( connection == null ) {
+			// Create a new connection outside of the lock since it may take time
+			try {
+				connection = __dmi.createConnection();
+			}
+			finally {
+				synchronized ( this ) {
+					--__createCount;
+					if ( connection != null ) {
+						__checkedOutSet.add ( connection );
+					}
+					notifyAll();
+				}
+			}
+			return connection;
+		}
+		if ( (idleTime < __validationInterval) || isValid(connection) ) {
+			return connection;
+		}
+		// Connection is no longer valid so discard and try again
+		Message.printStatus ( 2, "DMIConnectionPool.checkOut",
+			"Discarding database connection that is no longer valid after being idle " + idleTime + " ms." );
+		synchronized ( this ) {
+			__checkedOutSet.remove ( connection );
+			notifyAll();
+		}
+		closeConnection ( connection );
+	}
+}
+
+/**
+Close the pool, closing the idle connections.  Connections that are checked out are closed when returned.
+*/
+public void close ()
+{	List<Connection> idleList;
+	synchronized ( this ) {
+		__closed = true;
+		idleList = new ArrayList<Connection>(__idleList);
+		__idleList.clear();
+		__idleTimeList.clear();
+		notifyAll();
+	}
+	for ( Connection connection : idleList ) {
+		closeConnection ( connection );
+	}
+}
+
+/**
+Close a connection that is being discarded from the pool, closing its cached PreparedStatement.
+@param connection connection to close.
+*/
+private void closeConnection ( Connection connection )
+{	__dmi.clearPreparedStatementCache ( connection );
+	try {
+		connection.close();
+	}
+	catch ( SQLException e ) {
+		// Swallow the exception since this is clean-up.
+	}
+}
+
+/**
+Return the number of connections that are checked out.
+@return the number of connections that are checked out.
+*/
+public synchronized int getCheckedOutCount ()
+{	return __checkedOutSet.size();
+}
+
+/**
+Return the maximum time (milliseconds) to wait in checkOut() for a connection to be returned.
+@return the check out timeout in milliseconds.
+*/
+public long getCheckOutTimeout ()
+{	return __checkOutTimeout;
+}
+
+/**
+Return the number of idle connections.
+@return the number of idle connections.
+*/
+public synchronized int getIdleCount ()
+{	return __idleList.size();
+}
+
+/**
+Return the maximum number of connections in the pool.
+@return the maximum number of connections in the pool.
+*/
+public int getMaxSize ()
+{	return __maxSize;
+}
+
+/**
+Return the idle time (milliseconds) after which a connection is validated before being reused.
+@return the validation interval in milliseconds.
+*/
+public long getValidationInterval ()
+{	return __validationInterval;
+}
+
+/**
+Indicate whether a connection is closed.
+@param connection connection to check.
+@return true if the connection is closed or its state cannot be determined.
+*/
+private boolean isClosed ( Connection connection )
+{	try {
+		return connection.isClosed();
+	}
+	catch ( SQLException e ) {
+		return true;
+	}
+}
+
+/**
+Indicate whether a connection is valid, using Connection.isValid().
+@param connection connection to check.
+@return true if the connection is valid.  If the driver does not support Connection.isValid(),
+the connection is assumed to be valid if it is not closed.
+*/
+private boolean isValid ( Connection connection )
+{	try {
+		return connection.isValid ( __validationTimeout );
+	}
+	catch ( SQLException e ) {
+		return false;
+	}
+	catch ( AbstractMethodError e ) {
+		// Older JDBC driver that does not implement isValid()
+		return !isClosed ( connection );
+	}
+}
+
+/**
+Set the maximum time (milliseconds) to wait in checkOut() for a connection to be returned.
+@param checkOutTimeout the check out timeout in milliseconds.
+*/
+public void setCheckOutTimeout ( long checkOutTimeout )
+{	__checkOutTimeout = checkOutTimeout;
+}
+
+/**
+Set the idle time (milliseconds) after which a connection is validated before being reused.
+@param validationInterval the validation interval in milliseconds, or 0 to always validate.
+*/
+public void setValidationInterval ( long validationInterval )
+{	__validationInterval = validationInterval;
+}
+
+/**
+Set the timeout (seconds) for Connection.isValid() when validating a connection.
+@param validationTimeout the validation timeout in seconds.
+*/
+public void setValidationTimeout ( int validationTimeout )
+{	__validationTimeout = validationTimeout;
+}
+
+}
@@ -40,6 +40,12 @@ Flag indicating whether a distinct select is executed.
 */
 protected boolean _distinct;
 
+/**
+Number of rows to fetch from the database at a time when the select is executed, passed to
+Statement.setFetchSize().  0 means use the driver default.
+*/
+protected int _fetchSize = 0;
+
 /**
 Flag indicating whether the ORDER BY clause should be a GROUP BY clause, instead.
 */
@@ -80,6 +86,14 @@ throws SQLException {
 	return __storedProcedureCallableStatement.executeQuery();
 }
 
+/**
+Returns the number of rows to fetch from the database at a time when the select is executed.
+@return the fetch size, or 0 to use the driver default.
+*/
+public int getFetchSize() {
+	return _fetchSize;
+}
+
 /**
 Returns whether the ORDER BY clause should be a GROUP BY clause, instead.
 @return whether the ORDER BY clause should be a GROUP BY clause, instead.
@@ -106,6 +120,15 @@ public boolean selectDistinct ( boolean distinct ) {
 	return _distinct;
 }
 
+/**
+Sets the number of rows to fetch from the database at a time when the select is executed.
+A larger fetch size reduces the number of round trips to the database when reading many rows.
+@param fetchSize number of rows to fetch at a time, or 0 to use the driver default.
+*/
+public void setFetchSize(int fetchSize) {
+	_fetchSize = fetchSize;
+}
+
 /**
 Sets whether the ORDER BY clause should be a GROUP BY clause, instead.
 @param groupBy true or false
@@ -53,6 +53,13 @@ Whether the statement is executing via a stored procedure.
 */
 protected boolean _isSP = false;
 
+/**
+Whether values added with addValue() are bound as PreparedStatement parameters (the SQL contains ?
+placeholders) rather than being formatted into the SQL as literals.  Binding values allows the DMI to reuse
+a cached PreparedStatement for statements that differ only in their values.
+*/
+protected boolean _bindValues = false;
+
 /**
 The object that will actually execute the stored procedure in the low level java code.
 */
@@ -127,11 +134,22 @@ example to select foreign key from the human-readable data value.
 */
 protected List<Object> _values_Vector;
 
+/**
+List of parameter values to bind to the ? placeholders in the values, in order.  Parameters are added when
+values are bound (see setBindValues()) or when a nested select statement has parameters.
+*/
+protected List<Object> _valueParameters;
+
 /**
 List for where clauses used in the statement (e.g., WHERE XXXX, XXXX).
 */
 protected List<String> _where_Vector;
 
+/**
+List of parameter values to bind to the ? placeholders in the where clauses, in order.
+*/
+protected List<Object> _whereParameters;
+
 /**
 Construct an SQL statement.  Typically a derived class instance (e.g., DMISelectStatement) is declared.
 @param dmi DMI instance to use (this is checked to properly format the statement for the database engine).
@@ -213,6 +231,9 @@ throws Exception {
 	if (_isSP) {
 		setNullValue(__paramNum++);
 	}
+	else if (_bindValues) {
+		addValueParameter(null);
+	}
 	else {
 		// this is for insert/update statements
 		_values_Vector.add(null);
@@ -263,6 +284,9 @@ throws Exception {
 	if (_isSP) {
 		setValue(value, __paramNum++);
 	}
+	else if (_bindValues) {
+		addValueParameter(Boolean.valueOf(value));
+	}
 	else {
 		_values_Vector.add(new Boolean(value));
 	}
@@ -304,6 +328,10 @@ throws Exception {
 		addValue(value);
 		return;
 	}
+	if (_bindValues) {
+		addValueParameter(new DateTime(value, precision));
+		return;
+	}
 	_values_Vector.add(DMIUtil.formatDateTime(_dmi, new DateTime(value, precision)));
 }
 
@@ -316,6 +344,9 @@ throws Exception {
 	if (_isSP) {
 		setValue(value, __paramNum++);
 	}
+	else if (_bindValues) {
+		addValueParameter(value);
+	}
 	else {
 		_values_Vector.add(value);
 	}
@@ -330,6 +361,9 @@ throws Exception {
 	if (_isSP) {
 		setValue(value, __paramNum++);
 	}
+	else if (_bindValues) {
+		addValueParameter(Double.valueOf(value));
+	}
 	else {
 		_values_Vector.add (new Double(value));
 	}
@@ -358,6 +392,9 @@ throws Exception {
 	if (_isSP) {
 		setValue(value, __paramNum++);
 	}
+	else if (_bindValues) {
+		addValueParameter(Float.valueOf(value));
+	}
 	else {
 		_values_Vector.add (new Float(value));
 	}
@@ -381,6 +418,9 @@ throws Exception {
 	if (_isSP) {
 		setValue(value, __paramNum++);
 	}
+	else if (_bindValues) {
+		addValueParameter(Integer.valueOf(value));
+	}
 	else {
 		_values_Vector.add(new Integer(value));
 	}
@@ -409,6 +449,9 @@ throws Exception {
 	if (_isSP) {
 		setValue(value, __paramNum++);
 	}
+	else if (_bindValues) {
+		addValueParameter(Long.valueOf(value));
+	}
 	else {
 		_values_Vector.add(new Long(value));
 	}
@@ -432,6 +475,9 @@ throws Exception {
 	if (_isSP) {
 		setValue(value, __paramNum++);
 	}
+	else if (_bindValues) {
+		addValueParameter(value);
+	}
 	else {
 	    if (value.indexOf('\'') > -1) {
     		if ( (_dmi.getDatabaseEngineType() == DMI.DBENGINE_SQLSERVER) ||
@@ -475,9 +521,20 @@ throws Exception {
         else {
             _values_Vector.add("(" + value + ")");
         }
+        // Parameters in the nested select are bound in the position of the nested select
+        _valueParameters.addAll(value.getWhereParameters());
     }
 }
 
+/**
+Add a value that is bound as a PreparedStatement parameter, using a ? placeholder in the SQL.
+@param value value to bind - DateTime and java.util.Date are converted to Timestamp, null is bound as NULL.
+*/
+private void addValueParameter(Object value) {
+	_values_Vector.add("?");
+	_valueParameters.add(toParameter(value));
+}
+
 /**
 Checks the value with DMIUtil.isMissing() to see if it is missing and if so,
 calls addNullValue(); otherwise calls addValue().  This is done to insert
@@ -574,6 +631,25 @@ throws Exception {
 	}
 }
 
+/**
+Add a WHERE clause containing ? placeholders to the statement, with the values to bind to the placeholders.
+For example, addWhereClause("id = ?", id) allows the DMI to reuse a cached PreparedStatement each time the
+query is run with a different identifier.  Parameters are not supported for stored procedures.
+@param where_clause WHERE clause to add to the statement, containing a ? placeholder for each parameter.
+@param parameters values to bind to the placeholders, in order - DateTime and java.util.Date are
+converted to Timestamp, null is bound as NULL.
+*/
+public void addWhereClause ( String where_clause, Object ... parameters ) 
+throws Exception {
+	if (_isSP) {
+		throw new Exception ( "Stored procedures do not support where clause parameters." );
+	}
+	_where_Vector.add ( where_clause );
+	for ( Object parameter : parameters ) {
+		_whereParameters.add ( toParameter(parameter) );
+	}
+}
+
 /**
 Adds a list of WHERE clauses to the statement.
 @param whereClauses list of String WHERE clauses to add.
@@ -745,7 +821,42 @@ private void initialize() {
 	_order_by_Vector = new Vector<String>();
 	_table_Vector = new Vector<String>();
 	_values_Vector = new Vector<Object>();
+	_valueParameters = new Vector<Object>();
 	_where_Vector = new Vector<String>();
+	_whereParameters = new Vector<Object>();
+}
+
+/**
+Returns whether values added with addValue() are bound as PreparedStatement parameters.
+@return true if values are bound as parameters, false if formatted into the SQL.
+*/
+public boolean getBindValues() {
+	return _bindValues;
+}
+
+/**
+Returns the parameter values to bind to the ? placeholders in the values, in order.
+@return the list of value parameters (empty if none).
+*/
+public List<Object> getValueParameters() {
+	return _valueParameters;
+}
+
+/**
+Returns the parameter values to bind to the ? placeholders in the where clauses, in order.
+@return the list of where clause parameters (empty if none).
+*/
+public List<Object> getWhereParameters() {
+	return _whereParameters;
+}
+
+/**
+Returns whether the statement SQL contains ? placeholders for parameters, in which case the DMI executes
+the statement with a PreparedStatement (see DMI.getPreparedStatement()).
+@return true if the statement has parameters to bind.
+*/
+public boolean isParameterized() {
+	return _bindValues || (_valueParameters.size() > 0) || (_whereParameters.size() > 0);
 }
 
 /**
@@ -764,6 +875,17 @@ public void removeField (String field) {
 	_field_Vector.remove(field);
 }
 
+/**
+Set whether values added with addValue() are bound as PreparedStatement parameters rather than formatted
+into the SQL as literals.  This must be called before values are added.  Binding values avoids formatting and
+escaping values and allows the DMI to reuse a cached PreparedStatement for statements that differ only in
+their values, which is much faster when the same statement is executed many times.
+@param bindValues if true, bind values as parameters.
+*/
+public void setBindValues(boolean bindValues) {
+	_bindValues = bindValues;
+}
+
 /**
 Sets the stored procedure data to use.  If this data is set to a non-null value
 then the statement will execute with the stored procedure.  Otherwise, the
@@ -1149,6 +1271,23 @@ throws Exception {
 	}
 }
 
+/**
+Convert a value to the type bound as a PreparedStatement parameter.
+@param value value to convert.
+@return Timestamp for DateTime and java.util.Date values (other than java.sql date/time types), otherwise the value.
+*/
+static Object toParameter(Object value) {
+	if (value instanceof DateTime) {
+		// TODO SAM 2016-03-11 the following matches legacy stored procedure behavior but handling of time zone may need additional evaluation
+		return new Timestamp(((DateTime)value).getDate(TimeZoneDefaultType.LOCAL).getTime());
+	}
+	else if ((value instanceof Date) && !(value instanceof java.sql.Date) && !(value instanceof java.sql.Time) &&
+		!(value instanceof Timestamp)) {
+		return new Timestamp(((Date)value).getTime());
+	}
+	return value;
+}
+
 /**
  * Return a string representation of the statement.
  * Typically this is handled in overloaded methods but for stored procedure is handled here.
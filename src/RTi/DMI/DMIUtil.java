@@ -1045,10 +1045,7 @@ throws Exception, SQLException {
 			proc = proc.substring(0,pos);
 		}
 		if (proc.equalsIgnoreCase(procedureName)) {
-			// Using the following will close the related statement, which causes a problem on the 2nd call
-			// to this method.
-			//DMI.closeResultSet(rs);
-			rs.close();
+			DMI.closeResultSet(rs);
 			if ( Message.isDebugOn ) {
 				Message.printDebug(dl, routine, "Database \"" + dbName + "\" DOES have stored procedure \"" +
 				procedureName + "\"" );
@@ -1056,10 +1053,7 @@ throws Exception, SQLException {
 			return true;
 		}
 	}
-	// Using the following will close the related statement, which causes a problem on the 2nd call
-	// to this method.
-	//DMI.closeResultSet(rs);
-	rs.close();
+	DMI.closeResultSet(rs);
 	if ( Message.isDebugOn ) {
 		Message.printDebug(dl, routine, "Database \"" + dbName + "\" DOES NOT have stored procedure \"" +
 		procedureName + "\"" );
@@ -1132,7 +1126,7 @@ throws Exception {
 				Message.printDebug ( dl, routine, "Database has table \"" + s + "\"" );
 			} 
 			if ( s.equalsIgnoreCase(tableName) ) {
-				rs.close();
+				DMI.closeResultSet(rs);
 				return true;
 			} 
 		}  
@@ -1217,7 +1211,7 @@ throws Exception, SQLException {
 				Message.printDebug ( dl, routine, "Table \"" + tableName + "\" has column \"" + s + "\"" );
 			}
 			if ( s.equalsIgnoreCase(columnName) ) {
-				rs.close();
+				DMI.closeResultSet(rs);
 				return true;
 			}
 			//column_names.add ( s );
@@ -2273,10 +2267,7 @@ throws SQLException
             StringUtil.removeMatching(procNames,s,true);
         }
     }
-    // Using the following will close the related statement, which causes a problem on the 2nd call
-    // to this method.
-    //DMI.closeResultSet(rs);
-    rs.close();
+    DMI.closeResultSet(rs);
     return procNames;
 }
 
@@ -3664,7 +3655,7 @@ Message.printStatus(2, "", "----------------------------------------------");
 		metadata = dmi.getConnection().getMetaData();
 		ResultSet rs = metadata.getProcedureColumns( dmi.getDatabaseName(), null, procedure, null);
 		printResults(processResultSet(rs));	
-		rs.close();
+		DMI.closeResultSet(rs);
 	}
 	catch (Exception e) {
 		e.printStackTrace();
@@ -24,6 +24,8 @@ NoticeEnd */
 package RTi.DMI;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import RTi.Util.Message.Message;
 
@@ -56,6 +58,31 @@ throws SQLException {
 	return __storedProcedureCallableStatement.executeUpdate();
 }
 
+/**
+Returns the parameter values to bind to the ? placeholders in the INSERT statement (see toInsertString()), in order.
+@return the list of parameters for the INSERT statement.
+*/
+public List<Object> getInsertParameters() {
+	return _valueParameters;
+}
+
+/**
+Returns the parameter values to bind to the ? placeholders in the UPDATE statement (see toUpdateString()), in order.
+@param tryBuildWhere the same value as passed to toUpdateString(), because a where clause built from the
+values also uses the value parameters.
+@return the list of parameters for the UPDATE statement.
+*/
+public List<Object> getUpdateParameters(boolean tryBuildWhere) {
+	List<Object> parameters = new ArrayList<Object>(_valueParameters);
+	if (_where_Vector.size() > 0) {
+		parameters.addAll(_whereParameters);
+	}
+	else if (tryBuildWhere) {
+		parameters.addAll(_valueParameters);
+	}
+	return parameters;
+}
+
 /**
 Removes the name of the table from fields stored in the SQL, if the fields have the table name.  
 @param fieldName the field name to check for a table name and remove, if present.
@@ -202,6 +229,164 @@ public String toUpdateString(boolean tryBuildWhere) {
 	return statement.toString();
 }
 
+/**
+Format a statement that inserts the record or updates it if a record with the same key already exists,
+using the native "upsert" syntax of the database engine, so that a single statement is executed rather than
+trying an INSERT and then an UPDATE.  The statement uses the fields and values that would be used for
+toInsertString() and the parameters from getInsertParameters().  The following engines are supported:
+<ul>
+<li> PostgreSQL - INSERT ... ON CONFLICT (keys) DO UPDATE SET ... (PostgreSQL 9.5 and later)</li>
+<li> MySQL - INSERT ... ON DUPLICATE KEY UPDATE ... (the table's unique keys are used)</li>
+<li> SQL Server and Oracle - MERGE INTO ... USING (SELECT ...) ON (keys) WHEN MATCHED ... WHEN NOT MATCHED ...</li>
+<li> H2 - MERGE INTO ... KEY (keys) VALUES (...)</li>
+</ul>
+@param keyFields fields that uniquely identify a record (e.g., the primary key), required except for MySQL.
+@return the upsert statement as a string, "" if the statement could not be formatted (see toInsertString()),
+or null if the database engine does not support an upsert statement or key fields are required and not specified.
+*/
+public String toUpsertString(List<String> keyFields) {
+	int engine = _dmi.getDatabaseEngineType();
+	boolean haveKeys = (keyFields != null) && (keyFields.size() > 0);
+	if ( (engine != DMI.DBENGINE_POSTGRESQL) && (engine != DMI.DBENGINE_MYSQL) && (engine != DMI.DBENGINE_SQLSERVER) &&
+		(engine != DMI.DBENGINE_ORACLE) && (engine != DMI.DBENGINE_H2) ) {
+		return null;
+	}
+	if ( !haveKeys && (engine != DMI.DBENGINE_MYSQL) ) {
+		return null;
+	}
+	String insertString = toInsertString();
+	if ( insertString.equals("") ) {
+		return insertString;
+	}
+	int size = _field_Vector.size();
+	if ( _values_Vector.size() != size ) {
+		Message.printWarning(2, "DMIWriteStatement.toUpsertString",
+			"Can't build SQL with " + size + " column names and " + _values_Vector.size() + " values.");
+		return "";
+	}
+	// Field names without table names, and whether each is a key
+	List<String> fields = new ArrayList<String>(size);
+	List<String> updateFields = new ArrayList<String>(size);
+	List<String> keys = new ArrayList<String>();
+	if ( haveKeys ) {
+		for ( String keyField : keyFields ) {
+			keys.add(DMIUtil.escapeField(_dmi,removeTableName(keyField)));
+		}
+	}
+	for ( int i = 0; i < size; i++ ) {
+		String field = removeTableName(_field_Vector.get(i));
+		fields.add(DMIUtil.escapeField(_dmi,field));
+		boolean isKey = false;
+		if ( haveKeys ) {
+			for ( String keyField : keyFields ) {
+				if ( removeTableName(keyField).equalsIgnoreCase(field) ) {
+					isKey = true;
+					break;
+				}
+			}
+		}
+		if ( !isKey ) {
+			updateFields.add(DMIUtil.escapeField(_dmi,field));
+		}
+	}
+	StringBuffer statement = new StringBuffer();
+	if ( engine == DMI.DBENGINE_POSTGRESQL ) {
+		statement.append(insertString);
+		statement.append(" ON CONFLICT (" + join(keys, "", "") + ") DO ");
+		if ( updateFields.size() == 0 ) {
+			statement.append("NOTHING");
+		}
+		else {
+			statement.append("UPDATE SET " + join(updateFields, "", " = EXCLUDED.") );
+		}
+	}
+	else if ( engine == DMI.DBENGINE_MYSQL ) {
+		statement.append(insertString);
+		statement.append(" ON DUPLICATE KEY UPDATE ");
+		if ( updateFields.size() == 0 ) {
+			// Update a field to itself so that the existing record is left as is
+			statement.append(fields.get(0) + " = " + fields.get(0));
+		}
+		else {
+			for ( int i = 0; i < updateFields.size(); i++ ) {
+				if ( i > 0 ) {
+					statement.append(", ");
+				}
+				statement.append(updateFields.get(i) + " = VALUES(" + updateFields.get(i) + ")");
+			}
+		}
+	}
+	else if ( engine == DMI.DBENGINE_H2 ) {
+		statement.append("MERGE INTO " + _table_Vector.get(0) + " (" + join(fields, "", "") + ") KEY (" +
+			join(keys, "", "") + ") VALUES (");
+		for ( int i = 0; i < _values_Vector.size(); i++ ) {
+			if ( i > 0 ) {
+				statement.append(", ");
+			}
+			statement.append(_values_Vector.get(i));
+		}
+		statement.append(")");
+	}
+	else {
+		// SQL Server and Oracle MERGE, with the values selected as the source row
+		statement.append("MERGE INTO " + _table_Vector.get(0) + " tgt USING (SELECT ");
+		for ( int i = 0; i < size; i++ ) {
+			if ( i > 0 ) {
+				statement.append(", ");
+			}
+			statement.append(_values_Vector.get(i) + " AS " + fields.get(i));
+		}
+		if ( engine == DMI.DBENGINE_ORACLE ) {
+			statement.append(" FROM DUAL");
+		}
+		statement.append(") src ON (");
+		for ( int i = 0; i < keys.size(); i++ ) {
+			if ( i > 0 ) {
+				statement.append(" AND ");
+			}
+			statement.append("tgt." + keys.get(i) + " = src." + keys.get(i));
+		}
+		statement.append(")");
+		if ( updateFields.size() > 0 ) {
+			statement.append(" WHEN MATCHED THEN UPDATE SET ");
+			for ( int i = 0; i < updateFields.size(); i++ ) {
+				if ( i > 0 ) {
+					statement.append(", ");
+				}
+				statement.append("tgt." + updateFields.get(i) + " = src." + updateFields.get(i));
+			}
+		}
+		statement.append(" WHEN NOT MATCHED THEN INSERT (" + join(fields, "", "") + ") VALUES (" +
+			join(fields, "src.", "") + ")");
+		if ( engine == DMI.DBENGINE_SQLSERVER ) {
+			// SQL Server requires that MERGE is terminated
+			statement.append(";");
+		}
+	}
+	return statement.toString();
+}
+
+/**
+Join field names into a comma-separated list, for toUpsertString().
+@param fields field names to join.
+@param prefix string to add before each field (e.g., "src.").
+@param assignPrefix if not empty, each field is formatted as "field" + assignPrefix + "field" (e.g., " = EXCLUDED.").
+@return the joined string.
+*/
+private String join(List<String> fields, String prefix, String assignPrefix) {
+	StringBuffer b = new StringBuffer();
+	for ( int i = 0; i < fields.size(); i++ ) {
+		if ( i > 0 ) {
+			b.append(", ");
+		}
+		if ( assignPrefix.length() > 0 ) {
+			b.append(fields.get(i) + assignPrefix);
+		}
+		b.append(prefix + fields.get(i));
+	}
+	return b.toString();
+}
+
 public String toString() {
 	return "Insert string version: \n" + toInsertString() + "\nUpdate string version: \n" + toUpdateString(true);
 /*		
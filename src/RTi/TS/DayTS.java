@@ -134,6 +134,7 @@ import java.io.PrintWriter;
 import java.io.Serializable;
 import java.lang.String;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import RTi.Util.IO.DataUnits;
@@ -150,6 +151,9 @@ import RTi.Util.Time.YearType;
 /**
 The DayTS class is the base class for daily time series.  The class can be
 extended for variations on daily data.  Override the allocateDataSpace() and set/get methods to do so.
+The getDataValue() and getDataPoint() methods compute data positions using only local variables,
+so multiple threads can read a shared instance concurrently as long as no thread is modifying the data
+(each reader should use its own TSData and DateTime instances).
 */
 @SuppressWarnings("serial")
 public class DayTS extends TS implements Cloneable, Serializable, Transferable {
@@ -163,9 +167,24 @@ public static DataFlavor dayTSFlavor = new DataFlavor(RTi.TS.DayTS.class, "RTi.T
 
 protected double[][] _data; // This is the data space for daily time series.
 protected String [][] _dataFlags; // Data flags for each daily value, with dimensions [month][day_in_month]
-private int [] _pos = null; // Used to optimize performance when getting data.
-protected int _row, // Row position in data.
-			_column; // Column position in data.
+/**
+Row position in data, previously set by get/set methods.
+@deprecated Data positions are computed with local variables so that concurrent reads are safe,
+and this field is no longer set.  Use getDataIndex() or compute the position from the date.
+*/
+@Deprecated
+protected int _row;
+/**
+Column position in data, previously set by get/set methods.
+@deprecated Data positions are computed with local variables so that concurrent reads are safe,
+and this field is no longer set.  Use getDataIndex() or compute the position from the date.
+*/
+@Deprecated
+protected int _column;
+private boolean _flatStorage = false; // Whether data are stored in _dataFlat rather than _data (see setFlatStorage()).
+private double [] _dataFlat = null; // Contiguous data space used with flat storage, indexed by getDataIndex().
+private String [] _dataFlagsFlat = null; // Data flags corresponding to _dataFlat.
+private int _absoluteDay1 = 0; // Absolute day of _date1 when data space was allocated, used by getDataIndex().
 
 /**
 Constructor.
@@ -183,6 +202,7 @@ public DayTS ( DayTS ts )
 		return;
 	}
 	copyHeader ( ts );
+	_flatStorage = ts._flatStorage;
 	allocateDataSpace();
 	DateTime date2 = new DateTime ( _date2 );
 	DateTime date = new DateTime ( _date1 );
@@ -208,10 +228,6 @@ public DayTS ( HourTS ts )
 	_data_interval_base_original = TimeInterval.HOUR;
 	_data_interval_mult_original = 24;
 
-	_pos = new int[2];
-	_pos[0] = 0;
-	_pos[1] = 0;
-
 	allocateDataSpace();
 	DateTime date2 = new DateTime ( _date2 );
 	DateTime date = new DateTime ( _date1 );
@@ -261,6 +277,28 @@ throws Exception
 	if ( initialValue == null ) {
 	    initialValue = "";
 	}
+
+	if ( _flatStorage ) {
+		// Single array of flags corresponding to the data values...
+		String [] dataFlagsPrev = null;
+		if ( _has_data_flags && retainPreviousValues ) {
+			dataFlagsPrev = _dataFlagsFlat;
+		}
+		else {
+			_has_data_flags = true;
+		}
+		_absoluteDay1 = TimeUtil.absoluteDay ( _date1.getYear(), _date1.getMonth(), _date1.getDay() );
+		int ndata = getDataIndex ( _date2 ) + 1;
+		_dataFlagsFlat = new String[ndata];
+		if ( getInternDataFlagStrings() ) {
+			initialValue = initialValue.intern();
+		}
+		Arrays.fill ( _dataFlagsFlat, initialValue );
+		if ( dataFlagsPrev != null ) {
+			System.arraycopy ( dataFlagsPrev, 0, _dataFlagsFlat, 0, Math.min(dataFlagsPrev.length,ndata) );
+		}
+		return;
+	}
 	
 	int nmonths = _date2.getAbsoluteMonth() - _date1.getAbsoluteMonth() + 1;
 
@@ -353,6 +391,31 @@ public int allocateDataSpace ( double value )
 		Message.printWarning ( 3, routine, message );
 		return 1;
 	}
+	_absoluteDay1 = TimeUtil.absoluteDay ( _date1.getYear(), _date1.getMonth(), _date1.getDay() );
+	if ( _flatStorage ) {
+		// Allocate a single array, with the position computed from the absolute day...
+		int ndata = getDataIndex ( _date2 ) + 1;
+		if ( ndata <= 0 ) {
+			Message.printWarning( 2, routine, "TS has 0 days POR, maybe dates haven't been set yet" );
+			return 1;
+		}
+		_data = null;
+		_dataFlags = null;
+		_dataFlat = new double[ndata];
+		Arrays.fill ( _dataFlat, value );
+		if ( _has_data_flags ) {
+			_dataFlagsFlat = new String[ndata];
+			Arrays.fill ( _dataFlagsFlat, "" );
+		}
+		setDataSize ( ndata );
+		if ( Message.isDebugOn ) {
+			Message.printDebug( 10, routine, "Allocated " + ndata + " values of contiguous memory for daily data from "
+			+ _date1 + " to " + _date2 );
+		}
+		return 0;
+	}
+	_dataFlat = null;
+	_dataFlagsFlat = null;
 	nmonths = _date2.getAbsoluteMonth() - _date1.getAbsoluteMonth() + 1;
 
 	if( nmonths == 0 ){
@@ -498,6 +561,9 @@ throws TSException
 
 	double [][] data_save = _data;
 	String [][] dataFlagsSave = _dataFlags;
+	double [] dataFlatSave = _dataFlat;
+	String [] dataFlagsFlatSave = _dataFlagsFlat;
+	int absoluteDay1Save = _absoluteDay1;
 	DayTS temp_ts = new DayTS ();
 	temp_ts.setDataInterval ( TimeInterval.DAY, _data_interval_mult );
 	temp_ts.setDate1 ( _date1 );
@@ -536,27 +602,42 @@ throws TSException
 	// old position and then set in the new position.  We are only concerned
 	// with transferring the values for the the old time series that are within the new period...
 
-	int column, row, temp_ts_am1 = temp_ts.getDate1().getAbsoluteMonth();
-	boolean internDataFlagStrings = getInternDataFlagStrings();
-	for ( DateTime date = new DateTime (transfer_date1,DateTime.DATE_FAST);
-		date.lessThanOrEqualTo (transfer_date2);
-		date.addInterval( _data_interval_base, _data_interval_mult ) ) {
-		// Get the data position for the old data...
-		row = date.getAbsoluteMonth() - temp_ts_am1;
-       	column = date.getDay() - 1;	// Zero offset!
-		// Also transfer the data flag...
-		if ( _has_data_flags ) {
-			// Transfer the value and flag...
-		    if ( internDataFlagStrings ) {
-		        setDataValue ( date, data_save[row][column], dataFlagsSave[row][column].intern(), 1 );
-		    }
-		    else {
-		        setDataValue ( date, data_save[row][column], dataFlagsSave[row][column], 1 );
-		    }
+	if ( _flatStorage ) {
+		// Both the old and new data are contiguous so copy the overlapping period as a block...
+		int transferDay1 = TimeUtil.absoluteDay ( transfer_date1.getYear(), transfer_date1.getMonth(), transfer_date1.getDay() );
+		int ntransfer = getDataIndex ( transfer_date2 ) - getDataIndex ( transfer_date1 ) + 1;
+		if ( (dataFlatSave != null) && (ntransfer > 0) ) {
+			System.arraycopy ( dataFlatSave, transferDay1 - absoluteDay1Save,
+				_dataFlat, transferDay1 - _absoluteDay1, ntransfer );
+			if ( _has_data_flags && (dataFlagsFlatSave != null) ) {
+				System.arraycopy ( dataFlagsFlatSave, transferDay1 - absoluteDay1Save,
+					_dataFlagsFlat, transferDay1 - _absoluteDay1, ntransfer );
+			}
 		}
-		else {
-		    // Transfer the value...
-			setDataValue ( date, data_save[row][column] );
+	}
+	else {
+		int column, row, temp_ts_am1 = temp_ts.getDate1().getAbsoluteMonth();
+		boolean internDataFlagStrings = getInternDataFlagStrings();
+		for ( DateTime date = new DateTime (transfer_date1,DateTime.DATE_FAST);
+			date.lessThanOrEqualTo (transfer_date2);
+			date.addInterval( _data_interval_base, _data_interval_mult ) ) {
+			// Get the data position for the old data...
+			row = date.getAbsoluteMonth() - temp_ts_am1;
+	       	column = date.getDay() - 1;	// Zero offset!
+			// Also transfer the data flag...
+			if ( _has_data_flags ) {
+				// Transfer the value and flag...
+			    if ( internDataFlagStrings ) {
+			        setDataValue ( date, data_save[row][column], dataFlagsSave[row][column].intern(), 1 );
+			    }
+			    else {
+			        setDataValue ( date, data_save[row][column], dataFlagsSave[row][column], 1 );
+			    }
+			}
+			else {
+			    // Transfer the value...
+				setDataValue ( date, data_save[row][column] );
+			}
 		}
 	}
 
@@ -572,6 +653,7 @@ throws TSException
 	transfer_date1 = null;
 	transfer_date2 = null;
 	data_save = null;
+	dataFlatSave = null;
 }
 
 /**
@@ -581,7 +663,6 @@ public Object clone ()
 {	DayTS ts = (DayTS)super.clone();
 	// Does not seem to work...
 	//ts._data = (double[][])_data.clone();
-	//ts._pos = (int[])_pos.clone();
     if ( _data == null ) {
         ts._data = null;
     }
@@ -609,11 +690,14 @@ public Object clone ()
     		}
 	    }
 	}
-	ts._pos = new int[2];
-	ts._pos[0] = _pos[0];
-	ts._pos[1] = _pos[1];
-	ts._row = _row;
-	ts._column = _column;
+	if ( _dataFlat != null ) {
+		ts._dataFlat = new double[_dataFlat.length];
+		System.arraycopy ( _dataFlat, 0, ts._dataFlat, 0, _dataFlat.length );
+	}
+	if ( _dataFlagsFlat != null ) {
+		ts._dataFlagsFlat = new String[_dataFlagsFlat.length];
+		System.arraycopy ( _dataFlagsFlat, 0, ts._dataFlagsFlat, 0, _dataFlagsFlat.length );
+	}
 	return ts;
 }
 
@@ -625,7 +709,8 @@ protected void finalize()
 throws Throwable
 {	_data = null;
 	_dataFlags = null;
-	_pos = null;
+	_dataFlat = null;
+	_dataFlagsFlat = null;
 	super.finalize();
 }
 
@@ -1469,6 +1554,18 @@ private List<String> formatOutputStats ( double[][] data, String label, String d
 	return strings;
 }
 
+/**
+Return the position of a date in the data space, which is the number of days since the start of
+the period.  This is the number of data intervals because only 1-day data are supported (see allocateDataSpace()),
+consistent with TS.getDataIndex().  The position is computed directly from the absolute day, is valid for either storage
+layout, and uses no shared state.  The data space must have been allocated.
+@param date date of interest.
+@return the position of the date in the data space (0 corresponds to getDate1()).
+*/
+public int getDataIndex ( DateTime date )
+{	return TimeUtil.absoluteDay ( date.getYear(), date.getMonth(), date.getDay() ) - _absoluteDay1;
+}
+
 /**
 Return the data point corresponding to the date.
 <pre>
@@ -1500,13 +1597,31 @@ public TSData getDataPoint ( DateTime date, TSData tsdata )
 		tsdata.setValues ( date, _missing, _data_units, "", 0 );
 		return tsdata;
 	}
-	getDataPosition ( date );	// This computes _row and _column
+	if ( _flatStorage && (_dataFlat != null) ) {
+		int i = getDataIndex ( date );
+		if ( _has_data_flags && (_dataFlagsFlat != null) ) {
+		    if ( _internDataFlagStrings ) {
+		        tsdata.setValues ( date, _dataFlat[i], _data_units, _dataFlagsFlat[i].intern(), 0 );
+		    }
+		    else {
+		        tsdata.setValues ( date, _dataFlat[i], _data_units, _dataFlagsFlat[i], 0 );
+		    }
+		}
+		else {
+	        tsdata.setValues ( date, _dataFlat[i], _data_units, "", 0 );
+		}
+		return tsdata;
+	}
+	// THIS CODE NEEDS TO BE EQUIVALENT IN getDataValue and setDataValue...
+	int row = date.getAbsoluteMonth() - _date1.getAbsoluteMonth();
+	int column = date.getDay() - 1; // Zero offset!
+	// ... END OF EQUIVALENT CODE.
 	if ( _has_data_flags ) {
 	    if ( _internDataFlagStrings ) {
-	        tsdata.setValues ( date, getDataValue(date), _data_units, _dataFlags[_row][_column].intern(), 0 );
+	        tsdata.setValues ( date, getDataValue(date), _data_units, _dataFlags[row][column].intern(), 0 );
 	    }
 	    else {
-	        tsdata.setValues ( date, getDataValue(date), _data_units, _dataFlags[_row][_column], 0 );
+	        tsdata.setValues ( date, getDataValue(date), _data_units, _dataFlags[row][column], 0 );
 	    }
 	}
 	else {
@@ -1515,53 +1630,6 @@ public TSData getDataPoint ( DateTime date, TSData tsdata )
 	return tsdata;
 }
 
-/**
-Return the position corresponding to the date.  The position array is volatile
-and is reused for each call.  Copy the values to make persistent.
-<pre>
-             	Day data is stored in a two-dimensional array:
-  		     |----------------> days
-  		     |
-  		    \|/
-  		   month 
-
-</pre>
-@return The data position corresponding to the date.
-@param date Date of interest.
-*/
-private int [] getDataPosition ( DateTime date )
-{	// Do not define the routine or debug level here so we can optimize.
-
-	// Note that unlike HourTS, do not need to check the time zone!
-
-	// Check the date coming in...
-
-	if ( date == null ) {
-		return null;
-	}
-
-	// Calculate the row position of the data...
-
-	if ( Message.isDebugOn ) {
-		Message.printDebug( 50, "DayTS.getDataPosition", "Using " + date + "(" + date.getAbsoluteMonth() +
-		") and start date: " + _date1 + "(" + _date1.getAbsoluteMonth() + ") for row-col calculation." );
-	}
-
-	_row = date.getAbsoluteMonth() - _date1.getAbsoluteMonth();
-
-    // Calculate the column position of the data. We know that Daily data
-    // is stored in a 2 dimensional array with the column being the daily data by interval.
-
-    _column = date.getDay() - 1;
-	if ( Message.isDebugOn ) {
-		Message.printDebug( 50, "DayTS.getDataPosition", "Row=" + _row + " Column=" + _column );
-	}
-
-	_pos[0] = _row;
-	_pos[1] = _column;
-	return _pos;
-}
-
 /**
 Return the data value for a date.
 <pre>
@@ -1589,26 +1657,52 @@ public double getDataValue( DateTime date )
 		return _missing;
 	}
 
-	getDataPosition(date);
+	if ( _flatStorage ) {
+		return _dataFlat[getDataIndex(date)];
+	}
+
+	// THIS CODE NEEDS TO BE EQUIVALENT IN getDataPoint and setDataValue...
+	int row = date.getAbsoluteMonth() - _date1.getAbsoluteMonth();
+	int column = date.getDay() - 1; // Zero offset!
+	// ... END OF EQUIVALENT CODE.
 
 	if ( Message.isDebugOn ) {
 		Message.printDebug( 50, "DayTS.getDataValue",
-		    _data[_row][_column] + " for " + date + " from _data[" + _row + "][" + _column + "]" );
+		    _data[row][column] + " for " + date + " from _data[" + row + "][" + column + "]" );
 	}
 
 	double value = 0;
 	// FIXME SAM 2010-08-20 Possible to throw exceptions if the date is not the right precision and
 	// illegal math results in negative values in arrays
 	//try {
-	    value = _data[_row][_column];
+	    value = _data[row][column];
 	//}
 	//catch ( Exception e ) {
-	//    Message.printWarning(3, "", "Error getting value for date " + date + "date1=" + _date1 + "_date2=" + _date2 + " row=" + _row + " col=" + _column);
+	//    Message.printWarning(3, "", "Error getting value for date " + date + "date1=" + _date1 + "_date2=" + _date2 + " row=" + row + " col=" + column);
 	//    Message.printWarning(3, "", e);
 	//}
 	return value;
 }
 
+/**
+Copy consecutive data values into an array, starting at a position in the period.
+If flat storage is used, the values are copied as a block.
+@param startIndex position of the first value to copy (see getDataIndex()).
+@param values array to receive the data values - up to values.length values are copied.
+@return the number of values that were copied.
+*/
+public int getDataValues ( int startIndex, double [] values )
+{	if ( !_flatStorage || (_dataFlat == null) ) {
+		return super.getDataValues ( startIndex, values );
+	}
+	if ( (values == null) || (startIndex < 0) || (startIndex >= _dataFlat.length) ) {
+		return 0;
+	}
+	int count = Math.min ( values.length, _dataFlat.length - startIndex );
+	System.arraycopy ( _dataFlat, startIndex, values, 0, count );
+	return count;
+}
+
 /**
 Returns the data in the specified DataFlavor, or null if no matching flavor
 exists.  From the Transferable interface.  Supported data flavors are:<br>
@@ -1663,7 +1757,7 @@ hasData() to check to see if the data space has been assigned.
 Note that true will be returned even if all the data values are set to the missing data value.
 */
 public boolean hasData ()
-{	if ( _data != null ) {
+{	if ( (_data != null) || (_dataFlat != null) ) {
 		return true;
 	}
 	else {
@@ -1678,7 +1772,7 @@ the data flag space has been allocated and data flags are enabled for the time s
 Note that true will be returned even if all the data flag values are set to the missing data flag value.
 */
 public boolean hasDataFlags ()
-{	if ( _dataFlags != null ) {
+{	if ( (_dataFlags != null) || (_dataFlagsFlat != null) ) {
 		return super.hasDataFlags();
 	}
 	else {
@@ -1695,11 +1789,6 @@ private void init()
 	_data_interval_mult = 1;
 	_data_interval_base_original = TimeInterval.DAY;
 	_data_interval_mult_original = 1;
-	_pos = new int[2];
-	_pos[0] = 0;
-	_pos[1] = 0;
-	_row = 0;
-	_column = 0;
 }
 
 /**
@@ -1727,6 +1816,14 @@ public boolean isDataFlavorSupported(DataFlavor flavor) {
 	}
 }
 
+/**
+Indicate whether data values are stored in a single contiguous array (see setFlatStorage()).
+@return true if flat storage is used, false if data are stored by month.
+*/
+public boolean isFlatStorage ()
+{	return _flatStorage;
+}
+
 /**
 Refresh the derived data (e.g., data limits) if data have been set.  This is
 normally only called from other package routines.
@@ -1780,17 +1877,26 @@ public void setDataValue( DateTime date, double value )
 		return;
 	}
 
-	getDataPosition ( date );
+	if ( _flatStorage ) {
+		_dirty = true;
+		_dataFlat[getDataIndex(date)] = value;
+		return;
+	}
+
+	// THIS CODE NEEDS TO BE EQUIVALENT IN getDataValue...
+	int row = date.getAbsoluteMonth() - _date1.getAbsoluteMonth();
+	int column = date.getDay() - 1; // Zero offset!
+	// ... END OF EQUIVALENT CODE.
 
 	if ( Message.isDebugOn ) {
-		Message.printDebug( 30, "DayTS.setDataValue", "Setting " + value + " for " + date + " at " + _row + "," + _column );
+		Message.printDebug( 30, "DayTS.setDataValue", "Setting " + value + " for " + date + " at " + row + "," + column );
 	}
 
 	// Set the dirty flag so that we know to recompute the limits if desired...
 
 	_dirty = true;
 
-	_data[_row][_column] = value;
+	_data[row][column] = value;
 }
 
 /**
@@ -1809,18 +1915,32 @@ public void setDataValue ( DateTime date, double value, String data_flag, int du
 		return;
 	}
 
-	getDataPosition ( date );
+	int i = 0, row = 0, column = 0;
+	if ( _flatStorage ) {
+		i = getDataIndex ( date );
+	}
+	else {
+		// THIS CODE NEEDS TO BE EQUIVALENT IN getDataValue...
+		row = date.getAbsoluteMonth() - _date1.getAbsoluteMonth();
+		column = date.getDay() - 1; // Zero offset!
+		// ... END OF EQUIVALENT CODE.
+	}
 
 	if ( Message.isDebugOn ) {
 		Message.printDebug( 30, "DayTS.setDataValue",
-		"Setting " + value + " flag=" + data_flag + " for " + date + " at " + _row + "," + _column );
+		"Setting " + value + " flag=" + data_flag + " for " + date + " at " + row + "," + column );
 	}
 
 	// Set the dirty flag so that we know to recompute the limits if desired...
 
 	_dirty = true;
 
-	_data[_row][_column] = value;
+	if ( _flatStorage ) {
+		_dataFlat[i] = value;
+	}
+	else {
+		_data[row][column] = value;
+	}
 	if ( (data_flag != null) && (data_flag.length() > 0) ) {
 	    if ( !_has_data_flags ) {
 	        // Trying to set a data flag but space has not been allocated, so allocate the flag space
@@ -1840,12 +1960,84 @@ public void setDataValue ( DateTime date, double value, String data_flag, int du
 	}
 	if ( _has_data_flags && (data_flag != null) ) {
 	    if ( _internDataFlagStrings ) {
-	        _dataFlags[_row][_column] = data_flag.intern();
+	        data_flag = data_flag.intern();
+	    }
+	    if ( _flatStorage ) {
+	        _dataFlagsFlat[i] = data_flag;
 	    }
 	    else {
-	        _dataFlags[_row][_column] = data_flag;
+	        _dataFlags[row][column] = data_flag;
 	    }
 	}
 }
 
+/**
+Set consecutive data values from an array, starting at a position in the period.
+If flat storage is used, the values are copied as a block.  Data flags are not changed.
+@param startIndex position of the first value to set (see getDataIndex()).
+@param values data values to set - up to values.length values are set.
+@return the number of values that were set.
+*/
+public int setDataValues ( int startIndex, double [] values )
+{	if ( !_flatStorage || (_dataFlat == null) ) {
+		return super.setDataValues ( startIndex, values );
+	}
+	if ( (values == null) || (startIndex < 0) || (startIndex >= _dataFlat.length) ) {
+		return 0;
+	}
+	int count = Math.min ( values.length, _dataFlat.length - startIndex );
+	System.arraycopy ( values, 0, _dataFlat, startIndex, count );
+	_dirty = true;
+	return count;
+}
+
+/**
+Set whether data values are stored in a single contiguous array rather than in arrays by month.
+With flat storage the position of a value is computed directly from the number of days since the
+start of the period (see getDataIndex()), sequential scans are cache-friendly, and getDataValues(),
+setDataValues(), clone() and changePeriodOfRecord() copy blocks of values.
+If the data space has already been allocated, the data values and flags are transferred to the new storage.
+@param flatStorage if true, store data values in a contiguous array; if false, store by month (the default).
+*/
+public void setFlatStorage ( boolean flatStorage )
+{	if ( flatStorage == _flatStorage ) {
+		return;
+	}
+	if ( !hasData() ) {
+		// Will be used when the data space is allocated...
+		_flatStorage = flatStorage;
+		return;
+	}
+	// Save the values and flags from the current storage...
+	int ndata = getDataIndex ( _date2 ) + 1;
+	double [] values = new double[ndata];
+	String [] flags = null;
+	if ( _has_data_flags ) {
+		flags = new String[ndata];
+	}
+	TSData tsdata = new TSData();
+	DateTime date = new DateTime ( _date1 );
+	for ( int i = 0; i < ndata; i++, date.addInterval(_data_interval_base,_data_interval_mult) ) {
+		getDataPoint ( date, tsdata );
+		values[i] = tsdata.getDataValue();
+		if ( flags != null ) {
+			flags[i] = tsdata.getDataFlag();
+		}
+	}
+	// Reallocate and transfer to the new storage...
+	boolean dirty = _dirty;
+	_flatStorage = flatStorage;
+	allocateDataSpace();
+	date = new DateTime ( _date1 );
+	for ( int i = 0; i < ndata; i++, date.addInterval(_data_interval_base,_data_interval_mult) ) {
+		if ( flags != null ) {
+			setDataValue ( date, values[i], flags[i], 0 );
+		}
+		else {
+			setDataValue ( date, values[i] );
+		}
+	}
+	_dirty = dirty;
+}
+
 }
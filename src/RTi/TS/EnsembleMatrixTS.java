@@ -0,0 +1,240 @@
+// EnsembleMatrixTS - time series facade for one trace of a TSEnsembleMatrix
+
+/* NoticeStart
+
+CDSS Common Java Library
+CDSS Common Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Common Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Common Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Common Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package RTi.TS;
+
+import RTi.Util.Message.Message;
+import RTi.Util.Time.DateTime;
+
+/**
+Time series for one trace of a TSEnsembleMatrix.  The data values are read from and written to the matrix
+data array without copying, so changes made through the time series are visible in the matrix time slices and
+vice versa.  The header information (identifier, units, missing value, etc.) is copied from the original trace
+when the matrix is created.  The period is the period of the matrix and cannot be changed.
+Data flags and durations are not stored, and a matrix cannot be created for traces that have data flags.
+*/
+public class EnsembleMatrixTS extends TS
+{
+
+private static final long serialVersionUID = 1L;
+
+/**
+Matrix containing the data values.
+*/
+private TSEnsembleMatrix __matrix;
+
+/**
+Position (0+) of the trace in the matrix.
+*/
+private int __trace;
+
+/**
+Create a time series for a trace in a matrix.
+@param matrix matrix containing the data values.
+@param trace position (0+) of the trace in the matrix.
+@param ts original time series for the trace, from which the header is copied (if not null).
+*/
+EnsembleMatrixTS ( TSEnsembleMatrix matrix, int trace, TS ts )
+{	super();
+	if ( ts != null ) {
+		copyHeader ( ts );
+	}
+	__matrix = matrix;
+	__trace = trace;
+	_data_interval_base = matrix.getDataIntervalBase();
+	_data_interval_mult = matrix.getDataIntervalMult();
+	_date1 = matrix.getDate1();
+	_date2 = matrix.getDate2();
+	_has_data_flags = false;
+	setDataSize ( matrix.getStepCount() );
+	_dirty = true;
+}
+
+/**
+The data space is the matrix, which is allocated when the matrix is created, so nothing is done.
+@return 0 always.
+*/
+public int allocateDataSpace ()
+{	return 0;
+}
+
+/**
+Data flags are not supported.
+@exception Exception always.
+*/
+public void allocateDataFlagSpace ( String initialValue, boolean retainPreviousValues )
+throws Exception
+{	throw new Exception ( "Data flags are not supported for ensemble matrix traces." );
+}
+
+/**
+The period of an ensemble matrix trace cannot be changed.
+@exception TSException always.
+*/
+public void changePeriodOfRecord ( DateTime date1, DateTime date2 )
+throws TSException
+{	throw new TSException ( "The period cannot be changed for ensemble matrix traces." );
+}
+
+/**
+Clone the object.  The result is a complete deep copy, with the data values copied into a new
+single-trace matrix so that the copy does not share data with the original matrix.
+*/
+public Object clone ()
+{	EnsembleMatrixTS ts = (EnsembleMatrixTS)super.clone();
+	ts.__matrix = new TSEnsembleMatrix ( __matrix, __trace );
+	ts.__trace = 0;
+	ts.__matrix.setTrace ( 0, ts );
+	return ts;
+}
+
+/**
+Return the position of a date/time in the data space (the time step in the matrix).
+@param date date/time of interest.
+@return the position of the date/time (0 corresponds to getDate1()), or -1 if outside the period.
+*/
+public int getDataIndex ( DateTime date )
+{	return __matrix.getStepIndex ( date );
+}
+
+/**
+Return the data point corresponding to the date.
+@param date date/time to get data.
+@param tsdata if null, a new instance of TSData will be returned.  If non-null, the provided
+instance will be used (this is often desirable during iteration to decrease memory use and
+increase performance).
+@return a TSData for the specified date/time.
+*/
+public TSData getDataPoint ( DateTime date, TSData tsdata )
+{	if ( tsdata == null ) {
+		tsdata = new TSData();
+	}
+	tsdata.setValues ( date, getDataValue(date), _data_units, "", 0 );
+	return tsdata;
+}
+
+/**
+Return the data value for the date.
+@param date date/time of interest.
+@return the data value corresponding to the date, or the missing data value if outside the period.
+*/
+public double getDataValue ( DateTime date )
+{	int step = __matrix.getStepIndex ( date );
+	if ( step < 0 ) {
+		if ( Message.isDebugOn && (date != null) ) {
+			Message.printDebug ( 50, "EnsembleMatrixTS.getDataValue", date + " not within POR (" +
+				_date1 + " - " + _date2 + ")" );
+		}
+		return _missing;
+	}
+	return __matrix.getValue ( step, __trace );
+}
+
+/**
+Copy consecutive data values into an array, starting at a position in the period.
+@param startIndex position of the first value to copy (see getDataIndex()).
+@param values array to receive the data values - up to values.length values are copied.
+@return the number of values that were copied.
+*/
+public int getDataValues ( int startIndex, double [] values )
+{	return __matrix.getTraceValues ( __trace, startIndex, values );
+}
+
+/**
+Return the matrix containing the data values.
+@return the matrix containing the data values.
+*/
+public TSEnsembleMatrix getMatrix ()
+{	return __matrix;
+}
+
+/**
+Return the position of the trace in the matrix.
+@return the position (0+) of the trace in the matrix.
+*/
+public int getTraceIndex ()
+{	return __trace;
+}
+
+/**
+Indicate whether the time series has data, which is always the case because the matrix is allocated.
+@return true always.
+*/
+public boolean hasData ()
+{	return true;
+}
+
+/**
+Refresh the secondary data (e.g., data limits) if the data have been modified.
+*/
+public void refresh ()
+{	if ( !_dirty ) {
+		return;
+	}
+	TSLimits limits = TSUtil.getDataLimits ( this, _date1, _date2, false );
+	if ( limits.areLimitsFound() ) {
+		setDataLimits ( limits );
+	}
+	_dirty = false;
+}
+
+/**
+Set the data value for the date.
+@param date date/time of interest.
+@param value data value corresponding to the date.
+*/
+public void setDataValue ( DateTime date, double value )
+{	int step = __matrix.getStepIndex ( date );
+	if ( step < 0 ) {
+		if ( Message.isDebugOn && (date != null) ) {
+			Message.printWarning( 10, "EnsembleMatrixTS.setDataValue",
+			    "Date " + date + " is outside bounds " + _date1 + " - " + _date2 );
+		}
+		return;
+	}
+	_dirty = true;
+	__matrix.setValue ( step, __trace, value );
+}
+
+/**
+Set the data value for the date.  Data flags and duration are not stored and are ignored.
+@param date date/time of interest.
+@param value data value corresponding to the date.
+@param data_flag data flag for value (ignored).
+@param duration duration for value (ignored).
+*/
+public void setDataValue ( DateTime date, double value, String data_flag, int duration )
+{	setDataValue ( date, value );
+}
+
+/**
+Set consecutive data values from an array, starting at a position in the period.
+@param startIndex position of the first value to set (see getDataIndex()).
+@param values data values to set - up to values.length values are set.
+@return the number of values that were set.
+*/
+public int setDataValues ( int startIndex, double [] values )
+{	return __matrix.setTraceValues ( __trace, startIndex, values );
+}
+
+}
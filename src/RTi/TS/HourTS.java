@@ -131,6 +131,7 @@ import java.io.PrintWriter;
 import java.io.Serializable;
 import java.lang.String;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import RTi.Util.IO.DataUnits;
@@ -147,6 +148,9 @@ import RTi.Util.Time.YearType;
 /**
 The HourTS class is the base class for hourly time series.  Additional hour
 time series can be extended if the allocateDataSpace() and set/get methods are overridden.
+The getDataValue() and getDataPoint() methods compute data positions using only local variables,
+so multiple threads can read a shared instance concurrently as long as no thread is modifying the data
+(each reader should use its own TSData and DateTime instances).
 */
 @SuppressWarnings("serial")
 public class HourTS extends TS implements Cloneable, Serializable, Transferable {
@@ -181,17 +185,24 @@ Indicate whether the duration is used.
 //private boolean _has_durations = false;
 
 /**
-Data position, used internally by get/set methods.
+Indicate whether data are stored in _dataFlat rather than _data (see setFlatStorage()).
 */
-private int[] _pos;
+private boolean _flatStorage = false;
+
 /**
-Row position in data.
+Contiguous data space used with flat storage, indexed by getDataIndex().
 */
-private int _row;
+private double [] _dataFlat = null;
+
 /**
-Column position in data.
+Data flags corresponding to _dataFlat.
 */
-private int _column;
+private String [] _dataFlagsFlat = null;
+
+/**
+Absolute interval (see getAbsoluteInterval()) of _date1 when the data space was allocated, used by getDataIndex().
+*/
+private int _absoluteInterval1 = 0;
 
 /**
 Default constructor.
@@ -210,6 +221,7 @@ public HourTS ( HourTS ts )
 		return;
 	}
 	copyHeader ( ts );
+	_flatStorage = ts._flatStorage;
 	allocateDataSpace();
 	DateTime date2 = new DateTime ( _date2 );
 	DateTime date = new DateTime ( _date1 );
@@ -330,6 +342,28 @@ throws Exception
 	if ( initialValue == null ) {
 	    initialValue = "";
 	}
+
+	if ( _flatStorage ) {
+		// Single array of flags corresponding to the data values...
+		String [] dataFlagsPrev = null;
+		if ( _has_data_flags && retainPreviousValues ) {
+			dataFlagsPrev = _dataFlagsFlat;
+		}
+		else {
+			_has_data_flags = true;
+		}
+		_absoluteInterval1 = getAbsoluteInterval ( _date1 );
+		int ndata = getDataIndex ( _date2 ) + 1;
+		_dataFlagsFlat = new String[ndata];
+		if ( getInternDataFlagStrings() ) {
+			initialValue = initialValue.intern();
+		}
+		Arrays.fill ( _dataFlagsFlat, initialValue );
+		if ( dataFlagsPrev != null ) {
+			System.arraycopy ( dataFlagsPrev, 0, _dataFlagsFlat, 0, Math.min(dataFlagsPrev.length,ndata) );
+		}
+		return;
+	}
 	
 	int nmonths = _date2.getAbsoluteMonth() - _date1.getAbsoluteMonth() + 1;
 
@@ -411,6 +445,31 @@ public int allocateDataSpace( )
 		"Only know how to handle 1-24 hour data, not " + _data_interval_mult + "-hour" );
 		return 1;
 	}
+	_absoluteInterval1 = getAbsoluteInterval ( _date1 );
+	if ( _flatStorage ) {
+		// Allocate a single array, with the position computed from the absolute interval...
+		int ndata = getDataIndex ( _date2 ) + 1;
+		if ( ndata <= 0 ) {
+			Message.printWarning( 2, routine, "TS has 0 intervals POR, maybe dates haven't been set yet" );
+			return 1;
+		}
+		_data = null;
+		_dataFlags = null;
+		_dataFlat = new double[ndata];
+		Arrays.fill ( _dataFlat, _missing );
+		if ( _has_data_flags ) {
+			_dataFlagsFlat = new String[ndata];
+			Arrays.fill ( _dataFlagsFlat, "" );
+		}
+		setDataSize ( ndata );
+		if ( Message.isDebugOn ) {
+			Message.printDebug( 10, routine,
+			"Successfully allocated " + ndata + " values of contiguous memory from " + _date1 + " to " + _date2 );
+		}
+		return 0;
+	}
+	_dataFlat = null;
+	_dataFlagsFlat = null;
 	int nmonths = _date2.getAbsoluteMonth() - _date1.getAbsoluteMonth() + 1;
 
 	if( nmonths == 0 ){
@@ -561,6 +620,9 @@ throws TSException
 
 	double [][] dataSave = _data;
 	String [][] dataFlagsSave = _dataFlags;
+	double [] dataFlatSave = _dataFlat;
+	String [] dataFlagsFlatSave = _dataFlagsFlat;
+	int absoluteInterval1Save = _absoluteInterval1;
 	HourTS tempTs = new HourTS ();
 	tempTs.setDataInterval ( TimeInterval.HOUR, _data_interval_mult );
 	tempTs.setDate1 ( _date1 );
@@ -599,30 +661,45 @@ throws TSException
 	// old position and then set in the new position.  We are only concerned
 	// with transferring the values for the the old time series that are within the new period...
 
-	double value;
-	int [] dataPos;
-	boolean internDataFlagStrings = getInternDataFlagStrings();
-	for ( DateTime date = new DateTime (transferDate1,DateTime.DATE_FAST);
-		date.lessThanOrEqualTo (transferDate2);
-		date.addInterval( _data_interval_base, _data_interval_mult ) ) {
-		// Get the data position for the old data...
-		dataPos = tempTs.getDataPosition(date);
-		// Now get the value...
-		value = dataSave[dataPos[0]][dataPos[1]];
-		// Now set in the new period...
-		// Also transfer the data flag...
-		if ( _has_data_flags ) {
-			// Transfer the value and flag...
-		    if ( internDataFlagStrings ) {
-		        setDataValue ( date, value, dataFlagsSave[dataPos[0]][dataPos[1]].intern(), 1 );
-		    }
-		    else {
-		        setDataValue ( date, value, dataFlagsSave[dataPos[0]][dataPos[1]], 1 );
-		    }
+	if ( _flatStorage ) {
+		// Both the old and new data are contiguous so copy the overlapping period as a block...
+		int transferInterval1 = getAbsoluteInterval ( transferDate1 );
+		int ntransfer = getDataIndex ( transferDate2 ) - getDataIndex ( transferDate1 ) + 1;
+		if ( (dataFlatSave != null) && (ntransfer > 0) ) {
+			System.arraycopy ( dataFlatSave, transferInterval1 - absoluteInterval1Save,
+				_dataFlat, transferInterval1 - _absoluteInterval1, ntransfer );
+			if ( _has_data_flags && (dataFlagsFlatSave != null) ) {
+				System.arraycopy ( dataFlagsFlatSave, transferInterval1 - absoluteInterval1Save,
+					_dataFlagsFlat, transferInterval1 - _absoluteInterval1, ntransfer );
+			}
 		}
-		else {
-		    // Transfer the value...
-			setDataValue ( date, value );
+	}
+	else {
+		double value;
+		int [] dataPos;
+		boolean internDataFlagStrings = getInternDataFlagStrings();
+		for ( DateTime date = new DateTime (transferDate1,DateTime.DATE_FAST);
+			date.lessThanOrEqualTo (transferDate2);
+			date.addInterval( _data_interval_base, _data_interval_mult ) ) {
+			// Get the data position for the old data...
+			dataPos = tempTs.getDataPosition(date);
+			// Now get the value...
+			value = dataSave[dataPos[0]][dataPos[1]];
+			// Now set in the new period...
+			// Also transfer the data flag...
+			if ( _has_data_flags ) {
+				// Transfer the value and flag...
+			    if ( internDataFlagStrings ) {
+			        setDataValue ( date, value, dataFlagsSave[dataPos[0]][dataPos[1]].intern(), 1 );
+			    }
+			    else {
+			        setDataValue ( date, value, dataFlagsSave[dataPos[0]][dataPos[1]], 1 );
+			    }
+			}
+			else {
+			    // Transfer the value...
+				setDataValue ( date, value );
+			}
 		}
 	}
 
@@ -640,7 +717,6 @@ public Object clone ()
 {	HourTS ts = (HourTS)super.clone();	// Clone data stored in the base
 	// Does not appear to work...
 	//ts._data = (double [][])_data.clone();
-	//ts._pos = (int [])_data.clone();
     if ( _data == null ) {
         ts._data = null;
     }
@@ -675,11 +751,14 @@ public Object clone ()
     		}
 	    }
 	}
-	ts._pos = new int[2];
-	ts._pos[0] = _pos[0];
-	ts._pos[1] = _pos[1];
-	ts._row = _row;
-	ts._column = _column;
+	if ( _dataFlat != null ) {
+		ts._dataFlat = new double[_dataFlat.length];
+		System.arraycopy ( _dataFlat, 0, ts._dataFlat, 0, _dataFlat.length );
+	}
+	if ( _dataFlagsFlat != null ) {
+		ts._dataFlagsFlat = new String[_dataFlagsFlat.length];
+		System.arraycopy ( _dataFlagsFlat, 0, ts._dataFlagsFlat, 0, _dataFlagsFlat.length );
+	}
 	return ts;
 }
 
@@ -691,7 +770,8 @@ protected void finalize ()
 throws Throwable
 {	_data = null;
 	_dataFlags = null;
-	_pos = null;
+	_dataFlat = null;
+	_dataFlagsFlat = null;
 	super.finalize();
 }
 
@@ -1632,6 +1712,29 @@ private List<String> formatOutputStats ( double[][] data, String label, String d
 	return strings;
 }
 
+/**
+Return the absolute interval for a date/time, which is the number of data intervals since the
+absolute day datum (see TimeUtil.absoluteDay()).  Intervals are aligned with hour zero of each day,
+consistent with the storage by month.
+@param date date/time of interest.
+@return the absolute interval for the date/time.
+*/
+private int getAbsoluteInterval ( DateTime date )
+{	return (TimeUtil.absoluteDay(date.getYear(), date.getMonth(), date.getDay())*24 + date.getHour())/
+		_data_interval_mult;
+}
+
+/**
+Return the position of a date/time in the data space, which is the number of data intervals since
+the start of the period.  The position is computed directly from the absolute interval, is valid for
+either storage layout, and uses no shared state.  The data space must have been allocated.
+@param date date/time of interest.
+@return the position of the date/time in the data space (0 corresponds to getDate1()).
+*/
+public int getDataIndex ( DateTime date )
+{	return getAbsoluteInterval ( date ) - _absoluteInterval1;
+}
+
 /**
 Return the data point corresponding to the date.
 <pre>
@@ -1660,22 +1763,39 @@ public TSData getDataPoint ( DateTime date, TSData tsdata )
 		tsdata.setValues ( date, _missing, _data_units, "", 0 );
 		return tsdata;
 	}
-	// This computes the _row and _column...
+	if ( _flatStorage && (_dataFlat != null) ) {
+		int i = getDataIndex ( date );
+		if ( _has_data_flags && (_dataFlagsFlat != null) ) {
+		    if ( _internDataFlagStrings ) {
+		        tsdata.setValues ( date, _dataFlat[i], _data_units, _dataFlagsFlat[i].intern(), 0 );
+		    }
+		    else {
+		        tsdata.setValues ( date, _dataFlat[i], _data_units, _dataFlagsFlat[i], 0 );
+		    }
+		}
+		else {
+		    tsdata.setValues ( date, _dataFlat[i], _data_units, "", 0 );
+		}
+		return tsdata;
+	}
+	// THIS CODE NEEDS TO BE EQUIVALENT IN getDataPosition...
+	int row = date.getAbsoluteMonth() - _date1.getAbsoluteMonth();
+	int column = ((date.getDay()-1)*24 + date.getHour())/_data_interval_mult;
+	// ... END OF EQUIVALENT CODE.
 	// TODO SAM 2012-05-03 Enable duration later.
-	getDataPosition ( date );
 	if ( _has_data_flags ) {
 	    if ( _internDataFlagStrings ) {
 	        tsdata.setValues ( date, getDataValue(date), _data_units, 
-                    _dataFlags[_row][_column].intern(), 0 ); //_has_durations ? _durations[_row][_column] : 0 );
+                    _dataFlags[row][column].intern(), 0 ); //_has_durations ? _durations[row][column] : 0 );
 	    }
 	    else {
 	        tsdata.setValues ( date, getDataValue(date), _data_units, 
-                    _dataFlags[_row][_column], 0 ); //_has_durations ? _durations[_row][_column] : 0 );
+                    _dataFlags[row][column], 0 ); //_has_durations ? _durations[row][column] : 0 );
 	    }
 	}
 	else {
 	    tsdata.setValues ( date, getDataValue(date), _data_units, "", 0 );
-               // _has_durations ? _durations[_row][_column] : 0 );
+               // _has_durations ? _durations[row][column] : 0 );
 	}
 
 	return tsdata;
@@ -1690,8 +1810,8 @@ Compute the data position corresponding to the date.
   		    \|/
   		   month 
 </pre>
-@return row and column positions in an int[].  Note that this array is reused
-and the contents of the array may change.  This information is typically only used internally.
+@return row and column positions in an int[].  A new array is returned for each call so that
+concurrent callers do not share state.  This information is typically only used internally.
 @param date Date of interest.
 */
 private int [] getDataPosition ( DateTime date )
@@ -1733,19 +1853,18 @@ private int [] getDataPosition ( DateTime date )
 		_date1 + "(" + _date1.getAbsoluteMonth() + ") for row-col calculation." );
 	}
 
-	_row = date.getAbsoluteMonth() - _date1.getAbsoluteMonth();
+	int [] pos = new int[2];
+	pos[0] = date.getAbsoluteMonth() - _date1.getAbsoluteMonth();
 
     // Calculate the column position of the data. We know that Hourly data
     // is stored in a 2 dimensional array with the column being the hourly data by interval.
 
-    _column = ((date.getDay()-1)*24 + date.getHour())/_data_interval_mult;
+    pos[1] = ((date.getDay()-1)*24 + date.getHour())/_data_interval_mult;
 	if ( Message.isDebugOn ) {
-		Message.printDebug ( 50, "HourTS.getDataPosition", "Row=" + _row + " Column=" + _column );
+		Message.printDebug ( 50, "HourTS.getDataPosition", "Row=" + pos[0] + " Column=" + pos[1] );
 	}
 
-	_pos[0] = _row;
-	_pos[1] = _column;
-	return _pos;
+	return pos;
 }
 
 /**
@@ -1777,16 +1896,42 @@ public double getDataValue( DateTime date )
 		return _missing;
 	}
 
-	// Calculate the data position.  This should be safe to call since checked dates above.
+	if ( _flatStorage ) {
+		return _dataFlat[getDataIndex(date)];
+	}
 
-	getDataPosition(date);
+	// Calculate the data position.  This should be safe to do since checked dates above.
+
+	// THIS CODE NEEDS TO BE EQUIVALENT IN getDataPosition...
+	int row = date.getAbsoluteMonth() - _date1.getAbsoluteMonth();
+	int column = ((date.getDay()-1)*24 + date.getHour())/_data_interval_mult;
+	// ... END OF EQUIVALENT CODE.
 
 	if ( Message.isDebugOn ) {
 		Message.printDebug( 50, "HourTS.getDataValue",
-		_data[_row][_column] + " for " + date + " from _data[" + _row + "][" + _column + "]" );
+		_data[row][column] + " for " + date + " from _data[" + row + "][" + column + "]" );
 	}
 
-	return _data[_row][_column];
+	return _data[row][column];
+}
+
+/**
+Copy consecutive data values into an array, starting at a position in the period.
+If flat storage is used, the values are copied as a block.
+@param startIndex position of the first value to copy (see getDataIndex()).
+@param values array to receive the data values - up to values.length values are copied.
+@return the number of values that were copied.
+*/
+public int getDataValues ( int startIndex, double [] values )
+{	if ( !_flatStorage || (_dataFlat == null) ) {
+		return super.getDataValues ( startIndex, values );
+	}
+	if ( (values == null) || (startIndex < 0) || (startIndex >= _dataFlat.length) ) {
+		return 0;
+	}
+	int count = Math.min ( values.length, _dataFlat.length - startIndex );
+	System.arraycopy ( _dataFlat, startIndex, values, 0, count );
+	return count;
 }
 
 /**
@@ -1843,7 +1988,7 @@ hasData() to check to see if the data space has been assigned.
 Note that true will be returned even if all the data values are set to the missing data value.
 */
 public boolean hasData ()
-{	if ( _data != null ) {
+{	if ( (_data != null) || (_dataFlat != null) ) {
 		return true;
 	}
 	else {
@@ -1860,11 +2005,6 @@ private void init()
 	_data_interval_mult = 1;
 	_data_interval_base_original = TimeInterval.HOUR;
 	_data_interval_mult_original = 1;
-	_pos = new int[2];
-	_pos[0] = 0;
-	_pos[1] = 0;
-	_row = 0;
-	_column = 0;
 }
 
 /**
@@ -1892,6 +2032,14 @@ public boolean isDataFlavorSupported(DataFlavor flavor) {
 	}
 }
 
+/**
+Indicate whether data values are stored in a single contiguous array (see setFlatStorage()).
+@return true if flat storage is used, false if data are stored by month.
+*/
+public boolean isFlatStorage ()
+{	return _flatStorage;
+}
+
 /**
 Refresh the derived data (e.g., data limits) if data have been set.  This is
 normally only called from other package routines.
@@ -1942,19 +2090,28 @@ public void setDataValue( DateTime date, double value )
 		return;
 	}
 
+	if ( _flatStorage ) {
+		_dirty = true;
+		_dataFlat[getDataIndex(date)] = value;
+		return;
+	}
+
 	// Get the data position.  This should be safe because we checked dates above...
 
-	getDataPosition ( date );
+	// THIS CODE NEEDS TO BE EQUIVALENT IN getDataPosition...
+	int row = date.getAbsoluteMonth() - _date1.getAbsoluteMonth();
+	int column = ((date.getDay()-1)*24 + date.getHour())/_data_interval_mult;
+	// ... END OF EQUIVALENT CODE.
 
 	if ( Message.isDebugOn ) {
-		Message.printDebug( 50, "HourTS.setDataValue", "Setting " + value + " for " + date + " at " + _row + "," + _column );
+		Message.printDebug( 50, "HourTS.setDataValue", "Setting " + value + " for " + date + " at " + row + "," + column );
 	}
 
 	// Set the dirty flag so that we know to recompute the limits if desired...
 
 	_dirty = true;
 
-	_data[_row][_column] = value;
+	_data[row][column] = value;
 }
 
 /**
@@ -1973,18 +2130,32 @@ public void setDataValue (	DateTime date, double value, String data_flag, int du
 		return;
 	}
 
-	getDataPosition ( date );
+	int i = 0, row = 0, column = 0;
+	if ( _flatStorage ) {
+		i = getDataIndex ( date );
+	}
+	else {
+		// THIS CODE NEEDS TO BE EQUIVALENT IN getDataPosition...
+		row = date.getAbsoluteMonth() - _date1.getAbsoluteMonth();
+		column = ((date.getDay()-1)*24 + date.getHour())/_data_interval_mult;
+		// ... END OF EQUIVALENT CODE.
+	}
 
 	if ( Message.isDebugOn ) {
 		Message.printDebug( 30, "HourTS.setDataValue",
-		"Setting " + value + " for " + date + " at " + _row + "," + _column );
+		"Setting " + value + " for " + date + " at " + row + "," + column );
 	}
 
 	// Set the dirty flag so that we know to recompute the limits if desired...
 
 	_dirty = true;
 
-	_data[_row][_column] = value;
+	if ( _flatStorage ) {
+		_dataFlat[i] = value;
+	}
+	else {
+		_data[row][column] = value;
+	}
     if ( (data_flag != null) && (data_flag.length() > 0) ) {
         if ( !_has_data_flags ) {
             // Trying to set a data flag but space has not been allocated, so allocate the flag space
@@ -2004,10 +2175,13 @@ public void setDataValue (	DateTime date, double value, String data_flag, int du
     }
 	if ( _has_data_flags && (data_flag != null) ) {
 	    if ( _internDataFlagStrings ) {
-	        _dataFlags[_row][_column] = data_flag.intern();
+	        data_flag = data_flag.intern();
+	    }
+	    if ( _flatStorage ) {
+	        _dataFlagsFlat[i] = data_flag;
 	    }
 	    else {
-	        _dataFlags[_row][_column] = data_flag;
+	        _dataFlags[row][column] = data_flag;
 	    }
 	}
 
@@ -2028,9 +2202,78 @@ public void setDataValue (	DateTime date, double value, String data_flag, int du
         }
     }
     if (_has_durations && Integer.valueOf(duration) != null) {
-        _durations[_row][_column] = duration;
+        _durations[row][column] = duration;
     }
     */
 }
 
+/**
+Set consecutive data values from an array, starting at a position in the period.
+If flat storage is used, the values are copied as a block.  Data flags are not changed.
+@param startIndex position of the first value to set (see getDataIndex()).
+@param values data values to set - up to values.length values are set.
+@return the number of values that were set.
+*/
+public int setDataValues ( int startIndex, double [] values )
+{	if ( !_flatStorage || (_dataFlat == null) ) {
+		return super.setDataValues ( startIndex, values );
+	}
+	if ( (values == null) || (startIndex < 0) || (startIndex >= _dataFlat.length) ) {
+		return 0;
+	}
+	int count = Math.min ( values.length, _dataFlat.length - startIndex );
+	System.arraycopy ( values, 0, _dataFlat, startIndex, count );
+	_dirty = true;
+	return count;
+}
+
+/**
+Set whether data values are stored in a single contiguous array rather than in arrays by month.
+With flat storage the position of a value is computed directly from the number of intervals since the
+start of the period (see getDataIndex()), sequential scans are cache-friendly, and getDataValues(),
+setDataValues(), clone() and changePeriodOfRecord() copy blocks of values.
+If the data space has already been allocated, the data values and flags are transferred to the new storage.
+@param flatStorage if true, store data values in a contiguous array; if false, store by month (the default).
+*/
+public void setFlatStorage ( boolean flatStorage )
+{	if ( flatStorage == _flatStorage ) {
+		return;
+	}
+	if ( !hasData() ) {
+		// Will be used when the data space is allocated...
+		_flatStorage = flatStorage;
+		return;
+	}
+	// Save the values and flags from the current storage...
+	int ndata = getDataIndex ( _date2 ) + 1;
+	double [] values = new double[ndata];
+	String [] flags = null;
+	if ( _has_data_flags ) {
+		flags = new String[ndata];
+	}
+	TSData tsdata = new TSData();
+	DateTime date = new DateTime ( _date1 );
+	for ( int i = 0; i < ndata; i++, date.addInterval(_data_interval_base,_data_interval_mult) ) {
+		getDataPoint ( date, tsdata );
+		values[i] = tsdata.getDataValue();
+		if ( flags != null ) {
+			flags[i] = tsdata.getDataFlag();
+		}
+	}
+	// Reallocate and transfer to the new storage...
+	boolean dirty = _dirty;
+	_flatStorage = flatStorage;
+	allocateDataSpace();
+	date = new DateTime ( _date1 );
+	for ( int i = 0; i < ndata; i++, date.addInterval(_data_interval_base,_data_interval_mult) ) {
+		if ( flags != null ) {
+			setDataValue ( date, values[i], flags[i], 0 );
+		}
+		else {
+			setDataValue ( date, values[i] );
+		}
+	}
+	_dirty = dirty;
+}
+
 }
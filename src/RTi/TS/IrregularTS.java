@@ -28,8 +28,13 @@ import java.awt.datatransfer.Transferable;
 import java.io.FileWriter;
 import java.io.PrintWriter;
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
 
 import RTi.Util.IO.DataUnits;
 import RTi.Util.IO.PropList;
@@ -44,7 +49,15 @@ a date must be stored with each recording and the precision of date/times are ta
 start date/time.  The time interval base is
 TimeInterval.IRREGULAR.  Use the IrregularTSIterator class to get data or
 retrieve the data array and process as a list.
+<p>
+By default each data point is stored as a TSData object in a list.  For large time series,
+setPackedStorage(true) can be called to store the data in packed arrays of date/time keys, values,
+dictionary-coded data flags, and durations, which uses a fraction of the memory.  TSData objects are then
+only created when requested.  Calling getData() on a time series that uses packed storage returns a
+fixed-size view of the packed arrays, which creates a TSData for each point that is requested, so code that
+processes large time series should use an iterator or getDataValue().
 @see #getData
+@see #setPackedStorage
 */
 @SuppressWarnings("serial")
 public class IrregularTS extends TS
@@ -65,12 +78,6 @@ Previous setData() call pointer.  This is used to optimize set calls.
 */
 private TSData __prevSetDataPointer = null;
 
-/**
-Previous removeDataPoint() call pointer (for next point).  This is used to optimize remove calls.
-The next point is needed because if the previous point was removed, it will not be itself be available.
-*/
-private TSData __prevRemoveDataPointerNext = null;
-
 /**
 Index used when traversing the data array.
 This is the element in _ts_data_head (0+) that was last accessed.  This is used internally between
@@ -78,6 +85,64 @@ method calls and should not be assumed to have state between data get calls.
 */
 private int __data_index;
 
+/**
+Sorted date/time keys that parallel __tsDataList, used to find data points by bisection rather than
+by searching the list.  Only the date/times are indexed - data values are always taken from the TSData
+objects so that code that modifies TSData values directly will not cause the index to be out of date.
+The index is rebuilt on the next lookup if its size does not match the data list,
+for example if code has added to the list returned by getData().
+*/
+private long [] __dateKeys = null;
+
+/**
+Number of keys in __dateKeys that are in use (the array may have extra capacity).
+*/
+private int __dateKeysSize = 0;
+
+/**
+Precision used when computing __dateKeys, taken from the first data point.  Fields with finer
+precision are ignored, consistent with DateTime.equals() for the data points.
+*/
+private int __dateKeysPrecision = DateTime.PRECISION_HSECOND;
+
+/**
+Indicates whether data are stored in packed arrays rather than the TSData list (see setPackedStorage()).
+When true, __dateKeys contains the date/times of the data and __tsDataList is null.
+*/
+private boolean __packedStorage = false;
+
+/**
+Data values when using packed storage, parallel to __dateKeys.
+*/
+private double [] __packedValues = null;
+
+/**
+Data flag codes when using packed storage, parallel to __dateKeys.  Each code is a position in
+__packedFlagList.  The array is only allocated when the first non-empty flag is set.
+*/
+private int [] __packedFlagCodes = null;
+
+/**
+Distinct data flags when using packed storage.  Code 0 is always the empty string.
+*/
+private List<String> __packedFlagList = null;
+
+/**
+Map of data flag to position in __packedFlagList, used to look up the code for a flag.
+*/
+private Map<String,Integer> __packedFlagMap = null;
+
+/**
+Durations when using packed storage, parallel to __dateKeys.  The array is only allocated when the
+first non-zero duration is set.
+*/
+private int [] __packedDurations = null;
+
+/**
+Time zone for data date/times when using packed storage, taken from the first data point.
+*/
+private String __packedTimeZone = "";
+
 /**
 Default constructor.  The data array is initialized to null.
 */
@@ -94,6 +159,13 @@ public IrregularTS ( IrregularTS ts )
 		return;
 	}
 	copyHeader ( ts );
+	if ( ts.__packedStorage ) {
+		// Copy the packed arrays rather than creating a TSData for each point
+		copyPackedData ( ts, this );
+		__data_index = ts.__data_index;
+		addToGenesis ( "Copied from \"" + ts.getIdentifierString() + "\"" );
+		return;
+	}
 	// Get the data and loop through the list...
 	List<TSData> all_tsdata = ts.getData();
 	if ( all_tsdata == null ) {
@@ -164,33 +236,26 @@ Calculate the number of data points between two dates.
 @param end_date Last date of interest.
 */
 public int calculateDataSize (	DateTime start_date, DateTime end_date )
-{	int	datasize = 0;
-
-	if ( __tsDataList == null ) {
+{	if ( !hasData() ) {
 		return 0;
 	}
 
-	// Loop through the data and count the intervals in the given period...
-
-	DateTime date = new DateTime (DateTime.DATE_STRICT);
-	TSData ptr = null;
-	int	size = __tsDataList.size();
-	for ( int i = 0; i < size; i++ ) {
-		ptr = __tsDataList.get(i);
-		date = ptr.getDate();
+	// Find the first and last data points in the period using the date/time index...
 
-		if ( date.lessThan(start_date) ) {
-			// Still looking for data...
-			continue;
-		}
-		else if ( date.greaterThan(end_date) ) {
-			// No need to continue processing...
-			break;
-		}
-		// Add to the counter...
-		++datasize;
+	int i1 = findDataIndex ( start_date );
+	if ( i1 < 0 ) {
+		// First point after the start
+		i1 = -(i1 + 1);
 	}
-	return datasize;
+	int i2 = findDataIndex ( end_date );
+	if ( i2 < 0 ) {
+		// Last point before the end
+		i2 = -(i2 + 1) - 1;
+	}
+	if ( i2 < i1 ) {
+		return 0;
+	}
+	return i2 - i1 + 1;
 }
 
 /**
@@ -202,6 +267,33 @@ throws TSException {
 	
 }
 
+/**
+Check the date/time key index and rebuild it if it is not consistent with the data list.
+*/
+private void checkDateKeys ()
+{	if ( __packedStorage ) {
+		// Keys are the data date/times and are always current
+		return;
+	}
+	if ( (__tsDataList == null) || (__tsDataList.size() == 0) ) {
+		__dateKeys = null;
+		__dateKeysSize = 0;
+		return;
+	}
+	int size = __tsDataList.size();
+	if ( (__dateKeys != null) && (__dateKeysSize == size) ) {
+		// Index is current
+		return;
+	}
+	// Rebuild the index, leaving some room for points that will be added
+	__dateKeysPrecision = __tsDataList.get(0).getDate().getPrecision();
+	__dateKeys = new long[size + size/4 + 16];
+	for ( int i = 0; i < size; i++ ) {
+		__dateKeys[i] = getDateKey(__tsDataList.get(i).getDate());
+	}
+	__dateKeysSize = size;
+}
+
 /**
 Clone the object.  The TS base class clone() method is called and then the
 the data array is cloned.  The result is a complete deep copy.
@@ -210,6 +302,15 @@ public Object clone() {
 	IrregularTS ts = (IrregularTS)super.clone();	// Clone base class data
 
 	ts.copyHeader ( this );
+	if ( __packedStorage ) {
+		// Copy the packed arrays so that the clone does not share them
+		ts.__tsDataList = null;
+		ts.__prevSetDataPointer = null;
+		ts.__data_index = -1;
+		copyPackedData ( this, ts );
+		addToGenesis ( "Cloned from \"" + ts.getIdentifierString() + "\"" );
+		return ts;
+	}
 	// Get the data and loop through the list...
 	List<TSData> all_tsdata = getData();
 	if ( all_tsdata == null ) {
@@ -223,9 +324,10 @@ public Object clone() {
 	ts.__tsDataList = null; // Will trigger initialization on first setDataValue call
 	ts.setDataSize ( 0 );
 	ts.__prevSetDataPointer = null;
-	ts.__prevRemoveDataPointerNext = null;
 	ts.__data_index = -1;
-	
+	ts.__dateKeys = null; // Otherwise the clone would share the index array
+	ts.__dateKeysSize = 0;
+
 	for ( int i = 0; i < nalltsdata; i++ ) {
 		tsdata = all_tsdata.get(i);
 		if ( tsdata != null ) {
@@ -239,6 +341,26 @@ public Object clone() {
 	return ts;
 }
 
+/**
+Copy the packed data arrays from one time series to another.
+@param from time series that uses packed storage, to copy from
+@param to time series to receive the copy
+*/
+private static void copyPackedData ( IrregularTS from, IrregularTS to )
+{	int size = from.__dateKeysSize;
+	to.__packedStorage = true;
+	to.__dateKeysPrecision = from.__dateKeysPrecision;
+	to.__packedTimeZone = from.__packedTimeZone;
+	to.__dateKeysSize = size;
+	to.__dateKeys = (from.__dateKeys == null) ? null : Arrays.copyOf ( from.__dateKeys, from.__dateKeys.length );
+	to.__packedValues = (from.__packedValues == null) ? null : Arrays.copyOf ( from.__packedValues, from.__packedValues.length );
+	to.__packedFlagCodes = (from.__packedFlagCodes == null) ? null : Arrays.copyOf ( from.__packedFlagCodes, from.__packedFlagCodes.length );
+	to.__packedDurations = (from.__packedDurations == null) ? null : Arrays.copyOf ( from.__packedDurations, from.__packedDurations.length );
+	to.__packedFlagList = (from.__packedFlagList == null) ? null : new ArrayList<String>(from.__packedFlagList);
+	to.__packedFlagMap = (from.__packedFlagMap == null) ? null : new HashMap<String,Integer>(from.__packedFlagMap);
+	to.setDataSize ( size );
+}
+
 /**
 Insert missing data points where a gap between known points is more than the
 specified interval.  This is used to more accurately represent the irregular
@@ -332,6 +454,29 @@ throws Throwable
 	super.finalize();
 }
 
+/**
+Find the position of a date/time in the data list using the date/time key index.
+The point after the previously accessed point is checked first because data are
+often accessed sequentially, and then a bisection search is used.
+@param date date/time of interest
+@return the index in the data list (0+) if the date/time is found, or (-(insertion point) - 1)
+if not found, consistent with java.util.Arrays.binarySearch(), where the insertion point is
+the index of the first data point with a greater date/time.
+This is used by IrregularTSIterator to position the iterator.
+*/
+int findDataIndex ( DateTime date )
+{	checkDateKeys();
+	if ( __dateKeysSize == 0 ) {
+		return -1;
+	}
+	long key = getDateKey ( date );
+	int next = __data_index + 1;
+	if ( (next > 0) && (next < __dateKeysSize) && (__dateKeys[next] == key) ) {
+		return next;
+	}
+	return Arrays.binarySearch ( __dateKeys, 0, __dateKeysSize, key );
+}
+
 /**
  * Find nearest data point to the given DateTime.
  * It is assumed that the precision of the DateTime is consistent with the precision
@@ -345,32 +490,28 @@ throws Throwable
  * or null if not found (goes beyond end of data)
  */
 public TSData findNearestNext ( DateTime dt, DateTime searchStart, DateTime searchEnd, boolean returnMatch ) {
-	TSData tsdataNext = null;
-	TSData tsdataLeft, tsdataRight;
-	// Currently search the entire time series and use bisection
+	if ( !hasData() ) {
+		return null;
+	}
 	if ( searchStart != null ) {
 		// Verify that it exists in the data
-		tsdataLeft = this.getDataPoint(searchStart, null);
-		if ( tsdataLeft == null ) {
+		if ( findDataIndex(searchStart) < 0 ) {
 			return null;
 		}
 	}
 	else {
 		// Search from the start
-		searchStart = new DateTime(getDate1());
-		tsdataLeft = this.getDataPoint(searchStart, null);
+		searchStart = getDate1();
 	}
 	if ( searchEnd != null ) {
 		// Verify that it exists in the data
-		tsdataRight = this.getDataPoint(searchEnd, null);
-		if ( tsdataRight == null ) {
+		if ( findDataIndex(searchEnd) < 0 ) {
 			return null;
 		}
 	}
 	else {
-		// Search from the start
-		searchEnd = new DateTime(getDate2());
-		tsdataRight = this.getDataPoint(searchEnd, null);
+		// Search to the end
+		searchEnd = getDate2();
 	}
 	// See if the request is outside of the bounds of the search
 	if ( dt.lessThan(searchStart) ) {
@@ -379,34 +520,60 @@ public TSData findNearestNext ( DateTime dt, DateTime searchStart, DateTime sear
 	if ( dt.greaterThan(searchEnd) ) {
 		return null;
 	}
-	int iLeft = 0, iRight = this.__tsDataList.size() - 1, iMiddle;
-	TSData tsdataMiddle;
-	DateTime dtMiddle;
-	while ( true ) {
-		// Have left and right so bisect in the middle and evaluate
-		iMiddle = (iLeft + iRight)/2;
-		tsdataMiddle = this.__tsDataList.get(iMiddle);
-		dtMiddle = tsdataMiddle.getDate();
-		// TODO sam 2017-03-05 could make the following more efficient
-		if ( dt.equals(dtMiddle) && returnMatch ) {
-			// Found an exact match for the requested DateTime
-			tsdataNext = new TSData(tsdataMiddle);
-			break;
+	int i = findDataIndex ( dt );
+	if ( i >= 0 ) {
+		if ( !returnMatch ) {
+			// Exact match but want the next point
+			++i;
 		}
-		if ( dt.greaterThan(dtMiddle) ) {
-			// Reset the left
-			iLeft = iMiddle;
-		}
-		else {
-			iRight = iMiddle;
-		}
-		if ( (iRight - iLeft) == 1 ) {
-			// Converged, value on right should be returned
-			tsdataNext = new TSData(__tsDataList.get(iRight));
-			break;
+	}
+	else {
+		// No exact match so use the insertion point, which is the next point
+		i = -(i + 1);
+	}
+	if ( i >= __dateKeysSize ) {
+		// Past the end of the data
+		return null;
+	}
+	if ( __packedStorage ) {
+		return getDataPointAt ( i, null );
+	}
+	return new TSData(__tsDataList.get(i));
+}
+
+/**
+ * Find nearest data point prior to the given DateTime.
+ * It is assumed that the precision of the DateTime is consistent with the precision
+ * of DateTime in the time series.
+ * @param dt DateTime that is is of interest to match
+ * @param returnMatch if true and the requested DateTime matches an existing value, return the data for that point
+ * (false will return the previous point).
+ * @return a TSData objects containing the nearest previous data point to the requested,
+ * or null if not found (goes beyond start of data)
+ */
+public TSData findNearestPrevious ( DateTime dt, boolean returnMatch ) {
+	if ( !hasData() ) {
+		return null;
+	}
+	int i = findDataIndex ( dt );
+	if ( i >= 0 ) {
+		if ( !returnMatch ) {
+			// Exact match but want the previous point
+			--i;
 		}
 	}
-	return tsdataNext;
+	else {
+		// No exact match so the point before the insertion point is the previous point
+		i = -(i + 1) - 1;
+	}
+	if ( i < 0 ) {
+		// Before the start of the data
+		return null;
+	}
+	if ( __packedStorage ) {
+		return getDataPointAt ( i, null );
+	}
+	return new TSData(__tsDataList.get(i));
 }
 
 /**
@@ -727,7 +894,7 @@ throws TSException
 
 		strings.add ( "" );
 		
-		if ( __tsDataList == null ) {
+		if ( !hasData() ) {
 			// No data for the time series...
 			strings.add ( "No data available." );
 			return strings;
@@ -738,11 +905,11 @@ throws TSException
 
 		// Now loop through the time series and transfer to the proper location in the matrix...
 		double data_value;
-		int nalltsdata = __tsDataList.size();
-		TSData tsdata = null;
+		int nalltsdata = __dateKeysSize;
+		TSData tsdata = null, tsdataPacked = new TSData();
 		DateTime date = null;
 		for ( int i = 0; i < nalltsdata; i++ ) {
-			tsdata = __tsDataList.get(i);
+			tsdata = getDataPointAt(i, tsdataPacked);
 			date = tsdata.getDate();
 			if ( date.greaterThan(end_date) ) {
 				// Past the end of where we want to go so quit...
@@ -864,10 +1031,49 @@ throws TSException
 
 /**
 Return the data array list.
-@return The reference to the data array.  Use caution when manipulating.
+If the time series uses packed storage (see setPackedStorage()), a view of the packed data is returned rather
+than converting the time series to list storage.  The size of the view cannot be changed.  Each call to get()
+on the view creates a new TSData, for which changing the data value, flag, or duration also changes the
+time series.  The view and its TSData are only valid until data points are added or removed.
+@return The reference to the data array, or null if no data.  Use caution when manipulating.
 */
 public List<TSData> getData()
-{	return __tsDataList;
+{	if ( __packedStorage ) {
+		if ( __dateKeysSize == 0 ) {
+			return null;
+		}
+		return new PackedDataList();
+	}
+	return __tsDataList;
+}
+
+/**
+Return the data point at a position in the data, for sequential access without a date/time search.
+@param i position in the data (0+).
+@param data_point If the time series uses packed storage, a TSData to fill and return, to avoid
+allocating a new TSData for each point.  If null, a new TSData is allocated.  If the time series
+uses list storage, the TSData in the list is returned and this parameter is ignored.
+@return the data point at the position, or null if the position is out of range.
+*/
+TSData getDataPointAt ( int i, TSData data_point )
+{	if ( !__packedStorage ) {
+		if ( (__tsDataList == null) || (i < 0) || (i >= __tsDataList.size()) ) {
+			return null;
+		}
+		return __tsDataList.get(i);
+	}
+	if ( (i < 0) || (i >= __dateKeysSize) ) {
+		return null;
+	}
+	if ( data_point == null ) {
+		data_point = new TSData();
+	}
+	data_point.setDate ( getDateFromKey(__dateKeys[i]) );
+	data_point.setDataValue ( __packedValues[i] );
+	data_point.setUnits ( _data_units );
+	data_point.setDataFlag ( (__packedFlagCodes == null) ? "" : __packedFlagList.get(__packedFlagCodes[i]) );
+	data_point.setDuration ( (__packedDurations == null) ? 0 : __packedDurations[i] );
+	return data_point;
 }
 
 /**
@@ -876,10 +1082,7 @@ Return a data point for a date.
 @param date Date of interest.
 */
 public TSData getDataPoint ( DateTime date, TSData data_point )
-{	int	i = 0;
-	TSData ptr = null;
-
-	if ( data_point == null ) {
+{	if ( data_point == null ) {
 	    data_point = new TSData();
 	}
 	data_point.setDate ( date );
@@ -889,7 +1092,7 @@ public TSData getDataPoint ( DateTime date, TSData data_point )
 
 	//Check the date coming in 
 
-	if ( __tsDataList == null ) {
+	if ( !hasData() ) {
 		// No data!
 		// Leave __data_index as is.
 		data_point.setDataValue( _missing );
@@ -900,78 +1103,39 @@ public TSData getDataPoint ( DateTime date, TSData data_point )
 		if ( Message.isDebugOn ) {
 			Message.printDebug ( 30, "IrregularTS.getDataPoint",
 			date + " not within POR (" + _date1 + " - " + _date2 + ")" );
-			// Leave __data_index as is.
-			data_point.setDataValue( _missing );
-			return data_point;
 		}
+		// Leave __data_index as is.
+		data_point.setDataValue( _missing );
+		return data_point;
 	}
 
-	// First check to see if the requested date is the next in line from
-	// the previous access.  Do so by getting the data point from using
-	// __data_index and then check its date to see if it matches the
-	// requested date.  At this point, if they do not match, just go to the
-	// next search techniques.  It is likely that the first call will not
-	// use the following method because a starting value needs to be found.
-
-	TSData next_data = getNextElement ();
-	if ( next_data != null ) {
-		// Do this code.  Otherwise, cascade to the next search techniques...
-		DateTime next_date = next_data.getDate();
-		if ( next_date.equals(date) ) {
-			// We have a match!  Increment the date index so that
-			// we can use it next time and return the matching TSData...
-			++__data_index;
-			return next_data;
-		}
+	// Find the point using the date/time index, which first checks whether the requested
+	// date is the next in line from the previous access and then uses bisection.
+
+	int found_index = findDataIndex ( date );
+	if ( found_index < 0 ) {
+		// Leave __data_index as is.
+		data_point.setDataValue ( _missing );
+		return data_point;
 	}
 
-	//
-	// Determine if the date is closer to the tail of the list, or the head.
-	//
-	double date_double = date.toDouble();
-	double date1_double = _date1.toDouble();
-	double date2_double = _date2.toDouble();
+	// Set the data index to the found point and then return the data value...
 
-	int size = __tsDataList.size();
-	int found_index = -1;
-	if ( Math.abs( date_double - date1_double ) < Math.abs( date_double - date2_double ) ){
-		for ( i=0; i < size; i++ ) {
-			ptr = __tsDataList.get(i); 
-			if( ptr.getDate().equals( date ) ){
-				found_index = i;
-				break;
-			}
+	__data_index = found_index;
+	if ( __packedStorage ) {
+		data_point.setDataValue ( __packedValues[found_index] );
+		if ( __packedFlagCodes != null ) {
+			data_point.setDataFlag ( __packedFlagList.get(__packedFlagCodes[found_index]) );
 		}
-	}
-	else {
-	    for ( i=(size-1); i >= 0; i-- ) {
-			ptr = __tsDataList.get(i); 
-			if( ptr.getDate().equals( date ) ) {
-				found_index = i;
-				break;
-			}
+		if ( __packedDurations != null ) {
+			data_point.setDuration ( __packedDurations[found_index] );
 		}
-	}
-
-	if( ptr == null ){
-		Message.printWarning( 2, "IrregularTS.getDataPoint", "Cannot find data value in inernal time series." );
-		// Leave __data_index as is.
-		data_point.setDataValue( _missing );
 		return data_point;
 	}
+	TSData ptr = __tsDataList.get(found_index);
 	if ( Message.isDebugOn ) {
 		Message.printDebug( 30, "IrregularTS.getDataPoint",
-		ptr.getDataValue() + " for " + date + " from _data[" + i + "]." );
-	}
-
-	// Set the data index to the found point and then return the data value...
-
-	if ( found_index >= 0 ) {
-		__data_index = found_index;
-	}
-	else {
-	    data_point.setDataValue ( _missing );
-		return data_point;
+		ptr.getDataValue() + " for " + date + " from _data[" + found_index + "]." );
 	}
 
 	// Return the data point...
@@ -988,23 +1152,19 @@ Return the data value for a date.
 This routine uses some intelligence to try to find the data value as quickly as
 possible.  This routine is most often called after the time series as been
 filled by setDataValue() calls, and it is usually called in a loop where data
-are accessed one after the other in a sequence.  Therefore, the fastest
-retrieval is usually attained by incrementing one point from the previously
-accessed point.  This method is checked first and then checks to search from
-the front or back are made.  At this time a bisection algorithm is not employed
-but might need to be in the future to increase performance.
+are accessed one after the other in a sequence.  Therefore, the point after the
+previously accessed point is checked first.  If that does not match, a bisection
+search of the date/time index is used, so random access is O(log n).
 @return The data value in the data array given a date, or the missing data
 value if the date cannot be found in the data.
 @param date Date of interest.
 */
 public double getDataValue( DateTime date )
 {	// Do not define routine here to increase performance.
-	int	dl = 30, found_index = -1, i = 0;
-	TSData ptr=null;
 
 	//Check the date coming in 
 
-	if ( __tsDataList == null ) {
+	if ( !hasData() ) {
 		// No data!  Leave __data_index as is.
 		return _missing;
 	}
@@ -1017,73 +1177,21 @@ public double getDataValue( DateTime date )
 		return _missing;
 	}
 
-	// First check to see if the requested date is the next in line from
-	// the previous access.  Do so by getting the data point from using
-	// __data_index and then check its date to see if it matches the
-	// requested date.  At this point, if they do not match, just go to the
-	// next search techniques.  It is likely that the first call will not
-	// use the following method because a starting value needs to be found.
-
-	TSData next_data = getNextElement ();
-	if ( next_data != null ) {
-		// Do this code.  Otherwise, cascade to the next search techniques...
-		DateTime next_date = next_data.getDate();
-		if ( next_date.equals(date) ) {
-			// We have a match!  Increment the date index so that
-			// we can use it next time and return the matching TSData...
-			++__data_index;
-			return next_data.getDataValue();
-		}
-	}
-
-	//
-	// Determine if the date is closer to the tail of the list, or the head.
-	//
-	double date_double = date.toDouble();
-	double date1_double = _date1.toDouble();
-	double date2_double = _date2.toDouble();
-
-	int size = __tsDataList.size();
-	if ( Math.abs( date_double - date1_double ) < Math.abs( date_double - date2_double ) ){
-	    // Closer to the front of the list
-		for ( i=0; i < size; i++ ) {
-			ptr = __tsDataList.get(i);
-			if( ptr.getDate().equals( date ) ){
-				found_index = i;
-				break;
-			}
-		}
-	}
-	else {
-	    // Closer to the end of the list
-	    for ( i=(size-1); i >= 0; i-- ){
-			ptr = __tsDataList.get(i); 
-			if( ptr.getDate().equals( date ) ){
-				found_index = i;
-				break;
-			}
-		}
-	}
-
-	if( ptr == null ){
-		Message.printWarning( 2, "IrregularTS.getDataValue", "Unable to find data value in time series." );
-		// Leave __data_index as is.
-		return _missing;
-	}
-	if ( Message.isDebugOn ) {
-		Message.printDebug( dl, "IrregularTS.getDataValue",
-		ptr.getDataValue() + " for " + date + " from _data[" + i + "]." );
-	}
-
+	int found_index = findDataIndex ( date );
 	if ( found_index < 0 ) {
 		// Did not find the data...
-		Message.printDebug ( dl, "IrregularTS.getDataValue", "Can't find data matching date " + date );
+		if ( Message.isDebugOn ) {
+			Message.printDebug ( 30, "IrregularTS.getDataValue", "Can't find data matching date " + date );
+		}
 		return _missing;
 	}
 
 	// Set the data index to the found point and then return the data value...
 	__data_index = found_index;
-	return ptr.getDataValue();
+	if ( __packedStorage ) {
+		return __packedValues[found_index];
+	}
+	return __tsDataList.get(found_index).getDataValue();
 }
 
 /**
@@ -1092,7 +1200,13 @@ if data are available, or the base class method, if data are not available
 (e.g., in cases when the time series header is defined without data).
 */
 public DateTime getDate1()
-{	if ( (__tsDataList == null) || (__tsDataList.size() == 0) ) {
+{	if ( __packedStorage ) {
+		if ( __dateKeysSize == 0 ) {
+			return super.getDate1();
+		}
+		return getDateFromKey ( __dateKeys[0] );
+	}
+	if ( (__tsDataList == null) || (__tsDataList.size() == 0) ) {
 		return super.getDate1();
 	}
 	else {
@@ -1106,7 +1220,13 @@ if data are available, or the base class method, if data are not available
 (e.g., in cases when the time series header is defined without data).
 */
 public DateTime getDate2()
-{	if ( (__tsDataList == null) || (__tsDataList.size() == 0) ) {
+{	if ( __packedStorage ) {
+		if ( __dateKeysSize == 0 ) {
+			return super.getDate2();
+		}
+		return getDateFromKey ( __dateKeys[__dateKeysSize - 1] );
+	}
+	if ( (__tsDataList == null) || (__tsDataList.size() == 0) ) {
 		return super.getDate2();
 	}
 	else {
@@ -1114,6 +1234,68 @@ public DateTime getDate2()
 	}
 }
 
+/**
+Return the date/time for a key in the date/time index, the reverse of getDateKey().
+The precision and time zone are those of the packed data.
+@param key date/time key
+@return a new DateTime for the key
+*/
+private DateTime getDateFromKey ( long key )
+{	int precision = __dateKeysPrecision;
+	int hsecond = (int)(key%100);
+	key /= 100;
+	int second = (int)(key%60);
+	key /= 60;
+	int minute = (int)(key%60);
+	key /= 60;
+	int hour = (int)(key%24);
+	key /= 24;
+	int day = (int)(key%32);
+	key /= 32;
+	int month = (int)(key%13);
+	key /= 13;
+	DateTime date = new DateTime ( precision );
+	date.setYear ( (int)key );
+	if ( precision <= DateTime.PRECISION_MONTH ) {
+		date.setMonth ( month );
+	}
+	if ( precision <= DateTime.PRECISION_DAY ) {
+		date.setDay ( day );
+	}
+	if ( precision <= DateTime.PRECISION_HOUR ) {
+		date.setHour ( hour );
+	}
+	if ( precision <= DateTime.PRECISION_MINUTE ) {
+		date.setMinute ( minute );
+	}
+	if ( precision <= DateTime.PRECISION_SECOND ) {
+		date.setSecond ( second );
+	}
+	if ( precision <= DateTime.PRECISION_HSECOND ) {
+		date.setHSecond ( hsecond );
+	}
+	date.setTimeZone ( __packedTimeZone );
+	return date;
+}
+
+/**
+Return the key used in the date/time index for a date/time.  The key increases with the date/time
+and fields that are finer than the index precision are ignored.  Time zone is not considered.
+@param date date/time to convert
+@return the index key for the date/time
+*/
+private long getDateKey ( DateTime date )
+{	int precision = __dateKeysPrecision;
+	long key = date.getYear();
+	key = key*13 + ((precision <= DateTime.PRECISION_MONTH) ? date.getMonth() : 0);
+	key = key*32 + ((precision <= DateTime.PRECISION_DAY) ? date.getDay() : 0);
+	key = key*24 + ((precision <= DateTime.PRECISION_HOUR) ? date.getHour() : 0);
+	key = key*60 + ((precision <= DateTime.PRECISION_MINUTE) ? date.getMinute() : 0);
+	key = key*60 + ((precision <= DateTime.PRECISION_SECOND) ? date.getSecond() : 0);
+	key = key*100 + ((precision <= DateTime.PRECISION_HSECOND) ? date.getHSecond() : 0);
+	return key;
+}
+
 /**
 Get the next element in the data list.
 This method can be used to return the element after the previously accessed
@@ -1125,11 +1307,14 @@ public TSData getNextElement()
 {	// Do not define routine here to increase performance.
 	TSData tsdata=null;
 
-	if ( __tsDataList == null ) {
+	if ( !hasData() ) {
 		return null;
 	}
 
-	int	size = __tsDataList.size();
+	int	size = __dateKeysSize;
+	if ( !__packedStorage ) {
+		size = __tsDataList.size();
+	}
 
 	// We are going to get the element after "__data_index" so do the
 	// appropriate checks.  First make sure that we will not exceed the
@@ -1145,11 +1330,37 @@ public TSData getNextElement()
 
 	// Now return the next data value as a copy...
 
+	if ( __packedStorage ) {
+		return getDataPointAt ( __data_index + 1, null );
+	}
 	tsdata = __tsDataList.get( __data_index + 1 );
 
 	return (TSData)tsdata.clone();
 }
 
+/**
+Return the code for a data flag when using packed storage, adding the flag to the dictionary if necessary.
+@param flag data flag (null is treated as an empty string).
+@return the position of the flag in __packedFlagList
+*/
+private int getPackedFlagCode ( String flag )
+{	if ( (flag == null) || (flag.length() == 0) ) {
+		return 0;
+	}
+	if ( __packedFlagList == null ) {
+		__packedFlagList = new ArrayList<String>();
+		__packedFlagList.add ( "" );
+		__packedFlagMap = new HashMap<String,Integer>();
+	}
+	Integer code = __packedFlagMap.get(flag);
+	if ( code == null ) {
+		code = Integer.valueOf(__packedFlagList.size());
+		__packedFlagList.add ( flag );
+		__packedFlagMap.put ( flag, code );
+	}
+	return code.intValue();
+}
+
 /**
 Returns the data in the specified DataFlavor, or null if no matching flavor
 exists.  From the Transferable interface.  Supported dataflavors are:<br>
@@ -1205,7 +1416,10 @@ hasData() to check to see if the data space has been assigned.
 Note that true will be returned even if all the data values are set to the missing data value.
 */
 public boolean hasData ()
-{	if ( (__tsDataList != null) && (__tsDataList.size() > 0) ) {
+{	if ( __packedStorage ) {
+		return __dateKeysSize > 0;
+	}
+	if ( (__tsDataList != null) && (__tsDataList.size() > 0) ) {
 		return true;
 	}
 	else {
@@ -1240,6 +1454,26 @@ private void init(  )
 	_data_interval_mult_original = 1;
 	__tsDataList = null;
 	__data_index = -1;
+	__packedStorage = false;
+}
+
+/**
+Insert a key into the date/time index, consistent with a point being inserted into the data list.
+The index must have been current before the point was inserted.
+@param index position of the inserted data point.
+@param key date/time key for the inserted data point.
+*/
+private void insertDateKey ( int index, long key )
+{	if ( __dateKeys == null ) {
+		// Index will be rebuilt on the next lookup
+		return;
+	}
+	if ( __dateKeysSize == __dateKeys.length ) {
+		__dateKeys = Arrays.copyOf ( __dateKeys, __dateKeysSize*2 + 16 );
+	}
+	System.arraycopy ( __dateKeys, index, __dateKeys, index + 1, __dateKeysSize - index );
+	__dateKeys[index] = key;
+	++__dateKeysSize;
 }
 
 /**
@@ -1267,6 +1501,15 @@ public boolean isDataFlavorSupported(DataFlavor flavor) {
 	}
 }
 
+/**
+Indicate whether the time series uses packed storage.
+@return true if data are stored in packed arrays, false if stored as a list of TSData.
+@see #setPackedStorage
+*/
+public boolean isPackedStorage ()
+{	return __packedStorage;
+}
+
 /**
 Return an iterator for the time series using the full period for the time series.
 @return an iterator for the time series.
@@ -1334,47 +1577,44 @@ public boolean removeDataPoint ( DateTime date )
         // No action
         return false;
     }
+    if ( __packedStorage ) {
+        int foundIndex = findDataIndex ( date );
+        if ( foundIndex < 0 ) {
+            return false;
+        }
+        int n = __dateKeysSize - foundIndex - 1;
+        System.arraycopy ( __packedValues, foundIndex + 1, __packedValues, foundIndex, n );
+        if ( __packedFlagCodes != null ) {
+            System.arraycopy ( __packedFlagCodes, foundIndex + 1, __packedFlagCodes, foundIndex, n );
+        }
+        if ( __packedDurations != null ) {
+            System.arraycopy ( __packedDurations, foundIndex + 1, __packedDurations, foundIndex, n );
+        }
+        removeDateKey ( foundIndex );
+        _dirty = true;
+        setDataSize ( getDataSize() - 1 );
+        return true;
+    }
     else if ( size == 1 ) {
         // Remove the head
         __tsDataList = null;
+        __dateKeys = null;
+        __dateKeysSize = 0;
         __prevSetDataPointer = null;
         setDataSize(0);
         _dirty  = true;
         return true;
     }
-    // If here, need to search through the list and find the point
+    // If here, need to search through the list and find the point, using the date/time index
     boolean pointFound = false;
-    // First check the previous set call and determine if the point is next on the list
-    // This is quite common and so this code greatly improves performance
     TSData ptr = null;
-    if ( __prevRemoveDataPointerNext != null ) {
-        ptr = __prevRemoveDataPointerNext;
-        if ( ptr != null ) {
-            if ( ptr.getDate().equals(date) ) {
-                // Have found the point
-                pointFound = true;
-            }
-        }
-    }
-    if ( !pointFound ) {
-        // Do a more exhaustive loop.
-        // FIXME SAM 2010-08-17 Need to optimize search for the date, relinking list, etc.
-        for ( TSData ptr2 : __tsDataList ) {
-        
-            //if ( Message.isDebugOn ) {
-            //  Message.printDebug( 50, "IrregularTS.setDataValue", "Comparing " + dateLocal + " to " + ptr.getDate() );
-            //}
-            
-            if( ptr2.getDate().equals( date ) ) {
-                // Found match.
-                ptr = ptr2;
-                pointFound = true;
-            }
-        }
+    int foundIndex = findDataIndex ( date );
+    if ( foundIndex >= 0 ) {
+        ptr = __tsDataList.get(foundIndex);
+        pointFound = true;
     }
     if ( pointFound ) {
         // Do the removal - reroute pointers and then remove point from the list
-        __prevRemoveDataPointerNext = ptr.getNext(); // Save for next call
         // There may be cases at the start or end of the time series where nulls could be encountered
         // so be careful about the reset
         TSData ptrPrev = ptr.getPrevious();
@@ -1385,7 +1625,8 @@ public boolean removeDataPoint ( DateTime date )
         if ( ptrNext != null ) {
             ptrNext.setPrevious(ptrPrev);
         }
-        __tsDataList.remove(ptr);
+        __tsDataList.remove(foundIndex);
+        removeDateKey(foundIndex);
         // Mark dirty so that we recompute the data limits...
         _dirty  = true;
         // Decrement the data size...
@@ -1395,6 +1636,18 @@ public boolean removeDataPoint ( DateTime date )
     return false;
 }
 
+/**
+Remove a key from the date/time index, consistent with a point being removed from the data list.
+@param index position of the removed data point.
+*/
+private void removeDateKey ( int index )
+{	if ( (__dateKeys == null) || (index >= __dateKeysSize) ) {
+		return;
+	}
+	System.arraycopy ( __dateKeys, index + 1, __dateKeys, index, __dateKeysSize - index - 1 );
+	--__dateKeysSize;
+}
+
 /**
 Set the data value for the given date.  If the date has not already been set
 with a value, add a data point in the proper order.  This calls the overloaded
@@ -1419,8 +1672,13 @@ If not, utilize a bisection approach to find the point to set.
 public void setDataValue ( DateTime date, double value, String data_flag, int duration )
 {	// Do not define routine here to increase performance.
 	boolean	found;
-	int	i;
 	TSData ptr=null, tsdata=null;
+
+	if ( __packedStorage ) {
+		setPackedDataValue ( date, value, data_flag, duration );
+		return;
+	}
+
 	DateTime dateLocal = new DateTime(date);
 
 	if ( __tsDataList == null ) {
@@ -1467,119 +1725,25 @@ public void setDataValue ( DateTime date, double value, String data_flag, int du
 	    }
 	} // the previous pointer is set below for other cases
 
-    // Determine if the date is closer to the tail of the list, or the head, using a simple bisection approach.
-	// It is possible (likely?) that the first and last dates have been set but the check needs to use the first and
-	// last dates in the data
-
-    double date_double = dateLocal.toDouble();
-    double date1_double = 0.0;
-    double date2_double = 0.0;
-    if ( (__tsDataList != null) && (__tsDataList.size() > 0) ) {
-        date1_double = __tsDataList.get(0).getDate().toDouble();
-        date2_double = __tsDataList.get(__tsDataList.size() - 1).getDate().toDouble();
-    }
-    //Message.printStatus(2, "", "date_double=" + date_double + ", date1Double=" + date1_double +
-    //    ", date2Double=" + date2_double );
+	// Find the point or the insert position using a bisection search of the date/time index.
 
 	found = false;
 	int insert_position = -1;
-	int size = __tsDataList.size();
-	if ( size == 0 ) {
-		// Need to insert at position 0...
-	    //Message.printStatus(2,"","Size = 0, Setting 1st data value at the head of the list for " + dateLocal );
-		insert_position = 0;
-	}
-	else if ( date_double < date1_double ) {
-		// Need to insert at the front...
-	    //Message.printStatus(2,"","" + date_double + " < " + date1_double +
-	    //    ", Setting data value at the start of the list for " + dateLocal );
-		insert_position = 0;
-	}
-	else if ( date_double > date2_double ) {
-		// Need to insert at the end...
-	    //Message.printStatus(2,"","" + date_double + " > " + date2_double +
-	    //    ", setting data value at the end of the list for " + dateLocal );
-		insert_position = size;
-	}
-	// Else we need to insert somewhere in the list...
-	else if(Math.abs( date_double - date1_double ) < Math.abs( date_double - date2_double ) ){
-	    //Message.printStatus(2,"","Closer to front of list for " + dateLocal );
-		// Try to find the position starting from the front of the list...
-	
-		//if ( Message.isDebugOn ) {
-		//	Message.printDebug( 30, "IrregularTS.setDataValue", "Searching list from start for " + dateLocal);
-		//}
-	
-		for( i=0; i< size; i++ ){
-			ptr = __tsDataList.get(i); 
-			
-			//if ( Message.isDebugOn ) {
-			//	Message.printDebug( 50, "IrregularTS.setDataValue", "Comparing " + dateLocal + " to " + ptr.getDate() );
-			//}
-			
-			if( ptr.getDate().equals( dateLocal ) ){
-			
-				//if ( Message.isDebugOn ) {
-				//	Message.printDebug( 50, "IrregularTS.setDataValue", "Setting " + value + " for " + dateLocal + " at " + i );
-				//}
-			
-				// Set the dirty flag so that we know to recompute the limits if desired...
-
-				_dirty = true;
-				found = true;
-
-				ptr.setDataValue ( value );
-				ptr.setDataFlag ( data_flag );
-				ptr.setDuration ( duration );
-				__prevSetDataPointer = ptr;
-				break;
-			}
-			else if ( ptr.getDate().greaterThan( dateLocal ) ) {
-				// Have passed the next-lowest date and need to insert at the current position...
-			
-				insert_position = i;
-				break;
-			}
-		}
+	int found_index = findDataIndex ( dateLocal );
+	if ( found_index >= 0 ) {
+		// Set the dirty flag so that we know to recompute the limits if desired...
+		ptr = __tsDataList.get(found_index);
+		_dirty = true;
+		found = true; // Indicates below that existing data point was found
+
+		ptr.setDataValue( value );
+		ptr.setDataFlag( data_flag );
+		ptr.setDuration( duration );
+		__prevSetDataPointer = ptr;
 	}
 	else {
-	    //Message.printStatus(2,"","Closer to the end of the list for " + dateLocal );
-	    //if ( Message.isDebugOn ) {
-		//	Message.printDebug( 20, "IrregularTS.setDataValue", "Searching list from end for " + dateLocal );
-		//}
-
-		for ( i=(size-1); i >= 0; i-- ){
-			ptr = __tsDataList.get(i);
-
-			//if ( Message.isDebugOn ) {
-			//	Message.printDebug( 50, "IrregularTS.setDataValue", "Comparing " + dateLocal + " to " + ptr.getDate() );
-			//}
-		
-			if ( ptr.getDate().equals( dateLocal ) ){
-				
-				//if ( Message.isDebugOn ) {
-				//	Message.printDebug( 50, "IrregularTS.setDataValue", "Setting " + value + " for " + dateLocal + " at " + i );
-				//}
-
-				// Set the dirty flag so that we know to recompute the limits if desired...
-
-				_dirty = true;
-				found = true; // Indicates below that existing data point was found
-
-				ptr.setDataValue( value );
-				ptr.setDataFlag( data_flag );
-				ptr.setDuration( duration );
-				__prevSetDataPointer = ptr;
-				break;
-			}
-			else if ( ptr.getDate().lessThan(dateLocal) ) {
-				// Have looped back too far without finding a date so break and add a new point...
-				// Need to insert after the current position...
-
-				insert_position = i + 1;
-				break;
-			}
-		}
+		// Need to insert before the first point with a later date/time
+		insert_position = -(found_index + 1);
 	}
 	if ( found ) {
 		//if ( Message.isDebugOn ) {
@@ -1603,6 +1767,7 @@ public void setDataValue ( DateTime date, double value, String data_flag, int du
 	if ( insert_position >= 0 ) {
 	    // Add the data in the given position.
 		__tsDataList.add ( insert_position, tsdata );
+		insertDateKey ( insert_position, getDateKey(dateLocal) );
 		// Set the next/previous pointers (note this is done after the insert so compute positions accordingly...
 		if ( insert_position == 0 ) {
 		    // Added at beginning
@@ -1652,4 +1817,271 @@ public void setDataValue ( DateTime date, double value, String data_flag, int du
 	Message.printWarning ( 3, "IrregularTS.setDataValue", "Logic problem in routine.  Need to fix!" );
 }
 
+/**
+Set the data value and associated information for the date when using packed storage.
+@param date Date of interest.
+@param value Data value corresponding to date.
+@param data_flag Data flag for value.  A leading "+" appends to an existing flag, as per TSData.setDataFlag().
+@param duration Duration for value
+*/
+private void setPackedDataValue ( DateTime date, double value, String data_flag, int duration )
+{	if ( __dateKeysSize == 0 ) {
+		// First point determines the precision and time zone of the packed date/times
+		__dateKeysPrecision = date.getPrecision();
+		__packedTimeZone = date.getTimeZoneAbbreviation();
+	}
+	int i = findDataIndex ( date );
+	boolean found = (i >= 0);
+	if ( !found ) {
+		// Insert a new point before the first point with a later date/time
+		i = -(i + 1);
+		int n = __dateKeysSize - i;
+		if ( (__dateKeys == null) || (__dateKeysSize == __dateKeys.length) ) {
+			int capacity = (__dateKeys == null) ? 16 : __dateKeysSize*2;
+			__dateKeys = (__dateKeys == null) ? new long[capacity] : Arrays.copyOf ( __dateKeys, capacity );
+			__packedValues = (__packedValues == null) ? new double[capacity] : Arrays.copyOf ( __packedValues, capacity );
+			if ( __packedFlagCodes != null ) {
+				__packedFlagCodes = Arrays.copyOf ( __packedFlagCodes, capacity );
+			}
+			if ( __packedDurations != null ) {
+				__packedDurations = Arrays.copyOf ( __packedDurations, capacity );
+			}
+		}
+		System.arraycopy ( __dateKeys, i, __dateKeys, i + 1, n );
+		System.arraycopy ( __packedValues, i, __packedValues, i + 1, n );
+		if ( __packedFlagCodes != null ) {
+			System.arraycopy ( __packedFlagCodes, i, __packedFlagCodes, i + 1, n );
+			__packedFlagCodes[i] = 0;
+		}
+		if ( __packedDurations != null ) {
+			System.arraycopy ( __packedDurations, i, __packedDurations, i + 1, n );
+			__packedDurations[i] = 0;
+		}
+		__dateKeys[i] = getDateKey ( date );
+		++__dateKeysSize;
+		// Reset the limits of the data...
+		if ( (_date1 == null) || (__dateKeysSize == 1) || date.lessThan(_date1) ) {
+			_date1 = new DateTime( date );
+		}
+		if ( (_date2 == null) || (__dateKeysSize == 1) || date.greaterThan(_date2) ) {
+			_date2 = new DateTime( date );
+		}
+		setDataSize ( __dateKeysSize );
+	}
+	__packedValues[i] = value;
+	if ( (data_flag != null) && (data_flag.length() > 0) ) {
+		String flagOrig = "";
+		if ( __packedFlagCodes == null ) {
+			__packedFlagCodes = new int[__dateKeys.length];
+		}
+		else {
+			flagOrig = __packedFlagList.get(__packedFlagCodes[i]);
+		}
+		__packedFlagCodes[i] = getPackedFlagCode ( TSData.appendDataFlag(flagOrig, data_flag) );
+	}
+	else if ( __packedFlagCodes != null ) {
+		__packedFlagCodes[i] = 0;
+	}
+	if ( duration != 0 ) {
+		if ( __packedDurations == null ) {
+			__packedDurations = new int[__dateKeys.length];
+		}
+		__packedDurations[i] = duration;
+	}
+	else if ( __packedDurations != null ) {
+		__packedDurations[i] = 0;
+	}
+	__data_index = i;
+	_dirty = true;
+}
+
+/**
+Set whether the time series uses packed storage, converting existing data if necessary.
+Packed storage keeps date/times as long keys, values in a double array, and data flags
+coded using a dictionary of distinct flags, rather than a TSData object for each point.
+This reduces memory use significantly for large time series.  TSData objects are created only when
+requested, for example when using getDataPoint() or an iterator, and are not part of the time series,
+so changing them does not change the time series.  Use setDataValue() to change data.  The exception is the
+TSData from the getData() view, which set changes in the packed data.
+@param packed if true, use packed storage; if false, use a list of TSData.
+*/
+public void setPackedStorage ( boolean packed )
+{	if ( packed == __packedStorage ) {
+		return;
+	}
+	if ( packed ) {
+		// Convert the list to packed arrays.  The date/time keys are already available in the index.
+		checkDateKeys();
+		int size = __dateKeysSize;
+		double [] values = new double[Math.max(size,16)];
+		int [] flagCodes = null;
+		int [] durations = null;
+		if ( __dateKeys == null ) {
+			__dateKeys = new long[values.length];
+		}
+		__packedFlagList = null;
+		__packedFlagMap = null;
+		__packedTimeZone = "";
+		if ( size > 0 ) {
+			__packedTimeZone = __tsDataList.get(0).getDate().getTimeZoneAbbreviation();
+		}
+		TSData tsdata;
+		String flag;
+		for ( int i = 0; i < size; i++ ) {
+			tsdata = __tsDataList.get(i);
+			values[i] = tsdata.getDataValue();
+			flag = tsdata.getDataFlag();
+			if ( (flag != null) && (flag.length() > 0) ) {
+				if ( flagCodes == null ) {
+					flagCodes = new int[__dateKeys.length];
+				}
+				flagCodes[i] = getPackedFlagCode ( flag );
+			}
+			if ( tsdata.getDuration() != 0 ) {
+				if ( durations == null ) {
+					durations = new int[__dateKeys.length];
+				}
+				durations[i] = tsdata.getDuration();
+			}
+		}
+		if ( values.length != __dateKeys.length ) {
+			values = Arrays.copyOf ( values, __dateKeys.length );
+		}
+		__packedValues = values;
+		__packedFlagCodes = flagCodes;
+		__packedDurations = durations;
+		__tsDataList = null;
+		__prevSetDataPointer = null;
+		__packedStorage = true;
+	}
+	else {
+		// Convert the packed arrays to a list of linked TSData
+		int size = __dateKeysSize;
+		List<TSData> dataList = null;
+		if ( size > 0 ) {
+			dataList = new ArrayList<TSData>(size);
+			TSData tsdata, prev = null;
+			for ( int i = 0; i < size; i++ ) {
+				tsdata = getDataPointAt ( i, null );
+				tsdata.setPrevious ( prev );
+				if ( prev != null ) {
+					prev.setNext ( tsdata );
+				}
+				dataList.add ( tsdata );
+				prev = tsdata;
+			}
+		}
+		__packedStorage = false;
+		__packedValues = null;
+		__packedFlagCodes = null;
+		__packedDurations = null;
+		__packedFlagList = null;
+		__packedFlagMap = null;
+		// The date/time keys remain valid as the index for the list
+		__tsDataList = dataList;
+		__prevSetDataPointer = null;
+		if ( dataList == null ) {
+			__dateKeys = null;
+			__dateKeysSize = 0;
+		}
+	}
+}
+
+/**
+Fixed-size list view of packed data, returned by getData() so that code that processes the list of TSData
+does not convert the time series to list storage.
+*/
+private class PackedDataList extends AbstractList<TSData> implements RandomAccess
+{
+	public TSData get ( int i )
+	{	if ( (i < 0) || (i >= __dateKeysSize) ) {
+			throw new IndexOutOfBoundsException ( "Index " + i + ", size " + __dateKeysSize );
+		}
+		return new PackedTSData ( i );
+	}
+
+	public int size ()
+	{	return __dateKeysSize;
+	}
+}
+
+/**
+Data point for a position in packed data, returned from the getData() view.  Changes to the data value, flag,
+and duration are also set in the packed arrays.  The next and previous points are also taken from the packed data.
+*/
+private class PackedTSData extends TSData
+{
+	/**
+	Position of the point in the packed arrays.
+	*/
+	private int __index;
+
+	PackedTSData ( int index )
+	{	__index = index;
+		super.setDate ( getDateFromKey(__dateKeys[index]) );
+		super.setDataValue ( __packedValues[index] );
+		super.setUnits ( _data_units );
+		super.setDataFlag ( (__packedFlagCodes == null) ? "" : __packedFlagList.get(__packedFlagCodes[index]) );
+		super.setDuration ( (__packedDurations == null) ? 0 : __packedDurations[index] );
+	}
+
+	/**
+	Return a copy that is not connected to the packed data.
+	*/
+	public Object clone ()
+	{	return new TSData ( this );
+	}
+
+	public TSData getNext ()
+	{	return ((__index + 1) < __dateKeysSize) ? new PackedTSData(__index + 1) : null;
+	}
+
+	public TSData getPrevious ()
+	{	return (__index > 0) ? new PackedTSData(__index - 1) : null;
+	}
+
+	public void setDataFlag ( String flag )
+	{	super.setDataFlag ( flag );
+		String flagNew = getDataFlag();
+		if ( (flagNew != null) && (flagNew.length() > 0) ) {
+			if ( __packedFlagCodes == null ) {
+				__packedFlagCodes = new int[__dateKeys.length];
+			}
+			__packedFlagCodes[__index] = getPackedFlagCode ( flagNew );
+		}
+		else if ( __packedFlagCodes != null ) {
+			__packedFlagCodes[__index] = 0;
+		}
+		_dirty = true;
+	}
+
+	public void setDataValue ( double d )
+	{	super.setDataValue ( d );
+		__packedValues[__index] = d;
+		_dirty = true;
+	}
+
+	/**
+	The date/time cannot be changed because the packed data are sorted by date/time.
+	@exception UnsupportedOperationException always
+	*/
+	public void setDate ( DateTime d )
+	{	throw new UnsupportedOperationException ( "Cannot change the date/time of a packed data point - use IrregularTS.setDataValue()." );
+	}
+
+	public void setDuration ( int duration )
+	{	super.setDuration ( duration );
+		if ( duration != 0 ) {
+			if ( __packedDurations == null ) {
+				__packedDurations = new int[__dateKeys.length];
+			}
+			__packedDurations[__index] = duration;
+		}
+		else if ( __packedDurations != null ) {
+			__packedDurations[__index] = 0;
+		}
+		_dirty = true;
+	}
+}
+
 }
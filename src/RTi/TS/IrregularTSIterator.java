@@ -58,8 +58,6 @@ NoticeEnd */
 
 package RTi.TS;
 
-import java.util.List;
-
 import RTi.Util.Message.Message;
 import RTi.Util.Time.DateTime;
 
@@ -70,6 +68,17 @@ It is used similarly to the TSIterator.  See TSIterator for examples of use.
 public class IrregularTSIterator extends TSIterator
 {
 
+/**
+Position of the current data point in the time series data (0+), or -1 if iteration has not started.
+*/
+private int _dataIndex = -1;
+
+/**
+Data object that is filled and returned when the time series uses packed storage.
+It is reused for each return to avoid numerous memory allocation operations.
+*/
+private TSData _packedTSData = new TSData();
+
 /**
 Construct an iterator for the full period of the time series.
 @param ts Time series to iterate through.
@@ -101,62 +110,92 @@ public int getDuration ()
 { 	return 0;
 }
 
-// TODO SAM 2005-09-16 Remove the warning when implemented
 /**
 Go to the specified date/time, returning the matching data as if next() or
 previous() had been called.  The date/time in the time series MUST exactly
 match the date (dt.equals(...)).  If unable to go to the date/time, null is returned.
+The date/time index of the IrregularTS is used so the search is O(log n).
 @param dt Date/time to go to.
-THIS METHOD IS NOT YET IMPLEMENTED FOR IrregularTSIterator.  null IS ALWAYS RETURNED.
-@param reset_if_fail If true and the search fails, reset to the starting
-position, but still return null.  If false and the search fails, the current
-date/time of the iterator will be at the end of data and null will be returned.
+@param reset_if_fail If true and the search fails, leave the iterator at the position it had
+when called, but still return null.  If false and the search fails, iteration is marked
+as complete (as if the end of data was reached) and null will be returned.
 @return the TSData for the requesting date/time.  WARNING:  the contents of this object are volatile
 and change with each iteration.  Use the get*() methods in TSIterator to retrieve data directly.
 */
 public TSData goTo ( DateTime dt, boolean reset_if_fail )
-{	Message.printWarning (1, "IrregularTSIterator.goTo",
-	"The goTo() method is not yet implemented in IrregularTSIterator." );
-	return null;
+{	int i = ((IrregularTS)this._ts).findDataIndex ( dt );
+	return goToIndex ( i, reset_if_fail );
+}
+
+/**
+Position the iterator at a data point, used by the goTo*() methods.
+@param i index of the data point in the IrregularTS data list.
+@param reset_if_fail If true and the index is invalid or outside the iteration period, leave the
+iterator at the position it had when called.  If false, indicate that iteration is complete.
+@return the TSData for the index, or null if the index is invalid or outside the iteration period.
+*/
+private TSData goToIndex ( int i, boolean reset_if_fail )
+{	TSData theData = ((IrregularTS)this._ts).getDataPointAt ( i, this._packedTSData );
+	if ( theData != null ) {
+		DateTime date = theData.getDate();
+		if ( date.lessThan(this._date1) || date.greaterThan(this._date2) ) {
+			// Outside of the iteration period
+			theData = null;
+		}
+	}
+	if ( theData == null ) {
+		if ( !reset_if_fail ) {
+			this._isIterationComplete = true;
+		}
+		return null;
+	}
+	this._tsdata = theData;
+	this._dataIndex = i;
+	this._currentDate = theData.getDate();
+	this._nextWasCalledFirst = true;
+	this._isIterationComplete = false;
+	return theData;
 }
 
-// TODO SAM 2005-09-16 Remove the warning when implemented
 /**
 Go to the specified date/time, returning the matching data as if next() or
 previous() had been called.  If an exact match for the requested date/time
 cannot be made, return the nearest next (future) data.  Return null if the
 search cannot find a matching date/time (e.g., due to the end of the period).
-THIS METHOD IS NOT YET IMPLEMENTED FOR IrregularTSIterator.  null IS ALWAYS RETURNED.
-@param reset_if_fail If true and the search fails, reset to the starting
-position, but still return null.  If false and the search fails, the current
-date/time of the iterator will be at the end of data and null will be returned.
+@param reset_if_fail If true and the search fails, leave the iterator at the position it had
+when called, but still return null.  If false and the search fails, iteration is marked
+as complete (as if the end of data was reached) and null will be returned.
 @return the TSData for the requesting date/time.  WARNING:  the contents of this object are volatile
 and change with each iteration.  Use the get*() methods in TSIterator to retrieve data directly.
 */
 public TSData goToNearestNext ( DateTime dt, boolean reset_if_fail )
-{	Message.printWarning (1, "IrregularTSIterator.goToNearestNext",
-	"The goToNearestNext() method is not yet implemented in IrregularTSIterator." );
-	return null;
+{	int i = ((IrregularTS)this._ts).findDataIndex ( dt );
+	if ( i < 0 ) {
+		// Not an exact match so use the insertion point, which is the next point
+		i = -(i + 1);
+	}
+	return goToIndex ( i, reset_if_fail );
 }
 
-// TODO SAM 2005-09-16 Remove the warning when implemented
 /**
 Go to the specified date/time, returning the matching data as if next() or
 previous() had been called.  If an exact match for the requested date/time
 cannot be made, return the nearest previous (past) data.  Return null if the
 search cannot find a matching date/time (e.g., due to the end of the period).
-@param reset_if_fail If true and the search fails, reset to the starting
-position, but still return null.  If false and the search fails, the current
-date/time of the iterator will be at the end of data and null will be returned.
+@param reset_if_fail If true and the search fails, leave the iterator at the position it had
+when called, but still return null.  If false and the search fails, iteration is marked
+as complete (as if the end of data was reached) and null will be returned.
 @return the TSData for the requesting date/time.
-THIS METHOD IS NOT YET IMPLEMENTED FOR IrregularTSIterator.  null IS ALWAYS RETURNED.
 WARNING:  the contents of this object are volatile and change with each iteration.
 Use the get*() methods in TSIterator to retrieve data directly.
 */
 public TSData goToNearestPrevious ( DateTime dt, boolean reset_if_fail )
-{	Message.printWarning (1, "IrregularTSIterator.goToNearestPrevious",
-	"The goToNearestPrevious() method is not yet implemented in IrregularTSIterator." );
-	return null;
+{	int i = ((IrregularTS)this._ts).findDataIndex ( dt );
+	if ( i < 0 ) {
+		// Not an exact match so the point before the insertion point is the previous point
+		i = -(i + 1) - 1;
+	}
+	return goToIndex ( i, reset_if_fail );
 }
 
 /**
@@ -166,7 +205,14 @@ If false is returned, then the iterator is positioned at the last date with data
 public boolean hasNext ()
 {
 	// For an irregular time series, get the date/time for the next value and check whether it is past _date2
-	TSData nextData = this._tsdata.getNext();
+	TSData nextData = null;
+	IrregularTS its = (IrregularTS)this._ts;
+	if ( its.isPackedStorage() ) {
+		nextData = its.getDataPointAt ( this._dataIndex + 1, null );
+	}
+	else {
+		nextData = this._tsdata.getNext();
+	}
 	if ( nextData == null ) {
 		// There is no next point
 		return false;
@@ -208,25 +254,26 @@ public TSData next ( )
 	//if ( _firstDateProcessed ) {
 	if ( ! this._isIterationComplete ) {
 		// if ( _firstDateProcessed ) {
+		IrregularTS its = (IrregularTS)this._ts;
 		if ( this._nextWasCalledFirst ) {
 			// Have previously called next() so initialization has occurred
-			theData = this._tsdata.getNext();
+			if ( its.isPackedStorage() ) {
+				theData = its.getDataPointAt ( this._dataIndex + 1, this._packedTSData );
+			}
+			else {
+				theData = this._tsdata.getNext();
+			}
+			++this._dataIndex;
 		}
 		else {
-			// This is the first call to next() so need to find the first data point
-			List<TSData> v = ((IrregularTS)this._ts).getData();
-			if ( (v == null) || (v.size() == 0) ) {
-				return null;
-			}
-			int size = v.size();
-			TSData ptr = null;
-			for ( int i = 0; i < size; i++ ) {
-				ptr = v.get(i);
-				if ( ptr.getDate().equals(this._currentDate) ) {
-					theData = ptr;
-					break;
-				}
+			// This is the first call to next() so need to find the first data point,
+			// which is the first point at or after the start of the iteration period
+			int i = its.findDataIndex ( this._currentDate );
+			if ( i < 0 ) {
+				i = -(i + 1);
 			}
+			theData = its.getDataPointAt ( i, this._packedTSData );
+			this._dataIndex = i;
 			this._nextWasCalledFirst = true;
 		}
 
@@ -102,6 +102,7 @@ import java.io.PrintWriter;
 import java.io.Serializable;
 import java.lang.String;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import RTi.Util.IO.DataUnits;
@@ -117,6 +118,9 @@ import RTi.Util.Time.YearType;
 /**
 The MinuteTS class is the base class for time series used to store minute data.
 Derive classes from this class for specific minute time series data.
+The getDataValue() and getDataPoint() methods compute data positions using only local variables,
+so multiple threads can read a shared instance concurrently as long as no thread is modifying the data
+(each reader should use its own TSData and DateTime instances).
 */
 @SuppressWarnings("serial")
 public class MinuteTS extends TS implements Cloneable, Serializable, Transferable {
@@ -140,24 +144,24 @@ Data flags for each data value.  The dimensions are [month][day][minute value].
 private	String [][][] _dataFlags;
 
 /**
-Month position in data array, set by getDataPosition() and used internally.
+Indicate whether data are stored in _dataFlat rather than _data (see setFlatStorage()).
 */
-private int _month_pos;
+private boolean _flatStorage = false;
 
 /**
-Day position in data array, set by getDataPosition() and used internally.
+Contiguous data space used with flat storage, indexed by getDataIndex().
 */
-private int _day_pos;
+private double [] _dataFlat = null;
 
 /**
-Interval position in data array, set by getDataPosition() and used internally.
+Data flags corresponding to _dataFlat.
 */
-private int _interval_pos;
+private String [] _dataFlagsFlat = null;
 
 /**
-Return for the following to optimize memory use.
+Absolute interval (see getAbsoluteInterval()) of _date1 when the data space was allocated, used by getDataIndex().
 */
-private int [] _pos = null;
+private long _absoluteInterval1 = 0;
 
 /**
 Default constructor.
@@ -176,6 +180,7 @@ public MinuteTS ( MinuteTS ts )
 		return;
 	}
 	copyHeader ( ts );
+	_flatStorage = ts._flatStorage;
 	allocateDataSpace();
 	DateTime date2 = new DateTime ( _date2 );
 	DateTime date = new DateTime ( _date1 );
@@ -214,6 +219,28 @@ throws Exception
 	if ( initialValue == null ) {
 	    initialValue = "";
 	}
+
+	if ( _flatStorage ) {
+		// Single array of flags corresponding to the data values...
+		String [] dataFlagsPrev = null;
+		if ( _has_data_flags && retain_previous_values ) {
+			dataFlagsPrev = _dataFlagsFlat;
+		}
+		else {
+			_has_data_flags = true;
+		}
+		_absoluteInterval1 = getAbsoluteInterval ( _date1 );
+		int ndata = getDataIndex ( _date2 ) + 1;
+		_dataFlagsFlat = new String[ndata];
+		if ( getInternDataFlagStrings() ) {
+			initialValue = initialValue.intern();
+		}
+		Arrays.fill ( _dataFlagsFlat, initialValue );
+		if ( dataFlagsPrev != null ) {
+			System.arraycopy ( dataFlagsPrev, 0, _dataFlagsFlat, 0, Math.min(dataFlagsPrev.length,ndata) );
+		}
+		return;
+	}
 	
 	int nmonths = _date2.getAbsoluteMonth() - _date1.getAbsoluteMonth() + 1;
 
@@ -316,6 +343,31 @@ public int allocateDataSpace( )
 		"Only know how to handle 1-60 minute data, not " + _data_interval_mult + "-minute" );
 		return 1;
 	}
+	_absoluteInterval1 = getAbsoluteInterval ( _date1 );
+	if ( _flatStorage ) {
+		// Allocate a single array, with the position computed from the absolute interval...
+		int ndata = getDataIndex ( _date2 ) + 1;
+		if ( ndata <= 0 ) {
+			Message.printWarning( 2, routine, "TS has 0 intervals POR, maybe Dates haven't been set yet" );
+			return 1;
+		}
+		_data = null;
+		_dataFlags = null;
+		_dataFlat = new double[ndata];
+		Arrays.fill ( _dataFlat, _missing );
+		if ( _has_data_flags ) {
+			_dataFlagsFlat = new String[ndata];
+			Arrays.fill ( _dataFlagsFlat, "" );
+		}
+		setDataSize ( ndata );
+		if ( Message.isDebugOn ) {
+			Message.printDebug ( dl, routine, "Allocated " + ndata + " values of contiguous " + _data_interval_mult +
+			"-minute data space from " + _date1 + " to " + _date2 );
+		}
+		return 0;
+	}
+	_dataFlat = null;
+	_dataFlagsFlat = null;
 	nmonths = _date2.getAbsoluteMonth() - _date1.getAbsoluteMonth() + 1;
 
 	if( nmonths == 0 ){
@@ -500,6 +552,9 @@ throws TSException
 
 	double [][][] dataSave = _data;
 	String [][][] dataFlagsSave = _dataFlags;
+	double [] dataFlatSave = _dataFlat;
+	String [] dataFlagsFlatSave = _dataFlagsFlat;
+	long absoluteInterval1Save = _absoluteInterval1;
 	MinuteTS temp_ts = new MinuteTS ();
 	temp_ts.setDataInterval ( TimeInterval.MINUTE, _data_interval_mult );
 	temp_ts.setDate1 ( _date1 );
@@ -538,29 +593,45 @@ throws TSException
 	// old position and then set in the new position.  We are only concerned
 	// with transferring the values for the the old time series that are within the new period...
 
-	double value;
-	int [] data_pos;
-	for ( DateTime date = new DateTime (transfer_date1,DateTime.DATE_FAST);
-		date.lessThanOrEqualTo (transfer_date2);
-		date.addInterval( _data_interval_base, _data_interval_mult ) ) {
-		// Get the data position for the old data...
-		data_pos = temp_ts.getDataPosition(date);
-		// Now get the value...
-		value = dataSave[data_pos[0]][data_pos[1]][data_pos[2]];
-		// Now set in the new period...
-		// Also transfer the data flag...
-		if ( _has_data_flags ) {
-			// Transfer the value and flag...
-		    if ( _internDataFlagStrings ) {
-		        setDataValue ( date, value, dataFlagsSave[data_pos[0]][data_pos[1]][data_pos[2]].intern(), 1);
-		    }
-		    else {
-		        setDataValue ( date, value, dataFlagsSave[data_pos[0]][data_pos[1]][data_pos[2]], 1);
-		    }
+	if ( _flatStorage ) {
+		// Both the old and new data are contiguous so copy the overlapping period as a block...
+		long transferInterval1 = getAbsoluteInterval ( transfer_date1 );
+		int ntransfer = getDataIndex ( transfer_date2 ) - getDataIndex ( transfer_date1 ) + 1;
+		if ( (dataFlatSave != null) && (ntransfer > 0) ) {
+			// Positions are within the old and new periods so fit in an int
+			int oldPos = (int)(transferInterval1 - absoluteInterval1Save);
+			int newPos = (int)(transferInterval1 - _absoluteInterval1);
+			System.arraycopy ( dataFlatSave, oldPos, _dataFlat, newPos, ntransfer );
+			if ( _has_data_flags && (dataFlagsFlatSave != null) ) {
+				System.arraycopy ( dataFlagsFlatSave, oldPos, _dataFlagsFlat, newPos, ntransfer );
+			}
 		}
-		else {
-		    // Transfer the value...
-			setDataValue ( date, value );
+	}
+	else {
+		double value;
+		int [] data_pos;
+		for ( DateTime date = new DateTime (transfer_date1,DateTime.DATE_FAST);
+			date.lessThanOrEqualTo (transfer_date2);
+			date.addInterval( _data_interval_base, _data_interval_mult ) ) {
+			// Get the data position for the old data...
+			data_pos = temp_ts.getDataPosition(date);
+			// Now get the value...
+			value = dataSave[data_pos[0]][data_pos[1]][data_pos[2]];
+			// Now set in the new period...
+			// Also transfer the data flag...
+			if ( _has_data_flags ) {
+				// Transfer the value and flag...
+			    if ( _internDataFlagStrings ) {
+			        setDataValue ( date, value, dataFlagsSave[data_pos[0]][data_pos[1]][data_pos[2]].intern(), 1);
+			    }
+			    else {
+			        setDataValue ( date, value, dataFlagsSave[data_pos[0]][data_pos[1]][data_pos[2]], 1);
+			    }
+			}
+			else {
+			    // Transfer the value...
+				setDataValue ( date, value );
+			}
 		}
 	}
 
@@ -578,7 +649,6 @@ public Object clone ()
 {	MinuteTS ts = (MinuteTS)super.clone();	// Clone data stored in the base
 	// Does not appear to work...
 	//ts._data = (double[][][])_data.clone();
-	//ts._pos = (int[])_pos.clone();
     if ( _data == null ) {
         ts._data = null;
     }
@@ -633,13 +703,14 @@ public Object clone ()
     		}
 	    }
 	}
-	ts._pos = new int[3];
-	ts._pos[0] = _pos[0];
-	ts._pos[1] = _pos[1];
-	ts._pos[2] = _pos[2];
-	ts._month_pos = _month_pos;
-	ts._day_pos = _day_pos;
-	ts._interval_pos = _interval_pos;
+	if ( _dataFlat != null ) {
+		ts._dataFlat = new double[_dataFlat.length];
+		System.arraycopy ( _dataFlat, 0, ts._dataFlat, 0, _dataFlat.length );
+	}
+	if ( _dataFlagsFlat != null ) {
+		ts._dataFlagsFlat = new String[_dataFlagsFlat.length];
+		System.arraycopy ( _dataFlagsFlat, 0, ts._dataFlagsFlat, 0, _dataFlagsFlat.length );
+	}
 	return ts;
 }
 
@@ -651,7 +722,8 @@ protected void finalize ()
 throws Throwable
 {	_data = null;
 	_dataFlags = null;
-	_pos = null;
+	_dataFlat = null;
+	_dataFlagsFlat = null;
 	super.finalize();
 }
 
@@ -1206,6 +1278,38 @@ private void formatOutputNMinute ( List<String> strings, PropList props,
 	}
 }
 
+/**
+Return the absolute interval for a date/time, which is the number of data intervals since the
+absolute day datum (see TimeUtil.absoluteDay()).  Intervals are aligned with minute zero of each day,
+consistent with the storage by month and day.  The number of minutes is computed as a long because it
+exceeds the range of an int for years after about 4000.
+@param date date/time of interest.
+@return the absolute interval for the date/time.
+*/
+private long getAbsoluteInterval ( DateTime date )
+{	long absoluteMinute = TimeUtil.absoluteDay(date.getYear(), date.getMonth(), date.getDay())*1440L +
+		date.getHour()*60 + date.getMinute();
+	return absoluteMinute/_data_interval_mult;
+}
+
+/**
+Return the position of a date/time in the data space, which is the number of data intervals since
+the start of the period.  The position is computed directly from the absolute interval, is valid for
+either storage layout, and uses no shared state.  The data space must have been allocated.
+@param date date/time of interest.
+@return the position of the date/time in the data space (0 corresponds to getDate1()).
+@exception ArithmeticException if the position is outside the range of an int, which can only occur for
+date/times far outside the period.
+*/
+public int getDataIndex ( DateTime date )
+{	long index = getAbsoluteInterval ( date ) - _absoluteInterval1;
+	if ( (index > Integer.MAX_VALUE) || (index < Integer.MIN_VALUE) ) {
+		throw new ArithmeticException ( "Position of " + date + " relative to " + _date1 +
+			" is too large for the data space." );
+	}
+	return (int)index;
+}
+
 /**
 Return a data point for the date.
 @param date date/time to get data.
@@ -1228,28 +1332,46 @@ public TSData getDataPoint ( DateTime date, TSData tsdata )
 		tsdata.setValues ( date, _missing, _data_units, "", 0 );
 		return tsdata;
 	}
-	// This computes the _month_pos, _day_pos and _interval_pos...
-	getDataPosition ( date );
+	if ( _flatStorage && (_dataFlat != null) ) {
+		int i = getDataIndex ( date );
+		if ( _has_data_flags && (_dataFlagsFlat != null) ) {
+		    if ( _internDataFlagStrings ) {
+		        tsdata.setValues ( date, _dataFlat[i], _data_units, _dataFlagsFlat[i].intern(), 0 );
+		    }
+		    else {
+		        tsdata.setValues ( date, _dataFlat[i], _data_units, _dataFlagsFlat[i], 0 );
+		    }
+		}
+		else {
+			tsdata.setValues ( date, _dataFlat[i], _data_units, "", 0 );
+		}
+		return tsdata;
+	}
+	// THIS CODE NEEDS TO BE EQUIVALENT IN getDataPosition...
+	int monthPos = date.getAbsoluteMonth() - _date1.getAbsoluteMonth();
+	int dayPos = date.getDay() - 1;
+	int intervalPos = (date.getHour()*60 + date.getMinute())/_data_interval_mult;
+	// ... END OF EQUIVALENT CODE.
 	if ( _has_data_flags ) {
 	    if ( _internDataFlagStrings ) {
-	        tsdata.setValues ( date, _data[_month_pos][_day_pos][_interval_pos],
-				 _data_units, _dataFlags[_month_pos][_day_pos][_interval_pos].intern(), 0 );
+	        tsdata.setValues ( date, _data[monthPos][dayPos][intervalPos],
+				 _data_units, _dataFlags[monthPos][dayPos][intervalPos].intern(), 0 );
 	    }
 	    else {
-            tsdata.setValues ( date, _data[_month_pos][_day_pos][_interval_pos],
-                 _data_units, _dataFlags[_month_pos][_day_pos][_interval_pos], 0 );
+            tsdata.setValues ( date, _data[monthPos][dayPos][intervalPos],
+                 _data_units, _dataFlags[monthPos][dayPos][intervalPos], 0 );
 	    }
 	}
 	else {
-		tsdata.setValues ( date, _data[_month_pos][_day_pos][_interval_pos], _data_units, "", 0 );
+		tsdata.setValues ( date, _data[monthPos][dayPos][intervalPos], _data_units, "", 0 );
 	}
 	return tsdata;
 }
 
 /**
-Compute the data position and set in class data.  This method is used primarily by get/set routines.
+Compute the data position.  This method is used primarily when changing the period.
 Minute data are stored as: [absolute month][days in month][interval in day].
-The position array is re-used and values should be copied if there is a need to use between calls.
+A new position array is returned for each call so that concurrent callers do not share state.
 @param date Date of interest.
 */
 private int [] getDataPosition ( DateTime date )
@@ -1283,28 +1405,26 @@ private int [] getDataPosition ( DateTime date )
 		_date1 + "(" + _date1.getAbsoluteMonth() + ") for row-col calculation." );
 	}
 
-	_month_pos = date.getAbsoluteMonth() - _date1.getAbsoluteMonth();
+	int [] pos = new int[3];
+	pos[0] = date.getAbsoluteMonth() - _date1.getAbsoluteMonth();
 
     // Calculate the day position of the data...
 
-	_day_pos = date.getDay() - 1;
+	pos[1] = date.getDay() - 1;
 
 	// Calculate the interval position of the data.  We know that minute
 	// data are stored in a 3D array with the last dimension being the
 	// minute data by interval.  Note that the recording at 00:00 of the
 	// current day is the first reading of the day!
 
-	_interval_pos = (date.getHour()*60 + date.getMinute())/_data_interval_mult;
+	pos[2] = (date.getHour()*60 + date.getMinute())/_data_interval_mult;
 
 	if ( Message.isDebugOn ) {
-		Message.printDebug ( 50, "MinuteTS.getDataPosition", "Month=[" + _month_pos +
-		"] Day=[" + _day_pos +"] interval=[" + _interval_pos +"]" );
+		Message.printDebug ( 50, "MinuteTS.getDataPosition", "Month=[" + pos[0] +
+		"] Day=[" + pos[1] +"] interval=[" + pos[2] +"]" );
 	}
 
-	_pos[0] = _month_pos;
-	_pos[1] = _day_pos;
-	_pos[2] = _interval_pos;
-	return _pos;
+	return pos;
 }
 
 /**
@@ -1317,7 +1437,7 @@ Minute data are stored in a three-dimensional array:
 public double getDataValue( DateTime date )
 {	// Do not define routine here to increase performance.
 
-	if ( (date == null) || (_data == null) ) {
+	if ( (date == null) || !hasData() ) {
 		return _missing;
 	}
 
@@ -1332,18 +1452,45 @@ public double getDataValue( DateTime date )
 		return _missing;
 	}
 
-	// Set the data position in the class data.  There should be no problem
+	if ( _flatStorage ) {
+		return _dataFlat[getDataIndex(date)];
+	}
+
+	// Compute the data position.  There should be no problem
 	// since we already checked the dates above...
 
-	getDataPosition(date);
+	// THIS CODE NEEDS TO BE EQUIVALENT IN getDataPosition...
+	int monthPos = date.getAbsoluteMonth() - _date1.getAbsoluteMonth();
+	int dayPos = date.getDay() - 1;
+	int intervalPos = (date.getHour()*60 + date.getMinute())/_data_interval_mult;
+	// ... END OF EQUIVALENT CODE.
 
 	if ( Message.isDebugOn ) {
 		Message.printDebug( 50, "MinuteTS.getDataValue",
-		_data[_month_pos][_day_pos][_interval_pos] + " for " + date +
-		" from _data[" + _month_pos + "][" + _day_pos + "][" + _interval_pos + "]" );
+		_data[monthPos][dayPos][intervalPos] + " for " + date +
+		" from _data[" + monthPos + "][" + dayPos + "][" + intervalPos + "]" );
 	}
 
-	return _data[_month_pos][_day_pos][_interval_pos];
+	return _data[monthPos][dayPos][intervalPos];
+}
+
+/**
+Copy consecutive data values into an array, starting at a position in the period.
+If flat storage is used, the values are copied as a block.
+@param startIndex position of the first value to copy (see getDataIndex()).
+@param values array to receive the data values - up to values.length values are copied.
+@return the number of values that were copied.
+*/
+public int getDataValues ( int startIndex, double [] values )
+{	if ( !_flatStorage || (_dataFlat == null) ) {
+		return super.getDataValues ( startIndex, values );
+	}
+	if ( (values == null) || (startIndex < 0) || (startIndex >= _dataFlat.length) ) {
+		return 0;
+	}
+	int count = Math.min ( values.length, _dataFlat.length - startIndex );
+	System.arraycopy ( _dataFlat, startIndex, values, 0, count );
+	return count;
 }
 
 /**
@@ -1400,7 +1547,7 @@ hasData() to check to see if the data space has been assigned.
 Note that true will be returned even if all the data values are set to the missing data value.
 */
 public boolean hasData ()
-{	if ( _data != null ) {
+{	if ( (_data != null) || (_dataFlat != null) ) {
 		return true;
 	}
 	else {
@@ -1417,13 +1564,6 @@ private void init()
 	_data_interval_mult = 1;
 	_data_interval_base_original = TimeInterval.MINUTE;
 	_data_interval_mult_original = 1;
-	_pos = new int[3];
-	_pos[0] = 0;
-	_pos[1] = 0;
-	_pos[2] = 0;
-	_month_pos = 0;
-	_day_pos = 0;
-	_interval_pos = 0;
 }
 
 /**
@@ -1451,6 +1591,14 @@ public boolean isDataFlavorSupported(DataFlavor flavor) {
 	}
 }
 
+/**
+Indicate whether data values are stored in a single contiguous array (see setFlatStorage()).
+@return true if flat storage is used, false if data are stored by month and day.
+*/
+public boolean isFlatStorage ()
+{	return _flatStorage;
+}
+
 /**
 Refresh the derived data (e.g., data limits) if the time series has changed.
 This is generally only called by methods within the package.
@@ -1504,19 +1652,29 @@ public void setDataValue( DateTime date, double value )
 		return;
 	}
 
+	if ( _flatStorage ) {
+		_dirty = true;
+		_dataFlat[getDataIndex(date)] = value;
+		return;
+	}
+
 	// Get the data position...
 
-	getDataPosition ( date );
+	// THIS CODE NEEDS TO BE EQUIVALENT IN getDataPosition...
+	int monthPos = date.getAbsoluteMonth() - _date1.getAbsoluteMonth();
+	int dayPos = date.getDay() - 1;
+	int intervalPos = (date.getHour()*60 + date.getMinute())/_data_interval_mult;
+	// ... END OF EQUIVALENT CODE.
 
 	if ( Message.isDebugOn ) {
 		Message.printDebug( 50, "MinuteTS.setDataValue",
-		"Setting " + value + " for " + date + " at [" + _month_pos + "][" + _day_pos + "][" + _interval_pos + "]" );
+		"Setting " + value + " for " + date + " at [" + monthPos + "][" + dayPos + "][" + intervalPos + "]" );
 	}
 
 	// Set the dirty flag so that we know to recompute the limits if desired...
 
 	_dirty = true;
-	_data[_month_pos][_day_pos][_interval_pos] = value;
+	_data[monthPos][dayPos][intervalPos] = value;
 }
 
 /**
@@ -1536,18 +1694,33 @@ public void setDataValue ( DateTime date, double value, String dataFlag, int dur
 		return;
 	}
 
-	getDataPosition ( date );
+	int i = 0, monthPos = 0, dayPos = 0, intervalPos = 0;
+	if ( _flatStorage ) {
+		i = getDataIndex ( date );
+	}
+	else {
+		// THIS CODE NEEDS TO BE EQUIVALENT IN getDataPosition...
+		monthPos = date.getAbsoluteMonth() - _date1.getAbsoluteMonth();
+		dayPos = date.getDay() - 1;
+		intervalPos = (date.getHour()*60 + date.getMinute())/_data_interval_mult;
+		// ... END OF EQUIVALENT CODE.
+	}
 
 	if ( Message.isDebugOn ) {
 		Message.printDebug( 30, "MinuteTS.setDataValue",
-		"Setting " + value + " for " + date + " at [" + _month_pos + "][" + _day_pos + "][" + _interval_pos + "]" );
+		"Setting " + value + " for " + date + " at [" + monthPos + "][" + dayPos + "][" + intervalPos + "]" );
 	}
 
 	// Set the dirty flag so that we know to recompute the limits if desired...
 
 	_dirty = true;
 
-	_data[_month_pos][_day_pos][_interval_pos] = value;
+	if ( _flatStorage ) {
+		_dataFlat[i] = value;
+	}
+	else {
+		_data[monthPos][dayPos][intervalPos] = value;
+	}
     if ( (dataFlag != null) && (dataFlag.length() > 0) ) {
         if ( !_has_data_flags ) {
             // Trying to set a data flag but space has not been allocated, so allocate the flag space
@@ -1567,12 +1740,84 @@ public void setDataValue ( DateTime date, double value, String dataFlag, int dur
     }
 	if ( _has_data_flags && (dataFlag != null) ) {
 		if ( _internDataFlagStrings ) {
-			_dataFlags[_month_pos][_day_pos][_interval_pos] = dataFlag.intern();
+			dataFlag = dataFlag.intern();
+		}
+		if ( _flatStorage ) {
+			_dataFlagsFlat[i] = dataFlag;
+		}
+		else {
+		    _dataFlags[monthPos][dayPos][intervalPos] = dataFlag;
+		}
+	}
+}
+
+/**
+Set consecutive data values from an array, starting at a position in the period.
+If flat storage is used, the values are copied as a block.  Data flags are not changed.
+@param startIndex position of the first value to set (see getDataIndex()).
+@param values data values to set - up to values.length values are set.
+@return the number of values that were set.
+*/
+public int setDataValues ( int startIndex, double [] values )
+{	if ( !_flatStorage || (_dataFlat == null) ) {
+		return super.setDataValues ( startIndex, values );
+	}
+	if ( (values == null) || (startIndex < 0) || (startIndex >= _dataFlat.length) ) {
+		return 0;
+	}
+	int count = Math.min ( values.length, _dataFlat.length - startIndex );
+	System.arraycopy ( values, 0, _dataFlat, startIndex, count );
+	_dirty = true;
+	return count;
+}
+
+/**
+Set whether data values are stored in a single contiguous array rather than in arrays by month and day.
+With flat storage the position of a value is computed directly from the number of intervals since the
+start of the period (see getDataIndex()), sequential scans are cache-friendly, and getDataValues(),
+setDataValues(), clone() and changePeriodOfRecord() copy blocks of values.
+If the data space has already been allocated, the data values and flags are transferred to the new storage.
+@param flatStorage if true, store data values in a contiguous array; if false, store by month and day (the default).
+*/
+public void setFlatStorage ( boolean flatStorage )
+{	if ( flatStorage == _flatStorage ) {
+		return;
+	}
+	if ( !hasData() ) {
+		// Will be used when the data space is allocated...
+		_flatStorage = flatStorage;
+		return;
+	}
+	// Save the values and flags from the current storage...
+	int ndata = getDataIndex ( _date2 ) + 1;
+	double [] values = new double[ndata];
+	String [] flags = null;
+	if ( _has_data_flags ) {
+		flags = new String[ndata];
+	}
+	TSData tsdata = new TSData();
+	DateTime date = new DateTime ( _date1 );
+	for ( int i = 0; i < ndata; i++, date.addInterval(_data_interval_base,_data_interval_mult) ) {
+		getDataPoint ( date, tsdata );
+		values[i] = tsdata.getDataValue();
+		if ( flags != null ) {
+			flags[i] = tsdata.getDataFlag();
+		}
+	}
+	// Reallocate and transfer to the new storage...
+	boolean dirty = _dirty;
+	_flatStorage = flatStorage;
+	allocateDataSpace();
+	date = new DateTime ( _date1 );
+	for ( int i = 0; i < ndata; i++, date.addInterval(_data_interval_base,_data_interval_mult) ) {
+		if ( flags != null ) {
+			setDataValue ( date, values[i], flags[i], 0 );
 		}
 		else {
-		    _dataFlags[_month_pos][_day_pos][_interval_pos] = dataFlag; 
+			setDataValue ( date, values[i] );
 		}
 	}
+	_dirty = dirty;
 }
 
 }
@@ -147,6 +147,9 @@ import RTi.Util.Time.YearType;
 /**
 The MonthTS class is the base class for monthly time series.  Derive from this
 class for specific monthly time series formats (override allocateDataSpace() to control memory management).
+The getDataValue() and getDataPoint() methods compute data positions using only local variables,
+so multiple threads can read a shared instance concurrently as long as no thread is modifying the data
+(each reader should use its own TSData and DateTime instances).
 */
 @SuppressWarnings("serial")
 public class MonthTS extends TS implements Cloneable, Serializable, Transferable
@@ -163,7 +166,6 @@ private	double[][] _data; // This is the data space for monthly values.  The dim
 protected String [][] _dataFlags; // Data flags for each monthly value.  The dimensions are [year][month]
 protected int _min_amon; // Minimum absolute month stored.
 protected int _max_amon; // Maximum absolute month stored.
-private int [] _pos = null; // Use to return data without creating memory all the time.
 
 /**
 Constructor.  Set the dates and call allocateDataSpace() to create space for data.
@@ -514,7 +516,6 @@ public Object clone ()
 						// actual values will
 						// be copied since they
 						// are primitives).
-	//ts._pos = (int [])_pos.clone();
 	// Do it the "hard" way...
     if ( _data == null ) {
         ts._data = null;
@@ -547,9 +548,6 @@ public Object clone ()
             }
         }
     }
-	ts._pos = new int[2];
-	ts._pos[0] = _pos[0];
-	ts._pos[1] = _pos[1];
 	// Now the rest of the data (just set the primitive data types)
 	ts._min_amon = _min_amon;
 	ts._max_amon = _max_amon;
@@ -656,7 +654,6 @@ protected void finalize()
 throws Throwable
 {	_data = null;
 	_dataFlags = null;
-	_pos = null;
 	super.finalize();
 }
 
@@ -1490,13 +1487,16 @@ public TSData getDataPoint ( DateTime date, TSData tsdata )
 		tsdata.setValues ( date, _missing, _data_units, "", 0 );
 		return tsdata;
 	}
-	getDataPosition ( date );
+	// THIS CODE NEEDS TO BE EQUIVALENT IN getDataValue...
+	int row = date.getYear() - _date1.getYear();
+	int column = date.getMonth() - 1; // Zero offset!
+	// ... END OF EQUIVALENT CODE.
 	if ( _has_data_flags ) {
 	    if ( _internDataFlagStrings ) {
-	        tsdata.setValues ( date, getDataValue(date), _data_units, _dataFlags[_pos[0]][_pos[1]].intern(), 0 );
+	        tsdata.setValues ( date, getDataValue(date), _data_units, _dataFlags[row][column].intern(), 0 );
 	    }
 	    else {
-	        tsdata.setValues ( date, getDataValue(date), _data_units, _dataFlags[_pos[0]][_pos[1]], 0 );
+	        tsdata.setValues ( date, getDataValue(date), _data_units, _dataFlags[row][column], 0 );
 	    }
 	}
 	else {
@@ -1517,8 +1517,7 @@ Return the data position.
 </pre>
 @return An array of integers containing the position in the data array
 corresponding to the date.  Return null if the date is outside the period of
-record.  The array that is used is re-used in order to increase performance.  You
-must copy the information after the return to ensure protecting the data.
+record.  A new array is returned for each call so that concurrent callers do not share state.
 @param date Date of interest.
 */
 protected int [] getDataPosition ( DateTime date )
@@ -1545,10 +1544,11 @@ protected int [] getDataPosition ( DateTime date )
 		return null;
 	}
 
-	_pos[0] = date.getYear() - _date1.getYear();
-	_pos[1] = date.getMonth() - 1;	// Zero offset!
+	int [] pos = new int[2];
+	pos[0] = date.getYear() - _date1.getYear();
+	pos[1] = date.getMonth() - 1;	// Zero offset!
 
-	return _pos;
+	return pos;
 }
 
 /**
@@ -1669,9 +1669,6 @@ private void init( )
 	_data_interval_mult = 1;
 	_data_interval_base_original = TimeInterval.MONTH;
 	_data_interval_mult_original = 1;
-	_pos = new int[2];
-	_pos[0] = 0;
-	_pos[1] = 0;
 	_min_amon = 0;
 	_max_amon = 0;
 }
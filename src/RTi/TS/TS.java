@@ -1393,6 +1393,17 @@ public int getDataIntervalMultOriginal()
 {	return _data_interval_mult_original;
 }
 
+/**
+Return the position of a date/time in the data space, counted in time steps of the data interval from the
+start of the period (0 corresponds to getDate1(); for example, 1 corresponds to getDate1() plus 6 hours
+for 6Hour data).  This method should be defined in derived classes that store regular interval data.
+@param date date/time of interest.
+@return the position of the date/time in the data space, or -1 if not supported.
+*/
+public int getDataIndex ( DateTime date )
+{	return -1;
+}
+
 /**
 Return the time series data limits (a new copy is returned).  If necessary, the
 limits are refreshed.  The refresh() method should be defined in the derived class.
@@ -1493,6 +1504,32 @@ public double getDataValue( DateTime date )
 	return _missing;
 }
 
+/**
+Copy consecutive data values into an array, starting at a position in the period.
+This implementation iterates through the period using getDataValue() and derived
+classes may override to copy values more efficiently.
+@param startIndex position of the first value to copy, counted in time steps of the data interval
+from the start of the period (0 corresponds to getDate1(); for example, 1 corresponds to getDate1() plus 6 hours
+for 6Hour data), consistent with getDataIndex().
+@param values array to receive the data values - up to values.length values are copied.
+@return the number of values that were copied, which will be less than values.length
+if the end of the period is reached.
+*/
+public int getDataValues ( int startIndex, double [] values )
+{	if ( (values == null) || (startIndex < 0) || (_date1 == null) || (_date2 == null) ||
+	    (_data_interval_base == TimeInterval.IRREGULAR) ) {
+		return 0;
+	}
+	DateTime date = new DateTime ( _date1 );
+	date.addInterval ( _data_interval_base, _data_interval_mult*startIndex );
+	int count = 0;
+	for ( ; (count < values.length) && date.lessThanOrEqualTo(_date2);
+		date.addInterval(_data_interval_base, _data_interval_mult), count++ ) {
+		values[count] = getDataValue ( date );
+	}
+	return count;
+}
+
 /**
 Return the first date in the period of record (returns a copy).
 @return The first date in the period of record, or null if the date is null.
@@ -1864,6 +1901,16 @@ public boolean isDataMissing ( double value )
 	return false;
 }
 
+/**
+Indicate whether the data values are stored in a single contiguous array, in which case
+getDataValues() and setDataValues() copy blocks of values without date/time iteration.
+This implementation returns false and derived classes that support such storage should override.
+@return true if the data values are stored in a contiguous array, false if not.
+*/
+public boolean isFlatStorage ()
+{	return false;
+}
+
 /**
 Indicate whether the time series is dirty (data have been modified).
 @return true if the time series is dirty, false if not.
@@ -2051,6 +2098,32 @@ public void setDataValue ( DateTime date, double val, String data_flag,	int dura
 	"virtual and should be implemented in derived classes" );
 }
 
+/**
+Set consecutive data values from an array, starting at a position in the period.
+This implementation iterates through the period using setDataValue() and derived
+classes may override to copy values more efficiently.  Data flags are not changed.
+@param startIndex position of the first value to set, counted in time steps of the data interval
+from the start of the period (0 corresponds to getDate1(); for example, 1 corresponds to getDate1() plus 6 hours
+for 6Hour data), consistent with getDataIndex().
+@param values data values to set - up to values.length values are set.
+@return the number of values that were set, which will be less than values.length
+if the end of the period is reached.
+*/
+public int setDataValues ( int startIndex, double [] values )
+{	if ( (values == null) || (startIndex < 0) || (_date1 == null) || (_date2 == null) ||
+	    (_data_interval_base == TimeInterval.IRREGULAR) ) {
+		return 0;
+	}
+	DateTime date = new DateTime ( _date1 );
+	date.addInterval ( _data_interval_base, _data_interval_mult*startIndex );
+	int count = 0;
+	for ( ; (count < values.length) && date.lessThanOrEqualTo(_date2);
+		date.addInterval(_data_interval_base, _data_interval_mult), count++ ) {
+		setDataValue ( date, values[count] );
+	}
+	return count;
+}
+
 /**
 Set the first date in the period.  A copy is made.
 The date precision is set to the precision appropriate for the time series.
@@ -60,6 +60,11 @@ information like county and state can be set as a property.
 */
 private LinkedHashMap<String,Object> __property_HashMap = null;
 
+/**
+Dense storage for the traces, or null if the traces are stored as separate time series (see setDenseStorage()).
+*/
+private TSEnsembleMatrix __matrix = null;
+
 /**
 Create a new ensemble.  An empty list of time series will be used.
 */
@@ -100,6 +105,7 @@ Add a time series to the ensemble.
 */
 public void add ( TS ts )
 {   __tslist.add ( ts );
+    __matrix = null;
 }
 
 /**
@@ -124,6 +130,15 @@ public Object clone ()
                 ensemble.add ( (TS)ts.clone() );
             }
         }
+        if ( __matrix != null ) {
+            // Cloned traces each have their own data so store the copies densely
+            try {
+                ensemble.setDenseStorage ( true );
+            }
+            catch ( Exception e ) {
+                // Should not happen because the copies have the same period and interval - keep separate storage.
+            }
+        }
         return ensemble;
     }
     catch ( CloneNotSupportedException e ) {
@@ -141,6 +156,14 @@ public TS get ( int pos )
 {   return __tslist.get ( pos );
 }
 
+/**
+Return the dense storage for the traces.
+@return the matrix containing the trace data, or null if dense storage is not being used.
+*/
+public TSEnsembleMatrix getDenseStorage ()
+{   return __matrix;
+}
+
 /**
 Return the ensemble identifier.
 @return The ensemble identifier.
@@ -241,9 +264,49 @@ Remove the time series object from the ensemble.
 */
 public boolean remove ( Object ts )
 {
+    __matrix = null;
     return __tslist.remove ( ts );
 }
 
+/**
+Set whether the traces are stored densely, as one TSEnsembleMatrix with a shared time axis.
+When enabled, the data for the traces are copied into the matrix and the time series in the ensemble are replaced
+with EnsembleMatrixTS instances that read and write the matrix, so that cross-trace processing can use time slices
+of the matrix.  When disabled, the time series are replaced with new time series of the normal type for the interval.
+Adding, removing, or setting time series in the ensemble ends dense storage (the matrix traces continue to be valid
+time series but the matrix no longer corresponds to the ensemble).
+@param denseStorage if true, store the traces densely; if false, store the traces as separate time series.
+@exception IllegalArgumentException if dense storage is requested and the traces cannot be stored in a matrix,
+for example because they have different intervals or have data flags (see TSEnsembleMatrix).
+@exception Exception if dense storage is disabled and a time series cannot be created.
+*/
+public void setDenseStorage ( boolean denseStorage )
+throws Exception
+{
+    if ( denseStorage ) {
+        if ( __matrix == null ) {
+            TSEnsembleMatrix matrix = new TSEnsembleMatrix ( __tslist );
+            for ( int i = 0; i < matrix.getTraceCount(); i++ ) {
+                __tslist.set ( i, matrix.getTrace(i) );
+            }
+            __matrix = matrix;
+        }
+    }
+    else if ( __matrix != null ) {
+        double [] values = new double[__matrix.getStepCount()];
+        for ( int i = 0; i < __matrix.getTraceCount(); i++ ) {
+            EnsembleMatrixTS trace = __matrix.getTrace(i);
+            TS ts = TSUtil.newTimeSeries ( trace.getIdentifierString(), true );
+            ts.copyHeader ( trace );
+            ts.allocateDataSpace();
+            __matrix.getTraceValues ( i, 0, values );
+            ts.setDataValues ( 0, values );
+            __tslist.set ( i, ts );
+        }
+        __matrix = null;
+    }
+}
+
 /**
 Set the ensemble identifier.
 @param id The ensemble identifier.
@@ -314,6 +377,7 @@ public void set ( int index, TS ts )
     }
     // Set the time series...
     __tslist.set( index, ts);
+    __matrix = null;
 }
 
 /**
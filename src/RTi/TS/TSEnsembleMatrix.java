@@ -0,0 +1,480 @@
+// TSEnsembleMatrix - dense storage for the aligned traces of an ensemble
+
+/* NoticeStart
+
+CDSS Common Java Library
+CDSS Common Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Common Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Common Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Common Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package RTi.TS;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import RTi.Util.Time.DateTime;
+import RTi.Util.Time.DateTimeKey;
+import RTi.Util.Time.TimeInterval;
+
+/**
+Dense storage for the traces of an ensemble that have the same regular interval.  The data values for all traces
+are stored in one contiguous array with a shared time axis, in time-major order:
+<pre>
+    data[step*traceCount + trace]
+</pre>
+Consequently the values for all traces at a time step (a time slice, or row) are adjacent and can be scanned
+sequentially, which is the access pattern for cross-trace statistics.  The values for one trace (a column)
+are accessed with a stride of traceCount.
+<p>
+Each trace is also available as an EnsembleMatrixTS, which is a TS that reads and writes the shared array
+without copying, so that the matrix can be used with code that expects a list of time series.
+The period of the matrix is the union of the trace periods, with values outside a trace's period set to the
+missing value for the trace.  The period cannot be changed after the matrix is created.
+*/
+public class TSEnsembleMatrix implements Serializable
+{
+
+private static final long serialVersionUID = 1L;
+
+/**
+Data values, time-major (see class description).
+*/
+private double [] __data;
+
+/**
+Number of traces (columns).
+*/
+private int __traceCount;
+
+/**
+Number of time steps (rows).
+*/
+private int __stepCount;
+
+/**
+Interval base for the shared time axis.
+*/
+private int __intervalBase;
+
+/**
+Interval multiplier for the shared time axis.
+*/
+private int __intervalMult;
+
+/**
+First date/time of the shared time axis.
+*/
+private DateTime __date1;
+
+/**
+Last date/time of the shared time axis.
+*/
+private DateTime __date2;
+
+/**
+Precision used to encode date/times for the time axis.
+*/
+private int __precision;
+
+/**
+Encoded first and last date/times, used to compute the step for a date/time without iteration.
+*/
+private long __key1;
+private long __key2;
+
+/**
+Time series facades for the traces.
+*/
+private EnsembleMatrixTS [] __traces;
+
+/**
+Create a matrix for the traces of an ensemble, using the union of the trace periods.
+@param ensemble ensemble containing the traces.
+@exception IllegalArgumentException if the traces cannot be stored in a matrix (see the list constructor).
+*/
+public TSEnsembleMatrix ( TSEnsemble ensemble )
+{
+    this ( ensemble.getTimeSeriesList(false) );
+}
+
+/**
+Create a matrix for a list of traces, using the union of the trace periods.
+The data values are copied from the traces into the matrix.
+@param tslist list of traces, which must be non-null and have the same regular interval, with
+periods that start on the same time axis (for example, all hourly traces starting on the hour).
+Data flags are not stored in the matrix, so traces must not have data flags.
+@exception IllegalArgumentException if the list is empty, a trace is null or has no period, a trace has data
+flags, the traces have different or unsupported intervals, or a trace does not align with the time axis.
+*/
+public TSEnsembleMatrix ( List<TS> tslist )
+{   String routine = getClass().getSimpleName();
+    if ( (tslist == null) || (tslist.size() == 0) ) {
+        throw new IllegalArgumentException ( routine + ": no traces are available to create the matrix." );
+    }
+    __traceCount = tslist.size();
+    // Check the traces and determine the shared time axis
+    for ( int i = 0; i < __traceCount; i++ ) {
+        TS ts = tslist.get(i);
+        if ( (ts == null) || (ts.getDate1() == null) || (ts.getDate2() == null) ) {
+            throw new IllegalArgumentException ( routine + ": trace [" + i + "] is null or has no period." );
+        }
+        if ( ts.hasDataFlags() ) {
+            // Flags are not stored in the matrix so would be lost
+            throw new IllegalArgumentException ( routine + ": trace \"" + ts.getIdentifierString() +
+                "\" has data flags, which cannot be stored in an ensemble matrix." );
+        }
+        if ( i == 0 ) {
+            __intervalBase = ts.getDataIntervalBase();
+            __intervalMult = ts.getDataIntervalMult();
+            if ( (__intervalBase == TimeInterval.IRREGULAR) || !DateTimeKey.isIntervalSupported(__intervalBase) ) {
+                throw new IllegalArgumentException ( routine + ": interval for trace \"" +
+                    ts.getIdentifierString() + "\" is not supported for an ensemble matrix." );
+            }
+            __date1 = new DateTime ( ts.getDate1() );
+            __date2 = new DateTime ( ts.getDate2() );
+            __precision = __date1.getPrecision();
+        }
+        else {
+            if ( (ts.getDataIntervalBase() != __intervalBase) || (ts.getDataIntervalMult() != __intervalMult) ) {
+                throw new IllegalArgumentException ( routine + ": interval for trace \"" +
+                    ts.getIdentifierString() + "\" is different from the first trace." );
+            }
+            if ( ts.getDate1().lessThan(__date1) ) {
+                __date1 = new DateTime ( ts.getDate1() );
+            }
+            if ( ts.getDate2().greaterThan(__date2) ) {
+                __date2 = new DateTime ( ts.getDate2() );
+            }
+        }
+    }
+    __key1 = DateTimeKey.toKey ( __date1, __precision );
+    __key2 = DateTimeKey.toKey ( __date2, __precision );
+    long stepCount = DateTimeKey.intervalsBetween ( __key1, __key2, __intervalBase, __intervalMult ) + 1;
+    if ( (stepCount*__traceCount) > Integer.MAX_VALUE ) {
+        throw new IllegalArgumentException ( routine + ": ensemble has too many values (" + stepCount + " steps x " +
+            __traceCount + " traces) for an ensemble matrix." );
+    }
+    __stepCount = (int)stepCount;
+    __data = new double[__stepCount*__traceCount];
+    // Copy the values for each trace, reading the trace sequentially
+    __traces = new EnsembleMatrixTS[__traceCount];
+    for ( int i = 0; i < __traceCount; i++ ) {
+        TS ts = tslist.get(i);
+        long key = DateTimeKey.toKey ( ts.getDate1(), __precision );
+        long offset = DateTimeKey.intervalsBetween ( __key1, key, __intervalBase, __intervalMult );
+        if ( DateTimeKey.plusIntervals(__key1, __intervalBase, __intervalMult, offset) != key ) {
+            throw new IllegalArgumentException ( routine + ": start " + ts.getDate1() + " for trace \"" +
+                ts.getIdentifierString() + "\" does not align with the time axis starting at " + __date1 + "." );
+        }
+        int count = (int)DateTimeKey.intervalsBetween ( key, DateTimeKey.toKey(ts.getDate2(), __precision),
+            __intervalBase, __intervalMult ) + 1;
+        double [] values = new double[count];
+        count = ts.getDataValues ( 0, values );
+        double missing = ts.getMissing();
+        int pos = i;
+        for ( int it = 0; it < __stepCount; it++, pos += __traceCount ) {
+            int its = it - (int)offset;
+            if ( (its >= 0) && (its < count) ) {
+                __data[pos] = values[its];
+            }
+            else {
+                __data[pos] = missing;
+            }
+        }
+        __traces[i] = new EnsembleMatrixTS ( this, i, ts );
+    }
+}
+
+/**
+Create a matrix that is a copy of one trace from another matrix.  This is used to clone a trace facade.
+@param matrix matrix to copy from.
+@param trace trace (0+) to copy.
+*/
+TSEnsembleMatrix ( TSEnsembleMatrix matrix, int trace )
+{
+    __traceCount = 1;
+    __stepCount = matrix.__stepCount;
+    __intervalBase = matrix.__intervalBase;
+    __intervalMult = matrix.__intervalMult;
+    __date1 = new DateTime ( matrix.__date1 );
+    __date2 = new DateTime ( matrix.__date2 );
+    __precision = matrix.__precision;
+    __key1 = matrix.__key1;
+    __key2 = matrix.__key2;
+    __data = new double[__stepCount];
+    matrix.getTraceValues ( trace, 0, __data );
+    __traces = new EnsembleMatrixTS[1];
+}
+
+/**
+Return the data array, which is the storage for the matrix (not a copy).
+Values are stored in time-major order, as data[step*getTraceCount() + trace].
+@return the data array for the matrix.
+*/
+public double [] getData ()
+{   return __data;
+}
+
+/**
+Return the interval base for the time axis.
+@return the interval base for the time axis.
+*/
+public int getDataIntervalBase ()
+{   return __intervalBase;
+}
+
+/**
+Return the interval multiplier for the time axis.
+@return the interval multiplier for the time axis.
+*/
+public int getDataIntervalMult ()
+{   return __intervalMult;
+}
+
+/**
+Return the first date/time of the time axis (a copy).
+@return the first date/time of the time axis.
+*/
+public DateTime getDate1 ()
+{   return new DateTime ( __date1 );
+}
+
+/**
+Return the last date/time of the time axis (a copy).
+@return the last date/time of the time axis.
+*/
+public DateTime getDate2 ()
+{   return new DateTime ( __date2 );
+}
+
+/**
+Set a DateTime to the date/time for a time step.  No objects are allocated, which is useful when iterating.
+@param step time step (0+).
+@param date DateTime to set, which should have the precision of getDate1().
+@return the DateTime that was passed in.
+*/
+public DateTime getDateTime ( int step, DateTime date )
+{   DateTimeKey.setDateTime ( DateTimeKey.plusIntervals(__key1, __intervalBase, __intervalMult, step), date );
+    return date;
+}
+
+/**
+Return the number of time steps (rows) in the matrix.
+@return the number of time steps in the matrix.
+*/
+public int getStepCount ()
+{   return __stepCount;
+}
+
+/**
+Return the time step for a date/time, computed without iteration.
+@param date date/time of interest.
+@return the time step (0+), or -1 if the date/time is null or outside the period of the matrix.
+*/
+public int getStepIndex ( DateTime date )
+{   if ( date == null ) {
+        return -1;
+    }
+    long key = DateTimeKey.toKey ( date, __precision );
+    if ( (key < __key1) || (key > __key2) ) {
+        return -1;
+    }
+    return (int)DateTimeKey.intervalsBetween ( __key1, key, __intervalBase, __intervalMult );
+}
+
+/**
+Copy the values for all traces at a time step (a row) into an array, in trace order.
+@param step time step (0+).
+@param values array to receive the values, which must have at least getTraceCount() elements.
+@return the array that was passed in, or a new array if null.
+*/
+public double [] getTimeSlice ( int step, double [] values )
+{   if ( values == null ) {
+        values = new double[__traceCount];
+    }
+    System.arraycopy ( __data, step*__traceCount, values, 0, __traceCount );
+    return values;
+}
+
+/**
+Copy the values for all traces at a date/time (a row) into an array, in trace order.
+@param date date/time of interest.
+@param values array to receive the values, which must have at least getTraceCount() elements.
+@return the array that was passed in, or a new array if null, or null if the date/time is outside the period.
+*/
+public double [] getTimeSlice ( DateTime date, double [] values )
+{   int step = getStepIndex ( date );
+    if ( step < 0 ) {
+        return null;
+    }
+    return getTimeSlice ( step, values );
+}
+
+/**
+Copy the values for all traces at consecutive time steps (several rows) into an array, in time-major order.
+@param step first time step (0+).
+@param values array to receive the values - as many complete rows as fit are copied.
+@return the number of time steps that were copied.
+*/
+public int getTimeSlices ( int step, double [] values )
+{   if ( (values == null) || (step < 0) || (step >= __stepCount) ) {
+        return 0;
+    }
+    int count = Math.min ( values.length/__traceCount, __stepCount - step );
+    System.arraycopy ( __data, step*__traceCount, values, 0, count*__traceCount );
+    return count;
+}
+
+/**
+Return the time series facade for a trace, which reads and writes the matrix data without copying.
+@param trace trace (0+).
+@return the time series for the trace.
+*/
+public EnsembleMatrixTS getTrace ( int trace )
+{   return __traces[trace];
+}
+
+/**
+Return the number of traces (columns) in the matrix.
+@return the number of traces in the matrix.
+*/
+public int getTraceCount ()
+{   return __traceCount;
+}
+
+/**
+Return the list of time series facades for the traces (a new list, with the same time series instances).
+@return the list of time series facades, in trace order.
+*/
+public List<TS> getTraceList ()
+{   List<TS> tslist = new ArrayList<TS>(__traceCount);
+    for ( int i = 0; i < __traceCount; i++ ) {
+        tslist.add ( __traces[i] );
+    }
+    return tslist;
+}
+
+/**
+Copy consecutive values for a trace (a column) into an array.
+@param trace trace (0+).
+@param step first time step (0+).
+@param values array to receive the values - up to values.length values are copied.
+@return the number of values that were copied.
+*/
+public int getTraceValues ( int trace, int step, double [] values )
+{   if ( (values == null) || (step < 0) || (step >= __stepCount) ) {
+        return 0;
+    }
+    int count = Math.min ( values.length, __stepCount - step );
+    int pos = step*__traceCount + trace;
+    for ( int it = 0; it < count; it++, pos += __traceCount ) {
+        values[it] = __data[pos];
+    }
+    return count;
+}
+
+/**
+Return the value for a trace at a time step.
+@param step time step (0+).
+@param trace trace (0+).
+@return the value for the trace at the time step.
+*/
+public double getValue ( int step, int trace )
+{   return __data[step*__traceCount + trace];
+}
+
+/**
+Indicate whether an array of time series contains the facades for the traces of this matrix, in trace order.
+This can be checked before using the time slice methods in place of reading each time series.
+@param tsArray array of time series.
+@return true if the array contains the traces of the matrix in order, false if not.
+*/
+public boolean isTraceArray ( TS [] tsArray )
+{   if ( (tsArray == null) || (tsArray.length != __traceCount) ) {
+        return false;
+    }
+    for ( int i = 0; i < __traceCount; i++ ) {
+        if ( tsArray[i] != __traces[i] ) {
+            return false;
+        }
+    }
+    return true;
+}
+
+/**
+Set the facade for a trace, used when a matrix is created by copying a trace.
+*/
+void setTrace ( int trace, EnsembleMatrixTS ts )
+{   __traces[trace] = ts;
+}
+
+/**
+Set the values for all traces at a time step (a row), in trace order.
+@param step time step (0+).
+@param values values to set, which must have at least getTraceCount() elements.
+*/
+public void setTimeSlice ( int step, double [] values )
+{   System.arraycopy ( values, 0, __data, step*__traceCount, __traceCount );
+    setTracesDirty ();
+}
+
+/**
+Mark all trace facades as dirty, so that data limits are recomputed.
+*/
+private void setTracesDirty ()
+{   for ( int i = 0; i < __traceCount; i++ ) {
+        if ( __traces[i] != null ) {
+            __traces[i].setDirty ( true );
+        }
+    }
+}
+
+/**
+Set consecutive values for a trace (a column) from an array.
+@param trace trace (0+).
+@param step first time step (0+).
+@param values values to set - up to values.length values are set.
+@return the number of values that were set.
+*/
+public int setTraceValues ( int trace, int step, double [] values )
+{   if ( (values == null) || (step < 0) || (step >= __stepCount) ) {
+        return 0;
+    }
+    int count = Math.min ( values.length, __stepCount - step );
+    int pos = step*__traceCount + trace;
+    for ( int it = 0; it < count; it++, pos += __traceCount ) {
+        __data[pos] = values[it];
+    }
+    if ( __traces[trace] != null ) {
+        __traces[trace].setDirty ( true );
+    }
+    return count;
+}
+
+/**
+Set the value for a trace at a time step.  The trace is not marked as dirty, so call
+getTrace(trace).setDirty(true) after changing values if the data limits will be used.
+@param step time step (0+).
+@param trace trace (0+).
+@param value value to set.
+*/
+public void setValue ( int step, int trace, double value )
+{   __data[step*__traceCount + trace] = value;
+}
+
+}
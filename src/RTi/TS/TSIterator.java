@@ -27,6 +27,7 @@ import java.security.InvalidParameterException;
 
 import RTi.Util.Message.Message;
 import RTi.Util.Time.DateTime;
+import RTi.Util.Time.DateTimeKey;
 
 /**
 The TSIterator allows iteration through a regular-interval time series.
@@ -265,6 +266,14 @@ public boolean hasNext ()
 {
 	// For a regular time series, add one interval to the current date and see if
 	// it is past the end of the iterator
+	if ( DateTimeKey.isEquivalentToAddInterval(this._currentDate, this._intervalBase) ) {
+		// Compare encoded date/times to avoid allocating a DateTime, using the precision of the current date/time,
+		// consistent with greaterThan()
+		int precision = this._currentDate.getPrecision();
+		long nextKey = DateTimeKey.plusIntervals ( DateTimeKey.toKey(this._currentDate, precision),
+			this._intervalBase, this._intervalMult, 1 );
+		return nextKey <= DateTimeKey.toKey(this._date2, precision);
+	}
 	DateTime dt = new DateTime(this._currentDate);
 	dt.addInterval(this._intervalBase, this._intervalMult);
 	if ( dt.greaterThan(this._date2) ) {
@@ -376,16 +376,14 @@ throws TSException
 	
 			IrregularTS its = (IrregularTS)ts;
 	
-			List<TSData> data_array = its.getData ();
-			if ( data_array == null ) {
+			// Access the data by position so that packed storage is not converted to a list
+			if ( !its.hasData() ) {
 				message = "Null data for " + ts;
 				Message.printWarning ( 3, routine, message );
 				throw new TSException ( message );
 			}
-			int size = data_array.size();
-			TSData ptr = null;
-			for ( int i = 0; i < size; i++ ) {
-				ptr = data_array.get(i);
+			TSData ptr = null, ptrPacked = new TSData();
+			for ( int i = 0; (ptr = its.getDataPointAt(i, ptrPacked)) != null; i++ ) {
 				date = ptr.getDate();
 		
 				if ( date.lessThan( ts_date1 ) ) {
@@ -445,8 +443,8 @@ throws TSException
 	        }
 			// Now search backwards to find the first non-missing date...
 			if ( found ) {
-				for ( int i = (size - 1); i >= 0; i-- ){
-					ptr = data_array.get(i);
+				for ( int i = (its.getDataSize() - 1); i >= 0; i-- ){
+					ptr = its.getDataPointAt(i, ptrPacked);
 					date = ptr.getDate();
 					value = ptr.getDataValue();
 					if ( date.greaterThan(end) ) {
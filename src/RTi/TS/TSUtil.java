@@ -334,6 +334,7 @@ import RTi.Util.Math.RegressionType;
 import RTi.Util.Message.Message;
 import RTi.Util.String.StringUtil;
 import RTi.Util.Time.DateTime;
+import RTi.Util.Time.DateTimeKey;
 import RTi.Util.Time.InvalidTimeIntervalException;
 import RTi.Util.Time.TimeInterval;
 import RTi.Util.Time.TimeUtil;
@@ -345,6 +346,7 @@ import java.io.PrintWriter;
 import java.lang.String;
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 // TODO SAM 2016-01-31 Need to split out calculation methods into helper classes.
@@ -779,9 +781,56 @@ throws TSException, Exception
 				endDate.setDate(addEnd); // Will ensure precision is correct
 			}
 			DateTime date = new DateTime ( startDate );
+			// If both time series use contiguous storage and the time series to add covers the period, add the
+			// values as a block rather than iterating by date/time (debug messages are only printed by the loop)
+			boolean addBlock = false;
+			int tsStart = -1;
+			int tsptStart = -1;
+			if ( !Message.isDebugOn ) {
+				tsStart = getFlatStorageIndex ( ts, startDate, endDate );
+				if ( tsStart >= 0 ) {
+					tsptStart = getFlatStorageIndex ( tspt, startDate, endDate );
+				}
+			}
+			if ( tsptStart >= 0 ) {
+				double [] values = new double[ts.getDataIndex(endDate) - tsStart + 1];
+				double [] valuesToAdd = new double[values.length];
+				ts.getDataValues ( tsStart, values );
+				tspt.getDataValues ( tsptStart, valuesToAdd );
+				// Same logic as the loop below
+				for ( timestepIndex = 0; timestepIndex < values.length; timestepIndex++ ) {
+					if ( setToMissing && missingIndicators[timestepIndex] ) {
+						++nmissing;
+						continue;
+					}
+					dataValueToAdd = valuesToAdd[timestepIndex];
+					if ( tspt.isDataMissing ( dataValueToAdd ) ) {
+						++nmissing;
+						if ( setToMissing ) {
+							missingIndicators[timestepIndex] = true;
+							values[timestepIndex] = tsMissing;
+						}
+						continue;
+					}
+					dataValue = values[timestepIndex];
+					if ( ts.isDataMissing( dataValue ) ) {
+						if ( missingFlag == SET_MISSING_IF_ANY_MISSING ) {
+							missingIndicators[timestepIndex] = true;
+							++nmissing;
+							continue;
+						}
+						values[timestepIndex] = (dataValueToAdd*mult + add)*factor[i];
+					}
+					else {
+						values[timestepIndex] = dataValue + (dataValueToAdd*mult + add)*factor[i];
+					}
+				}
+				ts.setDataValues ( tsStart, values );
+				addBlock = true;
+			}
 			
 			for ( timestepIndex = 0;
-				date.lessThanOrEqualTo( endDate);
+				!addBlock && date.lessThanOrEqualTo( endDate);
 				date.addInterval(intervalBase, intervalMult),
 				++timestepIndex ) {
 				// If a previous time series had missing data at this time step and setToMissing is true
@@ -984,8 +1033,29 @@ public static void addConstant(	TS ts, DateTime start_date,
 		start.setPrecision( interval_base );
 		end.setPrecision ( interval_base );
 		DateTime date = new DateTime ( start );
+		// If all months are processed and the time series uses contiguous storage,
+		// process the values as a block rather than iterating by date/time
+		boolean addBlock = false;
+		int tsStart = -1;
+		if ( month < 0 ) {
+			tsStart = getFlatStorageIndex ( ts, start, end );
+		}
+		if ( tsStart >= 0 ) {
+			double [] values = new double[ts.getDataIndex(end) - tsStart + 1];
+			ts.getDataValues ( tsStart, values );
+			for ( int i = 0; i < values.length; i++ ) {
+				if ( !ts.isDataMissing(values[i]) ) {
+					values[i] = values[i] + add_value;
+				}
+				else if ( missing_flag == IGNORE_MISSING ) {
+					values[i] = add_value;
+				}
+			}
+			ts.setDataValues ( tsStart, values );
+			addBlock = true;
+		}
 		
-		for ( ; date.lessThanOrEqualTo( end ); date.addInterval(interval_base, interval_mult) ) {
+		for ( ; !addBlock && date.lessThanOrEqualTo( end ); date.addInterval(interval_base, interval_mult) ) {
 			if ( (month >= 0) && (date.getMonth() != month) ) {
 				continue;
 			}
@@ -3219,7 +3289,32 @@ throws Exception
 	double missing = ts.getMissing();
 	double oldvalue = 0.0;
 	double div = 0.0;
-	for ( ; date.lessThanOrEqualTo( end ); date.addInterval(interval_base, interval_mult) ) {
+	// If both time series use contiguous storage and the divisor covers the period,
+	// divide the values as a block rather than iterating by date/time
+	boolean divideBlock = false;
+	int tsStart = getFlatStorageIndex ( ts, start, end );
+	int tsdStart = -1;
+	if ( tsStart >= 0 ) {
+		tsdStart = getFlatStorageIndex ( tsd, start, end );
+	}
+	if ( tsdStart >= 0 ) {
+		double [] values = new double[ts.getDataIndex(end) - tsStart + 1];
+		double [] divisors = new double[values.length];
+		ts.getDataValues ( tsStart, values );
+		tsd.getDataValues ( tsdStart, divisors );
+		for ( int i = 0; i < values.length; i++ ) {
+			div = divisors[i];
+			if ( ts.isDataMissing(values[i]) || ts.isDataMissing(div) || (div == 0.0) ) {
+				values[i] = missing;
+			}
+			else {
+				values[i] = values[i]/div;
+			}
+		}
+		ts.setDataValues ( tsStart, values );
+		divideBlock = true;
+	}
+	for ( ; !divideBlock && date.lessThanOrEqualTo( end ); date.addInterval(interval_base, interval_mult) ) {
 		oldvalue = ts.getDataValue(date);
 		div = tsd.getDataValue(date);
 		if ( ts.isDataMissing(oldvalue) || ts.isDataMissing(div) || (div == 0.0) ) {
@@ -5752,22 +5847,26 @@ throws Exception
     					if ( !ts.isDataMissing(data_value) ) {
     						ratio=data_value/independent_data_value;
     						ratio_found = true;
-    						Message.printStatus ( 2, routine,
-    						loc + " " + dt + " Ratio ts/indepts computed on "
-    						+ date + " " + StringUtil.formatString(
-    						data_value,"%.6f") + "/" + StringUtil.formatString(
-    						independent_data_value,"%.6f")+	"=" + StringUtil.formatString(ratio,"%.6f") );
+    						if ( Message.isStatusLevelEnabled(2) ) {
+    							Message.printStatus ( 2, routine,
+    							loc + " " + dt + " Ratio ts/indepts computed on "
+    							+ date + " " + StringUtil.formatString(
+    							data_value,"%.6f") + "/" + StringUtil.formatString(
+    							independent_data_value,"%.6f")+	"=" + StringUtil.formatString(ratio,"%.6f") );
+    						}
     						break;
     					}
     					// Next, if an initial value is given for ts, use it...
     					if ( InitialValueDouble_boolean ) {
     						ratio = InitialValue_double/independent_data_value;
     						ratio_found = true;
-    						Message.printStatus ( 2,routine, loc + " " + dt +
-    						" Ratio ts/indepts computed on " + date + " " +
-    						StringUtil.formatString(InitialValue_double,"%.6f")+"/"+
-    						StringUtil.formatString(
-    						independent_data_value,"%.6f")+	"=" + StringUtil.formatString(ratio,"%.6f") );
+    						if ( Message.isStatusLevelEnabled(2) ) {
+    							Message.printStatus ( 2,routine, loc + " " + dt +
+    							" Ratio ts/indepts computed on " + date + " " +
+    							StringUtil.formatString(InitialValue_double,"%.6f")+"/"+
+    							StringUtil.formatString(
+    							independent_data_value,"%.6f")+	"=" + StringUtil.formatString(ratio,"%.6f") );
+    						}
     						break;
     					}
     					// Else, keep searching...
@@ -5830,10 +5929,12 @@ throws Exception
     					    ts.setDataValue ( date,	independent_data_value*ratio );
     					}
     					// For development...
-    					Message.printStatus ( 2, routine, "Filling " + date + " with val*ratio "+
-    					StringUtil.formatString(independent_data_value,"%.6f") + "*" +
-    					StringUtil.formatString(ratio,"%.6f") +
-    					"=" + StringUtil.formatString(independent_data_value*ratio,"%.6f") );
+    					if ( Message.isStatusLevelEnabled(2) ) {
+    						Message.printStatus ( 2, routine, "Filling " + date + " with val*ratio "+
+    						StringUtil.formatString(independent_data_value,"%.6f") + "*" +
+    						StringUtil.formatString(ratio,"%.6f") +
+    						"=" + StringUtil.formatString(independent_data_value*ratio,"%.6f") );
+    					}
     					++fill_count;
     				}
     			}
@@ -5916,10 +6017,12 @@ throws Exception
     					if ( InitialValueDouble_boolean ) {
     						ratio = InitialValue_double/independent_data_value;
     						ratio_found = true;
-    						Message.printStatus ( 2, routine, "Ratio ts/indepts computed on "+ date + " " +
-    						StringUtil.formatString(InitialValue_double,"%.6f")+"/"+
-    						StringUtil.formatString(independent_data_value,"%.6f")+
-    						"=" + StringUtil.formatString(ratio,"%.6f") );
+    						if ( Message.isStatusLevelEnabled(2) ) {
+    							Message.printStatus ( 2, routine, "Ratio ts/indepts computed on "+ date + " " +
+    							StringUtil.formatString(InitialValue_double,"%.6f")+"/"+
+    							StringUtil.formatString(independent_data_value,"%.6f")+
+    							"=" + StringUtil.formatString(ratio,"%.6f") );
+    						}
     						break;
     					}
     					// Else, keep searching...
@@ -5944,10 +6047,12 @@ throws Exception
     					    ts.setDataValue ( date, independent_data_value*ratio );
     					}
     					// For development...
-    					Message.printStatus ( 2, routine, "Filling " + date + " with val*ratio "+
-    					StringUtil.formatString( independent_data_value,"%.6f") + "*" +
-    					StringUtil.formatString(ratio,"%.6f") + "=" + StringUtil.formatString(
-    					independent_data_value*ratio,"%.6f") );
+    					if ( Message.isStatusLevelEnabled(2) ) {
+    						Message.printStatus ( 2, routine, "Filling " + date + " with val*ratio "+
+    						StringUtil.formatString( independent_data_value,"%.6f") + "*" +
+    						StringUtil.formatString(ratio,"%.6f") + "=" + StringUtil.formatString(
+    						independent_data_value*ratio,"%.6f") );
+    					}
     					++fill_count;
     				}
     			}
@@ -5959,9 +6064,11 @@ throws Exception
     					// Recalculate the ratio...
     					ratio = data_value/independent_data_value;
     					// For development...
-    					Message.printStatus ( 2, routine, "Ratio ts/indepts computed on " + date + " " +
-    					StringUtil.formatString(data_value,"%.6f") + "/" + StringUtil.formatString(
-    					independent_data_value,"%.6f") + "=" + StringUtil.formatString(ratio,"%.6f"));
+    					if ( Message.isStatusLevelEnabled(2) ) {
+    						Message.printStatus ( 2, routine, "Ratio ts/indepts computed on " + date + " " +
+    						StringUtil.formatString(data_value,"%.6f") + "/" + StringUtil.formatString(
+    						independent_data_value,"%.6f") + "=" + StringUtil.formatString(ratio,"%.6f"));
+    					}
     					ratio_found = true;
     				}
     			}
@@ -7196,15 +7303,13 @@ protected static TSLimits getDataLimits ( TS ts, DateTime start0, DateTime end0,
 
 		IrregularTS its = (IrregularTS)ts;
 
-		List<TSData> data_array = its.getData ();
-		if ( data_array == null ) {
+		// Access the data by position so that packed storage is not converted to a list
+		if ( !its.hasData() ) {
 			Message.printWarning(2,routine,	"Null data for " + ts );
 			return new TSLimits();
 		}
-		int size = data_array.size();
-		TSData ptr = null;
-		for ( int i = 0; i < size; i++ ) {
-			ptr = data_array.get(i);
+		TSData ptr = null, ptrPacked = new TSData();
+		for ( int i = 0; (ptr = its.getDataPointAt(i, ptrPacked)) != null; i++ ) {
 			date = ptr.getDate();
 			if ( date.lessThan( start ) ) {
 				// Still looking for data...
@@ -7261,8 +7366,8 @@ protected static TSLimits getDataLimits ( TS ts, DateTime start0, DateTime end0,
         }
 		// Now search backward to find the first non-missing date...
 		if ( found ) {
-			for ( int i = (size - 1); i >= 0; i-- ){
-				ptr = data_array.get(i);
+			for ( int i = (its.getDataSize() - 1); i >= 0; i-- ){
+				ptr = its.getDataPointAt(i, ptrPacked);
 				date = ptr.getDate();
 				value = ptr.getDataValue();
 				if ( date.greaterThan(end) ) {
@@ -8532,6 +8637,47 @@ public static String[] getTSFormatSpecifiers(boolean includeDescription )
 	return formats;
 }
 
+/**
+Return the position in the contiguous data array of a time series that uses flat storage (see TS.isFlatStorage())
+of the first time step of a loop from start to end using DateTime.addInterval().  The loop can be replaced by
+a block operation (see TS.getDataValues() and TS.setDataValues()) only if the start and end are within the period,
+have the precision of the period, and are aligned with the time steps of the time series, so that the loop time
+steps correspond to consecutive positions.  The number of positions is getDataIndex(end) - start position + 1.
+@param ts time series to check.
+@param start first date/time of the loop.
+@param end last date/time of the loop.
+@return the position of the start, or -1 if the loop cannot be replaced by a block operation.
+*/
+private static int getFlatStorageIndex ( TS ts, DateTime start, DateTime end )
+{	if ( (ts == null) || !ts.isFlatStorage() || (start == null) || (end == null) ) {
+		return -1;
+	}
+	DateTime date1 = ts.getDate1();
+	DateTime date2 = ts.getDate2();
+	int intervalBase = ts.getDataIntervalBase();
+	int intervalMult = ts.getDataIntervalMult();
+	if ( (date1 == null) || (date2 == null) || !DateTimeKey.isEquivalentToAddInterval(start,intervalBase) ) {
+		return -1;
+	}
+	int precision = date1.getPrecision();
+	if ( (start.getPrecision() != precision) || (end.getPrecision() != precision) ||
+		start.lessThan(date1) || end.greaterThan(date2) || end.lessThan(start) ) {
+		return -1;
+	}
+	long key1 = DateTimeKey.toKey ( date1 );
+	long startKey = DateTimeKey.toKey ( start );
+	long endKey = DateTimeKey.toKey ( end );
+	long startIntervals = DateTimeKey.intervalsBetween ( key1, startKey, intervalBase, intervalMult );
+	long endIntervals = DateTimeKey.intervalsBetween ( key1, endKey, intervalBase, intervalMult );
+	if ( (DateTimeKey.plusIntervals(key1, intervalBase, intervalMult, startIntervals) != startKey) ||
+		(DateTimeKey.plusIntervals(key1, intervalBase, intervalMult, endIntervals) != endKey) ||
+		(ts.getDataIndex(start) != startIntervals) || (ts.getDataIndex(end) != endIntervals) ) {
+		// Not aligned with the time steps
+		return -1;
+	}
+	return (int)startIntervals;
+}
+
 /**
 This method takes two dates which are generally the start and end dates for an iteration.  If they are
 specified, they are used (even if they are outside the range of the time series).  If a date is not specified,
@@ -9244,7 +9390,32 @@ throws Exception
 	double missing = ts.getMissing();
 	double oldvalue = 0.0;
 	double mult = 0.0;
-	for ( ; date.lessThanOrEqualTo( end ); date.addInterval(intervalBase, intervalMult) ) {
+	// If both time series use contiguous storage and the multiplier covers the period,
+	// multiply the values as a block rather than iterating by date/time
+	boolean multiplyBlock = false;
+	int tsStart = getFlatStorageIndex ( ts, start, end );
+	int tsmStart = -1;
+	if ( tsStart >= 0 ) {
+		tsmStart = getFlatStorageIndex ( tsm, start, end );
+	}
+	if ( tsmStart >= 0 ) {
+		double [] values = new double[ts.getDataIndex(end) - tsStart + 1];
+		double [] multipliers = new double[values.length];
+		ts.getDataValues ( tsStart, values );
+		tsm.getDataValues ( tsmStart, multipliers );
+		for ( int i = 0; i < values.length; i++ ) {
+			mult = multipliers[i];
+			if ( ts.isDataMissing(values[i]) || ts.isDataMissing(mult) ) {
+				values[i] = missing;
+			}
+			else {
+				values[i] = values[i]*mult;
+			}
+		}
+		ts.setDataValues ( tsStart, values );
+		multiplyBlock = true;
+	}
+	for ( ; !multiplyBlock && date.lessThanOrEqualTo( end ); date.addInterval(intervalBase, intervalMult) ) {
 		oldvalue = ts.getDataValue(date);
 		mult = tsm.getDataValue(date);
 		if ( ts.isDataMissing(oldvalue) || ts.isDataMissing(mult) ) {
@@ -10007,7 +10178,25 @@ throws Exception
 	else {
 	    // Loop using addInterval...
 		DateTime date = new DateTime ( start );
-		for ( ; date.lessThanOrEqualTo( end ); date.addInterval(interval_base, interval_mult) ) {
+		// If all months are scaled by a number and the time series uses contiguous storage,
+		// scale the values as a block rather than iterating by date/time
+		boolean scaleBlock = false;
+		int tsStart = -1;
+		if ( (month < 0) && !DaysInMonth_boolean && !DaysInMonthInverse_boolean ) {
+			tsStart = getFlatStorageIndex ( ts, start, end );
+		}
+		if ( tsStart >= 0 ) {
+			double [] values = new double[ts.getDataIndex(end) - tsStart + 1];
+			ts.getDataValues ( tsStart, values );
+			for ( int i = 0; i < values.length; i++ ) {
+				if ( !ts.isDataMissing(values[i]) ) {
+					values[i] = values[i]*ScaleValue_double;
+				}
+			}
+			ts.setDataValues ( tsStart, values );
+			scaleBlock = true;
+		}
+		for ( ; !scaleBlock && date.lessThanOrEqualTo( end ); date.addInterval(interval_base, interval_mult) ) {
 			if ( (month >= 0) && (date.getMonth() != month) ) {
 				continue;
 			}
@@ -10104,7 +10293,9 @@ public static List<TS> selectTimeSeries ( List<TS> tslist, List<String> tsids, P
 	int j;
 	boolean check_input = true;
 	for ( int i = 0; i < tsids_size; i++ ) {
-		Message.printStatus ( 2, "", "Checking TSID \"" + tsids.get(i) + "\"" );
+		if ( Message.isStatusLevelEnabled(2) ) {
+			Message.printStatus ( 2, "", "Checking TSID \"" + tsids.get(i) + "\"" );
+		}
 		try {
 			tsident = new TSIdent ( (String)tsids.get(i) );
 			if ( (tsident.getInputType().length() == 0) && (tsident.getInputName().length() == 0) ) {
@@ -10118,10 +10309,14 @@ public static List<TS> selectTimeSeries ( List<TS> tslist, List<String> tsids, P
 			ts = tslist.get(j);
 			if ( tsident.matches( ts.getIdentifier().toString(true), true, check_input) ){
 				v.add ( ts );
-				Message.printStatus ( 2, "", "Match: \"" + ts.getIdentifier().toString(true)+ "\"" );
+				if ( Message.isStatusLevelEnabled(2) ) {
+					Message.printStatus ( 2, "", "Match: \"" + ts.getIdentifier().toString(true)+ "\"" );
+				}
 			}
 			else {
-				Message.printStatus ( 2, "", "No match: \"" + ts.getIdentifier().toString(true)+ "\"" );
+				if ( Message.isStatusLevelEnabled(2) ) {
+					Message.printStatus ( 2, "", "No match: \"" + ts.getIdentifier().toString(true)+ "\"" );
+				}
 			}
 		}
 	}
@@ -10190,7 +10385,14 @@ public static void setConstant ( TS ts, DateTime start_date, DateTime end_date,
 	else {
 	    // Loop using addInterval...
 		DateTime date = new DateTime ( start );
-		for ( ; date.lessThanOrEqualTo( end ); date.addInterval(interval_base, interval_mult) ) {
+		// If the time series uses contiguous storage, set the values as a block rather than iterating by date/time
+		int tsStart = getFlatStorageIndex ( ts, start, end );
+		if ( tsStart >= 0 ) {
+			double [] values = new double[ts.getDataIndex(end) - tsStart + 1];
+			Arrays.fill ( values, value );
+			ts.setDataValues ( tsStart, values );
+		}
+		for ( ; (tsStart < 0) && date.lessThanOrEqualTo( end ); date.addInterval(interval_base, interval_mult) ) {
 			ts.setDataValue ( date, value );
 		}
 	}
@@ -10462,7 +10664,37 @@ throws Exception
 	    doSetWindow = true;
 	}
 	double outputMissingVal = dependentTS.getMissing();
-	for ( ; date.lessThanOrEqualTo( end ); date.addInterval(interval_base, interval_mult) ) {
+	// If both time series use contiguous storage with the same interval and the independent time series
+	// covers the period, transfer the values as a block rather than iterating by date/time
+	boolean transferBlock = false;
+	if ( transfer_bydate && !setDataFlags && !doSetFlag && !setOnlyMissingValues && !doSetWindow &&
+		dependentTS.isFlatStorage() && independentTS.isFlatStorage() &&
+		(independentTS.getDataIntervalBase() == interval_base) &&
+		(independentTS.getDataIntervalMult() == interval_mult) &&
+		!start.lessThan(independentTS.getDate1()) && !end.greaterThan(independentTS.getDate2()) ) {
+		int dependentStart = dependentTS.getDataIndex ( start );
+		double [] values = new double[dependentTS.getDataIndex(end) - dependentStart + 1];
+		independentTS.getDataValues ( independentTS.getDataIndex(start), values );
+		double [] valuesOrig = null;
+		if ( !setMissing ) {
+			// Missing values are ignored so keep the original values
+			valuesOrig = new double[values.length];
+			dependentTS.getDataValues ( dependentStart, valuesOrig );
+		}
+		for ( int i = 0; i < values.length; i++ ) {
+			if ( independentTS.isDataMissing(values[i]) ) {
+				if ( !setMissing ) {
+					values[i] = valuesOrig[i];
+					continue;
+				}
+				values[i] = outputMissingVal;
+			}
+			++setCount;
+		}
+		dependentTS.setDataValues ( dependentStart, values );
+		transferBlock = true;
+	}
+	for ( ; !transferBlock && date.lessThanOrEqualTo( end ); date.addInterval(interval_base, interval_mult) ) {
 		if ( transfer_bydate ) {
 			// Default is to get the data value as if the intervals are the same - something will come back
 			// This should work if the intervals are the same or the receiving is smaller interval
@@ -206,7 +206,9 @@ throws Exception
                 conditionTotal += (mean - value);
             }
         }
-        Message.printStatus ( 2, routine, "Value="+ value + " inCondition=" + inCondition);
+        if ( Message.isStatusLevelEnabled(2) ) {
+            Message.printStatus ( 2, routine, "Value="+ value + " inCondition=" + inCondition);
+        }
         // If not in the condition, check the previous condition and to see if at the end of
         // processing for in condition sequence - in these cases, update the statistic if necessary
         // (means are computed after the loop).
@@ -27,11 +27,14 @@ package RTi.TS;
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import RTi.Util.Math.DistributionType;
 import RTi.Util.Math.MathUtil;
 import RTi.Util.Message.Message;
 import RTi.Util.Time.DateTime;
+import RTi.Util.Time.TimeInterval;
 
 /**
 Compute a time series that has a statistic for each interval in the period, where the sample that is analyzed
@@ -95,6 +98,11 @@ Minimum required sample size.
 */
 private Integer __minimumSampleSize = null;
 
+/**
+Number of threads to use when computing the statistic (1 to compute serially, <= 0 to use the number of processors).
+*/
+private int __parallelism = 1;
+
 /**
 Minimal constructor to allow access to some utility methods such as getStatisticChoices().
 */
@@ -285,6 +293,202 @@ throws Exception
         value1, allowMissingCount, minimumSampleSize );
 }
 
+/**
+Compute the statistic from the sample of values for one interval.
+This is used by the serial and parallel calculations so that both produce identical results.
+@param statisticType statistic to compute.
+@param sampleData non-missing values in the sample, in trace order.  Percentile statistics reorder the values
+in place to avoid allocating memory, so the values should not be used after calling this method.
+@param countNonMissing number of values in sampleData to use.
+@param countMissing number of missing values for the interval.
+@param sumValue sum of the non-missing values, or missing if none.
+@param value1 value needed by some statistics, for example the threshold for GT_COUNT.
+@param statistic array of size 1, which will be set to the computed statistic.
+@return true if the statistic was computed, false if the output should be left as missing.
+*/
+private static boolean computeSampleStatistic ( TSStatisticType statisticType, double [] sampleData,
+    int countNonMissing, int countMissing, double sumValue, double value1, double [] statistic )
+{
+    if ( statisticType == TSStatisticType.EXCEEDANCE_PROBABILITY ) {
+    	if ( countNonMissing > 0 ) {
+            statistic[0] = MathUtil.exceedanceProbabilityValue(countNonMissing,sampleData,value1,sampleData);
+            return true;
+        }
+    }
+    else if ( statisticType == TSStatisticType.EXCEEDANCE_PROBABILITY_10 ) {
+        if ( countNonMissing > 0 ) {
+            statistic[0] = MathUtil.exceedanceProbabilityValue(countNonMissing,sampleData,.1,sampleData);
+            return true;
+        }
+    }
+    else if ( statisticType == TSStatisticType.EXCEEDANCE_PROBABILITY_30 ) {
+        if ( countNonMissing > 0 ) {
+            statistic[0] = MathUtil.exceedanceProbabilityValue(countNonMissing,sampleData,.3,sampleData);
+            return true;
+        }
+    }
+    else if ( statisticType == TSStatisticType.EXCEEDANCE_PROBABILITY_50 ) {
+        if ( countNonMissing > 0 ) {
+            statistic[0] = MathUtil.exceedanceProbabilityValue(countNonMissing,sampleData,.5,sampleData);
+            return true;
+        }
+    }
+    else if ( statisticType == TSStatisticType.EXCEEDANCE_PROBABILITY_70 ) {
+        if ( countNonMissing > 0 ) {
+            statistic[0] = MathUtil.exceedanceProbabilityValue(countNonMissing,sampleData,.7,sampleData);
+            return true;
+        }
+    }
+    else if ( statisticType == TSStatisticType.EXCEEDANCE_PROBABILITY_90 ) {
+        if ( countNonMissing > 0 ) {
+            statistic[0] = MathUtil.exceedanceProbabilityValue(countNonMissing,sampleData,.9,sampleData);
+            return true;
+        }
+    }
+    else if ( statisticType == TSStatisticType.GE_COUNT ) {
+    	int count = 0;
+    	for ( int isamp = 0; isamp < countNonMissing; isamp++ ) {
+    		if ( sampleData[isamp] >= value1 ) {
+    			++count;
+    		}
+    	}
+    	statistic[0] = count;
+    	return true;
+    }
+    else if ( statisticType == TSStatisticType.GT_COUNT ) {
+    	int count = 0;
+    	for ( int isamp = 0; isamp < countNonMissing; isamp++ ) {
+    		if ( sampleData[isamp] > value1 ) {
+    			++count;
+    		}
+    	}
+    	statistic[0] = count;
+    	return true;
+    }
+    else if ( statisticType == TSStatisticType.LT_COUNT ) {
+    	int count = 0;
+    	for ( int isamp = 0; isamp < countNonMissing; isamp++ ) {
+    		if ( sampleData[isamp] < value1 ) {
+    			++count;
+    		}
+    	}
+    	statistic[0] = count;
+    	return true;
+    }
+    else if ( statisticType == TSStatisticType.LE_COUNT ) {
+    	int count = 0;
+    	for ( int isamp = 0; isamp < countNonMissing; isamp++ ) {
+    		if ( sampleData[isamp] <= value1 ) {
+    			++count;
+    		}
+    	}
+    	statistic[0] = count;
+    	return true;
+    }
+    else if ( statisticType == TSStatisticType.GEOMETRIC_MEAN ) {
+        if ( countNonMissing > 0 ) {
+            statistic[0] = MathUtil.geometricMean(countNonMissing,sampleData);
+            return true;
+        }
+    }
+    else if ( statisticType == TSStatisticType.MAX ) {
+        if ( countNonMissing > 0 ) {
+            statistic[0] = MathUtil.max(countNonMissing,sampleData);
+            return true;
+        }
+    }
+    else if ( statisticType == TSStatisticType.MEAN ) {
+        if ( countNonMissing > 0 ) {
+            statistic[0] = MathUtil.mean(countNonMissing,sampleData);
+            return true;
+        }
+    }
+    else if ( statisticType == TSStatisticType.MEDIAN ) {
+        // Remove the missing values and analyze only non-missing values
+        if ( countNonMissing > 0 ) {
+            statistic[0] = MathUtil.median(countNonMissing,sampleData,sampleData);
+            return true;
+        }
+    }
+    else if ( statisticType == TSStatisticType.MIN ) {
+        if ( countNonMissing > 0 ) {
+            statistic[0] = MathUtil.min(countNonMissing,sampleData);
+            return true;
+        }
+    }
+    else if ( statisticType == TSStatisticType.MISSING_COUNT ) {
+        statistic[0] = countMissing;
+        return true;
+    }
+    else if ( statisticType == TSStatisticType.MISSING_PERCENT ) {
+        statistic[0] = 100.0*countMissing/(double)(countMissing + countNonMissing);
+        return true;
+    }
+    else if ( statisticType == TSStatisticType.NONEXCEEDANCE_PROBABILITY ) {
+    	if ( countNonMissing > 0 ) {
+            statistic[0] = MathUtil.nonexceedanceProbabilityValue(countNonMissing,sampleData,value1,sampleData);
+            return true;
+        }
+    }
+    else if ( statisticType == TSStatisticType.NONEXCEEDANCE_PROBABILITY_10 ) {
+        if ( countNonMissing > 0 ) {
+            statistic[0] = MathUtil.nonexceedanceProbabilityValue(countNonMissing,sampleData,.1,sampleData);
+            return true;
+        }
+    }
+    else if ( statisticType == TSStatisticType.NONEXCEEDANCE_PROBABILITY_30 ) {
+        if ( countNonMissing > 0 ) {
+            statistic[0] = MathUtil.nonexceedanceProbabilityValue(countNonMissing,sampleData,.3,sampleData);
+            return true;
+        }
+    }
+    else if ( statisticType == TSStatisticType.NONEXCEEDANCE_PROBABILITY_50 ) {
+        if ( countNonMissing > 0 ) {
+            statistic[0] = MathUtil.nonexceedanceProbabilityValue(countNonMissing,sampleData,.5,sampleData);
+            return true;
+        }
+    }
+    else if ( statisticType == TSStatisticType.NONEXCEEDANCE_PROBABILITY_70 ) {
+        if ( countNonMissing > 0 ) {
+            statistic[0] = MathUtil.nonexceedanceProbabilityValue(countNonMissing,sampleData,.7,sampleData);
+            return true;
+        }
+    }
+    else if ( statisticType == TSStatisticType.NONEXCEEDANCE_PROBABILITY_90 ) {
+        if ( countNonMissing > 0 ) {
+            statistic[0] = MathUtil.nonexceedanceProbabilityValue(countNonMissing,sampleData,.9,sampleData);
+            return true;
+        }
+    }
+    else if ( statisticType == TSStatisticType.NONMISSING_COUNT ) {
+        statistic[0] = countNonMissing;
+        return true;
+    }
+    else if ( statisticType == TSStatisticType.NONMISSING_PERCENT ) {
+        statistic[0] = 100.0*countNonMissing/(double)(countMissing + countNonMissing);
+        return true;
+    }
+    else if ( statisticType == TSStatisticType.SKEW ) {
+        if ( countNonMissing >= 3 ) { // Need 3 values to do calculation
+            statistic[0] = MathUtil.skew(countNonMissing,sampleData);
+            return true;
+        }
+    }
+    else if ( statisticType == TSStatisticType.STD_DEV ) {
+        if ( countNonMissing >= 2 ) { // Need 2 values to do calculation
+            statistic[0] = MathUtil.standardDeviation(countNonMissing,sampleData);
+            return true;
+        }
+    }
+    else if ( statisticType == TSStatisticType.TOTAL ) {
+        if ( countNonMissing > 0 ) {
+            statistic[0] = sumValue;
+            return true;
+        }
+    }
+    return false;
+}
+
 /**
 Create the statistic data from another time series.  The results are saved in a time
 series having the interval of the input data, from January 1, 2000 to December 31, 2000 (one interval from
@@ -297,12 +501,13 @@ flexibility for other statistics.
 @param analysisStart Start of period to analyze.
 @param analysisEnd End of period to analyze.
 @param statisticType Statistic to compute.
+@param value1In value needed by some statistics, for example the threshold for GT_COUNT.
 @param allowMissingCount0 number of missing values allowed in sample to compute statistic.
 @param minimumSampleSize0 minimum sample size required to compute statistic.
 @return The statistics in a single-year time series.
 */
 private TS computeStatisticTS ( TSEnsemble ensemble, TS stat_ts, DateTime analysisStart, DateTime analysisEnd,
-    TSStatisticType statisticType, Double value1, Integer allowMissingCount0, Integer minimumSampleSize0 )
+    TSStatisticType statisticType, Double value1In, Integer allowMissingCount0, Integer minimumSampleSize0 )
 throws Exception
 {   String routine = getClass().getSimpleName() + ".computeStatisticTS";
     // Get the controlling parameters as simple integers to simplify code
@@ -315,6 +520,7 @@ throws Exception
         minimumSampleSize = minimumSampleSize0.intValue();
     }
     boolean isCountStatistic = getIsCountStatistic( statisticType );
+    double value1 = value1In;
 
     // Initialize the iterators using the analysis period...
     TSIterator tsi_stat = null;
@@ -340,9 +546,42 @@ throws Exception
     double [] sampleData = new double[size]; // One value from each ensemble
     int countNonMissing; // Count of sampleData that are non-missing
     int countMissing; // Count of sampleData that are missing
+    double [] statistic = new double[1]; // Statistic computed from the sample
     Message.printStatus(2, routine, "Analyzing time series ensemble for period " + analysisStart + " to " + analysisEnd );
+    int parallelism = getParallelism();
+    if ( parallelism <= 0 ) {
+        parallelism = Runtime.getRuntime().availableProcessors();
+    }
+    if ( parallelism > 1 ) {
+        // Parallel processing requires that concurrent reads of the traces are safe, which is the case for regular
+        // interval time series
+        boolean isRegular = true;
+        for ( i = 0; i < size; i++ ) {
+            if ( ts_array[i].getDataIntervalBase() == TimeInterval.IRREGULAR ) {
+                isRegular = false;
+                break;
+            }
+        }
+        if ( isRegular ) {
+            return computeStatisticTSParallel ( ts_array, stat_ts, analysisStart, analysisEnd, statisticType,
+                value1, allowMissingCount, minimumSampleSize, isCountStatistic, parallelism );
+        }
+    }
+    // If the traces are stored densely, read each time slice from the matrix rather than each trace
+    TSEnsembleMatrix matrix = ensemble.getDenseStorage();
+    if ( (matrix != null) && !matrix.isTraceArray(ts_array) ) {
+        matrix = null;
+    }
+    double [] slice = new double[size];
+    int step = -1; // Time step in the matrix, or -1 if not reading from the matrix
     while ( tsi_stat.next() != null ) {
         date = tsi_stat.getDate();
+        if ( matrix != null ) {
+            step = matrix.getStepIndex ( date );
+            if ( step >= 0 ) {
+                matrix.getTimeSlice ( step, slice );
+            }
+        }
         // Loop through the time series...
         countNonMissing = 0;
         countMissing = 0;
@@ -354,7 +593,12 @@ throws Exception
             if ( i == 0 ) {
                 sum_value = ts.getMissing();
             }
-            value = ts.getDataValue(date);
+            if ( step >= 0 ) {
+                value = slice[i];
+            }
+            else {
+                value = ts.getDataValue(date);
+            }
             if ( ts.isDataMissing(value) ) {
                 // Ignore missing data...
                 ++countMissing;
@@ -397,158 +641,94 @@ throws Exception
         // TODO SAM 2009-10-26 Trying to set the result in a time series that has a shorter period could
         // generate low-level warnings, but for now allow this to occur rather than incurring the overhead
         // of checking the output period.
-        if ( statisticType == TSStatisticType.EXCEEDANCE_PROBABILITY ) {
-        	if ( countNonMissing > 0 ) {
-                stat_ts.setDataValue ( date, MathUtil.exceedanceProbabilityValue(countNonMissing,sampleData,value1) );
-            }
-        }
-        else if ( statisticType == TSStatisticType.EXCEEDANCE_PROBABILITY_10 ) {
-            if ( countNonMissing > 0 ) {
-                stat_ts.setDataValue ( date, MathUtil.exceedanceProbabilityValue(countNonMissing,sampleData,.1) );
-            }
+        if ( computeSampleStatistic ( statisticType, sampleData, countNonMissing, countMissing, sum_value,
+            value1, statistic ) ) {
+            stat_ts.setDataValue ( date, statistic[0] );
         }
-        else if ( statisticType == TSStatisticType.EXCEEDANCE_PROBABILITY_30 ) {
-            if ( countNonMissing > 0 ) {
-                stat_ts.setDataValue ( date, MathUtil.exceedanceProbabilityValue(countNonMissing,sampleData,.3) );
-            }
-        }
-        else if ( statisticType == TSStatisticType.EXCEEDANCE_PROBABILITY_50 ) {
-            if ( countNonMissing > 0 ) {
-                stat_ts.setDataValue ( date, MathUtil.exceedanceProbabilityValue(countNonMissing,sampleData,.5) );
-            }
-        }
-        else if ( statisticType == TSStatisticType.EXCEEDANCE_PROBABILITY_70 ) {
-            if ( countNonMissing > 0 ) {
-                stat_ts.setDataValue ( date, MathUtil.exceedanceProbabilityValue(countNonMissing,sampleData,.7) );
-            }
-        }
-        else if ( statisticType == TSStatisticType.EXCEEDANCE_PROBABILITY_90 ) {
-            if ( countNonMissing > 0 ) {
-                stat_ts.setDataValue ( date, MathUtil.exceedanceProbabilityValue(countNonMissing,sampleData,.9) );
-            }
-        }
-        else if ( statisticType == TSStatisticType.GE_COUNT ) {
-        	int count = 0;
-        	for ( int isamp = 0; isamp < countNonMissing; isamp++ ) {
-        		if ( sampleData[isamp] >= value1 ) {
-        			++count;
-        		}
-        	}
-        	stat_ts.setDataValue ( date, count );
-        }
-        else if ( statisticType == TSStatisticType.GT_COUNT ) {
-        	int count = 0;
-        	for ( int isamp = 0; isamp < countNonMissing; isamp++ ) {
-        		if ( sampleData[isamp] > value1 ) {
-        			++count;
-        		}
-        	}
-        	stat_ts.setDataValue ( date, count );
-        }
-        else if ( statisticType == TSStatisticType.LT_COUNT ) {
-        	int count = 0;
-        	for ( int isamp = 0; isamp < countNonMissing; isamp++ ) {
-        		if ( sampleData[isamp] < value1 ) {
-        			++count;
-        		}
-        	}
-        	stat_ts.setDataValue ( date, count );
-        }
-        else if ( statisticType == TSStatisticType.LE_COUNT ) {
-        	int count = 0;
-        	for ( int isamp = 0; isamp < countNonMissing; isamp++ ) {
-        		if ( sampleData[isamp] <= value1 ) {
-        			++count;
-        		}
-        	}
-        	stat_ts.setDataValue ( date, count );
-        }
-        else if ( statisticType == TSStatisticType.GEOMETRIC_MEAN ) {
-            if ( countNonMissing > 0 ) {
-                stat_ts.setDataValue ( date, MathUtil.geometricMean(countNonMissing,sampleData) );
-            }
-        }
-        else if ( statisticType == TSStatisticType.MAX ) {
-            if ( countNonMissing > 0 ) {
-                stat_ts.setDataValue ( date, MathUtil.max(countNonMissing,sampleData) );
-            }
-        }
-        else if ( statisticType == TSStatisticType.MEAN ) {
-            if ( countNonMissing > 0 ) {
-                stat_ts.setDataValue ( date, MathUtil.mean(countNonMissing,sampleData) );
-            }
-        }
-        else if ( statisticType == TSStatisticType.MEDIAN ) {
-            // Remove the missing values and analyze only non-missing values
-            if ( countNonMissing > 0 ) {
-                stat_ts.setDataValue ( date, MathUtil.median(countNonMissing,sampleData) );
-            }
-        }
-        else if ( statisticType == TSStatisticType.MIN ) {
-            if ( countNonMissing > 0 ) {
-                stat_ts.setDataValue ( date, MathUtil.min(countNonMissing,sampleData) );
-            }
-        }
-        else if ( statisticType == TSStatisticType.MISSING_COUNT ) {
-            stat_ts.setDataValue ( date, countMissing );
-        }
-        else if ( statisticType == TSStatisticType.MISSING_PERCENT ) {
-            stat_ts.setDataValue ( date, 100.0*countMissing/(double)(countMissing + countNonMissing) );
-        }
-        else if ( statisticType == TSStatisticType.NONEXCEEDANCE_PROBABILITY ) {
-        	if ( countNonMissing > 0 ) {
-                stat_ts.setDataValue ( date, MathUtil.nonexceedanceProbabilityValue(countNonMissing,sampleData,value1) );
-            }
-        }
-        else if ( statisticType == TSStatisticType.NONEXCEEDANCE_PROBABILITY_10 ) {
-            if ( countNonMissing > 0 ) {
-                stat_ts.setDataValue ( date, MathUtil.nonexceedanceProbabilityValue(countNonMissing,sampleData,.1) );
-            }
-        }
-        else if ( statisticType == TSStatisticType.NONEXCEEDANCE_PROBABILITY_30 ) {
-            if ( countNonMissing > 0 ) {
-                stat_ts.setDataValue ( date, MathUtil.nonexceedanceProbabilityValue(countNonMissing,sampleData,.3) );
-            }
-        }
-        else if ( statisticType == TSStatisticType.NONEXCEEDANCE_PROBABILITY_50 ) {
-            if ( countNonMissing > 0 ) {
-                stat_ts.setDataValue ( date, MathUtil.nonexceedanceProbabilityValue(countNonMissing,sampleData,.5) );
-            }
+    }
+
+    // Return the result.
+    return stat_ts;
+}
+
+/**
+Compute the statistic time series in parallel, for regular interval traces.
+The analysis period is split into chunks of consecutive intervals, which are processed by tasks in a fork/join pool.
+Each task copies its slice of the traces into a time by trace matrix (one row of trace values for each interval)
+and computes the statistic for each row with the same code as the serial calculation, so results are identical.
+The results, status messages, and the first error (in date order) are then applied to the output time series
+in date order, consistent with the serial calculation.
+*/
+private TS computeStatisticTSParallel ( TS [] ts_array, TS stat_ts, DateTime analysisStart, DateTime analysisEnd,
+    TSStatisticType statisticType, double value1, int allowMissingCount, int minimumSampleSize,
+    boolean isCountStatistic, int parallelism )
+throws Exception
+{   String routine = getClass().getSimpleName() + ".computeStatisticTSParallel";
+    // Count the intervals using the same iterator as the serial calculation so that date/times match
+    TSIterator tsi_stat = stat_ts.iterator ( analysisStart, analysisEnd );
+    int intervalCount = 0;
+    while ( tsi_stat.next() != null ) {
+        ++intervalCount;
+    }
+    if ( intervalCount == 0 ) {
+        return stat_ts;
+    }
+    // Size chunks to give each thread several chunks while limiting the matrix to about 8MB per task
+    int size = ts_array.length;
+    int chunkSize = (intervalCount + 4*parallelism - 1)/(4*parallelism);
+    int chunkSizeMax = Math.max(1, (1 << 20)/size);
+    if ( chunkSize > chunkSizeMax ) {
+        chunkSize = chunkSizeMax;
+    }
+    int chunkCount = (intervalCount + chunkSize - 1)/chunkSize;
+    EnsembleStatisticChunk [] chunks = new EnsembleStatisticChunk[chunkCount];
+    tsi_stat = stat_ts.iterator ( analysisStart, analysisEnd );
+    int intervalPos = 0;
+    while ( tsi_stat.next() != null ) {
+        if ( (intervalPos % chunkSize) == 0 ) {
+            chunks[intervalPos/chunkSize] = new EnsembleStatisticChunk ( new DateTime(tsi_stat.getDate()),
+                Math.min(chunkSize, intervalCount - intervalPos) );
         }
-        else if ( statisticType == TSStatisticType.NONEXCEEDANCE_PROBABILITY_70 ) {
-            if ( countNonMissing > 0 ) {
-                stat_ts.setDataValue ( date, MathUtil.nonexceedanceProbabilityValue(countNonMissing,sampleData,.7) );
+        ++intervalPos;
+    }
+    Message.printStatus(2, routine, "Computing statistic for " + intervalCount + " intervals in " + chunkCount +
+        " chunks using " + parallelism + " threads." );
+    ForkJoinPool pool = new ForkJoinPool ( parallelism );
+    try {
+        pool.invoke ( new EnsembleStatisticTask(ts_array, stat_ts.getDataIntervalBase(), stat_ts.getDataIntervalMult(),
+            chunks, 0, chunkCount, statisticType, value1, allowMissingCount, minimumSampleSize, isCountStatistic) );
+    }
+    finally {
+        pool.shutdown();
+    }
+    // Transfer the results to the output time series in date order
+    int intervalBase = stat_ts.getDataIntervalBase();
+    int intervalMult = stat_ts.getDataIntervalMult();
+    for ( EnsembleStatisticChunk chunk : chunks ) {
+        DateTime date = new DateTime ( chunk.start );
+        for ( int it = 0; it < chunk.count; it++ ) {
+            if ( it > 0 ) {
+                date.addInterval ( intervalBase, intervalMult );
             }
-        }
-        else if ( statisticType == TSStatisticType.NONEXCEEDANCE_PROBABILITY_90 ) {
-            if ( countNonMissing > 0 ) {
-                stat_ts.setDataValue ( date, MathUtil.nonexceedanceProbabilityValue(countNonMissing,sampleData,.9) );
+            if ( (chunk.exception != null) && (it == chunk.exceptionPos) ) {
+                throw chunk.exception;
             }
-        }
-        else if ( statisticType == TSStatisticType.NONMISSING_COUNT ) {
-            stat_ts.setDataValue ( date, countNonMissing );
-        }
-        else if ( statisticType == TSStatisticType.NONMISSING_PERCENT ) {
-            stat_ts.setDataValue ( date, 100.0*countNonMissing/(double)(countMissing + countNonMissing) );
-        }
-        else if ( statisticType == TSStatisticType.SKEW ) {
-            if ( countNonMissing >= 3 ) { // Need 3 values to do calculation
-                stat_ts.setDataValue ( date, MathUtil.skew(countNonMissing,sampleData) );
+            byte status = chunk.status[it];
+            if ( status == EnsembleStatisticChunk.COMPUTED ) {
+                stat_ts.setDataValue ( date, chunk.values[it] );
             }
-        }
-        else if ( statisticType == TSStatisticType.STD_DEV ) {
-            if ( countNonMissing >= 2 ) { // Need 2 values to do calculation
-                stat_ts.setDataValue ( date, MathUtil.standardDeviation(countNonMissing,sampleData) );
+            else if ( status == EnsembleStatisticChunk.TOO_MANY_MISSING ) {
+                Message.printStatus ( 2, routine, "Not computing time series statistic at " + date +
+                    " because number of missing values " + chunk.sampleCounts[it] + " is > allowed (" + allowMissingCount + ").");
+                stat_ts.setDataValue ( date, stat_ts.getMissing() );
             }
-        }
-        else if ( statisticType == TSStatisticType.TOTAL ) {
-            if ( countNonMissing > 0 ) {
-                stat_ts.setDataValue ( date, sum_value );
+            else if ( status == EnsembleStatisticChunk.SAMPLE_TOO_SMALL ) {
+                Message.printStatus ( 2, routine, "Not computing time series statistic at " + date +
+                    " because sample size " + chunk.sampleCounts[it] + " is < minimum required (" + minimumSampleSize + ").");
+                stat_ts.setDataValue ( date, stat_ts.getMissing() );
             }
         }
     }
-
-    // Return the result.
     return stat_ts;
 }
 
@@ -652,6 +832,15 @@ private String getNewTSID ()
     return __newTSID;
 }
 
+/**
+Return the number of threads used to compute the statistic.
+@return the number of threads used to compute the statistic (1 for serial, <= 0 to use the number of processors).
+*/
+public int getParallelism ()
+{
+    return __parallelism;
+}
+
 /**
 Return the output start date/time.
 @return the output start date/time.
@@ -953,4 +1142,199 @@ public boolean isStatisticSupportedForDistribution ( TSStatisticType statisticTy
     return false;
 }
 
+/**
+Set the number of threads used to compute the statistic.  If greater than 1 (or <= 0 to use the number of processors),
+the analysis period is split into chunks that are processed in parallel, with results identical to the serial
+calculation.  The default is 1, which computes the statistic serially.  Parallel processing is only used for
+regular interval time series.
+@param parallelism the number of threads used to compute the statistic.
+*/
+public void setParallelism ( int parallelism )
+{
+    __parallelism = parallelism;
+}
+
+/**
+Chunk of consecutive intervals processed by an EnsembleStatisticTask, with the results for each interval.
+*/
+private static class EnsembleStatisticChunk
+{
+    /**
+    Status values for each interval.
+    */
+    static final byte NOT_COMPUTED = 0;
+    static final byte COMPUTED = 1;
+    static final byte TOO_MANY_MISSING = 2;
+    static final byte SAMPLE_TOO_SMALL = 3;
+
+    /**
+    First date/time in the chunk.
+    */
+    DateTime start;
+
+    /**
+    Number of intervals in the chunk.
+    */
+    int count;
+
+    /**
+    Statistic value for each interval, if the status is COMPUTED.
+    */
+    double [] values;
+
+    /**
+    Status for each interval.
+    */
+    byte [] status;
+
+    /**
+    Missing count or sample size for each interval, used for status messages.
+    */
+    int [] sampleCounts;
+
+    /**
+    Exception computing the statistic, and the interval position where it occurred.
+    */
+    Exception exception = null;
+    int exceptionPos = -1;
+
+    EnsembleStatisticChunk ( DateTime start, int count )
+    {
+        this.start = start;
+        this.count = count;
+        this.values = new double[count];
+        this.status = new byte[count];
+        this.sampleCounts = new int[count];
+    }
+}
+
+/**
+Fork/join task that computes the statistic for a range of chunks, splitting the range until a single chunk remains.
+*/
+private static class EnsembleStatisticTask extends RecursiveAction
+{
+    private static final long serialVersionUID = 1L;
+
+    private TS [] tsArray;
+    private int intervalBase;
+    private int intervalMult;
+    private EnsembleStatisticChunk [] chunks;
+    private int chunkStart;
+    private int chunkEnd;
+    private TSStatisticType statisticType;
+    private double value1;
+    private int allowMissingCount;
+    private int minimumSampleSize;
+    private boolean isCountStatistic;
+
+    EnsembleStatisticTask ( TS [] tsArray, int intervalBase, int intervalMult, EnsembleStatisticChunk [] chunks,
+        int chunkStart, int chunkEnd, TSStatisticType statisticType, double value1, int allowMissingCount,
+        int minimumSampleSize, boolean isCountStatistic )
+    {
+        this.tsArray = tsArray;
+        this.intervalBase = intervalBase;
+        this.intervalMult = intervalMult;
+        this.chunks = chunks;
+        this.chunkStart = chunkStart;
+        this.chunkEnd = chunkEnd;
+        this.statisticType = statisticType;
+        this.value1 = value1;
+        this.allowMissingCount = allowMissingCount;
+        this.minimumSampleSize = minimumSampleSize;
+        this.isCountStatistic = isCountStatistic;
+    }
+
+    protected void compute ()
+    {
+        if ( (this.chunkEnd - this.chunkStart) > 1 ) {
+            int chunkMid = (this.chunkStart + this.chunkEnd)/2;
+            invokeAll (
+                new EnsembleStatisticTask(this.tsArray, this.intervalBase, this.intervalMult, this.chunks,
+                    this.chunkStart, chunkMid, this.statisticType, this.value1, this.allowMissingCount,
+                    this.minimumSampleSize, this.isCountStatistic),
+                new EnsembleStatisticTask(this.tsArray, this.intervalBase, this.intervalMult, this.chunks,
+                    chunkMid, this.chunkEnd, this.statisticType, this.value1, this.allowMissingCount,
+                    this.minimumSampleSize, this.isCountStatistic) );
+        }
+        else if ( this.chunkEnd > this.chunkStart ) {
+            computeChunk ( this.chunks[this.chunkStart] );
+        }
+    }
+
+    /**
+    Compute the statistic for each interval in a chunk.
+    */
+    private void computeChunk ( EnsembleStatisticChunk chunk )
+    {
+        int size = this.tsArray.length;
+        int count = chunk.count;
+        // Transpose the chunk of each trace into the matrix, one row of trace values per interval,
+        // reading each trace sequentially
+        double [] matrix = new double[count*size];
+        for ( int i = 0; i < size; i++ ) {
+            TS ts = this.tsArray[i];
+            DateTime date = new DateTime ( chunk.start );
+            for ( int it = 0; it < count; it++ ) {
+                if ( it > 0 ) {
+                    date.addInterval ( this.intervalBase, this.intervalMult );
+                }
+                matrix[it*size + i] = ts.getDataValue ( date );
+            }
+        }
+        // Process each row in the same way as the serial calculation
+        double [] sampleData = new double[size];
+        double [] statistic = new double[1];
+        for ( int it = 0; it < count; it++ ) {
+            int row = it*size;
+            int countNonMissing = 0;
+            int countMissing = 0;
+            double sumValue = this.tsArray[0].getMissing();
+            for ( int i = 0; i < size; i++ ) {
+                TS ts = this.tsArray[i];
+                if ( i == 0 ) {
+                    sumValue = ts.getMissing();
+                }
+                double value = matrix[row + i];
+                if ( ts.isDataMissing(value) ) {
+                    ++countMissing;
+                }
+                else {
+                    sampleData[countNonMissing++] = value;
+                    if ( ts.isDataMissing(sumValue) ) {
+                        sumValue = value;
+                    }
+                    else {
+                        sumValue += value;
+                    }
+                }
+            }
+            if ( !this.isCountStatistic ) {
+                if ( (this.allowMissingCount >= 0) && (countMissing > this.allowMissingCount) ) {
+                    chunk.status[it] = EnsembleStatisticChunk.TOO_MANY_MISSING;
+                    chunk.sampleCounts[it] = countMissing;
+                    continue;
+                }
+                if ( (this.minimumSampleSize >= 0) && (countNonMissing < this.minimumSampleSize) ) {
+                    chunk.status[it] = EnsembleStatisticChunk.SAMPLE_TOO_SMALL;
+                    chunk.sampleCounts[it] = countNonMissing;
+                    continue;
+                }
+            }
+            try {
+                if ( computeSampleStatistic ( this.statisticType, sampleData, countNonMissing, countMissing, sumValue,
+                    this.value1, statistic ) ) {
+                    chunk.values[it] = statistic[0];
+                    chunk.status[it] = EnsembleStatisticChunk.COMPUTED;
+                }
+            }
+            catch ( Exception e ) {
+                // Stop processing the chunk - the exception will be thrown when results are transferred
+                chunk.exception = e;
+                chunk.exceptionPos = it;
+                return;
+            }
+        }
+    }
+}
+
 }
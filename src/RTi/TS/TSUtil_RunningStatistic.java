@@ -30,7 +30,9 @@ import java.util.List;
 
 import RTi.Util.Math.DistributionType;
 import RTi.Util.Math.MathUtil;
+import RTi.Util.Math.SlidingWindowStatistics;
 import RTi.Util.Math.SortOrderType;
+import RTi.Util.Math.SortedSample;
 import RTi.Util.Message.Message;
 import RTi.Util.Time.DateTime;
 import RTi.Util.Time.TimeInterval;
@@ -614,6 +616,9 @@ public TS getTS ()
 Create a running average time series where the time series value is the
 average of 1 or more values from the original time series.  The description is
 appended with ", centered [N] running average" or ", N-year running average", etc.
+For centered, future, and previous samples with a constant bracket, the Max, Mean, Median, Min, StdDev, Total,
+and Variance statistics are updated incrementally as the bracket moves (see SlidingWindowStatistics) rather than
+recomputed from the full sample for each interval.
 @return The new running statistic time series, which is a copy of the original metadata
 but with data being the running statistic.
 @exception RTi.TS.TSException if there is a problem creating and filling the new time series.
@@ -972,11 +977,37 @@ throws TSException, IrregularTimeSeriesNotSupportedException
         double missing = ts.getMissing();
         boolean doCalc = true;
         Hashtable<String,double []> valueCache = new Hashtable<String,double[]>();
+        // Sorted samples for the cached AllYears samples, used for percentile and rank statistics so that each
+        // sample is sorted once rather than for each date/time that uses the sample
+        Hashtable<String,SortedSample> sortedSampleCache = new Hashtable<String,SortedSample>();
+        SortedSample sortedSample = null;
         int month;
         int [] offsetData;
         double statisticForPeriod = Double.NaN; // Used when computing long-term statistic, for example NEW_MAX used with N_ALL_YEAR period
         double statisticForSample = Double.NaN; // Statistic computed from sample, used when decision logic is needed to avoid declaring again
         boolean haveNewStatisticForSample = false; // Whether a new period statistic needs to be set in the time series
+        // For a constant bracket that moves one interval at a time, slide an incremental window rather than
+        // rebuilding the sample for each interval, for the statistics that the window supports.
+        SlidingWindowStatistics window = null;
+        double [] windowPositionValues = null; // Values for each bracket position (including missing), circular
+        int windowPosition = 0; // Position in windowPositionValues of the oldest value
+        DateTime windowEndDateTime = null; // Date/time of the newest value in the window
+        if ( !doNByMonth && !doNCustomByMonth && (neededCount > 0) &&
+            ((sampleType == RunningAverageType.CENTERED) ||
+            (sampleType == RunningAverageType.FUTURE) ||
+            (sampleType == RunningAverageType.FUTURE_INCLUSIVE) ||
+            (sampleType == RunningAverageType.PREVIOUS) ||
+            (sampleType == RunningAverageType.PREVIOUS_INCLUSIVE)) &&
+            ((statisticType == TSStatisticType.MAX) ||
+            (statisticType == TSStatisticType.MEAN) ||
+            (statisticType == TSStatisticType.MEDIAN) ||
+            (statisticType == TSStatisticType.MIN) ||
+            (statisticType == TSStatisticType.STD_DEV) ||
+            (statisticType == TSStatisticType.TOTAL) ||
+            (statisticType == TSStatisticType.VARIANCE)) ) {
+            window = new SlidingWindowStatistics ( neededCount, (statisticType == TSStatisticType.MEDIAN) );
+            windowPositionValues = new double[neededCount];
+        }
         for ( ; date.lessThanOrEqualTo( end ); date.addInterval(intervalBase, intervalMult) ) {
             // Initialize the date for looking up values to the initial offset from the loop date (new lines up with old)
             valueDateTime.setDate ( date );
@@ -1054,6 +1085,47 @@ throws TSException, IrregularTimeSeriesNotSupportedException
                 }
                 // Reset the count based on the sample array size
                 count = sampleArray.length;
+                if ( (statisticType == TSStatisticType.EXCEEDANCE_PROBABILITY) ||
+                    (statisticType == TSStatisticType.MEDIAN) ||
+                    (statisticType == TSStatisticType.NONEXCEEDANCE_PROBABILITY) ||
+                    (statisticType == TSStatisticType.PLOTTING_POSITION) ||
+                    (statisticType == TSStatisticType.RANK) ) {
+                    sortedSample = sortedSampleCache.get(key);
+                    if ( (sortedSample == null) && (count > 0) ) {
+                        sortedSample = new SortedSample ( count, sampleArray );
+                        sortedSampleCache.put ( key, sortedSample );
+                    }
+                }
+            }
+            else if ( window != null ) {
+                if ( windowEndDateTime == null ) {
+                    // First interval so fill the window for the full bracket, starting at the first offset
+                    windowEndDateTime = new DateTime ( valueDateTime );
+                    for ( i = 0; i < neededCount; i++ ) {
+                        if ( i > 0 ) {
+                            windowEndDateTime.addInterval ( intervalBase, intervalMult );
+                        }
+                        value = ts.getDataValue ( windowEndDateTime );
+                        windowPositionValues[i] = value;
+                        if ( !ts.isDataMissing(value) ) {
+                            window.add ( value );
+                        }
+                    }
+                }
+                else {
+                    // Drop the oldest value in the bracket and add the next value at the end of the bracket
+                    if ( !ts.isDataMissing(windowPositionValues[windowPosition]) ) {
+                        window.remove();
+                    }
+                    windowEndDateTime.addInterval ( intervalBase, intervalMult );
+                    value = ts.getDataValue ( windowEndDateTime );
+                    windowPositionValues[windowPosition] = value;
+                    if ( !ts.isDataMissing(value) ) {
+                        window.add ( value );
+                    }
+                    windowPosition = (windowPosition + 1)%neededCount;
+                }
+                count = window.getCount();
             }
             else {
                 // Loop through the intervals in the bracket and get the sample set...
@@ -1178,7 +1250,12 @@ throws TSException, IrregularTimeSeriesNotSupportedException
                             // The value will also be in the array so it should exactly match an exceedance
                             // probability.  The following algorithm will interpolate if necessary but the value
                             // will be very near a calculated value.
-                            newts.setDataValue(date,MathUtil.exceedanceProbability(count, sampleArray, value)*unitsMult);
+                            if ( sortedSample != null ) {
+                                newts.setDataValue(date,sortedSample.getExceedanceProbability(value)*unitsMult);
+                            }
+                            else {
+                                newts.setDataValue(date,MathUtil.exceedanceProbability(count, sampleArray, value)*unitsMult);
+                            }
                         }
                     }
                     else if ( statisticType == TSStatisticType.GEOMETRIC_MEAN ) {
@@ -1188,16 +1265,39 @@ throws TSException, IrregularTimeSeriesNotSupportedException
                         newts.setDataValue(date,MathUtil.lagAutoCorrelation(count, sampleArray, 1));
                     }
                     else if ( statisticType == TSStatisticType.MAX ) {
-                        newts.setDataValue(date,MathUtil.max(count, sampleArray));
+                        if ( window != null ) {
+                            newts.setDataValue(date,window.getMax());
+                        }
+                        else {
+                            newts.setDataValue(date,MathUtil.max(count, sampleArray));
+                        }
                     }
                     else if ( statisticType == TSStatisticType.MEAN ) {
-                        newts.setDataValue(date,MathUtil.mean(count, sampleArray));
+                        if ( window != null ) {
+                            newts.setDataValue(date,window.getMean());
+                        }
+                        else {
+                            newts.setDataValue(date,MathUtil.mean(count, sampleArray));
+                        }
                     }
                     else if ( statisticType == TSStatisticType.MEDIAN ) {
-                        newts.setDataValue(date,MathUtil.median(count, sampleArray));
+                        if ( window != null ) {
+                            newts.setDataValue(date,window.getMedian());
+                        }
+                        else if ( sortedSample != null ) {
+                            newts.setDataValue(date,sortedSample.getMedian());
+                        }
+                        else {
+                            newts.setDataValue(date,MathUtil.median(count, sampleArray));
+                        }
                     }
                     else if ( statisticType == TSStatisticType.MIN ) {
-                        newts.setDataValue(date,MathUtil.min(count, sampleArray));
+                        if ( window != null ) {
+                            newts.setDataValue(date,window.getMin());
+                        }
+                        else {
+                            newts.setDataValue(date,MathUtil.min(count, sampleArray));
+                        }
                     }
                     else if ( (statisticType == TSStatisticType.NEW_MAX) ||
                     	(statisticType == TSStatisticType.NEW_MIN)
@@ -1260,7 +1360,12 @@ throws TSException, IrregularTimeSeriesNotSupportedException
                     else if ( statisticType == TSStatisticType.NONEXCEEDANCE_PROBABILITY ) {
                         value = ts.getDataValue(date);
                         if ( !ts.isDataMissing(value) ) {
-                            newts.setDataValue(date,MathUtil.nonexceedanceProbability(count, sampleArray, value)*unitsMult);
+                            if ( sortedSample != null ) {
+                                newts.setDataValue(date,sortedSample.getNonexceedanceProbability(value)*unitsMult);
+                            }
+                            else {
+                                newts.setDataValue(date,MathUtil.nonexceedanceProbability(count, sampleArray, value)*unitsMult);
+                            }
                         }
                     }
                     else if ( statisticType == TSStatisticType.PLOTTING_POSITION ) {
@@ -1268,8 +1373,14 @@ throws TSException, IrregularTimeSeriesNotSupportedException
                         if ( !ts.isDataMissing(value) ) {
                             // The value will also be in the array so it should exactly match a rank.
                             // The following algorithm will lookup the value.
-                            newts.setDataValue(date,MathUtil.plottingPosition(count, sampleArray, sortOrderType,
-                                distributionType, distributionParameters, value));
+                            if ( sortedSample != null ) {
+                                newts.setDataValue(date,sortedSample.getPlottingPosition(sortOrderType,
+                                    distributionType, distributionParameters, value));
+                            }
+                            else {
+                                newts.setDataValue(date,MathUtil.plottingPosition(count, sampleArray, sortOrderType,
+                                    distributionType, distributionParameters, value));
+                            }
                         }
                     }
                     else if ( statisticType == TSStatisticType.RANK ) {
@@ -1277,20 +1388,40 @@ throws TSException, IrregularTimeSeriesNotSupportedException
                         if ( !ts.isDataMissing(value) ) {
                             // The value will also be in the array so it should exactly match a rank.
                             // The following algorithm will lookup the value.
-                            newts.setDataValue(date,MathUtil.rank(count, sampleArray, sortOrderType, value));
+                            if ( sortedSample != null ) {
+                                newts.setDataValue(date,sortedSample.getRank(sortOrderType, value));
+                            }
+                            else {
+                                newts.setDataValue(date,MathUtil.rank(count, sampleArray, sortOrderType, value));
+                            }
                         }
                     }
                     else if ( statisticType == TSStatisticType.SKEW ) {
                         newts.setDataValue(date,MathUtil.skew(count, sampleArray));
                     }
                     else if ( statisticType == TSStatisticType.STD_DEV ) {
-                        newts.setDataValue(date,MathUtil.standardDeviation(count, sampleArray));
+                        if ( window != null ) {
+                            newts.setDataValue(date,window.getStandardDeviation());
+                        }
+                        else {
+                            newts.setDataValue(date,MathUtil.standardDeviation(count, sampleArray));
+                        }
                     }
                     else if ( statisticType == TSStatisticType.TOTAL ) {
-                        newts.setDataValue(date,MathUtil.sum(count, sampleArray));
+                        if ( window != null ) {
+                            newts.setDataValue(date,window.getSum());
+                        }
+                        else {
+                            newts.setDataValue(date,MathUtil.sum(count, sampleArray));
+                        }
                     }
                     else if ( statisticType == TSStatisticType.VARIANCE ) {
-                        newts.setDataValue(date,MathUtil.variance(count, sampleArray));
+                        if ( window != null ) {
+                            newts.setDataValue(date,window.getVariance());
+                        }
+                        else {
+                            newts.setDataValue(date,MathUtil.variance(count, sampleArray));
+                        }
                     }
                 }
                 catch ( Exception e ) {
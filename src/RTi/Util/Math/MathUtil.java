@@ -246,35 +246,75 @@ public static double exceedanceProbability ( int n, double x[], double xi )
         Message.printWarning ( 10, routine, message );
         throw new IllegalArgumentException ( message );
     }
-    // First sort the numbers into descending order (largest value in data array will be first)...
-    double [] x2 = new double[x.length];
-    System.arraycopy(x, 0, x2, 0, n);
-    sort(x2, SORT_QUICK, SORT_DESCENDING, null, false);
-    
-    // Find the first matching value and return the exceedance probability using the plotting position
-    // = rank/(n + 1), where largest value = position 1
+    // The position of the value in the sample sorted into descending order is determined by counting the
+    // values that are larger, so the sample does not need to be copied and sorted.
+    int countGreater = 0;
+    int countEqual = 0;
+    double min = x[0];
+    double max = x[0];
+    double nextHigher = Double.POSITIVE_INFINITY; // Smallest value > xi
+    double nextLower = Double.NEGATIVE_INFINITY; // Largest value < xi
     for ( int i = 0; i < n; i++ ) {
-        if ( x2[i] == xi ) {
-            // Value is in sample so return the plotting position
-            return (i + 1)/(double)(n + 1);
+        double value = x[i];
+        if ( value > xi ) {
+            ++countGreater;
+            if ( value < nextHigher ) {
+                nextHigher = value;
+            }
         }
-        else if ( (xi > x2[0]) || (xi < x2[n - 1]) ) {
-            // Don't want to guess about exceedance probability and doing a linear interpolation may give
-            // probability < 0 or > 1 so just don't handle this case
-            String message =
-                "Value (" + xi + ") is outside sample range (" + x2[n - 1] + " to " + x2[0] +
-                ") - not extrapolating exceedance probability";
-            Message.printWarning ( 10, routine, message );
-            throw new IllegalArgumentException ( message );
+        else if ( value == xi ) {
+            ++countEqual;
+        }
+        else if ( value > nextLower ) {
+            nextLower = value;
         }
-        else if ( xi > x2[i] ) {
-            // Value is between sample values so interpolate the plotting position of the bounding values.
-            // Often the value passed in will be the same as one of the array values but off by a very
-            // small amount so this interpolation introduces minor error.
-            double epHigh = i/(double)(n + 1); // For previous value (i + 1 - 1 = i)
-            double epLow = (i + 1)/(double)(n + 1); // For current value
-            return interpolate(xi, x2[i - 1], x2[i], epHigh, epLow);
+        if ( value < min ) {
+            min = value;
         }
+        if ( value > max ) {
+            max = value;
+        }
+    }
+    return exceedanceProbabilityFromCounts ( n, xi, countGreater, countEqual, min, max, nextHigher, nextLower );
+}
+
+/**
+Calculate the exceedance probability from counts of the sample values relative to the value of interest.
+This is shared by exceedanceProbability() and SortedSample so that results are identical.
+@param n the number of values in the sample
+@param xi specific value for which to compute the exceedance probability
+@param countGreater number of sample values &gt; xi
+@param countEqual number of sample values == xi
+@param min minimum sample value
+@param max maximum sample value
+@param nextHigher smallest sample value &gt; xi
+@param nextLower largest sample value &lt; xi
+@return the exceedance probability using the plotting position = rank/(n + 1), where largest value = position 1
+@exception IllegalArgumentException if xi is outside the range of the sample
+*/
+static double exceedanceProbabilityFromCounts ( int n, double xi, int countGreater, int countEqual,
+    double min, double max, double nextHigher, double nextLower )
+{   String routine = "MathUtil.exceedanceProbability";
+    if ( countEqual > 0 ) {
+        // Value is in sample so return the plotting position of the first matching value
+        return (countGreater + 1)/(double)(n + 1);
+    }
+    else if ( (xi > max) || (xi < min) ) {
+        // Don't want to guess about exceedance probability and doing a linear interpolation may give
+        // probability < 0 or > 1 so just don't handle this case
+        String message =
+            "Value (" + xi + ") is outside sample range (" + min + " to " + max +
+            ") - not extrapolating exceedance probability";
+        Message.printWarning ( 10, routine, message );
+        throw new IllegalArgumentException ( message );
+    }
+    else if ( !Double.isNaN(xi) ) {
+        // Value is between sample values so interpolate the plotting position of the bounding values.
+        // Often the value passed in will be the same as one of the array values but off by a very
+        // small amount so this interpolation introduces minor error.
+        double epHigh = countGreater/(double)(n + 1); // For next higher value
+        double epLow = (countGreater + 1)/(double)(n + 1); // For next lower value
+        return interpolate(xi, nextHigher, nextLower, epHigh, epLow);
     }
     String message = "Requested value " + xi + " does not match a value in the array";
     Message.printWarning ( 10, routine, message );
@@ -289,55 +329,152 @@ public static double exceedanceProbability ( int n, double x[], double xi )
 @exception IllegalArgumentException If the number of points is <= 0
 */
 public static double exceedanceProbabilityValue ( int n, double x[], double probability )
+{   return exceedanceProbabilityValue ( n, x, probability, null );
+}
+
+/**
+Return the sample value corresponding to the given exceedance probability.
+The values bracketing the probability are found by selection rather than by sorting the sample.
+@return The sample value corresponding to the given exceedance probability.
+@param n the number of values in the sample array to process
+@param x sample values
+@param probability the exceedance probability to consider (0.0 to 1.0)
+@param work scratch array with at least n values, to avoid allocating memory.  If the same array as x is
+passed, the first n values of x are reordered.  If null or too small, an array is allocated.
+@exception IllegalArgumentException If the number of points is <= 0
+*/
+public static double exceedanceProbabilityValue ( int n, double x[], double probability, double work[] )
 {   String routine = "MathUtil.exceedanceProbabilityValue";
-    double value = 0;
 
     if ( n <= 0 ) {
         String message = "Number of points <= 0";
         Message.printWarning ( 10, routine, message );
         throw new IllegalArgumentException ( message );
     }
-    // First sort the numbers into ascending order...
-    double [] x2 = new double[x.length];
-    System.arraycopy(x, 0, x2, 0, n);
-    sort(x2, SORT_QUICK, SORT_ASCENDING, null, false);
-    
-    // Calculate the distribution information
-    double [] eProb = new double[n];
-    int n1 = n + 1;
-    for ( int i = 0; i < n; i++ ) {
-        if ( n == 1 ) {
-            eProb[i] = 1.0;
-        }
-        else {
-            eProb[i] = (n - i)/(double)n1;
-        }
+    double [] x2 = copyToWork ( n, x, work );
+    // Find the position in the ascending sample that brackets the probability and select the values
+    int i = exceedanceProbabilityPosition ( n, probability );
+    if ( i == 0 ) {
+        return min ( n, x2 );
     }
-    
-    // Calculate the value for the requested probability.  Do so by going
-    // past the value and then interpolating back to the value using
-    // bracketing points.  If the requested probability is outside the
-    // range of the data use the appropriate endpoint (this is conservative).
-    // The data values are in ascending order, so the exceedance probabilities
-    // will be in descending order.
-    // Do not extrapolate past the ends of the data (will be conservative
-    // on the high data end and inaccurate on the low data end).
-    int n0  = n - 1;
-    for ( int i = 0; i < n; i++ ) {
-        if ( eProb[i] < probability ) {
-            if ( i == 0 ) {
-                value = x2[0];
-            }
-            else {
-                value = interpolate(probability, eProb[i - 1], eProb[i], x2[i - 1], x2[i] );
-            }
-            break;
+    else if ( i > 0 ) {
+        double value2 = select ( n, x2, i );
+        // Values before position i are <= value2 after selection so the previous value is the maximum of those
+        double value1 = max ( i, x2 );
+        return interpolate(probability, exceedanceProbabilityForPosition(n, i - 1),
+            exceedanceProbabilityForPosition(n, i), value1, value2 );
+    }
+    else if ( probability < exceedanceProbabilityForPosition(n, n - 1) ) {
+        return max ( n, x2 );
+    }
+    return 0;
+}
+
+/**
+Return the sample values corresponding to several exceedance probabilities.
+The sample is sorted once and then each probability is evaluated, which is faster than calling
+exceedanceProbabilityValue() for each probability.
+@param n the number of values in the sample array to process
+@param x sample values
+@param probabilities the exceedance probabilities to consider (0.0 to 1.0)
+@param values array to receive the values for each probability (if null, a new array is allocated)
+@param work scratch array with at least n values, to avoid allocating memory.  If the same array as x is
+passed, the first n values of x are sorted.  If null or too small, an array is allocated.
+@return the values for each probability
+@exception IllegalArgumentException If the number of points is <= 0
+*/
+public static double [] exceedanceProbabilityValues ( int n, double x[], double [] probabilities, double [] values,
+    double work[] )
+{   String routine = "MathUtil.exceedanceProbabilityValues";
+
+    if ( n <= 0 ) {
+        String message = "Number of points <= 0";
+        Message.printWarning ( 10, routine, message );
+        throw new IllegalArgumentException ( message );
+    }
+    if ( values == null ) {
+        values = new double[probabilities.length];
+    }
+    double [] x2 = copyToWork ( n, x, work );
+    Arrays.sort ( x2, 0, n );
+    for ( int ip = 0; ip < probabilities.length; ip++ ) {
+        values[ip] = exceedanceProbabilityValueSorted ( n, x2, probabilities[ip] );
+    }
+    return values;
+}
+
+/**
+Return the exceedance probability for a position in the sample sorted into ascending order.
+*/
+private static double exceedanceProbabilityForPosition ( int n, int i )
+{   if ( n == 1 ) {
+        return 1.0;
+    }
+    else {
+        return (n - i)/(double)(n + 1);
+    }
+}
+
+/**
+Return the first position in the sample sorted into ascending order that has an exceedance probability less
+than the requested probability, or -1 if there is no such position.
+*/
+private static int exceedanceProbabilityPosition ( int n, double probability )
+{   for ( int i = 0; i < n; i++ ) {
+        if ( exceedanceProbabilityForPosition(n, i) < probability ) {
+            return i;
         }
     }
-    if ( probability < eProb[n0] ) {
-        value = x2[n0];
+    return -1;
+}
+
+/**
+Return the sample value corresponding to the given exceedance probability, for a sample that has been sorted
+into ascending order.  This is shared by exceedanceProbabilityValue(), exceedanceProbabilityValues(),
+and SortedSample so that results are identical.
+Calculate the value for the requested probability by going
+past the value and then interpolating back to the value using
+bracketing points.  If the requested probability is outside the
+range of the data use the appropriate endpoint (this is conservative).
+The data values are in ascending order, so the exceedance probabilities
+will be in descending order.
+Do not extrapolate past the ends of the data (will be conservative
+on the high data end and inaccurate on the low data end).
+@param n the number of values in the sample
+@param x2 sample values sorted into ascending order
+@param probability the exceedance probability to consider (0.0 to 1.0)
+*/
+static double exceedanceProbabilityValueSorted ( int n, double x2[], double probability )
+{   int i = exceedanceProbabilityPosition ( n, probability );
+    if ( i == 0 ) {
+        return x2[0];
     }
-    return value;
+    else if ( i > 0 ) {
+        return interpolate(probability, exceedanceProbabilityForPosition(n, i - 1),
+            exceedanceProbabilityForPosition(n, i), x2[i - 1], x2[i] );
+    }
+    else if ( probability < exceedanceProbabilityForPosition(n, n - 1) ) {
+        return x2[n - 1];
+    }
+    return 0;
+}
+
+/**
+Copy the first n values of an array to a scratch array for reordering.
+@param n number of values to copy
+@param x array to copy
+@param work scratch array - if the same as x, no copy is made; if null or too small, a new array is allocated
+@return the array containing the first n values of x, which can be reordered
+*/
+private static double [] copyToWork ( int n, double x[], double work[] )
+{   if ( work == x ) {
+        return x;
+    }
+    if ( (work == null) || (work.length < n) ) {
+        work = new double[n];
+    }
+    System.arraycopy ( x, 0, work, 0, n );
+    return work;
 }
 
 /**
@@ -711,18 +848,37 @@ Find the median value in an array.  If the number of values is even, the average
 */
 public static double median(int n, double x[])
 {
-    double[] b = new double[n];
-    System.arraycopy(x, 0, b, 0, n);
-    Arrays.sort(b);
+    return median ( n, x, null );
+}
 
+/**
+Find the median value in an array.  If the number of values is even, the average of the middle two values is returned.
+The middle values are found by selection rather than by sorting the sample.
+@param n Number of values from x to evaluate.
+@param x The array to evaluate.
+@param work scratch array with at least n values, to avoid allocating memory.  If the same array as x is
+passed, the first n values of x are reordered.  If null or too small, an array is allocated.
+@return the median value from x
+@exception IllegalArgumentException If the number of points is <= 0
+*/
+public static double median ( int n, double x[], double work[] )
+{
+    if ( n <= 0 ) {
+        String message = "Number of points <= 0";
+        Message.printWarning ( 10, "MathUtil.median", message );
+        throw new IllegalArgumentException ( message );
+    }
+    double [] b = copyToWork ( n, x, work );
+    double upper = select ( n, b, n/2 );
     if ( (n % 2) == 0) {
         // Even number in the sample so return the average of the middle two values.
-        return (b[(b.length / 2) - 1] + b[b.length / 2]) / 2.0;
+        // Values before position n/2 are <= the selected value so the lower middle value is the maximum of those.
+        return (max(n/2, b) + upper) / 2.0;
     }
     else {
-        // Return the value in the middle of the array.  Since integer math is used for the index,
+        // Return the value in the middle of the sample.  Since integer math is used for the index,
         // the roundoff will result in the correct position.
-        return b[b.length/2];
+        return upper;
     }
 }
 
@@ -878,6 +1034,19 @@ public static double nonexceedanceProbabilityValue ( int n, double x[], double n
 	return exceedanceProbabilityValue ( n, x, (1.0 - neprobability) );
 }
 
+/**
+@return the sample value corresponding to the given nonexceedance probability.
+@param n the number of values in the sample array to process
+@param x sample values
+@param neprobability the nonexceedance probability to consider (0.0 to 1.0)
+@param work scratch array (see exceedanceProbabilityValue(int,double[],double,double[]))
+@exception IllegalArgumentException If the number of points is <= 0
+*/
+public static double nonexceedanceProbabilityValue ( int n, double x[], double neprobability, double work[] )
+{
+	return exceedanceProbabilityValue ( n, x, (1.0 - neprobability), work );
+}
+
 /**
 Perform an ordinary least squares regression on data that has already been transformed and processed for
 missing data.  A minimal number of analysis statistics and results are saved and
@@ -1074,6 +1243,20 @@ public static double plottingPosition ( int n, double x[], SortOrderType sortOrd
     }
     // First determine the rank
     double rank = rank(n, x, sortOrderType, xi);
+    return plottingPositionFromRank ( n, rank, distributionType, distributionParameters );
+}
+
+/**
+Calculate the plotting position for a distribution, given the rank of the value.
+This is shared by plottingPosition() and SortedSample so that results are identical.
+@param n the number of values in the sample
+@param rank the rank of the value (1+)
+@return The plotting position (0 to 1).
+@exception IllegalArgumentException If the distribution is not supported or its parameters are not valid
+*/
+static double plottingPositionFromRank ( int n, double rank, DistributionType distributionType,
+    Hashtable<String,String> distributionParameters )
+{   String routine = "MathUtil.plottingPosition";
     // The plotting position is calculated based on the distribution
     if ( distributionType == DistributionType.WEIBULL ) {
         return rank/(n + 1.0);
@@ -1129,34 +1312,43 @@ public static double rank ( int n, double x[], SortOrderType sortOrderType, doub
         Message.printWarning ( 10, routine, message );
         throw new IllegalArgumentException ( message );
     }
-    // First sort the numbers into descending order (largest value in data array will be first)...
-    double [] x2 = new double[x.length];
-    System.arraycopy(x, 0, x2, 0, n);
-    if ( (sortOrderType == null) || (sortOrderType == SortOrderType.HIGH_TO_LOW) ) {
-        sort(x2, SORT_QUICK, SORT_DESCENDING, null, false);
-    }
-    else {
-        sort(x2, SORT_QUICK, SORT_ASCENDING, null, false);
-    }
-    
-    // Find the first matching value and return the position
+    // The position of the first matching value in the sorted sample is determined by counting the values that
+    // sort ahead of it, so the sample does not need to be copied and sorted.
+    int countBefore = 0;
+    int countEqual = 0;
+    boolean descending = (sortOrderType == null) || (sortOrderType == SortOrderType.HIGH_TO_LOW);
     for ( int i = 0; i < n; i++ ) {
-        if ( x2[i] == xi ) {
-            // Value is in sample - search adjoining values to see if there are additional matches and if so
-            // return the average of the ranks
-            int count = 1;
-            double rank = (double)(i + 1);
-            for ( int j = (i + 1); j < n; j++ ) {
-                if ( x2[j] == xi ) {
-                    rank += (double)(j + 1);
-                    ++count;
-                }
-            }
-            return rank/count;
+        if ( x[i] == xi ) {
+            ++countEqual;
+        }
+        else if ( descending ? (x[i] > xi) : (x[i] < xi) ) {
+            ++countBefore;
+        }
+    }
+    return rankFromCounts ( xi, countBefore, countEqual );
+}
+
+/**
+Calculate the rank from counts of the sample values relative to the value of interest.
+This is shared by rank() and SortedSample so that results are identical.
+@param xi specific value for which to compute the rank
+@param countBefore number of sample values that are before xi in the sort order
+@param countEqual number of sample values == xi
+@return the rank (1+), which is the average of the ranks if the value is tied with others
+@exception IllegalArgumentException if xi does not match a value in the sample
+*/
+static double rankFromCounts ( double xi, int countBefore, int countEqual )
+{
+    if ( countEqual > 0 ) {
+        // Value is in sample - if there are additional matches return the average of the ranks
+        double rank = (double)(countBefore + 1);
+        for ( int j = 1; j < countEqual; j++ ) {
+            rank += (double)(countBefore + j + 1);
         }
+        return rank/countEqual;
     }
     String message = "Requested value " + xi + " does not match a value in the array";
-    Message.printWarning ( 10, routine, message );
+    Message.printWarning ( 10, "MathUtil.rank", message );
     throw new IllegalArgumentException ( message );
 }
 
@@ -1788,6 +1980,82 @@ public static double skew ( int n, double x[] )
     return skew;
 }
 
+/**
+Select the k-th smallest value (0 is the smallest) from the first n values of an array, using an in-place
+quickselect, which on average takes time proportional to n rather than sorting the values.
+The first n values are reordered so that values before position k are &lt;= the selected value
+and values after position k are &gt;= the selected value.  No memory is allocated.
+@param n number of values in the array to consider
+@param x the array of values, which will be reordered
+@param k position (0+) of the value to select in ascending order
+@return the k-th smallest value
+@exception IllegalArgumentException if k is not in the range 0 to n - 1
+*/
+public static double select ( int n, double x[], int k )
+{
+    if ( (k < 0) || (k >= n) ) {
+        String message = "Position " + k + " is outside the range 0 to " + (n - 1);
+        Message.printWarning ( 10, "MathUtil.select", message );
+        throw new IllegalArgumentException ( message );
+    }
+    int left = 0;
+    int right = n - 1;
+    double temp;
+    while ( right > left ) {
+        if ( (right - left) < 16 ) {
+            // Insertion sort for a short range
+            for ( int i = left + 1; i <= right; i++ ) {
+                temp = x[i];
+                int j = i - 1;
+                while ( (j >= left) && (x[j] > temp) ) {
+                    x[j + 1] = x[j];
+                    --j;
+                }
+                x[j + 1] = temp;
+            }
+            return x[k];
+        }
+        // Use the median of the first, middle, and last values as the pivot
+        int mid = (left + right) >>> 1;
+        if ( x[mid] < x[left] ) {
+            temp = x[mid]; x[mid] = x[left]; x[left] = temp;
+        }
+        if ( x[right] < x[left] ) {
+            temp = x[right]; x[right] = x[left]; x[left] = temp;
+        }
+        if ( x[right] < x[mid] ) {
+            temp = x[right]; x[right] = x[mid]; x[mid] = temp;
+        }
+        double pivot = x[mid];
+        int i = left;
+        int j = right;
+        while ( i <= j ) {
+            while ( x[i] < pivot ) {
+                ++i;
+            }
+            while ( x[j] > pivot ) {
+                --j;
+            }
+            if ( i <= j ) {
+                temp = x[i]; x[i] = x[j]; x[j] = temp;
+                ++i;
+                --j;
+            }
+        }
+        // Values left..j are <= pivot, values i..right are >= pivot and values between are equal to the pivot
+        if ( k <= j ) {
+            right = j;
+        }
+        else if ( k >= i ) {
+            left = i;
+        }
+        else {
+            return x[k];
+        }
+    }
+    return x[k];
+}
+
 /**
 Sort an array of doubles.
 @return Zero if successful and 1 if not successful.
@@ -0,0 +1,626 @@
+// SlidingWindowStatistics - incremental statistics for a first-in first-out sliding window of values
+
+/* NoticeStart
+
+CDSS Common Java Library
+CDSS Common Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Common Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Common Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Common Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package RTi.Util.Math;
+
+import java.util.Random;
+
+/**
+Incremental statistics for a first-in first-out sliding window of values, for example the sample used by a
+running statistic as the window moves one interval at a time.  Values are added at the end of the window with add()
+and the oldest value is removed with remove(), so that each step costs O(1) for the sum, mean and variance
+(Welford-style updates), O(1) amortized for the minimum and maximum (monotonic deques), and O(log n) for the
+median and other order statistics (an indexable balanced tree), rather than recomputing from the full sample.
+Missing values should not be added - the caller is responsible for tracking which window positions are missing.
+The sum, mean, and variance are periodically recomputed from the window values to limit round-off accumulation,
+and may therefore differ from the MathUtil methods in the last digits.  The minimum, maximum, and order statistics
+are exact.  This class is not thread safe.
+*/
+public class SlidingWindowStatistics
+{
+
+/**
+Values in the window, in the order added, as a circular buffer.
+*/
+private double [] __values;
+
+/**
+Position in __values of the oldest value.
+*/
+private int __head = 0;
+
+/**
+Number of values in the window.
+*/
+private int __count = 0;
+
+/**
+Sequence number of the oldest value in the window, incremented as values are removed.
+The newest value has sequence number __firstSeq + __count - 1.
+*/
+private long __firstSeq = 0;
+
+/**
+Sum of values in the window and compensation for lost low-order bits (Neumaier summation).
+*/
+private double __sum = 0.0;
+private double __sumCompensation = 0.0;
+
+/**
+Mean and sum of squared differences from the mean, updated with Welford's method.
+*/
+private double __mean = 0.0;
+private double __m2 = 0.0;
+
+/**
+Number of removals since the sum and moments were last recomputed from the window values.
+*/
+private int __removeCountSinceResync = 0;
+
+/**
+Monotonic deque of sequence numbers for the minimum (values increasing from the head), as a circular buffer.
+*/
+private long [] __minDeque;
+private int __minHead = 0;
+private int __minCount = 0;
+
+/**
+Monotonic deque of sequence numbers for the maximum (values decreasing from the head), as a circular buffer.
+*/
+private long [] __maxDeque;
+private int __maxHead = 0;
+private int __maxCount = 0;
+
+/**
+Whether the order statistic tree is maintained, needed for getMedian(), getOrderStatistic() and getQuantile().
+*/
+private boolean __trackOrderStatistics;
+
+/**
+Root of the order statistic tree (a treap ordered by value and then sequence number), or null if empty.
+*/
+private OrderNode __root = null;
+
+/**
+Random number generator for treap priorities, seeded so that results are repeatable.
+*/
+private Random __random = new Random(1);
+
+/**
+Construct an empty window.
+@param capacity initial capacity of the window (the window will grow if more values are added).
+@param trackOrderStatistics if true, maintain the structure needed for the median and other order statistics,
+which adds O(log n) work to each add() and remove().
+*/
+public SlidingWindowStatistics ( int capacity, boolean trackOrderStatistics )
+{
+    if ( capacity < 1 ) {
+        capacity = 1;
+    }
+    __values = new double[capacity];
+    __minDeque = new long[capacity];
+    __maxDeque = new long[capacity];
+    __trackOrderStatistics = trackOrderStatistics;
+}
+
+/**
+Add a value to the end (newest position) of the window.
+@param value value to add, which should not be a missing value.
+*/
+public void add ( double value )
+{
+    if ( __count == __values.length ) {
+        grow();
+    }
+    long seq = __firstSeq + __count;
+    __values[(__head + __count) % __values.length] = value;
+    ++__count;
+    // Sum with Neumaier compensation
+    addToSum ( value );
+    // Welford update of mean and M2
+    double delta = value - __mean;
+    __mean += delta/__count;
+    __m2 += delta*(value - __mean);
+    // Remove values from the back of the deques that can no longer be the minimum or maximum
+    while ( (__minCount > 0) && (getValue(__minDeque[(__minHead + __minCount - 1) % __minDeque.length]) > value) ) {
+        --__minCount;
+    }
+    __minDeque[(__minHead + __minCount) % __minDeque.length] = seq;
+    ++__minCount;
+    while ( (__maxCount > 0) && (getValue(__maxDeque[(__maxHead + __maxCount - 1) % __maxDeque.length]) < value) ) {
+        --__maxCount;
+    }
+    __maxDeque[(__maxHead + __maxCount) % __maxDeque.length] = seq;
+    ++__maxCount;
+    if ( __trackOrderStatistics ) {
+        __root = insert ( __root, new OrderNode(value, seq, __random.nextInt()) );
+    }
+}
+
+/**
+Add a value to the compensated sum.
+*/
+private void addToSum ( double value )
+{
+    double t = __sum + value;
+    if ( Math.abs(__sum) >= Math.abs(value) ) {
+        __sumCompensation += (__sum - t) + value;
+    }
+    else {
+        __sumCompensation += (value - t) + __sum;
+    }
+    __sum = t;
+}
+
+/**
+Remove all values from the window.
+*/
+public void clear ()
+{
+    __firstSeq += __count;
+    __head = 0;
+    __count = 0;
+    __sum = 0.0;
+    __sumCompensation = 0.0;
+    __mean = 0.0;
+    __m2 = 0.0;
+    __removeCountSinceResync = 0;
+    __minHead = 0;
+    __minCount = 0;
+    __maxHead = 0;
+    __maxCount = 0;
+    __root = null;
+}
+
+/**
+Return the number of values in the window.
+@return the number of values in the window.
+*/
+public int getCount ()
+{
+    return __count;
+}
+
+/**
+Return the maximum value in the window.
+@return the maximum value in the window.
+@exception IllegalArgumentException if the window is empty.
+*/
+public double getMax ()
+{
+    checkCount ( 1, "maximum" );
+    return getValue(__maxDeque[__maxHead]);
+}
+
+/**
+Return the mean of the values in the window.
+@return the mean of the values in the window.
+@exception IllegalArgumentException if the window is empty.
+*/
+public double getMean ()
+{
+    checkCount ( 1, "mean" );
+    return getSum()/__count;
+}
+
+/**
+Return the median of the values in the window.
+If the number of values is even, the average of the middle two values is returned, consistent with MathUtil.median().
+@return the median of the values in the window.
+@exception IllegalArgumentException if the window is empty.
+@exception IllegalStateException if order statistics are not being tracked.
+*/
+public double getMedian ()
+{
+    checkCount ( 1, "median" );
+    if ( (__count % 2) == 0 ) {
+        return (getOrderStatistic(__count/2 - 1) + getOrderStatistic(__count/2))/2.0;
+    }
+    else {
+        return getOrderStatistic(__count/2);
+    }
+}
+
+/**
+Return the minimum value in the window.
+@return the minimum value in the window.
+@exception IllegalArgumentException if the window is empty.
+*/
+public double getMin ()
+{
+    checkCount ( 1, "minimum" );
+    return getValue(__minDeque[__minHead]);
+}
+
+/**
+Return the value with the given rank in the window, where rank 0 is the smallest value.
+@param k zero-based rank of the value, 0 to getCount() - 1.
+@return the value with the given rank.
+@exception IllegalArgumentException if k is out of range.
+@exception IllegalStateException if order statistics are not being tracked.
+*/
+public double getOrderStatistic ( int k )
+{
+    if ( !__trackOrderStatistics ) {
+        throw new IllegalStateException ( "Order statistics are not being tracked for the window." );
+    }
+    if ( (k < 0) || (k >= __count) ) {
+        throw new IllegalArgumentException ( "Rank (" + k + ") is not in the range 0 to " + (__count - 1) + "." );
+    }
+    OrderNode node = __root;
+    while ( true ) {
+        int leftSize = size(node.left);
+        if ( k < leftSize ) {
+            node = node.left;
+        }
+        else if ( k == leftSize ) {
+            return node.value;
+        }
+        else {
+            k -= leftSize + 1;
+            node = node.right;
+        }
+    }
+}
+
+/**
+Return a quantile of the values in the window, interpolating linearly between the values with the
+bracketing ranks (position p*(n - 1) in the sorted sample).
+@param p non-exceedance probability as a fraction, 0 to 1.
+@return the quantile of the values in the window.
+@exception IllegalArgumentException if the window is empty or p is not in the range 0 to 1.
+@exception IllegalStateException if order statistics are not being tracked.
+*/
+public double getQuantile ( double p )
+{
+    checkCount ( 1, "quantile" );
+    if ( !(p >= 0.0) || (p > 1.0) ) {
+        throw new IllegalArgumentException ( "Probability (" + p + ") is not in the range 0 to 1." );
+    }
+    double position = p*(__count - 1);
+    int k = (int)Math.floor(position);
+    double fraction = position - k;
+    double value = getOrderStatistic(k);
+    if ( fraction > 0.0 ) {
+        value += fraction*(getOrderStatistic(k + 1) - value);
+    }
+    return value;
+}
+
+/**
+Return the sample standard deviation (square root of the sample variance) of the values in the window.
+@return the sample standard deviation of the values in the window.
+@exception IllegalArgumentException if the number of values is < 2 or the variance is zero,
+consistent with MathUtil.standardDeviation().
+*/
+public double getStandardDeviation ()
+{
+    double var;
+    try {
+        var = getVariance();
+    }
+    catch ( Exception e ) {
+        throw new IllegalArgumentException ( "Error calculating variance - cannot calculate standard deviation." );
+    }
+    if ( var <= 0.0 ) {
+        throw new IllegalArgumentException ( "Variance (" + var + ") <= 0.  Cannot calculate standard deviation." );
+    }
+    return Math.sqrt ( var );
+}
+
+/**
+Return the sum of the values in the window.
+@return the sum of the values in the window, or zero if the window is empty.
+*/
+public double getSum ()
+{
+    return __sum + __sumCompensation;
+}
+
+/**
+Return the value with the given sequence number, which must be in the window.
+*/
+private double getValue ( long seq )
+{
+    return __values[(int)((__head + (seq - __firstSeq)) % __values.length)];
+}
+
+/**
+Return the sample variance (sum(x_i - mean(x))^2)/(n - 1) of the values in the window.
+@return the sample variance of the values in the window.
+@exception IllegalArgumentException if the number of values is < 2, consistent with MathUtil.variance().
+*/
+public double getVariance ()
+{
+    if ( __count <= 1 ) {
+        throw new IllegalArgumentException ( "Error calculating sample variance - the number of data values (" +
+            __count + ") must be >= 2)." );
+    }
+    if ( getMin() == getMax() ) {
+        // All values are the same so avoid returning a tiny non-zero value due to round-off
+        return 0.0;
+    }
+    double var = __m2/(__count - 1);
+    if ( var < 0.0 ) {
+        var = 0.0;
+    }
+    return var;
+}
+
+/**
+Check that the window has enough values for a statistic.
+*/
+private void checkCount ( int minCount, String statistic )
+{
+    if ( __count < minCount ) {
+        throw new IllegalArgumentException ( "Number of values in window (" + __count + ") is < " + minCount +
+            ".  Cannot compute " + statistic + "." );
+    }
+}
+
+/**
+Double the capacity of the window arrays, preserving the order of values.
+*/
+private void grow ()
+{
+    int capacity = __values.length*2;
+    double [] values = new double[capacity];
+    for ( int i = 0; i < __count; i++ ) {
+        values[i] = __values[(__head + i) % __values.length];
+    }
+    __values = values;
+    __head = 0;
+    long [] minDeque = new long[capacity];
+    for ( int i = 0; i < __minCount; i++ ) {
+        minDeque[i] = __minDeque[(__minHead + i) % __minDeque.length];
+    }
+    __minDeque = minDeque;
+    __minHead = 0;
+    long [] maxDeque = new long[capacity];
+    for ( int i = 0; i < __maxCount; i++ ) {
+        maxDeque[i] = __maxDeque[(__maxHead + i) % __maxDeque.length];
+    }
+    __maxDeque = maxDeque;
+    __maxHead = 0;
+}
+
+/**
+Remove the oldest value from the window.
+@return the value that was removed.
+@exception IllegalStateException if the window is empty.
+*/
+public double remove ()
+{
+    if ( __count == 0 ) {
+        throw new IllegalStateException ( "Cannot remove a value from an empty window." );
+    }
+    long seq = __firstSeq;
+    double value = __values[__head];
+    __head = (__head + 1) % __values.length;
+    --__count;
+    ++__firstSeq;
+    if ( (__minCount > 0) && (__minDeque[__minHead] == seq) ) {
+        __minHead = (__minHead + 1) % __minDeque.length;
+        --__minCount;
+    }
+    if ( (__maxCount > 0) && (__maxDeque[__maxHead] == seq) ) {
+        __maxHead = (__maxHead + 1) % __maxDeque.length;
+        --__maxCount;
+    }
+    if ( __trackOrderStatistics ) {
+        __root = delete ( __root, value, seq );
+    }
+    if ( __count == 0 ) {
+        __sum = 0.0;
+        __sumCompensation = 0.0;
+        __mean = 0.0;
+        __m2 = 0.0;
+        __removeCountSinceResync = 0;
+        return value;
+    }
+    if ( (__count == 1) || (++__removeCountSinceResync >= __count) ) {
+        // Recompute from the window values once the window has turned over, which is O(1) amortized and
+        // keeps round-off from a previous wide spread of values out of the variance for a narrow spread
+        resync();
+        return value;
+    }
+    addToSum ( -value );
+    // Reverse Welford update
+    double meanPrev = __mean;
+    __mean -= (value - __mean)/__count;
+    double m2Removed = (value - meanPrev)*(value - __mean);
+    __m2 -= m2Removed;
+    if ( m2Removed > 1024.0*__m2 ) {
+        // Most of M2 was due to the removed value so the subtraction lost significant digits
+        resync();
+    }
+    return value;
+}
+
+/**
+Recompute the sum, mean and M2 from the values in the window to discard accumulated round-off.
+*/
+private void resync ()
+{
+    __sum = 0.0;
+    __sumCompensation = 0.0;
+    for ( int i = 0; i < __count; i++ ) {
+        addToSum ( __values[(__head + i) % __values.length] );
+    }
+    __mean = getSum()/__count;
+    double m2 = 0.0;
+    for ( int i = 0; i < __count; i++ ) {
+        double dif = __values[(__head + i) % __values.length] - __mean;
+        m2 += dif*dif;
+    }
+    __m2 = m2;
+    __removeCountSinceResync = 0;
+}
+
+// Order statistic tree (treap) methods.
+
+/**
+Compare a value and sequence number with a node, for ordering the tree.
+*/
+private static int compare ( double value, long seq, OrderNode node )
+{
+    int c = Double.compare(value, node.value);
+    if ( c == 0 ) {
+        c = Long.compare(seq, node.seq);
+    }
+    return c;
+}
+
+/**
+Delete the node with the given value and sequence number from the subtree.
+@return the new root of the subtree.
+*/
+private static OrderNode delete ( OrderNode node, double value, long seq )
+{
+    if ( node == null ) {
+        return null;
+    }
+    int c = compare(value, seq, node);
+    if ( c < 0 ) {
+        node.left = delete(node.left, value, seq);
+    }
+    else if ( c > 0 ) {
+        node.right = delete(node.right, value, seq);
+    }
+    else {
+        return merge(node.left, node.right);
+    }
+    node.update();
+    return node;
+}
+
+/**
+Insert a node into the subtree.
+@return the new root of the subtree.
+*/
+private static OrderNode insert ( OrderNode node, OrderNode newNode )
+{
+    if ( node == null ) {
+        return newNode;
+    }
+    if ( newNode.priority > node.priority ) {
+        // New node becomes the root of this subtree
+        OrderNode [] parts = split(node, newNode.value, newNode.seq);
+        newNode.left = parts[0];
+        newNode.right = parts[1];
+        newNode.update();
+        return newNode;
+    }
+    if ( compare(newNode.value, newNode.seq, node) < 0 ) {
+        node.left = insert(node.left, newNode);
+    }
+    else {
+        node.right = insert(node.right, newNode);
+    }
+    node.update();
+    return node;
+}
+
+/**
+Merge two subtrees where all keys in the left are less than all keys in the right.
+@return the root of the merged tree.
+*/
+private static OrderNode merge ( OrderNode left, OrderNode right )
+{
+    if ( left == null ) {
+        return right;
+    }
+    if ( right == null ) {
+        return left;
+    }
+    if ( left.priority > right.priority ) {
+        left.right = merge(left.right, right);
+        left.update();
+        return left;
+    }
+    else {
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+}
+
+/**
+Return the size of a subtree.
+*/
+private static int size ( OrderNode node )
+{
+    return (node == null) ? 0 : node.size;
+}
+
+/**
+Split a subtree into nodes less than the key and nodes greater than the key.
+@return array of the two subtree roots.
+*/
+private static OrderNode [] split ( OrderNode node, double value, long seq )
+{
+    if ( node == null ) {
+        return new OrderNode[] { null, null };
+    }
+    if ( compare(value, seq, node) > 0 ) {
+        OrderNode [] parts = split(node.right, value, seq);
+        node.right = parts[0];
+        node.update();
+        parts[0] = node;
+        return parts;
+    }
+    else {
+        OrderNode [] parts = split(node.left, value, seq);
+        node.left = parts[1];
+        node.update();
+        parts[1] = node;
+        return parts;
+    }
+}
+
+/**
+Node in the order statistic tree.
+*/
+private static class OrderNode
+{
+    double value;
+    long seq;
+    int priority;
+    int size = 1;
+    OrderNode left;
+    OrderNode right;
+
+    OrderNode ( double value, long seq, int priority )
+    {
+        this.value = value;
+        this.seq = seq;
+        this.priority = priority;
+    }
+
+    void update ()
+    {
+        this.size = 1 + size(this.left) + size(this.right);
+    }
+}
+
+}
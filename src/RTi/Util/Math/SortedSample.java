@@ -0,0 +1,262 @@
+// SortedSample - a sample sorted once so that percentile, rank, and exceedance queries can be repeated quickly
+
+/* NoticeStart
+
+CDSS Common Java Library
+CDSS Common Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Common Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Common Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Common Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package RTi.Util.Math;
+
+import java.util.Arrays;
+import java.util.Hashtable;
+
+import RTi.Util.Message.Message;
+
+/**
+A sample that is sorted once so that the median, exceedance probabilities, ranks, and plotting positions
+can be queried many times, each query taking O(log n) time by binary search of the sorted values rather
+than copying and sorting the sample as the single-query MathUtil methods do.  This is useful when the same
+sample is evaluated for many values, for example a sample of all years for a day of the year.
+Results are identical to the corresponding MathUtil methods.  The sample values should not include missing
+values or NaN.  The sort buffer is reused when a new sample is set, so repeated use does not allocate memory
+once the buffer is large enough.  This class is not thread safe.
+*/
+public class SortedSample
+{
+
+/**
+Sample values sorted into ascending order.  Only the first __count values are used.
+*/
+private double [] __sorted = new double[0];
+
+/**
+Number of values in the sample.
+*/
+private int __count = 0;
+
+/**
+Create an empty sample.  Call setSample() before querying.
+*/
+public SortedSample ()
+{
+}
+
+/**
+Create a sample from the first n values of an array.
+@param n number of values in the sample.
+@param x sample values, which are copied and not modified.
+*/
+public SortedSample ( int n, double [] x )
+{
+    setSample ( n, x );
+}
+
+/**
+Check that the sample has values.
+@param routine name of the calling method, for messages.
+@exception IllegalArgumentException if the sample is empty, consistent with MathUtil.
+*/
+private void checkCount ( String routine )
+{
+    if ( __count <= 0 ) {
+        String message = "Number of points <= 0";
+        Message.printWarning ( 10, "SortedSample." + routine, message );
+        throw new IllegalArgumentException ( message );
+    }
+}
+
+/**
+Return the number of values in the sample.
+@return the number of values in the sample.
+*/
+public int getCount ()
+{
+    return __count;
+}
+
+/**
+Return the exceedance probability for a value, consistent with MathUtil.exceedanceProbability().
+@param xi value for which to compute the exceedance probability (must be in the range of the sample).
+@return the exceedance probability.
+@exception IllegalArgumentException if the sample is empty or xi is outside the range of the sample.
+*/
+public double getExceedanceProbability ( double xi )
+{
+    checkCount ( "getExceedanceProbability" );
+    int lower = lowerBound ( xi );
+    int upper = upperBound ( xi );
+    double nextHigher = (upper < __count) ? __sorted[upper] : Double.POSITIVE_INFINITY;
+    double nextLower = (lower > 0) ? __sorted[lower - 1] : Double.NEGATIVE_INFINITY;
+    return MathUtil.exceedanceProbabilityFromCounts ( __count, xi, __count - upper, upper - lower,
+        __sorted[0], __sorted[__count - 1], nextHigher, nextLower );
+}
+
+/**
+Return the sample value for an exceedance probability, consistent with MathUtil.exceedanceProbabilityValue().
+@param probability the exceedance probability (0.0 to 1.0).
+@return the sample value for the exceedance probability.
+@exception IllegalArgumentException if the sample is empty.
+*/
+public double getExceedanceProbabilityValue ( double probability )
+{
+    checkCount ( "getExceedanceProbabilityValue" );
+    return MathUtil.exceedanceProbabilityValueSorted ( __count, __sorted, probability );
+}
+
+/**
+Return the median, consistent with MathUtil.median().
+@return the median of the sample.
+@exception IllegalArgumentException if the sample is empty.
+*/
+public double getMedian ()
+{
+    checkCount ( "getMedian" );
+    if ( (__count % 2) == 0 ) {
+        return (__sorted[__count/2 - 1] + __sorted[__count/2])/2.0;
+    }
+    else {
+        return __sorted[__count/2];
+    }
+}
+
+/**
+Return the nonexceedance probability for a value, consistent with MathUtil.nonexceedanceProbability().
+@param xi value for which to compute the nonexceedance probability (must be in the range of the sample).
+@return the nonexceedance probability.
+@exception IllegalArgumentException if the sample is empty or xi is outside the range of the sample.
+*/
+public double getNonexceedanceProbability ( double xi )
+{
+    return 1.0 - getExceedanceProbability ( xi );
+}
+
+/**
+Return the sample value for a nonexceedance probability, consistent with MathUtil.nonexceedanceProbabilityValue().
+@param probability the nonexceedance probability (0.0 to 1.0).
+@return the sample value for the nonexceedance probability.
+@exception IllegalArgumentException if the sample is empty.
+*/
+public double getNonexceedanceProbabilityValue ( double probability )
+{
+    return getExceedanceProbabilityValue ( 1.0 - probability );
+}
+
+/**
+Return the plotting position for a value, consistent with MathUtil.plottingPosition().
+@param sortOrderType the sort order used to determine the rank.
+@param distributionType the distribution used to compute the plotting position from the rank.
+@param distributionParameters distribution parameters (e.g., "a" for GRINGORTEN).
+@param xi value for which to compute the plotting position (must match a value in the sample).
+@return the plotting position (0 to 1).
+@exception IllegalArgumentException if the sample is empty, xi does not match a value in the sample,
+or the distribution is not supported.
+*/
+public double getPlottingPosition ( SortOrderType sortOrderType, DistributionType distributionType,
+    Hashtable<String,String> distributionParameters, double xi )
+{
+    double rank = getRank ( sortOrderType, xi );
+    return MathUtil.plottingPositionFromRank ( __count, rank, distributionType, distributionParameters );
+}
+
+/**
+Return the rank of a value, consistent with MathUtil.rank().
+@param sortOrderType the sort order used to determine the rank (null is the same as HIGH_TO_LOW).
+@param xi value for which to compute the rank (must match a value in the sample).
+@return the rank (1+), which is the average of the ranks if the value is tied with others.
+@exception IllegalArgumentException if the sample is empty or xi does not match a value in the sample.
+*/
+public double getRank ( SortOrderType sortOrderType, double xi )
+{
+    checkCount ( "getRank" );
+    int lower = lowerBound ( xi );
+    int upper = upperBound ( xi );
+    int countBefore;
+    if ( (sortOrderType == null) || (sortOrderType == SortOrderType.HIGH_TO_LOW) ) {
+        countBefore = __count - upper;
+    }
+    else {
+        countBefore = lower;
+    }
+    return MathUtil.rankFromCounts ( xi, countBefore, upper - lower );
+}
+
+/**
+Return a value from the sample, in ascending order.
+@param i position (0+) in the sorted sample.
+@return the i-th smallest value.
+*/
+public double getValue ( int i )
+{
+    return __sorted[i];
+}
+
+/**
+Return the position of the first sorted value that is &gt;= the value (the number of values &lt; the value).
+*/
+private int lowerBound ( double xi )
+{
+    int low = 0;
+    int high = __count;
+    while ( low < high ) {
+        int mid = (low + high) >>> 1;
+        if ( __sorted[mid] < xi ) {
+            low = mid + 1;
+        }
+        else {
+            high = mid;
+        }
+    }
+    return low;
+}
+
+/**
+Set the sample from the first n values of an array.  The values are copied and sorted once.
+@param n number of values in the sample.
+@param x sample values, which are copied and not modified.
+*/
+public void setSample ( int n, double [] x )
+{
+    if ( __sorted.length < n ) {
+        __sorted = new double[n];
+    }
+    System.arraycopy ( x, 0, __sorted, 0, n );
+    Arrays.sort ( __sorted, 0, n );
+    __count = n;
+}
+
+/**
+Return the position of the first sorted value that is &gt; the value (the number of values &lt;= the value).
+*/
+private int upperBound ( double xi )
+{
+    int low = 0;
+    int high = __count;
+    while ( low < high ) {
+        int mid = (low + high) >>> 1;
+        if ( __sorted[mid] <= xi ) {
+            low = mid + 1;
+        }
+        else {
+            high = mid;
+        }
+    }
+    return low;
+}
+
+}
@@ -96,6 +96,7 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.util.List;
+import java.util.function.Supplier;
 import javax.swing.JFrame;
 
 /**
@@ -130,6 +131,13 @@ if ( Message.isDebugOn ) {
   Message.printDebug ( ... );
 }
 </pre>
+Messages that are expensive to format and may not be output, such as status messages printed for each
+time series or data value, can be guarded using isStatusLevelEnabled(), isWarningLevelEnabled(), and
+isDebugLevelEnabled(), or can be passed as a Supplier, which is only called if the message will be output:
+<p>
+<pre>
+Message.printStatus ( 2, routine, () -> "Read " + count + " values for \"" + tsid + "\"" );
+</pre>
 
 If using messages with a GUI, let the Message class know what the top-level
 component is (for use with the warning dialog, etc.)...
@@ -140,6 +148,17 @@ Message.setTopLevel ( this );  // Where this is usually a frame.
 </pre>
 <p>
 
+Batch applications that print many messages can use asynchronous output, so that
+messages are written to the output streams by a background thread and the streams are flushed
+in batches rather than after each message.  Output that is waiting is written when
+flushOutputFiles(), closeLogFile(), or stopAsyncOutput() is called, and when the application exits.
+<p>
+
+<pre>
+Message.startAsyncOutput ();
+</pre>
+<p>
+
 The following causes messages to be passed to a function, which can in turn
 process the messages (the DiagnosticsJFrame does this).  In the future,
 a listener approach may be taken.
@@ -347,6 +366,48 @@ public static int getWarningLevel ( int i )
     return impl.getWarningLevel(i);
 }
 
+/**
+Indicate whether a debug message at the given level will be output by any output receiver.
+This can be used to avoid formatting messages that will not be output.
+@param level Debug level for the message.
+@return true if a debug message at the level will be output.
+*/
+public static boolean isDebugLevelEnabled ( int level )
+{
+    return impl.isDebugLevelEnabled(level);
+}
+
+/**
+Indicate whether a status message at the given level will be output by any output receiver.
+This can be used to avoid formatting messages that will not be output.
+@param level Status level for the message.
+@return true if a status message at the level will be output.
+*/
+public static boolean isStatusLevelEnabled ( int level )
+{
+    return impl.isStatusLevelEnabled(level);
+}
+
+/**
+Indicate whether a warning message at the given level will be output by any output receiver
+or shown in the warning dialog.  This can be used to avoid formatting messages that will not be output.
+@param level Warning level for the message.
+@return true if a warning message at the level will be output.
+*/
+public static boolean isWarningLevelEnabled ( int level )
+{
+    return impl.isWarningLevelEnabled(level);
+}
+
+/**
+Indicate whether asynchronous output is being used (see startAsyncOutput()).
+@return true if asynchronous output is being used.
+*/
+public static boolean isAsyncOutput ()
+{
+    return impl.isAsyncOutput();
+}
+
 /**
 Open the log file.
 Because no log file is specified, the name of the log file will default to
@@ -404,6 +465,17 @@ public static void printDebug ( int level, String routine, Throwable e )
     impl.printDebug(level,routine,e);
 }
 
+/**
+Print a debug message to the registered output receivers, formatting the message only if it will be output.
+@param level Debug level for the message.
+@param routine Name of the routine printing the message.
+@param message Supplier for the debug message, which is only called if the message will be output.
+*/
+public static void printDebug ( int level, String routine, Supplier<String> message )
+{
+    impl.printDebug(level,routine,message);
+}
+
 /**
 Print information about the registered message levels using status messages,
 using the current message settings.
@@ -434,6 +506,17 @@ public static void printStatus ( int level, String routine, String message )
     impl.printStatus(level,routine,message);
 }
 
+/**
+Print a status message to the registered output receivers, formatting the message only if it will be output.
+@param level Status level for the message.
+@param routine Name of the routine printing the message.
+@param message Supplier for the status message, which is only called if the message will be output.
+*/
+public static void printStatus ( int level, String routine, Supplier<String> message )
+{
+    impl.printStatus(level,routine,message);
+}
+
 /**
 This routine calls printWarning but allows the developer to specify a
 different _top_level frame from the preset top level frame.  This is useful
@@ -486,6 +569,17 @@ public static void printWarning ( int level, String routine, Throwable e )
     impl.printWarning(level,routine,e);
 }
 
+/**
+Print a warning message to the registered output receivers, formatting the message only if it will be output.
+@param level Warning level for the message.
+@param routine Name of the routine printing the message.
+@param message Supplier for the warning message, which is only called if the message will be output.
+*/
+public static void printWarning ( int level, String routine, Supplier<String> message )
+{
+    impl.printWarning(level,routine,message);
+}
+
 /**
 Removes a listener from the Vector of listeners that are set to listen to 
 actions from the MessageLogJFrame.
@@ -736,4 +830,41 @@ public static void setWarningLevel( int i, int level )
     impl.setWarningLevel(i,level);
 }
 
+/**
+Start asynchronous output using a buffer of 8192 messages, writing messages at least once per second
+or when 512 messages are waiting, and blocking when the buffer is full so that no messages are lost.
+*/
+public static void startAsyncOutput ()
+{
+    startAsyncOutput ( 8192, 1000, 512, MessageAsyncOverflowType.BLOCK );
+}
+
+/**
+Start asynchronous output.  Messages that are printed to output streams (terminal and log file) are added to a buffer
+and are written by a background thread, which flushes the streams in batches.  Output functions
+(see setOutputFunction()) and the warning dialog are still called when the message is printed.
+Output that is waiting is written when flushOutputFiles(), closeLogFile(), setOutputFile(), or stopAsyncOutput()
+is called, and when the application exits.
+If asynchronous output has already been started, it is stopped and started again with the new settings.
+@param bufferSize maximum number of messages waiting to be written.
+@param flushInterval maximum time (milliseconds) that a message waits before being written.
+@param flushCount number of waiting messages that causes the messages to be written without waiting for
+the flush interval.
+@param overflowType policy when the buffer is full - messages can be discarded rather than slowing down the
+application, in which case a warning with the number of discarded messages is written.
+*/
+public static void startAsyncOutput ( int bufferSize, long flushInterval, int flushCount,
+    MessageAsyncOverflowType overflowType )
+{
+    impl.startAsyncOutput(bufferSize,flushInterval,flushCount,overflowType);
+}
+
+/**
+Stop asynchronous output, after writing the messages that are waiting.  Later messages are written directly.
+*/
+public static void stopAsyncOutput ()
+{
+    impl.stopAsyncOutput();
+}
+
 }
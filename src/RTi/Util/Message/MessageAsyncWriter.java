@@ -0,0 +1,368 @@
+// MessageAsyncWriter - buffer messages and write them to output streams on a background thread
+
+/* NoticeStart
+
+CDSS Common Java Library
+CDSS Common Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Common Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Common Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Common Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package RTi.Util.Message;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+Writer for asynchronous message output.  Messages are added to a bounded ring buffer and are written to their
+output streams by a background thread, so that the thread printing a message does not wait on file output.
+The output streams are flushed in batches, when the number of messages waiting reaches the flush count or when
+the flush interval has elapsed, rather than after each message.
+When the buffer is full, messages are handled according to the overflow policy, and if messages are discarded,
+a warning with the number of discarded messages is written with the next batch.
+Output streams are closed with close(), which closes the stream on the background thread after the messages
+that are waiting, so that no messages are lost.
+This class is used by MessageImpl (see Message.startAsyncOutput()).
+*/
+class MessageAsyncWriter implements Runnable
+{
+
+/**
+Output stream for each message in the ring buffer.
+*/
+private PrintWriter [] __outs;
+
+/**
+Text for each message in the ring buffer, including the newline, or null to close the output stream.
+*/
+private String [] __texts;
+
+/**
+Position of the oldest message in the ring buffer.
+*/
+private int __head = 0;
+
+/**
+Number of messages in the ring buffer.
+*/
+private int __count = 0;
+
+/**
+Number of messages added to the buffer.
+*/
+private long __addCount = 0;
+
+/**
+Number of messages that have been written or discarded after being added to the buffer.
+*/
+private long __doneCount = 0;
+
+/**
+Number of messages discarded since the last warning was written.
+*/
+private long __discardCount = 0;
+
+/**
+Maximum time (milliseconds) that a message waits in the buffer before being written.
+*/
+private long __flushInterval;
+
+/**
+Number of messages in the buffer that causes the messages to be written without waiting for the flush interval.
+*/
+private int __flushCount;
+
+/**
+Policy when the buffer is full.
+*/
+private MessageAsyncOverflowType __overflowType;
+
+/**
+Whether a drain has been requested, so the writer thread should write messages without waiting.
+*/
+private boolean __drainRequested = false;
+
+/**
+Whether the writer is stopping, in which case remaining messages are written and new messages are written directly.
+*/
+private boolean __stopping = false;
+
+/**
+Writer thread.
+*/
+private Thread __thread;
+
+/**
+Construct and start the writer.
+@param bufferSize maximum number of messages in the buffer (1+).
+@param flushInterval maximum time (milliseconds) that a message waits in the buffer before being written (1+).
+@param flushCount number of messages in the buffer that causes the messages to be written without waiting for
+the flush interval (1+, limited to the buffer size).
+@param overflowType policy when the buffer is full.
+*/
+MessageAsyncWriter ( int bufferSize, long flushInterval, int flushCount, MessageAsyncOverflowType overflowType )
+{	if ( bufferSize < 1 ) {
+		throw new IllegalArgumentException ( "Message buffer size (" + bufferSize + ") must be 1+." );
+	}
+	__outs = new PrintWriter[bufferSize];
+	__texts = new String[bufferSize];
+	__flushInterval = Math.max ( 1, flushInterval );
+	__flushCount = Math.max ( 1, Math.min(flushCount, bufferSize) );
+	__overflowType = (overflowType == null) ? MessageAsyncOverflowType.BLOCK : overflowType;
+	__thread = new Thread ( this, "MessageAsyncWriter" );
+	__thread.setDaemon ( true );
+	__thread.start();
+}
+
+/**
+Add a message to the buffer.  If the writer is stopping, or the calling thread is the writer thread,
+the message is written directly.
+@param out output stream for the message.
+@param text text to write, including the newline.
+*/
+void add ( PrintWriter out, String text )
+{	synchronized ( this ) {
+		while ( !__stopping && (__count == __outs.length) && (Thread.currentThread() != __thread) ) {
+			if ( __overflowType == MessageAsyncOverflowType.DISCARD_NEWEST ) {
+				++__discardCount;
+				return;
+			}
+			else if ( (__overflowType == MessageAsyncOverflowType.DISCARD_OLDEST) && (__texts[__head] != null) ) {
+				// Discard the oldest message (but never a request to close a stream, which waits below)
+				__outs[__head] = null;
+				__texts[__head] = null;
+				__head = (__head + 1)%__outs.length;
+				--__count;
+				++__doneCount;
+				++__discardCount;
+			}
+			else {
+				// Wait for the writer thread to make room (the writer was notified when the flush count was reached,
+				// and notifying other waiting threads here would keep them from sleeping)
+				try {
+					wait();
+				}
+				catch ( InterruptedException e ) {
+					// Write directly rather than losing the message
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+		if ( !__stopping && (__count < __outs.length) && (Thread.currentThread() != __thread) ) {
+			put ( out, text );
+			if ( __count == __flushCount ) {
+				notifyAll();
+			}
+			return;
+		}
+	}
+	out.print ( text );
+	out.flush ();
+}
+
+/**
+Close an output stream after the messages that have been added are written, and wait until it is closed.
+The stream is closed on the writer thread so that messages that were added before this call are not lost.
+@param out output stream to close.
+*/
+void close ( PrintWriter out )
+{	boolean queued = false;
+	synchronized ( this ) {
+		if ( Thread.currentThread() != __thread ) {
+			// Wait for room even if the overflow policy discards messages, so that the close is not lost
+			while ( !__stopping && (__count == __outs.length) ) {
+				try {
+					wait();
+				}
+				catch ( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+			if ( !__stopping && (__count < __outs.length) ) {
+				put ( out, null );
+				__drainRequested = true;
+				notifyAll();
+				queued = true;
+			}
+		}
+	}
+	if ( queued ) {
+		drain();
+		return;
+	}
+	if ( __stopping && (Thread.currentThread() != __thread) ) {
+		// Wait for the remaining messages to be written before closing
+		try {
+			__thread.join();
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	out.flush();
+	out.close();
+}
+
+/**
+Wait until the messages that have been added are written and flushed.
+*/
+void drain ()
+{	if ( Thread.currentThread() == __thread ) {
+		return;
+	}
+	synchronized ( this ) {
+		long target = __addCount;
+		while ( (__doneCount < target) && __thread.isAlive() ) {
+			__drainRequested = true;
+			notifyAll();
+			try {
+				wait ( 100 );
+			}
+			catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+}
+
+/**
+Add a message or close request to the end of the ring buffer, which must not be full.
+Must be called when synchronized.
+@param out output stream for the message.
+@param text text to write, or null to close the output stream.
+*/
+private void put ( PrintWriter out, String text )
+{	int pos = (__head + __count)%__outs.length;
+	__outs[pos] = out;
+	__texts[pos] = text;
+	++__count;
+	++__addCount;
+}
+
+/**
+Write messages in batches until stopped.
+*/
+public void run ()
+{	PrintWriter [] outs = new PrintWriter[__outs.length];
+	String [] texts = new String[__outs.length];
+	List<PrintWriter> flushList = new ArrayList<PrintWriter>();
+	// Number of discarded messages for which the warning has not been written, kept until a batch
+	// writes to at least one stream
+	long discardCount = 0;
+	while ( true ) {
+		int n;
+		boolean stop;
+		synchronized ( this ) {
+			long waitEnd = System.currentTimeMillis() + __flushInterval;
+			while ( (__count < __flushCount) && !__drainRequested && !__stopping ) {
+				long wait = waitEnd - System.currentTimeMillis();
+				if ( wait <= 0 ) {
+					break;
+				}
+				try {
+					wait ( wait );
+				}
+				catch ( InterruptedException e ) {
+					// Continue until stopped
+				}
+			}
+			// Take all of the messages in the buffer
+			n = __count;
+			for ( int i = 0; i < n; i++ ) {
+				int pos = (__head + i)%__outs.length;
+				outs[i] = __outs[pos];
+				texts[i] = __texts[pos];
+				__outs[pos] = null;
+				__texts[pos] = null;
+			}
+			__head = 0;
+			__count = 0;
+			__drainRequested = false;
+			discardCount += __discardCount;
+			__discardCount = 0;
+			stop = __stopping;
+			// Wake threads waiting for room in the buffer
+			notifyAll();
+		}
+		try {
+			for ( int i = 0; i < n; i++ ) {
+				if ( texts[i] == null ) {
+					// Close the stream after the messages that were added before the close
+					outs[i].flush ();
+					outs[i].close ();
+					flushList.remove ( outs[i] );
+				}
+				else {
+					outs[i].print ( texts[i] );
+					if ( !flushList.contains(outs[i]) ) {
+						flushList.add ( outs[i] );
+					}
+				}
+			}
+			if ( (discardCount > 0) && !flushList.isEmpty() ) {
+				for ( PrintWriter out : flushList ) {
+					out.print ( "Warning: " + discardCount +
+						" messages were discarded because the asynchronous message buffer was full." +
+						System.getProperty("line.separator") );
+				}
+				discardCount = 0;
+			}
+			for ( PrintWriter out : flushList ) {
+				out.flush ();
+			}
+		}
+		catch ( RuntimeException e ) {
+			// Should not happen since PrintWriter does not throw exceptions - keep writing
+		}
+		flushList.clear();
+		for ( int i = 0; i < n; i++ ) {
+			outs[i] = null;
+			texts[i] = null;
+		}
+		synchronized ( this ) {
+			__doneCount += n;
+			// Wake threads waiting for messages to be written
+			notifyAll();
+		}
+		if ( stop ) {
+			break;
+		}
+	}
+}
+
+/**
+Stop the writer, after writing the messages in the buffer.  Messages added after this call are written directly.
+*/
+void stop ()
+{	synchronized ( this ) {
+		__stopping = true;
+		notifyAll();
+	}
+	if ( Thread.currentThread() != __thread ) {
+		try {
+			__thread.join();
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
+
+}
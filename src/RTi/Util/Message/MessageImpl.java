@@ -49,9 +49,13 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.lang.reflect.Method;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import javax.swing.JFrame;
 
 /**
@@ -155,6 +159,12 @@ protected String _logfile;
  */
 protected long _logfileMaxSize = -1;
 
+/**
+Number of bytes written to the log file (including messages waiting to be written if asynchronous output
+is used), used to check the maximum log file size.  Messages can be printed by several threads at the same time.
+*/
+protected final AtomicLong _logfileSize = new AtomicLong ( 0 );
+
 /**
 Properties to control display of messages, especially warnings.
 */
@@ -167,6 +177,16 @@ protected boolean _show_warning_dialog;
 
 protected List<MessageLogListener> _messageLogListeners;
 
+/**
+Writer for asynchronous output, or null if messages are written directly to the output streams.
+*/
+protected volatile MessageAsyncWriter _asyncWriter = null;
+
+/**
+Shutdown hook that writes asynchronous output when the application exits, or null if not registered.
+*/
+private Thread _asyncShutdownHook = null;
+
 /**
 Adds a listener to the list of listeners that can respond to actions from
 the MessageLogJFrame.  The listeners are updated by the MessageLogJFrame 
@@ -184,23 +204,45 @@ protected void addMessageLogListener(MessageLogListener listener) {
 
 /**
 Flush and close the log file associated with Message.LOG_OUTPUT, if it has been opened.
+If asynchronous output is used, the log file is closed by the writer thread after the messages that are waiting
+are written, and this method returns when the log file has been closed.
 */
 protected void closeLogFile ()
-{	if ( _out_stream[Message.LOG_OUTPUT] != null ) {
-		_out_stream[Message.LOG_OUTPUT].flush();
-		_out_stream[Message.LOG_OUTPUT].close();
+{	PrintWriter out = _out_stream[Message.LOG_OUTPUT];
+	if ( out != null ) {
+		// Stop sending messages to the log file before closing
 		_out_stream[Message.LOG_OUTPUT] = null;
+		MessageAsyncWriter asyncWriter = _asyncWriter;
+		if ( asyncWriter != null ) {
+			asyncWriter.close ( out );
+		}
+		else {
+			out.flush();
+			out.close();
+		}
+	}
+}
+
+/**
+Wait until asynchronous output that has been printed is written to the output streams.
+*/
+private void drainAsyncOutput ()
+{	MessageAsyncWriter asyncWriter = _asyncWriter;
+	if ( asyncWriter != null ) {
+		asyncWriter.drain();
 	}
 }
 
 /**
-Flush the output buffers.  It does not appear that this method has any effect on some systems.
+Flush the output buffers, after writing asynchronous output.
+It does not appear that this method has any effect on some systems.
 @param flag Currently unused.
 */
 protected void flushOutputFiles ( int flag )
 {	if( !_initialized ) {
 		initialize();
 	}
+	drainAsyncOutput();
 	for ( int i = 0; i < MAX_FILES; i++ ) {
 		if ( _out_stream[i] != null ) {
 			_out_stream[i].flush ();
@@ -220,6 +262,22 @@ protected int getDebugLevel ( int i )
 	return _debug_level[i];
 }
 
+/**
+Return the number of bytes for text written to the log file, which uses the default character encoding.
+ASCII text is checked first to avoid encoding each message.
+@param text text to write to the log file.
+@return the number of bytes for the encoded text.
+*/
+private long getEncodedLength ( String text )
+{	int length = text.length();
+	for ( int i = 0; i < length; i++ ) {
+		if ( text.charAt(i) >= 0x80 ) {
+			return text.getBytes(Charset.defaultCharset()).length;
+		}
+	}
+	return length;
+}
+
 /**
 Return the name of the log file.
 @return The name of the log file.
@@ -338,6 +396,70 @@ protected void initStreams() {
 	_out_stream[Message.TERM_OUTPUT] = new PrintWriter ( System.err, true );
 }
 
+/**
+Indicate whether a debug message at the given level will be output.
+@param level Debug level for the message.
+@return true if a debug message at the level will be output.
+*/
+protected boolean isDebugLevelEnabled ( int level )
+{	if ( !_initialized ) {
+		initialize();
+	}
+	return isOutputEnabled ( _debug_level, level );
+}
+
+/**
+Indicate whether a status message at the given level will be output.
+@param level Status level for the message.
+@return true if a status message at the level will be output.
+*/
+protected boolean isStatusLevelEnabled ( int level )
+{	if ( !_initialized ) {
+		initialize();
+	}
+	return isOutputEnabled ( _status_level, level );
+}
+
+/**
+Indicate whether a warning message at the given level will be output or shown in the warning dialog.
+@param level Warning level for the message.
+@return true if a warning message at the level will be output.
+*/
+protected boolean isWarningLevelEnabled ( int level )
+{	if ( !_initialized ) {
+		initialize();
+	}
+	if ( (level == 1) && _show_warning_dialog && ((_flag & Message.GUI_FOR_WARNING_1) != 0) &&
+		(_top_level != null) && !IOUtil.isBatch() ) {
+		return true;
+	}
+	return isOutputEnabled ( _warning_level, level );
+}
+
+/**
+Indicate whether asynchronous output is being used.
+@return true if asynchronous output is being used.
+*/
+protected boolean isAsyncOutput ()
+{	return _asyncWriter != null;
+}
+
+/**
+Determine whether a message at the given level will be output by any output receiver,
+so that messages that will not be output are not formatted.
+@param levels message levels for the output receivers for the message type.
+@param level message level.
+@return true if the message will be output.
+*/
+private boolean isOutputEnabled ( int [] levels, int level )
+{	for ( int i = 0; i < MAX_FILES; i++ ) {
+		if ( (level <= levels[i]) && ((_out_stream[i] != null) || ((_method[i] != null) && (_object[i] != null))) ) {
+			return true;
+		}
+	}
+	return false;
+}
+
 /**
 Open the log file.
 Because no log file is specified, the name of the log file will default to
@@ -398,6 +520,8 @@ throws IOException
 	PrintWriter ofp = null;
 	try {
 		ofp = new PrintWriter( new FileWriter(logfile));
+		// Set the log file first so that the log file size is counted from the new file
+		setLogFile ( logfile );
 		Message.setOutputFile( Message.LOG_OUTPUT, ofp);
 	}
 	catch( IOException e ){
@@ -416,15 +540,16 @@ throws IOException
 	Message.printStatus ( 1, routine, "Opened log file \"" + logfile +
 	"\".  Previous messages not in file." );
 
-	setLogFile ( logfile );
-	Message.setOutputFile ( Message.LOG_OUTPUT, ofp );
+	// Write the log file information, in order with messages and counted in the log file size...
 
-	// Write the log file information...
-
-	ofp.println ( "#" );
-	ofp.println ( "# " + logfile + " - " + IOUtil.getProgramName() + " log file" );
-	ofp.println ( "#" );
-	IOUtil.printCreatorHeader ( ofp, "#", 80, 0 );
+	StringWriter sw = new StringWriter();
+	PrintWriter header = new PrintWriter ( sw );
+	header.println ( "#" );
+	header.println ( "# " + logfile + " - " + IOUtil.getProgramName() + " log file" );
+	header.println ( "#" );
+	IOUtil.printCreatorHeader ( header, "#", 80, 0 );
+	header.flush();
+	writeOutput ( Message.LOG_OUTPUT, sw.toString(), true );
 	return ofp;
 }
 
@@ -448,6 +573,9 @@ protected void printDebug( int level, String routine, String message )
 {	if( !_initialized ) {
 		initialize();
 	}
+	if ( !isOutputEnabled(_debug_level, level) ) {
+		return;
+	}
 	String dlstring = null;
 	if( (_flag & Message.SHOW_MESSAGE_LEVEL) != 0 ){
 		dlstring = "[" + level + "]";
@@ -492,15 +620,12 @@ protected void printDebug( int level, String routine, String message )
 			if ( (_logfileMaxSize > 0) && (i == Message.LOG_OUTPUT) ) {
 				// Maximum log file size was specified, currently only apply to log file
 				// - cut off output if log file size is greater than limit
-				if ( _out_File[i].length() > _logfileMaxSize ) {
+				if ( _logfileSize.get() > _logfileMaxSize ) {
 					// Don't output to logfile because size limit has been reached
 					return;
 				}
 			}
-			_out_stream[i].print( message2 + _newline );
-			if ( (_flag & Message.FLUSH_OUTPUT) != 0 ) {
-				_out_stream[i].flush();
-			}
+			writeOutput ( i, message2 + _newline, ((_flag & Message.FLUSH_OUTPUT) != 0) );
 		}
 
 		if ( (_method[i] != null) && (_object[i] != null) && (level <= _debug_level[i]) ){
@@ -538,7 +663,7 @@ protected void printDebug ( int level, String routine, Throwable e )
 	if ( e != null ) {
 		printDebug ( level, routine, e.getMessage() );
 		if( _out_stream[Message.LOG_OUTPUT] != null ) {
-			e.printStackTrace ( _out_stream[Message.LOG_OUTPUT] );
+			writeStackTrace ( Message.LOG_OUTPUT, e );
 		}
 	}
 	else {
@@ -547,6 +672,18 @@ protected void printDebug ( int level, String routine, Throwable e )
 	printDebug ( level, routine, "... end of exception stack trace." );
 }
 
+/**
+Print a debug message to the registered output receivers, formatting the message only if it will be output.
+@param level Debug level for the message.
+@param routine Name of the routine printing the message.
+@param message Supplier for the debug message.
+*/
+protected void printDebug ( int level, String routine, Supplier<String> message )
+{	if ( isDebugLevelEnabled(level) ) {
+		printDebug ( level, routine, message.get() );
+	}
+}
+
 /**
 Print information about the registered message levels using status messages,
 using the current message settings.
@@ -652,6 +789,9 @@ protected void printStatus ( int level, String routine, String message )
 {	if( !_initialized ){
 		initialize ();
 	}
+	if ( !isOutputEnabled(_status_level, level) ) {
+		return;
+	}
 
 	String slstring = null;
 	if( (_flag & Message.SHOW_MESSAGE_LEVEL) != 0 ){
@@ -699,13 +839,12 @@ protected void printStatus ( int level, String routine, String message )
 			if ( (_logfileMaxSize > 0) && (i == Message.LOG_OUTPUT) ) {
 				// Maximum log file size was specified, currently only apply to log file
 				// - cut off output if log file size is greater than limit
-				if ( _out_File[i].length() > _logfileMaxSize ) {
+				if ( _logfileSize.get() > _logfileMaxSize ) {
 					// Don't output to logfile because size limit has been reached
 					return;
 				}
 			}
-			_out_stream[i].print( message2 + _newline );
-			_out_stream[i].flush();
+			writeOutput ( i, message2 + _newline, true );
 		}
 		if( (_method[i] != null && _object[i] != null) && (level <= _status_level[i]) ){
 			try {
@@ -728,6 +867,18 @@ protected void printStatus ( int level, String routine, String message )
 	}
 }
 
+/**
+Print a status message to the registered output receivers, formatting the message only if it will be output.
+@param level Status level for the message.
+@param routine Name of the routine printing the message.
+@param message Supplier for the status message.
+*/
+protected void printStatus ( int level, String routine, Supplier<String> message )
+{	if ( isStatusLevelEnabled(level) ) {
+		printStatus ( level, routine, message.get() );
+	}
+}
+
 /**
 This method calls printWarning but allows the developer to specify a
 different _top_level frame from the preset top level frame.  This is useful
@@ -772,6 +923,9 @@ protected void printWarning ( int level, String tag, String routine, String mess
 {	if ( !_initialized ){
 		initialize();
 	}
+	if ( !isWarningLevelEnabled(level) ) {
+		return;
+	}
 
 	String wlstring = null;
 	if( (_flag & Message.SHOW_MESSAGE_LEVEL) != 0 ){
@@ -829,15 +983,12 @@ protected void printWarning ( int level, String tag, String routine, String mess
 			if ( (_logfileMaxSize > 0) && (i == Message.LOG_OUTPUT) ) {
 				// Maximum log file size was specified, currently only apply to log file
 				// - cut off output if log file size is greater than limit
-				if ( _out_File[i].length() > _logfileMaxSize ) {
+				if ( _logfileSize.get() > _logfileMaxSize ) {
 					// Don't output to logfile because size limit has been reached
 					return;
 				}
 			}
-			_out_stream[i].print( message2 + _newline );
-			if ( (_flag & Message.FLUSH_OUTPUT) != 0 ) {
-				_out_stream[i].flush();
-			}
+			writeOutput ( i, message2 + _newline, ((_flag & Message.FLUSH_OUTPUT) != 0) );
 		}
 		if( _method[i] != null && _object[i] != null && level <= _warning_level[i] ){
 			try {
@@ -869,6 +1020,18 @@ protected void printWarning ( int level, String tag, String routine, String mess
 	}
 }
 
+/**
+Print a warning message to the registered output receivers, formatting the message only if it will be output.
+@param level Warning level for the message.
+@param routine Name of the routine printing the message.
+@param message Supplier for the warning message.
+*/
+protected void printWarning ( int level, String routine, Supplier<String> message )
+{	if ( isWarningLevelEnabled(level) ) {
+		printWarning ( level, null, routine, message.get() );
+	}
+}
+
 /**
 Print a stack trace as if a warning message.  Output will only be to the log file, if open.
 @param level Warning level for the message.
@@ -891,7 +1054,7 @@ protected void printWarning ( int level, String routine, Throwable e )
 		if ( e != null ) {
 			printWarning ( level, routine, e.getMessage() );
 			if( _out_stream[Message.LOG_OUTPUT] != null ) {
-				e.printStackTrace ( _out_stream[Message.LOG_OUTPUT] );
+				writeStackTrace ( Message.LOG_OUTPUT, e );
 			}
 		}
 		printWarning ( level, routine, "... end of exception stack trace." );
@@ -1080,7 +1243,14 @@ protected void setOutputFile ( int i, PrintWriter output_stream )
 		"Attempting to set file " + i + ". Only " + MAX_FILES + " are available." );
 		return;
 	}
+	// Write asynchronous output to the previous stream in case it is closed by the caller
+	drainAsyncOutput();
 	_out_stream[i] = output_stream;
+	if ( i == Message.LOG_OUTPUT ) {
+		// Start counting the log file size from the current size of the file, if known
+		File logFile = _out_File[Message.LOG_OUTPUT];
+		_logfileSize.set ( ((logFile != null) && logFile.exists()) ? logFile.length() : 0 );
+	}
 }
 
 /**
@@ -1336,4 +1506,97 @@ protected void setWarningLevel( int i, int level )
 	routine = null;
 }
 
+/**
+Start asynchronous output.  See Message.startAsyncOutput().
+@param bufferSize maximum number of messages waiting to be written.
+@param flushInterval maximum time (milliseconds) that a message waits before being written.
+@param flushCount number of waiting messages that causes the messages to be written without waiting for the flush interval.
+@param overflowType policy when the buffer is full.
+*/
+protected synchronized void startAsyncOutput ( int bufferSize, long flushInterval, int flushCount,
+	MessageAsyncOverflowType overflowType )
+{	if ( !_initialized ) {
+		initialize();
+	}
+	stopAsyncOutput();
+	_asyncWriter = new MessageAsyncWriter ( bufferSize, flushInterval, flushCount, overflowType );
+	_asyncShutdownHook = new Thread ( "MessageAsyncShutdown" ) {
+		public void run () {
+			MessageAsyncWriter asyncWriter = _asyncWriter;
+			if ( asyncWriter != null ) {
+				asyncWriter.stop();
+			}
+		}
+	};
+	try {
+		Runtime.getRuntime().addShutdownHook ( _asyncShutdownHook );
+	}
+	catch ( IllegalStateException e ) {
+		// Already shutting down
+		_asyncShutdownHook = null;
+	}
+}
+
+/**
+Stop asynchronous output, after writing the messages that are waiting.  Later messages are written directly.
+*/
+protected synchronized void stopAsyncOutput ()
+{	MessageAsyncWriter asyncWriter = _asyncWriter;
+	if ( asyncWriter == null ) {
+		return;
+	}
+	_asyncWriter = null;
+	asyncWriter.stop();
+	if ( _asyncShutdownHook != null ) {
+		try {
+			Runtime.getRuntime().removeShutdownHook ( _asyncShutdownHook );
+		}
+		catch ( IllegalStateException e ) {
+			// Already shutting down
+		}
+		_asyncShutdownHook = null;
+	}
+}
+
+/**
+Write text to an output stream, either directly or using the asynchronous writer.
+@param i output stream number (specified by a *_OUTPUT value).
+@param text text to write, including the newline.
+@param flush whether to flush the stream after writing, ignored for asynchronous output,
+which is flushed in batches.
+*/
+private void writeOutput ( int i, String text, boolean flush )
+{	PrintWriter out = _out_stream[i];
+	if ( out == null ) {
+		// Closed by another thread
+		return;
+	}
+	if ( i == Message.LOG_OUTPUT ) {
+		_logfileSize.addAndGet ( getEncodedLength(text) );
+	}
+	MessageAsyncWriter asyncWriter = _asyncWriter;
+	if ( asyncWriter != null ) {
+		asyncWriter.add ( out, text );
+	}
+	else {
+		out.print( text );
+		if ( flush ) {
+			out.flush();
+		}
+	}
+}
+
+/**
+Write a stack trace to an output stream, in order with other messages if asynchronous output is used.
+@param i output stream number (specified by a *_OUTPUT value).
+@param e Throwable for which to print a stack trace.
+*/
+private void writeStackTrace ( int i, Throwable e )
+{	StringWriter sw = new StringWriter();
+	PrintWriter pw = new PrintWriter ( sw );
+	e.printStackTrace ( pw );
+	pw.flush();
+	writeOutput ( i, sw.toString(), false );
+}
+
 }
@@ -109,6 +109,18 @@ public class MessageLoggingImpl extends MessageImpl {
         log(debug,translateDebugLevel(l),routine,message);
     }
     
+    protected boolean isDebugLevelEnabled(int l) {
+        return debug.isLoggable(translateDebugLevel(l));
+    }
+    
+    protected boolean isStatusLevelEnabled(int l) {
+        return status.isLoggable(translateDebugLevel(l));
+    }
+    
+    protected boolean isWarningLevelEnabled(int l) {
+        return warning.isLoggable(translateWarningLevel(l));
+    }
+    
     protected void initStreams() {
         
     }
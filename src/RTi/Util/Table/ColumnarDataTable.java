@@ -0,0 +1,914 @@
+// ColumnarDataTable - DataTable that stores values by column using primitive arrays
+
+/* NoticeStart
+
+CDSS Common Java Library
+CDSS Common Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Common Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Common Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Common Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package RTi.Util.Table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import RTi.Util.Message.Message;
+
+/**
+DataTable that stores values by column rather than in an Object array for each record, to reduce memory use
+and avoid creating an object for each numeric value in large tables.
+Double, integer, and long columns are stored as double[], int[], and long[] arrays with a bitmap indicating
+which values are not null.  String columns are dictionary-encoded, with each distinct string stored once.
+Other column types are stored as Object[] arrays.
+<p>
+The DataTable methods can be used as for any other table.  The records in the table are ColumnarTableRecord,
+which get and set values in the columns, so records returned by getRecord() and similar methods can be modified.
+Records passed to addRecord() and insertRecord() are copied into the columns, and the record that was added
+to the table is returned by addRecord().
+Use the typed column methods such as getDoubleColumn() to get column values without creating objects for each value.
+<p>
+If a value is set that is not of the column's type (for example an Integer in a double column), the column is
+converted to Object[] storage so that values are returned exactly as they were set.
+*/
+public class ColumnarDataTable extends DataTable
+{
+
+/**
+Maximum number of distinct strings in a dictionary-encoded string column.  If more distinct strings are set,
+the column is converted to Object[] storage because the dictionary no longer saves memory.
+*/
+private static final int STRING_DICTIONARY_MAX = 65536;
+
+/**
+Column storage, in the order of the table fields.
+*/
+private List<Column> __columns = new ArrayList<Column>();
+
+/**
+Number of storage slots allocated in each column.
+*/
+private int __slotCapacity = 0;
+
+/**
+Number of storage slots that have been used, including free slots.
+*/
+private int __slotCount = 0;
+
+/**
+Storage slots for deleted records, which are reused when records are added.
+*/
+private int [] __freeSlots = new int[0];
+
+/**
+Number of values in __freeSlots.
+*/
+private int __freeSlotCount = 0;
+
+/**
+Construct a new table.  Use setTableFields() at a later time to define the table.
+*/
+public ColumnarDataTable ()
+{	super ();
+}
+
+/**
+Construct a new table.
+@param tableFieldsList a list of TableField objects defining table contents.
+*/
+public ColumnarDataTable ( List<TableField> tableFieldsList )
+{	super ( tableFieldsList );
+	for ( TableField tableField : tableFieldsList ) {
+		__columns.add ( newColumn(tableField.getDataType()) );
+	}
+}
+
+/**
+Construct a new table that contains a copy of the columns and records of another table.
+@param table table to copy
+@exception Exception if there is an error copying records
+*/
+public ColumnarDataTable ( DataTable table )
+throws Exception
+{	this ( new ArrayList<TableField>() );
+	for ( int icol = 0; icol < table.getNumberOfFields(); icol++ ) {
+		TableField tableField = new TableField(table.getTableField(icol));
+		_table_fields.add ( tableField );
+		__columns.add ( newColumn(tableField.getDataType()) );
+	}
+	setTableID ( table.getTableID() );
+	int nrec = table.getNumberOfRecords();
+	setCapacity ( nrec );
+	for ( int irec = 0; irec < nrec; irec++ ) {
+		addRecord ( table.getRecord(irec) );
+	}
+}
+
+/**
+Add a field to the table.  The field is added at the specified insert position.
+@param insertPos the column (0+) at which to add the column (-1 or >= the number of existing columns to insert at the end).
+@param tableField information about field to add.
+@param initValue the initial value to set for all the existing rows in the table (can be null).
+@param initFunction the initial function used to set initial values for all the existing rows in the table (can be null).
+@return the field index (0+).
+*/
+public int addField ( int insertPos, TableField tableField, Object initValue, DataTableFunctionType initFunction )
+{	int dataType = tableField.getDataType();
+	Column column = newColumn ( dataType );
+	if ( (insertPos < 0) || (insertPos >= _table_fields.size()) ) {
+		// Add at the end
+		_table_fields.add ( tableField );
+		__columns.add ( column );
+		insertPos = _table_fields.size() - 1;
+	}
+	else {
+		// Insert at the specified column location
+		_table_fields.add ( insertPos, tableField );
+		__columns.add ( insertPos, column );
+		// Column numbers after the inserted column have changed
+		dropIndexes();
+	}
+	// Set the initial value in each record
+	int num = _table_records.size();
+	for ( int i = 0; i < num; i++ ) {
+		Object value = initValue;
+		if ( initFunction == DataTableFunctionType.ROW ) {
+			value = getFunctionValue ( dataType, i + 1, initValue );
+		}
+		else if ( initFunction == DataTableFunctionType.ROW0 ) {
+			value = getFunctionValue ( dataType, i, initValue );
+		}
+		TableRecord record = _table_records.get(i);
+		int slot = getSlot ( record );
+		if ( slot >= 0 ) {
+			setSlotValue ( slot, insertPos, value );
+		}
+		else {
+			// Record stores its own values
+			record.addFieldValue ( insertPos, value );
+		}
+	}
+	return insertPos;
+}
+
+/**
+Add a record to the end of the table for a storage slot allocated with newSlot(), after the values have been set.
+@param slot storage slot
+@return the record that was added to the table
+*/
+TableRecord addSlotRecord ( int slot )
+throws Exception
+{	return super.addRecord ( new ColumnarTableRecord(this, slot) );
+}
+
+/**
+Adds a record to end of the list of TableRecords maintained in the DataTable.
+The record values are copied into the table columns.
+@param newRecord new record to be added.
+@exception Exception when the number of fields in new_record is not equal to the
+number of fields in the current TableField declaration.
+@return the record that was added to the table, which should be used to modify the values
+*/
+public TableRecord addRecord ( TableRecord newRecord )
+throws Exception
+{	if ( newRecord.getNumberOfFields() != _table_fields.size() ) {
+		// Let the base class generate the error
+		return super.addRecord ( newRecord );
+	}
+	return super.addRecord ( newColumnarRecord(newRecord) );
+}
+
+/**
+Change the table column data type to the requested type.
+The column storage is changed to match the new data type.
+@param reqDataType requested data type, one of TableField.DATA_TYPE_*.
+@param newWidth new column width, can be -1 to not use, -2 to keep previous value.
+@param newPrecision new column precision, can be -1 to not use, -2 to keep previous value.
+@exception Exception if an error occurs converting values
+*/
+public void changeFieldDataType ( int fieldNum, int newDataType, int newWidth, int newPrecision )
+throws Exception
+{	super.changeFieldDataType ( fieldNum, newDataType, newWidth, newPrecision );
+	rebuildColumn ( fieldNum );
+}
+
+/**
+Delete all records from the table, useful when a temporary table is being reused.
+@return the number of records deleted.
+*/
+public int deleteAllRecords ()
+throws Exception
+{	for ( TableRecord record : _table_records ) {
+		if ( record instanceof ColumnarTableRecord ) {
+			((ColumnarTableRecord)record).setSlot ( -1 );
+		}
+	}
+	int nrec = super.deleteAllRecords();
+	for ( int icol = 0; icol < __columns.size(); icol++ ) {
+		__columns.set ( icol, newColumn(getFieldDataType(icol)) );
+	}
+	__slotCapacity = 0;
+	__slotCount = 0;
+	__freeSlotCount = 0;
+	return nrec;
+}
+
+/**
+Deletes a field and all the field's data from the table.
+@param fieldNum the number of the field to delete.
+*/
+public void deleteField ( int fieldNum )
+throws Exception
+{	if ( (fieldNum < 0) || (fieldNum > (_table_fields.size() - 1)) ) {
+		throw new Exception ( "Field number " + fieldNum + " out of bounds." );
+	}
+	_table_fields.remove ( fieldNum );
+	__columns.remove ( fieldNum );
+	// Column numbers after the deleted column have changed
+	dropIndexes();
+	for ( TableRecord record : _table_records ) {
+		if ( getSlot(record) < 0 ) {
+			// Record stores its own values
+			record.deleteField ( fieldNum );
+		}
+	}
+}
+
+/**
+Deletes a record from the table.  The record's storage is reused by records that are added later.
+@param recordNum the number of the record to delete.
+*/
+public void deleteRecord ( int recordNum )
+throws Exception
+{	TableRecord record = null;
+	if ( (recordNum >= 0) && (recordNum < _table_records.size()) ) {
+		record = _table_records.get(recordNum);
+	}
+	super.deleteRecord ( recordNum );
+	if ( record instanceof ColumnarTableRecord ) {
+		ColumnarTableRecord columnarRecord = (ColumnarTableRecord)record;
+		int slot = columnarRecord.getSlot();
+		if ( (slot >= 0) && (columnarRecord.getTable() == this) ) {
+			freeSlot ( slot );
+			columnarRecord.setSlot ( -1 );
+		}
+	}
+}
+
+/**
+Release a storage slot that is no longer used by a record, so that it is reused when records are added.
+@param slot storage slot
+*/
+void freeSlot ( int slot )
+{	// Clear the values so that objects can be garbage collected
+	for ( Column column : __columns ) {
+		column.set ( slot, null );
+	}
+	if ( __freeSlotCount == __freeSlots.length ) {
+		__freeSlots = Arrays.copyOf ( __freeSlots, Math.max(16, __freeSlots.length*2) );
+	}
+	__freeSlots[__freeSlotCount++] = slot;
+}
+
+/**
+Return the values in a numeric column as double.  Values are returned without creating objects.
+@param col column number (0+)
+@return the values for each row, in row order, with null values returned as NaN
+@exception Exception if the column contains values that are not numbers
+*/
+public double [] getDoubleColumn ( int col )
+throws Exception
+{	Column column = __columns.get(col);
+	int nrec = _table_records.size();
+	double [] values = new double[nrec];
+	for ( int irec = 0; irec < nrec; irec++ ) {
+		TableRecord record = _table_records.get(irec);
+		int slot = getSlot ( record );
+		if ( slot >= 0 ) {
+			values[irec] = column.getDouble ( slot );
+		}
+		else {
+			values[irec] = toDouble ( record.getFieldValue(col), irec, col );
+		}
+	}
+	return values;
+}
+
+/**
+Return a value from a numeric column as a double, without creating an object.
+@param row row number (0+)
+@param col column number (0+)
+@return the value, or NaN if null
+@exception Exception if the value is not a number
+*/
+public double getDoubleValue ( int row, int col )
+throws Exception
+{	TableRecord record = _table_records.get(row);
+	int slot = getSlot ( record );
+	if ( slot >= 0 ) {
+		return __columns.get(col).getDouble ( slot );
+	}
+	return toDouble ( record.getFieldValue(col), row, col );
+}
+
+/**
+Return the initial value for a new column for a function.
+@param dataType column data type
+@param value the function value (e.g., row number)
+@param initValue the initial value, used if the function does not apply to the data type
+*/
+private Object getFunctionValue ( int dataType, int value, Object initValue )
+{	if ( dataType == TableField.DATA_TYPE_STRING ) {
+		return "" + value;
+	}
+	else if ( dataType == TableField.DATA_TYPE_INT ) {
+		return Integer.valueOf(value);
+	}
+	else if ( dataType == TableField.DATA_TYPE_DOUBLE ) {
+		return Double.valueOf(value);
+	}
+	else if ( dataType == TableField.DATA_TYPE_SHORT ) {
+		return Short.valueOf((short)value);
+	}
+	else if ( dataType == TableField.DATA_TYPE_FLOAT ) {
+		return Float.valueOf(value);
+	}
+	else if ( dataType == TableField.DATA_TYPE_LONG ) {
+		return Long.valueOf(value);
+	}
+	return initValue;
+}
+
+/**
+Return the values in an integer column as int.  Values are returned without creating objects.
+@param col column number (0+)
+@param nullValue value to return for null values
+@return the values for each row, in row order
+@exception Exception if the column contains values that are not numbers
+*/
+public int [] getIntColumn ( int col, int nullValue )
+throws Exception
+{	Column column = __columns.get(col);
+	int nrec = _table_records.size();
+	int [] values = new int[nrec];
+	for ( int irec = 0; irec < nrec; irec++ ) {
+		TableRecord record = _table_records.get(irec);
+		int slot = getSlot ( record );
+		if ( (slot >= 0) && (column instanceof IntColumn) ) {
+			values[irec] = ((IntColumn)column).getInt ( slot, nullValue );
+		}
+		else {
+			Object o = record.getFieldValue(col);
+			values[irec] = (o == null) ? nullValue : toNumber ( o, irec, col ).intValue();
+		}
+	}
+	return values;
+}
+
+/**
+Return the values in a long column as long.  Values are returned without creating objects.
+@param col column number (0+)
+@param nullValue value to return for null values
+@return the values for each row, in row order
+@exception Exception if the column contains values that are not numbers
+*/
+public long [] getLongColumn ( int col, long nullValue )
+throws Exception
+{	Column column = __columns.get(col);
+	int nrec = _table_records.size();
+	long [] values = new long[nrec];
+	for ( int irec = 0; irec < nrec; irec++ ) {
+		TableRecord record = _table_records.get(irec);
+		int slot = getSlot ( record );
+		if ( (slot >= 0) && (column instanceof LongColumn) ) {
+			values[irec] = ((LongColumn)column).getLong ( slot, nullValue );
+		}
+		else if ( (slot >= 0) && (column instanceof IntColumn) ) {
+			values[irec] = ((IntColumn)column).getInt ( slot, (int)nullValue );
+		}
+		else {
+			Object o = record.getFieldValue(col);
+			values[irec] = (o == null) ? nullValue : toNumber ( o, irec, col ).longValue();
+		}
+	}
+	return values;
+}
+
+/**
+Return the storage slot for a record in this table, or -1 if the record does not use this table's storage.
+*/
+private int getSlot ( TableRecord record )
+{	if ( (record instanceof ColumnarTableRecord) && (((ColumnarTableRecord)record).getTable() == this) ) {
+		return ((ColumnarTableRecord)record).getSlot();
+	}
+	return -1;
+}
+
+/**
+Return the value in a storage slot.
+@param slot storage slot
+@param col column number (0+)
+*/
+Object getSlotValue ( int slot, int col )
+{	return __columns.get(col).get ( slot );
+}
+
+/**
+Insert a table record into the table.  The record values are copied into the table columns.
+@param row row position (0+) to insert the record
+@param record table record to insert
+@param doCheck indicate whether the record should be checked against the table for consistency
+@exception Exception if there is an error inserting the record
+*/
+public void insertRecord ( int row, TableRecord record, boolean doCheck )
+throws Exception
+{	if ( row < getNumberOfRecords() ) {
+		super.insertRecord ( row, newColumnarRecord(record), doCheck );
+	}
+	else {
+		// Appending, which calls addRecord() to copy the record
+		super.insertRecord ( row, record, doCheck );
+	}
+}
+
+/**
+Create the storage for a column of the given data type.
+*/
+private Column newColumn ( int dataType )
+{	Column column;
+	if ( dataType == TableField.DATA_TYPE_DOUBLE ) {
+		column = new DoubleColumn();
+	}
+	else if ( dataType == TableField.DATA_TYPE_INT ) {
+		column = new IntColumn();
+	}
+	else if ( dataType == TableField.DATA_TYPE_LONG ) {
+		column = new LongColumn();
+	}
+	else if ( dataType == TableField.DATA_TYPE_STRING ) {
+		column = new StringColumn();
+	}
+	else {
+		column = new ObjectColumn();
+	}
+	column.setCapacity ( __slotCapacity );
+	return column;
+}
+
+/**
+Create a record in this table's storage with a copy of the values in another record.
+The record is not added to the list of table records.
+*/
+private ColumnarTableRecord newColumnarRecord ( TableRecord record )
+throws Exception
+{	int slot = newSlot();
+	int ncol = Math.min ( record.getNumberOfFields(), __columns.size() );
+	for ( int icol = 0; icol < ncol; icol++ ) {
+		setSlotValue ( slot, icol, record.getFieldValue(icol) );
+	}
+	return new ColumnarTableRecord ( this, slot );
+}
+
+/**
+Allocate a storage slot for a new record, reusing the slot of a deleted record if available.
+The values in the slot are null.  The slot is not used by a record until addSlotRecord() is called,
+so values can be set with setSlotValue(), setSlotDouble(), setSlotInt(), and setSlotLong() before the
+record is added, without creating a TableRecord with the values.
+@return the storage slot
+*/
+int newSlot ()
+{	if ( __freeSlotCount > 0 ) {
+		return __freeSlots[--__freeSlotCount];
+	}
+	if ( __slotCount == __slotCapacity ) {
+		setCapacity ( Math.max(16, __slotCapacity + __slotCapacity/2) );
+	}
+	return __slotCount++;
+}
+
+/**
+Recreate the storage for a column, for example after the data type has changed.
+*/
+private void rebuildColumn ( int col )
+{	Column oldColumn = __columns.get(col);
+	__columns.set ( col, newColumn(getFieldDataType(col)) );
+	for ( int slot = 0; slot < __slotCount; slot++ ) {
+		setSlotValue ( slot, col, oldColumn.get(slot) );
+	}
+}
+
+/**
+Set the number of storage slots in each column, used to avoid resizing when the number of records is known.
+*/
+private void setCapacity ( int capacity )
+{	if ( capacity > __slotCapacity ) {
+		for ( Column column : __columns ) {
+			column.setCapacity ( capacity );
+		}
+		__slotCapacity = capacity;
+	}
+}
+
+/**
+Set the value in a storage slot.  If the value cannot be stored in the column's storage,
+the column is converted to Object[] storage.
+@param slot storage slot
+@param col column number (0+)
+@param value value to set
+*/
+void setSlotValue ( int slot, int col, Object value )
+{	Column column = __columns.get(col);
+	if ( !column.set(slot, value) ) {
+		if ( Message.isDebugOn ) {
+			Message.printDebug ( 1, "ColumnarDataTable.setSlotValue", "Converting column [" + col +
+				"] to object storage to store " + value.getClass().getSimpleName() + " value." );
+		}
+		Column objectColumn = new ObjectColumn();
+		objectColumn.setCapacity ( __slotCapacity );
+		for ( int i = 0; i < __slotCount; i++ ) {
+			objectColumn.set ( i, column.get(i) );
+		}
+		objectColumn.set ( slot, value );
+		__columns.set ( col, objectColumn );
+	}
+}
+
+/**
+Set a double value in a storage slot, without creating an object if the column has double storage.
+@param slot storage slot
+@param col column number (0+)
+@param value value to set
+*/
+void setSlotDouble ( int slot, int col, double value )
+{	if ( !__columns.get(col).setDouble(slot, value) ) {
+		setSlotValue ( slot, col, Double.valueOf(value) );
+	}
+}
+
+/**
+Set an int value in a storage slot, without creating an object if the column has int storage.
+@param slot storage slot
+@param col column number (0+)
+@param value value to set
+*/
+void setSlotInt ( int slot, int col, int value )
+{	if ( !__columns.get(col).setInt(slot, value) ) {
+		setSlotValue ( slot, col, Integer.valueOf(value) );
+	}
+}
+
+/**
+Set a long value in a storage slot, without creating an object if the column has long storage.
+@param slot storage slot
+@param col column number (0+)
+@param value value to set
+*/
+void setSlotLong ( int slot, int col, long value )
+{	if ( !__columns.get(col).setLong(slot, value) ) {
+		setSlotValue ( slot, col, Long.valueOf(value) );
+	}
+}
+
+/**
+Set the table fields to define the table.  Values in existing columns are kept and are converted to the new column types.
+@param tableFieldsList a list of TableField objects defining table contents.
+*/
+public void setTableFields ( List<TableField> tableFieldsList )
+{	super.setTableFields ( tableFieldsList );
+	for ( int icol = 0; icol < tableFieldsList.size(); icol++ ) {
+		if ( icol < __columns.size() ) {
+			rebuildColumn ( icol );
+		}
+		else {
+			__columns.add ( newColumn(tableFieldsList.get(icol).getDataType()) );
+		}
+	}
+	while ( __columns.size() > tableFieldsList.size() ) {
+		__columns.remove ( __columns.size() - 1 );
+	}
+}
+
+/**
+Set field data type and header for the specified zero-based index.
+The column storage is changed to match the new data type.
+@param index index of field to set
+@param data_type data type; use TableField.DATA_TYPE_*
+@param name name of the field.
+*/
+public void setTableField ( int index, int data_type, String name )
+throws Exception
+{	super.setTableField ( index, data_type, name );
+	rebuildColumn ( index );
+}
+
+/**
+Set field data type for the specified zero-based index.
+The column storage is changed to match the new data type.
+@param index index of field to set
+@param data_type data type; use TableField.DATA_TYPE_*
+@exception If the index is out of range.
+*/
+public void setTableFieldType ( int index, int data_type )
+throws Exception
+{	super.setTableFieldType ( index, data_type );
+	rebuildColumn ( index );
+}
+
+/**
+Convert a value to double for the typed column methods.
+@exception Exception if the value is not a number
+*/
+private double toDouble ( Object o, int row, int col )
+throws Exception
+{	if ( o == null ) {
+		return Double.NaN;
+	}
+	return toNumber ( o, row, col ).doubleValue();
+}
+
+/**
+Cast a non-null value to Number for the typed column methods.
+@exception Exception if the value is not a number
+*/
+private Number toNumber ( Object o, int row, int col )
+throws Exception
+{	if ( o instanceof Number ) {
+		return (Number)o;
+	}
+	throw new Exception ( "Value in row " + row + " column " + col + " is not a number (" + o + ")." );
+}
+
+/**
+Storage for the values in a column, indexed by storage slot.
+*/
+private static abstract class Column
+{
+	/**
+	Return the value in a slot, or null.
+	*/
+	abstract Object get ( int slot );
+
+	/**
+	Return the value in a slot as a double, or NaN if null.
+	@exception Exception if the value is not a number
+	*/
+	double getDouble ( int slot )
+	throws Exception
+	{	Object o = get ( slot );
+		if ( o == null ) {
+			return Double.NaN;
+		}
+		else if ( o instanceof Number ) {
+			return ((Number)o).doubleValue();
+		}
+		throw new Exception ( "Value is not a number (" + o + ")." );
+	}
+
+	/**
+	Set the value in a slot.
+	@return false if the value cannot be stored in the column
+	*/
+	abstract boolean set ( int slot, Object value );
+
+	/**
+	Set a double value in a slot.  Columns that do not store double values set a Double object.
+	@return false if the value cannot be stored in the column
+	*/
+	boolean setDouble ( int slot, double value )
+	{	return set ( slot, Double.valueOf(value) );
+	}
+
+	/**
+	Set an int value in a slot.  Columns that do not store int values set an Integer object.
+	@return false if the value cannot be stored in the column
+	*/
+	boolean setInt ( int slot, int value )
+	{	return set ( slot, Integer.valueOf(value) );
+	}
+
+	/**
+	Set a long value in a slot.  Columns that do not store long values set a Long object.
+	@return false if the value cannot be stored in the column
+	*/
+	boolean setLong ( int slot, long value )
+	{	return set ( slot, Long.valueOf(value) );
+	}
+
+	/**
+	Set the number of slots, which will be larger than the current number.
+	*/
+	abstract void setCapacity ( int capacity );
+}
+
+/**
+Column of double values.
+*/
+private static class DoubleColumn extends Column
+{
+	private double [] values = new double[0];
+	private BitSet notNull = new BitSet();
+
+	Object get ( int slot )
+	{	return notNull.get(slot) ? Double.valueOf(values[slot]) : null;
+	}
+
+	double getDouble ( int slot )
+	{	return notNull.get(slot) ? values[slot] : Double.NaN;
+	}
+
+	boolean set ( int slot, Object value )
+	{	if ( value == null ) {
+			notNull.clear ( slot );
+		}
+		else if ( value instanceof Double ) {
+			values[slot] = ((Double)value).doubleValue();
+			notNull.set ( slot );
+		}
+		else {
+			return false;
+		}
+		return true;
+	}
+
+	boolean setDouble ( int slot, double value )
+	{	values[slot] = value;
+		notNull.set ( slot );
+		return true;
+	}
+
+	void setCapacity ( int capacity )
+	{	values = Arrays.copyOf ( values, capacity );
+	}
+}
+
+/**
+Column of int values.
+*/
+private static class IntColumn extends Column
+{
+	private int [] values = new int[0];
+	private BitSet notNull = new BitSet();
+
+	Object get ( int slot )
+	{	return notNull.get(slot) ? Integer.valueOf(values[slot]) : null;
+	}
+
+	double getDouble ( int slot )
+	{	return notNull.get(slot) ? values[slot] : Double.NaN;
+	}
+
+	int getInt ( int slot, int nullValue )
+	{	return notNull.get(slot) ? values[slot] : nullValue;
+	}
+
+	boolean set ( int slot, Object value )
+	{	if ( value == null ) {
+			notNull.clear ( slot );
+		}
+		else if ( value instanceof Integer ) {
+			values[slot] = ((Integer)value).intValue();
+			notNull.set ( slot );
+		}
+		else {
+			return false;
+		}
+		return true;
+	}
+
+	boolean setInt ( int slot, int value )
+	{	values[slot] = value;
+		notNull.set ( slot );
+		return true;
+	}
+
+	void setCapacity ( int capacity )
+	{	values = Arrays.copyOf ( values, capacity );
+	}
+}
+
+/**
+Column of long values.
+*/
+private static class LongColumn extends Column
+{
+	private long [] values = new long[0];
+	private BitSet notNull = new BitSet();
+
+	Object get ( int slot )
+	{	return notNull.get(slot) ? Long.valueOf(values[slot]) : null;
+	}
+
+	double getDouble ( int slot )
+	{	return notNull.get(slot) ? values[slot] : Double.NaN;
+	}
+
+	long getLong ( int slot, long nullValue )
+	{	return notNull.get(slot) ? values[slot] : nullValue;
+	}
+
+	boolean set ( int slot, Object value )
+	{	if ( value == null ) {
+			notNull.clear ( slot );
+		}
+		else if ( value instanceof Long ) {
+			values[slot] = ((Long)value).longValue();
+			notNull.set ( slot );
+		}
+		else {
+			return false;
+		}
+		return true;
+	}
+
+	boolean setLong ( int slot, long value )
+	{	values[slot] = value;
+		notNull.set ( slot );
+		return true;
+	}
+
+	void setCapacity ( int capacity )
+	{	values = Arrays.copyOf ( values, capacity );
+	}
+}
+
+/**
+Column of any objects, used for types that do not have primitive storage.
+*/
+private static class ObjectColumn extends Column
+{
+	private Object [] values = new Object[0];
+
+	Object get ( int slot )
+	{	return values[slot];
+	}
+
+	boolean set ( int slot, Object value )
+	{	values[slot] = value;
+		return true;
+	}
+
+	void setCapacity ( int capacity )
+	{	values = Arrays.copyOf ( values, capacity );
+	}
+}
+
+/**
+Column of dictionary-encoded strings.  Each slot stores the position of the string in the dictionary plus one,
+with zero indicating null.
+*/
+private static class StringColumn extends Column
+{
+	private int [] codes = new int[0];
+	private List<String> dictionary = new ArrayList<String>();
+	private Map<String,Integer> dictionaryCodes = new HashMap<String,Integer>();
+
+	Object get ( int slot )
+	{	int code = codes[slot];
+		return (code == 0) ? null : dictionary.get(code - 1);
+	}
+
+	boolean set ( int slot, Object value )
+	{	if ( value == null ) {
+			codes[slot] = 0;
+		}
+		else if ( value instanceof String ) {
+			Integer code = dictionaryCodes.get(value);
+			if ( code == null ) {
+				if ( dictionary.size() >= STRING_DICTIONARY_MAX ) {
+					return false;
+				}
+				dictionary.add ( (String)value );
+				code = Integer.valueOf(dictionary.size());
+				dictionaryCodes.put ( (String)value, code );
+			}
+			codes[slot] = code.intValue();
+		}
+		else {
+			return false;
+		}
+		return true;
+	}
+
+	void setCapacity ( int capacity )
+	{	codes = Arrays.copyOf ( codes, capacity );
+	}
+}
+
+}
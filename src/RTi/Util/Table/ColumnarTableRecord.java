@@ -0,0 +1,201 @@
+// ColumnarTableRecord - record in a ColumnarDataTable, with values stored in the table's columns
+
+/* NoticeStart
+
+CDSS Common Java Library
+CDSS Common Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Common Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Common Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Common Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package RTi.Util.Table;
+
+/**
+Record in a ColumnarDataTable.  The record does not store values but gets and sets them in the table's
+column storage, using the storage slot assigned to the record when it was added to the table.
+The number of fields is the number of table columns, and fields are normally added and deleted using the DataTable
+addField() and deleteField() methods.  If addFieldValue() or deleteField() is called on the record itself,
+the record's values are copied out of the table's columns and the record then stores its own values as for
+TableRecord, so that only this record is changed, consistent with records in a DataTable.
+*/
+class ColumnarTableRecord extends TableRecord
+{
+
+/**
+Table that stores the values, or null if the record stores its own values (see detach()).
+*/
+private ColumnarDataTable __table;
+
+/**
+Storage slot (0+) in the table's columns, or -1 if the record has been deleted from the table.
+*/
+private int __slot;
+
+/**
+Construct a record for a storage slot in a table.
+@param table table that stores the values
+@param slot storage slot in the table's columns
+*/
+ColumnarTableRecord ( ColumnarDataTable table, int slot )
+{	super ( false );
+	__table = table;
+	__slot = slot;
+}
+
+/**
+Add a field data value to the record.  The record's values are first copied out of the table's columns
+so that the field is added only to this record.  Use DataTable.addField() to add a column to the table.
+@param insertPos insert position (or -1 or >= record field count to insert at end)
+@param newElement Data object to add to record.
+*/
+public void addFieldValue ( int insertPos, Object newElement )
+{	detach();
+	if ( insertPos >= super.getNumberOfFields() ) {
+		insertPos = -1;
+	}
+	super.addFieldValue ( insertPos, newElement );
+}
+
+/**
+Check that a field index is valid and that the record is still in the table.
+*/
+private void checkField ( int index )
+throws Exception
+{	if ( __slot < 0 ) {
+		throw new Exception ( "Record has been deleted from the table." );
+	}
+	if ( (index < 0) || (index >= __table.getNumberOfFields()) ) {
+		throw new Exception ( "Column index [" + index + "] invalid (record has " + __table.getNumberOfFields() + " columns)" );
+	}
+}
+
+/**
+Deletes a field's data value from the record, shifting all other values "left".
+The record's values are first copied out of the table's columns so that the field is deleted only from this record.
+Use DataTable.deleteField() to delete a column from the table.
+@param fieldNum the number of the field to delete (0+).
+@exception Exception if the field number is invalid or the record has been deleted from the table.
+*/
+public void deleteField ( int fieldNum )
+throws Exception
+{	if ( __table != null ) {
+		checkField ( fieldNum );
+	}
+	detach();
+	super.deleteField ( fieldNum );
+}
+
+/**
+Copy the record's values from the table's columns into the record and release the storage slot,
+so that the record stores its own values from then on.  This is done when the number of fields in the
+record is changed, because all records that use the table's columns have the same fields.
+If the record already stores its own values or has been deleted from the table, nothing is done.
+*/
+private void detach ()
+{	if ( (__table == null) || (__slot < 0) ) {
+		return;
+	}
+	int ncol = __table.getNumberOfFields();
+	for ( int icol = 0; icol < ncol; icol++ ) {
+		super.addFieldValue ( -1, __table.getSlotValue(__slot, icol) );
+	}
+	__table.freeSlot ( __slot );
+	__table = null;
+	__slot = -1;
+}
+
+/**
+Return the contents of a record field.
+@return contents at the specified zero-based index.
+@exception Exception if an invalid index is requested or the record has been deleted from the table.
+*/
+public Object getFieldValue ( int index )
+throws Exception
+{	if ( __table == null ) {
+		return super.getFieldValue ( index );
+	}
+	checkField ( index );
+	return __table.getSlotValue ( __slot, index );
+}
+
+/**
+Return the contents of a string record field.
+If the field is not of type string then the string version of the field is used from "" + field cast.
+@return contents at the specified zero-based index.
+@exception Exception if an invalid index is requested.
+*/
+public String getFieldValueString ( int index )
+throws Exception
+{	Object o = getFieldValue ( index );
+	if ( o == null ) {
+		return null;
+	}
+	else {
+		return "" + o;
+	}
+}
+
+/**
+Return the number of fields in the record, which is the number of columns in the table.
+@return the number of fields in the record.
+*/
+public int getNumberOfFields ()
+{	if ( __table == null ) {
+		return super.getNumberOfFields();
+	}
+	return __table.getNumberOfFields();
+}
+
+/**
+Return the storage slot in the table's columns.
+@return the storage slot, or -1 if the record has been deleted from the table.
+*/
+int getSlot ()
+{	return __slot;
+}
+
+/**
+Return the table that stores the values, or null if the record stores its own values.
+*/
+ColumnarDataTable getTable ()
+{	return __table;
+}
+
+/**
+Sets the field contents of the record at the specified zero-based index.
+@param col Field position to set (0+).
+@param contents Field contents to set.
+@exception if the index exceeds the available number of fields within this record.
+@return the instance of this record, to facilitate chaining set calls.
+*/
+public TableRecord setFieldValue ( int col, Object contents )
+throws Exception
+{	if ( __table == null ) {
+		return super.setFieldValue ( col, contents );
+	}
+	checkField ( col );
+	__table.setSlotValue ( __slot, col, contents );
+	return this;
+}
+
+/**
+Set the storage slot, called when the record is deleted from the table.
+*/
+void setSlot ( int slot )
+{	__slot = slot;
+}
+
+}
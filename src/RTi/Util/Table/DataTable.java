@@ -110,6 +110,8 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -126,6 +128,7 @@ import RTi.Util.Message.Message;
 import RTi.Util.String.StringDictionary;
 import RTi.Util.String.StringUtil;
 import RTi.Util.Time.DateTime;
+import RTi.Util.Time.DateTimeKey;
 
 // TODO SAM 2010-12-16 Evaluate using a different package for in-memory tables, such as
 // from H2 or other embedded database.
@@ -219,6 +222,26 @@ are in memory for calls to getNumberOfRecords(). Otherwise, just return the _num
 */
 protected boolean _add_record_called = false;
 
+/**
+Column indexes, created with createIndex(), with key being the column number (0+).
+The indexes are kept up to date by the DataTable methods that add, delete, and set records and values.
+Null if no indexes have been created.
+*/
+private Map<Integer,DataTableIndex> __indexes = null;
+
+/**
+Maximum number of row comparisons (rows in first table times rows in second table) for which
+joinTable() with DataTableJoinStrategyType.AUTO uses a nested loop join.
+Larger joins use a hash or sort-merge join.
+*/
+private static final long JOIN_NESTED_LOOP_MAX_COMPARISONS = 10000;
+
+/**
+Maximum number of rows in the second table for which joinTable() with DataTableJoinStrategyType.AUTO
+uses a hash join.  Larger tables use a sort-merge join, which uses less memory.
+*/
+private static final int JOIN_HASH_MAX_ROWS = 2000000;
+
 /**
 Construct a new table.  Use setTableFields() at a later time to define the table.
 */
@@ -288,6 +311,15 @@ throws Exception
 	_add_record_called = true;
 	if ( num_new_record_fields == num_table_fields ) {
 		_table_records.add ( newRecord );
+		if ( __indexes != null ) {
+			// Add the new row to the indexes
+			int row = _table_records.size() - 1;
+			for ( DataTableIndex index : __indexes.values() ) {
+				if ( !index.isStale() ) {
+					index.addRow ( row, newRecord.getFieldValue(index.getColumn()) );
+				}
+			}
+		}
 		return newRecord;
 	}
 	else {
@@ -341,6 +373,8 @@ public int addField ( int insertPos, TableField tableField, Object initValue, Da
     else {
         // Insert at the specified column location
         _table_fields.add(insertPos,tableField);
+        // Column numbers after the inserted column have changed
+        dropIndexes();
     }
     // Add value to each record in the table to be consistent with the field data
 	int num = _table_records.size();
@@ -806,6 +840,8 @@ throws Exception {
 	}
 	// Change the table field information
 	field.setDataType(newDataType);
+	// Index keys depend on the column type
+	invalidateIndexes();
 	if ( newWidth > -2 ) {
 	    field.setWidth(newWidth);
 	}
@@ -1270,6 +1306,48 @@ public DataTable createCopy ( DataTable table, String newTableID, String [] reqI
     return newTable;
 }
 
+/**
+Create an index on a column, to speed up finding records by the column value.
+The index is used automatically by getRecords(), getRecord(), joinTable() (for the table being joined),
+and DataTableFilter, and is kept up to date as records are added, deleted, and set using the DataTable methods.
+Values that are set directly with TableRecord.setFieldValue() on records already in the table are not
+tracked, in which case the index should be created again.
+Indexes are dropped if columns are inserted or deleted.
+@param column column number (0+) to index.
+@param indexType the index type, HASH for equality lookups or SORTED to also allow range lookups.
+@return the index, which replaces any previous index for the column.
+@exception Exception if the column number is invalid or the data records are not in memory.
+*/
+public DataTableIndex createIndex ( int column, DataTableIndexType indexType )
+throws Exception
+{	if ( (column < 0) || (column >= _table_fields.size()) ) {
+		throw new Exception ( "Column number " + column + " is out of bounds for index." );
+	}
+	if ( !_haveDataInMemory ) {
+		throw new Exception ( "Table data are not in memory - cannot create index." );
+	}
+	DataTableIndex index = new DataTableIndex ( column, indexType,
+		(getFieldDataType(column) == TableField.DATA_TYPE_STRING) );
+	index.build ( _table_records );
+	if ( __indexes == null ) {
+		__indexes = new HashMap<Integer,DataTableIndex>();
+	}
+	__indexes.put ( Integer.valueOf(column), index );
+	return index;
+}
+
+/**
+Create an index on a column, to speed up finding records by the column value (see createIndex(int,DataTableIndexType)).
+@param columnName column name, case-insensitive.
+@param indexType the index type, HASH for equality lookups or SORTED to also allow range lookups.
+@return the index, which replaces any previous index for the column.
+@exception Exception if the column is not found or the data records are not in memory.
+*/
+public DataTableIndex createIndex ( String columnName, DataTableIndexType indexType )
+throws Exception
+{	return createIndex ( getFieldIndex(columnName), indexType );
+}
+
 /**
 Deletes a field and all the field's data from the table.
 @param fieldNum the number of the field to delete.
@@ -1281,6 +1359,8 @@ throws Exception
 		throw new Exception ("Field number " + fieldNum + " out of bounds.");
 	}
 	_table_fields.remove(fieldNum);
+	// Column numbers after the deleted column have changed
+	dropIndexes();
 
 	int size = _table_records.size();
 	TableRecord record = null;
@@ -1298,6 +1378,7 @@ public int deleteAllRecords()
 throws Exception {
 	int nrec = _table_records.size();
 	_table_records.clear();
+	invalidateIndexes();
 	return nrec;
 }
 
@@ -1311,7 +1392,38 @@ throws Exception {
 		throw new Exception ("Record number " + recordNum + " out of bounds.");
 	}
 	
-	_table_records.remove(recordNum);
+	TableRecord record = _table_records.remove(recordNum);
+	if ( __indexes != null ) {
+		if ( recordNum == _table_records.size() ) {
+			// Deleted the last record so no other row numbers have changed
+			for ( DataTableIndex index : __indexes.values() ) {
+				if ( !index.isStale() ) {
+					index.removeRow ( recordNum, record.getFieldValue(index.getColumn()) );
+				}
+			}
+		}
+		else {
+			// Row numbers after the deleted row have changed
+			invalidateIndexes();
+		}
+	}
+}
+
+/**
+Drop the index for a column, if it exists.
+@param column column number (0+).
+*/
+public void dropIndex ( int column )
+{	if ( __indexes != null ) {
+		__indexes.remove ( Integer.valueOf(column) );
+	}
+}
+
+/**
+Drop the indexes for all columns.
+*/
+public void dropIndexes ()
+{	__indexes = null;
 }
 
 /**
@@ -1718,6 +1830,32 @@ public List<String> getComments ()
 {   return __comments;
 }
 
+/**
+Return the values in a numeric column as double.
+ColumnarDataTable returns the values without creating objects for each value.
+@param col column number (0+)
+@return the values for each row, in row order, with null values returned as NaN
+@exception Exception if the column contains values that are not numbers
+*/
+public double [] getDoubleColumn ( int col )
+throws Exception
+{   int nrec = getNumberOfRecords();
+    double [] values = new double[nrec];
+    for ( int irec = 0; irec < nrec; irec++ ) {
+        Object o = getFieldValue(irec, col);
+        if ( o == null ) {
+            values[irec] = Double.NaN;
+        }
+        else if ( o instanceof Number ) {
+            values[irec] = ((Number)o).doubleValue();
+        }
+        else {
+            throw new Exception ( "Value in row " + irec + " column " + col + " is not a number (" + o + ")." );
+        }
+    }
+    return values;
+}
+
 /**
 Return the field data type, given an index.
 @return Data type for specified zero-based index.
@@ -1943,6 +2081,77 @@ public int getFieldWidth ( int index )
 {	return (_table_fields.get ( index )).getWidth();
 }
 
+/**
+Return the index for a column.  If the index was invalidated by changes to the table, it is rebuilt.
+@param column column number (0+).
+@return the index for the column, or null if an index has not been created for the column.
+*/
+public DataTableIndex getIndex ( int column )
+throws Exception
+{	if ( __indexes == null ) {
+		return null;
+	}
+	DataTableIndex index = __indexes.get(Integer.valueOf(column));
+	if ( (index != null) && index.isStale() ) {
+		index = createIndex ( column, index.getIndexType() );
+	}
+	return index;
+}
+
+/**
+Return the values in an integer column as int.
+ColumnarDataTable returns the values without creating objects for each value.
+@param col column number (0+)
+@param nullValue value to return for null values
+@return the values for each row, in row order
+@exception Exception if the column contains values that are not numbers
+*/
+public int [] getIntColumn ( int col, int nullValue )
+throws Exception
+{   int nrec = getNumberOfRecords();
+    int [] values = new int[nrec];
+    for ( int irec = 0; irec < nrec; irec++ ) {
+        Object o = getFieldValue(irec, col);
+        if ( o == null ) {
+            values[irec] = nullValue;
+        }
+        else if ( o instanceof Number ) {
+            values[irec] = ((Number)o).intValue();
+        }
+        else {
+            throw new Exception ( "Value in row " + irec + " column " + col + " is not a number (" + o + ")." );
+        }
+    }
+    return values;
+}
+
+/**
+Return the values in a long column as long.
+ColumnarDataTable returns the values without creating objects for each value.
+@param col column number (0+)
+@param nullValue value to return for null values
+@return the values for each row, in row order
+@exception Exception if the column contains values that are not numbers
+*/
+public long [] getLongColumn ( int col, long nullValue )
+throws Exception
+{   int nrec = getNumberOfRecords();
+    long [] values = new long[nrec];
+    for ( int irec = 0; irec < nrec; irec++ ) {
+        Object o = getFieldValue(irec, col);
+        if ( o == null ) {
+            values[irec] = nullValue;
+        }
+        else if ( o instanceof Number ) {
+            values[irec] = ((Number)o).longValue();
+        }
+        else {
+            throw new Exception ( "Value in row " + irec + " column " + col + " is not a number (" + o + ")." );
+        }
+    }
+    return values;
+}
+
 /**
 Return the number of fields in the table.
 @return number of fields in the table.
@@ -2065,6 +2274,9 @@ throws Exception
 
 /**
 Return a list of TableRecord matching the given columns and column values.
+If one of the columns has an index (see createIndex()), the index is used to find the records to check,
+rather than checking every record in the table.
+Indexes are not used for DateTime columns because DateTime.equals() depends on the precision of the value being matched.
 @param columnNumbers list of column (field) numbers, 0+.  Any values < 0 will result in an empty list being returned.
 @param columnValue list of column values to match in the records.
 The type of the object will be checked before doing the comparison.
@@ -2086,42 +2298,70 @@ throws Exception
             return recList;
         }
     }
-    // Now search the the records and then the columns in the record
-    Object columnContents;
+    // If an index is available, use it to limit the records that are checked
+    int [] indexRows = null;
     int iColumn = -1;
-    for ( TableRecord rec : _table_records ) { // Loop through all table records
-        int matchCount = 0; // How many column values match
-        iColumn = -1;
-        for ( Object columnValue: columnValues ) {
-            ++iColumn;
-            columnContents = rec.getFieldValue(columnNumbers[iColumn]);
-            if ( columnContents == null ) {
-                // Only match if both are match
-                if ( columnValue == null ) {
-                    ++matchCount;
-                }
-            }
-            else if ( getFieldDataType(columnNumbers[iColumn]) == TableField.DATA_TYPE_STRING ) {
-                // Do case insensitive comparison
-                if ( ((String)columnValue).equalsIgnoreCase("" + columnContents)) {
-                    ++matchCount;
-                }
-            }
-            else {
-                // Not a string so just use the equals() method to compare.
-                if ( columnValue.equals(columnContents)) {
-                    ++matchCount;
-                }
+    for ( Object columnValue: columnValues ) {
+        ++iColumn;
+        int dataType = getFieldDataType(columnNumbers[iColumn]);
+        if ( (dataType == TableField.DATA_TYPE_DATETIME) || isColumnArray(dataType) ) {
+            continue;
+        }
+        DataTableIndex index = getIndex(columnNumbers[iColumn]);
+        if ( index != null ) {
+            indexRows = index.getRows(columnValue);
+            break;
+        }
+    }
+    // Now search the the records and then the columns in the record
+    if ( indexRows != null ) {
+        // Only check the records for the indexed value, in table order
+        for ( int i = 0; i < indexRows.length; i++ ) {
+            TableRecord rec = _table_records.get(indexRows[i]);
+            if ( recordMatches(rec, columnNumbers, columnValues) ) {
+                recList.add(rec);
             }
         }
-        if ( matchCount == columnValues.size() ) {
-            // Have matched the requested number of column values so add record to the match list
-            recList.add(rec);
+    }
+    else {
+        for ( TableRecord rec : _table_records ) { // Loop through all table records
+            if ( recordMatches(rec, columnNumbers, columnValues) ) {
+                // Have matched the requested number of column values so add record to the match list
+                recList.add(rec);
+            }
         }
     }
     return recList;
 }
 
+/**
+Return a list of TableRecord with column values in a range, using a SORTED index for the column.
+A SORTED index is created for the column if the column does not already have one.
+Null values are not included.  Numeric values are compared by value regardless of type,
+strings are compared ignoring case, and DateTime values are compared using their precision.
+@param column column number (0+).
+@param minValue minimum value, or null for no minimum.
+@param minInclusive whether the minimum value is included in the range.
+@param maxValue maximum value, or null for no maximum.
+@param maxInclusive whether the maximum value is included in the range.
+@return list of TableRecord in table order, guaranteed to be non-null but may be zero length.
+@exception Exception if the column is invalid or the data records are not in memory.
+*/
+public List<TableRecord> getRecordsInRange ( int column, Object minValue, boolean minInclusive,
+    Object maxValue, boolean maxInclusive )
+throws Exception
+{   DataTableIndex index = getIndex(column);
+    if ( (index == null) || (index.getIndexType() != DataTableIndexType.SORTED) ) {
+        index = createIndex ( column, DataTableIndexType.SORTED );
+    }
+    int [] rows = index.getRowsInRange(minValue, minInclusive, maxValue, maxInclusive);
+    List<TableRecord> recList = new ArrayList<TableRecord>(rows.length);
+    for ( int i = 0; i < rows.length; i++ ) {
+        recList.add(_table_records.get(rows[i]));
+    }
+    return recList;
+}
+
 /**
 Return the table identifier.
 @return the table identifier.
@@ -2262,6 +2502,8 @@ throws Exception
     if ( row < nRows ) {
         // Inserting in the existing table
         _table_records.add ( row, record );
+        // Row numbers after the inserted row have changed
+        invalidateIndexes();
     }
     else {
         // Appending - add blank rows up until the last one
@@ -2273,6 +2515,34 @@ throws Exception
     }
 }
 
+/**
+Mark all indexes as needing to be rebuilt, because the records were changed in a way that the
+indexes cannot track.  The indexes are rebuilt the next time that they are used.
+*/
+private void invalidateIndexes ()
+{	if ( __indexes != null ) {
+		for ( DataTableIndex index : __indexes.values() ) {
+			index.setStale ( true );
+		}
+	}
+}
+
+/**
+Mark the indexes for columns as needing to be rebuilt, because values in the columns were set directly in the
+records.  The indexes are rebuilt the next time that they are used.
+@param columns column numbers (0+), ignoring negative values.
+*/
+private void invalidateIndexes ( int [] columns )
+{	if ( __indexes != null ) {
+		for ( int column : columns ) {
+			DataTableIndex index = __indexes.get(Integer.valueOf(column));
+			if ( index != null ) {
+				index.setStale ( true );
+			}
+		}
+	}
+}
+
 /**
 Determine whether the column data type is an array.
 @return true if the column data type is an array (data type is DATA_TYPE_ARRAY_BASE plus primitive type).
@@ -2365,6 +2635,34 @@ NUMBER_COLUMNS and USE_LAST_MATCH [default] are supported)
 public int joinTable ( DataTable table, DataTable tableToJoin, Hashtable<String,String> joinColumnsMap, String [] reqIncludeColumns,
     Hashtable<String,String> columnMap, Hashtable<String,String> columnFilters, DataTableJoinMethodType joinMethod,
     HandleMultipleJoinMatchesHowType handleMultipleMatchesHow, List<String> problems )
+{
+    return joinTable ( table, tableToJoin, joinColumnsMap, reqIncludeColumns, columnMap, columnFilters, joinMethod,
+        handleMultipleMatchesHow, problems, DataTableJoinStrategyType.AUTO );
+}
+
+/**
+Join one table to another by matching column column values.
+@param table original table
+@param tableToJoin table being joined
+@param joinColumnsMap map indicating which columns need to be matched in the tables, for the join
+(this must be populated, even if the join column name is the same in both tables)
+@param reqIncludeColumns requested columns to include from the second table or null to include all
+(the join tables will be automatically included because they exist in the first table)
+@param columnMap map to rename original columns to new name
+@param columnFilters map for columns that will apply a filter to limit rows that are processed
+@param joinMethod the method used to join the tables
+@param handleMultipleMatchesHow indicate how multiple join matches should be handled (currently only
+NUMBER_COLUMNS and USE_LAST_MATCH [default] are supported)
+@param problems list of problems that will be filled during processing
+@param joinStrategy the strategy used to find matching rows in the second table (null or AUTO to choose based on
+the table sizes and indexes).  The strategy does not change the result.  HASH and SORT_MERGE can only be used if
+the join columns have the same type in both tables and are not date/time or array columns,
+and otherwise NESTED_LOOP is used.
+@return the number of rows appended
+*/
+public int joinTable ( DataTable table, DataTable tableToJoin, Hashtable<String,String> joinColumnsMap, String [] reqIncludeColumns,
+    Hashtable<String,String> columnMap, Hashtable<String,String> columnFilters, DataTableJoinMethodType joinMethod,
+    HandleMultipleJoinMatchesHowType handleMultipleMatchesHow, List<String> problems, DataTableJoinStrategyType joinStrategy )
 {   String routine = getClass().getSimpleName() + ".joinTable", message;
 
     // List of columns that will be copied to the first table
@@ -2610,14 +2908,172 @@ public int joinTable ( DataTable table, DataTable tableToJoin, Hashtable<String,
     Object table1Value, table2Value;
     String stringTable1Value, stringTable2Value;
     TableRecord recToModify = null;
+    // Determine how to find the rows in the second table that may match each row in the first table.
+    // All strategies check the candidate rows in the second table in increasing order, the same as the nested loop,
+    // so that the handling of multiple matches does not depend on the strategy.
+    // Join column values can be used as hash and sort keys only if the column types are the same in both tables
+    // and the values are compared with equals() (DateTime.equals() depends on the precision so is not used).
+    int nJoinKeyColumns = 0;
+    boolean joinKeysAllowed = true;
+    for ( icol = 0; icol < table1JoinColumnNumbers.length; icol++ ) {
+        if ( (table1JoinColumnNumbers[icol] < 0) || (table2JoinColumnNumbers[icol] < 0) ) {
+            // Ignored when comparing values below
+            continue;
+        }
+        ++nJoinKeyColumns;
+        if ( (table1JoinColumnTypes[icol] != table2JoinColumnTypes[icol]) ||
+            (table1JoinColumnTypes[icol] == TableField.DATA_TYPE_DATETIME) || isColumnArray(table1JoinColumnTypes[icol]) ) {
+            joinKeysAllowed = false;
+        }
+    }
+    if ( nJoinKeyColumns == 0 ) {
+        joinKeysAllowed = false;
+    }
+    if ( joinStrategy == null ) {
+        joinStrategy = DataTableJoinStrategyType.AUTO;
+    }
+    if ( !joinKeysAllowed && (joinStrategy != DataTableJoinStrategyType.AUTO) &&
+        (joinStrategy != DataTableJoinStrategyType.NESTED_LOOP) ) {
+        Message.printStatus(2,routine,"Join columns cannot be used with " + joinStrategy + " join.  Using " +
+            DataTableJoinStrategyType.NESTED_LOOP + " join.");
+        joinStrategy = DataTableJoinStrategyType.NESTED_LOOP;
+    }
+    // If the second table has an index on a join column, it can be used to find the rows in the second table
+    // that may match, rather than checking all rows
+    int indexJoinColumn = -1; // Position in the join column arrays for the index
+    DataTableIndex joinIndex = null;
+    if ( joinStrategy == DataTableJoinStrategyType.AUTO ) {
+        for ( icol = 0; icol < table2JoinColumnNumbers.length; icol++ ) {
+            if ( (table1JoinColumnNumbers[icol] < 0) || (table2JoinColumnNumbers[icol] < 0) ||
+                (table1JoinColumnTypes[icol] != table2JoinColumnTypes[icol]) ||
+                (table1JoinColumnTypes[icol] == TableField.DATA_TYPE_DATETIME) || isColumnArray(table1JoinColumnTypes[icol]) ) {
+                continue;
+            }
+            try {
+                joinIndex = tableToJoin.getIndex(table2JoinColumnNumbers[icol]);
+            }
+            catch ( Exception e ) {
+                joinIndex = null;
+            }
+            if ( joinIndex != null ) {
+                indexJoinColumn = icol;
+                Message.printStatus(2,routine,"Using table2 index on join column \"" + table2JoinColumnNames[icol] + "\" to find matching rows.");
+                break;
+            }
+        }
+        if ( joinIndex == null ) {
+            // Choose the strategy based on the table sizes
+            int tableToJoinNumRows = tableToJoin.getNumberOfRecords();
+            if ( !joinKeysAllowed || (((long)tableNumRows*tableToJoinNumRows) <= JOIN_NESTED_LOOP_MAX_COMPARISONS) ) {
+                joinStrategy = DataTableJoinStrategyType.NESTED_LOOP;
+            }
+            else if ( tableToJoinNumRows > JOIN_HASH_MAX_ROWS ) {
+                // Sorting uses less memory than a hash table for very large tables
+                joinStrategy = DataTableJoinStrategyType.SORT_MERGE;
+            }
+            else {
+                joinStrategy = DataTableJoinStrategyType.HASH;
+            }
+            Message.printStatus(2,routine,"Using " + joinStrategy + " join to find matching rows.");
+        }
+    }
+    Map<Object,int[]> hashJoinRows = null; // Rows in the second table for each join key, for HASH
+    int [] sortedJoinRows = null; // Rows in the second table sorted by join key, for SORT_MERGE
+    int [] mergeStart = null; // Position in sortedJoinRows of the first matching row for each row in the first table
+    int [] mergeEnd = null; // Position in sortedJoinRows after the last matching row for each row in the first table
+    if ( joinStrategy == DataTableJoinStrategyType.HASH ) {
+        hashJoinRows = joinTable_GetRowsByKey ( tableToJoin, table2JoinColumnNumbers, table1JoinColumnNumbers,
+            table2JoinColumnTypes, joinTableRecordMatchesFilter );
+    }
+    else if ( joinStrategy == DataTableJoinStrategyType.SORT_MERGE ) {
+        // Sort both tables by key and then merge to find the range of matching sorted rows for each row in the first table
+        Object [] table2Keys = joinTable_GetKeys ( tableToJoin, table2JoinColumnNumbers, table1JoinColumnNumbers,
+            table2JoinColumnTypes, joinTableRecordMatchesFilter );
+        Object [] table1Keys = joinTable_GetKeys ( table, table1JoinColumnNumbers, table2JoinColumnNumbers,
+            table1JoinColumnTypes, null );
+        sortedJoinRows = joinTable_SortRows ( table2Keys );
+        int [] sortedRows = joinTable_SortRows ( table1Keys );
+        mergeStart = new int[tableNumRows];
+        mergeEnd = new int[tableNumRows];
+        int i1 = 0, i2 = 0;
+        while ( (i1 < sortedRows.length) && (i2 < sortedJoinRows.length) ) {
+            int compare = joinTable_CompareKeys ( table1Keys[sortedRows[i1]], table2Keys[sortedJoinRows[i2]] );
+            if ( compare < 0 ) {
+                ++i1;
+            }
+            else if ( compare > 0 ) {
+                ++i2;
+            }
+            else {
+                // Find the end of the matching rows in the second table and set for all matching rows in the first table
+                int i2End = i2 + 1;
+                while ( (i2End < sortedJoinRows.length) &&
+                    (joinTable_CompareKeys(table2Keys[sortedJoinRows[i2End]], table2Keys[sortedJoinRows[i2]]) == 0) ) {
+                    ++i2End;
+                }
+                while ( (i1 < sortedRows.length) &&
+                    (joinTable_CompareKeys(table1Keys[sortedRows[i1]], table2Keys[sortedJoinRows[i2]]) == 0) ) {
+                    mergeStart[sortedRows[i1]] = i2;
+                    mergeEnd[sortedRows[i1]] = i2End;
+                    ++i1;
+                }
+                i2 = i2End;
+            }
+        }
+    }
+    int [] joinRows = null; // Rows in the second table to check, if not checking all rows
+    int joinRowsStart = 0; // Position in joinRows of the first row to check
+    int joinRowCount; // Number of rows in the second table to check
+    int [] noJoinRows = new int[0];
     // Loop through all rows in the first table
     for ( int irow = 0; irow < tableNumRows; irow++ ) {
     	if ( handleMultipleMatchesHow == HandleMultipleJoinMatchesHowType.NUMBER_COLUMNS ) {
     		// Initialize the number of matches for this row
     		matchCountList.add(new Integer(0));
     	}
-        // Loop through all rows in the second table
-        for ( int irowJoin = 0; irowJoin < tableToJoin.getNumberOfRecords(); irowJoin++ ) {
+    	if ( joinIndex != null ) {
+    		// Only check the second table rows with the same index column value (null values never match)
+    		try {
+    			table1Value = table.getFieldValue(irow, table1JoinColumnNumbers[indexJoinColumn]);
+    		}
+    		catch ( Exception e ) {
+    			table1Value = null;
+    		}
+    		if ( table1Value == null ) {
+    			joinRows = noJoinRows;
+    		}
+    		else {
+    			joinRows = joinIndex.getRows(table1Value);
+    		}
+    		joinRowCount = joinRows.length;
+    	}
+    	else if ( hashJoinRows != null ) {
+    		// Only check the second table rows with the same key
+    		joinRows = null;
+    		Object joinKey = joinTable_GetKey ( table, irow, table1JoinColumnNumbers, table2JoinColumnNumbers, table1JoinColumnTypes );
+    		if ( joinKey != null ) {
+    			joinRows = hashJoinRows.get(joinKey);
+    		}
+    		if ( joinRows == null ) {
+    			joinRows = noJoinRows;
+    		}
+    		joinRowCount = joinRows.length;
+    	}
+    	else if ( sortedJoinRows != null ) {
+    		// Only check the range of sorted rows in the second table that were matched by the merge
+    		joinRows = sortedJoinRows;
+    		joinRowsStart = mergeStart[irow];
+    		joinRowCount = mergeEnd[irow] - mergeStart[irow];
+    	}
+    	else {
+    		joinRowCount = tableToJoin.getNumberOfRecords();
+    	}
+        // Loop through all rows in the second table (or the candidate rows determined above)
+        for ( int iJoin = 0; iJoin < joinRowCount; iJoin++ ) {
+        	int irowJoin = iJoin;
+        	if ( joinRows != null ) {
+        		irowJoin = joinRows[joinRowsStart + iJoin];
+        	}
             if ( !joinTableRecordMatchesFilter[irowJoin] ) {
                 // Join row did not match filter so no need to process it
                 continue;
@@ -2743,6 +3199,8 @@ public int joinTable ( DataTable table, DataTable tableToJoin, Hashtable<String,
                                 			Message.printStatus(2,routine,"Setting table1 col \"" + duplicateColumn + "\" [" + icol1 + "] from table1 [" +irowJoin +
                                 				"][" + icol + "] value " + tableToJoin.getFieldValue(irowJoin, table2CopyColumnNumbers[icol]));
                                 			recToModify.setFieldValue(icol1,tableToJoin.getFieldValue(irowJoin, table2CopyColumnNumbers[icol]));
+                                			// The column may have existed before the join and have an index
+                                			table.invalidateIndexes ( new int[] { icol1 } );
                                 		}
                                 	}
                                 	else {
@@ -2854,6 +3312,11 @@ public int joinTable ( DataTable table, DataTable tableToJoin, Hashtable<String,
             }
         }
     }
+    // Records in the first table were modified directly, so mark indexes on the columns that were set as stale
+    table.invalidateIndexes ( table1CopyColumnNumbers );
+    if ( joinMethod == DataTableJoinMethodType.JOIN_ALWAYS ) {
+        table.invalidateIndexes ( table1JoinColumnNumbers );
+    }
     if ( problems.size() > 0 ) {
         throw new RuntimeException ( "There were " + problems.size() + " errors joining table \"" + tableToJoin.getTableID() + "\" to \"" +
             table.getTableID() + "\"" );
@@ -2861,6 +3324,183 @@ public int joinTable ( DataTable table, DataTable tableToJoin, Hashtable<String,
     return nrowsJoined;
 }
 
+/**
+Compare join keys, used to sort rows for a sort-merge join.
+Keys are compared with compareTo() if of the same class, and otherwise by class name, so that keys that are
+equal always compare as zero.
+@param key1 first key, a column value or list of column values
+@param key2 second key, a column value or list of column values
+*/
+@SuppressWarnings({ "rawtypes", "unchecked" })
+private static int joinTable_CompareKeys ( Object key1, Object key2 )
+{
+    if ( (key1 instanceof List) && (key2 instanceof List) ) {
+        List<Object> list1 = (List<Object>)key1;
+        List<Object> list2 = (List<Object>)key2;
+        for ( int i = 0; i < list1.size(); i++ ) {
+            int compare = joinTable_CompareKeys(list1.get(i), list2.get(i));
+            if ( compare != 0 ) {
+                return compare;
+            }
+        }
+        return 0;
+    }
+    if ( (key1.getClass() == key2.getClass()) && (key1 instanceof Comparable) ) {
+        return ((Comparable)key1).compareTo(key2);
+    }
+    return key1.getClass().getName().compareTo(key2.getClass().getName());
+}
+
+/**
+Return the key used to match a row's join column values in a hash or sort-merge join.
+String values are normalized so that values equal ignoring case have the same key, consistent with the
+nested loop join.
+@param table table containing the row
+@param row row number (0+)
+@param joinColumnNumbers join column numbers in the table
+@param otherJoinColumnNumbers join column numbers in the other table (join columns missing from either table are ignored)
+@param joinColumnTypes join column types in the table
+@return the column value if one join column is used, a list of column values if multiple join columns are used,
+or null if any value is null (the row will not match any row)
+*/
+private static Object joinTable_GetKey ( DataTable table, int row, int [] joinColumnNumbers,
+    int [] otherJoinColumnNumbers, int [] joinColumnTypes )
+{
+    Object key = null;
+    List<Object> keyList = null;
+    for ( int icol = 0; icol < joinColumnNumbers.length; icol++ ) {
+        if ( (joinColumnNumbers[icol] < 0) || (otherJoinColumnNumbers[icol] < 0) ) {
+            continue;
+        }
+        Object value = null;
+        try {
+            value = table.getFieldValue(row, joinColumnNumbers[icol]);
+        }
+        catch ( Exception e ) {
+            value = null;
+        }
+        if ( value == null ) {
+            return null;
+        }
+        if ( joinColumnTypes[icol] == TableField.DATA_TYPE_STRING ) {
+            value = DataTableIndex.toIgnoreCaseKey((String)value);
+        }
+        if ( keyList != null ) {
+            keyList.add(value);
+        }
+        else if ( key != null ) {
+            keyList = new ArrayList<Object>();
+            keyList.add(key);
+            keyList.add(value);
+        }
+        else {
+            key = value;
+        }
+    }
+    if ( keyList != null ) {
+        return keyList;
+    }
+    return key;
+}
+
+/**
+Return the join keys for all rows in a table.
+@param table table to process
+@param joinColumnNumbers join column numbers in the table
+@param otherJoinColumnNumbers join column numbers in the other table
+@param joinColumnTypes join column types in the table
+@param rowMatchesFilter indicates which rows to include, or null to include all rows
+@return the key for each row, null if the row will not match any row
+*/
+private static Object [] joinTable_GetKeys ( DataTable table, int [] joinColumnNumbers, int [] otherJoinColumnNumbers,
+    int [] joinColumnTypes, boolean [] rowMatchesFilter )
+{
+    Object [] keys = new Object[table.getNumberOfRecords()];
+    for ( int irow = 0; irow < keys.length; irow++ ) {
+        if ( (rowMatchesFilter == null) || rowMatchesFilter[irow] ) {
+            keys[irow] = joinTable_GetKey ( table, irow, joinColumnNumbers, otherJoinColumnNumbers, joinColumnTypes );
+        }
+    }
+    return keys;
+}
+
+/**
+Return the rows in a table for each join key, for a hash join.
+@param table table to process
+@param joinColumnNumbers join column numbers in the table
+@param otherJoinColumnNumbers join column numbers in the other table
+@param joinColumnTypes join column types in the table
+@param rowMatchesFilter indicates which rows to include, or null to include all rows
+@return map of join key to the rows with the key, in increasing order
+*/
+private static Map<Object,int[]> joinTable_GetRowsByKey ( DataTable table, int [] joinColumnNumbers,
+    int [] otherJoinColumnNumbers, int [] joinColumnTypes, boolean [] rowMatchesFilter )
+{
+    Object [] keys = joinTable_GetKeys ( table, joinColumnNumbers, otherJoinColumnNumbers, joinColumnTypes, rowMatchesFilter );
+    // First count the rows for each key so that the row arrays can be allocated with the correct size
+    Map<Object,int[]> counts = new HashMap<Object,int[]>();
+    for ( int irow = 0; irow < keys.length; irow++ ) {
+        if ( keys[irow] != null ) {
+            int [] count = counts.get(keys[irow]);
+            if ( count == null ) {
+                counts.put(keys[irow], new int[] { 1 });
+            }
+            else {
+                ++count[0];
+            }
+        }
+    }
+    Map<Object,int[]> rowsByKey = new HashMap<Object,int[]>(counts.size()*4/3 + 1);
+    for ( int irow = 0; irow < keys.length; irow++ ) {
+        if ( keys[irow] != null ) {
+            int [] count = counts.get(keys[irow]);
+            int [] rows = rowsByKey.get(keys[irow]);
+            if ( rows == null ) {
+                // Count is reused to track the number of rows that have been set
+                rows = new int[count[0]];
+                rowsByKey.put(keys[irow], rows);
+                count[0] = 0;
+            }
+            rows[count[0]++] = irow;
+        }
+    }
+    return rowsByKey;
+}
+
+/**
+Return the rows that have a join key, sorted by the key, for a sort-merge join.
+The sort is stable so rows with the same key are in increasing order.
+@param keys join keys for each row, null for rows that will not match any row
+@return the sorted rows
+*/
+private static int [] joinTable_SortRows ( final Object [] keys )
+{
+    int count = 0;
+    for ( int irow = 0; irow < keys.length; irow++ ) {
+        if ( keys[irow] != null ) {
+            ++count;
+        }
+    }
+    Integer [] rows = new Integer[count];
+    count = 0;
+    for ( int irow = 0; irow < keys.length; irow++ ) {
+        if ( keys[irow] != null ) {
+            rows[count++] = Integer.valueOf(irow);
+        }
+    }
+    Arrays.sort ( rows, new Comparator<Integer>() {
+        public int compare ( Integer row1, Integer row2 )
+        {
+            return joinTable_CompareKeys ( keys[row1.intValue()], keys[row2.intValue()] );
+        }
+    });
+    int [] sortedRows = new int[rows.length];
+    for ( int i = 0; i < rows.length; i++ ) {
+        sortedRows[i] = rows[i].intValue();
+    }
+    return sortedRows;
+}
+
 /**
 Given a definition of what data to expect, read a simple delimited file and
 store the data in a table.  Comment lines start with # and are not considered part of the header.
@@ -2918,14 +3558,15 @@ public static DataTable parseDelimitedFile ( String filename, String delimiter,
 	int num_lines_header, boolean trim_spaces, int maxLines)
 throws Exception
 {
-	String iline;
 	boolean processed_header = false;
-	List<String> columns;
 	int num_fields=0, num_lines_header_read=0;
 	int lineCount = 0;
 	DataTable table;
 
-	BufferedReader in = new BufferedReader ( new FileReader ( filename ));
+	// Lines are parsed into a reused token array rather than a new list for each line
+	DelimitedFileDataTableReader in = new DelimitedFileDataTableReader ( filename, delimiter, StringUtil.DELIM_ALLOW_STRINGS );
+	in.setCommentLineIndicator ( "#" );
+	in.setSkipBlankLines ( true );
 
 	table = new DataTable( tableFields );
 	table._haveDataInMemory = true;
@@ -2950,19 +3591,14 @@ throws Exception
 	}
 	int length = 0;
 
-	while (( iline = in.readLine ()) != null ) {
-		// check if read comment or empty line
-		if ( iline.startsWith("#") || iline.trim().length()==0) {
-			continue;
-		}
-
+	// Comment and empty lines are skipped by the reader
+	while ( in.readRecord() ) {
 		// TODO SAM if a column contains only quoted strings, but each string is a number, then there is no
 		// way to treat the column as strings.  This may be problematic if the string is zero-padded.
-		columns = StringUtil.breakStringList ( iline, delimiter, StringUtil.DELIM_ALLOW_STRINGS);
 
 		// line is part of header ... 
 		if ( !processed_header ) {
-			num_fields = columns.size();
+			num_fields = in.getNumberOfTokens();
 			if ( num_fields < tableFields.size() ) {
 				in.close();
 				throw new IOException ( "Table fields specifications do not match data found in file." );
@@ -2978,7 +3614,7 @@ throws Exception
 			TableRecord contents = new TableRecord(num_fields);
 			try {						
     			for ( int i=0; i<num_fields; i++ ) {
-    				col = columns.get(i);
+    				col = in.getToken(i);
     				if (trim_spaces) {
     					col = col.trim();
     				}
@@ -3021,7 +3657,6 @@ throws Exception
 			// Set the widths of the string fields to the length
 			// of the longest strings within those fields
 			for (int i = 0; i < num_fields; i++) {
-				col = columns.get(i);
 				if (field_types[i] == TableField.DATA_TYPE_STRING) {
 					table.setFieldWidth(i, stringLengths[i]);
 				}
@@ -3453,13 +4088,14 @@ throws Exception
 		TrimStrings_boolean = true;
 	}
 
-	List<List<String>> data_record_tokens = new ArrayList<List<String>>();
-	List<String> v = null;
+	// Data record tokens are copied from the reader's reused token array, which avoids a list for each line
+	List<String[]> data_record_tokens = new ArrayList<String[]>();
+	String [] v = null;
 	int maxColumns = 0;
 	int numColumnsParsed = 0;
 
-	BufferedReader in = new BufferedReader(new FileReader(filename));
-	String line;
+	DelimitedFileDataTableReader in = new DelimitedFileDataTableReader(filename, Delimiter, parseFlag);
+	in.setTrimInput(TrimInput_Boolean);
 
 	// TODO JTS 2006-06-05
 	// Found a bug in DataTable.  If you attempt to call
@@ -3476,8 +4112,7 @@ throws Exception
 	int numFields = -1; // Number of table fields.
 	TableField tableField = null; // Table field added below
 	while ( true ) {
-		line = in.readLine();
-		if ( line == null ) {
+		if ( !in.readLine() ) {
 		    // End of file...
 		    break;
 		}
@@ -3485,11 +4120,11 @@ throws Exception
 		linecount0 = linecount - 1;
 		
 		if ( Message.isDebugOn ) {
-			Message.printDebug ( 10, routine, "Line [" + linecount0 + "]: " + line );
+			Message.printDebug ( 10, routine, "Line [" + linecount0 + "]: " + in.getLine() );
 		}
 		
 		// Skip any comments anywhere in the file.
-		if ( (CommentLineIndicator != null) && line.startsWith(CommentLineIndicator) ) {
+		if ( (CommentLineIndicator != null) && in.lineStartsWith(CommentLineIndicator) ) {
 		    continue;
 		}
 		
@@ -3503,15 +4138,15 @@ throws Exception
 		    }
 		}
 		
-		// "line" now contains the latest non-comment line so evaluate whether
+		// The reader now contains the latest non-comment line so evaluate whether
 	    // the line contains the column names.
 	    
 		if ( !headers_found && (HeaderLines_Auto_boolean ||
 		    ((HeaderLineList != null) && linecount0 <= HeaderLinesList_maxval)) ) {
 		    if ( HeaderLines_Auto_boolean ) {
 		        // If a quote is detected, then this line is assumed to contain the name of the fields.
-        	    if (line.startsWith("\"")) {
-        	        tableFields = parseFile_ParseHeaderLine ( line, linecount0, TrimInput_Boolean, Delimiter, parseFlagHeader );
+        	    if (in.lineStartsWith("\"")) {
+        	        tableFields = parseFile_ParseHeaderLine ( in.getLine(), linecount0, TrimInput_Boolean, Delimiter, parseFlagHeader );
         	        numFields = tableFields.size();
         	        // Read another line of data to be used below
         	        headers_found = true;
@@ -3522,7 +4157,7 @@ throws Exception
 		        // Calling code has specified the header rows.  Check to see if this is a row.
 		        if ( parseFile_LineMatchesLineFromList(linecount0,HeaderLineList, HeaderLinesList_size)) {
 		            // This row has been specified as a header row so process it.
-		            tableFields = parseFile_ParseHeaderLine ( line, linecount0, TrimInput_Boolean, Delimiter, parseFlagHeader );
+		            tableFields = parseFile_ParseHeaderLine ( in.getLine(), linecount0, TrimInput_Boolean, Delimiter, parseFlagHeader );
 		            numFields = tableFields.size();
 		                
                     //FIXME SAM 2008-01-27 Figure out how to deal with multi-row headings
@@ -3553,13 +4188,10 @@ throws Exception
 			break;
 		}
 		
-        if ( TrimInput_Boolean ) {
-			v = StringUtil.breakStringList(line.trim(), Delimiter, parseFlag );
-		}
-		else {
-            v = StringUtil.breakStringList(line, Delimiter, parseFlag );
-		}
-		numColumnsParsed = v.size();
+		// Input is trimmed by the reader if TrimInput=True
+		in.tokenizeLine();
+		numColumnsParsed = in.getNumberOfTokens();
+		v = Arrays.copyOf(in.getTokens(), numColumnsParsed);
 		if (numColumnsParsed > maxColumns) {
 			maxColumns = numColumnsParsed;
 		}
@@ -3625,10 +4257,10 @@ throws Exception
 			break;
 		}
 	    v = data_record_tokens.get(irow);
-	    vsize = v.size();
+	    vsize = v.length;
 	    // Loop through all columns in the row.
 	    for ( int icol = 0; icol < vsize; icol++ ) {
-	        cell = v.get(icol);
+	        cell = v[icol];
 	        cell_trimmed = cell.trim();
 	        isTypeFound = false;
 	        if ( cell_trimmed.length() == 0 ) {
@@ -3836,13 +4468,13 @@ throws Exception
 		v = data_record_tokens.get(irow);
 
 		tablerec = new TableRecord(maxColumns);
-		cols = v.size();
+		cols = v.length;
 		for (int icol = 0; icol < cols; icol++) {
 			if (TrimStrings_boolean) {
-			    cell = v.get(icol).trim();
+			    cell = v[icol].trim();
 			}
 			else {
-				cell = v.get(icol);
+				cell = v[icol];
 			}
 			if ( ColumnDataTypes_Auto_boolean ) {
 			    // Set the data as an object of the column type.
@@ -4039,6 +4671,44 @@ private static String parseFile_ProcessString ( String cell )
     }
 }
 
+/**
+Determine whether a record matches the requested column values, as used by getRecords().
+String columns are compared ignoring case and other columns are compared with equals().
+A null value only matches a null column value.
+@param rec record to check.
+@param columnNumbers list of column (field) numbers, 0+.
+@param columnValues list of column values to match.
+@return true if all the column values match.
+*/
+private boolean recordMatches ( TableRecord rec, int [] columnNumbers, List<? extends Object> columnValues )
+throws Exception
+{   Object columnContents;
+    int iColumn = -1;
+    for ( Object columnValue: columnValues ) {
+        ++iColumn;
+        columnContents = rec.getFieldValue(columnNumbers[iColumn]);
+        if ( columnContents == null ) {
+            // Only match if both are match
+            if ( columnValue != null ) {
+                return false;
+            }
+        }
+        else if ( getFieldDataType(columnNumbers[iColumn]) == TableField.DATA_TYPE_STRING ) {
+            // Do case insensitive comparison
+            if ( !((String)columnValue).equalsIgnoreCase("" + columnContents)) {
+                return false;
+            }
+        }
+        else {
+            // Not a string so just use the equals() method to compare.
+            if ( !columnValue.equals(columnContents)) {
+                return false;
+            }
+        }
+    }
+    return true;
+}
+
 /**
 Rename column(s) in a table.
 @param table table to modify
@@ -4110,7 +4780,19 @@ throws Exception
     }
     // Now set the value (will throw ArrayIndexOutOfBoundsException if row is out of range)...
     TableRecord record = _table_records.get(row);
-    record.setFieldValue(col, value);
+    DataTableIndex index = null;
+    if ( __indexes != null ) {
+        index = __indexes.get(col);
+    }
+    if ( (index != null) && !index.isStale() ) {
+        // Move the row in the index from the old value to the new value
+        index.removeRow ( row, record.getFieldValue(col) );
+        record.setFieldValue(col, value);
+        index.addRow ( row, value );
+    }
+    else {
+        record.setFieldValue(col, value);
+    }
 }
 
 /**
@@ -4164,6 +4846,7 @@ Set the table fields to define the table.
 */
 public void setTableFields ( List<TableField> tableFieldsList )
 {	_table_fields = tableFieldsList;
+	dropIndexes();
 }
 
 /**
@@ -4297,6 +4980,8 @@ public void setTableRecordValues ( List<TableRecord> tableRecords, HashMap<Strin
             }
         }
     }
+    // Records were modified directly and may be in this table
+    invalidateIndexes();
     if ( errorCount > 0 ) {
         throw new RuntimeException ( "There were + " + errorCount + " errors setting table values: " + errorMessage );
     }
@@ -4632,12 +5317,33 @@ public void setTableValues ( Hashtable<String,String> columnFilters, HashMap<Str
 
 /**
 Sort the table rows by sorting a column's values.
+Null values are treated as smaller than other values and the sort is done serially.
 @param sortColumns the name of the columns to be sorted, allowed to be integer, double, string, or DateTime type.
 @param sortOrder order to sort (specify as 0+ to sort ascending and < 0 to sort descending)
 @return the sort order array indicating the position in the original data
 (useful if a parallel sort of data needs to occur)
 */
 public int [] sortTable ( String [] sortColumns, int [] sortOrder )
+{
+    return sortTable ( sortColumns, sortOrder, DataTableSortNullsType.SMALLEST, false );
+}
+
+/**
+Sort the table rows by the values in one or more columns.
+Rows are sorted by the first column, then rows with equal values in the first column are sorted by the second column, etc.
+The sort is stable:  rows that have equal values in all sort columns remain in their original order.
+Strings are compared ignoring case.
+The values in each sort column are converted to integer ranks and the rows are then sorted in one pass,
+using a single primitive long key for each row if the ranks for all sort columns fit in a long.
+@param sortColumns the name of the columns to be sorted, allowed to be string, integer, short, long, double, float,
+boolean, Date, or DateTime type.
+@param sortOrder order to sort for each column (specify as 0+ to sort ascending and < 0 to sort descending)
+@param sortNulls how to sort null values (if null, SMALLEST is used)
+@param parallel if true, use Arrays.parallelSort(), which is faster for large tables on computers with multiple processors
+@return the sort order array indicating the position in the original data
+(useful if a parallel sort of data needs to occur)
+*/
+public int [] sortTable ( String [] sortColumns, int [] sortOrder, DataTableSortNullsType sortNulls, boolean parallel )
 {	//String routine = getClass().getSimpleName() + ".sortTable";
     int [] sortColumnsNum = new int[sortColumns.length];
     List<String> errors = new ArrayList<String>();
@@ -4660,112 +5366,83 @@ public int [] sortTable ( String [] sortColumns, int [] sortOrder )
     	}
     	throw new RuntimeException ( b.toString() );
     }
+    if ( sortNulls == null ) {
+        sortNulls = DataTableSortNullsType.SMALLEST;
+    }
     int nrecords = getNumberOfRecords();
-    int sortFlag = StringUtil.SORT_ASCENDING;
-    if ( sortOrder[0] < 0 ) {
-        sortFlag = StringUtil.SORT_DESCENDING;
+    List<TableRecord> records = this.getTableRecords();
+    // Determine the rank of each row's value in each sort column.
+    // The number of bits needed for each column's ranks is used to determine whether a packed long key can be used.
+    final int [][] ranks = new int[sortColumnsNum.length][];
+    int [] rankBits = new int[sortColumnsNum.length];
+    int rowBits = sortTable_GetBitsNeeded ( nrecords );
+    int keyBits = rowBits;
+    for ( int iSort = 0; iSort < sortColumnsNum.length; iSort++ ) {
+        ranks[iSort] = sortTable_GetRanks ( records, sortColumnsNum[iSort], getFieldDataType(sortColumnsNum[iSort]),
+            (sortOrder[iSort] < 0), sortNulls, parallel );
+        int maxRank = 0;
+        for ( int rank : ranks[iSort] ) {
+            maxRank = Math.max(maxRank, rank);
+        }
+        rankBits[iSort] = sortTable_GetBitsNeeded ( maxRank + 1 );
+        keyBits += rankBits[iSort];
     }
     int [] sortedOrderArray = new int[nrecords]; // Overall sort order different from original
-    // First sort by the first column.
-    int iSort = 0;
-    if ( getFieldDataType(sortColumnsNum[iSort]) == TableField.DATA_TYPE_STRING ) {
-        String value;
-        List<String> values = new ArrayList<String>(nrecords);
-        for ( TableRecord rec : getTableRecords() ) {
-            try {
-                value = rec.getFieldValueString(sortColumnsNum[iSort]);
-                if ( value == null ) {
-                    value = "";
-                }
-                else {
-                    values.add(value);
-                }
-            }
-            catch ( Exception e ) {
-                // Should not happen but if it does it is probably bad
-                throw new RuntimeException ( e );
+    if ( keyBits <= 63 ) {
+        // Pack the ranks and the original row number into a long for each row.  Including the row number
+        // makes the keys unique so that sorting the primitive keys is stable.
+        long [] keys = new long[nrecords];
+        for ( int irec = 0; irec < nrecords; irec++ ) {
+            long key = 0;
+            for ( int iSort = 0; iSort < sortColumnsNum.length; iSort++ ) {
+                key = (key << rankBits[iSort]) | ranks[iSort][irec];
             }
+            keys[irec] = (key << rowBits) | irec;
         }
-        StringUtil.sortStringList(values, sortFlag, sortedOrderArray, true, true);
-    }
-    else if ( getFieldDataType(sortColumnsNum[iSort]) == TableField.DATA_TYPE_DATETIME ) {
-        Object value;
-        double [] values = new double[nrecords];
-        int irec = -1;
-        for ( TableRecord rec : getTableRecords() ) {
-            ++irec;
-            try {
-                value = rec.getFieldValue(sortColumnsNum[iSort]);
-                if ( value == null ) {
-                    value = -Double.MAX_VALUE;
-                }
-                values[irec] = ((DateTime)value).toDouble();
-            }
-            catch ( Exception e ) {
-                // Should not happen but if it does it is probably bad
-                throw new RuntimeException ( e );
-            }
+        if ( parallel ) {
+            Arrays.parallelSort ( keys );
         }
-        MathUtil.sort(values, MathUtil.SORT_QUICK, sortFlag, sortedOrderArray, true);
-    }
-    else if ( (getFieldDataType(sortColumnsNum[iSort]) == TableField.DATA_TYPE_DOUBLE) ||
-    	(getFieldDataType(sortColumnsNum[iSort]) == TableField.DATA_TYPE_FLOAT) ) {
-    	Object o;
-        double value;
-        double [] values = new double[nrecords];
-        int irec = -1;
-        for ( TableRecord rec : getTableRecords() ) {
-            ++irec;
-            try {
-                o = rec.getFieldValue(sortColumnsNum[iSort]);
-                if ( o == null ) {
-                    value = -Double.MAX_VALUE;
-                }
-                else {
-                	if ( o instanceof Double ) {
-                		value = (Double)o;
-                	}
-                	else {
-                		value = (Float)o;
-                	}
-                }
-                values[irec] = value;
-            }
-            catch ( Exception e ) {
-                // Should not happen but if it does it is probably bad
-                throw new RuntimeException ( e );
-            }
+        else {
+            Arrays.sort ( keys );
+        }
+        long rowMask = (1L << rowBits) - 1;
+        for ( int irec = 0; irec < nrecords; irec++ ) {
+            sortedOrderArray[irec] = (int)(keys[irec] & rowMask);
         }
-        MathUtil.sort(values, MathUtil.SORT_QUICK, sortFlag, sortedOrderArray, true);
     }
-    else if ( getFieldDataType(sortColumnsNum[iSort]) == TableField.DATA_TYPE_INT) {
-        Integer value;
-        int [] values = new int[nrecords];
-        int irec = -1;
-        for ( TableRecord rec : getTableRecords() ) {
-            ++irec;
-            try {
-                value = (Integer)rec.getFieldValue(sortColumnsNum[iSort]);
-                if ( value == null ) {
-                    value = -Integer.MAX_VALUE;
+    else {
+        // Too many distinct values to pack so sort the row numbers comparing the ranks (the object sorts are stable)
+        Integer [] rows = new Integer[nrecords];
+        for ( int irec = 0; irec < nrecords; irec++ ) {
+            rows[irec] = Integer.valueOf(irec);
+        }
+        Comparator<Integer> comparator = new Comparator<Integer>() {
+            public int compare ( Integer row1, Integer row2 )
+            {
+                for ( int iSort = 0; iSort < ranks.length; iSort++ ) {
+                    int rank1 = ranks[iSort][row1.intValue()];
+                    int rank2 = ranks[iSort][row2.intValue()];
+                    if ( rank1 != rank2 ) {
+                        return (rank1 < rank2) ? -1 : 1;
+                    }
                 }
-                values[irec] = value;
-            }
-            catch ( Exception e ) {
-                // Should not happen but if it does it is probably bad
-                throw new RuntimeException ( e );
+                return 0;
             }
+        };
+        if ( parallel ) {
+            Arrays.parallelSort ( rows, comparator );
+        }
+        else {
+            Arrays.sort ( rows, comparator );
+        }
+        for ( int irec = 0; irec < nrecords; irec++ ) {
+            sortedOrderArray[irec] = rows[irec].intValue();
         }
-        MathUtil.sort(values, MathUtil.SORT_QUICK, sortFlag, sortedOrderArray, true);
-    }
-    else {
-        throw new RuntimeException ( "Sorting table only implemented for string, integer, double, float and DateTime columns." );
     }
     // Shuffle the table's row list according to sortOrder.  Because other objects may have references to
     // the tables record list, can't create a new list.  Therefore, copy the old list to a backup and then use
     // that to sort into an updated original list.
     List<TableRecord> backup = new ArrayList<TableRecord>(nrecords);
-    List<TableRecord> records = this.getTableRecords();
     for ( TableRecord rec : records ) {
         backup.add ( rec );
     }
@@ -4773,238 +5450,156 @@ public int [] sortTable ( String [] sortColumns, int [] sortOrder )
     for ( int irec = 0; irec < nrecords; irec++ ) {
         records.set(irec, backup.get(sortedOrderArray[irec]) );
     }
-    // Now sort by columns [1]+ (zero index).  Only sort the last column being iterated.
-    // The previous columns are used to find blocks of rows to sort.  In other words, if 3 columns are sorted
-    // then columns [0-1] must match and then that block of rows is sorted based on column [2].
-    int iSort2;
-    int lastRec = getNumberOfRecords() - 1;
-    for ( iSort = 1; iSort < sortColumnsNum.length; iSort++ ) {
-    	Object [] sortValuesPrev = null;
-    	int irec = -1;
-    	boolean needToSort = false;
-    	Object o2;
-    	int blockStartRow = 0, blockEndRow = 0, sortColumnMatchCount = 0;
-    	// Iterate through the table.
-        for ( TableRecord rec : getTableRecords() ) {
-            ++irec;
-            //Message.printStatus(2,routine,"Processing record " + irec );
-            // Check the current row's sort columns against the previous row
-            if ( sortValuesPrev == null ) {
-            	// Initialize this row with values to be compared with the next row
-            	sortValuesPrev = new Object[iSort];
-            	for ( iSort2 = 0; iSort2 < iSort; iSort2++ ) {
-            		try {
-            			sortValuesPrev[iSort2] = rec.getFieldValue(sortColumnsNum[iSort2]);
-            		}
-            		catch ( Exception e ) {
-            			throw new RuntimeException ( e );
-            		}
-            	}
-            	blockStartRow = irec;
-            	blockEndRow = irec;
-            	//Message.printStatus(2,routine,"Initializing " + irec + " for first comparison." );
-            	continue;
-            }
-            else {
-            	// Compare this row's values with the previous block of similar values
-            	sortColumnMatchCount = 0;
-	            for ( iSort2 = 0; iSort2 < iSort; iSort2++ ) {
-	            	try {
-	            		o2 = rec.getFieldValue(sortColumnsNum[iSort2]);
-	            	}
-	            	catch ( Exception e ) {
-	            		throw new RuntimeException ( e );
-	            	}
-	            	if ( ((o2 == null) && (sortValuesPrev[iSort2] == null)) || (o2 != null) && o2.equals(sortValuesPrev[iSort2]) ) {
-	            		//Message.printStatus(2, routine, "Previous value["+iSort2+"]: " + sortValuesPrev[iSort2] + " current value=" + o2 );
-	            		++sortColumnMatchCount;
-	            	}
-	            	else {
-	            		// The current row did not match so save the current row as the previous and break to indicate that the block needs sorted
-	            		//Message.printStatus(2,routine,"Record " + irec + " compare values did not match previous row." );
-	            		break;
-	            	}
-	            }
-	            // If all the values matched, can process another row before sorting, but check to see if at end of table below
-	            if ( sortColumnMatchCount == iSort ) {
-	            	//Message.printStatus(2,routine,"Record " + irec + " sort columns match previous." );
-	            	needToSort = false;
-	            	blockEndRow = irec; // Advance the end of the block
-	            }
-	            else {
-	            	// Current row's sort column values did not match so need to sort the block
-	            	//Message.printStatus(2,routine,"Record " + irec + " sort columns do not match previous.  Resetting \"previous\" values to this record." );
-	            	needToSort = true;
-	            	// Save the current row to compare with the next row
-            		for ( int iSort3 = 0; iSort3 < iSort; iSort3++ ) {
-                		try {
-                			sortValuesPrev[iSort3] = rec.getFieldValue(sortColumnsNum[iSort3]);
-                		}
-                		catch ( Exception e ) {
-                			throw new RuntimeException ( e );
-                		}
-                	}
-	            }
-	            if ( (irec == lastRec) && (blockStartRow != blockEndRow) ) {
-	            	// Need to sort if in the last row unless the block was only one row
-	            	needToSort = true;
-	            	//Message.printStatus(2, routine, "Need to sort end of table from " + blockStartRow + " to " + blockEndRow );
-	            }
-	            if ( needToSort ) {
-	            	// Need to sort the block of rows using the "rightmost" sort column
-	            	//Message.printStatus(2, routine, "Need to sort block of rows from " + blockStartRow + " to " + blockEndRow );
-	            	try {
-	            		//Message.printStatus(2, routine, "Sorting rows from " + blockStartRow + " to " + blockEndRow + " based on column " + sortColumnNum[iSort] );
-	            		sortTableSubset(blockStartRow,blockEndRow,sortColumnsNum[iSort],sortOrder[iSort],sortedOrderArray);
-	            	}
-	            	catch ( Exception e ) {
-	            		throw new RuntimeException(e);
-	            	}
-	            	// Now that the block has been started, reset for the next block
-	            	// blockStartRow should = irec since rec was different and triggered the sort of the previous block
-	            	blockStartRow = blockEndRow + 1;
-	            	blockEndRow = blockStartRow;
-	            }
-	            //Message.printStatus(2, routine, "At end of loop irec=" + irec + " blockStartRow=" + blockStartRow + " blockEndRow=" + blockEndRow );
-            }
-        }
-    }
+    // Row numbers have changed
+    invalidateIndexes();
     return sortedOrderArray;
 }
 
 /**
-Sort a subset of a table.  This is called internally by other methods.
-@param blockStartRow starting row (0 index) to sort
-@param blockEndRow ending row (0 index) to sort
-@param iCol column number to sort
-@param sortOrder sort order
-@param sortedOrderArray the sort order array indicating the position in the original data
-(useful if a parallel sort of data needs to occur)
+Return the number of bits needed to store the values 0 to count - 1.
 */
-private void sortTableSubset ( int blockStartRow, int blockEndRow, int iCol, int sortOrder, int [] sortedOrderArray )
-throws Exception
+private static int sortTable_GetBitsNeeded ( int count )
 {
-	if ( blockStartRow == blockEndRow ) {
-		// Only one row to sort
-		return;
-	}
-    int nrecords = blockEndRow - blockStartRow + 1; // Number of records in the block to sort
-    int [] sortOrderArray2 = new int[nrecords]; // Overall sort order different from original
-    // First sort by the first column.
-    int sortFlag = StringUtil.SORT_ASCENDING;
-    if ( sortOrder < 0 ) {
-        sortFlag = StringUtil.SORT_DESCENDING;
+    if ( count <= 1 ) {
+        return 0;
     }
-    if ( getFieldDataType(iCol) == TableField.DATA_TYPE_STRING ) {
-        String value;
-        List<String> values = new ArrayList<String>(nrecords);
-        TableRecord rec;
-        for ( int irec = blockStartRow; irec <= blockEndRow; irec++ ) {
-        	rec = getRecord(irec);
-            try {
-                value = rec.getFieldValueString(iCol);
+    return 64 - Long.numberOfLeadingZeros(count - 1);
+}
+
+/**
+Return the rank of each row's value in a column, for sorting.  Rows with equal values have the same rank,
+and ranks are reversed for descending sorts.  Ranks are from zero to the number of distinct values
+(including null, if present) minus one.
+@param records table records
+@param col column number (0+)
+@param dataType column data type
+@param descending whether the column is being sorted in descending order
+@param sortNulls how to sort null values
+@param parallel whether to use a parallel sort to rank the values
+*/
+private static int [] sortTable_GetRanks ( List<TableRecord> records, int col, int dataType, boolean descending,
+    DataTableSortNullsType sortNulls, boolean parallel )
+{
+    int nrecords = records.size();
+    int [] ranks = new int[nrecords];
+    boolean [] isNull = new boolean[nrecords];
+    int nDistinct = 0;
+    try {
+        if ( dataType == TableField.DATA_TYPE_STRING ) {
+            // Compare strings ignoring case
+            String [] values = new String[nrecords];
+            Map<String,Integer> distinctMap = new HashMap<String,Integer>();
+            for ( int irec = 0; irec < nrecords; irec++ ) {
+                String value = records.get(irec).getFieldValueString(col);
                 if ( value == null ) {
-                    value = "";
+                    isNull[irec] = true;
                 }
                 else {
-                    values.add(value);
+                    values[irec] = value.toUpperCase();
+                    distinctMap.put ( values[irec], null );
                 }
             }
-            catch ( Exception e ) {
-                // Should not happen but if it does it is probably bad
-                throw new RuntimeException ( e );
+            String [] distinct = distinctMap.keySet().toArray(new String[distinctMap.size()]);
+            if ( parallel ) {
+                Arrays.parallelSort ( distinct );
             }
-        }
-        StringUtil.sortStringList(values, sortFlag, sortOrderArray2, true, true);
-    }
-    else if ( getFieldDataType(iCol) == TableField.DATA_TYPE_DATETIME ) {
-        Object value;
-        double [] values = new double[nrecords];
-        TableRecord rec;
-        for ( int irec = blockStartRow, pos = 0; irec <= blockEndRow; irec++, pos++ ) {
-        	rec = getRecord(irec);
-            try {
-                value = rec.getFieldValue(iCol);
-                if ( value == null ) {
-                    value = -Double.MAX_VALUE;
-                }
-                values[pos] = ((DateTime)value).toDouble();
+            else {
+                Arrays.sort ( distinct );
             }
-            catch ( Exception e ) {
-                // Should not happen but if it does it is probably bad
-                throw new RuntimeException ( e );
+            for ( int i = 0; i < distinct.length; i++ ) {
+                distinctMap.put ( distinct[i], Integer.valueOf(i) );
+            }
+            for ( int irec = 0; irec < nrecords; irec++ ) {
+                if ( !isNull[irec] ) {
+                    ranks[irec] = distinctMap.get(values[irec]).intValue();
+                }
             }
+            nDistinct = distinct.length;
         }
-        MathUtil.sort(values, MathUtil.SORT_QUICK, sortFlag, sortOrderArray2, true);
-    }
-    else if ( (getFieldDataType(iCol) == TableField.DATA_TYPE_DOUBLE) ||
-    	(getFieldDataType(iCol) == TableField.DATA_TYPE_FLOAT) ) {
-    	Object o;
-        double value;
-        double [] values = new double[nrecords];
-        TableRecord rec;
-        for ( int irec = blockStartRow, pos = 0; irec <= blockEndRow; irec++, pos++ ) {
-        	rec = getRecord(irec);
-            try {
-                o = rec.getFieldValue(iCol);
+        else {
+            // Convert the values to long integers that have the same order as the values
+            long [] values = new long[nrecords];
+            int nNotNull = 0;
+            for ( int irec = 0; irec < nrecords; irec++ ) {
+                Object o = records.get(irec).getFieldValue(col);
                 if ( o == null ) {
-                    value = -Double.MAX_VALUE;
+                    isNull[irec] = true;
+                    continue;
+                }
+                ++nNotNull;
+                if ( (dataType == TableField.DATA_TYPE_DOUBLE) || (dataType == TableField.DATA_TYPE_FLOAT) ) {
+                    // Bits of the double, with negative values flipped so that the order is the same as Double.compare()
+                    long bits = Double.doubleToLongBits(((Number)o).doubleValue());
+                    values[irec] = bits ^ ((bits >> 63) & Long.MAX_VALUE);
+                }
+                else if ( (dataType == TableField.DATA_TYPE_INT) || (dataType == TableField.DATA_TYPE_SHORT) ||
+                    (dataType == TableField.DATA_TYPE_LONG) ) {
+                    values[irec] = ((Number)o).longValue();
+                }
+                else if ( dataType == TableField.DATA_TYPE_DATETIME ) {
+                    values[irec] = DateTimeKey.toKey((DateTime)o);
+                }
+                else if ( dataType == TableField.DATA_TYPE_DATE ) {
+                    values[irec] = ((Date)o).getTime();
+                }
+                else if ( dataType == TableField.DATA_TYPE_BOOLEAN ) {
+                    values[irec] = ((Boolean)o).booleanValue() ? 1 : 0;
                 }
                 else {
-                	if ( o instanceof Double ) {
-                		value = (Double)o;
-                	}
-                	else {
-                		value = (Float)o;
-                	}
+                    throw new RuntimeException ( "Sorting table only implemented for string, integer, short, long, double, float, " +
+                        "boolean, Date, and DateTime columns." );
                 }
-                values[pos] = value;
             }
-            catch ( Exception e ) {
-                // Should not happen but if it does it is probably bad
-                throw new RuntimeException ( e );
+            // Sort the distinct values and then look up the rank of each value
+            long [] distinct = new long[nNotNull];
+            nNotNull = 0;
+            for ( int irec = 0; irec < nrecords; irec++ ) {
+                if ( !isNull[irec] ) {
+                    distinct[nNotNull++] = values[irec];
+                }
             }
-        }
-        MathUtil.sort(values, MathUtil.SORT_QUICK, sortFlag, sortOrderArray2, true);
-    }
-    else if ( getFieldDataType(iCol) == TableField.DATA_TYPE_INT) {
-        Integer value;
-        int [] values = new int[nrecords];
-        TableRecord rec;
-        for ( int irec = blockStartRow, pos = 0; irec <= blockEndRow; irec++, pos++ ) {
-        	rec = getRecord(irec);
-            try {
-                value = (Integer)rec.getFieldValue(iCol);
-                if ( value == null ) {
-                    value = -Integer.MAX_VALUE;
+            if ( parallel ) {
+                Arrays.parallelSort ( distinct );
+            }
+            else {
+                Arrays.sort ( distinct );
+            }
+            for ( int i = 0; i < distinct.length; i++ ) {
+                if ( (nDistinct == 0) || (distinct[i] != distinct[nDistinct - 1]) ) {
+                    distinct[nDistinct++] = distinct[i];
                 }
-                values[pos] = value;
             }
-            catch ( Exception e ) {
-                // Should not happen but if it does it is probably bad
-                throw new RuntimeException ( e );
+            for ( int irec = 0; irec < nrecords; irec++ ) {
+                if ( !isNull[irec] ) {
+                    ranks[irec] = Arrays.binarySearch(distinct, 0, nDistinct, values[irec]);
+                }
             }
         }
-        MathUtil.sort(values, MathUtil.SORT_QUICK, sortFlag, sortOrderArray2, true);
     }
-    else {
-        throw new RuntimeException ( "Sorting table only implemented for string, integer, double, float and DateTime columns." );
+    catch ( RuntimeException e ) {
+        throw e;
     }
-    // Shuffle the table's row list according to sortOrder.  Because other objects may have references to
-    // the tables record list, can't create a new list.  Therefore, copy the old list to a backup and then use
-    // that to sort into an updated original list.
-    List<TableRecord> backup = new ArrayList<TableRecord>(nrecords);
-    List<TableRecord> records = this.getTableRecords();
-    TableRecord rec;
-    for ( int irec = blockStartRow; irec <= blockEndRow; irec++ ) {
-    	rec = getRecord(irec);
-        backup.add ( rec );
+    catch ( Exception e ) {
+        // Should not happen but if it does it is probably bad
+        throw new RuntimeException ( e );
     }
-    // Now set from the backup to the original list
-    for ( int irec = blockStartRow; irec <= blockEndRow; irec++ ) {
-        records.set(irec, backup.get(sortOrderArray2[irec-blockStartRow]) );
-        sortedOrderArray[irec] = sortOrderArray2[irec-blockStartRow];
+    // Reverse the ranks for descending sort and then set the rank for null values
+    boolean nullsFirst = (sortNulls == DataTableSortNullsType.FIRST) ||
+        ((sortNulls == DataTableSortNullsType.SMALLEST) && !descending);
+    for ( int irec = 0; irec < nrecords; irec++ ) {
+        if ( isNull[irec] ) {
+            ranks[irec] = nullsFirst ? 0 : nDistinct;
+        }
+        else {
+            if ( descending ) {
+                ranks[irec] = nDistinct - 1 - ranks[irec];
+            }
+            if ( nullsFirst ) {
+                ++ranks[irec];
+            }
+        }
     }
+    return ranks;
 }
 
 /**
@@ -25,6 +25,8 @@ package RTi.Util.Table;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import RTi.Util.Message.Message;
 import RTi.Util.String.StringDictionary;
@@ -50,6 +52,11 @@ Glob (*) patterns to match include filter columns.
 */
 private String [] columnIncludeFiltersGlobs = null;
 
+/**
+Compiled patterns for include filter columns, null for patterns that could not be compiled.
+*/
+private Pattern [] columnIncludeFiltersPatterns = new Pattern[0];
+
 /**
 Table column numbers for exclude filter columns.
 */
@@ -60,6 +67,11 @@ Glob (*) patterns to match exclude filter columns.
 */
 private String [] columnExcludeFiltersGlobs = null;
 
+/**
+Compiled patterns for exclude filter columns, null for patterns that could not be compiled.
+*/
+private Pattern [] columnExcludeFiltersPatterns = new Pattern[0];
+
 /**
 Constructor for StringDictionaries.
 */
@@ -87,6 +99,7 @@ throws InvalidTableColumnException
                 throw new InvalidTableColumnException ( "ColumnIncludeFilters column \"" + key + "\" not found in table \"" + table.getTableID() + "\"");
             }
         }
+        this.columnIncludeFiltersPatterns = compilePatterns ( this.columnIncludeFiltersGlobs );
     }
     // Get exclude filter columns and glob-style regular expressions
     if ( columnExcludeFilters != null ) {
@@ -111,9 +124,56 @@ throws InvalidTableColumnException
             	throw new InvalidTableColumnException ( "ColumnExcludeFilters column \"" + key + "\" not found in table \"" + table.getTableID() + "\"");
             }
         }
+        this.columnExcludeFiltersPatterns = compilePatterns ( this.columnExcludeFiltersGlobs );
     }
 }
 
+/**
+Compile the filter regular expressions once so that they are not compiled for each row.
+Patterns that cannot be compiled are set to null and are handled when rows are checked.
+*/
+private Pattern [] compilePatterns ( String [] regexes )
+{	Pattern [] patterns = new Pattern[regexes.length];
+	for ( int i = 0; i < regexes.length; i++ ) {
+		try {
+			patterns[i] = Pattern.compile(regexes[i]);
+		}
+		catch ( PatternSyntaxException e ) {
+			patterns[i] = null;
+		}
+	}
+	return patterns;
+}
+
+/**
+Return the rows that need to be checked with includeRow(), in increasing order.
+If an include filter is a literal value (no wildcards or other pattern characters) for a string column
+that has an index (see DataTable.createIndex()), only the rows in the index for the value can be included.
+@return the rows to check with includeRow(), or null if all rows need to be checked.
+*/
+public int [] getCandidateRows ()
+{	for ( int icol = 0; icol < this.columnIncludeFiltersNumbers.length; icol++ ) {
+		int column = this.columnIncludeFiltersNumbers[icol];
+		if ( (column < 0) || !this.columnIncludeFiltersGlobs[icol].matches("[A-Z0-9 _-]+") ) {
+			continue;
+		}
+		try {
+			if ( this.table.getFieldDataType(column) != TableField.DATA_TYPE_STRING ) {
+				continue;
+			}
+			DataTableIndex index = this.table.getIndex(column);
+			if ( index != null ) {
+				// Index lookups for string columns ignore case, consistent with the uppercase filter
+				return index.getRows(this.columnIncludeFiltersGlobs[icol]);
+			}
+		}
+		catch ( Exception e ) {
+			// Check all rows
+		}
+	}
+	return null;
+}
+
 /**
 Determine whether a row should be included in processing because it matches the include and exclude filters.
 @param irow row index (0+) to check for inclusion
@@ -140,7 +200,7 @@ public boolean includeRow ( int irow, boolean throwExceptions )
                     break; // Don't include nulls when checking values
                 }
                 s = ("" + o).toUpperCase();
-                if ( !s.matches(this.columnIncludeFiltersGlobs[icol]) ) {
+                if ( !matches(s, this.columnIncludeFiltersPatterns[icol], this.columnIncludeFiltersGlobs[icol]) ) {
                     // A filter did not match so don't copy the record
                     filterMatches = false;
                     break;
@@ -180,7 +240,7 @@ public boolean includeRow ( int irow, boolean throwExceptions )
                 }
                 s = ("" + o).toUpperCase();
                 //Message.printStatus(2,"","Comparing table value \"" + s + "\" with exclude filter \"" + columnExcludeFiltersGlobs[icol] + "\"");
-                if ( s.matches(this.columnExcludeFiltersGlobs[icol]) ) {
+                if ( matches(s, this.columnExcludeFiltersPatterns[icol], this.columnExcludeFiltersGlobs[icol]) ) {
                     // A filter matched so don't copy the record
                 	//Message.printStatus(2,"","Exclude filter matches");
                     ++matchesCount;
@@ -203,4 +263,15 @@ public boolean includeRow ( int irow, boolean throwExceptions )
     return filterMatches;
 }
 
+/**
+Determine whether a string matches a filter, using the compiled pattern if available.
+If the pattern could not be compiled, String.matches() is called so that the same exception occurs as if not compiled.
+*/
+private boolean matches ( String s, Pattern pattern, String regex )
+{	if ( pattern == null ) {
+		return s.matches(regex);
+	}
+	return pattern.matcher(s).matches();
+}
+
 }
@@ -0,0 +1,378 @@
+// DataTableIndex - index of the rows in a DataTable by the values in a column
+
+/* NoticeStart
+
+CDSS Common Java Library
+CDSS Common Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Common Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Common Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Common Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package RTi.Util.Table;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import RTi.Util.Time.DateTime;
+import RTi.Util.Time.DateTimeKey;
+
+/**
+This class indexes the rows of a DataTable by the values in one column, to allow records to be found
+without checking every record in the table.  A HASH index supports lookups of equal values and a SORTED index
+also supports lookups of ranges of values.
+Indexes are created with DataTable.createIndex() and are kept up to date by the DataTable methods that
+add, delete, and set records.
+Row numbers are returned in increasing order, which is the order that records are found by scanning the table.
+<p>
+Keys are consistent with DataTable.getRecords():  string values are compared ignoring case,
+and other values use equals(), except that DateTime values are keyed by their DateTimeKey (see the DataTable
+notes on DateTime equality).  Null values are tracked separately from other values.
+*/
+public class DataTableIndex
+{
+
+/**
+Column number (0+) that is indexed.
+*/
+private int column;
+
+/**
+Index type.
+*/
+private DataTableIndexType indexType;
+
+/**
+Whether string values are compared ignoring case (the column is a string column).
+*/
+private boolean ignoreCase;
+
+/**
+Map of key to the rows having the key, HashMap for HASH and TreeMap for SORTED.
+*/
+private Map<Object,RowList> rowMap;
+
+/**
+Rows having null values.
+*/
+private RowList nullRows = new RowList();
+
+/**
+Whether the index needs to be rebuilt because the table was changed in a way that the index could not track.
+*/
+private boolean stale = false;
+
+/**
+Comparator for SORTED index keys.  Numbers are compared by value regardless of type so that, for example, integer
+column values can be looked up with double values.
+*/
+private static final Comparator<Object> KEY_COMPARATOR = new Comparator<Object>() {
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public int compare ( Object o1, Object o2 ) {
+		if ( (o1 instanceof Number) && (o2 instanceof Number) ) {
+			if ( isIntegral(o1) && isIntegral(o2) ) {
+				long l1 = ((Number)o1).longValue();
+				long l2 = ((Number)o2).longValue();
+				return (l1 < l2) ? -1 : ((l1 == l2) ? 0 : 1);
+			}
+			return Double.compare ( ((Number)o1).doubleValue(), ((Number)o2).doubleValue() );
+		}
+		else if ( (o1 instanceof Comparable) && (o1.getClass() == o2.getClass()) ) {
+			return ((Comparable)o1).compareTo(o2);
+		}
+		else {
+			// Mixed types, which should not occur in a column
+			return o1.toString().compareTo(o2.toString());
+		}
+	}
+};
+
+/**
+Construct an index.  The index is empty until build() is called.
+@param column column number (0+) to index.
+@param indexType type of index.
+@param ignoreCase whether string values should be compared ignoring case (true for string columns).
+*/
+public DataTableIndex ( int column, DataTableIndexType indexType, boolean ignoreCase )
+{	this.column = column;
+	this.indexType = indexType;
+	this.ignoreCase = ignoreCase;
+	if ( indexType == DataTableIndexType.SORTED ) {
+		this.rowMap = new TreeMap<Object,RowList>(KEY_COMPARATOR);
+	}
+	else {
+		this.rowMap = new HashMap<Object,RowList>();
+	}
+}
+
+/**
+Add a row to the index.
+@param row row number (0+).
+@param value the column value for the row.
+*/
+public void addRow ( int row, Object value )
+{	RowList rows;
+	if ( value == null ) {
+		rows = this.nullRows;
+	}
+	else {
+		Object key = toKey(value);
+		rows = this.rowMap.get(key);
+		if ( rows == null ) {
+			rows = new RowList();
+			this.rowMap.put(key, rows);
+		}
+	}
+	rows.add(row);
+}
+
+/**
+Build the index from the table records, replacing any previous contents.
+@param records the table records.
+*/
+public void build ( List<TableRecord> records )
+throws Exception
+{	this.rowMap.clear();
+	this.nullRows = new RowList();
+	int nrec = records.size();
+	for ( int irec = 0; irec < nrec; irec++ ) {
+		addRow ( irec, records.get(irec).getFieldValue(this.column) );
+	}
+	this.stale = false;
+}
+
+/**
+Return the column number (0+) that is indexed.
+@return the column number (0+) that is indexed.
+*/
+public int getColumn ()
+{	return this.column;
+}
+
+/**
+Return the rows for the largest indexed value that is less than or equal to the requested value.
+Only SORTED indexes support this lookup.
+@param value value to look up (not null).
+@return the rows in increasing order, or an empty array if no value is less than or equal to the requested value.
+*/
+public int [] getFloorRows ( Object value )
+{	checkSorted();
+	Map.Entry<Object,RowList> entry = ((NavigableMap<Object,RowList>)this.rowMap).floorEntry(toKey(value));
+	if ( entry == null ) {
+		return new int[0];
+	}
+	return entry.getValue().toArray();
+}
+
+/**
+Return the index type.
+@return the index type.
+*/
+public DataTableIndexType getIndexType ()
+{	return this.indexType;
+}
+
+/**
+Return the rows that have the requested value.
+@param value value to look up, can be null to return rows with null values.
+@return the rows in increasing order, guaranteed to be non-null.
+*/
+public int [] getRows ( Object value )
+{	RowList rows;
+	if ( value == null ) {
+		rows = this.nullRows;
+	}
+	else {
+		rows = this.rowMap.get(toKey(value));
+	}
+	if ( rows == null ) {
+		return new int[0];
+	}
+	return rows.toArray();
+}
+
+/**
+Return the rows that have values in a range.  Only SORTED indexes support range lookups.  Null values are not included.
+@param minValue minimum value, or null for no minimum.
+@param minInclusive whether the minimum value is included in the range.
+@param maxValue maximum value, or null for no maximum.
+@param maxInclusive whether the maximum value is included in the range.
+@return the rows in increasing order, guaranteed to be non-null.
+*/
+public int [] getRowsInRange ( Object minValue, boolean minInclusive, Object maxValue, boolean maxInclusive )
+{	checkSorted();
+	NavigableMap<Object,RowList> map = (NavigableMap<Object,RowList>)this.rowMap;
+	if ( minValue != null ) {
+		map = map.tailMap(toKey(minValue), minInclusive);
+	}
+	if ( maxValue != null ) {
+		map = map.headMap(toKey(maxValue), maxInclusive);
+	}
+	int count = 0;
+	for ( RowList rows : map.values() ) {
+		count += rows.size;
+	}
+	int [] rowArray = new int[count];
+	count = 0;
+	for ( RowList rows : map.values() ) {
+		System.arraycopy(rows.rows, 0, rowArray, count, rows.size);
+		count += rows.size;
+	}
+	// Rows were collected in value order so sort into row order
+	Arrays.sort(rowArray);
+	return rowArray;
+}
+
+/**
+Throw an exception if the index is not SORTED, used with lookups that require a sorted index.
+*/
+private void checkSorted ()
+{	if ( this.indexType != DataTableIndexType.SORTED ) {
+		throw new UnsupportedOperationException ( "Column [" + this.column + "] index type is " + this.indexType +
+			" - a " + DataTableIndexType.SORTED + " index is required for the lookup." );
+	}
+}
+
+/**
+Determine whether a number is an integral type.
+*/
+private static boolean isIntegral ( Object o )
+{	return (o instanceof Integer) || (o instanceof Long) || (o instanceof Short) || (o instanceof Byte);
+}
+
+/**
+Indicate whether the index is stale and needs to be rebuilt.
+@return true if the index needs to be rebuilt.
+*/
+public boolean isStale ()
+{	return this.stale;
+}
+
+/**
+Remove a row from the index.
+@param row row number (0+).
+@param value the column value for the row, as was added to the index.
+*/
+public void removeRow ( int row, Object value )
+{	if ( value == null ) {
+		this.nullRows.remove(row);
+	}
+	else {
+		Object key = toKey(value);
+		RowList rows = this.rowMap.get(key);
+		if ( rows != null ) {
+			rows.remove(row);
+			if ( rows.size == 0 ) {
+				this.rowMap.remove(key);
+			}
+		}
+	}
+}
+
+/**
+Set whether the index is stale and needs to be rebuilt.
+@param stale true if the index needs to be rebuilt.
+*/
+public void setStale ( boolean stale )
+{	this.stale = stale;
+}
+
+/**
+Return a string normalized so that strings equal ignoring case are the same,
+consistent with String.equalsIgnoreCase().
+@param s string to normalize
+*/
+static String toIgnoreCaseKey ( String s )
+{	int len = s.length();
+	char [] chars = new char[len];
+	for ( int i = 0; i < len; i++ ) {
+		chars[i] = Character.toLowerCase(Character.toUpperCase(s.charAt(i)));
+	}
+	return new String(chars);
+}
+
+/**
+Convert a column value to the key used in the index.
+Strings are normalized so that keys equal ignoring case are the same, consistent with String.equalsIgnoreCase().
+*/
+private Object toKey ( Object value )
+{	if ( this.ignoreCase ) {
+		return toIgnoreCaseKey(value.toString());
+	}
+	else if ( value instanceof DateTime ) {
+		return Long.valueOf(DateTimeKey.toKey((DateTime)value));
+	}
+	return value;
+}
+
+/**
+List of row numbers kept in increasing order, to avoid creating Integer objects for large tables.
+*/
+private static class RowList
+{
+	/**
+	Row numbers.
+	*/
+	private int [] rows = new int[1];
+
+	/**
+	Number of rows in the list.
+	*/
+	private int size = 0;
+
+	/**
+	Add a row, keeping the rows in increasing order.  Rows are typically added at the end.
+	*/
+	private void add ( int row )
+	{	if ( this.size == this.rows.length ) {
+			this.rows = Arrays.copyOf(this.rows, this.rows.length*2);
+		}
+		int pos = this.size;
+		if ( (this.size > 0) && (this.rows[this.size - 1] > row) ) {
+			pos = Arrays.binarySearch(this.rows, 0, this.size, row);
+			if ( pos < 0 ) {
+				pos = -pos - 1;
+			}
+			System.arraycopy(this.rows, pos, this.rows, pos + 1, this.size - pos);
+		}
+		this.rows[pos] = row;
+		++this.size;
+	}
+
+	/**
+	Remove a row, if in the list.
+	*/
+	private void remove ( int row )
+	{	int pos = Arrays.binarySearch(this.rows, 0, this.size, row);
+		if ( pos >= 0 ) {
+			System.arraycopy(this.rows, pos + 1, this.rows, pos, this.size - pos - 1);
+			--this.size;
+		}
+	}
+
+	/**
+	Return a copy of the rows.
+	*/
+	private int [] toArray ()
+	{	return Arrays.copyOf(this.rows, this.size);
+	}
+}
+
+}
@@ -0,0 +1,92 @@
+// DataTableJoinStrategyType - enumeration of table join execution strategies
+
+/* NoticeStart
+
+CDSS Common Java Library
+CDSS Common Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Common Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Common Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Common Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package RTi.Util.Table;
+
+/**
+Enumeration of strategies used to find matching rows when joining tables (see DataTable.joinTable()).
+All strategies give the same result and differ only in performance.
+*/
+public enum DataTableJoinStrategyType
+{
+
+/*
+Choose the strategy based on the table sizes and whether the table being joined has an index on a join column.
+*/
+AUTO("Auto"),
+/*
+Build a hash table of the join column values in the table being joined and look up each row of the first table.
+*/
+HASH("Hash"),
+/*
+Compare every row of the first table with every row of the table being joined.
+*/
+NESTED_LOOP("NestedLoop"),
+/*
+Sort the rows of both tables by the join column values and merge the sorted rows.
+*/
+SORT_MERGE("SortMerge");
+
+/**
+The name that should be displayed when used in UIs and reports.
+*/
+private final String displayName;
+
+/**
+Construct an enumeration value.
+@param displayName name that should be displayed in choices, etc.
+*/
+private DataTableJoinStrategyType(String displayName) {
+    this.displayName = displayName;
+}
+
+/**
+Return the display name for the join strategy.  This is usually the same as the
+value but using appropriate mixed case.
+@return the display name.
+*/
+@Override
+public String toString() {
+    return displayName;
+}
+
+/**
+Return the enumeration value given a string name (case-independent).
+@return the enumeration value given a string name (case-independent), or null if not matched.
+*/
+public static DataTableJoinStrategyType valueOfIgnoreCase(String name)
+{
+    if ( name == null ) {
+        return null;
+    }
+    DataTableJoinStrategyType [] values = values();
+    // Currently supported values
+    for ( DataTableJoinStrategyType t : values ) {
+        if ( name.equalsIgnoreCase(t.toString()) ) {
+            return t;
+        }
+    } 
+    return null;
+}
+    
+}
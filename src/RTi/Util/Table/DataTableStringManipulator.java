@@ -213,15 +213,23 @@ public void manipulate ( String inputColumn1, DataTableStringOperatorType operat
     	}
 	}
 
-    // Loop through the records
+    // Loop through the records, only those that may match the filter if an index can be used
+    int [] candidateRows = filter.getCandidateRows();
     int nrec = __table.getNumberOfRecords();
+    if ( candidateRows != null ) {
+        nrec = candidateRows.length;
+    }
     Object val = null;
     String input1Val = null;
     String input2Val = null;
     String input3Val = null;
     Object outputVal = null;
     int maxChars = -1; // Maximum string length of output
-    for ( int irec = 0; irec < nrec; irec++ ) {
+    for ( int icand = 0; icand < nrec; icand++ ) {
+    	int irec = icand;
+    	if ( candidateRows != null ) {
+    		irec = candidateRows[icand];
+    	}
     	// Check whether row should be included/excluded - "true" below indicates to throw exceptions
     	try {
 	    	if ( !filter.includeRow(irec,true) ) {
@@ -0,0 +1,674 @@
+// DelimitedFileDataTableReader - streaming reader for delimited files, for use with DataTable
+
+/* NoticeStart
+
+CDSS Common Java Library
+CDSS Common Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Common Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Common Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Common Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package RTi.Util.Table;
+
+import java.io.Closeable;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+import RTi.Util.String.StringUtil;
+
+/**
+Streaming reader for delimited (e.g., CSV) files.  Lines are read one at a time into a reusable buffer and are
+broken into tokens using the same rules as StringUtil.breakStringList(), so that large files can be processed
+(e.g., filtered) without reading the entire file into memory.  The token array is also reused for each line and
+must be copied if the tokens need to be retained after the next line is read.
+A column projection can be set so that only the requested columns are converted to strings,
+and leading lines can be skipped without being parsed.  Typical use is:
+<pre>
+DelimitedFileDataTableReader in = new DelimitedFileDataTableReader ( filename, ",", StringUtil.DELIM_ALLOW_STRINGS );
+try {
+    in.setCommentLineIndicator ( "#" );
+    in.setColumns ( new int[] { 0, 3 } );
+    while ( in.readRecord() ) {
+        String id = in.getToken(0);
+        String value = in.getToken(1);
+        ...
+    }
+}
+finally {
+    in.close();
+}
+</pre>
+or use readRecords() with a DelimitedFileRecordVisitor.
+*/
+public class DelimitedFileDataTableReader implements Closeable
+{
+
+/**
+Size of the character buffer used to read from the input.
+*/
+private static final int BUFFER_SIZE = 65536;
+
+/**
+Input being read.
+*/
+private Reader __in;
+
+/**
+Delimiter characters, each of which separates tokens.
+*/
+private String __delimiter;
+
+/**
+Whether quoted strings are allowed (StringUtil.DELIM_ALLOW_STRINGS).
+*/
+private boolean __allowStrings = false;
+
+/**
+Whether quotes are retained in quoted strings (StringUtil.DELIM_ALLOW_STRINGS_RETAIN_QUOTES).
+*/
+private boolean __retainQuotes = false;
+
+/**
+Whether adjoining delimiters are treated as one (StringUtil.DELIM_SKIP_BLANKS).
+*/
+private boolean __skipBlanks = false;
+
+/**
+Buffer of characters read from the input, and the position and limit of unprocessed characters.
+*/
+private char [] __buffer = new char[BUFFER_SIZE];
+private int __bufferPos = 0;
+private int __bufferLimit = 0;
+
+/**
+Indicates that the previous line ended with a carriage return, so a following newline should be skipped.
+*/
+private boolean __skipLF = false;
+
+/**
+Characters of the current line (without the line terminator), reused for each line.
+*/
+private char [] __line = new char[1024];
+private int __lineLength = 0;
+
+/**
+The current line as a string, created only when requested.
+*/
+private String __lineString = null;
+
+/**
+Line number (0+) of the current line, -1 if no line has been read.
+*/
+private int __lineNumber = -1;
+
+/**
+Lines that start with this string are skipped by readRecord(), null to not check for comments.
+*/
+private String __commentLineIndicator = null;
+
+/**
+Whether blank lines are skipped by readRecord().
+*/
+private boolean __skipBlankLines = false;
+
+/**
+Whether lines are trimmed before breaking into tokens.
+*/
+private boolean __trimInput = false;
+
+/**
+Columns (0+) to return tokens for, or null to return all tokens.
+*/
+private int [] __columns = null;
+
+/**
+Position in the token array for each column (0+), or -1 if the column is not needed.
+Only used if a column projection is set.
+*/
+private int [] __columnPos = null;
+
+/**
+Tokens for the current line, reused for each line.
+*/
+private String [] __tokens = new String[16];
+
+/**
+Number of tokens for the current line.
+*/
+private int __numTokens = 0;
+
+/**
+Number of columns that were parsed for the current line.
+*/
+private int __numColumnsParsed = 0;
+
+/**
+Buffer for a token, reused for each token.
+*/
+private StringBuilder __token = new StringBuilder();
+
+/**
+Construct a reader for a file.
+@param filename name of the file to read.
+@param delimiter characters to treat as delimiters, as for StringUtil.breakStringList().
+@param parseFlag flag to control parsing, as for StringUtil.breakStringList().
+@exception IOException if the file cannot be opened.
+*/
+public DelimitedFileDataTableReader ( String filename, String delimiter, int parseFlag )
+throws IOException
+{   this ( new FileReader(filename), delimiter, parseFlag );
+}
+
+/**
+Construct a reader for an input stream.  The reader does not need to be buffered.
+@param in input to read.
+@param delimiter characters to treat as delimiters, as for StringUtil.breakStringList().
+@param parseFlag flag to control parsing, as for StringUtil.breakStringList().
+*/
+public DelimitedFileDataTableReader ( Reader in, String delimiter, int parseFlag )
+{   __in = in;
+    __delimiter = delimiter;
+    if ( (parseFlag & StringUtil.DELIM_ALLOW_STRINGS) != 0 ) {
+        __allowStrings = true;
+        if ( (parseFlag & StringUtil.DELIM_ALLOW_STRINGS_RETAIN_QUOTES) != 0 ) {
+            __retainQuotes = true;
+        }
+    }
+    if ( (parseFlag & StringUtil.DELIM_SKIP_BLANKS) != 0 ) {
+        __skipBlanks = true;
+    }
+}
+
+/**
+Add characters from the input buffer to the current line.
+*/
+private void appendLine ( int start, int end )
+{   int len = end - start;
+    if ( (__lineLength + len) > __line.length ) {
+        __line = Arrays.copyOf ( __line, Math.max(__line.length*2, __lineLength + len) );
+    }
+    System.arraycopy ( __buffer, start, __line, __lineLength, len );
+    __lineLength += len;
+}
+
+/**
+Close the input.
+@exception IOException if there is an error closing the input.
+*/
+public void close ()
+throws IOException
+{   if ( __in != null ) {
+        __in.close();
+        __in = null;
+    }
+}
+
+/**
+Read more characters into the input buffer.
+@return false if the end of the input has been reached.
+*/
+private boolean fillBuffer ()
+throws IOException
+{   int n = 0;
+    while ( n == 0 ) {
+        n = __in.read ( __buffer, 0, __buffer.length );
+    }
+    if ( n < 0 ) {
+        return false;
+    }
+    __bufferPos = 0;
+    __bufferLimit = n;
+    return true;
+}
+
+/**
+Return the current line, without the line terminator.
+@return the current line, or null if no line has been read or the line was skipped with skipToLine().
+*/
+public String getLine ()
+{   if ( __lineNumber < 0 ) {
+        return null;
+    }
+    if ( __lineString == null ) {
+        __lineString = new String ( __line, 0, __lineLength );
+    }
+    return __lineString;
+}
+
+/**
+Return the line number of the current line.
+@return the line number (0+) of the current line, or -1 if no line has been read.
+*/
+public int getLineNumber ()
+{   return __lineNumber;
+}
+
+/**
+Return the number of columns that were parsed for the current line.
+If a column projection is set, parsing stops after the last requested column,
+so the number is at most one more than the largest requested column.
+@return the number of columns that were parsed for the current line.
+*/
+public int getNumberOfColumnsParsed ()
+{   return __numColumnsParsed;
+}
+
+/**
+Return the number of tokens for the current line.
+If a column projection is set, this is the number of requested columns.
+@return the number of tokens for the current line.
+*/
+public int getNumberOfTokens ()
+{   return __numTokens;
+}
+
+/**
+Return a token for the current line.
+@param i token position (0+).  If a column projection is set, this is the position in the requested columns.
+@return the token, or null if a requested column is not in the current line.
+@exception IndexOutOfBoundsException if the token position is not valid.
+*/
+public String getToken ( int i )
+{   if ( (i < 0) || (i >= __numTokens) ) {
+        throw new IndexOutOfBoundsException ( "Token [" + i + "] invalid (line has " + __numTokens + " tokens)." );
+    }
+    return __tokens[i];
+}
+
+/**
+Return the tokens for the current line.  The array is reused for each line and may be longer than the number
+of tokens, so only use the first getNumberOfTokens() values and copy the tokens if they need to be retained.
+@return the token array.
+*/
+public String [] getTokens ()
+{   return __tokens;
+}
+
+/**
+Indicate whether the current line is blank (empty or only whitespace).
+@return true if the current line is blank.
+*/
+public boolean isLineBlank ()
+{   for ( int i = 0; i < __lineLength; i++ ) {
+        if ( __line[i] > ' ' ) {
+            return false;
+        }
+    }
+    return true;
+}
+
+/**
+Indicate whether the current line starts with a string, without creating a string for the line.
+@param prefix string to check.
+@return true if the current line starts with the string.
+*/
+public boolean lineStartsWith ( String prefix )
+{   int len = prefix.length();
+    if ( len > __lineLength ) {
+        return false;
+    }
+    for ( int i = 0; i < len; i++ ) {
+        if ( __line[i] != prefix.charAt(i) ) {
+            return false;
+        }
+    }
+    return true;
+}
+
+/**
+Read the next line into the buffer, without breaking it into tokens.
+Comment and blank lines are not skipped.  Call tokenizeLine() to break the line into tokens.
+@return false if the end of the input has been reached.
+@exception IOException if there is an error reading the input.
+*/
+public boolean readLine ()
+throws IOException
+{   return readLine_Internal ( true );
+}
+
+/**
+Read the next line.  Lines are terminated by a newline, carriage return, or carriage return and newline,
+consistent with BufferedReader.readLine().
+@param saveLine if true save the line characters, if false only advance over the line.
+@return false if the end of the input has been reached.
+*/
+private boolean readLine_Internal ( boolean saveLine )
+throws IOException
+{   __lineLength = 0;
+    __lineString = null;
+    __numTokens = 0;
+    __numColumnsParsed = 0;
+    if ( __in == null ) {
+        return false;
+    }
+    boolean haveChars = false;
+    while ( true ) {
+        if ( __bufferPos >= __bufferLimit ) {
+            if ( !fillBuffer() ) {
+                // End of input - the last line may not have a line terminator
+                if ( haveChars ) {
+                    ++__lineNumber;
+                    return true;
+                }
+                return false;
+            }
+        }
+        if ( __skipLF ) {
+            __skipLF = false;
+            if ( __buffer[__bufferPos] == '\n' ) {
+                ++__bufferPos;
+                continue;
+            }
+        }
+        int start = __bufferPos;
+        int i = start;
+        char c = 0;
+        for ( ; i < __bufferLimit; i++ ) {
+            c = __buffer[i];
+            if ( (c == '\n') || (c == '\r') ) {
+                break;
+            }
+        }
+        if ( saveLine ) {
+            appendLine ( start, i );
+        }
+        if ( i < __bufferLimit ) {
+            // Found the end of the line
+            __bufferPos = i + 1;
+            if ( c == '\r' ) {
+                __skipLF = true;
+            }
+            ++__lineNumber;
+            return true;
+        }
+        // Need more characters to complete the line
+        if ( i > start ) {
+            haveChars = true;
+        }
+        __bufferPos = i;
+    }
+}
+
+/**
+Read the next record and break it into tokens.  Comment lines and, if requested, blank lines are skipped.
+@return false if the end of the input has been reached.
+@exception IOException if there is an error reading the input.
+*/
+public boolean readRecord ()
+throws IOException
+{   while ( readLine_Internal(true) ) {
+        if ( (__commentLineIndicator != null) && lineStartsWith(__commentLineIndicator) ) {
+            continue;
+        }
+        if ( __skipBlankLines && isLineBlank() ) {
+            continue;
+        }
+        tokenizeLine();
+        return true;
+    }
+    return false;
+}
+
+/**
+Read the remaining records, passing each to a visitor.
+@param visitor the visitor to process each record.
+@return the number of records that were passed to the visitor.
+@exception Exception if there is an error reading the input or an error is thrown by the visitor.
+*/
+public int readRecords ( DelimitedFileRecordVisitor visitor )
+throws Exception
+{   int count = 0;
+    while ( readRecord() ) {
+        ++count;
+        if ( !visitor.visitRecord(this) ) {
+            break;
+        }
+    }
+    return count;
+}
+
+/**
+Set the columns to return tokens for.  Other columns are scanned but are not converted to strings, and the
+remainder of each line after the last requested column is not parsed.
+@param columns columns (0+) to return, in the order that the tokens should be returned, or null to return all columns.
+Each column can only be requested once.
+@exception IllegalArgumentException if a column is negative or is requested more than once.
+*/
+public void setColumns ( int [] columns )
+{   if ( columns == null ) {
+        __columns = null;
+        __columnPos = null;
+        return;
+    }
+    int columnMax = -1;
+    for ( int i = 0; i < columns.length; i++ ) {
+        if ( columns[i] < 0 ) {
+            throw new IllegalArgumentException ( "Column [" + columns[i] + "] invalid." );
+        }
+        columnMax = Math.max(columnMax, columns[i]);
+    }
+    __columns = Arrays.copyOf ( columns, columns.length );
+    __columnPos = new int[columnMax + 1];
+    Arrays.fill ( __columnPos, -1 );
+    for ( int i = 0; i < columns.length; i++ ) {
+        if ( __columnPos[columns[i]] >= 0 ) {
+            throw new IllegalArgumentException ( "Column [" + columns[i] + "] is requested more than once." );
+        }
+        __columnPos[columns[i]] = i;
+    }
+    if ( __tokens.length < columns.length ) {
+        __tokens = new String[columns.length];
+    }
+}
+
+/**
+Set the string that indicates comment lines, which are skipped by readRecord().
+@param commentLineIndicator string at the start of comment lines, or null to not skip comments.
+*/
+public void setCommentLineIndicator ( String commentLineIndicator )
+{   __commentLineIndicator = commentLineIndicator;
+}
+
+/**
+Set whether blank lines are skipped by readRecord().
+@param skipBlankLines if true, skip lines that are empty or contain only whitespace.
+*/
+public void setSkipBlankLines ( boolean skipBlankLines )
+{   __skipBlankLines = skipBlankLines;
+}
+
+/**
+Set whether lines are trimmed before breaking into tokens.
+@param trimInput if true, trim whitespace from the ends of each line before breaking into tokens.
+*/
+public void setTrimInput ( boolean trimInput )
+{   __trimInput = trimInput;
+}
+
+/**
+Skip lines so that the next line read has the requested line number.
+Skipped lines are not saved or parsed and are not checked for comments.
+@param lineNumber line number (0+) of the next line to read.
+@return false if the end of the input was reached before the requested line.
+@exception IOException if there is an error reading the input.
+*/
+public boolean skipToLine ( int lineNumber )
+throws IOException
+{   while ( __lineNumber < (lineNumber - 1) ) {
+        if ( !readLine_Internal(false) ) {
+            return false;
+        }
+    }
+    return true;
+}
+
+/**
+Break the current line into tokens, using the same rules as StringUtil.breakStringList().
+The tokens are available from getToken() and getTokens().
+*/
+public void tokenizeLine ()
+{   char [] string = __line;
+    int istring = 0;
+    int length_string = __lineLength;
+    if ( __trimInput ) {
+        // Same as String.trim()
+        while ( (istring < length_string) && (string[istring] <= ' ') ) {
+            ++istring;
+        }
+        while ( (length_string > istring) && (string[length_string - 1] <= ' ') ) {
+            --length_string;
+        }
+    }
+    int [] columnPos = __columnPos;
+    if ( columnPos == null ) {
+        __numTokens = 0;
+    }
+    else {
+        __numTokens = __columns.length;
+        Arrays.fill ( __tokens, 0, __numTokens, null );
+    }
+    String delim = __delimiter;
+    StringBuilder tempstr = __token;
+    boolean instring = false;
+    boolean keep = true; // Whether the characters of the current column are needed
+    char cstring;
+    char quote = '\"';
+    int icol = 0;
+    boolean at_start = true; // If only delimiters are at the front this will be true.
+    for ( ; istring < length_string; ) {
+        if ( columnPos != null ) {
+            if ( icol >= columnPos.length ) {
+                // No more columns are needed so don't parse the rest of the line
+                break;
+            }
+            keep = columnPos[icol] >= 0;
+        }
+        cstring = string[istring];
+        instring = false;
+        tempstr.setLength ( 0 );
+        while ( istring < length_string ) {
+            cstring = string[istring];
+            // Check for escaped special characters...
+            if ( (cstring == '\\') && (istring < (length_string - 1)) && (string[istring + 1] == '\"') ) {
+                // Add the backslash and the next character
+                ++istring;
+                if ( keep ) {
+                    tempstr.append ( cstring );
+                    tempstr.append ( string[istring] );
+                }
+                cstring = string[istring];
+                ++istring;
+                continue;
+            }
+            if ( __allowStrings ) {
+                if ( !instring && ((cstring == '"') || (cstring == '\'')) ) {
+                    // The start of a quoted string...
+                    instring = true;
+                    at_start = false;
+                    quote = cstring;
+                    if ( __retainQuotes && keep ) {
+                        tempstr.append ( cstring );
+                    }
+                    ++istring;
+                    continue;
+                }
+                else if ( instring && (cstring == quote) ) {
+                    // Check for a pair of quotes, which is a literal quote in the string
+                    if ( (istring < (length_string - 1)) && (string[istring + 1] == quote) ) {
+                        if ( keep ) {
+                            tempstr.append ( cstring );
+                            if ( __retainQuotes ) {
+                                tempstr.append ( cstring );
+                            }
+                        }
+                        istring += 2;
+                        continue;
+                    }
+                    // End of the quoted string
+                    if ( __retainQuotes && keep ) {
+                        tempstr.append ( cstring );
+                    }
+                    instring = false;
+                    ++istring;
+                    if ( istring < length_string ) {
+                        cstring = string[istring];
+                        // Another quote is processed again as the start of another string
+                        if ( (cstring == '\'') || (cstring == '"') ) {
+                            if ( __retainQuotes && keep ) {
+                                tempstr.append ( cstring );
+                            }
+                            continue;
+                        }
+                    }
+                    else {
+                        // The quote was the last character
+                        break;
+                    }
+                }
+            }
+            // Now check for a delimiter to break the string...
+            if ( delim.indexOf(cstring) != -1 ) {
+                if ( !instring ) {
+                    break;
+                }
+            }
+            else {
+                at_start = false;
+            }
+            if ( keep ) {
+                tempstr.append ( cstring );
+            }
+            ++istring;
+        }
+        if ( instring ) {
+            // Quoted string is not closed - no further action is required
+        }
+        else if ( __skipBlanks ) {
+            // Skip any additional delimiters that may be present in a sequence...
+            while ( (istring < length_string) && (delim.indexOf(cstring) != -1) ) {
+                ++istring;
+                if ( istring < length_string ) {
+                    cstring = string[istring];
+                }
+            }
+            if ( at_start ) {
+                // Skip the initial delimiters without adding a token
+                at_start = false;
+                continue;
+            }
+        }
+        else {
+            // Advance over the delimiter
+            ++istring;
+        }
+        // Now save the token...
+        if ( columnPos == null ) {
+            if ( __numTokens == __tokens.length ) {
+                __tokens = Arrays.copyOf ( __tokens, __tokens.length*2 );
+            }
+            __tokens[__numTokens++] = tempstr.toString();
+        }
+        else if ( keep ) {
+            __tokens[columnPos[icol]] = tempstr.toString();
+        }
+        ++icol;
+    }
+    __numColumnsParsed = icol;
+}
+
+}
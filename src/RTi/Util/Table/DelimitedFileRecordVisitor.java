@@ -0,0 +1,39 @@
+// DelimitedFileRecordVisitor - interface to process records read by DelimitedFileDataTableReader
+
+/* NoticeStart
+
+CDSS Common Java Library
+CDSS Common Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Common Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Common Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Common Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package RTi.Util.Table;
+
+/**
+ * The DelimitedFileRecordVisitor interface is implemented to process records one at a time as they are read
+ * by DelimitedFileDataTableReader.readRecords(), without reading the entire file into memory.
+ */
+public interface DelimitedFileRecordVisitor {
+
+	/**
+	 * Process a record.  The reader's token array is reused for the next record,
+	 * so tokens must be copied if they need to be retained.
+	 * @param reader the reader, which provides the tokens and line number for the record.
+	 * @return true to continue reading records, false to stop.
+	 */
+	public boolean visitRecord ( DelimitedFileDataTableReader reader ) throws Exception;
+}
@@ -0,0 +1,39 @@
+// ResultSetChunkVisitor - interface to process chunks of rows from ResultSetToDataTableFactory
+
+/* NoticeStart
+
+CDSS Common Java Library
+CDSS Common Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Common Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Common Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Common Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+package RTi.Util.Table;
+
+/**
+ * The ResultSetChunkVisitor interface is implemented to process rows from a ResultSet in chunks as they are read
+ * by ResultSetToDataTableFactory.createDataTableChunks(), without reading the entire ResultSet into memory.
+ */
+public interface ResultSetChunkVisitor {
+
+	/**
+	 * Process a chunk of rows.  The table's records are deleted after this method returns,
+	 * so records must be copied if they need to be retained.
+	 * @param table the table containing the rows in the chunk.
+	 * @param firstRow the position (0+) of the first row of the chunk in the ResultSet.
+	 * @return true to continue reading rows, false to stop.
+	 */
+	public boolean visitChunk ( DataTable table, int firstRow ) throws Exception;
+}
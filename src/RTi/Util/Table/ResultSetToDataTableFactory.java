@@ -37,16 +37,114 @@ import RTi.Util.Time.DateTime;
 
 /**
 This class will process an SQL ResultSet into a DataTable.
+Use createDataTable() to process the entire ResultSet into a table, or createDataTableChunks() to process
+large results in chunks of rows, so that the entire result does not need to be held in memory.
+The number of rows fetched from the database at a time and the maximum number of rows to process can be set,
+and a ColumnarDataTable can be created so that numeric values are stored without creating objects.
 */
 public class ResultSetToDataTableFactory
 {
-    
+
+/**
+Whether to create a ColumnarDataTable rather than DataTable.
+*/
+private boolean columnar = false;
+
+/**
+Number of rows to fetch from the database at a time, or 0 to use the JDBC driver default.
+*/
+private int fetchSize = 0;
+
+/**
+Maximum number of rows to process, or -1 to process all rows.
+*/
+private int maxRows = -1;
+
 /**
 Constructor.
 */
 public ResultSetToDataTableFactory ()
 {
-    
+
+}
+
+/**
+Add a record to the table from the current ResultSet row.
+If a column value cannot be processed, a warning is printed and the value is set to null.
+@param dbengineType a value from DMI.DBENGINE_*, or -1 to ignore
+@param rs the ResultSet, positioned at the row to process
+@param table the table to add the record to, with fields defined by createTable()
+@param columnNames column names
+@param columnTypes column types, which are updated for array columns when the array type is determined
+@return true if the record was added, false if not
+*/
+private boolean addRecord ( int dbengineType, ResultSet rs, DataTable table, String [] columnNames, int [] columnTypes )
+{   String routine = getClass().getSimpleName() + ".addRecord";
+    int columnCount = columnTypes.length;
+    double d;
+    int i;
+    long l;
+    try {
+        if ( table instanceof ColumnarDataTable ) {
+            // Set values directly in the column storage so that numbers are not converted to objects
+            ColumnarDataTable columnarTable = (ColumnarDataTable)table;
+            int slot = columnarTable.newSlot();
+            for ( int iCol = 1; iCol <= columnCount; iCol++ ) {
+                int i0 = iCol - 1;
+                try {
+                    if ( columnTypes[i0] == TableField.DATA_TYPE_DOUBLE ) {
+                        d = rs.getDouble(iCol);
+                        if ( !rs.wasNull() ) {
+                            columnarTable.setSlotDouble ( slot, i0, d );
+                        }
+                    }
+                    else if ( columnTypes[i0] == TableField.DATA_TYPE_INT ) {
+                        i = rs.getInt(iCol);
+                        if ( !rs.wasNull() ) {
+                            columnarTable.setSlotInt ( slot, i0, i );
+                        }
+                    }
+                    else if ( columnTypes[i0] == TableField.DATA_TYPE_LONG ) {
+                        l = rs.getLong(iCol);
+                        if ( !rs.wasNull() ) {
+                            columnarTable.setSlotLong ( slot, i0, l );
+                        }
+                    }
+                    else {
+                        columnarTable.setSlotValue ( slot, i0, getColumnValue(dbengineType, rs, table, iCol, columnNames, columnTypes) );
+                    }
+                }
+                catch ( Exception e ) {
+                    // Leave as null but print a message to help figure out issue
+                    Message.printWarning(3,routine,"Error processing column[" + i0 + "] \"" + columnNames[i0] + "\"");
+                    Message.printWarning(3,routine,e);
+                }
+            }
+            columnarTable.addSlotRecord ( slot );
+        }
+        else {
+            TableRecord rec = new TableRecord(columnCount);
+            for ( int iCol = 1; iCol <= columnCount; iCol++ ) {
+                Object value = null;
+                try {
+                    value = getColumnValue(dbengineType, rs, table, iCol, columnNames, columnTypes);
+                }
+                catch ( Exception e ) {
+                    // Leave as null but print a message to help figure out issue
+                    Message.printWarning(3,routine,"Error processing column[" + (iCol - 1) + "] \"" + columnNames[iCol - 1] + "\"");
+                    Message.printWarning(3,routine,e);
+                }
+                rec.addFieldValue(value);
+            }
+            table.addRecord(rec);
+        }
+        return true;
+    }
+    catch ( Exception e ) {
+        // Should not happen
+        Message.printWarning(3,routine,e);
+        return false;
+    }
 }
 
 /**
@@ -55,18 +153,111 @@ Create a DataTable from a ResultSet.
 of column data type mapping.  Specify as -1 to ignore.
 @param rs the ResultSet from an SQL query
 @param tableID the identifier to use for the table
+@return the table, which is a ColumnarDataTable if setColumnar(true) was called
 */
 public DataTable createDataTable ( int dbengineType, ResultSet rs, String tableID )
 throws SQLException
 {   String routine = getClass().getSimpleName() + ".createDataTable";
-    DataTable table = new DataTable();
-    table.setTableID ( tableID );
-    // Define the table columns from the ResultSet metadata
     ResultSetMetaData meta = rs.getMetaData();
     int columnCount = meta.getColumnCount();
     String [] columnNames = new String[columnCount];
-    int columnType, precision, scale;
     int [] columnTypes = new int[columnCount];
+    DataTable table = createTable ( dbengineType, meta, tableID, columnNames, columnTypes );
+    setFetchSize ( rs );
+    // Transfer each record in the ResultSet to the table
+    int recordCount = 0; // Expected record count
+    int recordCountAdded = 0; // Records actually added
+    while ( ((this.maxRows < 0) || (recordCount < this.maxRows)) && rs.next() ) {
+    	++recordCount;
+        if ( addRecord(dbengineType, rs, table, columnNames, columnTypes) ) {
+            ++recordCountAdded;
+        }
+    }
+    Message.printStatus(2, routine, "Processed " + recordCount + " records from resultset into table rows.");
+    // If some records were not processed, through an exception so that it does not seem like all is OK
+    if ( recordCountAdded != recordCount ) {
+    	throw new SQLException ( "Number of records in resultset=" + recordCount + " but " + recordCountAdded + " were processed.  Check log." );
+    }
+    return table;
+}
+
+/**
+Process a ResultSet into tables of up to chunkSize rows, passing each chunk to a visitor as soon as it is filled,
+so that large results can be processed without holding all rows in memory and the first rows can be processed
+before the entire result has been read.
+The same table is used for each chunk, with the records deleted after each call to the visitor,
+so records must be copied if they need to be retained.
+@param dbengineType a value from DMI.DBENGINE_*, or -1 to ignore
+@param rs the ResultSet from an SQL query, which is not closed
+@param tableID the identifier to use for the table
+@param chunkSize maximum number of rows in each chunk (1+)
+@param visitor visitor that processes each chunk and indicates whether to continue
+@return the number of rows processed
+@exception SQLException if there is an error reading the ResultSet or the visitor throws an exception
+*/
+public int createDataTableChunks ( int dbengineType, ResultSet rs, String tableID, int chunkSize, ResultSetChunkVisitor visitor )
+throws SQLException
+{   String routine = getClass().getSimpleName() + ".createDataTableChunks";
+    if ( chunkSize < 1 ) {
+        throw new IllegalArgumentException ( "Chunk size (" + chunkSize + ") must be 1+." );
+    }
+    ResultSetMetaData meta = rs.getMetaData();
+    int columnCount = meta.getColumnCount();
+    String [] columnNames = new String[columnCount];
+    int [] columnTypes = new int[columnCount];
+    DataTable table = createTable ( dbengineType, meta, tableID, columnNames, columnTypes );
+    setFetchSize ( rs );
+    int recordCount = 0;
+    int firstRow = 0; // First row (0+) in the current chunk
+    boolean doContinue = true;
+    try {
+        while ( ((this.maxRows < 0) || (recordCount < this.maxRows)) && rs.next() ) {
+            ++recordCount;
+            if ( !addRecord(dbengineType, rs, table, columnNames, columnTypes) ) {
+                throw new SQLException ( "Error processing record " + recordCount + " from resultset.  Check log." );
+            }
+            if ( table.getNumberOfRecords() == chunkSize ) {
+                doContinue = visitor.visitChunk ( table, firstRow );
+                firstRow = recordCount;
+                table.deleteAllRecords();
+                if ( !doContinue ) {
+                    break;
+                }
+            }
+        }
+        if ( doContinue && (table.getNumberOfRecords() > 0) ) {
+            visitor.visitChunk ( table, firstRow );
+            table.deleteAllRecords();
+        }
+    }
+    catch ( SQLException e ) {
+        throw e;
+    }
+    catch ( Exception e ) {
+        throw new SQLException ( "Error processing resultset chunk starting at row " + firstRow + " (" + e + ").", e );
+    }
+    Message.printStatus(2, routine, "Processed " + recordCount + " records from resultset into table rows" +
+        (doContinue ? "." : " (stopped early).") );
+    return recordCount;
+}
+
+/**
+Create the table and define the table columns from the ResultSet metadata.
+@param dbengineType a value from DMI.DBENGINE_*, or -1 to ignore
+@param meta the ResultSet metadata
+@param tableID the identifier to use for the table
+@param columnNames array to fill with the column names
+@param columnTypes array to fill with the column types
+@return the table with fields defined and no records
+*/
+private DataTable createTable ( int dbengineType, ResultSetMetaData meta, String tableID, String [] columnNames, int [] columnTypes )
+throws SQLException
+{   String routine = getClass().getSimpleName() + ".createTable";
+    DataTable table = this.columnar ? new ColumnarDataTable() : new DataTable();
+    table.setTableID ( tableID );
+    // Define the table columns from the ResultSet metadata
+    int columnCount = meta.getColumnCount();
+    int columnType, precision, scale;
     for ( int i = 1; i <= columnCount; i++ ) {
         columnNames[i - 1] = meta.getColumnName(i);
         columnType = sqlToDMIColumnType(dbengineType, meta.getColumnType(i));
@@ -110,7 +301,22 @@ throws SQLException
         }
         table.addField( new TableField(columnType,columnNames[i - 1],precision,scale), null);
     }
-    // Transfer each record in the ResultSet to the table
+    return table;
+}
+
+/**
+Return the value for a column in the current ResultSet row, as the object stored in the table.
+@param dbengineType a value from DMI.DBENGINE_*, or -1 to ignore
+@param rs the ResultSet, positioned at the row to process
+@param table the table, used to update the column type for array columns
+@param iCol column number (1+)
+@param columnNames column names
+@param columnTypes column types, which are updated for array columns when the array type is determined
+@return the column value, or null
+*/
+private Object getColumnValue ( int dbengineType, ResultSet rs, DataTable table, int iCol, String [] columnNames, int [] columnTypes )
+throws Exception
+{   String routine = getClass().getSimpleName() + ".getColumnValue";
     String s;
     double d;
     float f;
@@ -120,220 +326,223 @@ throws SQLException
     Date date;
     Array a;
     Object arrayObject;
-    int [] baseType = new int[columnCount]; // Used with Array.getBaseType(), the original SQL type
-    int [] baseType2 = new int [columnCount]; // The internal type, after conversion from SQL type
-    TableRecord rec = null;
-    boolean isNull;
-    int recordCount = 0; // Expected record count
-    int recordCountAdded = 0; // Records actually added
-    while (rs.next()) {
-    	++recordCount;
-        rec = new TableRecord(columnCount);
-        for ( int iCol = 1; iCol <= columnCount; iCol++ ) {
-            int i0 = iCol - 1;
-            try {
-            	// If null is encountered, it is added at the end.
-                isNull = false;
-                if ( columnTypes[i0] == TableField.DATA_TYPE_DATE ) {
-                    date = rs.getTimestamp(iCol);
-                    if (!rs.wasNull()) {
-                    	DateTime dt = new DateTime(date);
-                        rec.addFieldValue(dt);
-                    }
-                    else {
-                        isNull = true;
-                    }
-                }
-                else if ( columnTypes[i0] == TableField.DATA_TYPE_DOUBLE ) {
-                    d = rs.getDouble(iCol);
-                    if (!rs.wasNull()) {
-                        rec.addFieldValue(new Double(d));
-                    }
-                    else {
-                        isNull = true;
-                    }
-                }
-                else if ( columnTypes[i0] == TableField.DATA_TYPE_FLOAT ) {
-                    f = rs.getFloat(iCol);
-                    if (!rs.wasNull()) {
-                        rec.addFieldValue(new Float(f));
-                    }
-                    else {
-                        isNull = true;
-                    }
-                }
-                else if ( columnTypes[i0] == TableField.DATA_TYPE_INT ) {
-                    i = rs.getInt(iCol);
-                    if (!rs.wasNull()) {
-                        rec.addFieldValue(new Integer(i));
-                    }
-                    else {
-                        isNull = true;
-                    }
-                }
-                else if ( columnTypes[i0] == TableField.DATA_TYPE_LONG ) {
-                    l = rs.getLong(iCol);
-                    if (!rs.wasNull()) {
-                        rec.addFieldValue(new Long(l));
-                    }
-                    else {
-                        isNull = true;
-                    }
-                }
-                else if ( columnTypes[i0] == TableField.DATA_TYPE_BOOLEAN ) {
-                    b = rs.getBoolean(iCol);
-                    if (!rs.wasNull()) {
-                        rec.addFieldValue(new Boolean(b));
-                    }
-                    else {
-                        isNull = true;
-                    }
-                }
-                else if ( columnTypes[i0] == TableField.DATA_TYPE_STRING ) {
-                    s = rs.getString(iCol);
-                    if (!rs.wasNull()) {
-                        rec.addFieldValue(s.trim());
-                    }
-                    else {
-                        isNull = true;
-                    }
-                }
-                else if ( table.isColumnArray(columnTypes[i0]) ) {
-                	// Column contains an array of other data, generally primitives
-                	// Set the array as the object without additional processing unless some translation is needed
-                	// Although downstream code can handle int[] and Integer[], normalize to primitives here if possible
-                	// Check the array content type for error-handling (letting unknown types through tends to cause problems later)
-                    a = rs.getArray(iCol);
-                    if (!rs.wasNull()) {
-                    	baseType[i0] = a.getBaseType();
-                    	if ( columnTypes[i0] == TableField.DATA_TYPE_ARRAY ) {
-                    		// The column type does not yet have the base type so add...
-                    		baseType2[i0] = sqlToDMIColumnType(dbengineType,baseType[i0]);
-                    		if ( Message.isDebugOn ) {
-                    			Message.printDebug(1, routine, "Column \"" + columnNames[i0] + "\" is array. SQLType=" + baseType[i0] + " columnType=" + baseType2[i0]);
-                    		}
-                    		columnTypes[i0] = TableField.DATA_TYPE_ARRAY + baseType2[i0];
-                    		// Have to set the column type back in the table because it was not set before
-                    		table.setTableField(i0, columnTypes[i0], columnNames[i0]);
-                    	}
-                    	// Now need to interpret the base type...
-                        if ( baseType[i0] == Types.DATE ) {
-                        	// Know that the array will contain Date
-                        	Date [] da = (Date [])(a.getArray());
-                        	// Convert to DateTime objects
-                        	DateTime [] dta = new DateTime[da.length];
-                        	for ( int ic = 0; ic < da.length; ic++ ) {
-                        		dta[ic] = new DateTime(da[ic]);
-                        	}
-                            rec.addFieldValue(dta);
-                        }
-                        else if ( baseType[i0] == Types.DOUBLE ) {
-                        	// Translate to double[] for handling elsewhere
-                        	arrayObject = a.getArray();
-                        	if ( arrayObject instanceof double[] ) {
-                        		double [] da = (double [])arrayObject;
-                                rec.addFieldValue(da);
-                        	}
-                        	else if ( arrayObject instanceof Double[] ) {
-                        		Double [] Da = (Double [])arrayObject;
-                        		double [] da = new double[Da.length];
-                        		for ( int i2 = 0; i2 < Da.length; i2++ ) {
-                        			if ( Da[i2] == null ) {
-                        				da[i2] = DMIUtil.MISSING_DOUBLE;
-                        			}
-                        			else {
-                        				da[i2] = Da[i2];
-                        			}
-                        		}
-                                rec.addFieldValue(da);
-                        	}
-                        	else {
-                        		isNull = true;
-                        	}
-                        }
-                        else if ( baseType[i0] == Types.FLOAT ) {
-                            rec.addFieldValue(a.getArray());
-                        }
-                        else if ( baseType[i0] == Types.INTEGER ) {
-                        	// Translate to int [] for handling elsewhere
-                        	arrayObject = a.getArray();
-                        	if ( arrayObject instanceof int[] ) {
-                        		int [] ia = (int [])arrayObject;
-                                rec.addFieldValue(ia);
-                        	}
-                        	else if ( arrayObject instanceof Integer[] ) {
-                        		Integer [] Ia = (Integer [])arrayObject;
-                        		int [] ia = new int[Ia.length];
-                        		for ( int i2 = 0; i2 < Ia.length; i2++ ) {
-                        			if ( Ia[i2] == null ) {
-                        				ia[i2] = DMIUtil.MISSING_INT;
-                        			}
-                        			else {
-                        				ia[i2] = Ia[i2];
-                        			}
-                        		}
-                                rec.addFieldValue(ia);
-                        	}
-                        	else {
-                        		isNull = true;
-                        	}
-                        }
-                        else if ( baseType[i0] == Types.BIGINT ) {
-                        	// This handles Long/long
-                            rec.addFieldValue(a.getArray());
-                        }
-                        else if ( (baseType[i0] == Types.CHAR) || (baseType[i0] == Types.VARCHAR) || (baseType[i0] == Types.NVARCHAR) ) {
-                        	String [] sa = (String [])(a.getArray());
-                            rec.addFieldValue(sa);
-                        }
-                        else {
-                        	// Don't know the type
-                        	// TODO SAM 2015-09-06 Need to confirm handling of the above baseType
-                        	// - evaluate whether to throw an exception
-                        	Message.printWarning(3,routine,"Don't know how to handle Java SQL array type " + baseType + " setting value to null.");
-                        	isNull = true;
-                        }
-                    }
-                    else {
-                        isNull = true;
-                    }
-                }
-                else {
-                    // Default is string
-                    s = rs.getString(iCol);
-                    if (!rs.wasNull()) {
-                        rec.addFieldValue(s.trim());
-                    }
-                    else {
-                        isNull = true;
-                    }
-                }
-                if ( isNull ) {
-                	// Field was not yet added but should be added as null
-                    rec.addFieldValue(null);
-                }
+    int i0 = iCol - 1;
+    if ( columnTypes[i0] == TableField.DATA_TYPE_DATE ) {
+        date = rs.getTimestamp(iCol);
+        if (!rs.wasNull()) {
+            return new DateTime(date);
+        }
+    }
+    else if ( columnTypes[i0] == TableField.DATA_TYPE_DOUBLE ) {
+        d = rs.getDouble(iCol);
+        if (!rs.wasNull()) {
+            return Double.valueOf(d);
+        }
+    }
+    else if ( columnTypes[i0] == TableField.DATA_TYPE_FLOAT ) {
+        f = rs.getFloat(iCol);
+        if (!rs.wasNull()) {
+            return Float.valueOf(f);
+        }
+    }
+    else if ( columnTypes[i0] == TableField.DATA_TYPE_INT ) {
+        i = rs.getInt(iCol);
+        if (!rs.wasNull()) {
+            return Integer.valueOf(i);
+        }
+    }
+    else if ( columnTypes[i0] == TableField.DATA_TYPE_LONG ) {
+        l = rs.getLong(iCol);
+        if (!rs.wasNull()) {
+            return Long.valueOf(l);
+        }
+    }
+    else if ( columnTypes[i0] == TableField.DATA_TYPE_BOOLEAN ) {
+        b = rs.getBoolean(iCol);
+        if (!rs.wasNull()) {
+            return Boolean.valueOf(b);
+        }
+    }
+    else if ( columnTypes[i0] == TableField.DATA_TYPE_STRING ) {
+        s = rs.getString(iCol);
+        if (!rs.wasNull()) {
+            return s.trim();
+        }
+    }
+    else if ( table.isColumnArray(columnTypes[i0]) ) {
+    	// Column contains an array of other data, generally primitives
+    	// Set the array as the object without additional processing unless some translation is needed
+    	// Although downstream code can handle int[] and Integer[], normalize to primitives here if possible
+    	// Check the array content type for error-handling (letting unknown types through tends to cause problems later)
+        a = rs.getArray(iCol);
+        if (!rs.wasNull()) {
+        	int baseType = a.getBaseType(); // Used with Array.getBaseType(), the original SQL type
+        	if ( columnTypes[i0] == TableField.DATA_TYPE_ARRAY ) {
+        		// The column type does not yet have the base type so add...
+        		int baseType2 = sqlToDMIColumnType(dbengineType,baseType); // The internal type, after conversion from SQL type
+        		if ( Message.isDebugOn ) {
+        			Message.printDebug(1, routine, "Column \"" + columnNames[i0] + "\" is array. SQLType=" + baseType + " columnType=" + baseType2);
+        		}
+        		columnTypes[i0] = TableField.DATA_TYPE_ARRAY + baseType2;
+        		// Have to set the column type back in the table because it was not set before
+        		table.setTableField(i0, columnTypes[i0], columnNames[i0]);
+        	}
+        	// Now need to interpret the base type...
+            if ( baseType == Types.DATE ) {
+            	// Know that the array will contain Date
+            	Date [] da = (Date [])(a.getArray());
+            	// Convert to DateTime objects
+            	DateTime [] dta = new DateTime[da.length];
+            	for ( int ic = 0; ic < da.length; ic++ ) {
+            		dta[ic] = new DateTime(da[ic]);
+            	}
+                return dta;
+            }
+            else if ( baseType == Types.DOUBLE ) {
+            	// Translate to double[] for handling elsewhere
+            	arrayObject = a.getArray();
+            	if ( arrayObject instanceof double[] ) {
+                    return arrayObject;
+            	}
+            	else if ( arrayObject instanceof Double[] ) {
+            		Double [] Da = (Double [])arrayObject;
+            		double [] da = new double[Da.length];
+            		for ( int i2 = 0; i2 < Da.length; i2++ ) {
+            			if ( Da[i2] == null ) {
+            				da[i2] = DMIUtil.MISSING_DOUBLE;
+            			}
+            			else {
+            				da[i2] = Da[i2];
+            			}
+            		}
+                    return da;
+            	}
             }
-            catch ( Exception e ) {
-                // Leave as null but print a message to help figure out issue
-            	Message.printWarning(3,routine,"Error processing column[" + (iCol - 1) + "] \"" + columnNames[iCol - 1] + "\"");
-                Message.printWarning(3,routine,e);
+            else if ( baseType == Types.FLOAT ) {
+                return a.getArray();
+            }
+            else if ( baseType == Types.INTEGER ) {
+            	// Translate to int [] for handling elsewhere
+            	arrayObject = a.getArray();
+            	if ( arrayObject instanceof int[] ) {
+                    return arrayObject;
+            	}
+            	else if ( arrayObject instanceof Integer[] ) {
+            		Integer [] Ia = (Integer [])arrayObject;
+            		int [] ia = new int[Ia.length];
+            		for ( int i2 = 0; i2 < Ia.length; i2++ ) {
+            			if ( Ia[i2] == null ) {
+            				ia[i2] = DMIUtil.MISSING_INT;
+            			}
+            			else {
+            				ia[i2] = Ia[i2];
+            			}
+            		}
+                    return ia;
+            	}
+            }
+            else if ( baseType == Types.BIGINT ) {
+            	// This handles Long/long
+                return a.getArray();
+            }
+            else if ( (baseType == Types.CHAR) || (baseType == Types.VARCHAR) || (baseType == Types.NVARCHAR) ) {
+                return (String [])(a.getArray());
+            }
+            else {
+            	// Don't know the type
+            	// TODO SAM 2015-09-06 Need to confirm handling of the above baseType
+            	// - evaluate whether to throw an exception
+            	Message.printWarning(3,routine,"Don't know how to handle Java SQL array type " + baseType + " setting value to null.");
             }
         }
+    }
+    else {
+        // Default is string
+        s = rs.getString(iCol);
+        if (!rs.wasNull()) {
+            return s.trim();
+        }
+    }
+    // Value is null
+    return null;
+}
+
+/**
+Return the number of rows to fetch from the database at a time.
+@return the fetch size, or 0 if the JDBC driver default is used
+*/
+public int getFetchSize ()
+{
+    return this.fetchSize;
+}
+
+/**
+Return the maximum number of rows to process.
+@return the maximum number of rows, or -1 if all rows are processed
+*/
+public int getMaxRows ()
+{
+    return this.maxRows;
+}
+
+/**
+Indicate whether a ColumnarDataTable is created rather than DataTable.
+@return true if a ColumnarDataTable is created
+*/
+public boolean isColumnar ()
+{
+    return this.columnar;
+}
+
+/**
+Set whether to create a ColumnarDataTable rather than DataTable.  Double, integer, and long values are then
+copied from the ResultSet directly into primitive column storage without creating an object for each value,
+which uses less memory for large results.
+@param columnar true to create a ColumnarDataTable
+*/
+public void setColumnar ( boolean columnar )
+{
+    this.columnar = columnar;
+}
+
+/**
+Set the number of rows to fetch from the database at a time.  This is a hint to the JDBC driver, which will
+otherwise use its default (some drivers read all rows into memory by default).
+Some drivers (e.g., PostgreSQL) only use the fetch size if it is set on the statement before the query is executed,
+in which case also pass the fetch size to DMI.dmiSelect().
+@param fetchSize the fetch size, or 0 to use the JDBC driver default
+*/
+public void setFetchSize ( int fetchSize )
+{
+    this.fetchSize = fetchSize;
+}
+
+/**
+Set the fetch size on the ResultSet if a fetch size has been specified.
+@param rs the ResultSet from an SQL query
+*/
+private void setFetchSize ( ResultSet rs )
+{
+    if ( this.fetchSize > 0 ) {
         try {
-            table.addRecord(rec);
+            rs.setFetchSize ( this.fetchSize );
         }
-        catch ( Exception e ) {
-            // Should not happen
-            Message.printWarning(3,routine,e);
+        catch ( SQLException e ) {
+            // Not supported by the driver so use its default
+            Message.printWarning ( 3, getClass().getSimpleName() + ".setFetchSize",
+                "Unable to set fetch size " + this.fetchSize + " (" + e + ")." );
         }
-        ++recordCountAdded;
-    }
-    Message.printStatus(2, routine, "Processed " + recordCount + " records from resultset into table rows.");
-    // If some records were not processed, through an exception so that it does not seem like all is OK
-    if ( recordCountAdded != recordCount ) {
-    	throw new SQLException ( "Number of records in resultset=" + recordCount + " but " + recordCountAdded + " were processed.  Check log." );
     }
-    return table;
+}
+
+/**
+Set the maximum number of rows to process.  Reading stops after the maximum number of rows,
+without reading the remaining rows from the database.
+@param maxRows the maximum number of rows, or -1 to process all rows
+*/
+public void setMaxRows ( int maxRows )
+{
+    this.maxRows = maxRows;
 }
 
 /**
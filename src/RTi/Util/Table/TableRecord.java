@@ -106,16 +106,30 @@ public TableRecord ( TableRecord rec )
 	this.__dirty = rec.__dirty;
 	this.__useArray = rec.__useArray;
 	this.__colMax = rec.__colMax;
+	Object [] recordArray = rec.__recordArray;
+	if ( (recordArray == null) && (rec.getNumberOfFields() > 0) ) {
+		// Values are stored outside of the record (see ColumnarTableRecord) so get them with the public methods
+		this.__colMax = rec.getNumberOfFields() - 1;
+		recordArray = new Object[this.__colMax + 1];
+		for ( int i = 0; i < recordArray.length; i++ ) {
+			try {
+				recordArray[i] = rec.getFieldValue(i);
+			}
+			catch ( Exception e ) {
+				recordArray[i] = null;
+			}
+		}
+	}
 	// Now clone the record array including the objects in the record...
-	if ( rec.__recordArray == null ) {
+	if ( recordArray == null ) {
 		this.__recordArray = null;
 	}
 	else {
-		this.__recordArray = new Object[rec.__recordArray.length];
+		this.__recordArray = new Object[recordArray.length];
 		Object o;
-		for ( int i = 0; i < rec.__recordArray.length; i++ ) {
+		for ( int i = 0; i < recordArray.length; i++ ) {
 			// Could serialize but since only certain classes are handled by DataTable, can handle
-			o = rec.__recordArray[i];
+			o = recordArray[i];
 			if ( o == null ) {
 				this.__recordArray[i] = null;
 			}
@@ -129,12 +143,23 @@ public TableRecord ( TableRecord rec )
 			else {
 				// Just set the value
 				// TODO SAM 2014-01-09 Could be an issue since object is shared
-				this.__recordArray[i] = rec.__recordArray[i];
+				this.__recordArray[i] = o;
 			}
 		}
 	}
 }
 
+/**
+Construct a new record that does not allocate an array for field values.
+This is used by derived classes that store the values elsewhere and override the methods that access the values.
+@param allocateValues if true, allocate the array for values as for TableRecord()
+*/
+TableRecord ( boolean allocateValues ) {
+	if ( allocateValues ) {
+		initialize(1);
+	}
+}
+
 /**
 Initialize the record.
 @param num Number of fields in the record (for memory purposes).
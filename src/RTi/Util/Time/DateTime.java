@@ -1156,8 +1156,7 @@ Add day(s) to the DateTime.  Other fields will be adjusted if necessary.
 @param add Indicates the number of days to add (can be a multiple and can be negative).
 */
 public void addDay ( int add )
-{	int i;
-
+{
 	if ( add == 1 ) {
 		int num_days_in_month = TimeUtil.numDaysInMonth (__month, __year);
 		++__day;
@@ -1169,14 +1168,6 @@ public void addDay ( int add )
 		// Reset the private data members.
 		setYearDay();
 	}
-	// Else...
-	// Figure out if we are trying to add more than one day.
-	// If so, recurse (might be a faster way, but this works)...
-	else if ( add > 0 ) {
-		for ( i = 0; i < add; i++ ) {
-			addDay ( 1 );
-		}
-	}
 	else if ( add == -1 ) {
 		--__day;
 		if ( __day < 1 ) {
@@ -1189,9 +1180,21 @@ public void addDay ( int add )
 		// Reset the private data members.
 		setYearDay();
 	}
-	else if ( add < 0 ) {
-		for ( i = add; i < 0; i++ ){
-			addDay ( -1 );
+	else if ( add != 0 ) {
+		// A day past the end of the month (e.g., from adding months) is handled by stepping one day at a time
+		// until the day is valid, so that the result is the same as when stepping.
+		int step = (add > 0) ? 1 : -1;
+		while ( (add != 0) && (__day > TimeUtil.numDaysInMonth(__month, __year)) ) {
+			addDay ( step );
+			add -= step;
+		}
+		if ( add != 0 ) {
+			// Compute the new date directly from the day number rather than stepping one day at a time.
+			long days = DateTimeKey.daysFromCivil ( __year, __month, __day ) + add;
+			__year = DateTimeKey.getYearFromDays ( days );
+			__month = DateTimeKey.getMonthFromDays ( days );
+			__day = DateTimeKey.getDayFromDays ( days );
+			reset();
 		}
 	}
 	__iszero = false;
@@ -1349,8 +1352,7 @@ Add month(s) to the DateTime.  Other fields will be adjusted if necessary.
 @param add Indicates the number of months to add (can be a multiple and can be negative).
 */
 public void addMonth ( int add )
-{	int	i;
-
+{
 	if ( add == 0 ) {
 		return;
 	}
@@ -1364,17 +1366,6 @@ public void addMonth ( int add )
 			addYear( 1 );
 		}
 	}
-	// Else...
-	// Loop through the number to add/subtract...
-	// Use recursion because multi-month increments are infrequent
-	// and the overhead of the multi-month checks is probably a wash.
-	else if ( add > 0 ) {
-		for ( i = 0; i < add; i++ ) {
-			addMonth ( 1 );
-		}
-		// No need to reset because it was done int the previous call.
-		return;
-	}
 	else if ( add == -1 ) {
 		--__month;
 		// Have subtracted the specified number so check if in the previous year
@@ -1384,20 +1375,20 @@ public void addMonth ( int add )
 			addYear( -1 );
 		}
 	}
-	else if ( add < 0 ) {
-		for ( i = 0; i > add; i-- ) {
-			addMonth ( -1 );
-		}
-		// No need to reset because it was done int the previous call.
-		return;
-	}
 	else {
-	    // Zero...
-		return;
+		// Adding more than one month so compute the year and month directly from the absolute month.
+		// The day is not changed.
+		int months = __year*12 + (__month - 1) + add;
+		__year = months/12;
+		__month = months%12 + 1;
+		if ( __month < 1 ) {
+			// Negative absolute month
+			--__year;
+			__month += 12;
+		}
 	}
 	// Reset time
-	setAbsoluteMonth();
-	setYearDay();
+	reset();
 	__iszero = false;
 }
 
@@ -3723,6 +3714,23 @@ private void setAbsoluteMonth()
 {	__abs_month = (__year * 12) + __month;
 }
 
+/**
+Set the date/time fields and reset the derived data.  This is called by DateTimeKey to set the
+DateTime without multiple calls to the individual set methods, which would check each field.
+The precision, time zone and behavior flags are not changed.
+*/
+void setDateTimeFields ( int year, int month, int day, int hour, int minute, int second, int hsecond )
+{	__year = year;
+	__month = month;
+	__day = day;
+	__hour = hour;
+	__minute = minute;
+	__second = second;
+	__hsecond = hsecond;
+	reset();
+	__iszero = false;
+}
+
 /**
 Set value of time series using another as input (equivalent to C++ = operator).
 A new instance is not allocated.
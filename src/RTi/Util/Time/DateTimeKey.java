@@ -0,0 +1,502 @@
+// DateTimeKey - compact, immutable long-encoded date/time used for fast interval arithmetic
+
+/* NoticeStart
+
+CDSS Common Java Library
+CDSS Common Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Common Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Common Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Common Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package RTi.Util.Time;
+
+import java.util.TimeZone;
+
+/**
+The DateTimeKey class is a compact, immutable companion to DateTime.
+The date/time is encoded as a single long, the number of hundredths of a second since 1970-01-01 00:00:00
+(proleptic Gregorian calendar), which allows date/times to be compared, offset by a number of intervals,
+and differenced with simple arithmetic rather than by stepping a DateTime one interval at a time.
+The static methods operate directly on the long keys so that loops can be written without allocating objects,
+for example:
+<pre>
+long key = DateTimeKey.toKey ( ts.getDate1() );
+long endKey = DateTimeKey.toKey ( ts.getDate2() );
+for ( ; key &lt;= endKey; key = DateTimeKey.plusIntervals ( key, intervalBase, intervalMult, 1 ) ) {
+	DateTimeKey.setDateTime ( key, date ); // Reuse a DateTime only if needed by other code.
+}
+</pre>
+Only the fields consistent with the precision of the DateTime are encoded (e.g., a DateTime with
+PRECISION_MONTH is encoded with day 1 and a zero time), consistent with how DateTime comparisons
+ignore fields finer than the precision.  The time zone is not encoded and, like DateTime comparisons, is
+ignored when comparing keys.  Time-only DateTime instances are not supported.
+<p>
+Adding months or years to a date/time with a day that does not exist in the resulting month
+(e.g., adding one month to January 31) results in the last day of the month.
+DateTime.addMonth() instead leaves the day unchanged, which can result in an invalid date.
+*/
+public final class DateTimeKey implements Comparable<DateTimeKey>
+{
+
+/**
+Number of hundredths of a second in a day.
+*/
+private static final long HSECONDS_PER_DAY = 8640000L;
+
+/**
+Number of hundredths of a second in an hour.
+*/
+private static final long HSECONDS_PER_HOUR = 360000L;
+
+/**
+Number of hundredths of a second in a minute.
+*/
+private static final long HSECONDS_PER_MINUTE = 6000L;
+
+/**
+Number of days from 0000-03-01 to 1970-01-01, used to shift the epoch for calendar calculations.
+*/
+private static final long DAYS_0000_03_01_TO_EPOCH = 719468L;
+
+/**
+The encoded date/time.
+*/
+private final long __key;
+
+/**
+The precision of the date/time (see DateTime.PRECISION_*), used when converting back to DateTime.
+*/
+private final int __precision;
+
+/**
+Construct from a DateTime.
+@param dt DateTime to encode, using its precision.
+*/
+public DateTimeKey ( DateTime dt )
+{	__key = toKey ( dt );
+	__precision = dt.getPrecision();
+}
+
+/**
+Construct from an encoded key.
+@param key encoded date/time (see toKey()).
+@param precision precision of the date/time (see DateTime.PRECISION_*).
+*/
+public DateTimeKey ( long key, int precision )
+{	__key = key;
+	__precision = precision;
+}
+
+/**
+Compare to another key.
+@param other DateTimeKey to compare to.
+@return -1 if this instance is earlier than the other, 0 if the same, and 1 if later.
+*/
+public int compareTo ( DateTimeKey other )
+{	if ( __key < other.__key ) {
+		return -1;
+	}
+	else if ( __key > other.__key ) {
+		return 1;
+	}
+	return 0;
+}
+
+/**
+Return the number of days since 1970-01-01 for a calendar date.
+The day is allowed to be larger than the number of days in the month, in which case the
+result is a day in a following month.
+@param year year, 4-digit.
+@param month month, 1-12.
+@param day day of month, 1-31.
+@return the number of days since 1970-01-01 (negative for earlier dates).
+*/
+public static long daysFromCivil ( int year, int month, int day )
+{	// Shift the year to start in March so that the leap day is at the end of the year
+	long y = (month <= 2) ? year - 1 : year;
+	long era = ((y >= 0) ? y : (y - 399))/400;
+	long yearOfEra = y - era*400;
+	long dayOfYear = (153*(month + ((month > 2) ? -3 : 9)) + 2)/5 + day - 1;
+	long dayOfEra = yearOfEra*365 + yearOfEra/4 - yearOfEra/100 + dayOfYear;
+	return era*146097 + dayOfEra - DAYS_0000_03_01_TO_EPOCH;
+}
+
+/**
+Determine whether the key is equal to another object.
+@param o object to compare to.
+@return true if the object is a DateTimeKey with the same encoded date/time.
+The precision is not compared, consistent with compareTo().
+*/
+public boolean equals ( Object o )
+{	if ( !(o instanceof DateTimeKey) ) {
+		return false;
+	}
+	return __key == ((DateTimeKey)o).__key;
+}
+
+/**
+Return the day of month for a number of days since 1970-01-01.
+@param days number of days since 1970-01-01.
+@return the day of month, 1-31.
+*/
+public static int getDayFromDays ( long days )
+{	long z = days + DAYS_0000_03_01_TO_EPOCH;
+	long dayOfEra = z - Math.floorDiv(z,146097)*146097;
+	long yearOfEra = (dayOfEra - dayOfEra/1460 + dayOfEra/36524 - dayOfEra/146096)/365;
+	long dayOfYear = dayOfEra - (365*yearOfEra + yearOfEra/4 - yearOfEra/100);
+	long mp = (5*dayOfYear + 2)/153;
+	return (int)(dayOfYear - (153*mp + 2)/5 + 1);
+}
+
+/**
+Return the encoded date/time.
+@return the encoded date/time.
+*/
+public long getKey ()
+{	return __key;
+}
+
+/**
+Return the month for a number of days since 1970-01-01.
+@param days number of days since 1970-01-01.
+@return the month, 1-12.
+*/
+public static int getMonthFromDays ( long days )
+{	long z = days + DAYS_0000_03_01_TO_EPOCH;
+	long dayOfEra = z - Math.floorDiv(z,146097)*146097;
+	long yearOfEra = (dayOfEra - dayOfEra/1460 + dayOfEra/36524 - dayOfEra/146096)/365;
+	long dayOfYear = dayOfEra - (365*yearOfEra + yearOfEra/4 - yearOfEra/100);
+	long mp = (5*dayOfYear + 2)/153;
+	return (int)((mp < 10) ? (mp + 3) : (mp - 9));
+}
+
+/**
+Return the precision of the date/time.
+@return the precision of the date/time (see DateTime.PRECISION_*).
+*/
+public int getPrecision ()
+{	return __precision;
+}
+
+/**
+Return the year for a number of days since 1970-01-01.
+@param days number of days since 1970-01-01.
+@return the year.
+*/
+public static int getYearFromDays ( long days )
+{	long z = days + DAYS_0000_03_01_TO_EPOCH;
+	long era = Math.floorDiv(z,146097);
+	long dayOfEra = z - era*146097;
+	long yearOfEra = (dayOfEra - dayOfEra/1460 + dayOfEra/36524 - dayOfEra/146096)/365;
+	long dayOfYear = dayOfEra - (365*yearOfEra + yearOfEra/4 - yearOfEra/100);
+	long mp = (5*dayOfYear + 2)/153;
+	long year = yearOfEra + era*400;
+	if ( mp >= 10 ) {
+		// January or February, which were shifted to the end of the previous year
+		++year;
+	}
+	return (int)year;
+}
+
+/**
+Return the hash code for the key.
+@return the hash code for the key.
+*/
+public int hashCode ()
+{	return (int)(__key ^ (__key >>> 32));
+}
+
+/**
+Return the number of whole intervals from the first key to the second key.
+The result is the largest n for which plusIntervals(key1,intervalBase,intervalMult,n) &lt;= key2,
+and is negative if key2 is earlier than key1.
+@param key1 first encoded date/time.
+@param key2 second encoded date/time.
+@param intervalBase interval base (see TimeInterval), HSECOND through YEAR.
+@param intervalMult interval multiplier.
+@return the number of whole intervals from key1 to key2.
+@exception IllegalArgumentException if the interval is not supported.
+*/
+public static long intervalsBetween ( long key1, long key2, int intervalBase, int intervalMult )
+{	if ( (intervalBase == TimeInterval.MONTH) || (intervalBase == TimeInterval.YEAR) ) {
+		// Estimate from the difference in months and then adjust for the day and time within the month
+		long days1 = Math.floorDiv(key1,HSECONDS_PER_DAY);
+		long days2 = Math.floorDiv(key2,HSECONDS_PER_DAY);
+		long months1 = getYearFromDays(days1)*12L + getMonthFromDays(days1) - 1;
+		long months2 = getYearFromDays(days2)*12L + getMonthFromDays(days2) - 1;
+		long monthsPerInterval = (intervalBase == TimeInterval.YEAR) ? 12L*intervalMult : intervalMult;
+		if ( monthsPerInterval <= 0 ) {
+			throw new IllegalArgumentException ( "Interval multiplier " + intervalMult + " must be > 0" );
+		}
+		long n = Math.floorDiv ( (months2 - months1), monthsPerInterval );
+		while ( plusIntervals(key1, intervalBase, intervalMult, n) > key2 ) {
+			--n;
+		}
+		while ( plusIntervals(key1, intervalBase, intervalMult, n + 1) <= key2 ) {
+			++n;
+		}
+		return n;
+	}
+	else {
+		long length = getIntervalLength ( intervalBase )*intervalMult;
+		if ( length <= 0 ) {
+			throw new IllegalArgumentException ( "Interval multiplier " + intervalMult + " must be > 0" );
+		}
+		return Math.floorDiv ( (key2 - key1), length );
+	}
+}
+
+/**
+Return the number of intervals between this key and another key (see the static version).
+@param other the later date/time.
+@param intervalBase interval base (see TimeInterval), HSECOND through YEAR.
+@param intervalMult interval multiplier.
+@return the number of whole intervals from this key to the other key.
+*/
+public long intervalsBetween ( DateTimeKey other, int intervalBase, int intervalMult )
+{	return intervalsBetween ( __key, other.__key, intervalBase, intervalMult );
+}
+
+/**
+Return the length of a fixed-length interval base in hundredths of a second.
+@exception IllegalArgumentException if the interval is not fixed-length or is not supported.
+*/
+private static long getIntervalLength ( int intervalBase )
+{	if ( intervalBase == TimeInterval.HSECOND ) {
+		return 1L;
+	}
+	else if ( intervalBase == TimeInterval.SECOND ) {
+		return 100L;
+	}
+	else if ( intervalBase == TimeInterval.MINUTE ) {
+		return HSECONDS_PER_MINUTE;
+	}
+	else if ( intervalBase == TimeInterval.HOUR ) {
+		return HSECONDS_PER_HOUR;
+	}
+	else if ( intervalBase == TimeInterval.DAY ) {
+		return HSECONDS_PER_DAY;
+	}
+	else if ( intervalBase == TimeInterval.WEEK ) {
+		return 7*HSECONDS_PER_DAY;
+	}
+	else {
+		throw new IllegalArgumentException ( "Interval " + intervalBase + " is not supported for DateTimeKey" );
+	}
+}
+
+/**
+Indicate whether adding intervals to the key for a DateTime (using the precision of the DateTime)
+gives the same date/time as DateTime.addInterval().  This is the case for supported intervals
+unless the DateTime is time-only, the interval is finer than the precision of the DateTime
+(fields finer than the precision are not encoded), months or years are added to a date/time with day &gt; 28,
+in which case DateTime.addMonth() may result in an invalid day rather than the end of the month, or the day is
+already past the end of the month, in which case DateTime.addDay() steps from the invalid day.
+@param dt DateTime that will be incremented.
+@param intervalBase interval base (see TimeInterval).
+@return true if the key can be used to add intervals to the DateTime.
+*/
+public static boolean isEquivalentToAddInterval ( DateTime dt, int intervalBase )
+{	if ( dt.timeOnly() || !isIntervalSupported(intervalBase) || (intervalBase < dt.getPrecision()) ) {
+		return false;
+	}
+	if ( ((intervalBase == TimeInterval.MONTH) || (intervalBase == TimeInterval.YEAR)) &&
+		(dt.getPrecision() <= DateTime.PRECISION_DAY) && (dt.getDay() > 28) ) {
+		return false;
+	}
+	if ( (dt.getPrecision() <= DateTime.PRECISION_DAY) &&
+		(dt.getDay() > TimeUtil.numDaysInMonth(dt.getMonth(), dt.getYear())) ) {
+		return false;
+	}
+	return true;
+}
+
+/**
+Indicate whether an interval base is supported by plusIntervals() and intervalsBetween().
+@param intervalBase interval base (see TimeInterval).
+@return true if HSECOND, SECOND, MINUTE, HOUR, DAY, WEEK, MONTH, or YEAR.
+*/
+public static boolean isIntervalSupported ( int intervalBase )
+{	return (intervalBase == TimeInterval.HSECOND) || (intervalBase == TimeInterval.SECOND) ||
+		(intervalBase == TimeInterval.MINUTE) || (intervalBase == TimeInterval.HOUR) ||
+		(intervalBase == TimeInterval.DAY) || (intervalBase == TimeInterval.WEEK) ||
+		(intervalBase == TimeInterval.MONTH) || (intervalBase == TimeInterval.YEAR);
+}
+
+/**
+Add a number of intervals to an encoded date/time.
+This takes the same amount of time regardless of the number of intervals.
+@param key encoded date/time.
+@param intervalBase interval base (see TimeInterval), HSECOND through YEAR.
+@param intervalMult interval multiplier.
+@param n number of intervals to add (can be negative).
+@return the encoded date/time offset by n*intervalMult intervalBase intervals.
+@exception IllegalArgumentException if the interval is not supported.
+*/
+public static long plusIntervals ( long key, int intervalBase, int intervalMult, long n )
+{	if ( (intervalBase == TimeInterval.MONTH) || (intervalBase == TimeInterval.YEAR) ) {
+		long days = Math.floorDiv(key,HSECONDS_PER_DAY);
+		long timeOfDay = key - days*HSECONDS_PER_DAY;
+		int year = getYearFromDays(days);
+		int month = getMonthFromDays(days);
+		int day = getDayFromDays(days);
+		long months = year*12L + (month - 1) + n*intervalMult*((intervalBase == TimeInterval.YEAR) ? 12 : 1);
+		year = (int)Math.floorDiv(months,12);
+		month = (int)(months - year*12L) + 1;
+		int ndays = TimeUtil.numDaysInMonth ( month, year );
+		if ( day > ndays ) {
+			day = ndays;
+		}
+		return daysFromCivil(year,month,day)*HSECONDS_PER_DAY + timeOfDay;
+	}
+	else {
+		return key + n*intervalMult*getIntervalLength(intervalBase);
+	}
+}
+
+/**
+Add a number of intervals to the date/time, returning a new instance with the same precision.
+@param intervalBase interval base (see TimeInterval), HSECOND through YEAR.
+@param intervalMult interval multiplier.
+@param n number of intervals to add (can be negative).
+@return a new DateTimeKey offset by n*intervalMult intervalBase intervals.
+*/
+public DateTimeKey plusIntervals ( int intervalBase, int intervalMult, long n )
+{	return new DateTimeKey ( plusIntervals(__key, intervalBase, intervalMult, n), __precision );
+}
+
+/**
+Set a DateTime from an encoded date/time.  No objects are allocated.
+The precision, time zone and behavior flags of the DateTime are not changed.
+@param key encoded date/time.
+@param dt DateTime to set.
+*/
+public static void setDateTime ( long key, DateTime dt )
+{	long days = Math.floorDiv(key,HSECONDS_PER_DAY);
+	long timeOfDay = key - days*HSECONDS_PER_DAY;
+	int hour = (int)(timeOfDay/HSECONDS_PER_HOUR);
+	timeOfDay -= hour*HSECONDS_PER_HOUR;
+	int minute = (int)(timeOfDay/HSECONDS_PER_MINUTE);
+	timeOfDay -= minute*HSECONDS_PER_MINUTE;
+	int second = (int)(timeOfDay/100);
+	int hsecond = (int)(timeOfDay - second*100);
+	dt.setDateTimeFields ( getYearFromDays(days), getMonthFromDays(days), getDayFromDays(days),
+		hour, minute, second, hsecond );
+}
+
+/**
+Return a new DateTime for the key.
+@return a new DateTime for the key, with the precision of the key.
+*/
+public DateTime toDateTime ()
+{	return toDateTime ( __key, __precision );
+}
+
+/**
+Return a new DateTime for an encoded date/time.
+@param key encoded date/time.
+@param precision precision for the DateTime (see DateTime.PRECISION_*).
+@return a new DateTime for the key.
+*/
+public static DateTime toDateTime ( long key, int precision )
+{	DateTime dt = new DateTime ( precision );
+	setDateTime ( key, dt );
+	return dt;
+}
+
+/**
+Encode a DateTime, using its precision.
+@param dt DateTime to encode.
+@return the encoded date/time.
+*/
+public static long toKey ( DateTime dt )
+{	return toKey ( dt, dt.getPrecision() );
+}
+
+/**
+Encode a DateTime, using the specified precision rather than the precision of the DateTime.
+This is useful to compare date/times of different precisions in the same way as DateTime.lessThan(), etc.,
+which use the precision of the instance being compared.
+@param dt DateTime to encode.
+@param precision precision to use (see DateTime.PRECISION_*); finer fields are treated as zero.
+@return the encoded date/time.
+*/
+public static long toKey ( DateTime dt, int precision )
+{	int month = 1;
+	int day = 1;
+	int hour = 0;
+	int minute = 0;
+	int second = 0;
+	int hsecond = 0;
+	if ( precision <= DateTime.PRECISION_MONTH ) {
+		month = dt.getMonth();
+	}
+	if ( precision <= DateTime.PRECISION_DAY ) {
+		day = dt.getDay();
+	}
+	if ( precision <= DateTime.PRECISION_HOUR ) {
+		hour = dt.getHour();
+	}
+	if ( precision <= DateTime.PRECISION_MINUTE ) {
+		minute = dt.getMinute();
+	}
+	if ( precision <= DateTime.PRECISION_SECOND ) {
+		second = dt.getSecond();
+	}
+	if ( precision <= DateTime.PRECISION_HSECOND ) {
+		hsecond = dt.getHSecond();
+	}
+	return toKey ( dt.getYear(), month, day, hour, minute, second, hsecond );
+}
+
+/**
+Encode a point in time, given as milliseconds since 1970-01-01 00:00:00 UTC (e.g., from java.util.Date.getTime()),
+as the local date/time in a time zone.  The result is truncated to seconds, consistent with DateTime(Date),
+so that a date/time read from a database can be encoded without allocating a DateTime.
+@param epochMillis milliseconds since 1970-01-01 00:00:00 UTC.
+@param tz time zone for the local date/time - retrieve once (e.g., with TimeZone.getDefault())
+rather than for each call.
+@return the encoded date/time.
+*/
+public static long toKey ( long epochMillis, TimeZone tz )
+{	return Math.floorDiv(epochMillis + tz.getOffset(epochMillis), 1000L)*100L;
+}
+
+/**
+Encode a date/time from its parts.
+@param year year, 4-digit.
+@param month month, 1-12.
+@param day day of month, 1-31.
+@param hour hour, 0-23.
+@param minute minute, 0-59.
+@param second second, 0-59.
+@param hsecond hundredth of second, 0-99.
+@return the encoded date/time.
+*/
+public static long toKey ( int year, int month, int day, int hour, int minute, int second, int hsecond )
+{	return daysFromCivil(year,month,day)*HSECONDS_PER_DAY + hour*HSECONDS_PER_HOUR + minute*HSECONDS_PER_MINUTE +
+		second*100L + hsecond;
+}
+
+/**
+Return the date/time as a string, using the DateTime formatting for the precision.
+@return the date/time as a string.
+*/
+public String toString ()
+{	return toDateTime().toString();
+}
+
+}
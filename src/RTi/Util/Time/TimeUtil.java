@@ -1915,9 +1915,9 @@ public static int [] getMonthAndDayFromDayOfYear ( int year, int julian_day )
 }
 
 /**
-Return the number of intervals between two dates.  This uses a loop to count
-the intervals and may be slow.  For time series, a faster method may be to call
-the TSUtil.getDataSize method.  Zero is returned if the start date is after the end date.
+Return the number of intervals between two dates.  The intervals are computed directly using DateTimeKey,
+except for cases that are not supported by DateTimeKey, which use a loop to count the intervals and may be slow.
+Zero is returned if the start date is after the end date.
 Zero is returned if the end date equals the start date since no interval will be traversed.
 @return The number of intervals between two dates.
 @param t1 Start date.
@@ -1934,6 +1934,17 @@ public static int getNumIntervals (	DateTime t1, DateTime t2, int base, int mult
 	}
 
 	// Want to remain less than t2, so if the two dates are the same return 0.
+	int precision = t1.getPrecision();
+	if ( (mult > 0) && DateTimeKey.isEquivalentToAddInterval(t1, base) ) {
+		// Compute directly.  Both date/times are encoded with the precision of t1, consistent with lessThan().
+		long key1 = DateTimeKey.toKey ( t1, precision );
+		long key2 = DateTimeKey.toKey ( t2, precision );
+		if ( key2 <= key1 ) {
+			return 0;
+		}
+		// Number of intervals that can be added to t1 and remain less than t2
+		return (int)(DateTimeKey.intervalsBetween ( key1, key2 - 1, base, mult ) + 1);
+	}
 	int intervals=0;
 	for ( DateTime t = new DateTime(t1); t.lessThan(t2); t.addInterval( base, mult ) ) {
 		intervals++;	
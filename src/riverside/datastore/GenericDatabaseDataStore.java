@@ -27,11 +27,18 @@ import java.io.IOException;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
 import java.util.Vector;
 
 import RTi.DMI.AbstractDatabaseDataStore;
@@ -48,6 +55,7 @@ import RTi.Util.IO.IOUtil;
 import RTi.Util.IO.PropList;
 import RTi.Util.Message.Message;
 import RTi.Util.Time.DateTime;
+import RTi.Util.Time.DateTimeKey;
 import RTi.Util.Time.StopWatch;
 
 /**
@@ -83,6 +91,18 @@ public static final String TS_DATA_TABLE_DATETIME_COLUMN_PROP = "TimeSeriesDataT
 public static final String TS_DATA_TABLE_VALUE_COLUMN_PROP = "TimeSeriesDataTable_ValueColumn";
 public static final String TS_DATA_TABLE_FLAG_COLUMN_PROP = "TimeSeriesDataTable_FlagColumn";
 
+/**
+Maximum number of time series metadata identifiers (or location identifiers) in each SQL IN (...) clause,
+used by readTimeSeriesList().  This limits the length of SQL statements.
+*/
+private static final int READ_TIME_SERIES_LIST_BATCH_SIZE = 500;
+
+/**
+Number of rows to fetch from the database at a time when reading time series data.
+This is larger than the typical driver default to reduce the number of round trips for long time series.
+*/
+private static final int READ_TIME_SERIES_FETCH_SIZE = 5000;
+
 /**
 Hashtable that stores list of data types for different time series metadata inputs.
 The key is a string consisting of locType, locID, dataSource, interval, scenario as passed to getTimeSeriesMetaDataTypeList.
@@ -93,6 +113,12 @@ private Hashtable<String,List<String>> timeSeriesMetaHash = new Hashtable<String
 Database metadata, stored here to speed up database interactions.
 */
 private DatabaseMetaData databaseMetadata = null;
+
+/**
+Cache of the time series metadata table, used to answer choice list and metadata queries without
+querying the database each time.
+*/
+private GenericDatabaseDataStore_TimeSeriesMetaCache timeSeriesMetaCache = new GenericDatabaseDataStore_TimeSeriesMetaCache(this);
     
 /**
 Construct a data store given a DMI instance, which is assumed to be open.
@@ -156,6 +182,17 @@ throws IOException, Exception
         // Use the parts and create the connection string on the fly
         dmi = new GenericDMI( databaseEngine, databaseServer, databaseName, port, systemLogin, systemPassword );
     }
+    // Optional connection pool so that multiple threads can read from the datastore at the same time
+    String connectionPoolSize = IOUtil.expandPropertyForEnvironment("ConnectionPoolSize",props.getValue("ConnectionPoolSize"));
+    if ( (connectionPoolSize != null) && !connectionPoolSize.equals("") ) {
+        try {
+            dmi.setConnectionPoolSize ( Integer.parseInt(connectionPoolSize.trim()) );
+        }
+        catch ( NumberFormatException e ) {
+            Message.printWarning ( 3, "GenericDatabaseDataStore.createFromFile",
+                "ConnectionPoolSize (" + connectionPoolSize + ") is not an integer - not using connection pool." );
+        }
+    }
     dmi.open();
     GenericDatabaseDataStore ds = new GenericDatabaseDataStore( name, description, dmi );
     // Save all the properties generically for use later.  This defines tables for time series meta and data mapping.
@@ -299,6 +336,15 @@ public List<String> getTimeSeriesMetaDataTypeList ( boolean includeNotes,
     }
 }
 
+/**
+Return the time series metadata cache, for example to check the hit and miss counts.
+@return the time series metadata cache.
+*/
+public GenericDatabaseDataStore_TimeSeriesMetaCache getTimeSeriesMetaCache ()
+{
+    return this.timeSeriesMetaCache;
+}
+
 /**
 Create a list of where clauses give an InputFilter_JPanel.  The InputFilter
 instances that are managed by the InputFilter_JPanel must have been defined with
@@ -441,6 +487,16 @@ public boolean hasTimeSeriesInterface ( boolean checkDatabase )
     return true;
 }
 
+/**
+Invalidate cached time series metadata so that the metadata table is queried again,
+for example after the metadata table has been modified.
+*/
+public void invalidateTimeSeriesMetaCache ()
+{
+    this.timeSeriesMetaCache.invalidate();
+    this.timeSeriesMetaHash.clear();
+}
+
 /**
 Read a time series from the datastore.
 */
@@ -467,16 +523,8 @@ public TS readTimeSeries ( String tsidentString, DateTime inputStart, DateTime i
     }
     // Create the time series
     double missing = Double.NaN;
-    try {
-        ts = TSUtil.newTimeSeries(tsident + "~" + getName(), true);
-        ts.setIdentifier(tsident);
-        ts.setDataUnits ( tsMeta.getUnits() );
-        ts.setDataUnitsOriginal ( tsMeta.getUnits() );
-        ts.setDescription( tsMeta.getDescription() );
-        ts.setMissing(missing);
-    }
-    catch ( Exception e ) {
-        Message.printWarning(3,routine,"Error creating time series (" + e + ")." );
+    ts = readTimeSeries_NewTimeSeries ( tsident, tsMeta, missing );
+    if ( ts == null ) {
         return null;
     }
     if ( !readData ) {
@@ -494,28 +542,7 @@ public TS readTimeSeries ( String tsidentString, DateTime inputStart, DateTime i
         dataTable = ts.formatLegend(dataTable);
     }
     String dtColumn = getPropertyForTable ( GenericDatabaseDataStore.TS_DATA_TABLE_DATETIME_COLUMN_PROP, dataTable );
-    boolean dateTimeInt = false; // true=integer year, false=timestamp
-    int dtColumnType = -1;
-    try {
-        dtColumnType = getColumnType(getDatabaseMetaData(), dataTable, dtColumn);
-        if ( (dtColumnType == Types.TIMESTAMP) || (dtColumnType == Types.DATE)) {
-            dateTimeInt = false;
-        }
-        else if ( (dtColumnType == Types.BIGINT) || (dtColumnType == Types.INTEGER) || (dtColumnType == Types.SMALLINT) ) {
-            dateTimeInt = true;
-        }
-        else {
-            message = "SQL column type " + dtColumnType + " for \"" + dtColumn +
-                "\" is not supported - don't understand date/time.";
-            Message.printWarning(3, routine, message);
-            throw new RuntimeException ( message );
-        }
-    }
-    catch ( SQLException e ) {
-        message = "Cannot determine column type for \"" + dtColumn + "\" don't understand date/time (" + e + ").";
-        Message.printWarning(3, routine, message);
-        throw new RuntimeException ( message );
-    }
+    boolean dateTimeInt = readTimeSeries_IsDateTimeInt ( dataTable, dtColumn ); // true=integer year, false=timestamp
     String valColumn = getProperty ( GenericDatabaseDataStore.TS_DATA_TABLE_VALUE_COLUMN_PROP );
     String flagColumn = getProperty ( GenericDatabaseDataStore.TS_DATA_TABLE_FLAG_COLUMN_PROP );
     String idColumn = getProperty ( GenericDatabaseDataStore.TS_DATA_TABLE_METAID_COLUMN_PROP );
@@ -526,8 +553,9 @@ public TS readTimeSeries ( String tsidentString, DateTime inputStart, DateTime i
         ss.addField(flagColumn);
     }
     ss.addOrderByClause(dtColumn);
+    ss.setFetchSize(READ_TIME_SERIES_FETCH_SIZE);
     try {
-        ss.addWhereClause(idColumn + " = " + tsMeta.getId() );
+        ss.addWhereClause(idColumn + " = ?", tsMeta.getId() );
     }
     catch ( Exception e ) {
         Message.printWarning(3, routine, "Error setting TimeSeriesMeta ID for query (" + e + ")." );
@@ -549,58 +577,56 @@ public TS readTimeSeries ( String tsidentString, DateTime inputStart, DateTime i
         }
     }
     String sqlString = ss.toString();
-    Message.printStatus(2,routine,"Select statement = " + sqlString );
+    Message.printStatus(2,routine,() -> "Select statement = " + sqlString );
     ResultSet rs = null;
-    double d, value;
-    Date dt;
-    String s, flag = "";
-    DateTime dateTime;
-    int i;
-    int index;
-    List<TimeSeriesData> tsdataList = new Vector<TimeSeriesData>();
+    double d;
+    String s;
+    long key;
+    // Date/times are read as keys and values into primitive arrays because the period, and therefore the
+    // time series data space, is not known until all rows have been read
+    int count = 0;
+    long [] keys = new long[1024];
+    double [] values = new double[keys.length];
+    String [] flags = null;
+    if ( flagColumn != null ) {
+        flags = new String[keys.length];
+    }
+    TimeZone tz = TimeZone.getDefault();
     StopWatch selectTimer = new StopWatch();
     try {
         selectTimer.start();
         rs = dmi.dmiSelect(ss);
         selectTimer.stop();
         while (rs.next()) {
-            index = 1;
-            if ( dateTimeInt ) {
-                i = rs.getInt(index++);
-                if (rs.wasNull()) {
-                    continue;
-                }
-                else {
-                    dateTime = new DateTime(DateTime.PRECISION_YEAR);
-                    dateTime.setYear(i);
-                }
+            key = readTimeSeries_GetDateTimeKey ( rs, 1, dateTimeInt, tz );
+            if ( key == Long.MIN_VALUE ) {
+                continue;
             }
-            else {
-                dt = rs.getTimestamp(index++);
-                if (rs.wasNull()) {
-                    continue;
-                }
-                else {
-                    dateTime = new DateTime(dt);
+            if ( count == keys.length ) {
+                keys = Arrays.copyOf(keys, 2*count);
+                values = Arrays.copyOf(values, 2*count);
+                if ( flags != null ) {
+                    flags = Arrays.copyOf(flags, 2*count);
                 }
             }
-            d = rs.getDouble(index++);
+            keys[count] = key;
+            d = rs.getDouble(2);
             if (rs.wasNull()) {
-                value = missing;
+                values[count] = missing;
             }
             else {
-                value = d;
+                values[count] = d;
             }
-            if ( flagColumn != null ) {
-                s = rs.getString(index);
+            if ( flags != null ) {
+                s = rs.getString(3);
                 if (rs.wasNull()) {
-                    flag = s;
+                    flags[count] = "";
                 }
                 else {
-                    flag = "";
+                    flags[count] = s;
                 }
             }
-            tsdataList.add(new TimeSeriesData(dateTime,value,flag));
+            ++count;
         }
     }
     catch ( Exception e ) {
@@ -619,32 +645,723 @@ public TS readTimeSeries ( String tsidentString, DateTime inputStart, DateTime i
     }
     if ( inputEnd != null ) {
         ts.setDate2(inputEnd);
-        ts.setDate1Original(inputEnd);
-    }
-    if ( tsdataList.size() > 0 ) {
-        ts.setDate1(tsdataList.get(0).getDateTime());
-        ts.setDate1Original(tsdataList.get(0).getDateTime());
-        ts.setDate2(tsdataList.get(tsdataList.size() - 1).getDateTime());
-        ts.setDate2Original(tsdataList.get(tsdataList.size() - 1).getDateTime());
+        ts.setDate2Original(inputEnd);
+    }
+    if ( count > 0 ) {
+        int precision = readTimeSeries_GetDateTimePrecision ( dateTimeInt );
+        DateTime date1 = DateTimeKey.toDateTime(keys[0], precision);
+        DateTime date2 = DateTimeKey.toDateTime(keys[count - 1], precision);
+        ts.setDate1(date1);
+        ts.setDate1Original(date1);
+        ts.setDate2(date2);
+        ts.setDate2Original(date2);
         ts.allocateDataSpace();
-        for ( TimeSeriesData tsdata : tsdataList ) {
-            if ( flagColumn == null ) {
-                ts.setDataValue(tsdata.getDateTime(), tsdata.getValue() );
+        // Reuse one DateTime to set the values - the time series uses it to compute the position in the data space
+        DateTime dateTime = new DateTime(precision);
+        for ( int i = 0; i < count; i++ ) {
+            DateTimeKey.setDateTime(keys[i], dateTime);
+            if ( flags == null ) {
+                ts.setDataValue(dateTime, values[i] );
             }
             else {
-                ts.setDataValue(tsdata.getDateTime(), tsdata.getValue(), tsdata.getFlag(), -1 );
+                ts.setDataValue(dateTime, values[i], flags[i], -1 );
             }
         }
     }
     setTimer.stop();
-    Message.printStatus(2,routine,"Read " + tsdataList.size() + " values for \"" + ts.getIdentifierString() +
-        "\" metaID=" + tsMeta.getId() +
-    	" metatime=" + metaTimer.getMilliseconds() +
-        "ms, selecttime=" + selectTimer.getMilliseconds() +
-        "ms, datatime=" + dataTimer.getMilliseconds() + "ms, settime=" + setTimer.getMilliseconds() + "ms");
+    if ( Message.isStatusLevelEnabled(2) ) {
+        // Only format the message if it will be output since this is called for each time series
+        Message.printStatus(2,routine,"Read " + count + " values for \"" + ts.getIdentifierString() +
+            "\" metaID=" + tsMeta.getId() +
+        	" metatime=" + metaTimer.getMilliseconds() +
+            "ms, selecttime=" + selectTimer.getMilliseconds() +
+            "ms, datatime=" + dataTimer.getMilliseconds() + "ms, settime=" + setTimer.getMilliseconds() + "ms");
+    }
     return ts;
 }
 
+/**
+Read a date/time from a time series data query result set as an encoded key (see DateTimeKey), without allocating
+a DateTime.  Timestamps are converted to local time and truncated to seconds, consistent with DateTime(Date).
+@param rs result set positioned at a row
+@param index column index (1+)
+@param dateTimeInt true if the column contains integer years, false if timestamps
+@param tz time zone for local time, used with timestamps
+@return the encoded date/time, or Long.MIN_VALUE if the value is null
+*/
+private long readTimeSeries_GetDateTimeKey ( ResultSet rs, int index, boolean dateTimeInt, TimeZone tz )
+throws SQLException
+{
+    if ( dateTimeInt ) {
+        int year = rs.getInt(index);
+        if (rs.wasNull()) {
+            return Long.MIN_VALUE;
+        }
+        return DateTimeKey.toKey(year, 1, 1, 0, 0, 0, 0);
+    }
+    else {
+        Timestamp dt = rs.getTimestamp(index);
+        if (rs.wasNull()) {
+            return Long.MIN_VALUE;
+        }
+        return DateTimeKey.toKey(dt.getTime(), tz);
+    }
+}
+
+/**
+Return the precision of date/times read from the date/time column in a time series data table.
+@param dateTimeInt true if the column contains integer years, false if timestamps
+@return DateTime.PRECISION_YEAR for integer years, DateTime.PRECISION_SECOND for timestamps
+*/
+private int readTimeSeries_GetDateTimePrecision ( boolean dateTimeInt )
+{
+    if ( dateTimeInt ) {
+        return DateTime.PRECISION_YEAR;
+    }
+    else {
+        return DateTime.PRECISION_SECOND;
+    }
+}
+
+/**
+Determine whether the date/time column in a time series data table contains integer years or timestamps.
+@param dataTable time series data table
+@param dtColumn date/time column in the data table
+@return true if the column contains integer years, false if timestamps
+@exception RuntimeException if the column type cannot be determined or is not supported
+*/
+private boolean readTimeSeries_IsDateTimeInt ( String dataTable, String dtColumn )
+{   String routine = "GenericDatabaseDataStore.readTimeSeries_IsDateTimeInt", message;
+    int dtColumnType = -1;
+    try {
+        dtColumnType = getColumnType(getDatabaseMetaData(), dataTable, dtColumn);
+    }
+    catch ( SQLException e ) {
+        message = "Cannot determine column type for \"" + dtColumn + "\" don't understand date/time (" + e + ").";
+        Message.printWarning(3, routine, message);
+        throw new RuntimeException ( message );
+    }
+    if ( (dtColumnType == Types.TIMESTAMP) || (dtColumnType == Types.DATE)) {
+        return false;
+    }
+    else if ( (dtColumnType == Types.BIGINT) || (dtColumnType == Types.INTEGER) || (dtColumnType == Types.SMALLINT) ) {
+        return true;
+    }
+    else {
+        message = "SQL column type " + dtColumnType + " for \"" + dtColumn +
+            "\" is not supported - don't understand date/time.";
+        Message.printWarning(3, routine, message);
+        throw new RuntimeException ( message );
+    }
+}
+
+/**
+Create a time series for the time series identifier and metadata, without allocating data space.
+@param tsident time series identifier
+@param tsMeta time series metadata
+@param missing missing data value for the time series
+@return the new time series, or null if it could not be created
+*/
+private TS readTimeSeries_NewTimeSeries ( TSIdent tsident, TimeSeriesMeta tsMeta, double missing )
+{   String routine = "GenericDatabaseDataStore.readTimeSeries_NewTimeSeries";
+    try {
+        TS ts = TSUtil.newTimeSeries(tsident + "~" + getName(), true);
+        ts.setIdentifier(tsident);
+        ts.setDataUnits ( tsMeta.getUnits() );
+        ts.setDataUnitsOriginal ( tsMeta.getUnits() );
+        ts.setDescription( tsMeta.getDescription() );
+        ts.setMissing(missing);
+        return ts;
+    }
+    catch ( Exception e ) {
+        Message.printWarning(3,routine,"Error creating time series (" + e + ")." );
+        return null;
+    }
+}
+
+/**
+Read a list of time series from the datastore.
+@param tsidentStrings time series identifiers to read
+@param inputStart start of period to read, or null to read all data
+@param inputEnd end of period to read, or null to read all data
+@return list of time series, see readTimeSeriesList(List,DateTime,DateTime,boolean)
+*/
+public List<TS> readTimeSeriesList ( List<String> tsidentStrings, DateTime inputStart, DateTime inputEnd )
+{   return readTimeSeriesList ( tsidentStrings, inputStart, inputEnd, true );
+}
+
+/**
+Read a list of time series from the datastore.
+This is much faster than calling readTimeSeries() for each time series because each call to readTimeSeries()
+queries the database twice (for metadata and for data).
+Here, metadata for all the time series are read with one query for each batch of
+up to 500 location identifiers, and data are read with two queries for each batch of up to 500 time series
+(one to determine the period of each time series and one for the data values), using SQL IN (...)
+with the metadata identifiers.  Data rows are ordered by metadata identifier and are set directly into
+the time series, which are allocated using the period from the first query.
+@param tsidentStrings time series identifiers to read
+@param inputStart start of period to read, or null to read all data
+@param inputEnd end of period to read, or null to read all data
+@param readData if false, only read the metadata and create the time series
+@return list of time series, in the same order as the identifiers, with null for identifiers that are invalid or
+do not match exactly one metadata record
+*/
+public List<TS> readTimeSeriesList ( List<String> tsidentStrings, DateTime inputStart, DateTime inputEnd, boolean readData )
+{   String routine = "GenericDatabaseDataStore.readTimeSeriesList";
+    int nts = tsidentStrings.size();
+    List<TS> tslist = new ArrayList<TS>(nts);
+    List<TSIdent> tsidentList = new ArrayList<TSIdent>(nts);
+    for ( String tsidentString : tsidentStrings ) {
+        TSIdent tsident = null;
+        try {
+            tsident = TSIdent.parseIdentifier(tsidentString);
+        }
+        catch ( Exception e ) {
+            Message.printWarning(3,routine,"Time series identifier \"" + tsidentString + "\" is invalid (" + e + ")");
+        }
+        tsidentList.add(tsident);
+        tslist.add(null);
+    }
+    // Get the time series metadata records
+    StopWatch metaTimer = new StopWatch();
+    metaTimer.start();
+    List<TimeSeriesMeta> tsMetaList = readTimeSeriesList_ReadMeta ( tsidentList );
+    metaTimer.stop();
+    // Create the time series and group by data table, since the table name can depend on the time series
+    double missing = Double.NaN;
+    String dataTableProp = getProperty ( GenericDatabaseDataStore.TS_DATA_TABLE_PROP );
+    Map<String,List<Integer>> dataTableMap = new LinkedHashMap<String,List<Integer>>();
+    int count = 0;
+    for ( int its = 0; its < nts; its++ ) {
+        TimeSeriesMeta tsMeta = tsMetaList.get(its);
+        if ( tsMeta == null ) {
+            continue;
+        }
+        TS ts = readTimeSeries_NewTimeSeries ( tsidentList.get(its), tsMeta, missing );
+        if ( ts == null ) {
+            continue;
+        }
+        tslist.set(its, ts);
+        ++count;
+        String dataTable = dataTableProp;
+        if ( dataTable != null ) {
+            // Table name may contain formatting like %I, etc.
+            dataTable = ts.formatLegend(dataTable);
+        }
+        List<Integer> positions = dataTableMap.get(dataTable);
+        if ( positions == null ) {
+            positions = new ArrayList<Integer>();
+            dataTableMap.put(dataTable, positions);
+        }
+        positions.add(its);
+    }
+    if ( Message.isStatusLevelEnabled(2) ) {
+        Message.printStatus(2,routine,"Read metadata for " + count + " of " + nts + " time series, metatime=" +
+            metaTimer.getMilliseconds() + "ms");
+    }
+    if ( !readData ) {
+        return tslist;
+    }
+    // Read the time series data for each data table
+    for ( Map.Entry<String,List<Integer>> entry : dataTableMap.entrySet() ) {
+        List<Integer> positions = entry.getValue();
+        for ( int i = 0; i < positions.size(); i += READ_TIME_SERIES_LIST_BATCH_SIZE ) {
+            List<Integer> batch = positions.subList(i, Math.min(positions.size(), i + READ_TIME_SERIES_LIST_BATCH_SIZE));
+            readTimeSeriesList_ReadData ( entry.getKey(), batch, tslist, tsMetaList, inputStart, inputEnd, missing );
+        }
+    }
+    return tslist;
+}
+
+/**
+Add where clauses to a data query for readTimeSeriesList().
+@param ss select statement to execute
+@param idColumn metadata identifier column in the data table
+@param dtColumn date/time column in the data table
+@param ids metadata identifiers for time series to read
+@param inputStart start of period to read, or null to read all data
+@param inputEnd end of period to read, or null to read all data
+*/
+private void readTimeSeriesList_AddDataWhere ( DMISelectStatement ss, String idColumn, String dtColumn, List<Long> ids,
+    DateTime inputStart, DateTime inputEnd )
+{   String routine = "GenericDatabaseDataStore.readTimeSeriesList_AddDataWhere";
+    DMI dmi = getDMI();
+    StringBuilder b = new StringBuilder ( idColumn + " IN (" );
+    for ( int i = 0; i < ids.size(); i++ ) {
+        if ( i > 0 ) {
+            b.append ( "," );
+        }
+        b.append ( ids.get(i) );
+    }
+    b.append ( ")" );
+    try {
+        ss.addWhereClause(b.toString());
+    }
+    catch ( Exception e ) {
+        Message.printWarning(3, routine, "Error setting TimeSeriesMeta IDs for query (" + e + ")." );
+    }
+    if ( inputStart != null ) {
+        try {
+            ss.addWhereClause(dtColumn + " >= " + DMIUtil.formatDateTime(dmi, inputStart) );
+        }
+        catch ( Exception e ) {
+            Message.printWarning(3, routine, "Error setting input start for query (" + e + ")." );
+        }
+    }
+    if ( inputEnd != null ) {
+        try {
+            ss.addWhereClause(dtColumn + " <= " + DMIUtil.formatDateTime(dmi, inputEnd) );
+        }
+        catch ( Exception e ) {
+            Message.printWarning(3, routine, "Error setting input end for query (" + e + ")." );
+        }
+    }
+}
+
+/**
+Add a where clause to the metadata select statement for readTimeSeriesList(), to match any of the values.
+The values are bound as statement parameters.
+@param ss select statement to execute
+@param table table to query
+@param column for where clause
+@param values values to use in where clause
+*/
+private void readTimeSeriesList_AddMetaWhereIn ( DMISelectStatement ss, String table, String column, List<String> values )
+{   String routine = "GenericDatabaseDataStore.readTimeSeriesList_AddMetaWhereIn";
+    StringBuilder b = new StringBuilder ( table + "." + column + " IN (" );
+    for ( int i = 0; i < values.size(); i++ ) {
+        if ( i > 0 ) {
+            b.append ( "," );
+        }
+        b.append ( "?" );
+    }
+    b.append ( ")" );
+    try {
+        ss.addWhereClause(b.toString(), values.toArray());
+    }
+    catch ( Exception e ) {
+        Message.printWarning(3, routine, "Error setting " + column + " values for query (" + e + ")." );
+    }
+}
+
+/**
+Indicate whether a time series identifier part matches a metadata value, for readTimeSeriesList().
+Consistent with readTimeSeriesMeta(), blank and * identifier parts match any value, and other values must match exactly.
+@param column metadata table column, or null if not configured (always matches)
+@param value value from the time series identifier
+@param metaValue value from the metadata table
+@return true if the value matches
+*/
+private boolean readTimeSeriesList_MetaMatches ( String column, String value, String metaValue )
+{
+    if ( (column == null) || (value == null) || value.equals("") || value.equals("*") ) {
+        return true;
+    }
+    return value.equals(metaValue);
+}
+
+/**
+Read data for a batch of time series that use the same data table, for readTimeSeriesList().
+The period of each time series is determined with a MIN/MAX query, the time series are allocated,
+and the data values are then set directly into the time series.
+@param dataTable data table for the time series
+@param positions positions in the time series list of the time series to read
+@param tslist list of time series being read
+@param tsMetaList list of time series metadata, in the same order as the time series
+@param inputStart start of period to read, or null to read all data
+@param inputEnd end of period to read, or null to read all data
+@param missing missing data value for time series
+*/
+private void readTimeSeriesList_ReadData ( String dataTable, List<Integer> positions, List<TS> tslist,
+    List<TimeSeriesMeta> tsMetaList, DateTime inputStart, DateTime inputEnd, double missing )
+{   String routine = "GenericDatabaseDataStore.readTimeSeriesList_ReadData";
+    DMI dmi = getDMI();
+    StopWatch dataTimer = new StopWatch();
+    dataTimer.start();
+    String dtColumn = getPropertyForTable ( GenericDatabaseDataStore.TS_DATA_TABLE_DATETIME_COLUMN_PROP, dataTable );
+    boolean dateTimeInt = readTimeSeries_IsDateTimeInt ( dataTable, dtColumn ); // true=integer year, false=timestamp
+    String valColumn = getProperty ( GenericDatabaseDataStore.TS_DATA_TABLE_VALUE_COLUMN_PROP );
+    String flagColumn = getProperty ( GenericDatabaseDataStore.TS_DATA_TABLE_FLAG_COLUMN_PROP );
+    String idColumn = getProperty ( GenericDatabaseDataStore.TS_DATA_TABLE_METAID_COLUMN_PROP );
+    // Map metadata identifiers to time series, and initialize the period to the requested period,
+    // which is used if no data are found
+    Map<Long,TS> tsMap = new HashMap<Long,TS>();
+    List<Long> ids = new ArrayList<Long>(positions.size());
+    // Positions of repeated identifiers, which are set to a copy of the first time series after reading
+    Map<Integer,Long> repeatedMap = new HashMap<Integer,Long>();
+    for ( Integer position : positions ) {
+        TS ts = tslist.get(position);
+        long id = tsMetaList.get(position).getId();
+        if ( tsMap.containsKey(id) ) {
+            repeatedMap.put(position, id);
+            continue;
+        }
+        tsMap.put(id, ts);
+        ids.add(id);
+        if ( inputStart != null ) {
+            ts.setDate1(inputStart);
+            ts.setDate1Original(inputStart);
+        }
+        if ( inputEnd != null ) {
+            ts.setDate2(inputEnd);
+            ts.setDate2Original(inputEnd);
+        }
+    }
+    // Query the period of each time series and allocate the data space
+    DMISelectStatement ss = new DMISelectStatement(dmi);
+    ss.addTable(dataTable);
+    ss.addField(idColumn);
+    ss.addField("MIN(" + dtColumn + ")");
+    ss.addField("MAX(" + dtColumn + ")");
+    readTimeSeriesList_AddDataWhere ( ss, idColumn, dtColumn, ids, inputStart, inputEnd );
+    ss.addOrderByClause(idColumn);
+    ss.setGroupBy(true);
+    String sqlString = ss.toString();
+    ResultSet rs = null;
+    long key1, key2;
+    int precision = readTimeSeries_GetDateTimePrecision ( dateTimeInt );
+    TimeZone tz = TimeZone.getDefault();
+    Map<Long,TS> tsWithDataMap = new HashMap<Long,TS>(); // Time series that have data space allocated
+    StopWatch selectTimer = new StopWatch();
+    try {
+        selectTimer.start();
+        rs = dmi.dmiSelect(ss);
+        selectTimer.stop();
+        while (rs.next()) {
+            long id = rs.getLong(1);
+            TS ts = tsMap.get(id);
+            key1 = readTimeSeries_GetDateTimeKey ( rs, 2, dateTimeInt, tz );
+            key2 = readTimeSeries_GetDateTimeKey ( rs, 3, dateTimeInt, tz );
+            if ( (ts == null) || (key1 == Long.MIN_VALUE) || (key2 == Long.MIN_VALUE) ) {
+                continue;
+            }
+            DateTime date1 = DateTimeKey.toDateTime(key1, precision);
+            DateTime date2 = DateTimeKey.toDateTime(key2, precision);
+            ts.setDate1(date1);
+            ts.setDate1Original(date1);
+            ts.setDate2(date2);
+            ts.setDate2Original(date2);
+            ts.allocateDataSpace();
+            tsWithDataMap.put(id, ts);
+        }
+    }
+    catch ( Exception e ) {
+        Message.printWarning ( 3, routine, "Error reading time series period from database with statement \"" + sqlString + "\" (" + e + ").");
+    }
+    finally {
+        DMI.closeResultSet(rs);
+    }
+    if ( tsWithDataMap.size() == 0 ) {
+        dataTimer.stop();
+        readTimeSeriesList_SetRepeated ( repeatedMap, tsMap, tslist );
+        return;
+    }
+    // Query the data values, ordered by metadata identifier so that the time series only needs to be looked up
+    // when the identifier changes
+    ss = new DMISelectStatement(dmi);
+    ss.addTable(dataTable);
+    ss.addField(idColumn);
+    ss.addField(dtColumn);
+    ss.addField(valColumn);
+    if ( flagColumn != null ) {
+        ss.addField(flagColumn);
+    }
+    readTimeSeriesList_AddDataWhere ( ss, idColumn, dtColumn, ids, inputStart, inputEnd );
+    ss.addOrderByClause(idColumn);
+    ss.addOrderByClause(dtColumn);
+    ss.setFetchSize(READ_TIME_SERIES_FETCH_SIZE);
+    sqlString = ss.toString();
+    if ( Message.isStatusLevelEnabled(2) ) {
+        Message.printStatus(2,routine,"Select statement = " + sqlString );
+    }
+    double d, value;
+    long id, idPrev = -1;
+    long key;
+    String s, flag = "";
+    // Reuse one DateTime to set the values - the time series uses it to compute the position in the data space
+    DateTime dateTime = new DateTime(precision);
+    int index;
+    int valueCount = 0;
+    TS ts = null;
+    rs = null;
+    try {
+        selectTimer.start();
+        rs = dmi.dmiSelect(ss);
+        selectTimer.stop();
+        while (rs.next()) {
+            id = rs.getLong(1);
+            if ( (ts == null) || (id != idPrev) ) {
+                ts = tsWithDataMap.get(id);
+                idPrev = id;
+            }
+            if ( ts == null ) {
+                continue;
+            }
+            index = 2;
+            key = readTimeSeries_GetDateTimeKey ( rs, index++, dateTimeInt, tz );
+            if ( key == Long.MIN_VALUE ) {
+                continue;
+            }
+            DateTimeKey.setDateTime(key, dateTime);
+            d = rs.getDouble(index++);
+            if (rs.wasNull()) {
+                value = missing;
+            }
+            else {
+                value = d;
+            }
+            if ( flagColumn == null ) {
+                ts.setDataValue(dateTime, value );
+            }
+            else {
+                s = rs.getString(index);
+                if (rs.wasNull()) {
+                    flag = "";
+                }
+                else {
+                    flag = s;
+                }
+                ts.setDataValue(dateTime, value, flag, -1 );
+            }
+            ++valueCount;
+        }
+    }
+    catch ( Exception e ) {
+        Message.printWarning ( 3, routine, "Error reading time series data from database with statement \"" + sqlString + "\" (" + e + ").");
+    }
+    finally {
+        DMI.closeResultSet(rs);
+    }
+    readTimeSeriesList_SetRepeated ( repeatedMap, tsMap, tslist );
+    dataTimer.stop();
+    if ( Message.isStatusLevelEnabled(2) ) {
+        Message.printStatus(2,routine,"Read " + valueCount + " values for " + tsWithDataMap.size() + " of " + positions.size() +
+            " time series from \"" + dataTable + "\" selecttime=" + selectTimer.getMilliseconds() +
+            "ms, datatime=" + dataTimer.getMilliseconds() + "ms");
+    }
+}
+
+/**
+Set time series for repeated identifiers to copies of the time series that were read, for readTimeSeriesList(),
+so that the list contains separate time series like when each identifier is read with readTimeSeries().
+@param repeatedMap map of positions in the time series list to metadata identifiers, for repeated identifiers
+@param tsMap map of metadata identifiers to the time series that were read
+@param tslist list of time series being read
+*/
+private void readTimeSeriesList_SetRepeated ( Map<Integer,Long> repeatedMap, Map<Long,TS> tsMap, List<TS> tslist )
+{
+    for ( Map.Entry<Integer,Long> entry : repeatedMap.entrySet() ) {
+        tslist.set(entry.getKey(), (TS)tsMap.get(entry.getValue()).clone());
+    }
+}
+
+/**
+Set time series metadata for a list of time series identifiers from the metadata cache, for readTimeSeriesList().
+@param tsidentList time series identifiers, which may include nulls for invalid identifiers
+@param tsMetaList list of time series metadata to set, in the same order as the identifiers
+@return true if the metadata were set from the cache, false if the cache is not available and the database
+must be queried
+*/
+private boolean readTimeSeriesList_ReadMetaFromCache ( List<TSIdent> tsidentList, List<TimeSeriesMeta> tsMetaList )
+{   String routine = "GenericDatabaseDataStore.readTimeSeriesList_ReadMetaFromCache";
+    for ( int its = 0; its < tsidentList.size(); its++ ) {
+        TSIdent tsident = tsidentList.get(its);
+        if ( tsident == null ) {
+            continue;
+        }
+        List<TimeSeriesMeta> matches = this.timeSeriesMetaCache.readMatching ( tsident.getLocationType(),
+            tsident.getLocation(), tsident.getSource(), tsident.getType(), tsident.getInterval(), tsident.getScenario() );
+        if ( matches == null ) {
+            return false;
+        }
+        if ( matches.size() != 1 ) {
+            Message.printWarning(3, routine, "Expecting 1 time series meta object for \"" + tsident +
+                "\" but have " + matches.size() );
+        }
+        else if ( matches.get(0).getId() >= 0 ) {
+            TimeSeriesMeta match = matches.get(0);
+            tsMetaList.set(its, new TimeSeriesMeta(tsident.getLocationType(), tsident.getLocation(),
+                tsident.getSource(), tsident.getType(), tsident.getInterval(), tsident.getScenario(),
+                match.getDescription(), match.getUnits(), match.getId()));
+        }
+    }
+    return true;
+}
+
+/**
+Read time series metadata for a list of time series identifiers, for readTimeSeriesList().
+Metadata are read with one query for each batch of location identifiers and are then matched to the
+time series identifiers.
+@param tsidentList time series identifiers, which may include nulls for invalid identifiers
+@return list of time series metadata in the same order as the identifiers, with null for identifiers that are null
+or do not match exactly one metadata record
+*/
+private List<TimeSeriesMeta> readTimeSeriesList_ReadMeta ( List<TSIdent> tsidentList )
+{   String routine = "GenericDatabaseDataStore.readTimeSeriesList_ReadMeta";
+    int nts = tsidentList.size();
+    List<TimeSeriesMeta> tsMetaList = new ArrayList<TimeSeriesMeta>(nts);
+    for ( int its = 0; its < nts; its++ ) {
+        tsMetaList.add(null);
+    }
+    DMI dmi = getDMI();
+    String metaTable = getProperty ( GenericDatabaseDataStore.TS_META_TABLE_PROP );
+    String idColumn = getProperty ( GenericDatabaseDataStore.TS_META_TABLE_ID_COLUMN_PROP );
+    String ltColumn = getProperty ( GenericDatabaseDataStore.TS_META_TABLE_LOCTYPE_COLUMN_PROP );
+    String locIdColumn = getProperty ( GenericDatabaseDataStore.TS_META_TABLE_LOCATIONID_COLUMN_PROP );
+    String sourceColumn = getProperty ( GenericDatabaseDataStore.TS_META_TABLE_DATASOURCE_COLUMN_PROP );
+    String dtColumn = getProperty ( GenericDatabaseDataStore.TS_META_TABLE_DATATYPE_COLUMN_PROP );
+    String intervalColumn = getProperty ( GenericDatabaseDataStore.TS_META_TABLE_DATAINTERVAL_COLUMN_PROP );
+    String scenarioColumn = getProperty ( GenericDatabaseDataStore.TS_META_TABLE_SCENARIO_COLUMN_PROP );
+    String descColumn = getProperty ( GenericDatabaseDataStore.TS_META_TABLE_DESCRIPTION_COLUMN_PROP );
+    String unitsColumn = getProperty ( GenericDatabaseDataStore.TS_META_TABLE_UNITS_COLUMN_PROP );
+    if ( idColumn == null ) {
+        // Consistent with readTimeSeriesMeta(), the identifier is required to read data
+        return tsMetaList;
+    }
+    if ( readTimeSeriesList_ReadMetaFromCache ( tsidentList, tsMetaList ) ) {
+        return tsMetaList;
+    }
+    // Process the time series identifiers in batches
+    for ( int ib = 0; ib < nts; ib += READ_TIME_SERIES_LIST_BATCH_SIZE ) {
+        int ibEnd = Math.min(nts, ib + READ_TIME_SERIES_LIST_BATCH_SIZE);
+        // Determine the distinct location identifiers to query - if any are blank or *, query all locations
+        List<String> locIDs = new ArrayList<String>();
+        Set<String> locIDSet = new HashSet<String>();
+        boolean allLocations = (locIdColumn == null);
+        for ( int its = ib; its < ibEnd; its++ ) {
+            TSIdent tsident = tsidentList.get(its);
+            if ( tsident == null ) {
+                continue;
+            }
+            String locID = tsident.getLocation();
+            if ( (locID == null) || locID.equals("") || locID.equals("*") ) {
+                allLocations = true;
+            }
+            else if ( locIDSet.add(locID) ) {
+                locIDs.add(locID);
+            }
+        }
+        if ( !allLocations && (locIDs.size() == 0) ) {
+            continue;
+        }
+        DMISelectStatement ss = new DMISelectStatement(dmi);
+        ss.addTable(metaTable);
+        ss.addField(idColumn);
+        if ( ltColumn != null ) {
+            ss.addField(ltColumn);
+        }
+        if ( locIdColumn != null ) {
+            ss.addField(locIdColumn);
+        }
+        if ( sourceColumn != null ) {
+            ss.addField(sourceColumn);
+        }
+        if ( dtColumn != null ) {
+            ss.addField(dtColumn);
+        }
+        if ( intervalColumn != null ) {
+            ss.addField(intervalColumn);
+        }
+        if ( scenarioColumn != null ) {
+            ss.addField(scenarioColumn);
+        }
+        if ( descColumn != null ) {
+            ss.addField(descColumn);
+        }
+        if ( unitsColumn != null ) {
+            ss.addField(unitsColumn);
+        }
+        if ( !allLocations ) {
+            readTimeSeriesList_AddMetaWhereIn(ss,metaTable,locIdColumn,locIDs);
+        }
+        String sqlString = ss.toString();
+        ResultSet rs = null;
+        long l, id;
+        String s;
+        // Location type, location ID, data source, data type, interval, scenario, description, units
+        String [] columns = { ltColumn, locIdColumn, sourceColumn, dtColumn, intervalColumn, scenarioColumn,
+            descColumn, unitsColumn };
+        String [] values = new String[columns.length];
+        int index;
+        // Metadata records, keyed by location identifier
+        Map<String,List<TimeSeriesMeta>> metaMap = new HashMap<String,List<TimeSeriesMeta>>();
+        List<TimeSeriesMeta> metaAll = new ArrayList<TimeSeriesMeta>();
+        try {
+            rs = dmi.dmiSelect(ss);
+            while (rs.next()) {
+                index = 1;
+                id = -1;
+                l = rs.getLong(index++);
+                if (!rs.wasNull()) {
+                    id = l;
+                }
+                for ( int i = 0; i < columns.length; i++ ) {
+                    values[i] = "";
+                    if ( columns[i] != null ) {
+                        s = rs.getString(index++);
+                        if (!rs.wasNull()) {
+                            values[i] = s;
+                        }
+                    }
+                }
+                TimeSeriesMeta meta = new TimeSeriesMeta(values[0], values[1], values[2], values[3], values[4], values[5],
+                    values[6], values[7], id);
+                metaAll.add(meta);
+                List<TimeSeriesMeta> metaForLocation = metaMap.get(values[1]);
+                if ( metaForLocation == null ) {
+                    metaForLocation = new ArrayList<TimeSeriesMeta>();
+                    metaMap.put(values[1], metaForLocation);
+                }
+                metaForLocation.add(meta);
+            }
+        }
+        catch ( Exception e ) {
+            Message.printWarning ( 3, routine, "Error reading time series metadata from database with statement \"" + sqlString + "\" (" + e + ").");
+            continue;
+        }
+        finally {
+            DMI.closeResultSet(rs);
+        }
+        // Match the metadata records to the time series identifiers
+        for ( int its = ib; its < ibEnd; its++ ) {
+            TSIdent tsident = tsidentList.get(its);
+            if ( tsident == null ) {
+                continue;
+            }
+            List<TimeSeriesMeta> candidates = metaAll;
+            String locID = tsident.getLocation();
+            if ( (locIdColumn != null) && (locID != null) && !locID.equals("") && !locID.equals("*") ) {
+                candidates = metaMap.get(locID);
+                if ( candidates == null ) {
+                    candidates = new ArrayList<TimeSeriesMeta>();
+                }
+            }
+            int count = 0;
+            TimeSeriesMeta match = null;
+            for ( TimeSeriesMeta meta : candidates ) {
+                if ( readTimeSeriesList_MetaMatches(ltColumn, tsident.getLocationType(), meta.getLocationType()) &&
+                    readTimeSeriesList_MetaMatches(sourceColumn, tsident.getSource(), meta.getDataSource()) &&
+                    readTimeSeriesList_MetaMatches(dtColumn, tsident.getType(), meta.getDataType()) &&
+                    readTimeSeriesList_MetaMatches(intervalColumn, tsident.getInterval(), meta.getInterval()) &&
+                    readTimeSeriesList_MetaMatches(scenarioColumn, tsident.getScenario(), meta.getScenario()) ) {
+                    ++count;
+                    match = meta;
+                }
+            }
+            if ( count != 1 ) {
+                Message.printWarning(3, routine, "Expecting 1 time series meta object for \"" + tsident +
+                    "\" but have " + count );
+            }
+            else if ( match.getId() >= 0 ) {
+                tsMetaList.set(its, new TimeSeriesMeta(tsident.getLocationType(), tsident.getLocation(),
+                    tsident.getSource(), tsident.getType(), tsident.getInterval(), tsident.getScenario(),
+                    match.getDescription(), match.getUnits(), match.getId()));
+            }
+        }
+    }
+    return tsMetaList;
+}
+
 /**
 Read time series metadata for one time series.
 @return the time series metadata object, or null if not exactly 1 metadata records match.
@@ -652,6 +1369,21 @@ Read time series metadata for one time series.
 public TimeSeriesMeta readTimeSeriesMeta ( String locType, String locID,
     String dataSource, String dataType, String interval, String scenario )
 {   String routine = "GenericDatabaseDataStore.readTimeSeriesMeta";
+    // Use the metadata cache if available
+    List<TimeSeriesMeta> cached = this.timeSeriesMetaCache.readMatching ( locType, locID, dataSource, dataType, interval, scenario );
+    if ( cached != null ) {
+        if ( cached.size() != 1 ) {
+            Message.printWarning(3, routine, "Expecting 1 time series meta object for \"" + locType + "." + locID + "." +
+                dataSource + "." + dataType + "." + interval + "." + scenario + "\" but have " + cached.size() );
+            return null;
+        }
+        TimeSeriesMeta match = cached.get(0);
+        if ( match.getId() < 0 ) {
+            return null;
+        }
+        return new TimeSeriesMeta(locType, locID, dataSource, dataType, interval, scenario,
+            match.getDescription(), match.getUnits(), match.getId());
+    }
     DMI dmi = getDMI();
     // Create a statement to read the specific metadata record
     DMISelectStatement ss = new DMISelectStatement(dmi);
@@ -784,6 +1516,13 @@ public List<String> readTimeSeriesMetaDataSourceList ( String locType, String lo
 {   String routine = "GenericDatabaseDataStore.readDataSourceStrings";
     DMI dmi = getDMI();
     List<String> dataSources = new Vector<String>();
+    // Use the metadata cache if available
+    List<String> cached = this.timeSeriesMetaCache.readDistinct (
+        GenericDatabaseDataStore_TimeSeriesMetaCache.DATA_SOURCE, locType, locID, null, dataType, interval, scenario );
+    if ( cached != null ) {
+        dataSources.addAll(cached);
+        return dataSources;
+    }
     // Create a statement to read distinct data types from the time series metadata table
     DMISelectStatement ss = new DMISelectStatement(dmi);
     String metaTable = getProperty ( GenericDatabaseDataStore.TS_META_TABLE_PROP );
@@ -804,7 +1543,7 @@ public List<String> readTimeSeriesMetaDataSourceList ( String locType, String lo
     ss.selectDistinct(true);
     ss.addOrderByClause(sourceColumn);
     String sqlString = ss.toString();
-    Message.printStatus(2,routine,"Running:" + sqlString );
+    Message.printStatus(2,routine,() -> "Running:" + sqlString );
     ResultSet rs = null;
     String s;
     try {
@@ -842,6 +1581,13 @@ public List<String> readTimeSeriesMetaDataTypeList ( boolean includeNotes,
 {   String routine = "GenericDatabaseDataStore.readTimeSeriesMetaDataTypeList";
     DMI dmi = getDMI();
     List<String> dataTypes = new Vector<String>();
+    // Use the metadata cache if available
+    List<String> cached = this.timeSeriesMetaCache.readDistinct (
+        GenericDatabaseDataStore_TimeSeriesMetaCache.DATA_TYPE, locType, locID, dataSource, null, interval, scenario );
+    if ( cached != null ) {
+        dataTypes.addAll(cached);
+        return dataTypes;
+    }
     // Create a statement to read distinct data types from the time series metadata table
     DMISelectStatement ss = new DMISelectStatement(dmi);
     String metaTable = getProperty ( GenericDatabaseDataStore.TS_META_TABLE_PROP );
@@ -897,6 +1643,13 @@ public List<String> readTimeSeriesMetaIntervalList ( String locType, String locI
 {   String routine = "GenericDatabaseDataStore.readIntervalStrings";
     DMI dmi = getDMI();
     List<String> intervals = new Vector<String>();
+    // Use the metadata cache if available
+    List<String> cached = this.timeSeriesMetaCache.readDistinct (
+        GenericDatabaseDataStore_TimeSeriesMetaCache.INTERVAL, locType, locID, dataSource, dataType, null, scenario );
+    if ( cached != null ) {
+        intervals.addAll(cached);
+        return intervals;
+    }
     // Create a statement to read distinct data types from the time series metadata table
     DMISelectStatement ss = new DMISelectStatement(dmi);
     String metaTable = getProperty ( GenericDatabaseDataStore.TS_META_TABLE_PROP );
@@ -917,7 +1670,7 @@ public List<String> readTimeSeriesMetaIntervalList ( String locType, String locI
     ss.selectDistinct(true);
     ss.addOrderByClause(intervalColumn);
     String sqlString = ss.toString();
-    Message.printStatus(2,routine,"Running:" + sqlString );
+    Message.printStatus(2,routine,() -> "Running:" + sqlString );
     ResultSet rs = null;
     String s;
     try {
@@ -1035,7 +1788,7 @@ public List<TimeSeriesMeta> readTimeSeriesMetaList ( String dataType, String int
         Message.printWarning(3, routine, "Error adding where clauses (" + e + ")." );
     }
     String sqlString = ss.toString();
-    Message.printStatus(2, routine, "Running:  " + sqlString );
+    Message.printStatus(2, routine, () -> "Running:  " + sqlString );
     ResultSet rs = null;
     long l, id = -1;
     String s, desc = "", units = "";
@@ -1149,6 +1902,13 @@ public List<String> readTimeSeriesMetaLocationIDList ( String locType, String da
 {   String routine = "GenericDatabaseDataStore.readLocationIDStrings";
     DMI dmi = getDMI();
     List<String> locIDs = new Vector<String>();
+    // Use the metadata cache if available
+    List<String> cached = this.timeSeriesMetaCache.readDistinct (
+        GenericDatabaseDataStore_TimeSeriesMetaCache.LOCATION_ID, locType, null, dataSource, dataType, interval, scenario );
+    if ( cached != null ) {
+        locIDs.addAll(cached);
+        return locIDs;
+    }
     // Create a statement to read distinct data types from the time series metadata table
     DMISelectStatement ss = new DMISelectStatement(dmi);
     String metaTable = getProperty ( GenericDatabaseDataStore.TS_META_TABLE_PROP );
@@ -1169,7 +1929,7 @@ public List<String> readTimeSeriesMetaLocationIDList ( String locType, String da
     ss.selectDistinct(true);
     ss.addOrderByClause(idColumn);
     String sqlString = ss.toString();
-    Message.printStatus(2,routine,"Running:" + sqlString );
+    Message.printStatus(2,routine,() -> "Running:" + sqlString );
     ResultSet rs = null;
     String s;
     try {
@@ -1205,6 +1965,13 @@ public List<String> readTimeSeriesMetaLocationTypeList ( String locID, String da
 {   String routine = "GenericDatabaseDataStore.readLocationTypeStrings";
     DMI dmi = getDMI();
     List<String> locTypes = new Vector<String>();
+    // Use the metadata cache if available
+    List<String> cached = this.timeSeriesMetaCache.readDistinct (
+        GenericDatabaseDataStore_TimeSeriesMetaCache.LOCATION_TYPE, null, locID, dataSource, dataType, interval, scenario );
+    if ( cached != null ) {
+        locTypes.addAll(cached);
+        return locTypes;
+    }
     // Create a statement to read distinct data types from the time series metadata table
     DMISelectStatement ss = new DMISelectStatement(dmi);
     String metaTable = getProperty ( GenericDatabaseDataStore.TS_META_TABLE_PROP );
@@ -1225,7 +1992,7 @@ public List<String> readTimeSeriesMetaLocationTypeList ( String locID, String da
     ss.selectDistinct(true);
     ss.addOrderByClause(ltColumn);
     String sqlString = ss.toString();
-    Message.printStatus(2,routine,"Running:" + sqlString );
+    Message.printStatus(2,routine,() -> "Running:" + sqlString );
     ResultSet rs = null;
     String s;
     try {
@@ -1248,6 +2015,7 @@ public List<String> readTimeSeriesMetaLocationTypeList ( String locID, String da
 
 /**
 Utility method to add a where clause to the metadata select statement.
+The value is bound as a parameter so that the DMI can reuse the prepared statement for other values.
 @param ss select statement to execute
 @param table table to query
 @param column for where clause
@@ -1257,7 +2025,7 @@ private void readTimeSeriesMetaAddWhere ( DMISelectStatement ss, String table, S
 {
     if ( (value != null) && !value.equals("") && !value.equals("*") ) {
         try {
-            ss.addWhereClause(table + "." + column + " = '" + value + "'" );
+            ss.addWhereClause(table + "." + column + " = ?", value );
         }
         catch ( Exception e ) {
             // Should not happen
@@ -1280,6 +2048,13 @@ public List<String> readTimeSeriesMetaScenarioList ( String locType, String locI
 {   String routine = "GenericDatabaseDataStore.readDataSourceStrings";
     DMI dmi = getDMI();
     List<String> scenarios = new Vector<String>();
+    // Use the metadata cache if available
+    List<String> cached = this.timeSeriesMetaCache.readDistinct (
+        GenericDatabaseDataStore_TimeSeriesMetaCache.SCENARIO, locType, locID, dataSource, dataType, interval, null );
+    if ( cached != null ) {
+        scenarios.addAll(cached);
+        return scenarios;
+    }
     // Create a statement to read distinct data types from the time series metadata table
     DMISelectStatement ss = new DMISelectStatement(dmi);
     String metaTable = getProperty ( GenericDatabaseDataStore.TS_META_TABLE_PROP );
@@ -1300,7 +2075,7 @@ public List<String> readTimeSeriesMetaScenarioList ( String locType, String locI
     ss.selectDistinct(true);
     ss.addOrderByClause(scenarioColumn);
     String sqlString = ss.toString();
-    Message.printStatus(2,routine,"Running:" + sqlString );
+    Message.printStatus(2,routine,() -> "Running:" + sqlString );
     ResultSet rs = null;
     String s;
     try {
@@ -0,0 +1,491 @@
+// GenericDatabaseDataStore_TimeSeriesMetaCache - in-memory cache of the time series metadata table
+
+/* NoticeStart
+
+CDSS Common Java Library
+CDSS Common Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Common Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Common Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Common Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package riverside.datastore;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import RTi.DMI.DMI;
+import RTi.DMI.DMISelectStatement;
+import RTi.Util.Message.Message;
+
+/**
+In-memory cache of the time series metadata table for a GenericDatabaseDataStore.
+The cache is used only if enabled with a time to live (see below).
+The metadata table is read the first time that the cache is used and the records are indexed
+by location type, location ID, data source, data type, interval, and scenario,
+so that the choice lists and time series metadata lookups can be answered without querying the database.
+The distinct values of each of these columns are also read with ORDER BY so that lists of distinct values
+are in the same order as when the database is queried.
+The table is read again when the cache is older than the time to live, or after invalidate() is called.
+<p>
+The cache is configured with the following datastore properties, which are read each time the table is read:
+<ul>
+<li> TimeSeriesMetadataTable_CacheTimeToLive - time to live in seconds (default 0, which disables the cache)</li>
+<li> TimeSeriesMetadataTable_CacheMaxRecords - maximum number of metadata records to cache (default 100000),
+if the table has more records, the cache is not used and the database is queried</li>
+</ul>
+Consistent with the database queries in GenericDatabaseDataStore, values are matched exactly and filters
+that are null, blank, or * match any value.
+Databases that compare strings ignoring case should therefore not enable the cache.
+*/
+public class GenericDatabaseDataStore_TimeSeriesMetaCache
+{
+
+/**
+Datastore property for the cache time to live, in seconds.
+*/
+public static final String CACHE_TIME_TO_LIVE_PROP = "TimeSeriesMetadataTable_CacheTimeToLive";
+
+/**
+Datastore property for the maximum number of metadata records to cache.
+*/
+public static final String CACHE_MAX_RECORDS_PROP = "TimeSeriesMetadataTable_CacheMaxRecords";
+
+/**
+Positions of metadata values, used with readDistinct().
+*/
+public static final int LOCATION_TYPE = 0;
+public static final int LOCATION_ID = 1;
+public static final int DATA_SOURCE = 2;
+public static final int DATA_TYPE = 3;
+public static final int INTERVAL = 4;
+public static final int SCENARIO = 5;
+private static final int DESCRIPTION = 6;
+private static final int UNITS = 7;
+
+/**
+Number of metadata values that can be used as filters.
+*/
+private static final int FILTER_COUNT = 6;
+
+/**
+Datastore properties for the metadata table columns, in the order of the metadata value positions.
+*/
+private static final String [] COLUMN_PROPS = {
+    GenericDatabaseDataStore.TS_META_TABLE_LOCTYPE_COLUMN_PROP,
+    GenericDatabaseDataStore.TS_META_TABLE_LOCATIONID_COLUMN_PROP,
+    GenericDatabaseDataStore.TS_META_TABLE_DATASOURCE_COLUMN_PROP,
+    GenericDatabaseDataStore.TS_META_TABLE_DATATYPE_COLUMN_PROP,
+    GenericDatabaseDataStore.TS_META_TABLE_DATAINTERVAL_COLUMN_PROP,
+    GenericDatabaseDataStore.TS_META_TABLE_SCENARIO_COLUMN_PROP,
+    GenericDatabaseDataStore.TS_META_TABLE_DESCRIPTION_COLUMN_PROP,
+    GenericDatabaseDataStore.TS_META_TABLE_UNITS_COLUMN_PROP };
+
+/**
+Metadata record, with values in the order of the metadata value positions (null if the column is not
+configured or the value is null in the database).
+*/
+private static class CachedRecord
+{
+    String [] values = new String[COLUMN_PROPS.length];
+    long id = -1;
+}
+
+/**
+Datastore that provides the DMI and configuration properties.
+*/
+private GenericDatabaseDataStore dataStore;
+
+/**
+Time to live in milliseconds, or 0 if the cache is disabled.
+*/
+private long timeToLive = 0;
+
+/**
+Maximum number of metadata records to cache.
+*/
+private int maxRecords = 100000;
+
+/**
+Metadata table columns from the datastore properties, in the order of the metadata value positions
+(null if not configured).
+*/
+private String [] columns = new String[COLUMN_PROPS.length];
+
+/**
+Cached metadata records, or null if the table has not been read, could not be read, or is too large to cache.
+*/
+private List<CachedRecord> records = null;
+
+/**
+Indexes of records for each filter position, keyed by value.
+*/
+private List<Map<String,List<CachedRecord>>> indexList = new ArrayList<Map<String,List<CachedRecord>>>();
+
+/**
+Distinct values for each filter position, in the database ORDER BY order.
+*/
+private List<List<String>> distinctList = new ArrayList<List<String>>();
+
+/**
+Time (milliseconds) when the table was last read, or -1 if the table needs to be read.
+*/
+private long loadTime = -1;
+
+/**
+Number of requests answered from the cache.
+*/
+private long hitCount = 0;
+
+/**
+Number of requests that required reading the metadata table.
+*/
+private long missCount = 0;
+
+/**
+Construct the cache for a datastore.  The metadata table is not read until the cache is used.
+@param dataStore datastore that provides the DMI and configuration properties
+*/
+public GenericDatabaseDataStore_TimeSeriesMetaCache ( GenericDatabaseDataStore dataStore )
+{
+    this.dataStore = dataStore;
+}
+
+/**
+Check that the metadata records are loaded and current, reading the metadata table if necessary.
+The hit count is incremented if the records are current, and the miss count is incremented by load() if the
+metadata table is read.  Neither is incremented if the cache is disabled.
+@return true if the records are available, false if the database must be queried.
+*/
+private boolean checkLoaded ()
+{
+    if ( (this.loadTime >= 0) && ((this.timeToLive <= 0) ||
+        ((System.currentTimeMillis() - this.loadTime) < this.timeToLive)) ) {
+        // Cache is current (or disabled, which is rechecked after invalidate())
+        if ( this.records == null ) {
+            return false;
+        }
+        ++this.hitCount;
+        return true;
+    }
+    load();
+    return this.records != null;
+}
+
+/**
+Return the candidate records for the filters, using the index with the fewest records.
+@param filters filter values in the order of the metadata value positions
+@return candidate records, which must still be checked with matches()
+*/
+private List<CachedRecord> getCandidates ( String [] filters )
+{
+    List<CachedRecord> candidates = this.records;
+    for ( int i = 0; i < FILTER_COUNT; i++ ) {
+        if ( isFilter(i, filters[i]) ) {
+            List<CachedRecord> indexed = this.indexList.get(i).get(filters[i]);
+            if ( indexed == null ) {
+                return new ArrayList<CachedRecord>();
+            }
+            if ( indexed.size() < candidates.size() ) {
+                candidates = indexed;
+            }
+        }
+    }
+    return candidates;
+}
+
+/**
+Return the number of requests answered from the cache.
+@return the number of cache hits.
+*/
+public synchronized long getHitCount ()
+{
+    return this.hitCount;
+}
+
+/**
+Return the number of requests that required reading the metadata table.
+@return the number of cache misses.
+*/
+public synchronized long getMissCount ()
+{
+    return this.missCount;
+}
+
+/**
+Return the number of cached metadata records.
+@return the number of cached metadata records, or 0 if the records are not cached.
+*/
+public synchronized int getRecordCount ()
+{
+    if ( this.records == null ) {
+        return 0;
+    }
+    return this.records.size();
+}
+
+/**
+Invalidate the cache so that the metadata table is read again the next time that the cache is used,
+for example after the metadata table has been modified.
+*/
+public synchronized void invalidate ()
+{
+    this.loadTime = -1;
+    this.records = null;
+    this.indexList.clear();
+    this.distinctList.clear();
+}
+
+/**
+Indicate whether a filter value is used for a position.
+Consistent with GenericDatabaseDataStore.readTimeSeriesMetaAddWhere(), null, blank, and * are not filters.
+Filters for columns that are not configured are also ignored.
+*/
+private boolean isFilter ( int position, String value )
+{
+    return (this.columns[position] != null) && (value != null) && !value.equals("") && !value.equals("*");
+}
+
+/**
+Read the metadata table into the cache, if enabled, and increment the miss count.
+*/
+private void load ()
+{   String routine = getClass().getSimpleName() + ".load";
+    this.records = null;
+    this.indexList.clear();
+    this.distinctList.clear();
+    this.loadTime = System.currentTimeMillis();
+    this.timeToLive = 0;
+    this.maxRecords = 100000;
+    String propValue = this.dataStore.getProperty ( CACHE_TIME_TO_LIVE_PROP );
+    if ( (propValue != null) && !propValue.trim().equals("") ) {
+        try {
+            this.timeToLive = Long.parseLong(propValue.trim())*1000L;
+        }
+        catch ( NumberFormatException e ) {
+            Message.printWarning ( 3, routine, CACHE_TIME_TO_LIVE_PROP + " (" + propValue + ") is not an integer - using default." );
+        }
+    }
+    propValue = this.dataStore.getProperty ( CACHE_MAX_RECORDS_PROP );
+    if ( (propValue != null) && !propValue.trim().equals("") ) {
+        try {
+            this.maxRecords = Integer.parseInt(propValue.trim());
+        }
+        catch ( NumberFormatException e ) {
+            Message.printWarning ( 3, routine, CACHE_MAX_RECORDS_PROP + " (" + propValue + ") is not an integer - using default." );
+        }
+    }
+    String metaTable = this.dataStore.getProperty ( GenericDatabaseDataStore.TS_META_TABLE_PROP );
+    String idColumn = this.dataStore.getProperty ( GenericDatabaseDataStore.TS_META_TABLE_ID_COLUMN_PROP );
+    for ( int i = 0; i < COLUMN_PROPS.length; i++ ) {
+        this.columns[i] = this.dataStore.getProperty ( COLUMN_PROPS[i] );
+    }
+    if ( (this.timeToLive <= 0) || (metaTable == null) ) {
+        // Cache is disabled or time series metadata are not configured
+        return;
+    }
+    ++this.missCount;
+    DMI dmi = this.dataStore.getDMI();
+    DMISelectStatement ss = new DMISelectStatement(dmi);
+    ss.addTable(metaTable);
+    if ( idColumn != null ) {
+        ss.addField(idColumn);
+    }
+    for ( int i = 0; i < this.columns.length; i++ ) {
+        if ( this.columns[i] != null ) {
+            ss.addField(this.columns[i]);
+        }
+    }
+    String sqlString = ss.toString();
+    List<CachedRecord> recordList = new ArrayList<CachedRecord>();
+    ResultSet rs = null;
+    long l;
+    String s;
+    int index;
+    try {
+        rs = dmi.dmiSelect(ss);
+        while (rs.next()) {
+            if ( recordList.size() == this.maxRecords ) {
+                Message.printStatus ( 2, routine, "Time series metadata table has more than " + this.maxRecords +
+                    " records - not caching." );
+                return;
+            }
+            CachedRecord record = new CachedRecord();
+            index = 1;
+            if ( idColumn != null ) {
+                l = rs.getLong(index++);
+                if (!rs.wasNull()) {
+                    record.id = l;
+                }
+            }
+            for ( int i = 0; i < this.columns.length; i++ ) {
+                if ( this.columns[i] != null ) {
+                    s = rs.getString(index++);
+                    if (!rs.wasNull()) {
+                        record.values[i] = s;
+                    }
+                }
+            }
+            recordList.add(record);
+        }
+    }
+    catch ( Exception e ) {
+        Message.printWarning ( 3, routine, "Error reading time series metadata from database with statement \"" + sqlString + "\" (" + e + ").");
+        return;
+    }
+    finally {
+        DMI.closeResultSet(rs);
+    }
+    // Read the distinct values of each filter column in the database order
+    List<List<String>> distinctList = new ArrayList<List<String>>();
+    for ( int i = 0; i < FILTER_COUNT; i++ ) {
+        List<String> values = new ArrayList<String>();
+        if ( this.columns[i] != null ) {
+            ss = new DMISelectStatement(dmi);
+            ss.addTable(metaTable);
+            ss.addField(this.columns[i]);
+            ss.selectDistinct(true);
+            ss.addOrderByClause(this.columns[i]);
+            String distinctSqlString = ss.toString();
+            try {
+                rs = dmi.dmiSelect(ss);
+                while (rs.next()) {
+                    s = rs.getString(1);
+                    if (!rs.wasNull()) {
+                        values.add(s);
+                    }
+                }
+            }
+            catch ( Exception e ) {
+                Message.printWarning ( 3, routine, "Error reading time series metadata from database with statement \"" + distinctSqlString + "\" (" + e + ").");
+                return;
+            }
+            finally {
+                DMI.closeResultSet(rs);
+            }
+        }
+        distinctList.add(values);
+    }
+    // Index the records by each filter value
+    for ( int i = 0; i < FILTER_COUNT; i++ ) {
+        Map<String,List<CachedRecord>> index1 = new HashMap<String,List<CachedRecord>>();
+        if ( this.columns[i] != null ) {
+            for ( CachedRecord record : recordList ) {
+                if ( record.values[i] != null ) {
+                    String key = record.values[i];
+                    List<CachedRecord> indexed = index1.get(key);
+                    if ( indexed == null ) {
+                        indexed = new ArrayList<CachedRecord>();
+                        index1.put(key, indexed);
+                    }
+                    indexed.add(record);
+                }
+            }
+        }
+        this.indexList.add(index1);
+    }
+    this.distinctList = distinctList;
+    this.records = recordList;
+    Message.printStatus ( 2, routine, "Cached " + recordList.size() + " time series metadata records." );
+}
+
+/**
+Indicate whether a record matches the filters.
+*/
+private boolean matches ( CachedRecord record, String [] filters )
+{
+    for ( int i = 0; i < FILTER_COUNT; i++ ) {
+        if ( isFilter(i, filters[i]) && !filters[i].equals(record.values[i]) ) {
+            return false;
+        }
+    }
+    return true;
+}
+
+/**
+Read the distinct values of a metadata column, for records that match the filters.
+The filter for the column being read is ignored.
+@param position position of the metadata value to read (e.g., DATA_TYPE)
+@param locType location type to use as filter (ignored if blank or null)
+@param locID location ID to use as filter (ignored if blank or null)
+@param dataSource data source to use as filter (ignored if blank or null)
+@param dataType data type to use as filter (ignored if blank or null)
+@param interval interval to use as filter (ignored if blank or null)
+@param scenario scenario to use as filter (ignored if blank or null)
+@return the list of distinct non-null values, in the database ORDER BY order, or null if the cache is not
+available and the database must be queried
+*/
+public synchronized List<String> readDistinct ( int position, String locType, String locID, String dataSource,
+    String dataType, String interval, String scenario )
+{
+    if ( !checkLoaded() ) {
+        return null;
+    }
+    String [] filters = { locType, locID, dataSource, dataType, interval, scenario };
+    filters[position] = null;
+    Set<String> values = new HashSet<String>();
+    for ( CachedRecord record : getCandidates(filters) ) {
+        if ( (record.values[position] != null) && matches(record, filters) ) {
+            values.add(record.values[position]);
+        }
+    }
+    // Return the values in the order that the database would
+    List<String> valueList = new ArrayList<String>(values.size());
+    for ( String value : this.distinctList.get(position) ) {
+        if ( values.contains(value) ) {
+            valueList.add(value);
+        }
+    }
+    return valueList;
+}
+
+/**
+Read the time series metadata for records that match the filters.
+@param locType location type to use as filter (ignored if blank or null)
+@param locID location ID to use as filter (ignored if blank or null)
+@param dataSource data source to use as filter (ignored if blank or null)
+@param dataType data type to use as filter (ignored if blank or null)
+@param interval interval to use as filter (ignored if blank or null)
+@param scenario scenario to use as filter (ignored if blank or null)
+@return the list of matching metadata, with blank strings for null values, or null if the cache is not available
+and the database must be queried
+*/
+public synchronized List<TimeSeriesMeta> readMatching ( String locType, String locID, String dataSource,
+    String dataType, String interval, String scenario )
+{
+    if ( !checkLoaded() ) {
+        return null;
+    }
+    String [] filters = { locType, locID, dataSource, dataType, interval, scenario };
+    List<TimeSeriesMeta> metaList = new ArrayList<TimeSeriesMeta>();
+    for ( CachedRecord record : getCandidates(filters) ) {
+        if ( matches(record, filters) ) {
+            String [] values = new String[record.values.length];
+            for ( int i = 0; i < values.length; i++ ) {
+                values[i] = (record.values[i] == null) ? "" : record.values[i];
+            }
+            metaList.add(new TimeSeriesMeta(values[LOCATION_TYPE], values[LOCATION_ID], values[DATA_SOURCE],
+                values[DATA_TYPE], values[INTERVAL], values[SCENARIO], values[DESCRIPTION], values[UNITS], record.id));
+        }
+    }
+    return metaList;
+}
+
+}
@@ -0,0 +1,457 @@
+// TimeSeriesReadExecutor - read time series from datastores concurrently on a bounded thread pool
+
+/* NoticeStart
+
+CDSS Common Java Library
+CDSS Common Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Common Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Common Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Common Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package riverside.datastore;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import RTi.DMI.AbstractDatabaseDataStore;
+import RTi.DMI.DMI;
+import RTi.TS.TS;
+import RTi.TS.TSIdent;
+import RTi.Util.Message.Message;
+import RTi.Util.Time.DateTime;
+
+/**
+Read time series from datastores concurrently on a bounded thread pool.
+Time series are requested with a list of time series identifiers, where the input type (the part after ~)
+is the name of the datastore to read from.  Results are returned in the order of the requested identifiers.
+<p>
+The number of concurrent reads for each datastore is limited, so that a datastore is not sent more requests
+than it can handle.  The default limit for a database datastore is the DMI connection pool size
+(1 if the DMI does not use a connection pool, because the DMI connection cannot be shared by
+concurrent queries).  The default limit for other datastores, such as plugin datastores, is 1 because
+they may not be thread-safe.  Use setConcurrencyLimit() to allow more concurrent reads for a datastore.
+Reads that are waiting on a datastore limit do not occupy a thread, so reads from other datastores can proceed.
+<p>
+readTimeSeriesBatches() returns the time series in batches and reads the next batch while the caller
+processes the current batch.  readTimeSeriesList() reads all of the time series at once.
+<p>
+Time series are read with PluginDataStore.readTimeSeries() or GenericDatabaseDataStore.readTimeSeries().
+Other datastores can be supported by overriding readTimeSeries(DataStore,...).
+Threads are virtual threads if the Java runtime supports them (Java 21+), otherwise daemon threads.
+The executor should be closed with close() when no longer needed.
+*/
+public class TimeSeriesReadExecutor
+{
+
+/**
+Read requests waiting to run for a datastore, and the number of running reads, used to limit
+concurrent reads for the datastore.
+*/
+private static class DataStoreQueue
+{
+    int limit;
+    int runningCount = 0;
+    LinkedList<Runnable> pendingList = new LinkedList<Runnable>();
+}
+
+/**
+Datastores that time series can be read from.
+*/
+private List<DataStore> dataStoreList;
+
+/**
+Thread pool used to read time series.
+*/
+private ExecutorService executor;
+
+/**
+Number of time series in each batch returned by readTimeSeriesBatches().
+*/
+private int batchSize = 50;
+
+/**
+Read queues for each datastore.
+*/
+private Map<DataStore,DataStoreQueue> queueMap = new IdentityHashMap<DataStore,DataStoreQueue>();
+
+/**
+Construct an executor for a list of datastores.
+@param dataStoreList datastores that time series can be read from
+@param threadCount maximum number of time series to read at the same time (1+)
+*/
+public TimeSeriesReadExecutor ( List<? extends DataStore> dataStoreList, int threadCount )
+{
+    if ( threadCount < 1 ) {
+        throw new IllegalArgumentException ( "Thread count (" + threadCount + ") must be 1+." );
+    }
+    this.dataStoreList = new ArrayList<DataStore>(dataStoreList);
+    ThreadPoolExecutor executor = new ThreadPoolExecutor ( threadCount, threadCount, 30, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), createThreadFactory() );
+    executor.allowCoreThreadTimeOut ( true );
+    this.executor = executor;
+}
+
+/**
+Close the executor.  Reads that have not started are cancelled, returning null time series,
+and running reads are interrupted.
+*/
+public void close ()
+{
+    List<Runnable> cancelList = this.executor.shutdownNow();
+    synchronized ( this.queueMap ) {
+        for ( DataStoreQueue queue : this.queueMap.values() ) {
+            cancelList.addAll ( queue.pendingList );
+            queue.pendingList.clear();
+        }
+    }
+    // Cancelled reads complete with null because the executor is shut down
+    for ( Runnable read : cancelList ) {
+        read.run();
+    }
+}
+
+/**
+Create the factory for the read threads, using virtual threads if supported by the Java runtime.
+Reflection is used so that the code compiles and runs with older Java versions.
+@return the thread factory
+*/
+private static ThreadFactory createThreadFactory ()
+{
+    try {
+        Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+        builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "TimeSeriesRead-", 1L);
+        return (ThreadFactory)builderClass.getMethod("factory").invoke(builder);
+    }
+    catch ( Exception e ) {
+        // Virtual threads are not available so use daemon threads
+        final AtomicInteger count = new AtomicInteger(0);
+        return new ThreadFactory() {
+            public Thread newThread ( Runnable r ) {
+                Thread thread = new Thread ( r, "TimeSeriesRead-" + count.incrementAndGet() );
+                thread.setDaemon ( true );
+                return thread;
+            }
+        };
+    }
+}
+
+/**
+Return the number of time series in each batch returned by readTimeSeriesBatches().
+@return the batch size
+*/
+public int getBatchSize ()
+{
+    return this.batchSize;
+}
+
+/**
+Return the maximum number of concurrent reads for a datastore.
+@param dataStore datastore to check
+@return the maximum number of concurrent reads for the datastore
+*/
+public int getConcurrencyLimit ( DataStore dataStore )
+{
+    synchronized ( this.queueMap ) {
+        return getQueue(dataStore).limit;
+    }
+}
+
+/**
+Return the datastore to read a time series identifier from, which is the datastore with name matching the
+input type (ignoring case), or the only datastore if the identifier does not include the input type.
+@param tsid time series identifier
+@return the datastore, or null if not found
+@exception Exception if the time series identifier is invalid
+*/
+public DataStore getDataStoreForTSID ( String tsid )
+throws Exception
+{
+    String inputType = TSIdent.parseIdentifier(tsid).getInputType();
+    if ( inputType.isEmpty() ) {
+        return (this.dataStoreList.size() == 1) ? this.dataStoreList.get(0) : null;
+    }
+    for ( DataStore dataStore : this.dataStoreList ) {
+        if ( dataStore.getName().equalsIgnoreCase(inputType) ) {
+            return dataStore;
+        }
+    }
+    return null;
+}
+
+/**
+Return the read queue for a datastore, creating with the default concurrency limit if necessary.
+Must be called when synchronized on the queue map.
+@param dataStore datastore to read from
+@return the read queue for the datastore
+*/
+private DataStoreQueue getQueue ( DataStore dataStore )
+{
+    DataStoreQueue queue = this.queueMap.get(dataStore);
+    if ( queue == null ) {
+        queue = new DataStoreQueue();
+        queue.limit = 1;
+        if ( dataStore instanceof AbstractDatabaseDataStore ) {
+            DMI dmi = ((AbstractDatabaseDataStore)dataStore).getDMI();
+            if ( (dmi != null) && (dmi.getConnectionPool() != null) ) {
+                queue.limit = Math.max(1, dmi.getConnectionPoolSize());
+            }
+        }
+        this.queueMap.put(dataStore, queue);
+    }
+    return queue;
+}
+
+/**
+Return the time series for read requests, in the order of the requests, waiting for the reads to complete.
+@param futureList read requests
+@return the time series, with null for time series that could not be read
+*/
+private List<TS> getResults ( List<CompletableFuture<TS>> futureList )
+{
+    List<TS> tsList = new ArrayList<TS>(futureList.size());
+    for ( CompletableFuture<TS> future : futureList ) {
+        tsList.add ( future.join() );
+    }
+    return tsList;
+}
+
+/**
+Read a time series from a datastore.  This is called on a read thread.
+@param dataStore datastore to read from
+@param tsid time series identifier
+@param readStart start of period to read, or null to read all data
+@param readEnd end of period to read, or null to read all data
+@param readData if true, read data, if false, only read metadata
+@return the time series, or null if not found
+@exception Exception if the datastore does not support reading time series or the read fails
+*/
+protected TS readTimeSeries ( DataStore dataStore, String tsid, DateTime readStart, DateTime readEnd, boolean readData )
+throws Exception
+{
+    if ( dataStore instanceof PluginDataStore ) {
+        return ((PluginDataStore)dataStore).readTimeSeries(tsid, readStart, readEnd, readData);
+    }
+    else if ( dataStore instanceof GenericDatabaseDataStore ) {
+        return ((GenericDatabaseDataStore)dataStore).readTimeSeries(tsid, readStart, readEnd, readData);
+    }
+    else {
+        throw new UnsupportedOperationException ( "Datastore \"" + dataStore.getName() +
+            "\" does not support reading time series." );
+    }
+}
+
+/**
+Read time series in batches.  The first batch is read when the iterator is created, and each call to next()
+starts reading the following batch before returning the current batch, so that reading overlaps processing.
+Stopping the iteration early leaves at most one batch being read.
+@param tsidList time series identifiers to read
+@param readStart start of period to read, or null to read all data
+@param readEnd end of period to read, or null to read all data
+@param readData if true, read data, if false, only read metadata
+@return iterator for batches of time series, each in the order of the requested identifiers,
+with null for time series that could not be read
+*/
+public Iterator<List<TS>> readTimeSeriesBatches ( final List<String> tsidList, final DateTime readStart,
+    final DateTime readEnd, final boolean readData )
+{
+    final int batchSize = this.batchSize;
+    return new Iterator<List<TS>>() {
+        private int submitCount = 0;
+        private LinkedList<List<CompletableFuture<TS>>> batchList = new LinkedList<List<CompletableFuture<TS>>>();
+        {
+            submitBatch();
+        }
+        private void submitBatch () {
+            if ( this.submitCount < tsidList.size() ) {
+                int end = Math.min(this.submitCount + batchSize, tsidList.size());
+                this.batchList.add ( submit(tsidList.subList(this.submitCount, end), readStart, readEnd, readData) );
+                this.submitCount = end;
+            }
+        }
+        public boolean hasNext () {
+            return !this.batchList.isEmpty();
+        }
+        public List<TS> next () {
+            if ( this.batchList.isEmpty() ) {
+                throw new NoSuchElementException();
+            }
+            List<CompletableFuture<TS>> batch = this.batchList.removeFirst();
+            // Prefetch the next batch while the caller processes this batch
+            submitBatch();
+            return getResults ( batch );
+        }
+        public void remove () {
+            throw new UnsupportedOperationException();
+        }
+    };
+}
+
+/**
+Read time series, returning when all have been read.
+@param tsidList time series identifiers to read
+@param readStart start of period to read, or null to read all data
+@param readEnd end of period to read, or null to read all data
+@param readData if true, read data, if false, only read metadata
+@return time series in the order of the requested identifiers, with null for time series that could not be read
+*/
+public List<TS> readTimeSeriesList ( List<String> tsidList, DateTime readStart, DateTime readEnd, boolean readData )
+{
+    return getResults ( submit(tsidList, readStart, readEnd, readData) );
+}
+
+/**
+Run the next pending read for a datastore queue, or decrement the running count if none are pending.
+@param queue datastore queue for a read that has completed
+*/
+private void runNext ( DataStoreQueue queue )
+{
+    Runnable next;
+    synchronized ( this.queueMap ) {
+        next = queue.pendingList.poll();
+        if ( next == null ) {
+            --queue.runningCount;
+            return;
+        }
+    }
+    execute ( next );
+}
+
+/**
+Execute a read on the thread pool.  If the executor has been closed, the read is run on the calling thread,
+which completes with a null time series because the read is not started.
+@param read the read to run
+*/
+private void execute ( Runnable read )
+{
+    try {
+        this.executor.execute ( read );
+    }
+    catch ( RejectedExecutionException e ) {
+        read.run();
+    }
+}
+
+/**
+Set the number of time series in each batch returned by readTimeSeriesBatches().
+@param batchSize the batch size (1+)
+*/
+public void setBatchSize ( int batchSize )
+{
+    if ( batchSize < 1 ) {
+        throw new IllegalArgumentException ( "Batch size (" + batchSize + ") must be 1+." );
+    }
+    this.batchSize = batchSize;
+}
+
+/**
+Set the maximum number of concurrent reads for a datastore.  The limit applies to reads started after the call.
+@param dataStore datastore to limit
+@param limit the maximum number of concurrent reads (1+)
+*/
+public void setConcurrencyLimit ( DataStore dataStore, int limit )
+{
+    if ( limit < 1 ) {
+        throw new IllegalArgumentException ( "Concurrency limit (" + limit + ") must be 1+." );
+    }
+    synchronized ( this.queueMap ) {
+        getQueue(dataStore).limit = limit;
+    }
+}
+
+/**
+Submit read requests.  Each request is queued for its datastore and is started when the datastore
+concurrency limit allows.
+@param tsidList time series identifiers to read
+@param readStart start of period to read, or null to read all data
+@param readEnd end of period to read, or null to read all data
+@param readData if true, read data, if false, only read metadata
+@return read requests, in the order of the identifiers
+*/
+private List<CompletableFuture<TS>> submit ( List<String> tsidList, final DateTime readStart,
+    final DateTime readEnd, final boolean readData )
+{
+    String routine = "TimeSeriesReadExecutor.submit";
+    List<CompletableFuture<TS>> futureList = new ArrayList<CompletableFuture<TS>>(tsidList.size());
+    for ( final String tsid : tsidList ) {
+        final CompletableFuture<TS> future = new CompletableFuture<TS>();
+        futureList.add ( future );
+        final DataStore dataStore;
+        try {
+            dataStore = getDataStoreForTSID ( tsid );
+        }
+        catch ( Exception e ) {
+            Message.printWarning ( 3, routine, "Time series identifier \"" + tsid + "\" is invalid (" + e + ")." );
+            future.complete ( null );
+            continue;
+        }
+        if ( dataStore == null ) {
+            Message.printWarning ( 3, routine, "No datastore is available to read \"" + tsid + "\"." );
+            future.complete ( null );
+            continue;
+        }
+        final DataStoreQueue queue;
+        boolean run = false;
+        Runnable read;
+        synchronized ( this.queueMap ) {
+            queue = getQueue(dataStore);
+            read = new Runnable() {
+                public void run () {
+                    TS ts = null;
+                    try {
+                        if ( !executor.isShutdown() ) {
+                            ts = readTimeSeries ( dataStore, tsid, readStart, readEnd, readData );
+                        }
+                    }
+                    catch ( Exception e ) {
+                        Message.printWarning ( 3, "TimeSeriesReadExecutor.readTimeSeries",
+                            "Error reading \"" + tsid + "\" from datastore \"" + dataStore.getName() + "\" (" + e + ")." );
+                    }
+                    finally {
+                        future.complete ( ts );
+                        runNext ( queue );
+                    }
+                }
+            };
+            if ( queue.runningCount < queue.limit ) {
+                ++queue.runningCount;
+                run = true;
+            }
+            else {
+                queue.pendingList.add ( read );
+            }
+        }
+        if ( run ) {
+            execute ( read );
+        }
+    }
+    return futureList;
+}
+
+}
@@ -0,0 +1,211 @@
+package RTi.DMI;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Test cases for the DMIBatchWriter class, using stub JDBC connections that record the calls.
+ */
+public class DMIBatchWriterTest extends TestCase {
+
+   /**
+    * Log of calls for all connections.
+    */
+   private List<String> log = Collections.synchronizedList(new ArrayList<String>());
+
+   /**
+    * Connections that were created, the first being the DMI connection.
+    */
+   private List<StubConnection> connections = new ArrayList<StubConnection>();
+
+   /**
+    * Create an open, editable PostgreSQL DMI that uses stub connections.
+    */
+   private DMI createDMI () throws Exception {
+       DMI dmi = new GenericDMI ( "PostgreSQL", "localhost", "test", 5432, "login", "password" ) {
+           Connection createConnection () {
+               StubConnection connection = new StubConnection ( "c" + (connections.size() + 1), log );
+               connections.add ( connection );
+               return connection.connection;
+           }
+       };
+       dmi.open();
+       dmi.setEditable ( true );
+       return dmi;
+   }
+
+   /**
+    * Create a statement that writes a record, with bound values.
+    */
+   private DMIWriteStatement createStatement ( DMI dmi, int id ) throws Exception {
+       DMIWriteStatement s = new DMIWriteStatement ( dmi );
+       s.setBindValues ( true );
+       s.addTable ( "ts_value" );
+       s.addField ( "id" );
+       s.addValue ( id );
+       s.addField ( "value" );
+       s.addValue ( id*1.5 );
+       s.addWhereClause ( "id = " + id );
+       return s;
+   }
+
+   /**
+    * Test that statements are executed in batches of the batch size, with the remainder executed by close().
+    */
+   public void testBatchSize () throws Exception {
+       DMI dmi = createDMI();
+       DMIBatchWriter writer = new DMIBatchWriter ( dmi, DMIWriteModeType.INSERT );
+       writer.setBatchSize ( 3 );
+       for ( int i = 0; i < 7; i++ ) {
+           writer.add ( createStatement(dmi, i) );
+       }
+       assertEquals ( 6, writer.getWriteCount() );
+       writer.close();
+       assertEquals ( 7, writer.getWriteCount() );
+       assertEquals ( Arrays.asList("c1 executeBatch 3", "c1 executeBatch 3", "c1 executeBatch 1"), log );
+       assertEquals ( 3, writer.getBatchMilliseconds().size() );
+       assertTrue ( connections.get(0).autoCommit );
+   }
+
+   /**
+    * Test that auto-commit is turned off while writing with a commit interval, that changes are committed
+    * after the commit interval and by close(), and that auto-commit is then restored.
+    */
+   public void testCommitInterval () throws Exception {
+       DMI dmi = createDMI();
+       DMIBatchWriter writer = new DMIBatchWriter ( dmi, DMIWriteModeType.INSERT );
+       writer.setBatchSize ( 2 );
+       writer.setCommitInterval ( 4 );
+       for ( int i = 0; i < 7; i++ ) {
+           writer.add ( createStatement(dmi, i) );
+       }
+       writer.close();
+       assertEquals ( Arrays.asList(
+           "c1 setAutoCommit false",
+           "c1 executeBatch 2", "c1 executeBatch 2", "c1 commit",
+           "c1 executeBatch 2", "c1 executeBatch 1", "c1 commit",
+           "c1 setAutoCommit true"), log );
+       assertEquals ( 7, writer.getWriteCount() );
+   }
+
+   /**
+    * Test that when a batch fails, the batch error is thrown, no more statements can be added, and close() rolls
+    * back the changes since the last commit, does not execute or commit the remaining statements, and restores
+    * auto-commit.
+    */
+   public void testBatchError () throws Exception {
+       DMI dmi = createDMI();
+       connections.get(0).failExecuteBatch = 3;
+       DMIBatchWriter writer = new DMIBatchWriter ( dmi, DMIWriteModeType.INSERT );
+       writer.setBatchSize ( 2 );
+       writer.setCommitInterval ( 4 );
+       for ( int i = 0; i < 5; i++ ) {
+           writer.add ( createStatement(dmi, i) );
+       }
+       try {
+           writer.add ( createStatement(dmi, 5) );
+           fail ( "Expected the third batch to fail." );
+       }
+       catch ( SQLException e ) {
+           // The batch error rather than an error clearing the batch
+           assertEquals ( "Batch failed.", e.getMessage() );
+       }
+       try {
+           writer.add ( createStatement(dmi, 6) );
+           fail ( "Expected add() to fail after a batch error." );
+       }
+       catch ( SQLException e ) {
+           // Expected
+       }
+       writer.close();
+       assertEquals ( Arrays.asList(
+           "c1 setAutoCommit false",
+           "c1 executeBatch 2", "c1 executeBatch 2", "c1 commit",
+           "c1 rollback",
+           "c1 setAutoCommit true"), log );
+       assertEquals ( 4, writer.getWriteCount() );
+   }
+
+   /**
+    * Test that when the last batch fails in close(), the changes are rolled back rather than committed,
+    * auto-commit is restored, and the error is thrown.
+    */
+   public void testCloseError () throws Exception {
+       DMI dmi = createDMI();
+       connections.get(0).failExecuteBatch = 2;
+       DMIBatchWriter writer = new DMIBatchWriter ( dmi, DMIWriteModeType.INSERT );
+       writer.setBatchSize ( 2 );
+       writer.setCommitInterval ( 10 );
+       for ( int i = 0; i < 3; i++ ) {
+           writer.add ( createStatement(dmi, i) );
+       }
+       try {
+           writer.close();
+           fail ( "Expected close() to fail executing the last batch." );
+       }
+       catch ( SQLException e ) {
+           assertEquals ( "Batch failed.", e.getMessage() );
+       }
+       assertEquals ( Arrays.asList(
+           "c1 setAutoCommit false",
+           "c1 executeBatch 2",
+           "c1 rollback",
+           "c1 setAutoCommit true"), log );
+       assertTrue ( connections.get(0).autoCommit );
+   }
+
+   /**
+    * Test that when a commit fails, close() rolls back and restores auto-commit without committing again.
+    */
+   public void testCommitError () throws Exception {
+       DMI dmi = createDMI();
+       connections.get(0).failCommit = true;
+       DMIBatchWriter writer = new DMIBatchWriter ( dmi, DMIWriteModeType.INSERT );
+       writer.setBatchSize ( 2 );
+       writer.setCommitInterval ( 2 );
+       writer.add ( createStatement(dmi, 0) );
+       try {
+           writer.add ( createStatement(dmi, 1) );
+           fail ( "Expected the commit to fail." );
+       }
+       catch ( SQLException e ) {
+           // Expected
+       }
+       writer.close();
+       assertEquals ( Arrays.asList(
+           "c1 setAutoCommit false",
+           "c1 executeBatch 2",
+           "c1 rollback",
+           "c1 setAutoCommit true"), log );
+   }
+
+   /**
+    * Test that statements that cannot be batched as an upsert (here because key fields are not set) are written
+    * one at a time on the DMI connection, in the same transaction as the batches, even if a connection pool is used.
+    */
+   public void testUnbatchedStatementsUseWriterConnection () throws Exception {
+       DMI dmi = createDMI();
+       dmi.setConnectionPoolSize ( 2 );
+       DMIBatchWriter writer = new DMIBatchWriter ( dmi, DMIWriteModeType.UPDATE_INSERT );
+       writer.setCommitInterval ( 10 );
+       writer.add ( createStatement(dmi, 0) );
+       writer.add ( createStatement(dmi, 1) );
+       writer.close();
+       assertEquals ( 1, connections.size() );
+       assertEquals ( Arrays.asList(
+           "c1 setAutoCommit false",
+           "c1 executeUpdate UPDATE ts_value SET id = ?, value = ? WHERE id = 0",
+           "c1 executeUpdate INSERT INTO ts_value (id, value) VALUES (?, ?)",
+           "c1 executeUpdate UPDATE ts_value SET id = ?, value = ? WHERE id = 1",
+           "c1 executeUpdate INSERT INTO ts_value (id, value) VALUES (?, ?)",
+           "c1 commit",
+           "c1 setAutoCommit true"), log );
+       assertEquals ( 2, writer.getWriteCount() );
+   }
+}
@@ -0,0 +1,183 @@
+package RTi.DMI;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Test cases for the DMIConnectionPool class, using stub JDBC connections.
+ */
+public class DMIConnectionPoolTest extends TestCase {
+
+   /**
+    * Log of calls for all connections.
+    */
+   private List<String> log = Collections.synchronizedList(new ArrayList<String>());
+
+   /**
+    * Connections that were created by the DMI.
+    */
+   private List<StubConnection> connections = new ArrayList<StubConnection>();
+
+   /**
+    * Create a connection pool for a DMI that creates stub connections.
+    */
+   private DMIConnectionPool createPool ( int maxSize ) throws Exception {
+       DMI dmi = new GenericDMI ( "PostgreSQL", "localhost", "test", 5432, "login", "password" ) {
+           Connection createConnection () {
+               StubConnection connection = new StubConnection ( "c" + (connections.size() + 1), log );
+               connections.add ( connection );
+               return connection.connection;
+           }
+       };
+       return new DMIConnectionPool ( dmi, maxSize );
+   }
+
+   /**
+    * Test that connections are created as needed up to the pool size and that returned connections are reused.
+    */
+   public void testCheckOutCheckIn () throws Exception {
+       DMIConnectionPool pool = createPool ( 2 );
+       Connection c1 = pool.checkOut();
+       Connection c2 = pool.checkOut();
+       assertNotSame ( c1, c2 );
+       assertEquals ( 2, connections.size() );
+       assertEquals ( 2, pool.getCheckedOutCount() );
+       assertEquals ( 0, pool.getIdleCount() );
+       pool.checkIn ( c2 );
+       assertEquals ( 1, pool.getCheckedOutCount() );
+       assertEquals ( 1, pool.getIdleCount() );
+       // The returned connection is reused rather than creating a new connection
+       assertSame ( c2, pool.checkOut() );
+       assertEquals ( 2, connections.size() );
+       assertFalse ( connections.get(1).closed );
+   }
+
+   /**
+    * Test that checkOut() waits for a connection to be returned when all connections are checked out,
+    * and times out if a connection is not returned.
+    */
+   public void testCheckOutWait () throws Exception {
+       final DMIConnectionPool pool = createPool ( 1 );
+       pool.setCheckOutTimeout ( 100 );
+       final Connection c1 = pool.checkOut();
+       try {
+           pool.checkOut();
+           fail ( "Expected a timeout waiting for a connection." );
+       }
+       catch ( SQLException e ) {
+           // Expected
+       }
+       pool.setCheckOutTimeout ( 10000 );
+       Thread thread = new Thread() {
+           public void run () {
+               try {
+                   Thread.sleep ( 100 );
+               }
+               catch ( InterruptedException e ) {
+               }
+               pool.checkIn ( c1 );
+           }
+       };
+       thread.start();
+       assertSame ( c1, pool.checkOut() );
+       thread.join();
+       assertEquals ( 1, connections.size() );
+   }
+
+   /**
+    * Test that an idle connection that is no longer valid is closed and replaced, and that a connection that
+    * was closed while checked out is discarded when returned.
+    */
+   public void testValidation () throws Exception {
+       DMIConnectionPool pool = createPool ( 2 );
+       pool.setValidationInterval ( 0 );
+       Connection c1 = pool.checkOut();
+       pool.checkIn ( c1 );
+       // Valid connection is reused
+       assertSame ( c1, pool.checkOut() );
+       pool.checkIn ( c1 );
+       // Broken connection is discarded and a new connection is created
+       connections.get(0).valid = false;
+       Connection c2 = pool.checkOut();
+       assertNotSame ( c1, c2 );
+       assertTrue ( connections.get(0).closed );
+       assertEquals ( 2, connections.size() );
+       assertEquals ( 1, pool.getCheckedOutCount() );
+       assertEquals ( 0, pool.getIdleCount() );
+       // Closed connection is not returned to the idle list
+       c2.close();
+       pool.checkIn ( c2 );
+       assertEquals ( 0, pool.getCheckedOutCount() );
+       assertEquals ( 0, pool.getIdleCount() );
+   }
+
+   /**
+    * Test that validation is skipped for connections that have been idle less than the validation interval.
+    */
+   public void testValidationInterval () throws Exception {
+       DMIConnectionPool pool = createPool ( 2 );
+       pool.setValidationInterval ( 60000 );
+       Connection c1 = pool.checkOut();
+       pool.checkIn ( c1 );
+       connections.get(0).valid = false;
+       assertSame ( c1, pool.checkOut() );
+   }
+
+   /**
+    * Test that close() closes the idle connections, that checked out connections are closed when returned,
+    * and that connections cannot be checked out after the pool is closed.
+    */
+   public void testClose () throws Exception {
+       DMIConnectionPool pool = createPool ( 2 );
+       Connection c1 = pool.checkOut();
+       Connection c2 = pool.checkOut();
+       pool.checkIn ( c1 );
+       pool.close();
+       assertTrue ( connections.get(0).closed );
+       assertFalse ( connections.get(1).closed );
+       pool.checkIn ( c2 );
+       assertTrue ( connections.get(1).closed );
+       assertEquals ( 0, pool.getIdleCount() );
+       try {
+           pool.checkOut();
+           fail ( "Expected checkOut() to fail after close()." );
+       }
+       catch ( SQLException e ) {
+           // Expected
+       }
+   }
+
+   /**
+    * Test that DMIUtil queries return pooled connections to the pool when the result set is closed,
+    * so that repeated calls do not use up the pool.  The smallest DMI connection pool (2) is used,
+    * with a short check-out timeout so that a leaked connection causes the query to fail.
+    */
+   public void testDMIUtilReturnsConnections () throws Exception {
+       DMI dmi = new GenericDMI ( "PostgreSQL", "localhost", "test", 5432, "login", "password" ) {
+           Connection createConnection () {
+               StubConnection connection = new StubConnection ( "c" + (connections.size() + 1), log );
+               connections.add ( connection );
+               return connection.connection;
+           }
+       };
+       dmi.open();
+       dmi.setConnectionPoolSize ( 2 );
+       DMIConnectionPool pool = dmi.getConnectionPool();
+       pool.setCheckOutTimeout ( 100 );
+       for ( int i = 0; i < 10; i++ ) {
+           assertFalse ( DMIUtil.databaseHasTable(dmi, "ts_value") );
+           assertFalse ( DMIUtil.databaseTableHasColumn(dmi, "ts_value", "id") );
+           assertFalse ( DMIUtil.databaseHasStoredProcedure(dmi, "ts_read") );
+           assertEquals ( 1, DMIUtil.getMaxRecord(dmi, "ts_value", "id") );
+           assertEquals ( 0, pool.getCheckedOutCount() );
+       }
+       // The DMI connection and one pooled connection
+       assertEquals ( 2, connections.size() );
+       dmi.close();
+   }
+}
@@ -0,0 +1,114 @@
+package RTi.DMI;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import junit.framework.TestCase;
+import RTi.Util.Time.DateTime;
+
+/**
+ * Test cases for the DMI PreparedStatement cache and parameter binding, using a stub JDBC connection.
+ */
+public class DMIPreparedStatementTest extends TestCase {
+
+   /**
+    * Log of calls for the connection.
+    */
+   private List<String> log = Collections.synchronizedList(new ArrayList<String>());
+
+   /**
+    * Connection used by the DMI.
+    */
+   private StubConnection connection = null;
+
+   /**
+    * Create an open, editable PostgreSQL DMI that uses a stub connection.
+    */
+   private DMI createDMI () throws Exception {
+       DMI dmi = new GenericDMI ( "PostgreSQL", "localhost", "test", 5432, "login", "password" ) {
+           Connection createConnection () {
+               connection = new StubConnection ( "c1", log );
+               return connection.connection;
+           }
+       };
+       dmi.open();
+       dmi.setEditable ( true );
+       return dmi;
+   }
+
+   /**
+    * Run a parameterized query and close the result set.
+    */
+   private void select ( DMI dmi, String sql, Object ... parameters ) throws Exception {
+       ResultSet rs = dmi.dmiSelect ( sql, Arrays.asList(parameters), 0 );
+       assertTrue ( rs.next() );
+       DMI.closeResultSet ( rs );
+   }
+
+   /**
+    * Test that the same SQL reuses the cached PreparedStatement with new parameters, that different SQL
+    * is prepared separately, and that statements are not reused if the cache size is 0.
+    */
+   public void testStatementReused () throws Exception {
+       DMI dmi = createDMI();
+       String sql = "SELECT value FROM ts_value WHERE id = ?";
+       select ( dmi, sql, 1 );
+       select ( dmi, sql, 2 );
+       assertEquals ( 1, connection.prepareCount );
+       assertEquals ( Arrays.asList("1 setObject Integer 1", "1 setObject Integer 2"), connection.parameters );
+       select ( dmi, "SELECT value FROM ts_value WHERE name = ?", "A" );
+       select ( dmi, sql, 3 );
+       assertEquals ( 2, connection.prepareCount );
+       dmi.setPreparedStatementCacheSize ( 0 );
+       select ( dmi, sql, 4 );
+       select ( dmi, sql, 5 );
+       assertEquals ( 4, connection.prepareCount );
+   }
+
+   /**
+    * Test that null, Date and DateTime values from a write statement are bound with the parameter type and as
+    * Timestamp, and that a DateTime query parameter is bound as a Timestamp.
+    */
+   public void testBindValues () throws Exception {
+       DMI dmi = createDMI();
+       DMIWriteStatement s = new DMIWriteStatement ( dmi );
+       s.setBindValues ( true );
+       s.addTable ( "ts_value" );
+       s.addField ( "id" );
+       s.addNullValue();
+       s.addField ( "day" );
+       s.addValue ( new GregorianCalendar(2001, 1, 3, 12, 30).getTime() );
+       s.addField ( "date_time" );
+       s.addValue ( DateTime.parse("2001-02-03 04:05") );
+       dmi.dmiWrite ( s, DMI.INSERT );
+       assertEquals ( Arrays.asList("c1 executeUpdate INSERT INTO ts_value (id, day, date_time) VALUES (?, ?, ?)"),
+           log );
+       assertEquals ( Arrays.asList(
+           "1 setNull " + Types.INTEGER,
+           "2 setObject Timestamp 2001-02-03 00:00:00.0",
+           "3 setObject Timestamp 2001-02-03 04:05:00.0"), connection.parameters );
+       connection.parameters.clear();
+       select ( dmi, "SELECT value FROM ts_value WHERE date_time = ? AND id = ?",
+           DateTime.parse("2001-02-03 04:05"), null );
+       assertEquals ( Arrays.asList(
+           "1 setObject Timestamp 2001-02-03 04:05:00.0",
+           "2 setNull " + Types.INTEGER), connection.parameters );
+   }
+
+   /**
+    * Test that null values are bound as VARCHAR if the driver does not provide parameter metadata.
+    */
+   public void testNullWithoutParameterMetaData () throws Exception {
+       DMI dmi = createDMI();
+       connection.parameterType = Types.NULL;
+       select ( dmi, "SELECT value FROM ts_value WHERE id = ? AND name = ?", null, null );
+       assertEquals ( Arrays.asList("1 setNull " + Types.VARCHAR, "2 setNull " + Types.VARCHAR),
+           connection.parameters );
+   }
+}
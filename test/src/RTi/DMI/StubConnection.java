@@ -0,0 +1,281 @@
+package RTi.DMI;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JDBC connection stub for the DMI tests, which records the calls that change the database in a log
+ * shared by all connections, so that the tests do not need a database.
+ * Each log entry starts with the connection name, for example "c1 executeBatch 3", "c1 commit",
+ * "c1 executeUpdate INSERT INTO ...".  UPDATE statements executed with executeUpdate() return 0 rows
+ * so that UPDATE_INSERT writes then try an INSERT.  Queries return one row with the value 1 and
+ * database metadata queries return no rows.  Parameters set on PreparedStatements are recorded separately
+ * so that the tests can check the bound values.
+ */
+class StubConnection implements InvocationHandler {
+
+   /**
+    * Connection name used in the log.
+    */
+   final String name;
+
+   /**
+    * Log of calls, shared by all connections.
+    */
+   final List<String> log;
+
+   /**
+    * The connection proxy.
+    */
+   final Connection connection;
+
+   /**
+    * Auto-commit setting.
+    */
+   boolean autoCommit = true;
+
+   /**
+    * Whether the connection has been closed.
+    */
+   boolean closed = false;
+
+   /**
+    * Value returned by isValid() if the connection is not closed.
+    */
+   boolean valid = true;
+
+   /**
+    * Number of executeBatch() calls.
+    */
+   int executeBatchCount = 0;
+
+   /**
+    * executeBatch() call (1+) that throws an SQLException, or 0 to not fail.
+    * After the failure, clearBatch() also throws an SQLException.
+    */
+   int failExecuteBatch = 0;
+
+   /**
+    * Whether commit() throws an SQLException.
+    */
+   boolean failCommit = false;
+
+   /**
+    * Number of prepareStatement() calls.
+    */
+   int prepareCount = 0;
+
+   /**
+    * Parameters set on PreparedStatements, for example "1 setNull 4" or "2 setObject Timestamp 2001-02-03 04:05:00.0".
+    */
+   List<String> parameters = new ArrayList<String>();
+
+   /**
+    * Type returned by ParameterMetaData.getParameterType(), or Types.NULL if the driver does not support
+    * parameter metadata (getParameterMetaData() throws an SQLException).
+    */
+   int parameterType = Types.INTEGER;
+
+   StubConnection ( String name, List<String> log ) {
+       this.name = name;
+       this.log = log;
+       this.connection = (Connection)Proxy.newProxyInstance ( getClass().getClassLoader(),
+           new Class<?>[] { Connection.class }, this );
+   }
+
+   /**
+    * Return the default value for a method return type.
+    */
+   private static Object defaultValue ( Class<?> type ) {
+       if ( type == Boolean.TYPE ) {
+           return Boolean.FALSE;
+       }
+       else if ( type == Integer.TYPE ) {
+           return Integer.valueOf(0);
+       }
+       else if ( type == Long.TYPE ) {
+           return Long.valueOf(0);
+       }
+       return null;
+   }
+
+   public Object invoke ( Object proxy, Method method, Object [] args ) throws SQLException {
+       String methodName = method.getName();
+       if ( methodName.equals("equals") ) {
+           return Boolean.valueOf(proxy == args[0]);
+       }
+       else if ( methodName.equals("hashCode") ) {
+           return Integer.valueOf(System.identityHashCode(proxy));
+       }
+       else if ( methodName.equals("toString") ) {
+           return name;
+       }
+       else if ( methodName.equals("getAutoCommit") ) {
+           return Boolean.valueOf(autoCommit);
+       }
+       else if ( methodName.equals("setAutoCommit") ) {
+           autoCommit = (Boolean)args[0];
+           log.add ( name + " setAutoCommit " + autoCommit );
+           return null;
+       }
+       else if ( methodName.equals("commit") ) {
+           if ( failCommit ) {
+               throw new SQLException ( "Commit failed." );
+           }
+           log.add ( name + " commit" );
+           return null;
+       }
+       else if ( methodName.equals("rollback") ) {
+           log.add ( name + " rollback" );
+           return null;
+       }
+       else if ( methodName.equals("close") ) {
+           closed = true;
+           log.add ( name + " close" );
+           return null;
+       }
+       else if ( methodName.equals("isClosed") ) {
+           return Boolean.valueOf(closed);
+       }
+       else if ( methodName.equals("isValid") ) {
+           return Boolean.valueOf(valid && !closed);
+       }
+       else if ( methodName.equals("prepareStatement") ) {
+           ++prepareCount;
+           return createStatement ( PreparedStatement.class, (String)args[0] );
+       }
+       else if ( methodName.equals("createStatement") ) {
+           return createStatement ( Statement.class, null );
+       }
+       else if ( methodName.equals("getMetaData") ) {
+           return Proxy.newProxyInstance ( getClass().getClassLoader(), new Class<?>[] { DatabaseMetaData.class },
+               new InvocationHandler() {
+                   public Object invoke ( Object proxy, Method method, Object [] args ) {
+                       if ( method.getReturnType() == ResultSet.class ) {
+                           return createResultSet ( null, 0 );
+                       }
+                       else if ( method.getName().equals("getConnection") ) {
+                           return connection;
+                       }
+                       return defaultValue ( method.getReturnType() );
+                   }
+               });
+       }
+       return defaultValue ( method.getReturnType() );
+   }
+
+   /**
+    * Create a result set proxy for a query, with rows that each have the value 1 in all columns.
+    * @param statement statement that executed the query, or null for a metadata query.
+    * @param rowCount number of rows.
+    */
+   private ResultSet createResultSet ( final Statement statement, final int rowCount ) {
+       return (ResultSet)Proxy.newProxyInstance ( getClass().getClassLoader(), new Class<?>[] { ResultSet.class },
+           new InvocationHandler() {
+               int row = 0;
+               public Object invoke ( Object proxy, Method method, Object [] args ) {
+                   String methodName = method.getName();
+                   if ( methodName.equals("next") ) {
+                       return Boolean.valueOf(++row <= rowCount);
+                   }
+                   else if ( methodName.equals("getStatement") ) {
+                       return statement;
+                   }
+                   else if ( methodName.equals("getInt") ) {
+                       return Integer.valueOf(1);
+                   }
+                   return defaultValue ( method.getReturnType() );
+               }
+           });
+   }
+
+   /**
+    * Create a statement proxy.
+    * @param sql SQL for a PreparedStatement, or null for a Statement.
+    */
+   private Object createStatement ( Class<?> statementClass, final String sql ) {
+       return Proxy.newProxyInstance ( getClass().getClassLoader(), new Class<?>[] { statementClass },
+           new InvocationHandler() {
+               int batchCount = 0;
+               boolean batchFailed = false;
+               public Object invoke ( Object proxy, Method method, Object [] args ) throws SQLException {
+                   String methodName = method.getName();
+                   if ( methodName.equals("equals") ) {
+                       return Boolean.valueOf(proxy == args[0]);
+                   }
+                   else if ( methodName.equals("hashCode") ) {
+                       return Integer.valueOf(System.identityHashCode(proxy));
+                   }
+                   else if ( methodName.equals("toString") ) {
+                       return name + " statement";
+                   }
+                   else if ( methodName.equals("getConnection") ) {
+                       return connection;
+                   }
+                   else if ( methodName.equals("addBatch") ) {
+                       ++batchCount;
+                       return null;
+                   }
+                   else if ( methodName.equals("clearBatch") ) {
+                       if ( batchFailed ) {
+                           // Like a driver whose connection is broken by the failed batch
+                           throw new SQLException ( "Connection is broken." );
+                       }
+                       batchCount = 0;
+                       return null;
+                   }
+                   else if ( methodName.equals("executeBatch") ) {
+                       if ( ++executeBatchCount == failExecuteBatch ) {
+                           batchFailed = true;
+                           throw new SQLException ( "Batch failed." );
+                       }
+                       log.add ( name + " executeBatch " + batchCount );
+                       return new int[batchCount];
+                   }
+                   else if ( methodName.equals("setNull") ) {
+                       parameters.add ( args[0] + " setNull " + args[1] );
+                       return null;
+                   }
+                   else if ( methodName.equals("setObject") ) {
+                       parameters.add ( args[0] + " setObject " + args[1].getClass().getSimpleName() + " " + args[1] );
+                       return null;
+                   }
+                   else if ( methodName.equals("getParameterMetaData") ) {
+                       if ( parameterType == Types.NULL ) {
+                           throw new SQLFeatureNotSupportedException ( "Parameter metadata is not supported." );
+                       }
+                       return Proxy.newProxyInstance ( getClass().getClassLoader(),
+                           new Class<?>[] { ParameterMetaData.class }, new InvocationHandler() {
+                               public Object invoke ( Object proxy, Method method, Object [] args ) {
+                                   if ( method.getName().equals("getParameterType") ) {
+                                       return Integer.valueOf(parameterType);
+                                   }
+                                   return defaultValue ( method.getReturnType() );
+                               }
+                           });
+                   }
+                   else if ( methodName.equals("executeQuery") ) {
+                       return createResultSet ( (Statement)proxy, 1 );
+                   }
+                   else if ( methodName.equals("executeUpdate") ) {
+                       String updateSql = (sql == null) ? (String)args[0] : sql;
+                       log.add ( name + " executeUpdate " + updateSql );
+                       return Integer.valueOf(updateSql.startsWith("UPDATE") ? 0 : 1);
+                   }
+                   return defaultValue ( method.getReturnType() );
+               }
+           });
+   }
+}
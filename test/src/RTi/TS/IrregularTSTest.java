@@ -0,0 +1,260 @@
+package RTi.TS;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+import RTi.Util.Time.DateTime;
+
+/**
+Test irregular time series lookups, which use a sorted date/time index, against a sorted map of the same points.
+*/
+public class IrregularTSTest extends TestCase {
+
+	public IrregularTSTest(String testname)
+	{
+		super(testname);
+	}
+
+	public IrregularTSTest()
+	{
+
+	}
+
+	/**
+	Return the date/time for a minute offset from the reference date/time.
+	*/
+	private DateTime getDate ( int minute )
+	{
+		DateTime date = DateTime.parse("2000-01-01 00:00");
+		date.addMinute ( minute );
+		return date;
+	}
+
+	/**
+	Check all lookups of the time series against the expected points.
+	*/
+	private void checkLookups ( IrregularTS ts, TreeMap<Integer,Double> expected, int maxMinute ) throws Exception
+	{
+		assertEquals ( expected.size(), ts.getDataSize() );
+		int first = expected.firstKey();
+		int last = expected.lastKey();
+		for ( int minute = -5; minute <= maxMinute + 5; minute++ ) {
+			DateTime date = getDate ( minute );
+			Double value = expected.get(minute);
+			assertEquals ( "Value at " + date, ((value == null) ? ts.getMissing() : value), ts.getDataValue(date), 0.0 );
+			// Nearest next is only found within the period
+			checkPoint ( "Next at " + date, ((minute < first) || (minute > last)) ? null : expected.ceilingEntry(minute),
+				ts.findNearestNext(date, null, null, true) );
+			checkPoint ( "Next after " + date, ((minute < first) || (minute > last)) ? null : expected.higherEntry(minute),
+				ts.findNearestNext(date, null, null, false) );
+			checkPoint ( "Previous at " + date, expected.floorEntry(minute), ts.findNearestPrevious(date, true) );
+			checkPoint ( "Previous before " + date, expected.lowerEntry(minute), ts.findNearestPrevious(date, false) );
+		}
+		// The iterator returns the points in order
+		TSIterator tsi = ts.iterator();
+		TSData tsdata;
+		for ( Map.Entry<Integer,Double> entry : expected.entrySet() ) {
+			tsdata = tsi.next();
+			checkPoint ( "Iterator", entry, tsdata );
+		}
+		assertNull ( tsi.next() );
+	}
+
+	/**
+	Check that a data point matches an expected point (or that both are null).
+	*/
+	private void checkPoint ( String label, Map.Entry<Integer,Double> expected, TSData tsdata )
+	{
+		if ( expected == null ) {
+			assertNull ( label, tsdata );
+			return;
+		}
+		assertNotNull ( label, tsdata );
+		assertTrue ( label, getDate(expected.getKey()).equals(tsdata.getDate()) );
+		assertEquals ( label, expected.getValue(), tsdata.getDataValue(), 0.0 );
+	}
+
+	/**
+	Set values in random order, including resetting existing points, and remove points, checking the
+	lookups against a sorted map after each step.
+	*/
+	public void testLookups() throws Exception
+	{
+		int maxMinute = 2000;
+		Random random = new Random(11);
+		IrregularTS ts = new IrregularTS();
+		ts.setIdentifier ( "Loc.Source.Flow.Irregular" );
+		TreeMap<Integer,Double> expected = new TreeMap<Integer,Double>();
+		for ( int i = 0; i < 600; i++ ) {
+			int minute = random.nextInt(maxMinute + 1);
+			double value = random.nextInt(1000);
+			ts.setDataValue ( getDate(minute), value );
+			expected.put ( minute, value );
+		}
+		checkLookups ( ts, expected, maxMinute );
+		for ( int i = 0; i < 200; i++ ) {
+			int minute = random.nextInt(maxMinute + 1);
+			assertEquals ( expected.containsKey(minute), ts.removeDataPoint(getDate(minute)) );
+			expected.remove ( minute );
+		}
+		checkLookups ( ts, expected, maxMinute );
+	}
+
+	/**
+	Check that the iterator goTo*() methods leave the iterator where it was when a search fails and
+	reset_if_fail is true, and complete the iteration when reset_if_fail is false, for both storage modes.
+	*/
+	public void testIteratorGoToFailure() throws Exception
+	{
+		for ( int iStorage = 0; iStorage < 2; iStorage++ ) {
+			IrregularTS ts = new IrregularTS();
+			ts.setPackedStorage ( iStorage == 1 );
+			for ( int minute = 0; minute <= 30; minute += 10 ) {
+				ts.setDataValue ( getDate(minute), minute );
+			}
+			IrregularTSIterator tsi = (IrregularTSIterator)ts.iterator();
+			assertEquals ( 0.0, tsi.next().getDataValue(), 0.0 );
+			assertEquals ( 10.0, tsi.goTo(getDate(10), true).getDataValue(), 0.0 );
+			// No exact match so the search fails, leaving the iterator at 10
+			assertNull ( tsi.goTo(getDate(15), true) );
+			assertEquals ( 20.0, tsi.next().getDataValue(), 0.0 );
+			// Past the end and before the start, leaving the iterator at 20
+			assertNull ( tsi.goToNearestNext(getDate(35), true) );
+			assertNull ( tsi.goToNearestPrevious(getDate(-5), true) );
+			assertFalse ( tsi.isIterationComplete() );
+			assertEquals ( 30.0, tsi.next().getDataValue(), 0.0 );
+			// Successful searches still work after failures
+			assertEquals ( 20.0, tsi.goToNearestNext(getDate(15), true).getDataValue(), 0.0 );
+			assertEquals ( 10.0, tsi.goToNearestPrevious(getDate(15), true).getDataValue(), 0.0 );
+			// Without the reset, a failed search completes the iteration
+			assertNull ( tsi.goTo(getDate(15), false) );
+			assertTrue ( tsi.isIterationComplete() );
+			assertNull ( tsi.next() );
+		}
+	}
+
+	/**
+	Check that packed storage gives the same points, flags, and durations as list storage, including when
+	flags are appended, points are removed, and the storage is converted in either direction.
+	*/
+	public void testPackedStorage() throws Exception
+	{
+		int maxMinute = 1000;
+		Random random = new Random(13);
+		IrregularTS listTS = new IrregularTS();
+		IrregularTS packedTS = new IrregularTS();
+		packedTS.setPackedStorage ( true );
+		TreeMap<Integer,Double> expected = new TreeMap<Integer,Double>();
+		String [] flags = { "", "A", "+B", "E" };
+		for ( int i = 0; i < 400; i++ ) {
+			int minute = random.nextInt(maxMinute + 1);
+			double value = random.nextInt(1000);
+			String flag = flags[random.nextInt(flags.length)];
+			int duration = random.nextInt(3);
+			listTS.setDataValue ( getDate(minute), value, flag, duration );
+			packedTS.setDataValue ( getDate(minute), value, flag, duration );
+			expected.put ( minute, value );
+		}
+		for ( int i = 0; i < 100; i++ ) {
+			int minute = random.nextInt(maxMinute + 1);
+			assertEquals ( listTS.removeDataPoint(getDate(minute)), packedTS.removeDataPoint(getDate(minute)) );
+			expected.remove ( minute );
+		}
+		assertTrue ( packedTS.isPackedStorage() );
+		checkLookups ( packedTS, expected, maxMinute );
+		checkSamePoints ( listTS, packedTS );
+		// Convert the list time series to packed and the packed time series back to a list
+		IrregularTS listToPacked = (IrregularTS)listTS.clone();
+		listToPacked.setPackedStorage ( true );
+		checkSamePoints ( listTS, listToPacked );
+		IrregularTS packedToList = (IrregularTS)packedTS.clone();
+		packedToList.setPackedStorage ( false );
+		checkSamePoints ( listTS, packedToList );
+		assertEquals ( expected.size(), packedToList.getData().size() );
+		// getData() returns a view of the packed data rather than converting to list storage
+		IrregularTS packedData = (IrregularTS)packedTS.clone();
+		List<TSData> dataList = packedData.getData();
+		assertEquals ( expected.size(), dataList.size() );
+		assertTrue ( packedData.isPackedStorage() );
+		int i = 0;
+		for ( Map.Entry<Integer,Double> entry : expected.entrySet() ) {
+			checkPoint ( "View", entry, dataList.get(i++) );
+		}
+		checkSamePoints ( listTS, packedData );
+	}
+
+	/**
+	Check that changes to the TSData from the getData() view of packed data change the time series,
+	so that TSUtil methods that edit the list give the same result as for list storage, without
+	converting to list storage.
+	*/
+	public void testPackedDataView() throws Exception
+	{
+		IrregularTS listTS = new IrregularTS();
+		IrregularTS packedTS = new IrregularTS();
+		packedTS.setPackedStorage ( true );
+		for ( int minute = 0; minute < 100; minute += 5 ) {
+			listTS.setDataValue ( getDate(minute), minute, ((minute%10 == 0) ? "A" : ""), 0 );
+			packedTS.setDataValue ( getDate(minute), minute, ((minute%10 == 0) ? "A" : ""), 0 );
+		}
+		TSUtil.scale ( listTS, null, null, -1, "2" );
+		TSUtil.scale ( packedTS, null, null, -1, "2" );
+		TSUtil.addConstant ( listTS, getDate(20), getDate(50), 3.0 );
+		TSUtil.addConstant ( packedTS, getDate(20), getDate(50), 3.0 );
+		assertTrue ( packedTS.isPackedStorage() );
+		checkSamePoints ( listTS, packedTS );
+		assertEquals ( 20.0, packedTS.getDataValue(getDate(10)), 0.0 );
+		assertEquals ( 43.0, packedTS.getDataValue(getDate(20)), 0.0 );
+		// Flags, durations, and linked points of the view
+		List<TSData> dataList = packedTS.getData();
+		TSData tsdata = dataList.get(1);
+		tsdata.setDataFlag ( "+B" );
+		tsdata.setDuration ( 60 );
+		assertEquals ( "B", packedTS.getDataPoint(getDate(5), null).getDataFlag() );
+		assertEquals ( 60, packedTS.getDataPoint(getDate(5), null).getDuration() );
+		assertTrue ( getDate(10).equals(tsdata.getNext().getDate()) );
+		assertTrue ( getDate(0).equals(tsdata.getPrevious().getDate()) );
+		assertNull ( dataList.get(0).getPrevious() );
+		// A clone is not connected to the time series
+		TSData copy = (TSData)tsdata.clone();
+		copy.setDataValue ( -1.0 );
+		assertEquals ( 10.0, packedTS.getDataValue(getDate(5)), 0.0 );
+		try {
+			dataList.add ( new TSData() );
+			fail ( "View should not allow adding points" );
+		}
+		catch ( UnsupportedOperationException e ) {
+			// Expected
+		}
+		assertTrue ( packedTS.isPackedStorage() );
+		// No data is consistent with list storage
+		IrregularTS emptyTS = new IrregularTS();
+		emptyTS.setPackedStorage ( true );
+		assertNull ( emptyTS.getData() );
+	}
+
+	/**
+	Check that two time series have the same points, including flags and durations.
+	*/
+	private void checkSamePoints ( IrregularTS expected, IrregularTS ts ) throws Exception
+	{
+		assertEquals ( expected.getDataSize(), ts.getDataSize() );
+		TSIterator expectedIterator = expected.iterator();
+		TSIterator tsi = ts.iterator();
+		TSData expectedData;
+		while ( (expectedData = expectedIterator.next()) != null ) {
+			TSData tsdata = tsi.next();
+			assertNotNull ( tsdata );
+			assertTrue ( expectedData.getDate().equals(tsdata.getDate()) );
+			assertEquals ( expectedData.getDataValue(), tsdata.getDataValue(), 0.0 );
+			assertEquals ( "Flag at " + tsdata.getDate(), expectedData.getDataFlag(), tsdata.getDataFlag() );
+			assertEquals ( expectedData.getDuration(), tsdata.getDuration() );
+			TSData point = ts.getDataPoint ( tsdata.getDate(), null );
+			assertEquals ( expectedData.getDataFlag(), point.getDataFlag() );
+		}
+		assertNull ( tsi.next() );
+	}
+}
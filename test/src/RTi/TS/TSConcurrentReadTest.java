@@ -0,0 +1,146 @@
+package RTi.TS;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.framework.Test;
+import RTi.Util.Time.DateTime;
+
+/**
+Stress test for concurrent readers of regular interval time series.
+Each time series is filled with values that can be computed from the position in the period, and many threads
+then read random date/times from the same instance and check that each value (and flag) is the expected one.
+*/
+public class TSConcurrentReadTest extends TestCase {
+
+	private static final int NUM_THREADS = 8;
+	private static final int NUM_READS = 200000;
+
+	public TSConcurrentReadTest(String testname)
+	{
+		super(testname);
+	}
+
+	public TSConcurrentReadTest()
+	{
+
+	}
+
+	/**
+	Create and fill a time series, with value i and flag "F" + (i%10) for the i-th value in the period.
+	*/
+	private TS createTS ( String tsid, String start, String end, boolean flatStorage ) throws Exception
+	{
+		TS ts = TSUtil.newTimeSeries ( tsid, true );
+		ts.setDate1 ( DateTime.parse(start) );
+		ts.setDate2 ( DateTime.parse(end) );
+		if ( flatStorage ) {
+			if ( ts instanceof DayTS ) {
+				((DayTS)ts).setFlatStorage ( true );
+			}
+			else if ( ts instanceof HourTS ) {
+				((HourTS)ts).setFlatStorage ( true );
+			}
+			else if ( ts instanceof MinuteTS ) {
+				((MinuteTS)ts).setFlatStorage ( true );
+			}
+		}
+		ts.allocateDataSpace();
+		int i = 0;
+		for ( DateTime dt = new DateTime(ts.getDate1()); dt.lessThanOrEqualTo(ts.getDate2());
+			dt.addInterval(ts.getDataIntervalBase(),ts.getDataIntervalMult()), i++ ) {
+			ts.setDataValue ( dt, i, "F" + (i%10), 0 );
+		}
+		return ts;
+	}
+
+	/**
+	Read the time series from many threads at the same time and check that all values are as expected.
+	*/
+	private void checkConcurrentReads ( final TS ts ) throws Exception
+	{
+		// Date/times for each position in the period, shared (read-only) by the readers
+		final List<DateTime> dates = new ArrayList<DateTime>();
+		for ( DateTime dt = new DateTime(ts.getDate1()); dt.lessThanOrEqualTo(ts.getDate2());
+			dt.addInterval(ts.getDataIntervalBase(),ts.getDataIntervalMult()) ) {
+			dates.add ( new DateTime(dt) );
+		}
+		ExecutorService executor = Executors.newFixedThreadPool ( NUM_THREADS );
+		List<Future<String>> results = new ArrayList<Future<String>>();
+		for ( int it = 0; it < NUM_THREADS; it++ ) {
+			final long seed = it;
+			results.add ( executor.submit ( new Callable<String>() {
+				public String call ()
+				{
+					Random random = new Random ( seed );
+					TSData tsdata = new TSData();
+					for ( int iread = 0; iread < NUM_READS; iread++ ) {
+						int i = random.nextInt ( dates.size() );
+						DateTime dt = dates.get(i);
+						double value = ts.getDataValue ( dt );
+						if ( value != i ) {
+							return "getDataValue(" + dt + ") returned " + value + ", expected " + i;
+						}
+						ts.getDataPoint ( dt, tsdata );
+						if ( (tsdata.getDataValue() != i) || !tsdata.getDataFlag().equals("F" + (i%10)) ) {
+							return "getDataPoint(" + dt + ") returned " + tsdata.getDataValue() + " \"" +
+								tsdata.getDataFlag() + "\", expected " + i + " \"F" + (i%10) + "\"";
+						}
+					}
+					return null;
+				}
+			}));
+		}
+		executor.shutdown();
+		assertTrue ( executor.awaitTermination(120, TimeUnit.SECONDS) );
+		for ( Future<String> result : results ) {
+			assertNull ( result.get() );
+		}
+	}
+
+	public void testConcurrentReadDayTS() throws Exception
+	{
+		checkConcurrentReads ( createTS("TestLoc.TestSource.TestType.Day", "1950-01-01", "2010-12-31", false) );
+	}
+
+	public void testConcurrentReadDayTSFlat() throws Exception
+	{
+		checkConcurrentReads ( createTS("TestLoc.TestSource.TestType.Day", "1950-01-01", "2010-12-31", true) );
+	}
+
+	public void testConcurrentReadHourTS() throws Exception
+	{
+		checkConcurrentReads ( createTS("TestLoc.TestSource.TestType.6Hour", "2000-01-01 00", "2010-12-31 18", false) );
+	}
+
+	public void testConcurrentReadMinuteTS() throws Exception
+	{
+		checkConcurrentReads ( createTS("TestLoc.TestSource.TestType.15Minute", "2010-01-01 00:00", "2010-12-31 23:45", false) );
+	}
+
+	public void testConcurrentReadMonthTS() throws Exception
+	{
+		checkConcurrentReads ( createTS("TestLoc.TestSource.TestType.Month", "1900-01", "2010-12", false) );
+	}
+
+	// Quick Unit test suite
+	public static Test suite()
+	{
+		TestSuite suite = new TestSuite();
+		suite.addTest((new TSConcurrentReadTest("testConcurrentReadDayTS")));
+		suite.addTest((new TSConcurrentReadTest("testConcurrentReadDayTSFlat")));
+		suite.addTest((new TSConcurrentReadTest("testConcurrentReadHourTS")));
+		suite.addTest((new TSConcurrentReadTest("testConcurrentReadMinuteTS")));
+		suite.addTest((new TSConcurrentReadTest("testConcurrentReadMonthTS")));
+		return suite;
+	}
+
+}
@@ -0,0 +1,119 @@
+package RTi.TS;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import RTi.Util.Time.DateTime;
+
+/**
+Test the dense storage of ensemble traces.
+*/
+public class TSEnsembleMatrixTest extends TestCase {
+
+	public TSEnsembleMatrixTest(String testname)
+	{
+		super(testname);
+	}
+
+	public TSEnsembleMatrixTest()
+	{
+
+	}
+
+	/**
+	Create an ensemble of daily traces with random values.  The traces have different periods to check that
+	the matrix uses the union of the periods.
+	*/
+	private TSEnsemble createEnsemble ( int traceCount ) throws Exception
+	{
+		Random random = new Random(5);
+		List<TS> tslist = new ArrayList<TS>();
+		for ( int i = 0; i < traceCount; i++ ) {
+			DayTS ts = new DayTS();
+			ts.setIdentifier ( "Trace" + i + ".Test.Flow.Day" );
+			DateTime date1 = DateTime.parse("2000-01-01");
+			date1.addDay ( i );
+			ts.setDate1 ( date1 );
+			ts.setDate2 ( DateTime.parse("2000-12-31") );
+			ts.allocateDataSpace();
+			for ( DateTime date = new DateTime(ts.getDate1()); date.lessThanOrEqualTo(ts.getDate2()); date.addDay(1) ) {
+				ts.setDataValue ( date, random.nextGaussian() );
+			}
+			tslist.add ( ts );
+		}
+		return new TSEnsemble ( "Test", "Test", tslist );
+	}
+
+	public void testDenseStorage() throws Exception
+	{
+		TSEnsemble ensemble = createEnsemble ( 5 );
+		TS [] original = ensemble.toArray();
+		ensemble.setDenseStorage ( true );
+		TSEnsembleMatrix matrix = ensemble.getDenseStorage();
+		assertNotNull ( matrix );
+		assertEquals ( 5, matrix.getTraceCount() );
+		assertEquals ( 366, matrix.getStepCount() );
+		double [] slice = new double[5];
+		DateTime date = new DateTime(matrix.getDate1());
+		for ( int step = 0; step < matrix.getStepCount(); step++, date.addDay(1) ) {
+			assertEquals ( step, matrix.getStepIndex(date) );
+			matrix.getTimeSlice ( step, slice );
+			for ( int i = 0; i < 5; i++ ) {
+				TS ts = ensemble.get(i);
+				assertTrue ( ts instanceof EnsembleMatrixTS );
+				assertEquals ( original[i].getDataValue(date), ts.getDataValue(date), 0.0 );
+				assertEquals ( original[i].getDataValue(date), slice[i], 0.0 );
+			}
+		}
+		// Changes through the trace time series are visible in the matrix without copying
+		date = DateTime.parse("2000-03-01");
+		ensemble.get(2).setDataValue ( date, 123.0 );
+		assertEquals ( 123.0, matrix.getTimeSlice(date, null)[2], 0.0 );
+		// Ending dense storage restores the normal time series type
+		ensemble.setDenseStorage ( false );
+		assertNull ( ensemble.getDenseStorage() );
+		assertTrue ( ensemble.get(2) instanceof DayTS );
+		assertEquals ( 123.0, ensemble.get(2).getDataValue(date), 0.0 );
+		assertEquals ( original[4].getDataValue(DateTime.parse("2000-07-04")),
+			ensemble.get(4).getDataValue(DateTime.parse("2000-07-04")), 0.0 );
+	}
+
+	public void testStatisticMatchesSeparateStorage() throws Exception
+	{
+		TSEnsemble ensemble = createEnsemble ( 10 );
+		TSEnsemble denseEnsemble = (TSEnsemble)ensemble.clone();
+		denseEnsemble.setDenseStorage ( true );
+		TS [] results = new TS[2];
+		for ( int i = 0; i < 2; i++ ) {
+			TSUtil_NewStatisticTimeSeriesFromEnsemble tsu = new TSUtil_NewStatisticTimeSeriesFromEnsemble (
+				((i == 0) ? ensemble : denseEnsemble), null, null, null, null, "Stat.Test.Flow.Day", "Statistic",
+				TSStatisticType.MEDIAN, null, null, null );
+			results[i] = tsu.newStatisticTimeSeriesFromEnsemble ( true );
+		}
+		for ( DateTime date = new DateTime(results[0].getDate1()); date.lessThanOrEqualTo(results[0].getDate2());
+			date.addDay(1) ) {
+			assertEquals ( "Median at " + date, results[0].getDataValue(date), results[1].getDataValue(date), 0.0 );
+		}
+	}
+
+	public void testDataFlagsRejected() throws Exception
+	{
+		TSEnsemble ensemble = createEnsemble ( 3 );
+		DateTime date = DateTime.parse("2000-03-01");
+		ensemble.get(1).setDataValue ( date, 1.0, "E", 0 );
+		assertTrue ( ensemble.get(1).hasDataFlags() );
+		try {
+			ensemble.setDenseStorage ( true );
+			fail ( "Expected traces with data flags to be rejected." );
+		}
+		catch ( IllegalArgumentException e ) {
+			// Expected
+		}
+		// The traces and their flags are unchanged
+		assertNull ( ensemble.getDenseStorage() );
+		assertTrue ( ensemble.get(1) instanceof DayTS );
+		assertEquals ( "E", ensemble.get(1).getDataPoint(date, null).getDataFlag() );
+	}
+}
@@ -0,0 +1,183 @@
+package RTi.TS;
+
+import junit.framework.TestCase;
+import RTi.Util.Time.DateTime;
+import RTi.Util.Time.TimeInterval;
+
+/**
+Test flat (contiguous) storage of regular interval time series against the default storage by month.
+*/
+public class TSFlatStorageTest extends TestCase {
+
+	public TSFlatStorageTest(String testname)
+	{
+		super(testname);
+	}
+
+	public TSFlatStorageTest()
+	{
+
+	}
+
+	/**
+	Create a time series with a value for each time step that can be computed from the position.
+	*/
+	private TS newTS ( TS ts, int intervalBase, int intervalMult, String start, String end, boolean flatStorage )
+	throws Exception
+	{
+		ts.setDataInterval ( intervalBase, intervalMult );
+		if ( ts instanceof DayTS ) {
+			((DayTS)ts).setFlatStorage ( flatStorage );
+		}
+		else if ( ts instanceof HourTS ) {
+			((HourTS)ts).setFlatStorage ( flatStorage );
+		}
+		else {
+			((MinuteTS)ts).setFlatStorage ( flatStorage );
+		}
+		ts.setDate1 ( DateTime.parse(start) );
+		ts.setDate2 ( DateTime.parse(end) );
+		assertEquals ( 0, ts.allocateDataSpace() );
+		ts.allocateDataFlagSpace ( "", false );
+		int i = 0;
+		for ( DateTime date = new DateTime(ts.getDate1()); date.lessThanOrEqualTo(ts.getDate2());
+			date.addInterval(intervalBase, intervalMult), i++ ) {
+			ts.setDataValue ( date, i*10.0, ((i % 7) == 0) ? "E" : "", 0 );
+		}
+		return ts;
+	}
+
+	/**
+	Check positions and block copies for a time series, stepping through the period by the data interval.
+	*/
+	private void checkPositions ( TS ts ) throws Exception
+	{
+		int intervalBase = ts.getDataIntervalBase();
+		int intervalMult = ts.getDataIntervalMult();
+		int i = 0;
+		for ( DateTime date = new DateTime(ts.getDate1()); date.lessThanOrEqualTo(ts.getDate2());
+			date.addInterval(intervalBase, intervalMult), i++ ) {
+			assertEquals ( "Position of " + date, i, ts.getDataIndex(date) );
+		}
+		int size = i;
+		// Block copies are positioned by time step, consistent with getDataIndex()
+		double [] values = new double[size + 10];
+		assertEquals ( size - 3, ts.getDataValues(3, values) );
+		for ( int j = 0; j < size - 3; j++ ) {
+			assertEquals ( (j + 3)*10.0, values[j], 0.0 );
+		}
+		double [] newValues = new double[5];
+		for ( int j = 0; j < newValues.length; j++ ) {
+			newValues[j] = -j;
+		}
+		assertEquals ( 5, ts.setDataValues(2, newValues) );
+		DateTime date = new DateTime ( ts.getDate1() );
+		date.addInterval ( intervalBase, 2*intervalMult );
+		for ( int j = 0; j < newValues.length; j++, date.addInterval(intervalBase, intervalMult) ) {
+			assertEquals ( "Value at " + date, -j, ts.getDataValue(date), 0.0 );
+		}
+		// Values outside the block are not changed
+		assertEquals ( (2 + newValues.length)*10.0, ts.getDataValue(date), 0.0 );
+		date = new DateTime ( ts.getDate1() );
+		date.addInterval ( intervalBase, intervalMult );
+		assertEquals ( 10.0, ts.getDataValue(date), 0.0 );
+	}
+
+	/**
+	Check positions with interval multipliers greater than 1, with both storage layouts.
+	*/
+	public void testIntervalMultiplier() throws Exception
+	{
+		for ( int i = 0; i < 2; i++ ) {
+			boolean flat = (i == 1);
+			checkPositions ( newTS(new HourTS(), TimeInterval.HOUR, 6, "2000-01-01 06", "2000-03-02 18", flat) );
+			checkPositions ( newTS(new MinuteTS(), TimeInterval.MINUTE, 15, "2000-02-28 00:00", "2000-03-01 23:45", flat) );
+			checkPositions ( newTS(new DayTS(), TimeInterval.DAY, 1, "2000-01-15", "2000-04-02", flat) );
+		}
+		// Only 1-day data are supported so positions in days are the same as positions in time steps
+		DayTS ts = new DayTS();
+		ts.setDataInterval ( TimeInterval.DAY, 2 );
+		ts.setDate1 ( DateTime.parse("2000-01-01") );
+		ts.setDate2 ( DateTime.parse("2000-02-01") );
+		assertEquals ( 1, ts.allocateDataSpace() );
+	}
+
+	/**
+	Check that flat storage gives the same values and flags as storage by month after changing the
+	period, cloning, and converting between storage layouts.
+	*/
+	public void testSameAsMonthStorage() throws Exception
+	{
+		TS [] tslist = {
+			newTS ( new HourTS(), TimeInterval.HOUR, 3, "2000-01-30 03", "2000-03-02 21", false ),
+			newTS ( new HourTS(), TimeInterval.HOUR, 3, "2000-01-30 03", "2000-03-02 21", true ),
+			newTS ( new MinuteTS(), TimeInterval.MINUTE, 10, "2000-01-31 20:00", "2000-02-01 04:50", false ),
+			newTS ( new MinuteTS(), TimeInterval.MINUTE, 10, "2000-01-31 20:00", "2000-02-01 04:50", true ),
+			newTS ( new DayTS(), TimeInterval.DAY, 1, "1999-12-20", "2000-03-10", false ),
+			newTS ( new DayTS(), TimeInterval.DAY, 1, "1999-12-20", "2000-03-10", true )
+		};
+		for ( int i = 0; i < tslist.length; i += 2 ) {
+			TS ts = tslist[i];
+			TS flatTS = tslist[i + 1];
+			assertTrue ( flatTS.isFlatStorage() );
+			checkSame ( ts, flatTS );
+			checkSame ( ts, (TS)flatTS.clone() );
+			// Extend the start and shorten the end
+			DateTime date1 = new DateTime ( ts.getDate1() );
+			date1.addInterval ( ts.getDataIntervalBase(), -5*ts.getDataIntervalMult() );
+			DateTime date2 = new DateTime ( ts.getDate2() );
+			date2.addInterval ( ts.getDataIntervalBase(), -7*ts.getDataIntervalMult() );
+			ts.changePeriodOfRecord ( date1, date2 );
+			flatTS.changePeriodOfRecord ( date1, date2 );
+			checkSame ( ts, flatTS );
+			// Convert the month storage to flat and back
+			TS converted = (TS)ts.clone();
+			if ( converted instanceof DayTS ) {
+				((DayTS)converted).setFlatStorage ( true );
+				checkSame ( ts, converted );
+				((DayTS)converted).setFlatStorage ( false );
+			}
+			else if ( converted instanceof HourTS ) {
+				((HourTS)converted).setFlatStorage ( true );
+				checkSame ( ts, converted );
+				((HourTS)converted).setFlatStorage ( false );
+			}
+			else {
+				((MinuteTS)converted).setFlatStorage ( true );
+				checkSame ( ts, converted );
+				((MinuteTS)converted).setFlatStorage ( false );
+			}
+			assertFalse ( converted.isFlatStorage() );
+			checkSame ( ts, converted );
+		}
+	}
+
+	/**
+	Check that two time series have the same period, values, and flags.
+	*/
+	private void checkSame ( TS expected, TS ts )
+	{
+		assertTrue ( expected.getDate1().equals(ts.getDate1()) );
+		assertTrue ( expected.getDate2().equals(ts.getDate2()) );
+		TSData expectedData = new TSData();
+		TSData tsdata = new TSData();
+		for ( DateTime date = new DateTime(expected.getDate1()); date.lessThanOrEqualTo(expected.getDate2());
+			date.addInterval(expected.getDataIntervalBase(), expected.getDataIntervalMult()) ) {
+			expected.getDataPoint ( date, expectedData );
+			ts.getDataPoint ( date, tsdata );
+			assertEquals ( "Value at " + date, expectedData.getDataValue(), tsdata.getDataValue(), 0.0 );
+			assertEquals ( "Flag at " + date, expectedData.getDataFlag(), tsdata.getDataFlag() );
+		}
+	}
+
+	/**
+	Check that positions of minute data are correct for years where the number of minutes since the
+	absolute day datum exceeds the range of an int.
+	*/
+	public void testMinuteFarFuture() throws Exception
+	{
+		TS ts = newTS ( new MinuteTS(), TimeInterval.MINUTE, 1, "5000-01-01 00:00", "5000-01-02 00:00", true );
+		checkPositions ( ts );
+		assertEquals ( 1441, ts.getDataSize() );
+	}
+}
@@ -4,6 +4,11 @@ import junit.framework.TestCase;
 import junit.framework.TestSuite;
 import junit.framework.Test;
 import RTi.Util.Time.DateTime;
+import RTi.Util.Time.TimeInterval;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 public class TSUtilTest extends TestCase {
 
@@ -102,6 +107,52 @@ public class TSUtilTest extends TestCase {
 		}
 
 	}
+
+	/**
+	Check that arithmetic on time series that use flat storage, which processes values as a block,
+	gives the same results as the date/time loop used with the default storage.
+	*/
+	public void testArithmeticFlatStorage() throws Exception
+	{
+		HourTS [] results = new HourTS[2];
+		for ( int i = 0; i < 2; i++ ) {
+			HourTS ts = newFilledHourTS ( (i == 1), "2006-01-01 06", "2006-03-31 18", 1 );
+			HourTS ts2 = newFilledHourTS ( (i == 1), "2005-12-01 00", "2006-04-30 18", 2 );
+			List<HourTS> tslist = new ArrayList<HourTS>();
+			tslist.add ( ts2 );
+			TSUtil.add ( ts, tslist, new double[] { 2.0 }, TSUtil.SET_MISSING_IF_OTHER_MISSING, null, null );
+			TSUtil.subtract ( ts, tslist, TSUtil.IGNORE_MISSING, DateTime.parse("2006-02-01 00"), null );
+			TSUtil.multiply ( ts, ts2 );
+			TSUtil.divide ( ts, ts2, DateTime.parse("2006-01-10 12"), DateTime.parse("2006-03-01 00") );
+			TSUtil.scale ( ts, 1.5 );
+			TSUtil.addConstant ( ts, null, null, -1, 10.0, TSUtil.IGNORE_MISSING );
+			TSUtil.setConstant ( ts, DateTime.parse("2006-03-20 00"), DateTime.parse("2006-03-25 00"), 3.0 );
+			results[i] = ts;
+		}
+		for ( DateTime dt = new DateTime(results[0].getDate1()); dt.lessThanOrEqualTo(results[0].getDate2()); dt.addHour(6) ) {
+			assertEquals ( "Value at " + dt, results[0].getDataValue(dt), results[1].getDataValue(dt), 0.0 );
+		}
+		assertEquals ( results[0].getDescription(), results[1].getDescription() );
+	}
+
+	/**
+	Create a 6-hour time series with random values, including missing and zero values.
+	*/
+	private HourTS newFilledHourTS ( boolean flatStorage, String start, String end, long seed ) throws Exception
+	{
+		HourTS ts = (HourTS)TSUtil.newTimeSeries ( tsid, true );
+		ts.setFlatStorage ( flatStorage );
+		ts.setDate1 ( DateTime.parse(start) );
+		ts.setDate2 ( DateTime.parse(end) );
+		ts.allocateDataSpace();
+		Random random = new Random ( seed );
+		for ( DateTime dt = new DateTime(ts.getDate1()); dt.lessThanOrEqualTo(ts.getDate2());
+			dt.addInterval(TimeInterval.HOUR,6) ) {
+			int choice = random.nextInt(5);
+			ts.setDataValue ( dt, (choice == 0) ? ts.getMissing() : ((choice == 1) ? 0.0 : random.nextGaussian()) );
+		}
+		return ts;
+	}
 	
 	
 	// Quick Unit test suite
@@ -109,6 +160,7 @@ public class TSUtilTest extends TestCase {
 	{
 		TestSuite suite = new TestSuite();
 		suite.addTest((new TSUtilTest("testShiftTimeSeries")));
+		suite.addTest((new TSUtilTest("testArithmeticFlatStorage")));
 		return suite;
 	}
 	
@@ -0,0 +1,73 @@
+package RTi.TS;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import RTi.Util.Time.DateTime;
+
+/**
+Test that the parallel ensemble statistic calculation gives results identical to the serial calculation.
+*/
+public class TSUtil_NewStatisticTimeSeriesFromEnsembleTest extends TestCase {
+
+	public TSUtil_NewStatisticTimeSeriesFromEnsembleTest(String testname)
+	{
+		super(testname);
+	}
+
+	public TSUtil_NewStatisticTimeSeriesFromEnsembleTest()
+	{
+
+	}
+
+	/**
+	Create an ensemble of hourly traces with random values, including some missing values.
+	*/
+	private TSEnsemble createEnsemble ( int traceCount ) throws Exception
+	{
+		Random random = new Random(11);
+		List<TS> tslist = new ArrayList<TS>();
+		for ( int i = 0; i < traceCount; i++ ) {
+			HourTS ts = new HourTS();
+			ts.setIdentifier ( "Trace" + i + ".Test.Flow.Hour" );
+			ts.setDate1 ( DateTime.parse("2000-01-01 00") );
+			ts.setDate2 ( DateTime.parse("2000-01-31 23") );
+			ts.allocateDataSpace();
+			for ( DateTime date = new DateTime(ts.getDate1()); date.lessThanOrEqualTo(ts.getDate2()); date.addHour(1) ) {
+				if ( random.nextInt(50) == 0 ) {
+					ts.setDataValue ( date, ts.getMissing() );
+				}
+				else {
+					ts.setDataValue ( date, Math.exp(random.nextGaussian()) );
+				}
+			}
+			tslist.add ( ts );
+		}
+		return new TSEnsemble ( "Test", "Test", tslist );
+	}
+
+	public void testParallelMatchesSerial() throws Exception
+	{
+		TSEnsemble ensemble = createEnsemble ( 40 );
+		TSStatisticType [] statistics = {
+			TSStatisticType.MEAN, TSStatisticType.MEDIAN, TSStatisticType.TOTAL, TSStatisticType.STD_DEV,
+			TSStatisticType.SKEW, TSStatisticType.GT_COUNT, TSStatisticType.NONEXCEEDANCE_PROBABILITY_30 };
+		for ( TSStatisticType statistic : statistics ) {
+			TS [] results = new TS[2];
+			for ( int i = 0; i < 2; i++ ) {
+				TSUtil_NewStatisticTimeSeriesFromEnsemble tsu = new TSUtil_NewStatisticTimeSeriesFromEnsemble (
+					ensemble, null, null, null, null, "Stat.Test.Flow.Hour", "Statistic", statistic, 1.0, 1, null );
+				tsu.setParallelism ( (i == 0) ? 1 : 3 );
+				results[i] = tsu.newStatisticTimeSeriesFromEnsemble ( true );
+			}
+			for ( DateTime date = new DateTime(results[0].getDate1()); date.lessThanOrEqualTo(results[0].getDate2());
+				date.addHour(1) ) {
+				assertEquals ( "" + statistic + " at " + date,
+					Double.doubleToLongBits(results[0].getDataValue(date)),
+					Double.doubleToLongBits(results[1].getDataValue(date)) );
+			}
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package RTi.Util.Math;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class SlidingWindowStatisticsTest extends TestCase {
+
+    public SlidingWindowStatisticsTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Slide a window over random values (with repeated values to exercise ties) and compare each step with
+     * the MathUtil statistics computed from the full sample.
+     */
+    public void testSlidingWindowMatchesMathUtil() throws Exception {
+        Random random = new Random(7);
+        double[] data = new double[2000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (random.nextInt(5) == 0) ? 5.0 : 1000.0 + random.nextGaussian()*100.0;
+        }
+        int[] windowSizes = { 1, 2, 7, 31 };
+        for (int w : windowSizes) {
+            SlidingWindowStatistics window = new SlidingWindowStatistics(1, true);
+            double[] sample = new double[w];
+            for (int i = 0; i < data.length; i++) {
+                window.add(data[i]);
+                if (window.getCount() > w) {
+                    window.remove();
+                }
+                int count = window.getCount();
+                System.arraycopy(data, i - count + 1, sample, 0, count);
+                assertEquals(MathUtil.max(count, sample), window.getMax(), 0.0);
+                assertEquals(MathUtil.min(count, sample), window.getMin(), 0.0);
+                assertEquals(MathUtil.median(count, sample), window.getMedian(), 0.0);
+                assertEquals(MathUtil.sum(count, sample), window.getSum(), 1.0e-9);
+                assertEquals(MathUtil.mean(count, sample), window.getMean(), 1.0e-9);
+                if (count > 1) {
+                    double variance = MathUtil.variance(count, sample);
+                    assertEquals(variance, window.getVariance(), 1.0e-9*Math.max(1.0, variance));
+                }
+            }
+        }
+    }
+
+    public void testOrderStatistics() {
+        SlidingWindowStatistics window = new SlidingWindowStatistics(4, true);
+        double[] values = { 3.0, 1.0, 4.0, 1.0, 5.0, 9.0, 2.0, 6.0 };
+        for (double value : values) {
+            window.add(value);
+        }
+        // Window grows beyond the initial capacity
+        assertEquals(8, window.getCount());
+        assertEquals(1.0, window.getOrderStatistic(0), 0.0);
+        assertEquals(1.0, window.getOrderStatistic(1), 0.0);
+        assertEquals(9.0, window.getOrderStatistic(7), 0.0);
+        assertEquals(3.5, window.getMedian(), 0.0);
+        assertEquals(1.0, window.getQuantile(0.0), 0.0);
+        assertEquals(9.0, window.getQuantile(1.0), 0.0);
+        assertEquals(5.25, window.getQuantile(0.75), 1.0e-12);
+        // Remove the oldest values (3, 1, 4) leaving 1, 5, 9, 2, 6
+        assertEquals(3.0, window.remove(), 0.0);
+        assertEquals(1.0, window.remove(), 0.0);
+        assertEquals(4.0, window.remove(), 0.0);
+        assertEquals(5, window.getCount());
+        assertEquals(5.0, window.getMedian(), 0.0);
+        assertEquals(1.0, window.getMin(), 0.0);
+        assertEquals(9.0, window.getMax(), 0.0);
+        assertEquals(23.0, window.getSum(), 0.0);
+    }
+
+    public void testVarianceRequiresTwoValues() {
+        SlidingWindowStatistics window = new SlidingWindowStatistics(2, false);
+        window.add(1.0);
+        try {
+            window.getVariance();
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e) {
+            // Expected, consistent with MathUtil.variance()
+        }
+        window.add(1.0);
+        assertEquals(0.0, window.getVariance(), 0.0);
+        try {
+            window.getStandardDeviation();
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e) {
+            // Expected, consistent with MathUtil.standardDeviation()
+        }
+    }
+}
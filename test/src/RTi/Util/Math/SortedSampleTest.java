@@ -0,0 +1,86 @@
+package RTi.Util.Math;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class SortedSampleTest extends TestCase {
+
+    public SortedSampleTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Check the selection-based MathUtil methods and SortedSample queries against values from a sorted copy
+     * of the sample, using samples with tied values.
+     */
+    public void testSelectionAndSortedSample() {
+        Random random = new Random(3);
+        double[] work = new double[50];
+        SortedSample sample = new SortedSample();
+        for (int iteration = 0; iteration < 500; iteration++) {
+            int n = 1 + random.nextInt(40);
+            // Array is longer than the sample to check that only the first n values are used
+            double[] x = new double[n + 5];
+            for (int i = 0; i < x.length; i++) {
+                x[i] = (random.nextInt(4) == 0) ? random.nextInt(3) : random.nextGaussian()*10.0;
+            }
+            double[] original = x.clone();
+            double[] sorted = Arrays.copyOf(x, n);
+            Arrays.sort(sorted);
+            sample.setSample(n, x);
+            int k = random.nextInt(n);
+            assertEquals(sorted[k], MathUtil.select(n, Arrays.copyOf(x, n), k), 0.0);
+            double median = ((n % 2) == 0) ? (sorted[n/2 - 1] + sorted[n/2])/2.0 : sorted[n/2];
+            assertEquals(median, MathUtil.median(n, x), 0.0);
+            assertEquals(median, MathUtil.median(n, x, work), 0.0);
+            assertEquals(median, sample.getMedian(), 0.0);
+            double p = random.nextDouble();
+            double value = MathUtil.exceedanceProbabilityValue(n, x, p, work);
+            assertEquals(value, sample.getExceedanceProbabilityValue(p), 0.0);
+            assertEquals(value, MathUtil.exceedanceProbabilityValues(n, x, new double[] { p }, null, null)[0], 0.0);
+            // Rank of a sample value, averaged over ties
+            double xi = x[random.nextInt(n)];
+            int countLess = 0;
+            int countEqual = 0;
+            for (int i = 0; i < n; i++) {
+                if (sorted[i] < xi) {
+                    ++countLess;
+                }
+                else if (sorted[i] == xi) {
+                    ++countEqual;
+                }
+            }
+            double rankAscending = countLess + (countEqual + 1)/2.0;
+            assertEquals(rankAscending, MathUtil.rank(n, x, SortOrderType.LOW_TO_HIGH, xi), 1.0e-12);
+            assertEquals(rankAscending, sample.getRank(SortOrderType.LOW_TO_HIGH, xi), 1.0e-12);
+            assertEquals(n + 1 - rankAscending, sample.getRank(SortOrderType.HIGH_TO_LOW, xi), 1.0e-12);
+            assertEquals(MathUtil.exceedanceProbability(n, x, xi), sample.getExceedanceProbability(xi), 0.0);
+            // The methods that accept a separate work array do not modify the sample
+            assertTrue(Arrays.equals(original, x));
+        }
+    }
+
+    public void testExceedanceProbabilityOutsideRange() {
+        double[] x = { 3.0, 1.0, 2.0 };
+        SortedSample sample = new SortedSample(3, x);
+        // Between sample values the plotting positions of the bounding values are interpolated
+        assertEquals(MathUtil.exceedanceProbability(3, x, 1.5), sample.getExceedanceProbability(1.5), 0.0);
+        assertEquals(0.625, sample.getExceedanceProbability(1.5), 1.0e-12);
+        try {
+            sample.getExceedanceProbability(4.0);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e) {
+            // Expected, consistent with MathUtil.exceedanceProbability()
+        }
+        try {
+            sample.getRank(SortOrderType.LOW_TO_HIGH, 1.5);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e) {
+            // Expected, consistent with MathUtil.rank()
+        }
+    }
+}
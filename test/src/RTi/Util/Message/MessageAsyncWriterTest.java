@@ -0,0 +1,309 @@
+package RTi.Util.Message;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/**
+ * Test cases for asynchronous message output, with the MessageAsyncWriter class and with Message.
+ */
+public class MessageAsyncWriterTest extends TestCase {
+
+   /**
+    * Output stream that records its text and whether it has been flushed and closed.
+    */
+   private static class TestWriter extends PrintWriter {
+       StringWriter flushed = new StringWriter();
+       StringWriter buffer = new StringWriter();
+       boolean closed = false;
+       TestWriter () {
+           super ( new StringWriter() );
+       }
+       public void write ( String s, int off, int len ) {
+           if ( closed ) {
+               return;
+           }
+           synchronized ( buffer ) {
+               buffer.write ( s, off, len );
+           }
+       }
+       public void flush () {
+           synchronized ( buffer ) {
+               flushed.write ( buffer.toString() );
+               buffer = new StringWriter();
+           }
+       }
+       public void close () {
+           flush();
+           closed = true;
+       }
+       List<String> getLines () {
+           List<String> lines = new ArrayList<String>();
+           for ( String line : flushed.toString().split("\n") ) {
+               if ( line.length() > 0 ) {
+                   lines.add ( line );
+               }
+           }
+           return lines;
+       }
+   }
+
+   /**
+    * Test that messages from several threads are written in the order that each thread added them,
+    * and that messages for different streams are written to the correct stream.
+    */
+   public void testOrdering () throws Exception {
+       final MessageAsyncWriter writer = new MessageAsyncWriter ( 16, 10, 8, MessageAsyncOverflowType.BLOCK );
+       final TestWriter out1 = new TestWriter();
+       final TestWriter out2 = new TestWriter();
+       final int nthreads = 4;
+       final int nmessages = 500;
+       List<Thread> threads = new ArrayList<Thread>();
+       for ( int it = 0; it < nthreads; it++ ) {
+           final int ithread = it;
+           Thread thread = new Thread() {
+               public void run () {
+                   for ( int i = 0; i < nmessages; i++ ) {
+                       writer.add ( ((i % 2 == 0) ? out1 : out2), ithread + " " + i + "\n" );
+                   }
+               }
+           };
+           threads.add ( thread );
+           thread.start();
+       }
+       for ( Thread thread : threads ) {
+           thread.join();
+       }
+       writer.drain();
+       int [] next = new int[nthreads];
+       for ( int istream = 0; istream < 2; istream++ ) {
+           List<String> lines = ((istream == 0) ? out1 : out2).getLines();
+           assertEquals ( nthreads*nmessages/2, lines.size() );
+           for ( int it = 0; it < nthreads; it++ ) {
+               next[it] = istream;
+           }
+           for ( String line : lines ) {
+               String [] parts = line.split(" ");
+               int ithread = Integer.parseInt(parts[0]);
+               assertEquals ( next[ithread], Integer.parseInt(parts[1]) );
+               next[ithread] += 2;
+           }
+       }
+       writer.stop();
+   }
+
+   /**
+    * Test that drain() waits until messages that are waiting for the flush interval are written and flushed.
+    */
+   public void testDrain () throws Exception {
+       MessageAsyncWriter writer = new MessageAsyncWriter ( 100, 60000, 100, MessageAsyncOverflowType.BLOCK );
+       TestWriter out = new TestWriter();
+       for ( int i = 0; i < 10; i++ ) {
+           writer.add ( out, "Message " + i + "\n" );
+       }
+       Thread.sleep ( 100 );
+       // Waiting for the flush interval or flush count
+       assertEquals ( 0, out.getLines().size() );
+       writer.drain();
+       List<String> lines = out.getLines();
+       assertEquals ( 10, lines.size() );
+       assertEquals ( "Message 9", lines.get(9) );
+       writer.stop();
+   }
+
+   /**
+    * Test that stop() writes the messages that are waiting and that later messages are written directly.
+    */
+   public void testStop () throws Exception {
+       MessageAsyncWriter writer = new MessageAsyncWriter ( 100, 60000, 100, MessageAsyncOverflowType.BLOCK );
+       TestWriter out = new TestWriter();
+       for ( int i = 0; i < 10; i++ ) {
+           writer.add ( out, "Message " + i + "\n" );
+       }
+       writer.stop();
+       assertEquals ( 10, out.getLines().size() );
+       writer.add ( out, "After stop\n" );
+       assertEquals ( 11, out.getLines().size() );
+       assertEquals ( "After stop", out.getLines().get(10) );
+   }
+
+   /**
+    * Test that close() closes the stream after the messages that are waiting are written, so none are lost.
+    */
+   public void testClose () throws Exception {
+       MessageAsyncWriter writer = new MessageAsyncWriter ( 4, 60000, 4, MessageAsyncOverflowType.DISCARD_OLDEST );
+       TestWriter out = new TestWriter();
+       TestWriter out2 = new TestWriter();
+       writer.add ( out, "Message 1\n" );
+       writer.add ( out2, "Other 1\n" );
+       writer.add ( out, "Message 2\n" );
+       writer.close ( out );
+       assertTrue ( out.closed );
+       assertEquals ( "[Message 1, Message 2]", out.getLines().toString() );
+       assertFalse ( out2.closed );
+       writer.add ( out2, "Other 2\n" );
+       writer.drain();
+       assertEquals ( "[Other 1, Other 2]", out2.getLines().toString() );
+       writer.stop();
+   }
+
+   /**
+    * Test that messages are discarded when the buffer is full with the DISCARD_NEWEST policy,
+    * and that a warning with the number of discarded messages is written.
+    */
+   public void testDiscardNewest () throws Exception {
+       MessageAsyncWriter writer = new MessageAsyncWriter ( 3, 60000, 100, MessageAsyncOverflowType.DISCARD_NEWEST );
+       TestWriter out = new TestWriter();
+       // Hold the writer lock so that the writer thread cannot take the messages when the buffer fills
+       // (add() does not wait with this policy)
+       synchronized ( writer ) {
+           for ( int i = 0; i < 5; i++ ) {
+               writer.add ( out, "Message " + i + "\n" );
+           }
+       }
+       writer.drain();
+       List<String> lines = out.getLines();
+       assertEquals ( 4, lines.size() );
+       assertEquals ( "Message 2", lines.get(2) );
+       assertTrue ( lines.get(3).startsWith("Warning: 2 messages were discarded") );
+       writer.stop();
+   }
+
+   /**
+    * Test that the warning for discarded messages is kept until it can be written, when the batch with the
+    * discarded messages only writes to a stream that is closed in the same batch.
+    */
+   public void testDiscardWarningKept () throws Exception {
+       final MessageAsyncWriter writer = new MessageAsyncWriter ( 2, 60000, 1, MessageAsyncOverflowType.DISCARD_NEWEST );
+       final CountDownLatch writing = new CountDownLatch ( 1 );
+       final CountDownLatch release = new CountDownLatch ( 1 );
+       // Stream that keeps the writer thread busy so that the next batch can be set up
+       TestWriter slow = new TestWriter() {
+           public void write ( String s, int off, int len ) {
+               writing.countDown();
+               try {
+                   release.await();
+               }
+               catch ( InterruptedException e ) {
+                   Thread.currentThread().interrupt();
+               }
+               super.write ( s, off, len );
+           }
+       };
+       final TestWriter out = new TestWriter();
+       TestWriter out2 = new TestWriter();
+       writer.add ( slow, "Slow\n" );
+       assertTrue ( writing.await(10, TimeUnit.SECONDS) );
+       // Next batch is a message and a request to close the same stream
+       writer.add ( out, "Message 1\n" );
+       Thread closeThread = new Thread() {
+           public void run () {
+               writer.close ( out );
+           }
+       };
+       closeThread.start();
+       // Wait until the close request has been added and the thread is waiting for it to be done
+       while ( (closeThread.getState() != Thread.State.WAITING) &&
+           (closeThread.getState() != Thread.State.TIMED_WAITING) ) {
+           Thread.sleep ( 10 );
+       }
+       // Buffer is full so the message is discarded
+       writer.add ( out, "Message 2\n" );
+       release.countDown();
+       closeThread.join();
+       assertTrue ( out.closed );
+       assertEquals ( "[Message 1]", out.getLines().toString() );
+       // Warning is written with the next batch
+       writer.add ( out2, "Other 1\n" );
+       writer.drain();
+       List<String> lines = out2.getLines();
+       assertEquals ( 2, lines.size() );
+       assertEquals ( "Other 1", lines.get(0) );
+       assertTrue ( lines.get(1).startsWith("Warning: 1 messages were discarded") );
+       writer.stop();
+   }
+
+   /**
+    * Return the lines of a file that contain a string.
+    */
+   private List<String> readLines ( File file, String contains ) throws Exception {
+       List<String> lines = new ArrayList<String>();
+       BufferedReader in = new BufferedReader ( new FileReader(file) );
+       try {
+           String line;
+           while ( (line = in.readLine()) != null ) {
+               if ( line.indexOf(contains) >= 0 ) {
+                   lines.add ( line );
+               }
+           }
+       }
+       finally {
+           in.close();
+       }
+       return lines;
+   }
+
+   /**
+    * Test that Message.closeLogFile() writes all messages printed before the call with asynchronous output,
+    * that the log file header is written in order with messages, and that the maximum log file size applies to
+    * messages that are waiting to be written.
+    */
+   public void testLogFile () throws Exception {
+       File file = File.createTempFile ( "MessageAsyncWriterTest", ".log" );
+       String logFile = Message.getLogFile();
+       int statusLevel = Message.getStatusLevel ( Message.LOG_OUTPUT );
+       try {
+           Message.setStatusLevel ( Message.LOG_OUTPUT, 2 );
+           Message.startAsyncOutput ( 1000, 60000, 1000, MessageAsyncOverflowType.BLOCK );
+           Message.setLogFile ( file.getPath() );
+           Message.openLogFile ( file.getPath() );
+           for ( int i = 0; i < 100; i++ ) {
+               Message.printStatus ( 2, "MessageAsyncWriterTest", "Message " + i );
+           }
+           Message.closeLogFile();
+           List<String> lines = readLines ( file, "Message " );
+           assertEquals ( 100, lines.size() );
+           assertTrue ( lines.get(99).endsWith("Message 99") );
+           // The header is written in order with the messages
+           lines = readLines ( file, "" );
+           assertTrue ( lines.get(0).indexOf("Opened log file") >= 0 );
+           int headerPos = lines.indexOf ( "#" );
+           assertTrue ( headerPos > 0 );
+           for ( int i = 0; i < headerPos; i++ ) {
+               assertFalse ( lines.get(i).endsWith("Message 0") );
+           }
+
+           // Maximum size, which must be checked before the messages are written to the file
+           Message.openLogFile ( file.getPath() );
+           Message.setLogFileMaxSize ( 1000 );
+           for ( int i = 0; i < 100; i++ ) {
+               Message.printStatus ( 2, "MessageAsyncWriterTest", "Message " + i );
+           }
+           Message.closeLogFile();
+           lines = readLines ( file, "Message " );
+           assertTrue ( lines.size() > 0 );
+           assertTrue ( lines.size() < 100 );
+           int size = 0;
+           for ( String line : lines ) {
+               size += line.length() + 1;
+           }
+           assertTrue ( size <= 1000 + lines.get(0).length() + 2 );
+       }
+       finally {
+           Message.setLogFileMaxSize ( -1 );
+           Message.stopAsyncOutput();
+           Message.setStatusLevel ( Message.LOG_OUTPUT, statusLevel );
+           Message.setLogFile ( logFile );
+           file.delete();
+       }
+   }
+}
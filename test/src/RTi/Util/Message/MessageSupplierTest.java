@@ -0,0 +1,102 @@
+package RTi.Util.Message;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.function.Supplier;
+
+import junit.framework.TestCase;
+
+/**
+ * Test cases for the Message print methods that use a Supplier to format the message only if it will be output.
+ */
+public class MessageSupplierTest extends TestCase {
+
+   /**
+    * Message levels for each output receiver, saved before each test and restored after.
+    */
+   private int [] debugLevels = new int[Message.OUTPUT_NAMES.length];
+   private int [] statusLevels = new int[Message.OUTPUT_NAMES.length];
+   private int [] warningLevels = new int[Message.OUTPUT_NAMES.length];
+
+   /**
+    * Number of times the message Supplier has been called.
+    */
+   private int callCount = 0;
+
+   /**
+    * Supplier that counts the number of times that the message is formatted.
+    */
+   private Supplier<String> message = new Supplier<String>() {
+       public String get () {
+           ++callCount;
+           return "Formatted message " + callCount;
+       }
+   };
+
+   /**
+    * Save the message levels and turn off all message output.
+    */
+   protected void setUp () {
+       for ( int i = 0; i < Message.OUTPUT_NAMES.length; i++ ) {
+           debugLevels[i] = Message.getDebugLevel ( i );
+           statusLevels[i] = Message.getStatusLevel ( i );
+           warningLevels[i] = Message.getWarningLevel ( i );
+       }
+       for ( int i = 0; i < Message.OUTPUT_NAMES.length; i++ ) {
+           Message.setDebugLevel ( i, 0 );
+           Message.setStatusLevel ( i, 0 );
+           Message.setWarningLevel ( i, 0 );
+       }
+   }
+
+   /**
+    * Restore the message levels and the default terminal output.
+    */
+   protected void tearDown () {
+       Message.setOutputFile ( Message.TERM_OUTPUT, new PrintWriter(System.err, true) );
+       for ( int i = 0; i < Message.OUTPUT_NAMES.length; i++ ) {
+           Message.setDebugLevel ( i, debugLevels[i] );
+           Message.setStatusLevel ( i, statusLevels[i] );
+           Message.setWarningLevel ( i, warningLevels[i] );
+       }
+   }
+
+   /**
+    * Test that the Supplier is not called when the message level is not enabled for any output receiver.
+    */
+   public void testDisabledLevelDoesNotFormat () {
+       assertFalse ( Message.isDebugLevelEnabled(2) );
+       assertFalse ( Message.isStatusLevelEnabled(2) );
+       assertFalse ( Message.isWarningLevelEnabled(2) );
+       Message.printDebug ( 2, "MessageSupplierTest", message );
+       Message.printStatus ( 2, "MessageSupplierTest", message );
+       Message.printWarning ( 2, "MessageSupplierTest", message );
+       assertEquals ( 0, callCount );
+   }
+
+   /**
+    * Test that the Supplier is not called for a message level higher than the enabled level,
+    * and is called once for each message that is output.
+    */
+   public void testEnabledLevelFormats () {
+       StringWriter text = new StringWriter();
+       Message.setOutputFile ( Message.TERM_OUTPUT, new PrintWriter(text, true) );
+       Message.setDebugLevel ( Message.TERM_OUTPUT, 2 );
+       Message.setStatusLevel ( Message.TERM_OUTPUT, 2 );
+       Message.setWarningLevel ( Message.TERM_OUTPUT, 2 );
+       // Levels higher than the enabled level
+       Message.printDebug ( 3, "MessageSupplierTest", message );
+       Message.printStatus ( 3, "MessageSupplierTest", message );
+       Message.printWarning ( 3, "MessageSupplierTest", message );
+       assertEquals ( 0, callCount );
+       // Enabled level
+       Message.printDebug ( 2, "MessageSupplierTest", message );
+       Message.printStatus ( 2, "MessageSupplierTest", message );
+       Message.printWarning ( 2, "MessageSupplierTest", message );
+       assertEquals ( 3, callCount );
+       String output = text.toString();
+       assertTrue ( output.indexOf("Formatted message 1") >= 0 );
+       assertTrue ( output.indexOf("Formatted message 2") >= 0 );
+       assertTrue ( output.indexOf("Formatted message 3") >= 0 );
+   }
+}
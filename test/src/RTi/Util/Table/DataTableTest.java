@@ -0,0 +1,410 @@
+package RTi.Util.Table;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+
+import junit.framework.TestCase;
+import RTi.Util.String.StringUtil;
+
+/**
+ * Test cases for the DataTable class.
+ */
+public class DataTableTest extends TestCase {
+
+   /**
+    * Create a table with string "ID", integer "Count", and double "Value" columns.
+    * The ID cycles through "A0" to "A9" in mixed case and the value is the row number.
+    */
+   private DataTable createTable ( int nrows ) throws Exception {
+       List<TableField> fields = new ArrayList<TableField>();
+       fields.add ( new TableField(TableField.DATA_TYPE_STRING, "ID", -1, -1) );
+       fields.add ( new TableField(TableField.DATA_TYPE_INT, "Count", -1, -1) );
+       fields.add ( new TableField(TableField.DATA_TYPE_DOUBLE, "Value", -1, 2) );
+       DataTable table = new DataTable ( fields );
+       for ( int irow = 0; irow < nrows; irow++ ) {
+           TableRecord rec = new TableRecord(3);
+           rec.addFieldValue ( ((irow % 2 == 0) ? "a" : "A") + (irow % 10) );
+           rec.addFieldValue ( Integer.valueOf(irow % 7) );
+           rec.addFieldValue ( Double.valueOf(irow) );
+           table.addRecord ( rec );
+       }
+       return table;
+   }
+
+   /**
+    * Create a ResultSet with string "ID", integer "Count", and double "Value" columns, with the same values as
+    * createTable() except that the value is null in every fifth row.
+    */
+   private ResultSet createResultSet ( final int nrows ) {
+       final String [] names = { "ID", "Count", "Value" };
+       final int [] types = { Types.VARCHAR, Types.INTEGER, Types.DOUBLE };
+       final ResultSetMetaData meta = (ResultSetMetaData)Proxy.newProxyInstance ( getClass().getClassLoader(),
+           new Class<?>[] { ResultSetMetaData.class }, new InvocationHandler() {
+               public Object invoke ( Object proxy, Method method, Object [] args ) {
+                   if ( method.getName().equals("getColumnCount") ) {
+                       return Integer.valueOf(names.length);
+                   }
+                   else if ( method.getName().equals("getColumnName") ) {
+                       return names[(Integer)args[0] - 1];
+                   }
+                   else if ( method.getName().equals("getColumnType") ) {
+                       return Integer.valueOf(types[(Integer)args[0] - 1]);
+                   }
+                   return Integer.valueOf(0);
+               }
+           });
+       return (ResultSet)Proxy.newProxyInstance ( getClass().getClassLoader(),
+           new Class<?>[] { ResultSet.class }, new InvocationHandler() {
+               int irow = -1;
+               boolean wasNull = false;
+               public Object invoke ( Object proxy, Method method, Object [] args ) {
+                   String name = method.getName();
+                   if ( name.equals("getMetaData") ) {
+                       return meta;
+                   }
+                   else if ( name.equals("next") ) {
+                       return Boolean.valueOf(++irow < nrows);
+                   }
+                   else if ( name.equals("wasNull") ) {
+                       return Boolean.valueOf(wasNull);
+                   }
+                   else if ( name.equals("getString") ) {
+                       wasNull = false;
+                       return ((irow % 2 == 0) ? "a" : "A") + (irow % 10);
+                   }
+                   else if ( name.equals("getInt") ) {
+                       wasNull = false;
+                       return Integer.valueOf(irow % 7);
+                   }
+                   else if ( name.equals("getDouble") ) {
+                       wasNull = (irow % 5 == 0);
+                       return Double.valueOf(irow);
+                   }
+                   return null;
+               }
+           });
+   }
+
+   /**
+    * Return the records matching a single column value.
+    */
+   private List<TableRecord> getRecords ( DataTable table, String columnName, Object columnValue ) throws Exception {
+       List<String> columnNames = new ArrayList<String>();
+       columnNames.add ( columnName );
+       List<Object> columnValues = new ArrayList<Object>();
+       columnValues.add ( columnValue );
+       return table.getRecords ( columnNames, columnValues );
+   }
+
+   /**
+    * Test that a columnar table returns the same values as the original table and that values can be changed.
+    */
+   public void testColumnarTable() throws Exception {
+       DataTable table = createTable ( 100 );
+       ColumnarDataTable columnarTable = new ColumnarDataTable ( table );
+       assertEquals ( table.getNumberOfRecords(), columnarTable.getNumberOfRecords() );
+       for ( int irow = 0; irow < table.getNumberOfRecords(); irow++ ) {
+           for ( int icol = 0; icol < table.getNumberOfFields(); icol++ ) {
+               assertEquals ( table.getFieldValue(irow, icol), columnarTable.getFieldValue(irow, icol) );
+           }
+       }
+       // Set values using the table and a record, including null and a value that is not the column type
+       columnarTable.setFieldValue ( 1, 2, null );
+       columnarTable.getRecord(2).setFieldValue ( 2, Double.valueOf(-2) );
+       columnarTable.setFieldValue ( 3, 1, Long.valueOf(3) );
+       assertNull ( columnarTable.getFieldValue(1, 2) );
+       assertEquals ( Double.valueOf(-2), columnarTable.getFieldValue(2, 2) );
+       assertEquals ( Long.valueOf(3), columnarTable.getFieldValue(3, 1) );
+       assertEquals ( Integer.valueOf(4), columnarTable.getFieldValue(4, 1) );
+       double [] values = columnarTable.getDoubleColumn ( 2 );
+       assertTrue ( Double.isNaN(values[1]) );
+       assertEquals ( -2.0, values[2] );
+       assertEquals ( 99.0, values[99] );
+       // Delete a record and add a record, which reuses the deleted record's storage
+       columnarTable.deleteRecord ( 0 );
+       TableRecord rec = columnarTable.addRecord ( columnarTable.emptyRecord().setFieldValue(0, "B") );
+       assertEquals ( 100, columnarTable.getNumberOfRecords() );
+       assertEquals ( "B", columnarTable.getFieldValue(99, 0) );
+       assertNull ( rec.getFieldValue(2) );
+       assertEquals ( "a2", columnarTable.getFieldValue(1, 0) );
+   }
+
+   /**
+    * Test that adding and deleting fields in a record of a columnar table changes only that record,
+    * as for a DataTable, and that the table can still add and delete columns afterwards.
+    */
+   public void testColumnarRecordFields() throws Exception {
+       DataTable table = createTable ( 10 );
+       ColumnarDataTable columnarTable = new ColumnarDataTable ( table );
+       DataTable [] tables = { table, columnarTable };
+       for ( DataTable t : tables ) {
+           TableRecord rec = t.getRecord(3);
+           rec.addFieldValue ( "Extra" );
+           rec.addFieldValue ( 0, "First" );
+           assertEquals ( 5, rec.getNumberOfFields() );
+           assertEquals ( "First", rec.getFieldValue(0) );
+           assertEquals ( "A3", rec.getFieldValue(1) );
+           assertEquals ( Double.valueOf(3), rec.getFieldValue(3) );
+           assertEquals ( "Extra", rec.getFieldValue(4) );
+           rec.deleteField ( 0 );
+           rec.deleteField ( 3 );
+           assertEquals ( 3, rec.getNumberOfFields() );
+           assertEquals ( "A3", t.getFieldValue(3, 0) );
+           // Other records are not changed
+           assertEquals ( 3, t.getRecord(4).getNumberOfFields() );
+           assertEquals ( Integer.valueOf(4), t.getFieldValue(4, 1) );
+           // A deleted field can be added back
+           t.getRecord(5).deleteField ( 2 );
+           assertEquals ( 2, t.getRecord(5).getNumberOfFields() );
+           t.getRecord(5).addFieldValue ( Double.valueOf(-5) );
+           assertEquals ( Double.valueOf(-5), t.getFieldValue(5, 2) );
+           // Table columns are still added to and deleted from all records
+           t.addField ( 1, new TableField(TableField.DATA_TYPE_STRING, "Note", -1, -1), "N", null );
+           assertEquals ( "N", t.getFieldValue(3, 1) );
+           assertEquals ( "N", t.getFieldValue(4, 1) );
+           assertEquals ( Integer.valueOf(3), t.getFieldValue(3, 2) );
+           t.deleteField ( 1 );
+           assertEquals ( 3, t.getRecord(3).getNumberOfFields() );
+           assertEquals ( Double.valueOf(3), t.getFieldValue(3, 2) );
+       }
+       // The record that stores its own values is still read through the typed column methods
+       double [] values = columnarTable.getDoubleColumn ( 2 );
+       assertEquals ( 3.0, values[3] );
+       assertEquals ( -5.0, values[5] );
+       // Deleting the record and adding new records works with the released storage
+       columnarTable.deleteRecord ( 3 );
+       columnarTable.addRecord ( columnarTable.emptyRecord().setFieldValue(0, "C") );
+       columnarTable.addRecord ( columnarTable.emptyRecord().setFieldValue(0, "D") );
+       assertEquals ( 11, columnarTable.getNumberOfRecords() );
+       assertEquals ( "a4", columnarTable.getFieldValue(3, 0) );
+       assertEquals ( "D", columnarTable.getFieldValue(10, 0) );
+   }
+
+   /**
+    * Test that a ResultSet is processed into a table and in chunks, with a row limit and early termination.
+    */
+   public void testResultSetToDataTable() throws Exception {
+       ResultSetToDataTableFactory factory = new ResultSetToDataTableFactory();
+       DataTable table = factory.createDataTable ( -1, createResultSet(20), "Test" );
+       assertEquals ( 20, table.getNumberOfRecords() );
+       assertNull ( table.getFieldValue(5, 2) );
+       assertEquals ( Double.valueOf(6), table.getFieldValue(6, 2) );
+       // Columnar table with a row limit
+       factory.setColumnar ( true );
+       factory.setMaxRows ( 12 );
+       DataTable columnarTable = factory.createDataTable ( -1, createResultSet(20), "Test" );
+       assertTrue ( columnarTable instanceof ColumnarDataTable );
+       assertEquals ( 12, columnarTable.getNumberOfRecords() );
+       for ( int irow = 0; irow < 12; irow++ ) {
+           for ( int icol = 0; icol < 3; icol++ ) {
+               assertEquals ( table.getFieldValue(irow, icol), columnarTable.getFieldValue(irow, icol) );
+           }
+       }
+       // Chunks of 6 rows, stopping after the second chunk
+       factory.setMaxRows ( -1 );
+       final List<Integer> firstRows = new ArrayList<Integer>();
+       int count = factory.createDataTableChunks ( -1, createResultSet(20), "Test", 6, new ResultSetChunkVisitor() {
+           public boolean visitChunk ( DataTable chunk, int firstRow ) throws Exception {
+               assertEquals ( 6, chunk.getNumberOfRecords() );
+               assertEquals ( Integer.valueOf(firstRow % 7), chunk.getFieldValue(0, 1) );
+               firstRows.add ( Integer.valueOf(firstRow) );
+               return firstRows.size() < 2;
+           }
+       });
+       assertEquals ( 12, count );
+       assertEquals ( 2, firstRows.size() );
+       assertEquals ( Integer.valueOf(6), firstRows.get(1) );
+   }
+
+   /**
+    * Test that the streaming delimited file reader returns the requested columns, skips lines,
+    * and stops when the visitor requests.
+    */
+   public void testDelimitedFileReader() throws Exception {
+       File f = File.createTempFile ( "DataTableTest", ".csv" );
+       f.deleteOnExit();
+       PrintWriter out = new PrintWriter ( f );
+       out.print ( "# Comment\r\n\"ID\",\"Name\",\"Value\"\r\n" );
+       for ( int irow = 0; irow < 100; irow++ ) {
+           out.print ( "A" + irow + ",\"Name, " + irow + "\"," + irow + "\n" );
+       }
+       out.close();
+       // Read all columns after skipping to the first data line
+       DelimitedFileDataTableReader in = new DelimitedFileDataTableReader ( f.getPath(), ",", StringUtil.DELIM_ALLOW_STRINGS );
+       assertTrue ( in.skipToLine(2) );
+       assertTrue ( in.readRecord() );
+       assertEquals ( 2, in.getLineNumber() );
+       assertEquals ( 3, in.getNumberOfTokens() );
+       assertEquals ( "A0", in.getToken(0) );
+       assertEquals ( "Name, 0", in.getToken(1) );
+       in.close();
+       // Read the third and first columns, skipping the comment, and stop after the row with value 50
+       in = new DelimitedFileDataTableReader ( f.getPath(), ",", StringUtil.DELIM_ALLOW_STRINGS );
+       in.setCommentLineIndicator ( "#" );
+       in.setColumns ( new int[] { 2, 0 } );
+       final List<String> ids = new ArrayList<String>();
+       int count = in.readRecords ( new DelimitedFileRecordVisitor() {
+           public boolean visitRecord ( DelimitedFileDataTableReader reader ) {
+               if ( reader.getLineNumber() == 1 ) {
+                   // Header
+                   return true;
+               }
+               if ( Integer.parseInt(reader.getToken(0)) % 10 == 0 ) {
+                   ids.add ( reader.getToken(1) );
+               }
+               return !reader.getToken(0).equals("50");
+           }
+       });
+       in.close();
+       assertEquals ( 52, count );
+       assertEquals ( 6, ids.size() );
+       assertEquals ( "A50", ids.get(5) );
+   }
+
+   /**
+    * Test that indexed lookups return the same records as lookups without an index,
+    * and that the index is kept up to date when the table is changed.
+    */
+   public void testIndexLookup() throws Exception {
+       DataTable table = createTable ( 1000 );
+       int n = getRecords ( table, "ID", "A3" ).size();
+       table.createIndex ( "ID", DataTableIndexType.HASH );
+       assertEquals ( 100, n );
+       assertEquals ( n, getRecords(table, "ID", "a3").size() );
+       // Change a value, add a record and delete records, and check that the index is updated
+       table.setFieldValue ( 3, 0, "B" );
+       assertEquals ( n - 1, getRecords(table, "ID", "A3").size() );
+       assertEquals ( 1, getRecords(table, "ID", "b").size() );
+       table.deleteRecord ( 0 );
+       table.addRecord ( table.emptyRecord().setFieldValue(0, "a3") );
+       List<TableRecord> records = getRecords ( table, "ID", "A3" );
+       assertEquals ( n, records.size() );
+       // Records are returned in table order
+       assertEquals ( 13.0, records.get(0).getFieldValue(2) );
+       assertEquals ( null, records.get(n - 1).getFieldValue(2) );
+   }
+
+   /**
+    * Test sorting by multiple columns, including the order of equal values and null values.
+    */
+   public void testSortTable() throws Exception {
+       DataTable table = createTable ( 100 );
+       int [] order = table.sortTable ( new String[] { "ID", "Count" }, new int[] { 1, -1 } );
+       // Rows with ID "a0" sorted by decreasing count, with rows having equal counts in the original order
+       double [] expected = { 20, 90, 40, 60, 10, 80, 30, 50, 0, 70 };
+       for ( int irow = 0; irow < expected.length; irow++ ) {
+           assertEquals ( expected[irow], table.getFieldValue(irow, 2) );
+           assertEquals ( (int)expected[irow], order[irow] );
+       }
+       assertEquals ( "A9", table.getFieldValue(99, 0) );
+       // Null values are first when treated as smallest, or last if requested
+       table.setFieldValue ( 50, 0, null );
+       table.sortTable ( new String[] { "ID" }, new int[] { 1 }, DataTableSortNullsType.SMALLEST, false );
+       assertNull ( table.getFieldValue(0, 0) );
+       table.sortTable ( new String[] { "ID" }, new int[] { 1 }, DataTableSortNullsType.LAST, true );
+       assertNull ( table.getFieldValue(99, 0) );
+       assertEquals ( "a0", table.getFieldValue(0, 0) );
+   }
+
+   /**
+    * Test that all join strategies give the same result as the nested loop join.
+    */
+   public void testJoinStrategies() throws Exception {
+       Hashtable<String,String> joinColumnsMap = new Hashtable<String,String>();
+       joinColumnsMap.put ( "ID", "ID" );
+       joinColumnsMap.put ( "Count", "Count" );
+       Hashtable<String,String> columnMap = new Hashtable<String,String>();
+       columnMap.put ( "Value", "Value2" );
+       String expected = null;
+       int expectedCount = -1;
+       DataTableJoinStrategyType [] joinStrategies = { DataTableJoinStrategyType.NESTED_LOOP,
+           DataTableJoinStrategyType.HASH, DataTableJoinStrategyType.SORT_MERGE, DataTableJoinStrategyType.AUTO };
+       for ( DataTableJoinStrategyType joinStrategy : joinStrategies ) {
+           DataTable table = createTable ( 200 );
+           DataTable tableToJoin = createTable ( 300 );
+           List<String> problems = new ArrayList<String>();
+           int n = table.joinTable ( table, tableToJoin, joinColumnsMap, new String[] { "Value" }, columnMap,
+               new Hashtable<String,String>(), DataTableJoinMethodType.JOIN_ALWAYS,
+               HandleMultipleJoinMatchesHowType.USE_LAST_MATCH, problems, joinStrategy );
+           assertEquals ( 0, problems.size() );
+           StringBuilder b = new StringBuilder();
+           for ( int irow = 0; irow < table.getNumberOfRecords(); irow++ ) {
+               b.append ( table.getFieldValue(irow, 2) + "," + table.getFieldValue(irow, 3) + "\n" );
+           }
+           if ( expected == null ) {
+               expected = b.toString();
+               expectedCount = n;
+               // Rows in the second table match every 70 rows, and the last match is used
+               assertEquals ( 280.0, table.getFieldValue(0, 3) );
+           }
+           else {
+               assertEquals ( joinStrategy.toString(), expectedCount, n );
+               assertEquals ( joinStrategy.toString(), expected, b.toString() );
+           }
+       }
+   }
+
+   /**
+    * Test that indexes on the columns of the first table that are set by a join are rebuilt, so that indexed lookups
+    * return the same records as checking every row.
+    */
+   public void testJoinUpdatesIndexes() throws Exception {
+       Hashtable<String,String> joinColumnsMap = new Hashtable<String,String>();
+       joinColumnsMap.put ( "ID", "ID" );
+       joinColumnsMap.put ( "Count", "Count" );
+       DataTable table = createTable ( 20 );
+       DataTable tableToJoin = createTable ( 50 );
+       for ( int irow = 0; irow < tableToJoin.getNumberOfRecords(); irow++ ) {
+           tableToJoin.setFieldValue ( irow, 0, "B" + irow % 3 );
+           tableToJoin.setFieldValue ( irow, 2, Double.valueOf(irow % 4) );
+       }
+       // Rows that match in the tables, for which the value is set from the second table
+       for ( int irow = 0; irow < 5; irow++ ) {
+           table.setFieldValue ( irow, 0, tableToJoin.getFieldValue(irow, 0) );
+           table.setFieldValue ( irow, 1, tableToJoin.getFieldValue(irow, 1) );
+       }
+       table.createIndex ( "ID", DataTableIndexType.HASH );
+       table.createIndex ( "Value", DataTableIndexType.SORTED );
+       List<String> problems = new ArrayList<String>();
+       table.joinTable ( table, tableToJoin, joinColumnsMap, new String[] { "Value" }, new Hashtable<String,String>(),
+           new Hashtable<String,String>(), DataTableJoinMethodType.JOIN_ALWAYS,
+           HandleMultipleJoinMatchesHowType.USE_LAST_MATCH, problems );
+       assertEquals ( 0, problems.size() );
+       assertTrue ( table.getNumberOfRecords() > 20 );
+       Object [][] lookups = { { "ID", "B0", 0 }, { "ID", "b1", 0 }, { "ID", "A1", 0 },
+           { "Value", Double.valueOf(0), 2 }, { "Value", Double.valueOf(3), 2 }, { "Value", Double.valueOf(15), 2 } };
+       for ( Object [] lookup : lookups ) {
+           int count = 0;
+           for ( int irow = 0; irow < table.getNumberOfRecords(); irow++ ) {
+               Object value = table.getFieldValue ( irow, (Integer)lookup[2] );
+               if ( (value instanceof String) ? ((String)value).equalsIgnoreCase((String)lookup[1]) :
+                   lookup[1].equals(value) ) {
+                   ++count;
+               }
+           }
+           assertTrue ( lookup[1].toString(), count > 0 );
+           assertEquals ( lookup[1].toString(), count, getRecords(table, (String)lookup[0], lookup[1]).size() );
+       }
+   }
+
+   /**
+    * Test range lookups with a sorted index.
+    */
+   public void testIndexRangeLookup() throws Exception {
+       DataTable table = createTable ( 1000 );
+       List<TableRecord> records = table.getRecordsInRange ( 2, Double.valueOf(100), true, Integer.valueOf(200), false );
+       assertEquals ( 100, records.size() );
+       assertEquals ( 100.0, records.get(0).getFieldValue(2) );
+       assertEquals ( 199.0, records.get(99).getFieldValue(2) );
+   }
+
+}
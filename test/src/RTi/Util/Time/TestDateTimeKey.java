@@ -0,0 +1,143 @@
+package RTi.Util.Time;
+
+import junit.framework.TestCase;
+
+/**
+ * Test cases for the DateTimeKey class.
+ */
+public class TestDateTimeKey extends TestCase {
+
+   /**
+    * Test that encoding and decoding a date/time results in the same date/time, including before the epoch.
+    */
+   public void testRoundTrip() throws Exception {
+       String [] dtStrings = { "1600-02-29 23:59", "1899-12-31 00:00", "1970-01-01 00:00", "2000-02-29 12:34", "2100-03-01 06:15" };
+       for ( int i = 0; i < dtStrings.length; i++ ) {
+           DateTime dt = DateTime.parse ( dtStrings[i] );
+           DateTimeKey key = new DateTimeKey ( dt );
+           assertEquals ( dtStrings[i], key.toDateTime().toString() );
+       }
+       assertEquals ( 0, DateTimeKey.toKey(DateTime.parse("1970-01-01 00:00")) );
+   }
+
+   /**
+    * Test that adding intervals gives the same results as DateTime.addInterval().
+    */
+   public void testPlusIntervals() throws Exception {
+       DateTime dt = DateTime.parse ( "1999-12-30 18:45" );
+       int [] bases = { TimeInterval.MINUTE, TimeInterval.HOUR, TimeInterval.DAY, TimeInterval.MONTH, TimeInterval.YEAR };
+       long key = DateTimeKey.toKey ( dt );
+       for ( int ib = 0; ib < bases.length; ib++ ) {
+           for ( int n = -500; n <= 500; n += 7 ) {
+               DateTime dt2 = new DateTime ( dt );
+               dt2.addInterval ( bases[ib], 3*n );
+               assertEquals ( DateTimeKey.toKey(dt2), DateTimeKey.plusIntervals(key, bases[ib], 3, n) );
+           }
+       }
+   }
+
+   /**
+    * Test counting intervals between date/times.
+    */
+   public void testIntervalsBetween() throws Exception {
+       long key1 = DateTimeKey.toKey ( DateTime.parse("2000-01-31") );
+       long key2 = DateTimeKey.toKey ( DateTime.parse("2001-03-30") );
+       assertEquals ( 424, DateTimeKey.intervalsBetween(key1, key2, TimeInterval.DAY, 1) );
+       assertEquals ( -424, DateTimeKey.intervalsBetween(key2, key1, TimeInterval.DAY, 1) );
+       assertEquals ( 13, DateTimeKey.intervalsBetween(key1, key2, TimeInterval.MONTH, 1) );
+       assertEquals ( 1, DateTimeKey.intervalsBetween(key1, key2, TimeInterval.YEAR, 1) );
+       // Adding months to the end of a month results in the end of the month
+       assertEquals ( "2000-02-29", DateTimeKey.toDateTime(DateTimeKey.plusIntervals(key1, TimeInterval.MONTH, 1, 1), DateTime.PRECISION_DAY).toString() );
+       assertEquals ( 424, TimeUtil.getNumIntervals(DateTime.parse("2000-01-31"), DateTime.parse("2001-03-30"), TimeInterval.DAY, 1) );
+   }
+
+   /**
+    * Test that encoding a java.util.Date gives the same result as DateTime(Date).
+    */
+   public void testToKeyFromDate() throws Exception {
+       java.util.TimeZone tz = java.util.TimeZone.getDefault();
+       long ms = -5000000000000L;
+       for ( int i = 0; i < 2000; i++ ) {
+           java.util.Date d = new java.util.Date ( ms );
+           assertEquals ( DateTimeKey.toKey(new DateTime(d)), DateTimeKey.toKey(d.getTime(), tz) );
+           ms += 5005005005L;
+       }
+   }
+
+   /**
+    * Test encoding timestamps as local date/times in specific time zones, as done when streaming time series
+    * data from a database:  the result must match the calendar fields in the time zone, including across
+    * daylight saving changes and for a half-hour offset, with fractions of a second truncated (also before 1970),
+    * and the key must convert to a DateTime with the precision used for the time series.
+    */
+   public void testToKeyTimeZoneAndPrecision() throws Exception {
+       String [] tzIDs = { "UTC", "America/Denver", "Asia/Kolkata" };
+       for ( int itz = 0; itz < tzIDs.length; itz++ ) {
+           java.util.TimeZone tz = java.util.TimeZone.getTimeZone ( tzIDs[itz] );
+           java.util.GregorianCalendar cal = new java.util.GregorianCalendar ( tz );
+           // Hourly from before to after the 2016 spring and fall daylight saving changes, plus offsets in the hour
+           long ms0 = java.sql.Timestamp.valueOf("2016-03-12 00:00:00").getTime();
+           for ( int ih = 0; ih < 24*250; ih += 7 ) {
+               long ms = ms0 + ih*3600000L + (ih%60)*61001L + 999;
+               cal.setTimeInMillis ( ms );
+               long expected = DateTimeKey.toKey ( cal.get(java.util.Calendar.YEAR), cal.get(java.util.Calendar.MONTH) + 1,
+                   cal.get(java.util.Calendar.DAY_OF_MONTH), cal.get(java.util.Calendar.HOUR_OF_DAY),
+                   cal.get(java.util.Calendar.MINUTE), cal.get(java.util.Calendar.SECOND), 0 );
+               assertEquals ( tzIDs[itz] + " " + ms, expected, DateTimeKey.toKey(ms, tz) );
+           }
+       }
+       java.util.TimeZone utc = java.util.TimeZone.getTimeZone ( "UTC" );
+       // Fractions of a second are truncated toward the earlier second, including before 1970
+       assertEquals ( 0, DateTimeKey.toKey(999, utc) );
+       assertEquals ( -100, DateTimeKey.toKey(-1, utc) );
+       assertEquals ( -100, DateTimeKey.toKey(-1000, utc) );
+       assertEquals ( -200, DateTimeKey.toKey(-1001, utc) );
+       // Timestamp nanoseconds do not change the key
+       java.sql.Timestamp timestamp = new java.sql.Timestamp ( 1262304000000L + 45000 );
+       timestamp.setNanos ( 999999999 );
+       assertEquals ( DateTimeKey.toKey(2010, 1, 1, 0, 0, 45, 0), DateTimeKey.toKey(timestamp.getTime(), utc) );
+       // Half-hour offset zone on either side of midnight
+       java.util.TimeZone kolkata = java.util.TimeZone.getTimeZone ( "Asia/Kolkata" );
+       assertEquals ( DateTimeKey.toKey(2010, 1, 1, 5, 30, 0, 0), DateTimeKey.toKey(1262304000000L, kolkata) );
+       assertEquals ( DateTimeKey.toKey(2010, 1, 1, 0, 0, 0, 0), DateTimeKey.toKey(1262304000000L - 19800000L, kolkata) );
+       // Convert to DateTime with the precision used for timestamp and integer year data columns,
+       // reusing a DateTime as done when setting the data values
+       long key = DateTimeKey.toKey ( 1262304000000L + 45678, kolkata );
+       DateTime dateTime = new DateTime ( DateTime.PRECISION_SECOND );
+       DateTimeKey.setDateTime ( key, dateTime );
+       assertEquals ( "2010-01-01 05:30:45", dateTime.toString() );
+       assertEquals ( DateTime.PRECISION_SECOND, dateTime.getPrecision() );
+       DateTimeKey.setDateTime ( DateTimeKey.toKey(2011, 1, 1, 0, 0, 0, 0), dateTime );
+       assertEquals ( "2011-01-01 00:00:00", dateTime.toString() );
+       assertEquals ( "1987", DateTimeKey.toDateTime(DateTimeKey.toKey(1987, 1, 1, 0, 0, 0, 0), DateTime.PRECISION_YEAR).toString() );
+   }
+
+   /**
+    * Test that adding days to a date with a day past the end of the month (from adding months) gives the
+    * same result as adding one day at a time, and that counting intervals from such a date does the same.
+    */
+   public void testAddDayPastEndOfMonth() throws Exception {
+       DateTime start = DateTime.parse ( "2001-01-31" );
+       start.addMonth ( 1 );
+       assertEquals ( 2, start.getMonth() );
+       assertEquals ( 31, start.getDay() );
+       for ( int n = -40; n <= 40; n++ ) {
+           DateTime stepped = new DateTime ( start );
+           for ( int i = 0; i < Math.abs(n); i++ ) {
+               stepped.addDay ( (n > 0) ? 1 : -1 );
+           }
+           DateTime dt = new DateTime ( start );
+           dt.addDay ( n );
+           assertEquals ( "addDay(" + n + ")", stepped.toString(), dt.toString() );
+       }
+       DateTime dt = new DateTime ( start );
+       dt.addDay ( -2 );
+       assertEquals ( "2001-02-29", dt.toString() );
+       DateTime end = DateTime.parse ( "2001-04-01" );
+       int count = 0;
+       for ( dt = new DateTime(start); dt.lessThan(end); dt.addDay(1) ) {
+           ++count;
+       }
+       assertEquals ( count, TimeUtil.getNumIntervals(start, end, TimeInterval.DAY, 1) );
+   }
+}
@@ -0,0 +1,399 @@
+package riverside.datastore;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+import RTi.DMI.DMI;
+import RTi.DMI.DMISelectStatement;
+import RTi.DMI.GenericDMI;
+import RTi.TS.TS;
+import RTi.TS.TSData;
+import RTi.Util.IO.PropList;
+import RTi.Util.Time.DateTime;
+
+/**
+ * Test cases for reading time series from the GenericDatabaseDataStore class.
+ * The metadata and data tables are simulated by a DMI that answers the SELECT statements used by
+ * GenericDatabaseDataStore from in-memory tables, handling "= ?" and "IN (...)" where clauses,
+ * MIN/MAX with GROUP BY, and ORDER BY.
+ */
+public class GenericDatabaseDataStoreTest extends TestCase {
+
+   /**
+    * Metadata table columns.
+    */
+   private static final String [] META_COLUMNS = { "meta_id", "loc_type", "loc_id", "source", "data_type",
+       "data_interval", "scenario", "description", "units" };
+
+   /**
+    * Metadata table rows.
+    */
+   private static final Object [][] META_ROWS = {
+       { 1L, "Reservoir", "abc", "USGS", "Stage", "Day", "", "abc stage", "FT" },
+       { 2L, "Reservoir", "abc", "USGS", "Flow", "Day", "", "abc flow", "CFS" },
+       { 3L, "Stream", "def", "NWS", "Flow", "Day", "", "def flow", "CFS" },
+       { 4L, "Stream", "ghi", "USGS", "Flow", "Day", "", "ghi flow (no data)", "CFS" },
+       // Two records match "dup.USGS.Flow.Day" so neither path returns a time series
+       { 5L, "Stream", "dup", "USGS", "Flow", "Day", "", "dup flow 1", "CFS" },
+       { 6L, "Canal", "dup", "USGS", "Flow", "Day", "", "dup flow 2", "CFS" }
+   };
+
+   /**
+    * Data table columns.
+    */
+   private static final String [] DATA_COLUMNS = { "meta_id", "date_time", "value", "flag" };
+
+   /**
+    * Data table rows, created in setUp() in random order to check ordering.
+    */
+   private List<Object[]> dataRows = new ArrayList<Object[]>();
+
+   /**
+    * Number of queries that have been executed.
+    */
+   private int queryCount = 0;
+
+   /**
+    * Create the data table, with values for metadata identifiers 1, 2, 3, 5 and 6 with different periods,
+    * including missing values and flags.
+    */
+   protected void setUp () throws Exception {
+       for ( long id = 1; id <= 6; id++ ) {
+           if ( id == 4 ) {
+               continue;
+           }
+           DateTime date = DateTime.parse ( "2000-01-01" );
+           date.addDay ( (int)id );
+           for ( int i = 0; i < 10 + 3*id; i++, date.addDay(1) ) {
+               Double value = ((i % 7) == 3) ? null : Double.valueOf(id*100 + i);
+               String flag = ((i % 5) == 1) ? "E" : null;
+               dataRows.add ( new Object[] { id, Timestamp.valueOf(date.toString() + " 00:00:00"), value, flag } );
+           }
+       }
+       Collections.shuffle ( dataRows, new java.util.Random(3) );
+   }
+
+   /**
+    * Create a datastore for the tables.
+    * @param timeToLive value for the metadata cache time to live property, or null to not set.
+    */
+   private GenericDatabaseDataStore createDataStore ( String timeToLive ) throws Exception {
+       DMI dmi = new GenericDMI ( "PostgreSQL", "localhost", "test", 5432, "login", "password" ) {
+           public ResultSet dmiSelect ( DMISelectStatement select ) {
+               ++queryCount;
+               return select ( select.toString(), select.getWhereParameters() );
+           }
+       };
+       dmi.setConnection ( createConnection() );
+       GenericDatabaseDataStore dataStore = new GenericDatabaseDataStore ( "test", "test", dmi );
+       PropList props = new PropList ( "test" );
+       props.set ( GenericDatabaseDataStore.TS_META_TABLE_PROP, "meta" );
+       props.set ( GenericDatabaseDataStore.TS_META_TABLE_ID_COLUMN_PROP, "meta_id" );
+       props.set ( GenericDatabaseDataStore.TS_META_TABLE_LOCTYPE_COLUMN_PROP, "loc_type" );
+       props.set ( GenericDatabaseDataStore.TS_META_TABLE_LOCATIONID_COLUMN_PROP, "loc_id" );
+       props.set ( GenericDatabaseDataStore.TS_META_TABLE_DATASOURCE_COLUMN_PROP, "source" );
+       props.set ( GenericDatabaseDataStore.TS_META_TABLE_DATATYPE_COLUMN_PROP, "data_type" );
+       props.set ( GenericDatabaseDataStore.TS_META_TABLE_DATAINTERVAL_COLUMN_PROP, "data_interval" );
+       props.set ( GenericDatabaseDataStore.TS_META_TABLE_SCENARIO_COLUMN_PROP, "scenario" );
+       props.set ( GenericDatabaseDataStore.TS_META_TABLE_DESCRIPTION_COLUMN_PROP, "description" );
+       props.set ( GenericDatabaseDataStore.TS_META_TABLE_UNITS_COLUMN_PROP, "units" );
+       props.set ( GenericDatabaseDataStore.TS_DATA_TABLE_PROP, "ts_data" );
+       props.set ( GenericDatabaseDataStore.TS_DATA_TABLE_METAID_COLUMN_PROP, "meta_id" );
+       props.set ( GenericDatabaseDataStore.TS_DATA_TABLE_DATETIME_COLUMN_PROP, "date_time" );
+       props.set ( GenericDatabaseDataStore.TS_DATA_TABLE_VALUE_COLUMN_PROP, "value" );
+       props.set ( GenericDatabaseDataStore.TS_DATA_TABLE_FLAG_COLUMN_PROP, "flag" );
+       if ( timeToLive != null ) {
+           props.set ( GenericDatabaseDataStore_TimeSeriesMetaCache.CACHE_TIME_TO_LIVE_PROP, timeToLive );
+       }
+       dataStore.setProperties ( props );
+       return dataStore;
+   }
+
+   /**
+    * Create a connection whose database metadata describe the date/time column as a timestamp.
+    */
+   private Connection createConnection () {
+       final DatabaseMetaData metadata = (DatabaseMetaData)Proxy.newProxyInstance ( getClass().getClassLoader(),
+           new Class<?>[] { DatabaseMetaData.class }, new InvocationHandler() {
+               public Object invoke ( Object proxy, Method method, Object [] args ) {
+                   if ( method.getName().equals("getColumns") ) {
+                       List<Object[]> rows = new ArrayList<Object[]>();
+                       rows.add ( new Object[] { null, null, args[2], args[3], Integer.valueOf(Types.TIMESTAMP) } );
+                       return createResultSet ( rows );
+                   }
+                   return null;
+               }
+           });
+       return (Connection)Proxy.newProxyInstance ( getClass().getClassLoader(),
+           new Class<?>[] { Connection.class }, new InvocationHandler() {
+               public Object invoke ( Object proxy, Method method, Object [] args ) {
+                   if ( method.getName().equals("getMetaData") ) {
+                       return metadata;
+                   }
+                   return null;
+               }
+           });
+   }
+
+   /**
+    * Return the position of a column in a table.
+    */
+   private static int getColumn ( String [] columns, String field ) {
+       // Remove the table name
+       String column = field.substring(field.lastIndexOf('.') + 1).trim();
+       int pos = Arrays.asList(columns).indexOf(column);
+       if ( pos < 0 ) {
+           throw new IllegalArgumentException ( "Unknown column \"" + field + "\"" );
+       }
+       return pos;
+   }
+
+   /**
+    * Select from the metadata or data table, handling
+    * "SELECT fields FROM table [WHERE clause AND ...] [GROUP BY field] [ORDER BY field, ...]",
+    * where the fields can use MIN() and MAX(), and the where clauses are "column = ?" or "column IN (...)".
+    */
+   private ResultSet select ( String sql, List<Object> parameters ) {
+       Matcher m = Pattern.compile ( "SELECT (.+) FROM (\\S+)( WHERE (.+?))?( GROUP BY (.+?))?( ORDER BY (.+))?" ).matcher ( sql );
+       assertTrue ( "Unexpected SQL: " + sql, m.matches() );
+       String [] fields = m.group(1).split(",");
+       boolean meta = m.group(2).equals("meta");
+       String [] columns = meta ? META_COLUMNS : DATA_COLUMNS;
+       List<Object[]> tableRows = meta ? Arrays.asList(META_ROWS) : dataRows;
+       // Where clauses, as column positions and lists of matching values
+       List<Integer> whereColumns = new ArrayList<Integer>();
+       List<List<Object>> whereValues = new ArrayList<List<Object>>();
+       int iparameter = 0;
+       if ( m.group(4) != null ) {
+           for ( String clause : m.group(4).split(" AND ") ) {
+               clause = clause.trim();
+               if ( clause.startsWith("(") && clause.endsWith(")") && !clause.endsWith("))") ) {
+                   clause = clause.substring(1, clause.length() - 1);
+               }
+               Matcher mc = Pattern.compile ( "\\(?(\\S+) (= \\?|IN \\((.*)\\))\\)?" ).matcher ( clause );
+               assertTrue ( "Unexpected where clause: " + clause, mc.matches() );
+               int column = getColumn ( columns, mc.group(1) );
+               List<Object> values = new ArrayList<Object>();
+               if ( mc.group(3) == null ) {
+                   values.add ( parameters.get(iparameter++) );
+               }
+               else {
+                   for ( String value : mc.group(3).split(",") ) {
+                       if ( value.trim().equals("?") ) {
+                           values.add ( parameters.get(iparameter++) );
+                       }
+                       else {
+                           values.add ( Long.valueOf(value.trim()) );
+                       }
+                   }
+               }
+               whereColumns.add ( column );
+               whereValues.add ( values );
+           }
+       }
+       List<Object[]> rows = new ArrayList<Object[]>();
+       for ( Object [] row : tableRows ) {
+           boolean match = true;
+           for ( int i = 0; i < whereColumns.size(); i++ ) {
+               if ( !whereValues.get(i).contains(row[whereColumns.get(i)]) ) {
+                   match = false;
+               }
+           }
+           if ( match ) {
+               rows.add ( row );
+           }
+       }
+       if ( m.group(6) != null ) {
+           // Group by the first field, computing MIN() and MAX() of the other fields
+           Map<Object,Object[]> groups = new LinkedHashMap<Object,Object[]>();
+           for ( Object [] row : rows ) {
+               Object [] group = groups.get(row[getColumn(columns, fields[0])]);
+               if ( group == null ) {
+                   group = new Object[fields.length];
+                   group[0] = row[getColumn(columns, fields[0])];
+                   groups.put ( group[0], group );
+               }
+               for ( int i = 1; i < fields.length; i++ ) {
+                   String field = fields[i].trim();
+                   @SuppressWarnings("unchecked")
+                   Comparable<Object> value = (Comparable<Object>)row[getColumn(columns,
+                       field.substring(4, field.length() - 1))];
+                   if ( (group[i] == null) || (field.startsWith("MIN(") && (value.compareTo(group[i]) < 0)) ||
+                       (field.startsWith("MAX(") && (value.compareTo(group[i]) > 0)) ) {
+                       group[i] = value;
+                   }
+               }
+           }
+           rows = new ArrayList<Object[]>(groups.values());
+           columns = new String[fields.length];
+           for ( int i = 0; i < fields.length; i++ ) {
+               columns[i] = fields[i].trim();
+           }
+       }
+       if ( m.group(8) != null ) {
+           final List<Integer> orderColumns = new ArrayList<Integer>();
+           for ( String field : m.group(8).split(",") ) {
+               orderColumns.add ( getColumn(columns, field) );
+           }
+           Collections.sort ( rows, new Comparator<Object[]>() {
+               @SuppressWarnings("unchecked")
+               public int compare ( Object [] row1, Object [] row2 ) {
+                   for ( int column : orderColumns ) {
+                       int c = ((Comparable<Object>)row1[column]).compareTo(row2[column]);
+                       if ( c != 0 ) {
+                           return c;
+                       }
+                   }
+                   return 0;
+               }
+           });
+       }
+       // Select the fields
+       List<Object[]> results = new ArrayList<Object[]>();
+       for ( Object [] row : rows ) {
+           Object [] result = new Object[fields.length];
+           for ( int i = 0; i < fields.length; i++ ) {
+               result[i] = row[getColumn(columns, fields[i])];
+           }
+           results.add ( result );
+       }
+       return createResultSet ( results );
+   }
+
+   /**
+    * Create a ResultSet for rows of values.
+    */
+   private ResultSet createResultSet ( final List<Object[]> rows ) {
+       return (ResultSet)Proxy.newProxyInstance ( getClass().getClassLoader(),
+           new Class<?>[] { ResultSet.class }, new InvocationHandler() {
+               int irow = -1;
+               boolean wasNull = false;
+               public Object invoke ( Object proxy, Method method, Object [] args ) {
+                   String name = method.getName();
+                   if ( name.equals("next") ) {
+                       return Boolean.valueOf(++irow < rows.size());
+                   }
+                   else if ( name.equals("wasNull") ) {
+                       return Boolean.valueOf(wasNull);
+                   }
+                   else if ( name.startsWith("get") && (args != null) && (args[0] instanceof Integer) ) {
+                       Object value = rows.get(irow)[(Integer)args[0] - 1];
+                       wasNull = (value == null);
+                       if ( name.equals("getString") ) {
+                           return (value == null) ? null : value.toString();
+                       }
+                       else if ( name.equals("getLong") ) {
+                           return (value == null) ? Long.valueOf(0) : value;
+                       }
+                       else if ( name.equals("getInt") ) {
+                           return (value == null) ? Integer.valueOf(0) : Integer.valueOf(((Number)value).intValue());
+                       }
+                       else if ( name.equals("getDouble") ) {
+                           return (value == null) ? Double.valueOf(0) : value;
+                       }
+                       return value;
+                   }
+                   return null;
+               }
+           });
+   }
+
+   /**
+    * Check that a time series from readTimeSeriesList() is the same as from readTimeSeries().
+    */
+   private void checkSame ( String tsid, TS expected, TS ts ) throws Exception {
+       if ( expected == null ) {
+           assertNull ( tsid, ts );
+           return;
+       }
+       assertNotNull ( tsid, ts );
+       assertEquals ( tsid, expected.getIdentifierString(), ts.getIdentifierString() );
+       assertEquals ( tsid, expected.getDescription(), ts.getDescription() );
+       assertEquals ( tsid, expected.getDataUnits(), ts.getDataUnits() );
+       assertEquals ( tsid, "" + expected.getDate1(), "" + ts.getDate1() );
+       assertEquals ( tsid, "" + expected.getDate2(), "" + ts.getDate2() );
+       assertEquals ( tsid, expected.hasData(), ts.hasData() );
+       if ( !expected.hasData() ) {
+           return;
+       }
+       for ( DateTime date = new DateTime(expected.getDate1()); date.lessThanOrEqualTo(expected.getDate2());
+           date.addDay(1) ) {
+           TSData point = expected.getDataPoint ( date, null );
+           TSData point2 = ts.getDataPoint ( date, null );
+           assertEquals ( tsid + " " + date, point.getDataValue(), point2.getDataValue(), 0.0 );
+           assertEquals ( tsid + " " + date, point.getDataFlag(), point2.getDataFlag() );
+       }
+   }
+
+   /**
+    * Test that reading a list of time series gives the same time series as reading each time series,
+    * with null for identifiers that are not found or match more than one metadata record, using fewer queries.
+    */
+   public void testReadTimeSeriesListMatchesReadTimeSeries () throws Exception {
+       List<String> tsidList = Arrays.asList (
+           "Reservoir:abc.USGS.Flow.Day",
+           "Stream:def.NWS.Flow.Day",
+           "Reservoir:abc.USGS.Stage.Day",
+           "Stream:xyz.USGS.Flow.Day", // Location not found
+           "Stream:def.USGS.Flow.Day", // Data source not found
+           "Stream:ghi.USGS.Flow.Day", // No data
+           "dup.USGS.Flow.Day", // Matches two records
+           "Reservoir:abc.USGS.Flow.Day" // Repeated
+       );
+       for ( String timeToLive : new String[] { null, "300" } ) {
+           GenericDatabaseDataStore dataStore = createDataStore ( timeToLive );
+           queryCount = 0;
+           List<TS> expectedList = new ArrayList<TS>();
+           for ( String tsid : tsidList ) {
+               expectedList.add ( dataStore.readTimeSeries(tsid, null, null, true) );
+           }
+           int queryCountEach = queryCount;
+           queryCount = 0;
+           List<TS> tsList = dataStore.readTimeSeriesList ( tsidList, null, null, true );
+           assertEquals ( tsidList.size(), tsList.size() );
+           for ( int i = 0; i < tsidList.size(); i++ ) {
+               checkSame ( tsidList.get(i), expectedList.get(i), tsList.get(i) );
+           }
+           assertTrue ( queryCount < queryCountEach );
+           // Found time series, as a check that the comparison is not only of nulls
+           assertEquals ( "[true, true, true, false, false, true, false, true]", toFoundString(tsList) );
+           assertTrue ( tsList.get(0).hasData() );
+           assertEquals ( "E", tsList.get(0).getDataPoint(DateTime.parse("2000-01-04"), null).getDataFlag() );
+           assertFalse ( tsList.get(5).hasData() );
+           // Repeated identifiers result in separate time series
+           assertNotSame ( tsList.get(0), tsList.get(7) );
+           // Metadata only
+           tsList = dataStore.readTimeSeriesList ( tsidList, null, null, false );
+           assertEquals ( "[true, true, true, false, false, true, false, true]", toFoundString(tsList) );
+           assertEquals ( "abc stage", tsList.get(2).getDescription() );
+           assertFalse ( tsList.get(2).hasData() );
+       }
+   }
+
+   /**
+    * Return a string indicating which time series in a list are not null.
+    */
+   private String toFoundString ( List<TS> tsList ) {
+       List<Boolean> found = new ArrayList<Boolean>();
+       for ( TS ts : tsList ) {
+           found.add ( ts != null );
+       }
+       return found.toString();
+   }
+}
@@ -0,0 +1,287 @@
+package riverside.datastore;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import junit.framework.TestCase;
+import RTi.DMI.DMI;
+import RTi.DMI.DMISelectStatement;
+import RTi.DMI.GenericDMI;
+import RTi.Util.IO.PropList;
+
+/**
+ * Test cases for the GenericDatabaseDataStore_TimeSeriesMetaCache class.
+ * The time series metadata table is simulated by a DMI that answers the simple SELECT statements used by
+ * GenericDatabaseDataStore from an in-memory table, matching values exactly and ordering ignoring case,
+ * which is a different order than String.compareTo().
+ */
+public class GenericDatabaseDataStore_TimeSeriesMetaCacheTest extends TestCase {
+
+   /**
+    * Metadata table columns.
+    */
+   private static final String [] COLUMNS = { "meta_id", "loc_type", "loc_id", "source", "data_type", "data_interval",
+       "scenario", "description", "units" };
+
+   /**
+    * Metadata table rows.
+    */
+   private static final String [][] ROWS = {
+       { "1", "Reservoir", "abc", "USGS", "Stage", "Day", "", "abc stage", "FT" },
+       { "2", "Reservoir", "ABC", "USGS", "Stage", "Day", "", "ABC stage", "FT" },
+       { "3", "Reservoir", "abc", "USGS", "flow", "Day", "", "abc flow", "CFS" },
+       { "4", "stream", "def", "NWS", "flow", "Hour", "Forecast", "def flow", "CFS" },
+       { "5", "stream", "Ghi", "usgs", "precip", "Hour", "", "Ghi precip", "IN" },
+       { "6", "Stream", "ghi", "USGS", "Stage", "Day", "", "ghi stage", "FT" }
+   };
+
+   /**
+    * Number of queries that have been executed.
+    */
+   private int queryCount = 0;
+
+   /**
+    * Create a datastore for the metadata table.
+    * @param timeToLive value for the cache time to live property, or null to not set.
+    */
+   private GenericDatabaseDataStore createDataStore ( String timeToLive ) throws Exception {
+       DMI dmi = new GenericDMI ( "PostgreSQL", "localhost", "test", 5432, "login", "password" ) {
+           public ResultSet dmiSelect ( DMISelectStatement select ) {
+               ++queryCount;
+               return select ( select.toString(), select.getWhereParameters() );
+           }
+       };
+       GenericDatabaseDataStore dataStore = new GenericDatabaseDataStore ( "test", "test", dmi );
+       PropList props = new PropList ( "test" );
+       props.set ( GenericDatabaseDataStore.TS_META_TABLE_PROP, "meta" );
+       props.set ( GenericDatabaseDataStore.TS_META_TABLE_ID_COLUMN_PROP, "meta_id" );
+       props.set ( GenericDatabaseDataStore.TS_META_TABLE_LOCTYPE_COLUMN_PROP, "loc_type" );
+       props.set ( GenericDatabaseDataStore.TS_META_TABLE_LOCATIONID_COLUMN_PROP, "loc_id" );
+       props.set ( GenericDatabaseDataStore.TS_META_TABLE_DATASOURCE_COLUMN_PROP, "source" );
+       props.set ( GenericDatabaseDataStore.TS_META_TABLE_DATATYPE_COLUMN_PROP, "data_type" );
+       props.set ( GenericDatabaseDataStore.TS_META_TABLE_DATAINTERVAL_COLUMN_PROP, "data_interval" );
+       props.set ( GenericDatabaseDataStore.TS_META_TABLE_SCENARIO_COLUMN_PROP, "scenario" );
+       props.set ( GenericDatabaseDataStore.TS_META_TABLE_DESCRIPTION_COLUMN_PROP, "description" );
+       props.set ( GenericDatabaseDataStore.TS_META_TABLE_UNITS_COLUMN_PROP, "units" );
+       if ( timeToLive != null ) {
+           props.set ( GenericDatabaseDataStore_TimeSeriesMetaCache.CACHE_TIME_TO_LIVE_PROP, timeToLive );
+       }
+       dataStore.setProperties ( props );
+       return dataStore;
+   }
+
+   /**
+    * Return the position of a column in the metadata table.
+    */
+   private static int getColumn ( String field ) {
+       // Remove the table name and escapes
+       String column = field.substring(field.lastIndexOf('.') + 1).replace("\"", "").trim();
+       return Arrays.asList(COLUMNS).indexOf(column);
+   }
+
+   /**
+    * Select from the metadata table, handling "SELECT [DISTINCT] fields FROM meta [WHERE meta.column = ? AND ...]
+    * [ORDER BY column]".
+    */
+   private ResultSet select ( String sql, List<Object> parameters ) {
+       boolean distinct = sql.startsWith("SELECT DISTINCT ");
+       String [] fields = sql.substring(distinct ? 16 : 7, sql.indexOf(" FROM ")).split(",");
+       int wherePos = sql.indexOf(" WHERE ");
+       int orderPos = sql.indexOf(" ORDER BY ");
+       List<Integer> whereColumns = new ArrayList<Integer>();
+       if ( wherePos >= 0 ) {
+           String where = sql.substring(wherePos + 7, (orderPos >= 0) ? orderPos : sql.length());
+           for ( String clause : where.split(" AND ") ) {
+               whereColumns.add ( getColumn(clause.replace("(", "").replace(")", "").replace("= ?", "")) );
+           }
+       }
+       List<String[]> rows = new ArrayList<String[]>();
+       for ( String [] row : ROWS ) {
+           boolean match = true;
+           for ( int i = 0; i < whereColumns.size(); i++ ) {
+               if ( !row[whereColumns.get(i)].equals(parameters.get(i)) ) {
+                   match = false;
+               }
+           }
+           if ( match ) {
+               String [] values = new String[fields.length];
+               for ( int i = 0; i < fields.length; i++ ) {
+                   values[i] = row[getColumn(fields[i])];
+               }
+               rows.add ( values );
+           }
+       }
+       if ( distinct ) {
+           LinkedHashSet<List<String>> distinctRows = new LinkedHashSet<List<String>>();
+           for ( String [] row : rows ) {
+               distinctRows.add ( Arrays.asList(row) );
+           }
+           rows.clear();
+           for ( List<String> row : distinctRows ) {
+               rows.add ( row.toArray(new String[0]) );
+           }
+       }
+       if ( orderPos >= 0 ) {
+           Collections.sort ( rows, new Comparator<String[]>() {
+               public int compare ( String [] row1, String [] row2 ) {
+                   return String.CASE_INSENSITIVE_ORDER.compare(row1[0], row2[0]);
+               }
+           });
+       }
+       return createResultSet ( rows );
+   }
+
+   /**
+    * Create a ResultSet for rows of string values.
+    */
+   private ResultSet createResultSet ( final List<String[]> rows ) {
+       return (ResultSet)Proxy.newProxyInstance ( getClass().getClassLoader(),
+           new Class<?>[] { ResultSet.class }, new InvocationHandler() {
+               int irow = -1;
+               public Object invoke ( Object proxy, Method method, Object [] args ) {
+                   String name = method.getName();
+                   if ( name.equals("next") ) {
+                       return Boolean.valueOf(++irow < rows.size());
+                   }
+                   else if ( name.equals("wasNull") ) {
+                       return Boolean.FALSE;
+                   }
+                   else if ( name.equals("getString") ) {
+                       return rows.get(irow)[(Integer)args[0] - 1];
+                   }
+                   else if ( name.equals("getLong") ) {
+                       return Long.valueOf(rows.get(irow)[(Integer)args[0] - 1]);
+                   }
+                   return null;
+               }
+           });
+   }
+
+   /**
+    * Test that the cache is not used unless a time to live is set.
+    */
+   public void testDisabledByDefault () throws Exception {
+       GenericDatabaseDataStore dataStore = createDataStore ( null );
+       assertNull ( dataStore.getTimeSeriesMetaCache().readDistinct(
+           GenericDatabaseDataStore_TimeSeriesMetaCache.DATA_TYPE, null, null, null, null, null, null) );
+       assertEquals ( 0, dataStore.getTimeSeriesMetaCache().getRecordCount() );
+       queryCount = 0;
+       dataStore.readTimeSeriesMetaDataTypeList ( false, null, null, null, null, null );
+       dataStore.readTimeSeriesMetaDataTypeList ( false, null, null, null, null, null );
+       assertEquals ( 2, queryCount );
+       // Lookups with the cache disabled are not counted as hits or misses
+       assertEquals ( 0, dataStore.getTimeSeriesMetaCache().getHitCount() );
+       assertEquals ( 0, dataStore.getTimeSeriesMetaCache().getMissCount() );
+       dataStore = createDataStore ( "0" );
+       assertNull ( dataStore.getTimeSeriesMetaCache().readMatching(null, null, null, null, null, null) );
+       assertEquals ( 0, dataStore.getTimeSeriesMetaCache().getMissCount() );
+   }
+
+   /**
+    * Test that lists of distinct values from the cache are the same, and in the same order, as from the database.
+    */
+   public void testDistinctLists () throws Exception {
+       GenericDatabaseDataStore db = createDataStore ( null );
+       GenericDatabaseDataStore cached = createDataStore ( "300" );
+       assertEquals ( Arrays.asList("flow", "precip", "Stage"),
+           cached.readTimeSeriesMetaDataTypeList(false, null, null, null, null, null) );
+       String [][] filters = {
+           { null, null, null, null, null, null },
+           { "Reservoir", null, null, null, null, null },
+           { "stream", null, null, null, null, null },
+           { null, "abc", null, null, null, null },
+           { null, "ABC", "USGS", null, null, null },
+           { null, null, "usgs", null, null, null },
+           { null, null, null, "flow", null, null },
+           { null, null, null, null, "Hour", "Forecast" },
+           { "*", "", null, "Stage", "Day", "" }
+       };
+       for ( String [] f : filters ) {
+           assertEquals ( db.readTimeSeriesMetaLocationTypeList(f[1], f[2], f[3], f[4], f[5]),
+               cached.readTimeSeriesMetaLocationTypeList(f[1], f[2], f[3], f[4], f[5]) );
+           assertEquals ( db.readTimeSeriesMetaLocationIDList(f[0], f[2], f[3], f[4], f[5]),
+               cached.readTimeSeriesMetaLocationIDList(f[0], f[2], f[3], f[4], f[5]) );
+           assertEquals ( db.readTimeSeriesMetaDataSourceList(f[0], f[1], f[3], f[4], f[5]),
+               cached.readTimeSeriesMetaDataSourceList(f[0], f[1], f[3], f[4], f[5]) );
+           assertEquals ( db.readTimeSeriesMetaDataTypeList(false, f[0], f[1], f[2], f[4], f[5]),
+               cached.readTimeSeriesMetaDataTypeList(false, f[0], f[1], f[2], f[4], f[5]) );
+           assertEquals ( db.readTimeSeriesMetaIntervalList(f[0], f[1], f[2], f[3], f[5]),
+               cached.readTimeSeriesMetaIntervalList(f[0], f[1], f[2], f[3], f[5]) );
+           assertEquals ( db.readTimeSeriesMetaScenarioList(f[0], f[1], f[2], f[3], f[4]),
+               cached.readTimeSeriesMetaScenarioList(f[0], f[1], f[2], f[3], f[4]) );
+       }
+       assertTrue ( cached.getTimeSeriesMetaCache().getHitCount() > 0 );
+       assertEquals ( 1, cached.getTimeSeriesMetaCache().getMissCount() );
+   }
+
+   /**
+    * Test that metadata are matched exactly, as in the database queries.
+    */
+   public void testMatching () throws Exception {
+       GenericDatabaseDataStore dataStore = createDataStore ( "300" );
+       GenericDatabaseDataStore_TimeSeriesMetaCache cache = dataStore.getTimeSeriesMetaCache();
+       assertEquals ( ROWS.length, cache.readMatching(null, null, null, null, null, null).size() );
+       assertEquals ( ROWS.length, cache.readMatching("*", "", null, "*", null, "").size() );
+       List<TimeSeriesMeta> matches = cache.readMatching ( "Reservoir", "ABC", "USGS", "Stage", "Day", null );
+       assertEquals ( 1, matches.size() );
+       assertEquals ( 2, matches.get(0).getId() );
+       assertEquals ( "ABC stage", matches.get(0).getDescription() );
+       assertEquals ( 2, cache.readMatching(null, "abc", null, null, null, null).size() );
+       assertEquals ( 0, cache.readMatching(null, "Abc", null, null, null, null).size() );
+       assertEquals ( 0, cache.readMatching(null, "ghi", "usgs", null, null, null).size() );
+       TimeSeriesMeta meta = dataStore.readTimeSeriesMeta ( "Stream", "ghi", "USGS", "Stage", "Day", "" );
+       assertNotNull ( meta );
+       assertEquals ( 6, meta.getId() );
+       assertEquals ( "FT", meta.getUnits() );
+       assertNull ( dataStore.readTimeSeriesMeta("stream", "ghi", "USGS", "Stage", "Day", "") );
+   }
+
+   /**
+    * Test that the metadata table is read again after invalidate().
+    */
+   public void testInvalidate () throws Exception {
+       GenericDatabaseDataStore dataStore = createDataStore ( "300" );
+       GenericDatabaseDataStore_TimeSeriesMetaCache cache = dataStore.getTimeSeriesMetaCache();
+       queryCount = 0;
+       cache.readMatching ( null, null, null, null, null, null );
+       int loadQueryCount = queryCount;
+       assertTrue ( loadQueryCount > 0 );
+       assertEquals ( ROWS.length, cache.getRecordCount() );
+       cache.readMatching ( null, "abc", null, null, null, null );
+       dataStore.readTimeSeriesMetaDataTypeList ( false, null, null, null, null, null );
+       assertEquals ( loadQueryCount, queryCount );
+       assertEquals ( 1, cache.getMissCount() );
+       assertEquals ( 2, cache.getHitCount() );
+       dataStore.invalidateTimeSeriesMetaCache();
+       assertEquals ( 0, cache.getRecordCount() );
+       cache.readMatching ( null, null, null, null, null, null );
+       assertEquals ( 2*loadQueryCount, queryCount );
+       assertEquals ( 2, cache.getMissCount() );
+   }
+
+   /**
+    * Test that the metadata table is read again after the time to live.
+    */
+   public void testExpiry () throws Exception {
+       GenericDatabaseDataStore dataStore = createDataStore ( "1" );
+       GenericDatabaseDataStore_TimeSeriesMetaCache cache = dataStore.getTimeSeriesMetaCache();
+       queryCount = 0;
+       cache.readMatching ( null, null, null, null, null, null );
+       int loadQueryCount = queryCount;
+       cache.readMatching ( null, null, null, null, null, null );
+       assertEquals ( loadQueryCount, queryCount );
+       Thread.sleep ( 1100 );
+       cache.readMatching ( null, null, null, null, null, null );
+       assertEquals ( 2*loadQueryCount, queryCount );
+       assertEquals ( 2, cache.getMissCount() );
+       assertEquals ( 1, cache.getHitCount() );
+   }
+}
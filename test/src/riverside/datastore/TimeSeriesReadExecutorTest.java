@@ -0,0 +1,184 @@
+package riverside.datastore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import RTi.TS.DayTS;
+import RTi.TS.TS;
+import RTi.Util.Time.DateTime;
+
+/**
+ * Test cases for the TimeSeriesReadExecutor class, using an executor that creates empty time series
+ * rather than reading from a database.
+ */
+public class TimeSeriesReadExecutorTest extends TestCase {
+
+   /**
+    * Time series identifiers for which reads have started, in the order started.
+    */
+   private List<String> startedList = Collections.synchronizedList(new ArrayList<String>());
+
+   /**
+    * Number of reads running, and the maximum number running at the same time.
+    */
+   private AtomicInteger runningCount = new AtomicInteger(0);
+   private AtomicInteger maxRunningCount = new AtomicInteger(0);
+
+   /**
+    * Create a datastore with a name.
+    */
+   private DataStore createDataStore ( String name ) {
+       AbstractDataStore dataStore = new AbstractDataStore() {
+       };
+       dataStore.setName ( name );
+       return dataStore;
+   }
+
+   /**
+    * Create an executor for datastores "A" and "B".  Each read sleeps for longer for earlier identifiers in the
+    * list, so that reads complete out of order, and returns a time series with the requested identifier,
+    * which is also set as the description because the identifier string does not include the input type.
+    */
+   private TimeSeriesReadExecutor createExecutor ( final List<String> tsidList, int threadCount ) {
+       List<DataStore> dataStoreList = new ArrayList<DataStore>();
+       dataStoreList.add ( createDataStore("A") );
+       dataStoreList.add ( createDataStore("B") );
+       return new TimeSeriesReadExecutor ( dataStoreList, threadCount ) {
+           protected TS readTimeSeries ( DataStore dataStore, String tsid, DateTime readStart, DateTime readEnd,
+               boolean readData ) throws Exception {
+               startedList.add ( tsid );
+               int running = runningCount.incrementAndGet();
+               synchronized ( maxRunningCount ) {
+                   maxRunningCount.set ( Math.max(maxRunningCount.get(), running) );
+               }
+               try {
+                   Thread.sleep ( 5*(tsidList.size() - tsidList.indexOf(tsid)) );
+                   TS ts = new DayTS();
+                   ts.setIdentifier ( tsid );
+                   ts.setDescription ( tsid );
+                   return ts;
+               }
+               finally {
+                   runningCount.decrementAndGet();
+               }
+           }
+       };
+   }
+
+   /**
+    * Create time series identifiers that alternate between datastores A and B.
+    */
+   private List<String> createTSIDList ( int count ) {
+       List<String> tsidList = new ArrayList<String>();
+       for ( int i = 0; i < count; i++ ) {
+           tsidList.add ( "Loc" + i + ".Source.Flow.Day~" + ((i % 2 == 0) ? "A" : "B") );
+       }
+       return tsidList;
+   }
+
+   /**
+    * Wait for reads of the given time series to start.
+    */
+   private void waitForStart ( List<String> tsidList ) throws InterruptedException {
+       long end = System.currentTimeMillis() + 10000;
+       while ( !startedList.containsAll(tsidList) && (System.currentTimeMillis() < end) ) {
+           Thread.sleep ( 5 );
+       }
+       assertTrue ( "Reads did not start for " + tsidList, startedList.containsAll(tsidList) );
+   }
+
+   /**
+    * Test that batches are returned in the order of the requested identifiers, even though reads complete
+    * out of order, with null for identifiers that do not match a datastore.
+    */
+   public void testBatchOrder () throws Exception {
+       List<String> tsidList = createTSIDList ( 10 );
+       tsidList.add ( 4, "Loc.Source.Flow.Day~C" );
+       TimeSeriesReadExecutor executor = createExecutor ( tsidList, 4 );
+       executor.setBatchSize ( 3 );
+       List<Integer> batchSizeList = new ArrayList<Integer>();
+       List<TS> tsList = new ArrayList<TS>();
+       for ( Iterator<List<TS>> it = executor.readTimeSeriesBatches(tsidList, null, null, true); it.hasNext(); ) {
+           List<TS> batch = it.next();
+           batchSizeList.add ( batch.size() );
+           tsList.addAll ( batch );
+       }
+       executor.close();
+       assertEquals ( "[3, 3, 3, 2]", batchSizeList.toString() );
+       assertEquals ( tsidList.size(), tsList.size() );
+       for ( int i = 0; i < tsidList.size(); i++ ) {
+           if ( i == 4 ) {
+               assertNull ( tsList.get(i) );
+           }
+           else {
+               assertEquals ( tsidList.get(i), tsList.get(i).getDescription() );
+           }
+       }
+       // Same order when reading all at once
+       executor = createExecutor ( tsidList, 4 );
+       tsList = executor.readTimeSeriesList ( tsidList, null, null, true );
+       executor.close();
+       for ( int i = 0; i < tsidList.size(); i++ ) {
+           if ( i != 4 ) {
+               assertEquals ( tsidList.get(i), tsList.get(i).getDescription() );
+           }
+       }
+   }
+
+   /**
+    * Test that the first batch is read when the iterator is created, that next() starts reading the following
+    * batch before the caller processes the current batch, and that no more than one batch is read ahead.
+    */
+   public void testPrefetch () throws Exception {
+       List<String> tsidList = createTSIDList ( 6 );
+       TimeSeriesReadExecutor executor = createExecutor ( tsidList, 4 );
+       executor.setBatchSize ( 2 );
+       Iterator<List<TS>> it = executor.readTimeSeriesBatches ( tsidList, null, null, true );
+       // First batch is read without calling next()
+       waitForStart ( tsidList.subList(0, 2) );
+       Thread.sleep ( 100 );
+       assertEquals ( 2, startedList.size() );
+       // Second batch is read while the caller processes the first batch
+       List<TS> batch = it.next();
+       assertEquals ( tsidList.get(0), batch.get(0).getDescription() );
+       waitForStart ( tsidList.subList(2, 4) );
+       Thread.sleep ( 100 );
+       assertEquals ( 4, startedList.size() );
+       batch = it.next();
+       assertEquals ( tsidList.get(2), batch.get(0).getDescription() );
+       waitForStart ( tsidList.subList(4, 6) );
+       batch = it.next();
+       assertEquals ( tsidList.get(4), batch.get(0).getDescription() );
+       assertFalse ( it.hasNext() );
+       executor.close();
+   }
+
+   /**
+    * Test that a datastore that is not a database datastore with a connection pool is read one time series
+    * at a time by default, and that the number of concurrent reads is limited after raising the limit.
+    */
+   public void testConcurrencyLimit () throws Exception {
+       List<String> tsidList = new ArrayList<String>();
+       for ( String tsid : createTSIDList(20) ) {
+           if ( tsid.endsWith("~A") ) {
+               tsidList.add ( tsid );
+           }
+       }
+       TimeSeriesReadExecutor executor = createExecutor ( tsidList, 8 );
+       DataStore dataStore = executor.getDataStoreForTSID ( tsidList.get(0) );
+       assertEquals ( 1, executor.getConcurrencyLimit(dataStore) );
+       List<TS> tsList = executor.readTimeSeriesList ( tsidList, null, null, true );
+       assertEquals ( tsidList.size(), tsList.size() );
+       assertEquals ( 1, maxRunningCount.get() );
+       executor.setConcurrencyLimit ( dataStore, 2 );
+       maxRunningCount.set ( 0 );
+       tsList = executor.readTimeSeriesList ( tsidList, null, null, true );
+       executor.close();
+       assertEquals ( tsidList.size(), tsList.size() );
+       assertTrue ( maxRunningCount.get() <= 2 );
+   }
+}